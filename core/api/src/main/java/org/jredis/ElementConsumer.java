@@ -0,0 +1,47 @@
+/*
+ *   Copyright 2009-2012 Joubin Houshyar
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package org.jredis;
+
+/**
+ * Consumes the elements of a multi-bulk reply as they are read from the connection,
+ * e.g. with {@link JRedis#lrange(Object, long, long, ElementConsumer)}, so that large
+ * collections can be processed without materializing the reply.
+ * <p>
+ * The element is passed as a slice of a buffer that the connection may be reusing:
+ * <b>the slice is only valid for the duration of the call</b>.  Copy the bytes if
+ * they are needed later.
+ * <p>
+ * The consumer is called by the thread that reads the reply -- for pipelines, the
+ * response handler thread of the connection -- and must not block, nor call the
+ * client that issued the request.  A (runtime) exception raised by the consumer
+ * fails the request with an {@link ElementConsumerException}: the consumer is not
+ * called for the remaining elements, which are read and discarded, so the connection
+ * remains usable.
+ *
+ * @author  Joubin Houshyar (alphazero@sensesay.net)
+ * @date    Apr 16, 2012
+ *
+ */
+public interface ElementConsumer {
+	/**
+	 * @param index of the element in the reply
+	 * @param buffer of the element data, or null for <b>nil</b> elements
+	 * @param offset of the element data in the buffer
+	 * @param length of the element data, or -1 for <b>nil</b> elements
+	 */
+	public void consume (int index, byte[] buffer, int offset, int length);
+}
@@ -0,0 +1,40 @@
+/*
+ *   Copyright 2009-2012 Joubin Houshyar
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package org.jredis;
+
+/**
+ * Raised for a streamed request when its {@link ElementConsumer} raised an exception,
+ * which is the cause.  The rest of the reply is read (and discarded) before this is
+ * raised, so only the request fails: the connection remains usable.
+ *
+ * @author  Joubin Houshyar (alphazero@sensesay.net)
+ * @date    Apr 16, 2012
+ *
+ */
+public class ElementConsumerException extends ClientRuntimeException {
+
+	/**  */
+	private static final long serialVersionUID = _specification.Version.major;
+
+	/**
+	 * @param msg
+	 * @param cause the exception raised by the consumer
+	 */
+	public ElementConsumerException (String msg, Throwable cause) {
+		super (msg, cause);
+	}
+}
@@ -0,0 +1,48 @@
+/*
+ *   Copyright 2009-2012 Joubin Houshyar
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package org.jredis;
+
+/**
+ * Receives the outcome of a {@link ListenableFuture}.  Exactly one of the two
+ * methods is called, exactly once.
+ * <p>
+ * Unless the callback was registered with an {@link java.util.concurrent.Executor},
+ * it is called by the thread that completed the request -- typically the response
+ * handler thread of the connection -- and must not block.  In particular, do NOT
+ * call {@link java.util.concurrent.Future#get()} of a pending request of the same
+ * connection from a callback: the (same) thread that would complete it is waiting
+ * on you.  Issuing new requests is fine.
+ *
+ * @author  Joubin Houshyar (alphazero@sensesay.net)
+ * @date    Apr 11, 2012
+ *
+ * @param <T> the result type of the future
+ */
+public interface FutureCallback<T> {
+	/**
+	 * @param result the same value that {@link java.util.concurrent.Future#get()} would return.
+	 */
+	public void onSuccess (T result);
+
+	/**
+	 * @param cause the cause of the failure: a {@link RedisException} for Redis errors,
+	 * or a {@link ClientRuntimeException} (or {@link ProviderException}). This is the
+	 * cause of the {@link java.util.concurrent.ExecutionException} that
+	 * {@link java.util.concurrent.Future#get()} would throw.
+	 */
+	public void onFailure (Throwable cause);
+}
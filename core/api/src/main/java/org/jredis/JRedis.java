@@ -293,6 +293,18 @@ public interface JRedis {
 	 * @see {@link JRedis#keys(String)}
 	 */
 	public <K extends Object> List<byte[]> keys () throws RedisException;
+	
+	/**
+	 * Streaming variant of {@link JRedis#keys(Object)}: the keys are handed to the
+	 * consumer as they are read.
+	 * @Redis KEYS
+	 * @param pattern
+	 * @param consumer
+	 * @return the number of keys
+	 * @throws RedisException
+	 * @see ElementConsumer
+	 */
+	public <K extends Object> long keys (K pattern, ElementConsumer consumer) throws RedisException;
 
 	/**
 	 * @Redis RANDOMKEY
@@ -429,6 +441,20 @@ public interface JRedis {
 	 * @throws RedisException
 	 */
 	public <K extends Object> List<byte[]> lrange (K listkey, long from, long to) throws RedisException; 
+	
+	/**
+	 * Streaming variant of {@link JRedis#lrange(Object, long, long)}: the items are
+	 * handed to the consumer as they are read.
+	 * @Redis LRANGE
+	 * @param listkey
+	 * @param from
+	 * @param to
+	 * @param consumer
+	 * @return the number of items in the range
+	 * @throws RedisException
+	 * @see ElementConsumer
+	 */
+	public <K extends Object> long lrange (K listkey, long from, long to, ElementConsumer consumer) throws RedisException; 
 
 	/**
 	 * @Redis LTRIM
@@ -596,6 +622,18 @@ public interface JRedis {
 	 */
 	public <K extends Object> List<byte[]> smembers (K setKey) throws RedisException;
 	
+	/**
+	 * Streaming variant of {@link JRedis#smembers(Object)}: the members are handed
+	 * to the consumer as they are read.
+	 * @Redis SMEMBERS
+	 * @param setkey
+	 * @param consumer
+	 * @return the number of members
+	 * @throws RedisException
+	 * @see ElementConsumer
+	 */
+	public <K extends Object> long smembers (K setKey, ElementConsumer consumer) throws RedisException;
+	
 	/**
 	 * @Redis SRANDMEMBER
 	 * @param setkey
@@ -725,6 +763,20 @@ public interface JRedis {
 	 * @see ZSetEntry
 	 */
 	public <K extends Object> List<ZSetEntry> zrangeSubset (K setkey, long from, long to) throws RedisException; 
+	
+	/**
+	 * Streaming variant of {@link JRedis#zrangeSubset(Object, long, long)}: the
+	 * elements handed to the consumer alternate between the values and their scores. 
+	 * @Redis ZRANGE ... WITHSCORES
+	 * @param setkey
+	 * @param from
+	 * @param to
+	 * @param consumer
+	 * @return the number of elements -- twice the number of values in the range
+	 * @throws RedisException
+	 * @see ElementConsumer
+	 */
+	public <K extends Object> long zrangeSubset (K setkey, long from, long to, ElementConsumer consumer) throws RedisException; 
 
 	/**
 	 * Equivalent to {@link JRedis#zrevrange(String, long, long)} with the {@link Option.Options#WITHSCORES}.
@@ -924,6 +976,19 @@ public interface JRedis {
 	@Redis(versions="1.3.n")
 	public <K extends Object> Map<byte[], byte[]> hgetall(K key)  throws RedisException;
 	
+	/**
+	 * Streaming variant of {@link JRedis#hgetall(Object)}: the elements handed to
+	 * the consumer alternate between the fields and their values.
+	 * @Redis HGETALL
+	 * @param key
+	 * @param consumer
+	 * @return the number of elements -- twice the number of fields
+	 * @throws RedisException
+	 * @see ElementConsumer
+	 */
+	@Redis(versions="1.3.n")
+	public <K extends Object> long hgetall(K key, ElementConsumer consumer)  throws RedisException;
+	
 	// ------------------------------------------------------------------------
 	// Transactional commands
 	// ------------------------------------------------------------------------
@@ -55,6 +55,11 @@ import org.jredis.protocol.ResponseStatus;
  * Similarly, if the request results in either {@link ClientRuntimeException} or {@link ProviderException}, the
  * {@link Future}'s {@link ExecutionException} will wrap these as the cause.
  * <p>
+ * The returned futures are {@link ListenableFuture}s: a {@link FutureCallback} can be registered to consume the
+ * result (or failure cause) on completion of the request, without blocking a thread in {@link Future#get()}.
+ * (The return types were {@link Future} in prior versions: source compatible, but code compiled against a prior
+ * version must be recompiled.)
+ * <p>
  * Beyond that , just be aware that an implementation may throw {@link ClientRuntimeException}
  * or an extension to report problems (typically connectivity) or {@link ProviderException}
  * (to highlight implementation features/bugs).  
@@ -82,20 +87,20 @@ public interface JRedisFuture {
 	/**
 	 * Ping redis
 	 */
-	public <K extends Object> Future<ResponseStatus> ping ();
+	public <K extends Object> ListenableFuture<ResponseStatus> ping ();
 
 	/**
 	 * Disconnects the client.
 	 * @Redis QUIT
 	 */
-	public <K extends Object> Future<ResponseStatus> quit ();
+	public <K extends Object> ListenableFuture<ResponseStatus> quit ();
 	
 	/**
 	 * Optional connection control command. 
 	 * @param <K>
 	 * @return
 	 */
-	public Future<ResponseStatus> flush ();
+	public ListenableFuture<ResponseStatus> flush ();
 	
 	// ------------------------------------------------------------------------
 	// "Commands operating on string values"
@@ -110,7 +115,7 @@ public interface JRedisFuture {
 	 * @throws ProviderException on un-documented features/bug
 	 * @throws ClientRuntimeException on errors due to operating environment (Redis or network)
 	 */
-	public <K extends Object> Future<ResponseStatus> set (K key, byte[] value);
+	public <K extends Object> ListenableFuture<ResponseStatus> set (K key, byte[] value);
 	/**
 	 * Convenient method for {@link String} data binding
 	 * @Redis SET
@@ -118,7 +123,7 @@ public interface JRedisFuture {
 	 * @param stringValue
 	 * @see {@link JRedis#set(String, byte[])}
 	 */
-	public <K extends Object> Future<ResponseStatus> set (K key, String stringValue);
+	public <K extends Object> ListenableFuture<ResponseStatus> set (K key, String stringValue);
 	/**
 	 * Convenient method for {@link String} numeric values binding
 	 * @Redis SET
@@ -126,7 +131,7 @@ public interface JRedisFuture {
 	 * @param numberValue
 	 * @see {@link JRedis#set(String, byte[])}
 	 */
-	public <K extends Object> Future<ResponseStatus> set (K key, Number numberValue);
+	public <K extends Object> ListenableFuture<ResponseStatus> set (K key, Number numberValue);
 	/**
 	 * Binds the given java {@link Object} to the key.  Serialization format is
 	 * implementation specific.  Simple implementations may apply the basic {@link Serializable}
@@ -138,7 +143,7 @@ public interface JRedisFuture {
 	 * @see {@link JRedis#set(String, byte[])}
 	 */
 	public <K extends Object, T extends Serializable> 
-		   Future<ResponseStatus> set (K key, T object);
+		   ListenableFuture<ResponseStatus> set (K key, T object);
 
 	/**
 	 * @Redis SETNX
@@ -146,13 +151,13 @@ public interface JRedisFuture {
 	 * @param value
 	 * @return
 	 */
-	public <K extends Object> Future<Boolean> setnx (K key, byte[] value);
-	public <K extends Object> Future<Boolean> setnx (K key, String stringValue);
-	public <K extends Object> Future<Boolean> setnx (K key, Number numberValue);
+	public <K extends Object> ListenableFuture<Boolean> setnx (K key, byte[] value);
+	public <K extends Object> ListenableFuture<Boolean> setnx (K key, String stringValue);
+	public <K extends Object> ListenableFuture<Boolean> setnx (K key, Number numberValue);
 	public <K extends Object, T extends Serializable> 
-		   Future<Boolean> setnx (K key, T object);
+		   ListenableFuture<Boolean> setnx (K key, T object);
 
-	public <K extends Object> Future<Boolean> setbit(K key, int offset, boolean value);
+	public <K extends Object> ListenableFuture<Boolean> setbit(K key, int offset, boolean value);
 
 
 	
@@ -161,16 +166,16 @@ public interface JRedisFuture {
 	 * @param key
 	 * @return
 	 */
-	public <K extends Object> Future<byte[]> get (K key) ;
+	public <K extends Object> ListenableFuture<byte[]> get (K key) ;
 
-	public <K extends Object> Future<byte[]> getset (K key, byte[] value);
-	public <K extends Object> Future<byte[]> getset (K key, String stringValue);
-	public <K extends Object> Future<byte[]> getset (K key, Number numberValue);
+	public <K extends Object> ListenableFuture<byte[]> getset (K key, byte[] value);
+	public <K extends Object> ListenableFuture<byte[]> getset (K key, String stringValue);
+	public <K extends Object> ListenableFuture<byte[]> getset (K key, Number numberValue);
 	public <K extends Object, T extends Serializable> 
-		Future<byte[]> getset (K key, T object);
+		ListenableFuture<byte[]> getset (K key, T object);
 
 
-	public <K extends Object> Future<Boolean> getbit(K key, int offset);
+	public <K extends Object> ListenableFuture<Boolean> getbit(K key, int offset);
 
 		
 	/**
@@ -179,7 +184,7 @@ public interface JRedisFuture {
 	 * @param moreKeys
 	 * @return
 	 */
-	public <K extends Object> Future<List<byte[]>> mget(String ... keys);
+	public <K extends Object> ListenableFuture<List<byte[]>> mget(String ... keys);
 
 	/**
 	 * @Redis MSET
@@ -187,12 +192,12 @@ public interface JRedisFuture {
 	 * @return Future<Boolean> indicating if all of sets were OK or not
 	 * @throws RedisException
 	 */
-	public <K extends Object> Future<ResponseStatus> mset(Map<K, byte[]> keyValueMap);
+	public <K extends Object> ListenableFuture<ResponseStatus> mset(Map<K, byte[]> keyValueMap);
 	
-	public <K extends Object> Future<ResponseStatus> mset(KeyValueSet.ByteArrays<K> mappings);
-	public <K extends Object> Future<ResponseStatus> mset(KeyValueSet.Strings<K> mappings);
-	public <K extends Object> Future<ResponseStatus> mset(KeyValueSet.Numbers<K> mappings);
-	public <K extends Object, T extends Serializable> Future<ResponseStatus> mset(KeyValueSet.Objects<K, T> mappings);
+	public <K extends Object> ListenableFuture<ResponseStatus> mset(KeyValueSet.ByteArrays<K> mappings);
+	public <K extends Object> ListenableFuture<ResponseStatus> mset(KeyValueSet.Strings<K> mappings);
+	public <K extends Object> ListenableFuture<ResponseStatus> mset(KeyValueSet.Numbers<K> mappings);
+	public <K extends Object, T extends Serializable> ListenableFuture<ResponseStatus> mset(KeyValueSet.Objects<K, T> mappings);
 	
 	/**
 	 * @Redis MSETNX
@@ -200,19 +205,19 @@ public interface JRedisFuture {
 	 * @return Future<Boolean> indicating if all of sets were OK or not
 	 * @throws RedisException
 	 */
-	public <K extends Object> Future<Boolean> msetnx(Map<K, byte[]> keyValueMap);
+	public <K extends Object> ListenableFuture<Boolean> msetnx(Map<K, byte[]> keyValueMap);
 	
-	public <K extends Object> Future<Boolean> msetnx(KeyValueSet.ByteArrays<K> mappings);
-	public <K extends Object> Future<Boolean> msetnx(KeyValueSet.Strings<K> mappings);
-	public <K extends Object> Future<Boolean> msetnx(KeyValueSet.Numbers<K> mappings);
-	public <K extends Object, T extends Serializable> Future<Boolean> msetnx(KeyValueSet.Objects<K, T> mappings);
+	public <K extends Object> ListenableFuture<Boolean> msetnx(KeyValueSet.ByteArrays<K> mappings);
+	public <K extends Object> ListenableFuture<Boolean> msetnx(KeyValueSet.Strings<K> mappings);
+	public <K extends Object> ListenableFuture<Boolean> msetnx(KeyValueSet.Numbers<K> mappings);
+	public <K extends Object, T extends Serializable> ListenableFuture<Boolean> msetnx(KeyValueSet.Objects<K, T> mappings);
 	
 	/**
 	 * @Redis INCR
 	 * @param key
 	 * @return
 	 */
-	public <K extends Object> Future<Long> incr (K key);
+	public <K extends Object> ListenableFuture<Long> incr (K key);
 
 	/**
 	 * @Redis INCRBY
@@ -220,14 +225,14 @@ public interface JRedisFuture {
 	 * @param delta
 	 * @return
 	 */
-	public <K extends Object> Future<Long> incrby (K key, int delta);
+	public <K extends Object> ListenableFuture<Long> incrby (K key, int delta);
 
 	/**
 	 * @Redis DECR
 	 * @param key
 	 * @return
 	 */
-	public <K extends Object> Future<Long> decr (K key);
+	public <K extends Object> ListenableFuture<Long> decr (K key);
 
 	/**
 	 * @Redis DECRBY
@@ -235,7 +240,7 @@ public interface JRedisFuture {
 	 * @param delta
 	 * @return
 	 */
-	public <K extends Object> Future<Long> decrby (K key, int delta);
+	public <K extends Object> ListenableFuture<Long> decrby (K key, int delta);
 
 	/**
 	 * @Redis SUBSTR
@@ -244,7 +249,7 @@ public interface JRedisFuture {
 	 * @param to
 	 * @return
 	 */
-	public <K extends Object> Future<byte[]> substr (K listkey, long from, long to); 
+	public <K extends Object> ListenableFuture<byte[]> substr (K listkey, long from, long to); 
 	
 	/**
 	 * @Redis APPEND
@@ -252,32 +257,32 @@ public interface JRedisFuture {
 	 * @param value
 	 * @return the length (byte count) of appended key.
 	 */
-	public <K extends Object> Future<Long> append (K key, byte[] value);
-	public <K extends Object> Future<Long> append (K key, String stringValue);
-	public <K extends Object> Future<Long> append (K key, Number numberValue);
+	public <K extends Object> ListenableFuture<Long> append (K key, byte[] value);
+	public <K extends Object> ListenableFuture<Long> append (K key, String stringValue);
+	public <K extends Object> ListenableFuture<Long> append (K key, Number numberValue);
 	public <K extends Object, T extends Serializable> 
-		   Future<Long> append (K key, T object);
+		   ListenableFuture<Long> append (K key, T object);
 
 	/**
 	 * @Redis EXISTS
 	 * @param key
 	 * @return
 	 */
-	public <K extends Object> Future<Boolean> exists(K key);
+	public <K extends Object> ListenableFuture<Boolean> exists(K key);
 
 	/**
 	 * @Redis DEL
 	 * @param keys one or more, non-null, non-zero-length, keys to be deleted
 	 * @return Future<Long> of number keys actually deleted.
 	 */
-	public <K extends Object> Future<Long> del (K ... keys);
+	public <K extends Object> ListenableFuture<Long> del (K ... keys);
 
 	/**
 	 * @Redis TYPE
 	 * @param key
 	 * @return
 	 */
-	public <K extends Object> Future<RedisType> type (K key);
+	public <K extends Object> ListenableFuture<RedisType> type (K key);
 	
 	
 	// ------------------------------------------------------------------------
@@ -289,7 +294,7 @@ public interface JRedisFuture {
 	 * @param pattern
 	 * @return
 	 */
-	public <K extends Object> Future<List<byte[]>> keys (K pattern);
+	public <K extends Object> ListenableFuture<List<byte[]>> keys (K pattern);
 	
 	/**
 	 * Convenience method.  Equivalent to calling <code>jredis.keys("*");</code>
@@ -297,20 +302,31 @@ public interface JRedisFuture {
 	 * @return
 	 * @see {@link JRedis#keys(String)}
 	 */
-	public <K extends Object> Future<List<byte[]>> keys ();
+	public <K extends Object> ListenableFuture<List<byte[]>> keys ();
+	
+	/**
+	 * Streaming variant of {@link JRedisFuture#keys(Object)}: the keys are handed to
+	 * the consumer as they are read.
+	 * @Redis KEYS
+	 * @param pattern
+	 * @param consumer
+	 * @return the number of keys
+	 * @see ElementConsumer
+	 */
+	public <K extends Object> ListenableFuture<Long> keys (K pattern, ElementConsumer consumer);
 
 	/**
 	 * @Redis RANDOMKEY
 	 * @return
 	 */
-	public <K extends Object> Future<byte[]> randomkey();
+	public <K extends Object> ListenableFuture<byte[]> randomkey();
 	
 	/**
 	 * @Redis RENAME
 	 * @param oldkey
 	 * @param newkey
 	 */
-	public <K extends Object> Future<ResponseStatus> rename (K oldkey, K newkey);
+	public <K extends Object> ListenableFuture<ResponseStatus> rename (K oldkey, K newkey);
 	
 	/**
 	 * @Redis RENAMENX
@@ -318,13 +334,13 @@ public interface JRedisFuture {
 	 * @param brandnewkey
 	 * @return
 	 */
-	public <K extends Object> Future<Boolean> renamenx (K oldkey, K brandnewkey);
+	public <K extends Object> ListenableFuture<Boolean> renamenx (K oldkey, K brandnewkey);
 	
 	/**
 	 * @Redis DBSIZE
 	 * @return
 	 */
-	public <K extends Object> Future<Long> dbsize ();
+	public <K extends Object> ListenableFuture<Long> dbsize ();
 	
 	/**
 	 * @Redis EXPIRE
@@ -332,7 +348,7 @@ public interface JRedisFuture {
 	 * @param ttlseconds
 	 * @return
 	 */
-	public <K extends Object> Future<Boolean> expire (K key, int ttlseconds); 
+	public <K extends Object> ListenableFuture<Boolean> expire (K key, int ttlseconds); 
 	
 	/**
 	 * @Redis EXPIREAT
@@ -343,14 +359,14 @@ public interface JRedisFuture {
 	 * @return
 	 * @see {@link System#currentTimeMillis()}
 	 */
-	public <K extends Object> Future<Boolean> expireat (K key, long epochtimeMillisecs); 
+	public <K extends Object> ListenableFuture<Boolean> expireat (K key, long epochtimeMillisecs); 
 	
 	/**
 	 * @Redis TTL
 	 * @param key
 	 * @return
 	 */
-	public <K extends Object> Future<Long> ttl (K key);
+	public <K extends Object> ListenableFuture<Long> ttl (K key);
 	
 	// ------------------------------------------------------------------------
 	// Commands operating on lists
@@ -361,22 +377,22 @@ public interface JRedisFuture {
 	 * @param listkey
 	 * @param value
 	 */
-	public <K extends Object> Future<Long> rpush (K listkey, byte[] value);
-	public <K extends Object> Future<Long> rpush (K listkey, String stringValue);
-	public <K extends Object> Future<Long> rpush (K listkey, Number numberValue);
+	public <K extends Object> ListenableFuture<Long> rpush (K listkey, byte[] value);
+	public <K extends Object> ListenableFuture<Long> rpush (K listkey, String stringValue);
+	public <K extends Object> ListenableFuture<Long> rpush (K listkey, Number numberValue);
 	public <K extends Object, T extends Serializable> 
-		Future<Long> rpush (K listkey, T object);
+		ListenableFuture<Long> rpush (K listkey, T object);
 	
 	/**
 	 * @Redis LPUSH
 	 * @param listkey
 	 * @param value
 	 */
-	public <K extends Object> Future<Long> lpush (K listkey, byte[] value);
-	public <K extends Object> Future<Long> lpush (K listkey, String stringValue);
-	public <K extends Object> Future<Long> lpush (K listkey, Number numberValue);
+	public <K extends Object> ListenableFuture<Long> lpush (K listkey, byte[] value);
+	public <K extends Object> ListenableFuture<Long> lpush (K listkey, String stringValue);
+	public <K extends Object> ListenableFuture<Long> lpush (K listkey, Number numberValue);
 	public <K extends Object, T extends Serializable> 
-		Future<Long> lpush (K listkey, T object);
+		ListenableFuture<Long> lpush (K listkey, T object);
 	
 	/**
 	 * @Redis LSET
@@ -384,11 +400,11 @@ public interface JRedisFuture {
 	 * @param index
 	 * @param value
 	 */
-	public <K extends Object> Future<ResponseStatus> lset (K key, long index, byte[] value);
-	public <K extends Object> Future<ResponseStatus> lset (K key, long index, String stringValue);
-	public <K extends Object> Future<ResponseStatus> lset (K key, long index, Number numberValue);
+	public <K extends Object> ListenableFuture<ResponseStatus> lset (K key, long index, byte[] value);
+	public <K extends Object> ListenableFuture<ResponseStatus> lset (K key, long index, String stringValue);
+	public <K extends Object> ListenableFuture<ResponseStatus> lset (K key, long index, Number numberValue);
 	public <K extends Object, T extends Serializable> 
-		Future<ResponseStatus> lset (K key, long index, T object);
+		ListenableFuture<ResponseStatus> lset (K key, long index, T object);
 	
 
 	/**
@@ -398,11 +414,11 @@ public interface JRedisFuture {
 	 * @param count
 	 * @return
 	 */
-	public <K extends Object> Future<Long> lrem (K listkey, byte[] value,       int count);
-	public <K extends Object> Future<Long> lrem (K listkey, String stringValue, int count);
-	public <K extends Object> Future<Long> lrem (K listkey, Number numberValue, int count);
+	public <K extends Object> ListenableFuture<Long> lrem (K listkey, byte[] value,       int count);
+	public <K extends Object> ListenableFuture<Long> lrem (K listkey, String stringValue, int count);
+	public <K extends Object> ListenableFuture<Long> lrem (K listkey, Number numberValue, int count);
 	public <K extends Object, T extends Serializable> 
-		Future<Long> lrem (K listkey, T object, int count);
+		ListenableFuture<Long> lrem (K listkey, T object, int count);
 	
 	/**
 	 * Given a 'list' key, returns the number of items in the list.
@@ -410,7 +426,7 @@ public interface JRedisFuture {
 	 * @param listkey
 	 * @return
 	 */
-	public <K extends Object> Future<Long> llen (K listkey);
+	public <K extends Object> ListenableFuture<Long> llen (K listkey);
 	
 	/**
 	 * @Redis LRANGE
@@ -419,7 +435,20 @@ public interface JRedisFuture {
 	 * @param to
 	 * @return
 	 */
-	public <K extends Object> Future<List<byte[]>> lrange (K listkey, long from, long to); 
+	public <K extends Object> ListenableFuture<List<byte[]>> lrange (K listkey, long from, long to); 
+	
+	/**
+	 * Streaming variant of {@link JRedisFuture#lrange(Object, long, long)}: the items
+	 * are handed to the consumer as they are read.
+	 * @Redis LRANGE
+	 * @param listkey
+	 * @param from
+	 * @param to
+	 * @param consumer
+	 * @return the number of items in the range
+	 * @see ElementConsumer
+	 */
+	public <K extends Object> ListenableFuture<Long> lrange (K listkey, long from, long to, ElementConsumer consumer); 
 
 	/**
 	 * @Redis LTRIM
@@ -427,7 +456,7 @@ public interface JRedisFuture {
 	 * @param keepFrom
 	 * @param keepTo
 	 */
-	public <K extends Object> Future<ResponseStatus> ltrim (K listkey, long keepFrom, long keepTo);
+	public <K extends Object> ListenableFuture<ResponseStatus> ltrim (K listkey, long keepFrom, long keepTo);
 	
 	/**
 	 * @Redis LINDEX
@@ -435,21 +464,21 @@ public interface JRedisFuture {
 	 * @param index
 	 * @return
 	 */
-	public <K extends Object> Future<byte[]> lindex (K listkey, long index);
+	public <K extends Object> ListenableFuture<byte[]> lindex (K listkey, long index);
 	
 	/**
 	 * @Redis LPOP
 	 * @param listKey
 	 * @return
 	 */
-	public <K extends Object> Future<byte[]> lpop (K listkey);
+	public <K extends Object> ListenableFuture<byte[]> lpop (K listkey);
 	
 	/**
 	 * @Redis RPOP
 	 * @param listKey
 	 * @return
 	 */
-	public <K extends Object> Future<byte[]> rpop (K listkey);
+	public <K extends Object> ListenableFuture<byte[]> rpop (K listkey);
 
 	/**
 	 * @Redis RPOPLPUSH
@@ -457,7 +486,7 @@ public interface JRedisFuture {
 	 * @param destList
 	 * @return
 	 */
-	public <K extends Object> Future<byte[]> rpoplpush (String srcList, String destList);
+	public <K extends Object> ListenableFuture<byte[]> rpoplpush (String srcList, String destList);
 	// ------------------------------------------------------------------------
 	// Commands operating on sets
 	// ------------------------------------------------------------------------
@@ -468,11 +497,11 @@ public interface JRedisFuture {
 	 * @param member
 	 * @return
 	 */
-	public <K extends Object> Future<Boolean> sadd (K setkey, byte[] member);
-	public <K extends Object> Future<Boolean> sadd (K setkey, String stringValue);
-	public <K extends Object> Future<Boolean> sadd (K setkey, Number numberValue);
+	public <K extends Object> ListenableFuture<Boolean> sadd (K setkey, byte[] member);
+	public <K extends Object> ListenableFuture<Boolean> sadd (K setkey, String stringValue);
+	public <K extends Object> ListenableFuture<Boolean> sadd (K setkey, Number numberValue);
 	public <K extends Object, T extends Serializable> 
-		Future<Boolean> sadd (K setkey, T object);
+		ListenableFuture<Boolean> sadd (K setkey, T object);
 
 	/**
 	 * @Redis SREM
@@ -480,11 +509,11 @@ public interface JRedisFuture {
 	 * @param member
 	 * @return
 	 */
-	public <K extends Object> Future<Boolean> srem (K setkey, byte[] member);
-	public <K extends Object> Future<Boolean> srem (K setkey, String stringValue);
-	public <K extends Object> Future<Boolean> srem (K setkey, Number numberValue);
+	public <K extends Object> ListenableFuture<Boolean> srem (K setkey, byte[] member);
+	public <K extends Object> ListenableFuture<Boolean> srem (K setkey, String stringValue);
+	public <K extends Object> ListenableFuture<Boolean> srem (K setkey, Number numberValue);
 	public <K extends Object, T extends Serializable> 
-		Future<Boolean> srem (K setkey, T object);
+		ListenableFuture<Boolean> srem (K setkey, T object);
 
 	/**
 	 * @Redis SISMEMBER
@@ -492,11 +521,11 @@ public interface JRedisFuture {
 	 * @param member
 	 * @return
 	 */
-	public <K extends Object> Future<Boolean> sismember (K setkey, byte[] member);
-	public <K extends Object> Future<Boolean> sismember (K setkey, String stringValue);
-	public <K extends Object> Future<Boolean> sismember (K setkey, Number numberValue);
+	public <K extends Object> ListenableFuture<Boolean> sismember (K setkey, byte[] member);
+	public <K extends Object> ListenableFuture<Boolean> sismember (K setkey, String stringValue);
+	public <K extends Object> ListenableFuture<Boolean> sismember (K setkey, Number numberValue);
 	public <K extends Object, T extends Serializable> 
-		Future<Boolean> sismember (K setkey, T object);
+		ListenableFuture<Boolean> sismember (K setkey, T object);
 	
 	/**
 	 * @Redis SMOVE
@@ -505,18 +534,18 @@ public interface JRedisFuture {
 	 * @param member
 	 * @return
 	 */
-	public <K extends Object> Future<Boolean> smove (K srcKey, K destKey, byte[] member);
-	public <K extends Object> Future<Boolean> smove (K srcKey, K destKey, String stringValue);
-	public <K extends Object> Future<Boolean> smove (K srcKey, K destKey, Number numberValue);
+	public <K extends Object> ListenableFuture<Boolean> smove (K srcKey, K destKey, byte[] member);
+	public <K extends Object> ListenableFuture<Boolean> smove (K srcKey, K destKey, String stringValue);
+	public <K extends Object> ListenableFuture<Boolean> smove (K srcKey, K destKey, Number numberValue);
 	public <K extends Object, T extends Serializable> 
-		Future<Boolean> smove (K srcKey, K destKey, T object);
+		ListenableFuture<Boolean> smove (K srcKey, K destKey, T object);
 	
 	/**
 	 * @Redis SCARD
 	 * @param setKey
 	 * @return
 	 */
-	public <K extends Object> Future<Long> scard (K setKey);	
+	public <K extends Object> ListenableFuture<Long> scard (K setKey);	
 	
 	/**
 	 * @Redis SINTER
@@ -524,13 +553,13 @@ public interface JRedisFuture {
 	 * @param sets
 	 * @return
 	 */
-	public <K extends Object> Future<List<byte[]>> sinter (K set1, K...sets);
+	public <K extends Object> ListenableFuture<List<byte[]>> sinter (K set1, K...sets);
 	/**
 	 * @Redis SINTERSTORE
 	 * @param destSetKey
 	 * @param sets
 	 */
-	public <K extends Object> Future<ResponseStatus> sinterstore (K destSetKey, K...sets);
+	public <K extends Object> ListenableFuture<ResponseStatus> sinterstore (K destSetKey, K...sets);
 
 	/**
 	 * @Redis SUNION
@@ -538,14 +567,14 @@ public interface JRedisFuture {
 	 * @param sets
 	 * @return
 	 */
-	public <K extends Object> Future<List<byte[]>> sunion (K set1, K...sets);
+	public <K extends Object> ListenableFuture<List<byte[]>> sunion (K set1, K...sets);
 	
 	/**
 	 * @Redis SUNIONSTORE
 	 * @param destSetKey
 	 * @param sets
 	 */
-	public <K extends Object> Future<ResponseStatus> sunionstore (K destSetKey, K...sets);
+	public <K extends Object> ListenableFuture<ResponseStatus> sunionstore (K destSetKey, K...sets);
 
 	/**
 	 * @Redis SDIFF
@@ -553,35 +582,46 @@ public interface JRedisFuture {
 	 * @param sets
 	 * @return
 	 */
-	public <K extends Object> Future<List<byte[]>> sdiff (K set1, K...sets);
+	public <K extends Object> ListenableFuture<List<byte[]>> sdiff (K set1, K...sets);
 	
 	/**
 	 * @Redis SDIFFSTORE
 	 * @param destSetKey
 	 * @param sets
 	 */
-	public <K extends Object> Future<ResponseStatus> sdiffstore (K destSetKey, K...sets);
+	public <K extends Object> ListenableFuture<ResponseStatus> sdiffstore (K destSetKey, K...sets);
 
 	/**
 	 * @Redis SMEMBERS
 	 * @param setkey
 	 * @return
 	 */
-	public <K extends Object> Future<List<byte[]>> smembers (K setkey);
+	public <K extends Object> ListenableFuture<List<byte[]>> smembers (K setkey);
+	
+	/**
+	 * Streaming variant of {@link JRedisFuture#smembers(Object)}: the members are
+	 * handed to the consumer as they are read.
+	 * @Redis SMEMBERS
+	 * @param setkey
+	 * @param consumer
+	 * @return the number of members
+	 * @see ElementConsumer
+	 */
+	public <K extends Object> ListenableFuture<Long> smembers (K setkey, ElementConsumer consumer);
 	
 	/**
 	 * @Redis SRANDMEMBER
 	 * @param setkey
 	 * @return
 	 */
-	public <K extends Object> Future<byte[]> srandmember (K setkey);
+	public <K extends Object> ListenableFuture<byte[]> srandmember (K setkey);
 
 	/**
 	 * @Redis SPOP
 	 * @param setkey
 	 * @return
 	 */
-	public <K extends Object> Future<byte[]> spop (K setkey);
+	public <K extends Object> ListenableFuture<byte[]> spop (K setkey);
 	// ------------------------------------------------------------------------
 	// Commands operating on sorted sets
 	// ------------------------------------------------------------------------
@@ -593,11 +633,11 @@ public interface JRedisFuture {
 	 * @param member
 	 * @return
 	 */
-	public <K extends Object> Future<Boolean> zadd (K setkey, double score, byte[] member);
-	public <K extends Object> Future<Boolean> zadd (K setkey, double score, String stringValue);
-	public <K extends Object> Future<Boolean> zadd (K setkey, double score, Number numberValue);
+	public <K extends Object> ListenableFuture<Boolean> zadd (K setkey, double score, byte[] member);
+	public <K extends Object> ListenableFuture<Boolean> zadd (K setkey, double score, String stringValue);
+	public <K extends Object> ListenableFuture<Boolean> zadd (K setkey, double score, Number numberValue);
 	public <K extends Object, T extends Serializable> 
-		Future<Boolean> zadd (K setkey, double score, T object);
+		ListenableFuture<Boolean> zadd (K setkey, double score, T object);
 
 	/**
 	 * @Redis ZREM
@@ -605,18 +645,18 @@ public interface JRedisFuture {
 	 * @param member
 	 * @return
 	 */
-	public <K extends Object> Future<Boolean> zrem (K setkey, byte[] member);
-	public <K extends Object> Future<Boolean> zrem (K setkey, String stringValue);
-	public <K extends Object> Future<Boolean> zrem (K setkey, Number numberValue);
+	public <K extends Object> ListenableFuture<Boolean> zrem (K setkey, byte[] member);
+	public <K extends Object> ListenableFuture<Boolean> zrem (K setkey, String stringValue);
+	public <K extends Object> ListenableFuture<Boolean> zrem (K setkey, Number numberValue);
 	public <K extends Object, T extends Serializable> 
-		Future<Boolean> zrem (K setkey, T object);
+		ListenableFuture<Boolean> zrem (K setkey, T object);
 
 	/**
 	 * @Redis ZCARD
 	 * @param setKey
 	 * @return
 	 */
-	public <K extends Object> Future<Long> zcard (K setKey);	
+	public <K extends Object> ListenableFuture<Long> zcard (K setKey);	
 	
 	/**
 	 * @Redis ZSCORE
@@ -624,11 +664,11 @@ public interface JRedisFuture {
 	 * @param member
 	 * @return
 	 */
-	public <K extends Object> Future<Double> zscore (K setkey, byte[] member);
-	public <K extends Object> Future<Double> zscore (K setkey, String stringValue);
-	public <K extends Object> Future<Double> zscore (K setkey, Number numberValue);
+	public <K extends Object> ListenableFuture<Double> zscore (K setkey, byte[] member);
+	public <K extends Object> ListenableFuture<Double> zscore (K setkey, String stringValue);
+	public <K extends Object> ListenableFuture<Double> zscore (K setkey, Number numberValue);
 	public <K extends Object, T extends Serializable> 
-		Future<Double> zscore (K setkey, T object);
+		ListenableFuture<Double> zscore (K setkey, T object);
 
 	/**
 	 * @Redis ZRANK
@@ -636,11 +676,11 @@ public interface JRedisFuture {
 	 * @param member
 	 * @return
 	 */
-	public <K extends Object> Future<Long> zrank (K setkey, byte[] member);
-	public <K extends Object> Future<Long> zrank (K setkey, String stringValue);
-	public <K extends Object> Future<Long> zrank (K setkey, Number numberValue);
+	public <K extends Object> ListenableFuture<Long> zrank (K setkey, byte[] member);
+	public <K extends Object> ListenableFuture<Long> zrank (K setkey, String stringValue);
+	public <K extends Object> ListenableFuture<Long> zrank (K setkey, Number numberValue);
 	public <K extends Object, T extends Serializable> 
-		Future<Long> zrank (K setkey, T object);
+		ListenableFuture<Long> zrank (K setkey, T object);
 
 	/**
 	 * @Redis ZREVRANK
@@ -648,11 +688,11 @@ public interface JRedisFuture {
 	 * @param member
 	 * @return
 	 */
-	public <K extends Object> Future<Long> zrevrank (K setkey, byte[] member);
-	public <K extends Object> Future<Long> zrevrank (K setkey, String stringValue);
-	public <K extends Object> Future<Long> zrevrank (K setkey, Number numberValue);
+	public <K extends Object> ListenableFuture<Long> zrevrank (K setkey, byte[] member);
+	public <K extends Object> ListenableFuture<Long> zrevrank (K setkey, String stringValue);
+	public <K extends Object> ListenableFuture<Long> zrevrank (K setkey, Number numberValue);
 	public <K extends Object, T extends Serializable> 
-		Future<Long> zrevrank (K setkey, T object);
+		ListenableFuture<Long> zrevrank (K setkey, T object);
 
 	/**
 	 * @Redis ZRANGE
@@ -661,7 +701,7 @@ public interface JRedisFuture {
 	 * @param to
 	 * @return
 	 */
-	public <K extends Object> Future<List<byte[]>> zrange (K setkey, long from, long to); 
+	public <K extends Object> ListenableFuture<List<byte[]>> zrange (K setkey, long from, long to); 
 
 	/**
 	 * @Redis ZREVRANGE
@@ -670,7 +710,7 @@ public interface JRedisFuture {
 	 * @param to
 	 * @return
 	 */
-	public <K extends Object> Future<List<byte[]>> zrevrange (K setkey, long from, long to); 
+	public <K extends Object> ListenableFuture<List<byte[]>> zrevrange (K setkey, long from, long to); 
 
 	/**
 	 * Equivalent to {@link JRedis#zrange(String, long, long)} with the {@link Command.Option#WITHSCORES}.
@@ -685,7 +725,20 @@ public interface JRedisFuture {
 	 * @see JRedis#zrange(String, long, long)
 	 * @see ZSetEntry
 	 */
-	public <K extends Object> Future<List<ZSetEntry>> zrangeSubset (K setkey, long from, long to); 
+	public <K extends Object> ListenableFuture<List<ZSetEntry>> zrangeSubset (K setkey, long from, long to); 
+	
+	/**
+	 * Streaming variant of {@link JRedisFuture#zrangeSubset(Object, long, long)}: the
+	 * elements handed to the consumer alternate between the values and their scores.
+	 * @Redis ZRANGE ... WITHSCORES
+	 * @param setkey
+	 * @param from
+	 * @param to
+	 * @param consumer
+	 * @return the number of elements -- twice the number of values in the range
+	 * @see ElementConsumer
+	 */
+	public <K extends Object> ListenableFuture<Long> zrangeSubset (K setkey, long from, long to, ElementConsumer consumer); 
 
 	/**
 	 * Equivalent to {@link JRedis#zrange(String, long, long)} with the {@link Command.Option#WITHSCORES}.
@@ -700,7 +753,7 @@ public interface JRedisFuture {
 	 * @see JRedis#zrevrange(String, long, long)
 	 * @see ZSetEntry
 	 */
-	public <K extends Object> Future<List<ZSetEntry>> zrevrangeSubset (K setkey, long from, long to); 
+	public <K extends Object> ListenableFuture<List<ZSetEntry>> zrevrangeSubset (K setkey, long from, long to); 
 
 	/**
 	 * @Redis ZINCRBY
@@ -710,11 +763,11 @@ public interface JRedisFuture {
 	 * @return
 	 */
 	@Redis(versions="1.07")
-	public <K extends Object> Future<Double> zincrby (K setkey, double score, byte[] member);
-	public <K extends Object> Future<Double> zincrby (K setkey, double score, String stringValue);
-	public <K extends Object> Future<Double> zincrby (K setkey, double score, Number numberValue);
+	public <K extends Object> ListenableFuture<Double> zincrby (K setkey, double score, byte[] member);
+	public <K extends Object> ListenableFuture<Double> zincrby (K setkey, double score, String stringValue);
+	public <K extends Object> ListenableFuture<Double> zincrby (K setkey, double score, Number numberValue);
 	public <K extends Object, T extends Serializable> 
-		Future<Double> zincrby (K setkey, double score, T object);
+		ListenableFuture<Double> zincrby (K setkey, double score, T object);
 
 	/**
 	 * @Redis ZRANGEBYSCORE
@@ -723,7 +776,7 @@ public interface JRedisFuture {
 	 * @param to
 	 * @return
 	 */
-	public <K extends Object> Future<List<byte[]>> zrangebyscore (K setkey, double minScore, double maxScore); 
+	public <K extends Object> ListenableFuture<List<byte[]>> zrangebyscore (K setkey, double minScore, double maxScore); 
 
 	/**
 	 * @Redis ZRANGEBYSCORE ... WITHSCORES
@@ -732,7 +785,7 @@ public interface JRedisFuture {
 	 * @param maxScore
 	 * @return
 	 */
-	public <K extends Object> Future<List<ZSetEntry>> zrangebyscoreSubset (K setkey, double minScore, double maxScore);
+	public <K extends Object> ListenableFuture<List<ZSetEntry>> zrangebyscoreSubset (K setkey, double minScore, double maxScore);
 
 	/**
 	 * @Redis ZREMRANGEBYSCORE
@@ -741,7 +794,7 @@ public interface JRedisFuture {
 	 * @param to
 	 * @return number of removed elements
 	 */
-	public <K extends Object> Future<Long> zremrangebyscore (K setkey, double minScore, double maxScore); 
+	public <K extends Object> ListenableFuture<Long> zremrangebyscore (K setkey, double minScore, double maxScore); 
 
 	/**
 	 * @Redis ZCOUNT
@@ -750,7 +803,7 @@ public interface JRedisFuture {
 	 * @param maxScore
 	 * @return number of removed elements
 	 */
-	public <K extends Object> Future<Long> zcount (K setkey, double minScore, double maxScore); 
+	public <K extends Object> ListenableFuture<Long> zcount (K setkey, double minScore, double maxScore); 
 
 	/**
 	 * @Redis ZREMRANGEBYRANK
@@ -759,7 +812,7 @@ public interface JRedisFuture {
 	 * @param to
 	 * @return number of removed elements
 	 */
-	public <K extends Object> Future<Long> zremrangebyrank (K setkey, long minRank, long maxRank); 
+	public <K extends Object> ListenableFuture<Long> zremrangebyrank (K setkey, long minRank, long maxRank); 
 	
 	
 	// ------------------------------------------------------------------------
@@ -774,7 +827,7 @@ public interface JRedisFuture {
 	 * @return
 	 */
 	@Redis(versions="1.3.n")
-	public <K extends Object> Future<Boolean> hset(K key, K entry, byte[] value);
+	public <K extends Object> ListenableFuture<Boolean> hset(K key, K entry, byte[] value);
 	
 	/**
 	 * @Redis HSET
@@ -784,7 +837,7 @@ public interface JRedisFuture {
 	 * @return
 	 */
 	@Redis(versions="1.3.n")
-	public <K extends Object> Future<Boolean> hset(K key, K entry, String string);
+	public <K extends Object> ListenableFuture<Boolean> hset(K key, K entry, String string);
 	
 	/**
 	 * @Redis HSET
@@ -794,7 +847,7 @@ public interface JRedisFuture {
 	 * @return
 	 */
 	@Redis(versions="1.3.n")
-	public <K extends Object> Future<Boolean> hset(K key, K entry, Number number);
+	public <K extends Object> ListenableFuture<Boolean> hset(K key, K entry, Number number);
 	
 	/**
 	 * @Redis HSET
@@ -806,7 +859,7 @@ public interface JRedisFuture {
 	 */
 	@Redis(versions="1.3.4")
 	public <K extends Object, T extends Serializable> 
-		Future<Boolean> hset(K key, K entry, T object);
+		ListenableFuture<Boolean> hset(K key, K entry, T object);
 	
 	/**
 	 * @Redis HGET
@@ -815,7 +868,7 @@ public interface JRedisFuture {
 	 * @return
 	 */
 	@Redis(versions="1.3.4")
-	public <K extends Object> Future<byte[]> hget(K key, K entry);
+	public <K extends Object> ListenableFuture<byte[]> hget(K key, K entry);
 	
 
 	/**
@@ -825,7 +878,7 @@ public interface JRedisFuture {
 	 * @param increment
 	 * @return
 	 */
-	public <K extends Object> Future<Long> hincrby(K key, K entry, long increment);
+	public <K extends Object> ListenableFuture<Long> hincrby(K key, K entry, long increment);
 	
 	
 	/**
@@ -836,7 +889,7 @@ public interface JRedisFuture {
 	 * @return true if the spec'd field exists for the spec'd (hash type) key
 	 */
 	@Redis(versions="1.3.5")
-	public <K extends Object> Future<Boolean> hexists(K key, K entry);
+	public <K extends Object> ListenableFuture<Boolean> hexists(K key, K entry);
 	
 	/**
 	 * 
@@ -846,7 +899,7 @@ public interface JRedisFuture {
 	 * @return true if the spec'd field exists for the spec'd (hash type) key
 	 */
 	@Redis(versions="1.3.5")
-	public <K extends Object> Future<Boolean> hdel(K key, K entry);
+	public <K extends Object> ListenableFuture<Boolean> hdel(K key, K entry);
 	
 	/**
 	 * 
@@ -856,7 +909,7 @@ public interface JRedisFuture {
 	 * @return # of fields/entries for the given hash type key
 	 */
 	@Redis(versions="1.3.5")
-	public <K extends Object> Future<Long> hlen(K key);
+	public <K extends Object> ListenableFuture<Long> hlen(K key);
 	
 	/**
 	 * 
@@ -866,7 +919,7 @@ public interface JRedisFuture {
 	 * @throws RedisException
 	 */
 	@Redis(versions="1.3.n")
-	public <K extends Object> Future<List<byte[]>> hkeys(K key);
+	public <K extends Object> ListenableFuture<List<byte[]>> hkeys(K key);
 	
 	/**
 	 * 
@@ -876,7 +929,7 @@ public interface JRedisFuture {
 	 * @throws RedisException
 	 */
 	@Redis(versions="1.3.n")
-	public <K extends Object> Future<List<byte[]>> hvals(K key);
+	public <K extends Object> ListenableFuture<List<byte[]>> hvals(K key);
 	
 	/**
 	 * 
@@ -886,7 +939,19 @@ public interface JRedisFuture {
 	 * @throws RedisException
 	 */
 	@Redis(versions="1.3.n")
-	public <K extends Object> Future<Map<byte[], byte[]>> hgetall(K key);
+	public <K extends Object> ListenableFuture<Map<byte[], byte[]>> hgetall(K key);
+	
+	/**
+	 * Streaming variant of {@link JRedisFuture#hgetall(Object)}: the elements handed
+	 * to the consumer alternate between the fields and their values.
+	 * @Redis HGETALL
+	 * @param key
+	 * @param consumer
+	 * @return the number of elements -- twice the number of fields
+	 * @see ElementConsumer
+	 */
+	@Redis(versions="1.3.n")
+	public <K extends Object> ListenableFuture<Long> hgetall(K key, ElementConsumer consumer);
 	
 	// ------------------------------------------------------------------------
 	// Multiple databases handling commands
@@ -902,7 +967,7 @@ public interface JRedisFuture {
 	 * @Redis FLUSHDB
 	 * @return
 	 */
-	public <K extends Object> Future<ResponseStatus> flushdb ();
+	public <K extends Object> ListenableFuture<ResponseStatus> flushdb ();
 
 	/**
 	 * Flushes all dbs in the connect Redis server, regardless of which db was selected
@@ -910,7 +975,7 @@ public interface JRedisFuture {
 	 * @Redis FLUSHALL
 	 * @return
 	 */
-	public <K extends Object> Future<ResponseStatus> flushall ();
+	public <K extends Object> ListenableFuture<ResponseStatus> flushall ();
 
 	/**
 	 * Moves the given key from the currently selected db to the one indicated
@@ -920,7 +985,7 @@ public interface JRedisFuture {
 	 * @param dbIndex
 	 * @return
 	 */
-	public <K extends Object> Future<Boolean> move (K key, int dbIndex);
+	public <K extends Object> ListenableFuture<Boolean> move (K key, int dbIndex);
 	
 	// ------------------------------------------------------------------------
 	// Sorting
@@ -953,24 +1018,24 @@ public interface JRedisFuture {
 	/**
 	 * @Redis SAVE
 	 */
-	public <K extends Object> Future<ResponseStatus> save();
+	public <K extends Object> ListenableFuture<ResponseStatus> save();
 
 	/**
 	 * @Redis BGSAVE
 	 */
-	public <K extends Object> Future<ResponseStatus> bgsave ();
+	public <K extends Object> ListenableFuture<ResponseStatus> bgsave ();
 
 	/**
 	 * @Redis BGREWRITEAOF
 	 * @return ack message.  
 	 */
-	public <K extends Object> Future<String> bgrewriteaof ();
+	public <K extends Object> ListenableFuture<String> bgrewriteaof ();
 
 	/**
 	 * @Redis LASTSAVE
 	 * @return
 	 */
-	public <K extends Object> Future<Long> lastsave ();
+	public <K extends Object> ListenableFuture<Long> lastsave ();
 
 
 // ------------------------------------------------------------------------
@@ -981,20 +1046,20 @@ public interface JRedisFuture {
 	 * @Redis INFO
 	 * @return
 	 */
-	public <K extends Object> Future<Map<String, String>>	info () ;
+	public <K extends Object> ListenableFuture<Map<String, String>>	info () ;
 
 	/**
 	 * @Redis SLAVEOF
 	 * @param host ip address 
 	 * @param port
 	 */
-	public <K extends Object> Future<ResponseStatus>  slaveof(String host, int port);
+	public <K extends Object> ListenableFuture<ResponseStatus>  slaveof(String host, int port);
 	
 	/**
 	 * Convenience method.  Turns off replication.
 	 * @Redis SLAVEOF "no one"
 	 */
-	public <K extends Object> Future<ResponseStatus>  slaveofnone();
+	public <K extends Object> ListenableFuture<ResponseStatus>  slaveofnone();
 	// ------------------------------------------------------------------------
 	// Diagnostics commands
 	// ------------------------------------------------------------------------
@@ -1004,18 +1069,18 @@ public interface JRedisFuture {
 	 * @param msg
 	 * @return
 	 */
-	public <K extends Object> Future<byte[]> echo (byte[] msg);
-	public <K extends Object> Future<byte[]> echo (String msg);
-	public <K extends Object> Future<byte[]> echo (Number msg);
+	public <K extends Object> ListenableFuture<byte[]> echo (byte[] msg);
+	public <K extends Object> ListenableFuture<byte[]> echo (String msg);
+	public <K extends Object> ListenableFuture<byte[]> echo (Number msg);
 	public <K extends Object, T extends Serializable> 
-		Future<byte[]> echo (T msg);
+		ListenableFuture<byte[]> echo (T msg);
 		
 	/**
 	 * @Redis DEBUG OBJECT <key>
 	 * @param key
 	 * @return
 	 */
-	public <K extends Object> Future<ObjectInfo> debug (K key);
+	public <K extends Object> ListenableFuture<ObjectInfo> debug (K key);
 	
 
 }
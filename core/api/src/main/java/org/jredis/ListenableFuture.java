@@ -0,0 +1,60 @@
+/*
+ *   Copyright 2009-2012 Joubin Houshyar
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package org.jredis;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+
+/**
+ * A {@link Future} that notifies {@link FutureCallback}s on completion, so that
+ * results of {@link JRedisFuture} requests can be consumed (and dependent requests
+ * issued) without a thread blocked in {@link Future#get()}.
+ * <p>
+ * Usage:
+ * <pre><code>
+ * jredis.incr("counter").addCallback(new FutureCallback&lt;Long&gt;() {
+ *     public void onSuccess (Long n) { jredis.set("counter:" + n, data); }
+ *     public void onFailure (Throwable cause) { ... }
+ * });
+ * </code></pre>
+ * Callbacks registered after completion are called immediately by the registering
+ * thread.  Multiple callbacks are called in order of registration.
+ *
+ * @author  Joubin Houshyar (alphazero@sensesay.net)
+ * @date    Apr 11, 2012
+ *
+ * @param <T> the result type
+ * @see FutureCallback
+ */
+public interface ListenableFuture<T> extends Future<T> {
+	/**
+	 * Registers a callback to be called by the thread completing the request
+	 * (see {@link FutureCallback} for restrictions).
+	 * @param callback
+	 * @return this future, for chaining
+	 */
+	public ListenableFuture<T> addCallback (FutureCallback<? super T> callback);
+
+	/**
+	 * Registers a callback to be called on the given executor.  The completing
+	 * thread only hands the callback off to the executor.
+	 * @param callback
+	 * @param executor
+	 * @return this future, for chaining
+	 */
+	public ListenableFuture<T> addCallback (FutureCallback<? super T> callback, Executor executor);
+}
@@ -182,6 +182,59 @@ public interface Connection {
 		CONNECTION_CLASS,
 		/** if specified, is used to create the new connection. */
 		CONNECTION_FACTORY,
+		/**
+		 * if specified, the connection uses non-blocking IO and is multiplexed on a selector event loop
+		 * shared with other connections.  Value is either {@link Boolean#TRUE} for the provider's default
+		 * (shared) loop, or a provider specific event loop instance.
+		 */
+		SELECTOR_LOOP,
+		/**
+		 * Pipelines: maximum number of written chunks of requests awaiting responses.  Requesters 
+		 * block when the limit is reached, until the response handler catches up.
+		 * <p>expected value is an {@link Integer}; if not specified the provider default is used.
+		 */
+		PIPELINE_MAX_PENDING_CHUNKS,
+		/**
+		 * Pipelines: number of busy spins of a waiting response handler (or blocked requester)
+		 * before it yields the processor.
+		 * <p>expected value is an {@link Integer}; if not specified the provider default is used.
+		 */
+		PIPELINE_WAIT_SPINS,
+		/**
+		 * Pipelines: number of yields of a waiting response handler (or blocked requester) before 
+		 * it parks until woken up.
+		 * <p>expected value is an {@link Integer}; if not specified the provider default is used.
+		 */
+		PIPELINE_WAIT_YIELDS,
+		/**
+		 * Chunked pipelines: size in bytes of the buffer requests are accumulated in before
+		 * being written to the socket.
+		 * <p>expected value is an {@link Integer}; if not specified the provider default is used.
+		 */
+		PIPELINE_CHUNK_SIZE,
+		/**
+		 * Chunked pipelines: maximum time, in microseconds, a request is held in the chunk 
+		 * before it is written.  0 disables timed flushes.
+		 * <p>expected value is an {@link Integer}; if not specified the provider default is used.
+		 */
+		PIPELINE_FLUSH_LINGER,
+		/**
+		 * Chunked pipelines: the chunk is written as soon as it holds this many bytes.  0 (default)
+		 * writes chunks only when full (or per the other flush settings).
+		 * <p>expected value is an {@link Integer}.
+		 */
+		PIPELINE_FLUSH_BYTES,
+		/**
+		 * Chunked pipelines: the chunk is written as soon as it holds this many requests. 0 (default)
+		 * writes chunks only when full (or per the other flush settings).
+		 * <p>expected value is an {@link Integer}.
+		 */
+		PIPELINE_FLUSH_COUNT,
+		/**
+		 * Chunked pipelines: a provider specific flush policy instance, which overrides the
+		 * linger, bytes and count flush settings.
+		 */
+		PIPELINE_FLUSH_POLICY,
 		;// -- fini
 	}
 	/**
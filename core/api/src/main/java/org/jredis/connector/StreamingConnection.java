@@ -0,0 +1,64 @@
+/*
+ *   Copyright 2009-2012 Joubin Houshyar
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package org.jredis.connector;
+
+import java.util.concurrent.Future;
+import org.jredis.ClientRuntimeException;
+import org.jredis.ElementConsumer;
+import org.jredis.ProviderException;
+import org.jredis.RedisException;
+import org.jredis.protocol.Command;
+import org.jredis.protocol.Response;
+import org.jredis.protocol.StreamingMultiBulkResponse;
+
+/**
+ * A {@link Connection} that can stream the elements of multi-bulk replies to an
+ * {@link ElementConsumer} as they are read.  The response of a streamed request
+ * is a {@link StreamingMultiBulkResponse}.
+ * <p>
+ * As with the base methods, a connection supports the variant of its
+ * {@link Connection.Modality} and raises a {@link org.jredis.NotSupportedException}
+ * for the other.
+ *
+ * @author  joubin (alphazero@sensesay.net)
+ * @date    Apr 16, 2012
+ *
+ */
+public interface StreamingConnection extends Connection {
+	/**
+	 * Streaming variant of {@link Connection#serviceRequest(Command, byte[]...)}.
+	 * @param consumer of the elements of the (multi-bulk) reply
+	 * @param cmd a command with a multi-bulk response
+	 * @param args
+	 * @return the {@link StreamingMultiBulkResponse}
+	 * @throws RedisException
+	 * @throws ClientRuntimeException
+	 * @throws ProviderException
+	 */
+	public Response serviceRequest (ElementConsumer consumer, Command cmd, byte[]...args) throws RedisException, ClientRuntimeException, ProviderException;
+
+	/**
+	 * Streaming variant of {@link Connection#queueRequest(Command, byte[]...)}.
+	 * @param consumer of the elements of the (multi-bulk) reply
+	 * @param cmd a command with a multi-bulk response
+	 * @param args
+	 * @return the {@link Future} {@link StreamingMultiBulkResponse}
+	 * @throws ClientRuntimeException
+	 * @throws ProviderException
+	 */
+	public Future<Response> queueRequest (ElementConsumer consumer, Command cmd, byte[]...args) throws ClientRuntimeException, ProviderException;
+}
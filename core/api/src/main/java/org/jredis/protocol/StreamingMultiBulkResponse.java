@@ -0,0 +1,46 @@
+/*
+ *   Copyright 2009-2012 Joubin Houshyar
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package org.jredis.protocol;
+
+import org.jredis.ClientRuntimeException;
+import org.jredis.ElementConsumer;
+import org.jredis.ProviderException;
+
+/**
+ * A {@link MultiBulkResponse} that can hand out its elements to an {@link ElementConsumer}
+ * as they are read, instead of collecting them.  A streamed response has no
+ * {@link MultiBulkResponse#getMultiBulkData()} (it returns null).
+ *
+ * @author  Joubin Houshyar (alphazero@sensesay.net)
+ * @date    Apr 16, 2012
+ *
+ */
+public interface StreamingMultiBulkResponse extends MultiBulkResponse {
+	/**
+	 * Streams the elements of the response to the consumer.  Must be set before
+	 * the response is read.
+	 * @param consumer
+	 */
+	public void setElementConsumer (ElementConsumer consumer);
+
+	/**
+	 * @return the number of elements of the response, or -1 for a <b>nil</b> reply.
+	 * @throws ClientRuntimeException if the response has not been read.
+	 * @throws ProviderException
+	 */
+	public int getElementCount () throws ClientRuntimeException, ProviderException;
+}
@@ -21,30 +21,60 @@ import java.util.concurrent.ConcurrentHashMap;
 
 import org.jredis.Codec;
 
+/**
+ * A thread-safe {@link CodecManager}.  Types without a codec of their own are 
+ * resolved (once) to the first registered codec that supports them, so a codec 
+ * registered for a base type can serve its subtypes.
+ * 
+ * @author  Joubin Houshyar (alphazero@sensesay.net)
+ * @version alpha.0, Apr 14, 2009
+ * @since   alpha.0
+ * 
+ */
 // REFACTOR: this doesn't belong here
 //
 public final class BasicCodecManager implements CodecManager {
+	/** codecs registered per type */
 	private final Map<Class<?>, Codec<?>> map = new ConcurrentHashMap<Class<?>, Codec<?>>();
-	public void foo () {
-		Codec<String>  stringCodec = null;
-		map.put(String.class, stringCodec);
-	}
+	
+	/** lookups resolved by {@link Codec#supports(Class)} -- replaced on registration */
+	private volatile Map<Class<?>, Codec<?>> resolved = new ConcurrentHashMap<Class<?>, Codec<?>>();
+	
+	/** marks types resolved to no codec */
+	private static final Codec<Object> NONE = new Codec<Object>() {
+		public Object decode (byte[] bytes) { throw new UnsupportedOperationException(); }
+		public byte[] encode (Object object) { throw new UnsupportedOperationException(); }
+		public boolean supports (Class<?> type) { return false; }
+	};
 
 	@SuppressWarnings("unchecked")
 	@Override
 	public <T> Codec<T> getCodec(Class<T> type) {
-		return (Codec<T>) map.get(type);
+		Codec<?> codec = map.get(type);
+		if(null == codec) {
+			final Map<Class<?>, Codec<?>> resolved = this.resolved;
+			codec = resolved.get(type);
+			if(null == codec) {
+				codec = NONE;
+				for(Codec<?> c : map.values()) {
+					if(c.supports(type)) { codec = c; break; }
+				}
+				resolved.put(type, codec);
+			}
+		}
+		return codec == NONE ? null : (Codec<T>) codec;
 	}
 
 	@Override
-	public <T> boolean register(Codec<T> code, Class<T> type) {
+	public synchronized <T> boolean register(Codec<T> code, Class<T> type) {
 		Codec<?> existing = map.get(type);
 		if(null == existing){
 			if (code.supports(type)){
 				map.put(type, code);
+				resolved = new ConcurrentHashMap<Class<?>, Codec<?>>();
 				return true;
 			}
 		}
 		return false;
 	}
-}
\ No newline at end of file
+}
@@ -31,6 +31,20 @@ import org.jredis.JRedis;
  */
 
 public interface CodecManager {
+	/**
+	 * @param type
+	 * @return the codec registered for the type, or, a registered codec that
+	 * {@link Codec#supports(Class)} the type -- null if there is none.
+	 */
 	public <T> Codec<T>		getCodec(Class<T> type);
+	
+	/**
+	 * Registers the codec for the type -- e.g. a schema based serializer for
+	 * the types of an application's domain model.
+	 * @param code
+	 * @param type
+	 * @return false if a codec is already registered for the type, or, the
+	 * codec does not support the type.
+	 */
 	public <T>	boolean 	register (Codec<T> code, Class<T> type);
 }
@@ -17,6 +17,7 @@
 package org.jredis.bench;
 
 import static org.jredis.bench.Util.getRandomString;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
@@ -32,6 +33,7 @@ import org.jredis.ClientRuntimeException;
 import org.jredis.JRedis;
 import org.jredis.RedisException;
 import org.jredis.bench.Util.Timer;
+import org.jredis.loopback.LoopbackServer;
 import org.jredis.protocol.Command;
 
 /**
@@ -96,6 +98,42 @@ public abstract class JRedisBenchmark {
 	 */
 	
 	protected final void  runBenchmarks(String host, int port, int threadCnt, int reqCnt, int size, int db)
+	{
+		LoopbackServer loopback = null;
+		if(host.equals(LOOPBACK)) {
+			loopback = startLoopbackServer();
+			host = loopback.getAddress().getHostAddress();
+			port = loopback.getPort();
+		}
+		try {
+			runBenchmarksOn(host, port, threadCnt, reqCnt, size, db);
+		}
+		finally {
+			if(loopback != null) loopback.stop();
+		}
+	}
+
+	/**
+	 * Host name that runs the benchmarks against an in-process {@link LoopbackServer} on an
+	 * ephemeral port, in place of a Redis server.  Set system property <code>jredis.bench.latency.micros</code>
+	 * to add latency to each reply batch.
+	 */
+	public static final String LOOPBACK = "loopback";
+
+	/** @return a started loopback server that expects our {@link #password} */
+	public static final LoopbackServer startLoopbackServer () {
+		LoopbackServer.Spec spec = LoopbackServer.Spec.newSpec()
+			.setPassword(password)
+			.setLatency(Long.getLong("jredis.bench.latency.micros", 0).longValue(), TimeUnit.MICROSECONDS);
+		try {
+			return LoopbackServer.start(spec);
+		}
+		catch (IOException e) {
+			throw new ClientRuntimeException("failed to start loopback server", e);
+		}
+	}
+
+	private final void runBenchmarksOn(String host, int port, int threadCnt, int reqCnt, int size, int db)
 	{
 //		random = new Random(System.currentTimeMillis());
 		
@@ -670,7 +708,7 @@ public abstract class JRedisBenchmark {
 		public void run() {
 			try {
 
-				jredis = newConnection (host, 6379, db, password);
+				jredis = newConnection (host, port, db, password);
 				try {
 //					jredis.auth (password).select(db).flushdb();
 					jredis.flushdb();
@@ -54,7 +54,7 @@ public class JRedisClientBenchmark extends JRedisBenchmark {
 		if(args.length > 3) size = Integer.parseInt(args[3]);
 		if(args.length > 4) host = args[4];
 		
-		System.out.format("==> Usage: [db [conn [req [size [host]]]]\n");
+		System.out.format("==> Usage: [db [conn [req [size [host | loopback]]]]\n");
 		
 		new JRedisClientBenchmark().runBenchmarks (host, port, workerCnt, reqCnt, size, db);
 	}
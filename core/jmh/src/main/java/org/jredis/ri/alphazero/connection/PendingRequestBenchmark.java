@@ -0,0 +1,139 @@
+/*
+ *   Copyright 2009-2012 Joubin Houshyar
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package org.jredis.ri.alphazero.connection;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import org.jredis.protocol.Command;
+import org.jredis.protocol.Response;
+import org.jredis.ri.alphazero.protocol.VirtualResponse;
+import org.jredis.ri.alphazero.support.Signal;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Completion of {@link PendingRequest}s, against the lock and condition based
+ * {@link Signal} it replaces.
+ * <ul>
+ * <li><code>uncontended*</code>: allocate, complete, get on one thread. Run with
+ * <code>-prof gc</code> for the allocation rate per op.
+ * <li><code>handoff*</code>: round trip latency of a request completed by a
+ * second (response handler) thread while the requester waits on it.
+ * </ul>
+ *
+ * @author  Joubin Houshyar (alphazero@sensesay.net)
+ * @date    Apr 10, 2012
+ *
+ */
+
+@State(Scope.Group)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PendingRequestBenchmark {
+
+	private final Response response = new VirtualResponse();
+
+	/** request handed from the requester to the completer */
+	private final AtomicReference<PendingRequest> pendingSlot = new AtomicReference<PendingRequest>();
+	private final AtomicReference<Signal> signalSlot = new AtomicReference<Signal>();
+
+	// ------------------------------------------------------------------------
+	// Uncontended
+	// ------------------------------------------------------------------------
+
+	@Benchmark
+	@Group("uncontendedPendingRequest")
+	public Response uncontendedPendingRequest () throws Exception {
+		PendingRequest pending = new PendingRequest(Command.PING);
+		pending.setResponse(response);
+		return pending.get();
+	}
+
+	@Benchmark
+	@Group("uncontendedSignal")
+	public boolean uncontendedSignal () throws Exception {
+		Signal signal = new Signal();
+		signal.signal();
+		signal.await();
+		return signal.isSignalled();
+	}
+
+	// ------------------------------------------------------------------------
+	// Handoff
+	// ------------------------------------------------------------------------
+	// requesters use timed waits so they are not left parked when the
+	// completer thread stops at the end of an iteration
+
+	@Benchmark
+	@Group("handoffPendingRequest")
+	@GroupThreads(1)
+	public Response requestPendingRequest () throws Exception {
+		PendingRequest pending = new PendingRequest(Command.PING);
+		pendingSlot.set(pending);
+		try {
+			return pending.get(10, TimeUnit.MILLISECONDS);
+		}
+		catch (TimeoutException e) {
+			pendingSlot.compareAndSet(pending, null);
+			return null;
+		}
+	}
+
+	@Benchmark
+	@Group("handoffPendingRequest")
+	@GroupThreads(1)
+	public boolean completePendingRequest () {
+		PendingRequest pending = pendingSlot.getAndSet(null);
+		if(pending == null) return false;
+		pending.setResponse(response);
+		return true;
+	}
+
+	@Benchmark
+	@Group("handoffSignal")
+	@GroupThreads(1)
+	public boolean requestSignal () throws Exception {
+		Signal signal = new Signal();
+		signalSlot.set(signal);
+		final boolean timedout = signal.await(10, TimeUnit.MILLISECONDS);
+		if(timedout) signalSlot.compareAndSet(signal, null);
+		return timedout;
+	}
+
+	@Benchmark
+	@Group("handoffSignal")
+	@GroupThreads(1)
+	public boolean completeSignal () {
+		Signal signal = signalSlot.getAndSet(null);
+		if(signal == null) return false;
+		signal.signal();
+		return true;
+	}
+}
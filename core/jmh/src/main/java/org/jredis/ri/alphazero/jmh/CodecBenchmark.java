@@ -0,0 +1,131 @@
+/*
+ *   Copyright 2009-2012 Joubin Houshyar
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package org.jredis.ri.alphazero.jmh;
+
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import org.jredis.Codec;
+import org.jredis.ri.alphazero.semantics.CompactCodecs;
+import org.jredis.ri.alphazero.support.DefaultCodec;
+import org.jredis.ri.alphazero.support.Log;
+import org.jredis.semantics.CodecManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Encoding and decoding of values with Java serialization ({@link DefaultCodec})
+ * and with the codecs of a {@link CodecManager}: the {@link CompactCodecs} for a
+ * long and a string, and a (hand written) schema codec for a small record.  The
+ * encoded sizes are logged on setup.
+ *
+ * @author  Joubin Houshyar (alphazero@sensesay.net)
+ * @date    Apr 16, 2012
+ *
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodecBenchmark {
+
+	@Param({"long", "string", "record"})
+	public String type;
+
+	private CodecManager	codecs;
+	private Serializable	value;
+	private byte[]			serialized;
+	private byte[]			encoded;
+	private Codec<Object>	codec;
+
+	@SuppressWarnings({ "boxing", "unchecked", "rawtypes" })
+	@Setup
+	public void setup () {
+		codecs = CompactCodecs.newCodecManager();
+		codecs.register(new RecordCodec(), Record.class);
+		if(type.equals("long")) value = 1334567890123L;
+		else if(type.equals("string")) value = "user:1234567:session:preferences";
+		else value = new Record(1234567L, "alphazero", 99.5d);
+
+		codec = (Codec) codecs.getCodec(value.getClass());
+		serialized = DefaultCodec.encode(value);
+		encoded = DefaultCodec.encode(value, codecs);
+		Log.log("%s: serialized %d bytes, encoded %d bytes", type, serialized.length, encoded.length);
+	}
+
+	@Benchmark
+	public byte[] serialize () {
+		return DefaultCodec.encode(value);
+	}
+
+	@Benchmark
+	public Object deserialize () {
+		return DefaultCodec.decode(serialized);
+	}
+
+	@Benchmark
+	public byte[] encode () {
+		return DefaultCodec.encode(value, codecs);
+	}
+
+	@Benchmark
+	public Object decode () {
+		return codec.decode(encoded);
+	}
+
+	// ------------------------------------------------------------------------
+	// Inner Class
+	// ------------------------------------------------------------------------
+	public static final class Record implements Serializable {
+		private static final long serialVersionUID = 1L;
+		final long id;
+		final String name;
+		final double score;
+		Record (long id, String name, double score) {
+			this.id = id;
+			this.name = name;
+			this.score = score;
+		}
+	}
+
+	/** fixed layout: id, score, name bytes */
+	static final class RecordCodec implements Codec<Record> {
+		public Record decode (byte[] bytes) {
+			ByteBuffer b = ByteBuffer.wrap(bytes);
+			long id = b.getLong();
+			double score = b.getDouble();
+			return new Record(id, CompactCodecs.STRING.decode(java.util.Arrays.copyOfRange(bytes, 16, bytes.length)), score);
+		}
+		public byte[] encode (Record r) {
+			byte[] name = CompactCodecs.STRING.encode(r.name);
+			return ByteBuffer.allocate(16 + name.length).putLong(r.id).putDouble(r.score).put(name).array();
+		}
+		public boolean supports (Class<?> type) { return type == Record.class; }
+	}
+}
@@ -0,0 +1,124 @@
+/*
+ *   Copyright 2009-2012 Joubin Houshyar
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package org.jredis.ri.alphazero.jmh;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.jredis.ri.alphazero.semantics.CompactCodecs;
+import org.jredis.ri.alphazero.semantics.CompressingCodec;
+import org.jredis.ri.alphazero.semantics.CompressingCodec.Algorithm;
+import org.jredis.ri.alphazero.support.GZip;
+import org.jredis.ri.alphazero.support.Log;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * (De)compression of JSON like values: with new GZIP streams per value (as
+ * {@link GZip} did), with the (per thread) pooled {@link GZip}, and with the
+ * {@link Algorithm#LZ4} {@link CompressingCodec}.  The compressed sizes are
+ * logged on setup.
+ *
+ * @author  Joubin Houshyar (alphazero@sensesay.net)
+ * @date    Apr 16, 2012
+ *
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompressionBenchmark {
+
+	@Param({"1024", "65536"})
+	public int size;
+
+	private byte[]						data;
+	private byte[]						gzipped;
+	private byte[]						lz4ed;
+	private CompressingCodec<byte[]>	lz4;
+
+	@SuppressWarnings("boxing")
+	@Setup
+	public void setup () {
+		Random random = new Random(16L);
+		StringBuilder builder = new StringBuilder(size + 100);
+		for(int i = 0; builder.length() < size; i++) {
+			builder.append("{\"id\":").append(random.nextInt(100000)).append(",\"name\":\"user-").append(i);
+			builder.append("\",\"score\":").append(random.nextDouble()).append(",\"active\":true},");
+		}
+		data = builder.substring(0, size).getBytes();
+		lz4 = new CompressingCodec<byte[]>(CompactCodecs.BYTES, Algorithm.LZ4, 0);
+		gzipped = GZip.compress(data);
+		lz4ed = lz4.encode(data);
+		Log.log("%d bytes: gzip %d bytes, lz4 %d bytes", size, gzipped.length, lz4ed.length);
+	}
+
+	@Benchmark
+	public byte[] streamCompress () throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		GZIPOutputStream gzip = new GZIPOutputStream(out);
+		gzip.write(data);
+		gzip.close();
+		return out.toByteArray();
+	}
+
+	@Benchmark
+	public byte[] streamDecompress () throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(gzipped));
+		byte[] buffer = new byte[1024 * 12];
+		for(int n; -1 != (n = gzip.read(buffer));) out.write(buffer, 0, n);
+		gzip.close();
+		return out.toByteArray();
+	}
+
+	@Benchmark
+	public byte[] gzipCompress () {
+		return GZip.compress(data);
+	}
+
+	@Benchmark
+	public byte[] gzipDecompress () {
+		return GZip.decompress(gzipped);
+	}
+
+	@Benchmark
+	public byte[] lz4Compress () {
+		return lz4.encode(data);
+	}
+
+	@Benchmark
+	public byte[] lz4Decompress () {
+		return lz4.decode(lz4ed);
+	}
+}
@@ -0,0 +1,103 @@
+/*
+ *   Copyright 2009-2012 Joubin Houshyar
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package org.jredis.ri.alphazero.jmh;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.jredis.ri.alphazero.jmh.RespTraces.ReplayInputStream;
+import org.jredis.ri.alphazero.support.FastBufferedInputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link FastBufferedInputStream} reads over a replayed bulk reply trace: single
+ * byte reads, block reads (as used for bulk data), line scans (as used for reply
+ * lines), and the reads of a large (1 MB) bulk reply.
+ * <p>
+ * Run with the gc profiler (<code>-prof gc</code>) to see the allocation rate
+ * per op: reads and line scans should not allocate, and a large reply should 
+ * only allocate its data array.
+ *
+ * @author  Joubin Houshyar (alphazero@sensesay.net)
+ * @date    Apr 8, 2012
+ *
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FastBufferedInputStreamBenchmark {
+
+	/** bytes per block read */
+	@Param({"1", "128", "4096"})
+	public int readSize;
+
+	/** max bytes returned per read of the replayed trace */
+	@Param({"1460", "65536"})
+	public int fragment;
+
+	/** size of the large bulk reply */
+	static final int LARGE_SIZE = 1024 * 1024;
+
+	private FastBufferedInputStream	in;
+	private FastBufferedInputStream	lines;
+	private FastBufferedInputStream	large;
+	private byte[]					b;
+
+	@Setup
+	public void setup () {
+		in = new FastBufferedInputStream(new ReplayInputStream(RespTraces.bulk(100, 4096), fragment), 1024 * 48);
+		lines = new FastBufferedInputStream(new ReplayInputStream(RespTraces.integers(1000), fragment), 1024 * 48);
+		large = new FastBufferedInputStream(new ReplayInputStream(RespTraces.bulk(1, LARGE_SIZE), fragment), 1024 * 48);
+		b = new byte[readSize];
+	}
+
+	@Benchmark
+	public int read () throws IOException {
+		return in.read(b, 0, readSize);
+	}
+
+	@Benchmark
+	public int peekLine () throws IOException {
+		final int len = lines.peekLine();
+		lines.consume(len);
+		return len;
+	}
+
+	/** the reads of a bulk reply: header line, data, and CRLF */
+	@Benchmark
+	public byte[] readLargeBulk () throws IOException {
+		large.consume(large.peekLine());
+		final byte[] data = new byte[LARGE_SIZE];
+		large.read(data, 0, LARGE_SIZE);
+		large.read();
+		large.read();
+		return data;
+	}
+}
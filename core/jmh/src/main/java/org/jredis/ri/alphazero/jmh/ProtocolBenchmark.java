@@ -0,0 +1,149 @@
+/*
+ *   Copyright 2009-2012 Joubin Houshyar
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package org.jredis.ri.alphazero.jmh;
+
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+import org.jredis.protocol.Command;
+import org.jredis.protocol.Response;
+import org.jredis.ri.alphazero.jmh.RespTraces.NullOutputStream;
+import org.jredis.ri.alphazero.jmh.RespTraces.ReplayInputStream;
+import org.jredis.ri.alphazero.protocol.RequestEncoder;
+import org.jredis.ri.alphazero.protocol.SyncProtocol;
+import org.jredis.ri.alphazero.support.FastBufferedInputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Request encoding and {@link SyncProtocol} reply parsing.  Replies are read
+ * from replayed RESP traces through a {@link FastBufferedInputStream}, as they
+ * are by the synchronous connections.
+ *
+ * @author  Joubin Houshyar (alphazero@sensesay.net)
+ * @date    Apr 8, 2012
+ *
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProtocolBenchmark {
+
+	/** value size in bytes -- for SET requests and bulk replies */
+	@Param({"16", "1024", "32768"})
+	public int valueSize;
+
+	/** max bytes returned per read of the replayed trace */
+	@Param({"1460"})
+	public int fragment;
+
+	private SyncProtocol		protocol;
+	private NullOutputStream	sink;
+	private byte[]				key;
+	private byte[]				value;
+	private byte[]				chunk;
+
+	private InputStream			statusIn;
+	private InputStream			integerIn;
+	private InputStream			bulkIn;
+	private InputStream			multiBulkIn;
+
+	@Setup
+	public void setup () {
+		protocol = new SyncProtocol();
+		sink = new NullOutputStream();
+		key = "jmh:bench:key:0001".getBytes();
+		value = RespTraces.value(valueSize);
+		chunk = new byte[1024 * 48];
+
+		statusIn = replay(RespTraces.status(1000));
+		integerIn = replay(RespTraces.integers(1000));
+		bulkIn = replay(RespTraces.bulk(100, valueSize));
+		multiBulkIn = replay(RespTraces.multiBulk(10, 10, valueSize));
+	}
+
+	private InputStream replay (byte[] trace) {
+		return new FastBufferedInputStream(new ReplayInputStream(trace, fragment), 1024 * 48);
+	}
+
+	// ------------------------------------------------------------------------
+	// Requests
+	// ------------------------------------------------------------------------
+
+	@Benchmark
+	public long createRequest () {
+		protocol.createRequest(Command.SET, key, value).write(sink);
+		return sink.count;
+	}
+
+	@Benchmark
+	public byte[] createRequestBuffer () {
+		return protocol.createRequestBuffer(Command.SET, key, value);
+	}
+
+	/** the chunked pipeline encoding path */
+	@Benchmark
+	public int encodeToChunkBuffer () {
+		final int size = RequestEncoder.frameSize(Command.SET, key, value);
+		if(size > chunk.length) return size;
+		return RequestEncoder.encode(Command.SET, new byte[][]{key, value}, chunk, 0);
+	}
+
+	// ------------------------------------------------------------------------
+	// Responses
+	// ------------------------------------------------------------------------
+
+	@Benchmark
+	public Response readStatus () {
+		Response r = protocol.createResponse(Command.SET);
+		r.read(statusIn);
+		return r;
+	}
+
+	@Benchmark
+	public Response readInteger () {
+		Response r = protocol.createResponse(Command.INCR);
+		r.read(integerIn);
+		return r;
+	}
+
+	@Benchmark
+	public Response readBulk () {
+		Response r = protocol.createResponse(Command.GET);
+		r.read(bulkIn);
+		return r;
+	}
+
+	@Benchmark
+	public Response readMultiBulk () {
+		Response r = protocol.createResponse(Command.LRANGE);
+		r.read(multiBulkIn);
+		return r;
+	}
+}
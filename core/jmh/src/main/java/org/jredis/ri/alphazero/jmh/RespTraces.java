@@ -0,0 +1,139 @@
+/*
+ *   Copyright 2009-2012 Joubin Houshyar
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package org.jredis.ri.alphazero.jmh;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+
+/**
+ * RESP reply traces, in the form the server sends them, and in-memory streams
+ * to replay them so that the protocol and stream hot paths can be measured
+ * without a server or network noise.  Traces are generated from a fixed seed so
+ * runs are comparable.
+ *
+ * @author  Joubin Houshyar (alphazero@sensesay.net)
+ * @date    Apr 8, 2012
+ *
+ */
+
+public final class RespTraces {
+
+	private RespTraces () {}
+
+	/** @return a trace of cnt status replies */
+	public static byte[] status (int cnt) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		for(int i=0; i<cnt; i++) write(out, "+OK\r\n");
+		return out.toByteArray();
+	}
+
+	/** @return a trace of cnt integer replies (e.g. INCR) */
+	public static byte[] integers (int cnt) {
+		Random random = new Random(cnt);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		for(int i=0; i<cnt; i++) write(out, ":" + Math.abs(random.nextLong()) + "\r\n");
+		return out.toByteArray();
+	}
+
+	/** @return a trace of cnt bulk replies of size bytes (e.g. GET) */
+	public static byte[] bulk (int cnt, int size) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] value = value(size);
+		for(int i=0; i<cnt; i++) {
+			write(out, "$" + size + "\r\n");
+			out.write(value, 0, size);
+			write(out, "\r\n");
+		}
+		return out.toByteArray();
+	}
+
+	/** @return a trace of cnt multi-bulk replies of n elements of size bytes (e.g. LRANGE) */
+	public static byte[] multiBulk (int cnt, int n, int size) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] value = value(size);
+		for(int i=0; i<cnt; i++) {
+			write(out, "*" + n + "\r\n");
+			for(int j=0; j<n; j++){
+				write(out, "$" + size + "\r\n");
+				out.write(value, 0, size);
+				write(out, "\r\n");
+			}
+		}
+		return out.toByteArray();
+	}
+
+	/** @return deterministic printable value of size bytes */
+	public static byte[] value (int size) {
+		byte[] value = new byte[size];
+		for(int i=0; i<size; i++) value[i] = (byte) ('a' + i % 26);
+		return value;
+	}
+
+	private static void write (ByteArrayOutputStream out, String s) {
+		byte[] b = s.getBytes();
+		out.write(b, 0, b.length);
+	}
+
+	// ------------------------------------------------------------------------
+	// Replay streams
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Endlessly replays a trace, returning at most fragment bytes per read to
+	 * mimic socket reads.
+	 */
+	public static final class ReplayInputStream extends InputStream {
+		private final byte[] trace;
+		private final int fragment;
+		private int off;
+		public ReplayInputStream (byte[] trace, int fragment) {
+			this.trace = trace;
+			this.fragment = fragment;
+		}
+		@Override
+		public int read () {
+			int b = trace[off++] & 0xFF;
+			if(off == trace.length) off = 0;
+			return b;
+		}
+		@Override
+		public int read (byte[] b, int boff, int len) {
+			int n = Math.min(Math.min(len, fragment), trace.length - off);
+			System.arraycopy(trace, off, b, boff, n);
+			off += n;
+			if(off == trace.length) off = 0;
+			return n;
+		}
+		@Override
+		public int available () {
+			return trace.length - off;
+		}
+	}
+
+	/**
+	 * Discards all writes.
+	 */
+	public static final class NullOutputStream extends OutputStream {
+		public long count;
+		@Override
+		public void write (int b) { count++; }
+		@Override
+		public void write (byte[] b, int off, int len) { count += len; }
+	}
+}
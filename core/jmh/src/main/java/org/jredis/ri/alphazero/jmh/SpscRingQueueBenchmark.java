@@ -0,0 +1,97 @@
+/*
+ *   Copyright 2009-2012 Joubin Houshyar
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package org.jredis.ri.alphazero.jmh;
+
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import org.jredis.ri.alphazero.support.SpscRingQueue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Single producer/single consumer handoff through the pending response queue
+ * of {@link org.jredis.ri.alphazero.connection.ChunkedPipelineConnection}, the
+ * {@link SpscRingQueue}, and the JDK queues used by the other pipelines.
+ *
+ * @author  Joubin Houshyar (alphazero@sensesay.net)
+ * @date    Apr 12, 2012
+ *
+ */
+
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SpscRingQueueBenchmark {
+
+	@Param({"SpscRingQueue", "ConcurrentLinkedQueue", "ArrayBlockingQueue"})
+	public String queueType;
+
+	/** bound of the queues (producer side approximation for the unbounded CLQ) */
+	private static final int	CAPACITY = 1024;
+
+	private SpscRingQueue<Object>	ring;
+	private Queue<Object>			queue;
+	private final Object			item = new Object();
+	private int						depth;
+
+	@Setup
+	public void setup () {
+		if(queueType.equals("SpscRingQueue"))
+			ring = new SpscRingQueue<Object>(CAPACITY, 0, 0);
+		else if(queueType.equals("ConcurrentLinkedQueue"))
+			queue = new ConcurrentLinkedQueue<Object>();
+		else
+			queue = new ArrayBlockingQueue<Object>(CAPACITY);
+	}
+
+	@Benchmark
+	@Group("spsc")
+	@GroupThreads(1)
+	public boolean offer () {
+		if(ring != null) return ring.offer(item);
+
+		// size() of CLQ is O(n): approximate depth with a producer side count
+		if(++depth > CAPACITY) {
+			if(queue.peek() != null) return false;
+			depth = 0;
+		}
+		return queue.offer(item);
+	}
+
+	@Benchmark
+	@Group("spsc")
+	@GroupThreads(1)
+	public Object poll () {
+		return ring != null ? ring.poll() : queue.poll();
+	}
+}
@@ -0,0 +1,108 @@
+/*
+ *   Copyright 2009-2012 Joubin Houshyar
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package org.jredis.ri.alphazero.jmh;
+
+import java.util.concurrent.TimeUnit;
+import org.jredis.ri.alphazero.semantics.CachingKeyCodec;
+import org.jredis.ri.alphazero.semantics.DefaultKeyCodec;
+import org.jredis.ri.alphazero.support.Convert;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link Convert} number conversions, and {@link DefaultKeyCodec} and (hot key)
+ * {@link CachingKeyCodec} key encoding.
+ * Each invocation cycles through a fixed set of inputs so that both the
+ * cached and uncached paths are exercised.
+ *
+ * @author  Joubin Houshyar (alphazero@sensesay.net)
+ * @date    Apr 8, 2012
+ *
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SupportBenchmark {
+
+	private static final int	N = 1024;
+
+	private final int[]		ints = new int[N];
+	private final long[]	longs = new long[N];
+	private final byte[][]	intBytes = new byte[N][];
+	private final byte[][]	longBytes = new byte[N][];
+	private final String[]	keys = new String[N];
+	private final CachingKeyCodec<Object>	keyCache = new CachingKeyCodec<Object>(N);
+	private int				i;
+
+	@Setup
+	public void setup () {
+		java.util.Random random = new java.util.Random(N);
+		for(int j=0; j<N; j++){
+			ints[j] = j % 2 == 0 ? random.nextInt(Convert.INT_P_65535) : random.nextInt();
+			longs[j] = j % 2 == 0 ? random.nextInt(Convert.INT_P_65535) : random.nextLong();
+			intBytes[j] = Integer.toString(ints[j]).getBytes();
+			longBytes[j] = Long.toString(longs[j]).getBytes();
+			keys[j] = "user:" + random.nextInt(1000000) + ":session";
+		}
+	}
+
+	private int next () {
+		return i = (i + 1) & (N - 1);
+	}
+
+	@Benchmark
+	public int toInt () {
+		return Convert.toInt(intBytes[next()]);
+	}
+
+	@Benchmark
+	public long toLong () {
+		return Convert.toLong(longBytes[next()]);
+	}
+
+	@Benchmark
+	public byte[] toBytesInt () {
+		return Convert.toBytes(ints[next()]);
+	}
+
+	@Benchmark
+	public byte[] toBytesLong () {
+		return Convert.toBytes(longs[next()]);
+	}
+
+	@Benchmark
+	public byte[] encodeStringKey () {
+		return DefaultKeyCodec.encodeString(keys[next()]);
+	}
+
+	@Benchmark
+	public byte[] encodeCachedStringKey () {
+		return keyCache.encodeString(keys[next()]);
+	}
+}
@@ -0,0 +1,224 @@
+/*
+ *   Copyright 2009-2012 Joubin Houshyar
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package org.jredis.loopback;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * The loopback server's databases.  Not thread-safe: all access is serialized
+ * by the sessions, which synchronize on the instance.
+ * <p>
+ * Keys, and all values, are kept as ISO-8859-1 strings, which map 1:1 to
+ * bytes and give us equality and hashing for free.  Value types are:
+ * <li>string: {@link String}
+ * <li>list: {@link ArrayList}
+ * <li>set: {@link java.util.HashSet}
+ * <li>sorted set: {@link ZSet}
+ * <li>hash: {@link java.util.LinkedHashMap}
+ *
+ * @author  Joubin Houshyar (alphazero@sensesay.net)
+ * @date    Apr 9, 2012
+ *
+ */
+
+final class Keyspace {
+
+	static final int DB_COUNT = 16;
+
+	private final Db[] dbs = new Db[DB_COUNT];
+
+	Keyspace () {
+		for(int i=0; i<DB_COUNT; i++) dbs[i] = new Db();
+	}
+
+	Db db (int index) { return dbs[index]; }
+
+	void flushAll () {
+		for(Db db : dbs) db.flush();
+	}
+
+	// ------------------------------------------------------------------------
+	// Inner Types
+	// ------------------------------------------------------------------------
+
+	/**
+	 * A single database, with lazy expiration of volatile keys.
+	 */
+	static final class Db {
+		private final HashMap<String, Object>	data = new HashMap<String, Object>();
+		private final HashMap<String, Long>		expires = new HashMap<String, Long>();
+
+		/** @return the value of the key, or null if it does not exist (or has expired) */
+		Object get (String key) {
+			if(!expires.isEmpty()) {
+				Long expireAt = expires.get(key);
+				if(expireAt != null && expireAt.longValue() <= System.currentTimeMillis()){
+					data.remove(key);
+					expires.remove(key);
+					return null;
+				}
+			}
+			return data.get(key);
+		}
+		boolean exists (String key) {
+			return get(key) != null;
+		}
+		/** sets the value; as with Redis, this clears any expiration */
+		void put (String key, Object value) {
+			data.put(key, value);
+			expires.remove(key);
+		}
+		/** @return true if the key existed */
+		boolean remove (String key) {
+			boolean existed = get(key) != null;
+			data.remove(key);
+			expires.remove(key);
+			return existed;
+		}
+		/** removes the key if its aggregate value is empty */
+		void trim (String key) {
+			Object value = data.get(key);
+			if(value instanceof java.util.Collection<?> && ((java.util.Collection<?>) value).isEmpty()) remove(key);
+			else if(value instanceof Map<?,?> && ((Map<?,?>) value).isEmpty()) remove(key);
+			else if(value instanceof ZSet && ((ZSet) value).scores.isEmpty()) remove(key);
+		}
+		void expireAt (String key, long millis) {
+			expires.put(key, Long.valueOf(millis));
+		}
+		/** @return remaining millis to live, or -1 if the key is not volatile */
+		long ttl (String key) {
+			if(get(key) == null) return -1;
+			Long expireAt = expires.get(key);
+			return expireAt == null ? -1 : expireAt.longValue() - System.currentTimeMillis();
+		}
+		int size () {
+			purge();
+			return data.size();
+		}
+		int volatileCount () {
+			purge();
+			return expires.size();
+		}
+		/** @return the live keys matching the glob style pattern */
+		List<String> keys (String pattern) {
+			purge();
+			List<String> keys = new ArrayList<String>();
+			if(pattern.equals("*")){
+				keys.addAll(data.keySet());
+			}
+			else {
+				Pattern regex = glob(pattern);
+				for(String key : data.keySet())
+					if(regex.matcher(key).matches()) keys.add(key);
+			}
+			return keys;
+		}
+		String randomKey (java.util.Random random) {
+			purge();
+			if(data.isEmpty()) return null;
+			int n = random.nextInt(data.size());
+			Iterator<String> it = data.keySet().iterator();
+			while(n-- > 0) it.next();
+			return it.next();
+		}
+		void flush () {
+			data.clear();
+			expires.clear();
+		}
+		private void purge () {
+			if(expires.isEmpty()) return;
+			long now = System.currentTimeMillis();
+			for(Iterator<Map.Entry<String, Long>> it = expires.entrySet().iterator(); it.hasNext();){
+				Map.Entry<String, Long> e = it.next();
+				if(e.getValue().longValue() <= now) {
+					data.remove(e.getKey());
+					it.remove();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Sorted set.  Members are ordered on demand -- this is a test server and
+	 * simplicity wins over asymptotics.
+	 */
+	static final class ZSet {
+		final HashMap<String, Double>	scores = new HashMap<String, Double>();
+
+		private static final Comparator<Map.Entry<String, Double>> order = new Comparator<Map.Entry<String,Double>>() {
+			public int compare (Map.Entry<String, Double> a, Map.Entry<String, Double> b) {
+				int c = a.getValue().compareTo(b.getValue());
+				return c != 0 ? c : a.getKey().compareTo(b.getKey());
+			}
+		};
+
+		/** @return entries in ascending (score, member) order */
+		List<Map.Entry<String, Double>> sorted () {
+			List<Map.Entry<String, Double>> entries = new ArrayList<Map.Entry<String,Double>>(scores.entrySet());
+			Collections.sort(entries, order);
+			return entries;
+		}
+		/** @return ascending rank of member, or -1 */
+		int rank (String member) {
+			if(!scores.containsKey(member)) return -1;
+			List<Map.Entry<String, Double>> entries = sorted();
+			for(int i=0; i<entries.size(); i++)
+				if(entries.get(i).getKey().equals(member)) return i;
+			return -1;
+		}
+		Set<String> members () { return scores.keySet(); }
+	}
+
+	// ------------------------------------------------------------------------
+	// Support
+	// ------------------------------------------------------------------------
+
+	/** @return the regex equivalent of a Redis glob pattern (*, ?, [...], \x) */
+	static Pattern glob (String pattern) {
+		StringBuilder regex = new StringBuilder(pattern.length() * 2);
+		boolean inClass = false;
+		for(int i=0; i<pattern.length(); i++){
+			char c = pattern.charAt(i);
+			if(inClass){
+				if(c == ']') inClass = false;
+				if(c == '\\' && i+1 < pattern.length()) { regex.append(Pattern.quote(String.valueOf(pattern.charAt(++i)))); continue; }
+				regex.append(c);
+				continue;
+			}
+			switch (c) {
+			case '*': regex.append(".*"); break;
+			case '?': regex.append('.'); break;
+			case '[': inClass = true; regex.append('['); if(i+1 < pattern.length() && pattern.charAt(i+1) == '^') { regex.append('^'); i++; } break;
+			case '\\':
+				if(i+1 < pattern.length()) c = pattern.charAt(++i);
+				regex.append(Pattern.quote(String.valueOf(c)));
+				break;
+			default: regex.append(Pattern.quote(String.valueOf(c)));
+			}
+		}
+		if(inClass) regex.append(']');
+		return Pattern.compile(regex.toString(), Pattern.DOTALL);
+	}
+}
@@ -0,0 +1,270 @@
+/*
+ *   Copyright 2009-2012 Joubin Houshyar
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package org.jredis.loopback;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * An in-process Redis stand-in that speaks RESP on the loopback interface, so
+ * that the RI tests and the benchmarks of all connection modalities can run on
+ * a build box without a Redis server, and with repeatable timing.
+ * <p>
+ * The string, key space, list, set, sorted set, hash, transaction and db commands
+ * of {@link org.jredis.protocol.Command} are supported with Redis 2.x semantics.
+ * Persistence and replication commands are accepted and ignored.  Data is kept
+ * in memory only.
+ * <p>
+ * Each client connection is served by its own (daemon) thread, and commands are
+ * executed one at a time against the shared keyspace, so clients observe the same
+ * serial semantics as with Redis.  Replies to pipelined requests are written in
+ * one batch once the connection's input buffer has been drained.
+ * <p>
+ * A {@link Spec} can add artificial latency to each reply batch (modeling the
+ * network round trip) and have reads of non-existent string keys reply with a
+ * synthetic value of fixed size, so reply size can be varied without first
+ * loading data.
+ * <p>
+ * Usage:
+ * <pre><code>
+ * LoopbackServer server = LoopbackServer.start(LoopbackServer.Spec.newSpec().setLatency(200, TimeUnit.MICROSECONDS));
+ * ConnectionSpec spec = DefaultConnectionSpec.newSpec("localhost", server.getPort(), 0, null);
+ * ...
+ * server.stop();
+ * </code></pre>
+ *
+ * @author  Joubin Houshyar (alphazero@sensesay.net)
+ * @date    Apr 9, 2012
+ *
+ */
+
+public final class LoopbackServer {
+
+	/** 
+	 * the logger of JRedis' {@code org.jredis.ri.alphazero.support.Log} -- which is 
+	 * not a dependency of the loopback server, as the RI depends on it (for tests)
+	 */
+	static final Logger logger = Logger.getLogger("JRedis");
+
+	// ------------------------------------------------------------------------
+	// Spec
+	// ------------------------------------------------------------------------
+	/**
+	 * Server configuration.  Defaults: ephemeral port, no latency, no password,
+	 * no synthetic values.
+	 */
+	public static final class Spec {
+		int			port = 0;
+		long		latencyNanos = 0;
+		int			syntheticValueSize = 0;
+		String		password = null;
+		int			backlog = 128;
+
+		private Spec () {}
+
+		/** @return a new spec with default values */
+		public static Spec newSpec () { return new Spec(); }
+
+		/** @param port to bind to on the loopback interface; 0 (default) binds an ephemeral port */
+		public Spec setPort (int port) {
+			if(port < 0 || port > 0xFFFF) throw new IllegalArgumentException("port: " + port);
+			this.port = port;
+			return this;
+		}
+		/** @param latency delay before each batch of replies is written -- 0 for none */
+		public Spec setLatency (long latency, TimeUnit unit) {
+			if(latency < 0) throw new IllegalArgumentException("latency: " + latency);
+			this.latencyNanos = unit.toNanos(latency);
+			return this;
+		}
+		/** @param size if > 0, GET/MGET of a non-existent key reply with a value of this size instead of nil */
+		public Spec setSyntheticValueSize (int size) {
+			if(size < 0) throw new IllegalArgumentException("size: " + size);
+			this.syntheticValueSize = size;
+			return this;
+		}
+		/** @param password if not null, clients must AUTH with it */
+		public Spec setPassword (String password) {
+			this.password = password;
+			return this;
+		}
+		/** @param backlog listen backlog */
+		public Spec setBacklog (int backlog) {
+			this.backlog = backlog;
+			return this;
+		}
+	}
+
+	// ------------------------------------------------------------------------
+	// Properties
+	// ------------------------------------------------------------------------
+
+	final Spec 					spec;
+	final Keyspace				keyspace = new Keyspace();
+	final byte[]				syntheticValue;
+	final long					startTime = System.currentTimeMillis();
+	final AtomicLong			commandsProcessed = new AtomicLong();
+	final AtomicInteger			connectionsReceived = new AtomicInteger();
+	private final Set<Session>	sessions = new CopyOnWriteArraySet<Session>();
+
+	private ServerSocket		serverSocket;
+	private Thread				acceptor;
+	private volatile boolean	running;
+
+	// ------------------------------------------------------------------------
+	// Construct and start/stop
+	// ------------------------------------------------------------------------
+
+	/**
+	 * @param spec
+	 */
+	public LoopbackServer (Spec spec) {
+		if(spec == null) throw new IllegalArgumentException("spec is null");
+		this.spec = spec;
+		this.syntheticValue = new byte[spec.syntheticValueSize];
+		for(int i=0; i<syntheticValue.length; i++) syntheticValue[i] = (byte) ('a' + i % 26);
+	}
+
+	/**
+	 * Convenience method to create and start a server.
+	 * @param spec
+	 * @return the started server
+	 * @throws IOException if the port can not be bound
+	 */
+	public static LoopbackServer start (Spec spec) throws IOException {
+		LoopbackServer server = new LoopbackServer(spec);
+		server.start();
+		return server;
+	}
+
+	/**
+	 * Binds the listen port and starts accepting connections.
+	 * @throws IOException if the port can not be bound
+	 * @throws IllegalStateException if already started
+	 */
+	public synchronized void start () throws IOException {
+		if(running) throw new IllegalStateException("already started");
+
+		serverSocket = new ServerSocket();
+		serverSocket.setReuseAddress(true);
+		serverSocket.bind(new InetSocketAddress(InetAddress.getByName("127.0.0.1"), spec.port), spec.backlog);
+		running = true;
+
+		acceptor = new Thread(new Runnable() {
+			public void run () { accept(); }
+		}, "jredis-loopback-acceptor:" + getPort());
+		acceptor.setDaemon(true);
+		acceptor.start();
+	}
+
+	/**
+	 * Closes the listen socket and all client connections.  Data is retained
+	 * until the server instance is dropped.
+	 */
+	public synchronized void stop () {
+		if(!running) return;
+		running = false;
+		try { serverSocket.close(); }
+		catch (IOException e) { /* ignore */ }
+		for(Session session : sessions) session.close();
+		try { acceptor.join(1000); }
+		catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+	}
+
+	/**
+	 * Closes all client connections (the server keeps accepting new ones), e.g.
+	 * to test the fault handling of clients.
+	 */
+	public void disconnectClients () {
+		for(Session session : sessions) session.close();
+	}
+
+	/** @return true if started and not stopped */
+	public boolean isRunning () { return running; }
+
+	/** @return the bound port -- useful when the spec'd port is 0 */
+	public int getPort () { return serverSocket.getLocalPort(); }
+
+	/** @return the loopback address the server is bound to */
+	public InetAddress getAddress () { return serverSocket.getInetAddress(); }
+
+	/** @return the number of currently connected clients */
+	public int getConnectionCount () { return sessions.size(); }
+
+	/** @return total number of commands executed since start */
+	public long getCommandsProcessed () { return commandsProcessed.get(); }
+
+	/** Clears all databases. */
+	public void flushAll () {
+		synchronized (keyspace) { keyspace.flushAll(); }
+	}
+
+	// ------------------------------------------------------------------------
+	// Internal ops
+	// ------------------------------------------------------------------------
+
+	private void accept () {
+		while(running){
+			try {
+				Socket socket = serverSocket.accept();
+				socket.setTcpNoDelay(true);
+				connectionsReceived.incrementAndGet();
+				Session session = new Session(this, socket);
+				sessions.add(session);
+				Thread t = new Thread(session, "jredis-loopback-session:" + socket.getPort());
+				t.setDaemon(true);
+				t.start();
+			}
+			catch (IOException e) {
+				if(running) logger.log(Level.SEVERE, "loopback server failed to accept a connection", e);
+			}
+		}
+	}
+
+	/** called by a session on termination */
+	void closed (Session session) {
+		sessions.remove(session);
+	}
+
+	// ------------------------------------------------------------------------
+	// stand-alone
+	// ------------------------------------------------------------------------
+	/**
+	 * Runs a server in the foreground.
+	 * <pre>
+	 * args: [port [latency-micros [synthetic-value-size]]]
+	 * </pre>
+	 */
+	public static void main (String[] args) throws Exception {
+		Spec spec = Spec.newSpec().setPort(args.length > 0 ? Integer.parseInt(args[0]) : 6379);
+		if(args.length > 1) spec.setLatency(Long.parseLong(args[1]), TimeUnit.MICROSECONDS);
+		if(args.length > 2) spec.setSyntheticValueSize(Integer.parseInt(args[2]));
+		LoopbackServer server = start(spec);
+		System.out.format("jredis loopback server listening on %s:%d\n", server.getAddress().getHostAddress(), server.getPort());
+		server.acceptor.join();
+	}
+}
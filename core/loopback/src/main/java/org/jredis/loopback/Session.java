@@ -0,0 +1,1067 @@
+/*
+ *   Copyright 2009-2012 Joubin Houshyar
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package org.jredis.loopback;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.locks.LockSupport;
+
+import org.jredis.loopback.Keyspace.Db;
+import org.jredis.loopback.Keyspace.ZSet;
+import org.jredis.protocol.Command;
+
+/**
+ * A client connection to the {@link LoopbackServer}: reads RESP requests,
+ * executes them against the shared {@link Keyspace}, and writes the replies.
+ *
+ * @author  Joubin Houshyar (alphazero@sensesay.net)
+ * @date    Apr 9, 2012
+ *
+ */
+
+final class Session implements Runnable {
+
+	// ------------------------------------------------------------------------
+	// Properties
+	// ------------------------------------------------------------------------
+
+	static final Charset 	LATIN1 = Charset.forName("ISO-8859-1");
+	static final byte[]		CRLF = {'\r', '\n'};
+
+	private final LoopbackServer	server;
+	private final Keyspace			keyspace;
+	private final Socket			socket;
+	private final Random			random = new Random();
+
+	private InputStream				in;
+	private OutputStream			out;
+	private final Reply				reply = new Reply();
+
+	private int						dbIndex = 0;
+	private boolean					authenticated;
+	private List<String[]>			transaction;
+	private boolean					closing;
+
+	Session (LoopbackServer server, Socket socket) {
+		this.server = server;
+		this.keyspace = server.keyspace;
+		this.socket = socket;
+		this.authenticated = server.spec.password == null;
+	}
+
+	// ------------------------------------------------------------------------
+	// Request loop
+	// ------------------------------------------------------------------------
+
+	public void run () {
+		try {
+			in = new BufferedInputStream(socket.getInputStream(), 1024 * 16);
+			out = socket.getOutputStream();
+			String[] argv;
+			while(!closing && (argv = readRequest()) != null){
+				process(argv);
+				// batch up replies to pipelined requests
+				if(closing || in.available() == 0) flush();
+			}
+			flush();
+		}
+		catch (IOException e) { /* client went away */ }
+		finally {
+			close();
+			server.closed(this);
+		}
+	}
+
+	void close () {
+		closing = true;
+		try { socket.close(); }
+		catch (IOException e) { /* ignore */ }
+	}
+
+	private void flush () throws IOException {
+		if(reply.size() == 0) return;
+		final long latency = server.spec.latencyNanos;
+		if(latency > 0) {
+			final long deadline = System.nanoTime() + latency;
+			long remaining = latency;
+			while(remaining > 0) {
+				LockSupport.parkNanos(remaining);
+				remaining = deadline - System.nanoTime();
+			}
+		}
+		reply.writeTo(out);
+		out.flush();
+		reply.reset();
+	}
+
+	/** @return the request args (command name first) or null on EOF */
+	private String[] readRequest () throws IOException {
+		int b = in.read();
+		if(b == -1) return null;
+		if(b != '*') {
+			// inline command -- telnet friendly
+			String line = (char) b + readLine();
+			return line.trim().split("\\s+");
+		}
+		int argc = Integer.parseInt(readLine());
+		String[] argv = new String[argc];
+		for(int i=0; i<argc; i++){
+			if(in.read() != '$') throw new IOException("protocol error: expected '$'");
+			int len = Integer.parseInt(readLine());
+			byte[] data = new byte[len];
+			int off = 0;
+			while(off < len){
+				int c = in.read(data, off, len - off);
+				if(c == -1) throw new EOFException();
+				off += c;
+			}
+			if(in.read() != '\r' || in.read() != '\n') throw new IOException("protocol error: expected CRLF");
+			argv[i] = new String(data, LATIN1);
+		}
+		return argv;
+	}
+
+	private String readLine () throws IOException {
+		StringBuilder s = new StringBuilder(16);
+		int c;
+		while((c = in.read()) != '\r'){
+			if(c == -1) throw new EOFException();
+			s.append((char) c);
+		}
+		if(in.read() != '\n') throw new IOException("protocol error: expected LF");
+		return s.toString();
+	}
+
+	// ------------------------------------------------------------------------
+	// Command processing
+	// ------------------------------------------------------------------------
+
+	private void process (String[] argv) {
+		if(argv.length == 0) return;
+		final String name = argv[0].toUpperCase();
+		Command cmd = lookup(name);
+		if(cmd == null){
+			reply.error("ERR unknown command '" + argv[0] + "'");
+			return;
+		}
+		if(!authenticated && cmd != Command.AUTH && cmd != Command.QUIT){
+			reply.error("ERR operation not permitted");
+			return;
+		}
+		if(transaction != null && cmd != Command.EXEC && cmd != Command.DISCARD && cmd != Command.MULTI && cmd != Command.QUIT){
+			transaction.add(argv);
+			reply.status("QUEUED");
+			return;
+		}
+		synchronized (keyspace) {
+			execute(cmd, argv);
+		}
+	}
+
+	private static Command lookup (String name) {
+		if(name.indexOf(Command.OPTCODE) >= 0) return null;
+		try {
+			Command cmd = Command.valueOf(name);
+			return cmd == Command.CONN_FLUSH || cmd == Command.KEYSTOLIST ? null : cmd;
+		}
+		catch (IllegalArgumentException e) { return null; }
+	}
+
+	/** executes the command, writing its reply; caller holds the keyspace lock */
+	private void execute (Command cmd, String[] a) {
+		server.commandsProcessed.incrementAndGet();
+		try {
+			dispatch(cmd, a);
+		}
+		catch (CommandError e) {
+			reply.error(e.getMessage());
+		}
+		catch (ArrayIndexOutOfBoundsException e) {
+			reply.error("ERR wrong number of arguments for '" + a[0].toLowerCase() + "' command");
+		}
+		catch (NumberFormatException e) {
+			reply.error("ERR value is not an integer or out of range");
+		}
+		catch (ClassCastException e) {
+			reply.error(WRONGTYPE);
+		}
+	}
+
+	private void dispatch (Command cmd, String[] a) {
+		final Db db = keyspace.db(dbIndex);
+		switch (cmd) {
+
+		// ---------------------------------------------------- connection
+		case AUTH:
+			if(server.spec.password != null && !server.spec.password.equals(a[1])) {
+				authenticated = false;
+				reply.error("ERR invalid password");
+			}
+			else {
+				authenticated = true;
+				reply.ok();
+			}
+			break;
+		case PING: reply.status("PONG"); break;
+		case ECHO: reply.bulk(a[1]); break;
+		case QUIT: reply.ok(); closing = true; break;
+		case SELECT: {
+			int index = Integer.parseInt(a[1]);
+			if(index < 0 || index >= Keyspace.DB_COUNT) throw new CommandError("ERR invalid DB index");
+			dbIndex = index;
+			reply.ok();
+			break;
+		}
+
+		// ---------------------------------------------------- strings
+		case SET: db.put(a[1], a[2]); reply.ok(); break;
+		case GET: {
+			String v = string(db, a[1]);
+			if(v == null && server.syntheticValue.length > 0) reply.bulk(server.syntheticValue);
+			else reply.bulk(v);
+			break;
+		}
+		case GETSET: {
+			String v = string(db, a[1]);
+			db.put(a[1], a[2]);
+			reply.bulk(v);
+			break;
+		}
+		case MGET:
+			reply.multi(a.length - 1);
+			for(int i=1; i<a.length; i++){
+				Object v = db.get(a[i]);
+				if(v instanceof String) reply.bulk((String) v);
+				else if(v == null && server.syntheticValue.length > 0) reply.bulk(server.syntheticValue);
+				else reply.nil();
+			}
+			break;
+		case SETNX:
+			if(db.exists(a[1])) reply.integer(0);
+			else { db.put(a[1], a[2]); reply.integer(1); }
+			break;
+		case MSET:
+		case MSETNX: {
+			if(a.length < 3 || a.length % 2 == 0) throw new ArrayIndexOutOfBoundsException();
+			if(cmd == Command.MSETNX) {
+				for(int i=1; i<a.length; i+=2)
+					if(db.exists(a[i])) { reply.integer(0); return; }
+			}
+			for(int i=1; i<a.length; i+=2) db.put(a[i], a[i+1]);
+			if(cmd == Command.MSET) reply.ok(); else reply.integer(1);
+			break;
+		}
+		case INCR: reply.integer(incr(db, a[1], 1)); break;
+		case DECR: reply.integer(incr(db, a[1], -1)); break;
+		case INCRBY: reply.integer(incr(db, a[1], Long.parseLong(a[2]))); break;
+		case DECRBY: reply.integer(incr(db, a[1], -Long.parseLong(a[2]))); break;
+		case APPEND: {
+			String v = string(db, a[1]);
+			String nv = v == null ? a[2] : v + a[2];
+			putKeepTtl(db, a[1], nv, v != null);
+			reply.integer(nv.length());
+			break;
+		}
+		case SUBSTR: {
+			String v = string(db, a[1]);
+			if(v == null) { reply.bulk(""); break; }
+			int[] r = range(Integer.parseInt(a[2]), Integer.parseInt(a[3]), v.length());
+			reply.bulk(r == null ? "" : v.substring(r[0], r[1] + 1));
+			break;
+		}
+		case SETBIT: {
+			long offset = Long.parseLong(a[2]);
+			int bit = Integer.parseInt(a[3]);
+			if(offset < 0 || offset >= Integer.MAX_VALUE) throw new CommandError("ERR bit offset is not an integer or out of range");
+			if(bit != 0 && bit != 1) throw new CommandError("ERR bit is not an integer or out of range");
+			String v = string(db, a[1]);
+			char[] chars = (v == null ? "" : v).toCharArray();
+			int byteIdx = (int) (offset >> 3);
+			if(byteIdx >= chars.length) {
+				char[] grown = new char[byteIdx + 1];
+				System.arraycopy(chars, 0, grown, 0, chars.length);
+				chars = grown;
+			}
+			int mask = 1 << (7 - (int) (offset & 7));
+			int old = (chars[byteIdx] & mask) != 0 ? 1 : 0;
+			chars[byteIdx] = (char) (bit == 1 ? chars[byteIdx] | mask : chars[byteIdx] & ~mask);
+			putKeepTtl(db, a[1], new String(chars), v != null);
+			reply.integer(old);
+			break;
+		}
+		case GETBIT: {
+			long offset = Long.parseLong(a[2]);
+			if(offset < 0) throw new CommandError("ERR bit offset is not an integer or out of range");
+			String v = string(db, a[1]);
+			int byteIdx = (int) (offset >> 3);
+			if(v == null || byteIdx >= v.length()) reply.integer(0);
+			else reply.integer((v.charAt(byteIdx) & (1 << (7 - (int) (offset & 7)))) != 0 ? 1 : 0);
+			break;
+		}
+
+		// ---------------------------------------------------- key space
+		case EXISTS: reply.integer(db.exists(a[1]) ? 1 : 0); break;
+		case DEL: {
+			if(a.length < 2) throw new ArrayIndexOutOfBoundsException();
+			int cnt = 0;
+			for(int i=1; i<a.length; i++) if(db.remove(a[i])) cnt++;
+			reply.integer(cnt);
+			break;
+		}
+		case TYPE: reply.status(typeOf(db.get(a[1]))); break;
+		case KEYS: reply.multiBulk(db.keys(a[1])); break;
+		case RANDOMKEY: reply.bulk(db.randomKey(random)); break;
+		case RENAME:
+		case RENAMENX: {
+			Object v = db.get(a[1]);
+			if(v == null) throw new CommandError("ERR no such key");
+			if(a[1].equals(a[2])) throw new CommandError("ERR source and destination objects are the same");
+			if(cmd == Command.RENAMENX && db.exists(a[2])) { reply.integer(0); break; }
+			long ttl = db.ttl(a[1]);
+			db.remove(a[1]);
+			db.put(a[2], v);
+			if(ttl >= 0) db.expireAt(a[2], System.currentTimeMillis() + ttl);
+			if(cmd == Command.RENAME) reply.ok(); else reply.integer(1);
+			break;
+		}
+		case DBSIZE: reply.integer(db.size()); break;
+		case EXPIRE:
+		case EXPIREAT: {
+			long t = Long.parseLong(a[2]) * 1000;
+			if(!db.exists(a[1])) { reply.integer(0); break; }
+			db.expireAt(a[1], cmd == Command.EXPIRE ? System.currentTimeMillis() + t : t);
+			reply.integer(1);
+			break;
+		}
+		case TTL: {
+			long ttl = db.ttl(a[1]);
+			reply.integer(ttl < 0 ? -1 : (ttl + 500) / 1000);
+			break;
+		}
+		case MOVE: {
+			int index = Integer.parseInt(a[2]);
+			if(index < 0 || index >= Keyspace.DB_COUNT) throw new CommandError("ERR index out of range");
+			if(index == dbIndex) throw new CommandError("ERR source and destination objects are the same");
+			Db target = keyspace.db(index);
+			Object v = db.get(a[1]);
+			if(v == null || target.exists(a[1])) { reply.integer(0); break; }
+			db.remove(a[1]);
+			target.put(a[1], v);
+			reply.integer(1);
+			break;
+		}
+
+		// ---------------------------------------------------- lists
+		case RPUSH:
+		case LPUSH:
+		case RPUSHX:
+		case LPUSHX: {
+			if(a.length < 3) throw new ArrayIndexOutOfBoundsException();
+			boolean onlyIfExists = cmd == Command.RPUSHX || cmd == Command.LPUSHX;
+			List<String> list = list(db, a[1], !onlyIfExists);
+			if(list == null) { reply.integer(0); break; }
+			boolean head = cmd == Command.LPUSH || cmd == Command.LPUSHX;
+			for(int i=2; i<a.length; i++){
+				if(head) list.add(0, a[i]); else list.add(a[i]);
+			}
+			reply.integer(list.size());
+			break;
+		}
+		case LINSERT: {
+			boolean before = a[2].equalsIgnoreCase("BEFORE");
+			if(!before && !a[2].equalsIgnoreCase("AFTER")) throw new CommandError("ERR syntax error");
+			List<String> list = list(db, a[1], false);
+			if(list == null) { reply.integer(0); break; }
+			int idx = list.indexOf(a[3]);
+			if(idx == -1) { reply.integer(-1); break; }
+			list.add(before ? idx : idx + 1, a[4]);
+			reply.integer(list.size());
+			break;
+		}
+		case LLEN: {
+			List<String> list = list(db, a[1], false);
+			reply.integer(list == null ? 0 : list.size());
+			break;
+		}
+		case LRANGE: {
+			List<String> list = list(db, a[1], false);
+			int start = Integer.parseInt(a[2]), end = Integer.parseInt(a[3]);
+			int[] r = list == null ? null : range(start, end, list.size());
+			reply.multiBulk(r == null ? Collections.<String>emptyList() : list.subList(r[0], r[1] + 1));
+			break;
+		}
+		case LTRIM: {
+			List<String> list = list(db, a[1], false);
+			int start = Integer.parseInt(a[2]), end = Integer.parseInt(a[3]);
+			if(list != null){
+				int[] r = range(start, end, list.size());
+				if(r == null) list.clear();
+				else {
+					list.subList(r[1] + 1, list.size()).clear();
+					list.subList(0, r[0]).clear();
+				}
+				db.trim(a[1]);
+			}
+			reply.ok();
+			break;
+		}
+		case LINDEX: {
+			List<String> list = list(db, a[1], false);
+			int idx = Integer.parseInt(a[2]);
+			if(list != null && idx < 0) idx += list.size();
+			reply.bulk(list == null || idx < 0 || idx >= list.size() ? null : list.get(idx));
+			break;
+		}
+		case LSET: {
+			List<String> list = list(db, a[1], false);
+			if(list == null) throw new CommandError("ERR no such key");
+			int idx = Integer.parseInt(a[2]);
+			if(idx < 0) idx += list.size();
+			if(idx < 0 || idx >= list.size()) throw new CommandError("ERR index out of range");
+			list.set(idx, a[3]);
+			reply.ok();
+			break;
+		}
+		case LREM: {
+			List<String> list = list(db, a[1], false);
+			int count = Integer.parseInt(a[2]);
+			int removed = 0;
+			if(list != null){
+				if(count >= 0){
+					for(Iterator<String> it = list.iterator(); it.hasNext() && (count == 0 || removed < count);)
+						if(it.next().equals(a[3])) { it.remove(); removed++; }
+				}
+				else {
+					for(int i=list.size()-1; i>=0 && removed < -count; i--)
+						if(list.get(i).equals(a[3])) { list.remove(i); removed++; }
+				}
+				db.trim(a[1]);
+			}
+			reply.integer(removed);
+			break;
+		}
+		case LPOP:
+		case RPOP: {
+			List<String> list = list(db, a[1], false);
+			if(list == null) { reply.nil(); break; }
+			reply.bulk(list.remove(cmd == Command.LPOP ? 0 : list.size() - 1));
+			db.trim(a[1]);
+			break;
+		}
+		case RPOPLPUSH: {
+			List<String> src = list(db, a[1], false);
+			if(src == null) { reply.nil(); break; }
+			list(db, a[2], false);	// type check before we modify src
+			String v = src.remove(src.size() - 1);
+			db.trim(a[1]);
+			list(db, a[2], true).add(0, v);
+			reply.bulk(v);
+			break;
+		}
+
+		// ---------------------------------------------------- sets
+		case SADD:
+		case SREM: {
+			if(a.length < 3) throw new ArrayIndexOutOfBoundsException();
+			Set<String> set = set(db, a[1], cmd == Command.SADD);
+			int cnt = 0;
+			if(set != null) {
+				for(int i=2; i<a.length; i++)
+					if(cmd == Command.SADD ? set.add(a[i]) : set.remove(a[i])) cnt++;
+				db.trim(a[1]);
+			}
+			reply.integer(cnt);
+			break;
+		}
+		case SCARD: {
+			Set<String> set = set(db, a[1], false);
+			reply.integer(set == null ? 0 : set.size());
+			break;
+		}
+		case SISMEMBER: {
+			Set<String> set = set(db, a[1], false);
+			reply.integer(set != null && set.contains(a[2]) ? 1 : 0);
+			break;
+		}
+		case SMEMBERS: {
+			Set<String> set = set(db, a[1], false);
+			reply.multiBulk(set == null ? Collections.<String>emptySet() : set);
+			break;
+		}
+		case SINTER:
+		case SUNION:
+		case SDIFF:
+			reply.multiBulk(setOp(db, cmd, a, 1));
+			break;
+		case SINTERSTORE:
+		case SUNIONSTORE:
+		case SDIFFSTORE: {
+			Set<String> result = setOp(db, cmd, a, 2);
+			db.remove(a[1]);
+			if(!result.isEmpty()) db.put(a[1], result);
+			reply.integer(result.size());
+			break;
+		}
+		case SMOVE: {
+			Set<String> src = set(db, a[1], false);
+			set(db, a[2], false);
+			if(src == null || !src.remove(a[3])) { reply.integer(0); break; }
+			db.trim(a[1]);
+			set(db, a[2], true).add(a[3]);
+			reply.integer(1);
+			break;
+		}
+		case SRANDMEMBER:
+		case SPOP: {
+			Set<String> set = set(db, a[1], false);
+			if(set == null) { reply.nil(); break; }
+			int n = random.nextInt(set.size());
+			Iterator<String> it = set.iterator();
+			while(n-- > 0) it.next();
+			String member = it.next();
+			if(cmd == Command.SPOP) { it.remove(); db.trim(a[1]); }
+			reply.bulk(member);
+			break;
+		}
+
+		// ---------------------------------------------------- sorted sets
+		case ZADD: {
+			if(a.length < 4 || a.length % 2 != 0) throw new ArrayIndexOutOfBoundsException();
+			double[] scores = new double[a.length / 2 - 1];
+			for(int i=2, j=0; i<a.length; i+=2, j++) scores[j] = toDouble(a[i]);
+			ZSet zset = zset(db, a[1], true);
+			int added = 0;
+			for(int i=2, j=0; i<a.length; i+=2, j++)
+				if(zset.scores.put(a[i+1], Double.valueOf(scores[j])) == null) added++;
+			reply.integer(added);
+			break;
+		}
+		case ZREM: {
+			if(a.length < 3) throw new ArrayIndexOutOfBoundsException();
+			ZSet zset = zset(db, a[1], false);
+			int cnt = 0;
+			if(zset != null){
+				for(int i=2; i<a.length; i++) if(zset.scores.remove(a[i]) != null) cnt++;
+				db.trim(a[1]);
+			}
+			reply.integer(cnt);
+			break;
+		}
+		case ZCARD: {
+			ZSet zset = zset(db, a[1], false);
+			reply.integer(zset == null ? 0 : zset.scores.size());
+			break;
+		}
+		case ZSCORE: {
+			ZSet zset = zset(db, a[1], false);
+			Double score = zset == null ? null : zset.scores.get(a[2]);
+			reply.bulk(score == null ? null : format(score.doubleValue()));
+			break;
+		}
+		case ZRANK:
+		case ZREVRANK: {
+			ZSet zset = zset(db, a[1], false);
+			int rank = zset == null ? -1 : zset.rank(a[2]);
+			if(rank == -1) reply.nil();
+			else reply.integer(cmd == Command.ZRANK ? rank : zset.scores.size() - 1 - rank);
+			break;
+		}
+		case ZINCRBY: {
+			double incr = toDouble(a[2]);
+			ZSet zset = zset(db, a[1], true);
+			Double score = zset.scores.get(a[3]);
+			double nscore = (score == null ? 0 : score.doubleValue()) + incr;
+			zset.scores.put(a[3], Double.valueOf(nscore));
+			reply.bulk(format(nscore));
+			break;
+		}
+		case ZRANGE:
+		case ZREVRANGE: {
+			ZSet zset = zset(db, a[1], false);
+			int start = Integer.parseInt(a[2]), end = Integer.parseInt(a[3]);
+			boolean withscores = withScores(a, 4);
+			List<Map.Entry<String, Double>> entries = zset == null ? new ArrayList<Map.Entry<String,Double>>() : zset.sorted();
+			if(cmd == Command.ZREVRANGE) Collections.reverse(entries);
+			int[] r = range(start, end, entries.size());
+			writeEntries(r == null ? entries.subList(0, 0) : entries.subList(r[0], r[1] + 1), withscores);
+			break;
+		}
+		case ZRANGEBYSCORE:
+		case ZCOUNT:
+		case ZREMRANGEBYSCORE: {
+			ZSet zset = zset(db, a[1], false);
+			ScoreBound min = new ScoreBound(a[2]), max = new ScoreBound(a[3]);
+			boolean withscores = false;
+			int offset = 0, count = -1;
+			if(cmd == Command.ZRANGEBYSCORE) {
+				for(int i=4; i<a.length; i++){
+					if(a[i].equalsIgnoreCase("WITHSCORES")) withscores = true;
+					else if(a[i].equalsIgnoreCase("LIMIT")) { offset = Integer.parseInt(a[++i]); count = Integer.parseInt(a[++i]); }
+					else throw new CommandError("ERR syntax error");
+				}
+			}
+			List<Map.Entry<String, Double>> matched = new ArrayList<Map.Entry<String,Double>>();
+			if(zset != null){
+				for(Map.Entry<String, Double> e : zset.sorted()){
+					double s = e.getValue().doubleValue();
+					if(min.admitsAbove(s) && max.admitsBelow(s)) matched.add(e);
+				}
+			}
+			if(cmd == Command.ZCOUNT) reply.integer(matched.size());
+			else if(cmd == Command.ZREMRANGEBYSCORE) {
+				for(Map.Entry<String, Double> e : matched) zset.scores.remove(e.getKey());
+				db.trim(a[1]);
+				reply.integer(matched.size());
+			}
+			else {
+				int from = Math.min(Math.max(offset, 0), matched.size());
+				int to = count < 0 ? matched.size() : Math.min(from + count, matched.size());
+				writeEntries(matched.subList(from, to), withscores);
+			}
+			break;
+		}
+		case ZREMRANGEBYRANK: {
+			ZSet zset = zset(db, a[1], false);
+			int start = Integer.parseInt(a[2]), end = Integer.parseInt(a[3]);
+			int removed = 0;
+			if(zset != null) {
+				List<Map.Entry<String, Double>> entries = zset.sorted();
+				int[] r = range(start, end, entries.size());
+				if(r != null) {
+					for(Map.Entry<String, Double> e : entries.subList(r[0], r[1] + 1)) zset.scores.remove(e.getKey());
+					removed = r[1] - r[0] + 1;
+				}
+				db.trim(a[1]);
+			}
+			reply.integer(removed);
+			break;
+		}
+
+		// ---------------------------------------------------- hashes
+		case HSET: {
+			Map<String, String> hash = hash(db, a[1], true);
+			reply.integer(hash.put(a[2], a[3]) == null ? 1 : 0);
+			break;
+		}
+		case HGET: {
+			Map<String, String> hash = hash(db, a[1], false);
+			reply.bulk(hash == null ? null : hash.get(a[2]));
+			break;
+		}
+		case HEXISTS: {
+			Map<String, String> hash = hash(db, a[1], false);
+			reply.integer(hash != null && hash.containsKey(a[2]) ? 1 : 0);
+			break;
+		}
+		case HDEL: {
+			Map<String, String> hash = hash(db, a[1], false);
+			int cnt = 0;
+			if(a.length < 3) throw new ArrayIndexOutOfBoundsException();
+			if(hash != null) {
+				for(int i=2; i<a.length; i++) if(hash.remove(a[i]) != null) cnt++;
+				db.trim(a[1]);
+			}
+			reply.integer(cnt);
+			break;
+		}
+		case HLEN: {
+			Map<String, String> hash = hash(db, a[1], false);
+			reply.integer(hash == null ? 0 : hash.size());
+			break;
+		}
+		case HKEYS:
+		case HVALS: {
+			Map<String, String> hash = hash(db, a[1], false);
+			if(hash == null) reply.multi(0);
+			else reply.multiBulk(cmd == Command.HKEYS ? hash.keySet() : hash.values());
+			break;
+		}
+		case HGETALL: {
+			Map<String, String> hash = hash(db, a[1], false);
+			if(hash == null) { reply.multi(0); break; }
+			reply.multi(hash.size() * 2);
+			for(Map.Entry<String, String> e : hash.entrySet()) { reply.bulk(e.getKey()); reply.bulk(e.getValue()); }
+			break;
+		}
+		case HINCRBY: {
+			long incr = Long.parseLong(a[3]);
+			Map<String, String> hash = hash(db, a[1], true);
+			String v = hash.get(a[2]);
+			long nv;
+			try { nv = (v == null ? 0 : Long.parseLong(v)) + incr; }
+			catch (NumberFormatException e) { throw new CommandError("ERR hash value is not an integer"); }
+			hash.put(a[2], Long.toString(nv));
+			reply.integer(nv);
+			break;
+		}
+
+		// ---------------------------------------------------- transactions
+		case MULTI:
+			if(transaction != null) throw new CommandError("ERR MULTI calls can not be nested");
+			transaction = new ArrayList<String[]>();
+			reply.ok();
+			break;
+		case EXEC: {
+			if(transaction == null) throw new CommandError("ERR EXEC without MULTI");
+			List<String[]> queued = transaction;
+			transaction = null;
+			reply.multi(queued.size());
+			for(String[] q : queued) execute(lookup(q[0].toUpperCase()), q);
+			break;
+		}
+		case DISCARD:
+			if(transaction == null) throw new CommandError("ERR DISCARD without MULTI");
+			transaction = null;
+			reply.ok();
+			break;
+
+		// ---------------------------------------------------- db
+		case FLUSHDB: db.flush(); reply.ok(); break;
+		case FLUSHALL: keyspace.flushAll(); reply.ok(); break;
+
+		// ---------------------------------------------------- sort
+		case SORT: sort(db, a); break;
+
+		// ---------------------------------------------------- persistence, control & diagnostics
+		case SAVE: reply.ok(); break;
+		case BGSAVE: reply.status("Background saving started"); break;
+		case BGREWRITEAOF: reply.status("Background append only file rewriting started"); break;
+		case LASTSAVE: reply.integer(server.startTime / 1000); break;
+		case SHUTDOWN: closing = true; break;
+		case SLAVEOF: reply.ok(); break;
+		case MONITOR: throw new CommandError("ERR MONITOR is not supported by the loopback server");
+		case DEBUG: debug(db, a); break;
+		case INFO: reply.bulk(info()); break;
+
+		default:
+			throw new CommandError("ERR unknown command '" + a[0] + "'");
+		}
+	}
+
+	// ------------------------------------------------------------------------
+	// Command support
+	// ------------------------------------------------------------------------
+
+	static final String WRONGTYPE = "ERR Operation against a key holding the wrong kind of value";
+
+	/** reply with an error */
+	@SuppressWarnings("serial")
+	static final class CommandError extends RuntimeException {
+		CommandError (String msg) { super(msg); }
+	}
+
+	private static String string (Db db, String key) {
+		return (String) db.get(key);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static ArrayList<String> list (Db db, String key, boolean create) {
+		Object v = db.get(key);
+		if(v == null && create) db.put(key, v = new ArrayList<String>());
+		return (ArrayList<String>) v;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static HashSet<String> set (Db db, String key, boolean create) {
+		Object v = db.get(key);
+		if(v == null && create) db.put(key, v = new HashSet<String>());
+		return (HashSet<String>) v;
+	}
+
+	private static ZSet zset (Db db, String key, boolean create) {
+		Object v = db.get(key);
+		if(v == null && create) db.put(key, v = new ZSet());
+		return (ZSet) v;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static LinkedHashMap<String, String> hash (Db db, String key, boolean create) {
+		Object v = db.get(key);
+		if(v == null && create) db.put(key, v = new LinkedHashMap<String, String>());
+		return (LinkedHashMap<String, String>) v;
+	}
+
+	private static String typeOf (Object v) {
+		if(v == null) return "none";
+		if(v instanceof String) return "string";
+		if(v instanceof ArrayList<?>) return "list";
+		if(v instanceof HashSet<?>) return "set";
+		if(v instanceof ZSet) return "zset";
+		return "hash";
+	}
+
+	/** updates a string value retaining any expiration */
+	private static void putKeepTtl (Db db, String key, String value, boolean existed) {
+		long ttl = existed ? db.ttl(key) : -1;
+		db.put(key, value);
+		if(ttl >= 0) db.expireAt(key, System.currentTimeMillis() + ttl);
+	}
+
+	private static long incr (Db db, String key, long delta) {
+		String v = string(db, key);
+		long n = v == null ? 0 : Long.parseLong(v);
+		n += delta;
+		putKeepTtl(db, key, Long.toString(n), v != null);
+		return n;
+	}
+
+	/** @return the inclusive [start, end] of a Redis style range over len, or null if empty */
+	private static int[] range (int start, int end, int len) {
+		if(start < 0) start += len;
+		if(end < 0) end += len;
+		if(start < 0) start = 0;
+		if(start > end || start >= len) return null;
+		if(end >= len) end = len - 1;
+		return new int[]{start, end};
+	}
+
+	private Set<String> setOp (Db db, Command cmd, String[] a, int first) {
+		if(a.length <= first) throw new ArrayIndexOutOfBoundsException();
+		Set<String> result = null;
+		for(int i=first; i<a.length; i++){
+			Set<String> s = set(db, a[i], false);
+			if(s == null) s = Collections.<String>emptySet();
+			if(result == null) { result = new HashSet<String>(s); continue; }
+			switch (cmd) {
+			case SINTER: case SINTERSTORE: result.retainAll(s); break;
+			case SUNION: case SUNIONSTORE: result.addAll(s); break;
+			default: result.removeAll(s); break;
+			}
+		}
+		return result;
+	}
+
+	private static double toDouble (String s) {
+		try {
+			if(s.equalsIgnoreCase("inf") || s.equalsIgnoreCase("+inf")) return Double.POSITIVE_INFINITY;
+			if(s.equalsIgnoreCase("-inf")) return Double.NEGATIVE_INFINITY;
+			return Double.parseDouble(s);
+		}
+		catch (NumberFormatException e) { throw new CommandError("ERR value is not a double"); }
+	}
+
+	/** Redis style double formatting: integral values without a fraction */
+	static String format (double d) {
+		if(Double.isInfinite(d)) return d > 0 ? "inf" : "-inf";
+		if(d == Math.rint(d) && Math.abs(d) < 1e15) return Long.toString((long) d);
+		return Double.toString(d);
+	}
+
+	private static boolean withScores (String[] a, int idx) {
+		if(a.length <= idx) return false;
+		if(a.length == idx + 1 && a[idx].equalsIgnoreCase("WITHSCORES")) return true;
+		throw new CommandError("ERR syntax error");
+	}
+
+	private void writeEntries (List<Map.Entry<String, Double>> entries, boolean withscores) {
+		reply.multi(withscores ? entries.size() * 2 : entries.size());
+		for(Map.Entry<String, Double> e : entries) {
+			reply.bulk(e.getKey());
+			if(withscores) reply.bulk(format(e.getValue().doubleValue()));
+		}
+	}
+
+	/** a ZRANGEBYSCORE min or max, e.g. "1.5", "(1.5", "-inf" */
+	private static final class ScoreBound {
+		final double value;
+		final boolean exclusive;
+		ScoreBound (String s) {
+			exclusive = s.startsWith("(");
+			value = toDouble(exclusive ? s.substring(1) : s);
+		}
+		boolean admitsAbove (double score) { return exclusive ? score > value : score >= value; }
+		boolean admitsBelow (double score) { return exclusive ? score < value : score <= value; }
+	}
+
+	/**
+	 * SORT key [BY pattern] [LIMIT offset count] [GET pattern ...] [ASC|DESC] [ALPHA] [STORE dest]
+	 */
+	private void sort (final Db db, String[] a) {
+		String by = null, store = null;
+		List<String> gets = new ArrayList<String>();
+		int offset = 0, count = -1;
+		boolean desc = false, alpha = false;
+		for(int i=2; i<a.length; i++){
+			String opt = a[i].toUpperCase();
+			if(opt.equals("BY")) by = a[++i];
+			else if(opt.equals("LIMIT")) { offset = Integer.parseInt(a[++i]); count = Integer.parseInt(a[++i]); }
+			else if(opt.equals("GET")) gets.add(a[++i]);
+			else if(opt.equals("ASC")) desc = false;
+			else if(opt.equals("DESC")) desc = true;
+			else if(opt.equals("ALPHA")) alpha = true;
+			else if(opt.equals("STORE")) store = a[++i];
+			else throw new CommandError("ERR syntax error");
+		}
+
+		Object v = db.get(a[1]);
+		List<String> elements = new ArrayList<String>();
+		if(v instanceof ArrayList<?> || v instanceof HashSet<?>) { for(Object o : (Collection<?>) v) elements.add((String) o); }
+		else if(v instanceof ZSet) { for(Map.Entry<String, Double> e : ((ZSet) v).sorted()) elements.add(e.getKey()); }
+		else if(v != null) throw new CommandError(WRONGTYPE);
+
+		final boolean nosort = by != null && by.indexOf('*') == -1;
+		if(!nosort){
+			final Map<String, Object> weights = new LinkedHashMap<String, Object>();
+			for(String e : elements){
+				String w = by == null ? e : lookup(db, by, e);
+				if(alpha) weights.put(e, w);
+				else {
+					try { weights.put(e, Double.valueOf(w == null ? 0 : Double.parseDouble(w))); }
+					catch (NumberFormatException ex) { throw new CommandError("ERR One or more scores can't be converted into double"); }
+				}
+			}
+			Comparator<String> order = new Comparator<String>() {
+				@SuppressWarnings({ "unchecked", "rawtypes" })
+				public int compare (String x, String y) {
+					Comparable wx = (Comparable) weights.get(x), wy = (Comparable) weights.get(y);
+					if(wx == null) return wy == null ? 0 : -1;
+					if(wy == null) return 1;
+					int c = wx.compareTo(wy);
+					return c != 0 ? c : x.compareTo(y);
+				}
+			};
+			Collections.sort(elements, order);
+			if(desc) Collections.reverse(elements);
+		}
+
+		int from = Math.min(Math.max(offset, 0), elements.size());
+		int to = count < 0 ? elements.size() : Math.min(from + count, elements.size());
+		elements = elements.subList(from, to);
+
+		List<String> result = new ArrayList<String>();
+		for(String e : elements){
+			if(gets.isEmpty()) result.add(e);
+			else for(String g : gets) result.add(g.equals("#") ? e : lookup(db, g, e));
+		}
+
+		if(store != null) {
+			ArrayList<String> stored = new ArrayList<String>(result.size());
+			for(String r : result) stored.add(r == null ? "" : r);
+			db.remove(store);
+			if(!stored.isEmpty()) db.put(store, stored);
+			reply.integer(stored.size());
+		}
+		else {
+			reply.multi(result.size());
+			for(String r : result) reply.bulk(r);
+		}
+	}
+
+	/** resolves a SORT BY/GET pattern ("weight_*" or "obj_*->field") for an element */
+	private static String lookup (Db db, String pattern, String element) {
+		int star = pattern.indexOf('*');
+		if(star == -1) return null;
+		String field = null;
+		int arrow = pattern.indexOf("->", star);
+		if(arrow != -1) {
+			field = pattern.substring(arrow + 2);
+			pattern = pattern.substring(0, arrow);
+		}
+		String key = pattern.substring(0, star) + element + pattern.substring(star + 1);
+		Object v = db.get(key);
+		if(field != null) return v instanceof Map<?,?> ? (String) ((Map<?,?>) v).get(field) : null;
+		return v instanceof String ? (String) v : null;
+	}
+
+	private void debug (Db db, String[] a) {
+		String sub = a[1].toUpperCase();
+		if(sub.equals("OBJECT")){
+			Object v = db.get(a[2]);
+			if(v == null) throw new CommandError("ERR no such key");
+			String encoding = v instanceof String ? "raw" : "hashtable";
+			int serlen = v instanceof String ? ((String) v).length() : 1;
+			reply.status(String.format("Value at:0x%08x refcount:1 encoding:%s serializedlength:%d lru:0 lru_seconds_idle:0",
+					Integer.valueOf(System.identityHashCode(v)), encoding, Integer.valueOf(serlen)));
+		}
+		else if(sub.equals("SLEEP")){
+			try { Thread.sleep((long) (Double.parseDouble(a[2]) * 1000)); }
+			catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+			reply.ok();
+		}
+		else if(sub.equals("RELOAD")) reply.ok();
+		else throw new CommandError("ERR Syntax error, try DEBUG [SEGFAULT|OBJECT <key>|SWAPIN <key>|SWAPOUT <key>|RELOAD]");
+	}
+
+	private String info () {
+		StringBuilder s = new StringBuilder(512);
+		s.append("redis_version:2.4.0\r\n");
+		s.append("redis_mode:loopback\r\n");
+		s.append("uptime_in_seconds:").append((System.currentTimeMillis() - server.startTime) / 1000).append("\r\n");
+		s.append("connected_clients:").append(server.getConnectionCount()).append("\r\n");
+		s.append("total_connections_received:").append(server.connectionsReceived.get()).append("\r\n");
+		s.append("total_commands_processed:").append(server.commandsProcessed.get()).append("\r\n");
+		s.append("role:master\r\n");
+		for(int i=0; i<Keyspace.DB_COUNT; i++){
+			Db db = keyspace.db(i);
+			int size = db.size();
+			if(size > 0) s.append("db").append(i).append(":keys=").append(size).append(",expires=").append(db.volatileCount()).append("\r\n");
+		}
+		return s.toString();
+	}
+
+	// ------------------------------------------------------------------------
+	// Inner Type
+	// ------------------------------------------------------------------------
+	/**
+	 * Reply accumulation buffer.
+	 */
+	static final class Reply extends ByteArrayOutputStream {
+		Reply () { super(1024 * 16); }
+
+		void ok () { status("OK"); }
+		void status (String s) { line('+', s); }
+		void error (String s) { line('-', s); }
+		void integer (long n) { line(':', Long.toString(n)); }
+		void multi (int n) { line('*', Integer.toString(n)); }
+		void nil () { line('$', "-1"); }
+		void bulk (String s) {
+			if(s == null) { nil(); return; }
+			bulk(s.getBytes(LATIN1));
+		}
+		void bulk (byte[] data) {
+			line('$', Integer.toString(data.length));
+			write(data, 0, data.length);
+			write(CRLF, 0, 2);
+		}
+		void multiBulk (Collection<String> values) {
+			multi(values.size());
+			for(String v : values) bulk(v);
+		}
+		private void line (char type, String s) {
+			write(type);
+			for(int i=0; i<s.length(); i++) write(s.charAt(i));
+			write(CRLF, 0, 2);
+		}
+	}
+}
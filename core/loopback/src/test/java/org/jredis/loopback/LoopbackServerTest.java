@@ -0,0 +1,118 @@
+/*
+ *   Copyright 2009-2012 Joubin Houshyar
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package org.jredis.loopback;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.concurrent.TimeUnit;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests the {@link LoopbackServer} at the wire level.
+ *
+ * @author  Joubin Houshyar (alphazero@sensesay.net)
+ * @date    Apr 9, 2012
+ *
+ */
+
+@Test(suiteName="loopback-tests")
+public class LoopbackServerTest {
+
+	@Test
+	public void testPipelinedCommands () throws IOException {
+		LoopbackServer server = LoopbackServer.start(LoopbackServer.Spec.newSpec());
+		try {
+			Socket socket = new Socket(server.getAddress(), server.getPort());
+			send(socket,
+				"*3\r\n$3\r\nSET\r\n$3\r\nfoo\r\n$3\r\nbar\r\n" +
+				"*2\r\n$3\r\nGET\r\n$3\r\nfoo\r\n" +
+				"*2\r\n$4\r\nINCR\r\n$3\r\nfoo\r\n" +
+				"*3\r\n$5\r\nRPUSH\r\n$1\r\nL\r\n$1\r\na\r\n" +
+				"*4\r\n$6\r\nLRANGE\r\n$1\r\nL\r\n$1\r\n0\r\n$2\r\n-1\r\n" +
+				"*1\r\n$5\r\nMULTI\r\n" +
+				"*2\r\n$4\r\nINCR\r\n$1\r\nn\r\n" +
+				"*2\r\n$4\r\nINCR\r\n$1\r\nn\r\n" +
+				"*1\r\n$4\r\nEXEC\r\n" +
+				"*1\r\n$5\r\nBOGUS\r\n");
+			String expected =
+				"+OK\r\n" +
+				"$3\r\nbar\r\n" +
+				"-ERR value is not an integer or out of range\r\n" +
+				":1\r\n" +
+				"*1\r\n$1\r\na\r\n" +
+				"+OK\r\n" +
+				"+QUEUED\r\n" +
+				"+QUEUED\r\n" +
+				"*2\r\n:1\r\n:2\r\n" +
+				"-ERR unknown command 'BOGUS'\r\n";
+			Assert.assertEquals(receive(socket, expected.length()), expected);
+			socket.close();
+		}
+		finally {
+			server.stop();
+		}
+	}
+
+	@Test
+	public void testAuthLatencyAndSyntheticValues () throws IOException {
+		final long latency = 50;
+		LoopbackServer server = LoopbackServer.start(LoopbackServer.Spec.newSpec()
+				.setPassword("secret")
+				.setLatency(latency, TimeUnit.MILLISECONDS)
+				.setSyntheticValueSize(4));
+		try {
+			Socket socket = new Socket(server.getAddress(), server.getPort());
+			send(socket, "*2\r\n$3\r\nGET\r\n$1\r\nx\r\n");
+			Assert.assertEquals(receive(socket, 30), "-ERR operation not permitted\r\n");
+
+			long start = System.nanoTime();
+			send(socket, "*2\r\n$4\r\nAUTH\r\n$6\r\nsecret\r\n*2\r\n$3\r\nGET\r\n$1\r\nx\r\n");
+			Assert.assertEquals(receive(socket, 15), "+OK\r\n$4\r\nabcd\r\n");
+			long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+			Assert.assertTrue(elapsed >= latency, "reply latency " + elapsed + " msecs");
+			socket.close();
+		}
+		finally {
+			server.stop();
+		}
+	}
+
+	// ------------------------------------------------------------------------
+	// Helper methods
+	// ------------------------------------------------------------------------
+
+	private static void send (Socket socket, String request) throws IOException {
+		OutputStream out = socket.getOutputStream();
+		out.write(request.getBytes("ISO-8859-1"));
+		out.flush();
+	}
+
+	private static String receive (Socket socket, int len) throws IOException {
+		InputStream in = socket.getInputStream();
+		ByteArrayOutputStream buff = new ByteArrayOutputStream(len);
+		while(buff.size() < len){
+			int c = in.read();
+			if(c == -1) break;
+			buff.write(c);
+		}
+		return buff.toString("ISO-8859-1");
+	}
+}
@@ -19,9 +19,9 @@ package org.jredis.ri.alphazero;
 import java.util.concurrent.Future;
 
 import org.jredis.ClientRuntimeException;
+import org.jredis.ElementConsumer;
 import org.jredis.JRedisFuture;
 import org.jredis.ProviderException;
-import org.jredis.connector.Connection;
 import org.jredis.connector.ConnectionSpec;
 import org.jredis.protocol.Command;
 import org.jredis.protocol.Response;
@@ -40,7 +40,7 @@ import org.jredis.ri.alphazero.connection.ChunkedPipelineConnection;
  */
 public class JRedisChunkedPipeline extends JRedisFutureSupport {
 
-	final private Connection	connection;
+	final private ChunkedPipelineConnection	connection;
 	public JRedisChunkedPipeline(ConnectionSpec spec){
 		assert spec != null : "spec is null";
 		connection = new ChunkedPipelineConnection(spec);
@@ -51,4 +51,17 @@ public class JRedisChunkedPipeline extends JRedisFutureSupport {
 	{
 		return connection.queueRequest(cmd, args);
 	}
+	@Override
+	protected Future<Response> queueRequest(ElementConsumer consumer, Command cmd, byte[]... args)
+			throws ClientRuntimeException, ProviderException 
+	{
+		return connection.queueRequest(consumer, cmd, args);
+	}
+	/**
+	 * @return a snapshot of the pipeline's chunk metrics
+	 * @see ChunkedPipelineConnection#getChunkStats()
+	 */
+	public ChunkedPipelineConnection.ChunkStats getChunkStats () {
+		return connection.getChunkStats();
+	}
 }
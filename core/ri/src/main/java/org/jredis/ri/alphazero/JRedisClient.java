@@ -18,12 +18,14 @@ package org.jredis.ri.alphazero;
 
 import java.net.UnknownHostException;
 import org.jredis.ClientRuntimeException;
+import org.jredis.ElementConsumer;
 import org.jredis.JRedis;
 import org.jredis.ProviderException;
 import org.jredis.Redis;
 import org.jredis.RedisException;
 import org.jredis.connector.Connection;
 import org.jredis.connector.ConnectionSpec;
+import org.jredis.connector.StreamingConnection;
 import org.jredis.protocol.Command;
 import org.jredis.protocol.Response;
 import org.jredis.ri.alphazero.connection.DefaultConnectionSpec;
@@ -151,6 +153,15 @@ public class JRedisClient extends SyncJRedisBase  {
 		return connection.serviceRequest(cmd, args);
 	}
 	
+	@Override
+	protected Response serviceRequest(ElementConsumer consumer, Command cmd, byte[]... args)
+			throws RedisException, ClientRuntimeException, ProviderException 
+	{
+		if(!(connection instanceof StreamingConnection))
+			return super.serviceRequest(consumer, cmd, args);
+		return ((StreamingConnection) connection).serviceRequest(consumer, cmd, args);
+	}
+	
 
 	// TODO: what's the use of this?
 	@Override
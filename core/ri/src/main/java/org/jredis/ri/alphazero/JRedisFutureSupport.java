@@ -24,13 +24,18 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.StringTokenizer;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
 import org.jredis.ClientRuntimeException;
+import org.jredis.ElementConsumer;
+import org.jredis.FutureCallback;
 import org.jredis.JRedisFuture;
 import org.jredis.KeyValueSet;
+import org.jredis.ListenableFuture;
+import org.jredis.NotSupportedException;
 import org.jredis.ObjectInfo;
 import org.jredis.ProviderException;
 import org.jredis.RedisType;
@@ -42,10 +47,18 @@ import org.jredis.protocol.Command;
 import org.jredis.protocol.MultiBulkResponse;
 import org.jredis.protocol.Response;
 import org.jredis.protocol.ResponseStatus;
+import org.jredis.protocol.StreamingMultiBulkResponse;
 import org.jredis.protocol.ValueResponse;
+import org.jredis.ri.alphazero.connection.PendingRequest;
+import org.jredis.ri.alphazero.support.Assert;
 import org.jredis.ri.alphazero.support.Convert;
+import org.jredis.ri.alphazero.semantics.CachingKeyCodec;
+import org.jredis.ri.alphazero.semantics.CompactCodecs;
+import org.jredis.ri.alphazero.semantics.DefaultKeyCodec;
 import org.jredis.ri.alphazero.support.DefaultCodec;
 import org.jredis.ri.alphazero.support.SortSupport;
+import org.jredis.semantics.CodecManager;
+import org.jredis.semantics.KeyCodec;
 
 /**
  *
@@ -61,6 +74,53 @@ public abstract class JRedisFutureSupport implements JRedisFuture {
 	// ------------------------------------------------------------------------
 	// Properties
 	// ------------------------------------------------------------------------
+	/** codecs of the {@link Serializable} values -- Java serialization if null (default) */
+	private volatile CodecManager codecManager;
+	
+	/**
+	 * Sets the codecs used to encode the {@link Serializable} values of requests,
+	 * e.g. {@link CompactCodecs#newCodecManager()}.  Values of types without a codec
+	 * are (as by default) encoded with Java serialization. 
+	 * <p>
+	 * The codecs are only used by the <code>&lt;T extends Serializable&gt;</code> value 
+	 * overloads, e.g. <code>set(K, T)</code>, which the compiler selects for values 
+	 * with a static type other than <code>String</code>, <code>byte[]</code> and 
+	 * <code>Number</code>.  The <code>String</code> (UTF-8), <code>byte[]</code> (as is) 
+	 * and <code>Number</code> (decimal) overloads never use them -- the {@link CompactCodecs}
+	 * of these types encode values as these overloads do, so that a value is encoded
+	 * the same whichever overload is selected.  
+	 * <p>
+	 * This is a method of the RI (and not of the {@link JRedisFuture} interface).
+	 * <p>
+	 * Note that the values must be decoded with the same codecs: {@link DefaultCodec#decode(byte[])}
+	 * fails on values written with a codec of the codec manager.
+	 * @param codecManager the codecs, or null for Java serialization of all values
+	 */
+	public void setCodecManager (CodecManager codecManager) {
+		this.codecManager = codecManager;
+	}
+	
+	/** @return the codecs of the {@link Serializable} values, or null */
+	public CodecManager getCodecManager () {
+		return codecManager;
+	}
+	
+	/** codec of the keys of requests */
+	private volatile KeyCodec<Object> keyCodec = DefaultKeyCodec.provider();
+	
+	/**
+	 * Sets the codec used to encode the keys of requests, e.g. a {@link CachingKeyCodec}
+	 * for a limited set of keys that are used repeatedly.
+	 * @param keyCodec the key codec, or null for the {@link DefaultKeyCodec}
+	 */
+	public void setKeyCodec (KeyCodec<Object> keyCodec) {
+		this.keyCodec = null != keyCodec ? keyCodec : DefaultKeyCodec.provider();
+	}
+	
+	/** @return the codec of the keys of requests */
+	public KeyCodec<Object> getKeyCodec () {
+		return keyCodec;
+	}
 
 	// ------------------------------------------------------------------------
 	// Constructors
@@ -90,6 +150,23 @@ public abstract class JRedisFutureSupport implements JRedisFuture {
 	 * @throws ProviderException
 	 */
 	abstract protected  Future<Response> queueRequest (Command cmd, byte[]...args) throws ClientRuntimeException, ProviderException;
+	
+	/**
+	 * Streaming variant of {@link JRedisFutureSupport#queueRequest(Command, byte[]...)}, per
+	 * {@link org.jredis.connector.StreamingConnection#queueRequest(ElementConsumer, Command, byte[]...)}.
+	 * Extensions that support streaming of multi-bulk replies override this method.
+	 *
+	 * @param consumer
+	 * @param cmd
+	 * @param args
+	 * @return the {@link Future} {@link StreamingMultiBulkResponse}
+	 * @throws ClientRuntimeException
+	 * @throws ProviderException
+	 * @throws NotSupportedException by default
+	 */
+	protected Future<Response> queueRequest (ElementConsumer consumer, Command cmd, byte[]...args) throws ClientRuntimeException, ProviderException {
+		throw new NotSupportedException ("streaming of multi-bulk replies is not supported by " + getClass().getSimpleName());
+	}
 	// ------------------------------------------------------------------------
 	// INTERFACE
 	// ================================================================ Redis
@@ -135,9 +212,9 @@ public abstract class JRedisFutureSupport implements JRedisFuture {
 //		return this;
 //	}
 	@Override
-	public <K extends Object> Future<ResponseStatus>  slaveof(String host, int port) {
+	public <K extends Object> ListenableFuture<ResponseStatus>  slaveof(String host, int port) {
 		byte[] hostbytes = null;
-		if((hostbytes = JRedisSupport.getKeyBytes(host)) == null)
+		if((hostbytes = encodeKey(host)) == null)
 			throw new IllegalArgumentException ("invalid host => ["+host+"]");
 
 		byte[] portbytes = null;
@@ -146,31 +223,31 @@ public abstract class JRedisFutureSupport implements JRedisFuture {
 
 		return new FutureStatus(this.queueRequest(Command.SLAVEOF, hostbytes, portbytes));
 	}
-	public <K extends Object> Future<ResponseStatus>  slaveofnone() {
+	public <K extends Object> ListenableFuture<ResponseStatus>  slaveofnone() {
 		return new FutureStatus(this.queueRequest(Command.SLAVEOF, "no".getBytes(), "one".getBytes()));
 	}
 	
 	@Override
 	public <K extends Object> FutureStatus rename(K oldkey, K newkey) {
 		byte[] oldkeydata = null;
-		if((oldkeydata = JRedisSupport.getKeyBytes(oldkey)) == null)
+		if((oldkeydata = encodeKey(oldkey)) == null)
 			throw new IllegalArgumentException ("invalid key => ["+oldkey+"]");
 
 		byte[] newkeydata = null;
-		if((newkeydata = JRedisSupport.getKeyBytes(newkey)) == null)
+		if((newkeydata = encodeKey(newkey)) == null)
 			throw new IllegalArgumentException ("invalid key => ["+newkey+"]");
 
 		return new FutureStatus(this.queueRequest(Command.RENAME, oldkeydata, newkeydata));
 	}
 	
 	@Override
-	public <K extends Object> Future<Boolean> renamenx(K oldkey, K newkey){
+	public <K extends Object> ListenableFuture<Boolean> renamenx(K oldkey, K newkey){
 		byte[] oldkeydata = null;
-		if((oldkeydata = JRedisSupport.getKeyBytes(oldkey)) == null)
+		if((oldkeydata = encodeKey(oldkey)) == null)
 			throw new IllegalArgumentException ("invalid key => ["+oldkey+"]");
 
 		byte[] newkeydata = null;
-		if((newkeydata = JRedisSupport.getKeyBytes(newkey)) == null)
+		if((newkeydata = encodeKey(newkey)) == null)
 			throw new IllegalArgumentException ("invalid key => ["+newkey+"]");
 
 		Future<Response> futureResponse = this.queueRequest(Command.RENAMENX, oldkeydata, newkeydata);
@@ -178,7 +255,7 @@ public abstract class JRedisFutureSupport implements JRedisFuture {
 	}
 	public <K extends Object> FutureLong rpush(K key, byte[] value)  {
 		byte[] keybytes = null;
-		if((keybytes = JRedisSupport.getKeyBytes(key)) == null)
+		if((keybytes = encodeKey(key)) == null)
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 		
 		if(value == null)
@@ -189,7 +266,7 @@ public abstract class JRedisFutureSupport implements JRedisFuture {
 
 	public <K extends Object> FutureLong rpushx(K key, byte[] value) {
 		byte[] keybytes = null;
-		if ((keybytes = JRedisSupport.getKeyBytes(key)) == null)
+		if ((keybytes = encodeKey(key)) == null)
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		if (value == null)
@@ -200,7 +277,7 @@ public abstract class JRedisFutureSupport implements JRedisFuture {
 
 	public <K extends Object> FutureLong lpushx(K key, byte[] value) {
 		byte[] keybytes = null;
-		if ((keybytes = JRedisSupport.getKeyBytes(key)) == null)
+		if ((keybytes = encodeKey(key)) == null)
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		if (value == null)
@@ -211,7 +288,7 @@ public abstract class JRedisFutureSupport implements JRedisFuture {
 
 	public <K extends Object> FutureLong linsert(K key, boolean after, byte[] oldvalue, byte[] newvalue) {
 		byte[] keybytes = null;
-		if ((keybytes = JRedisSupport.getKeyBytes(key)) == null)
+		if ((keybytes = encodeKey(key)) == null)
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
     byte[][] bulk = new byte[4][];
     bulk[0] = keybytes;
@@ -232,10 +309,10 @@ public abstract class JRedisFutureSupport implements JRedisFuture {
 	@Override
 	public <K extends Object> FutureByteArray rpoplpush (String srcList, String destList)  {
 		byte[] srckeybytes = null;
-		if((srckeybytes = JRedisSupport.getKeyBytes(srcList)) == null)
+		if((srckeybytes = encodeKey(srcList)) == null)
 			throw new IllegalArgumentException ("invalid src key => ["+srcList+"]");
 		byte[] destkeybytes = null;
-		if((destkeybytes = JRedisSupport.getKeyBytes(destList)) == null)
+		if((destkeybytes = encodeKey(destList)) == null)
 			throw new IllegalArgumentException ("invalid dest key => ["+destList+"]");
 		
 		Future<Response> futureResponse = this.queueRequest(Command.RPOPLPUSH, srckeybytes, destkeybytes);
@@ -253,79 +330,79 @@ public abstract class JRedisFutureSupport implements JRedisFuture {
 	@Override
 	public <K extends Object, T extends Serializable> FutureLong rpush (K key, T value)
 	{
-		return rpush(key, DefaultCodec.encode(value));
+		return rpush(key, encode(value));
 	}
 
 	@Override
-	public <K extends Object> Future<Boolean> sadd(K key, byte[] member)
+	public <K extends Object> ListenableFuture<Boolean> sadd(K key, byte[] member)
 	{
 		byte[] keybytes = null;
-		if((keybytes = JRedisSupport.getKeyBytes(key)) == null)
+		if((keybytes = encodeKey(key)) == null)
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		Future<Response> futureResponse = this.queueRequest(Command.SADD, keybytes, member);
 		return new FutureBoolean(futureResponse);
 	}
 	@Override
-	public <K extends Object> Future<Boolean> sadd (K key, String value) {
+	public <K extends Object> ListenableFuture<Boolean> sadd (K key, String value) {
 		return sadd (key, DefaultCodec.encode(value));
 	}
 	@Override
-	public <K extends Object> Future<Boolean> sadd (K key, Number value) {
+	public <K extends Object> ListenableFuture<Boolean> sadd (K key, Number value) {
 		return sadd (key, String.valueOf(value).getBytes());
 	}
 	@Override
-	public <K extends Object, T extends Serializable> Future<Boolean> sadd (K key, T value)
+	public <K extends Object, T extends Serializable> ListenableFuture<Boolean> sadd (K key, T value)
 	{
-		return sadd (key, DefaultCodec.encode(value));
+		return sadd (key, encode(value));
 	}
 
 	@Override
-	public <K extends Object> Future<Boolean> zadd(K key, double score, byte[] member)
+	public <K extends Object> ListenableFuture<Boolean> zadd(K key, double score, byte[] member)
 	{
 		byte[] keybytes = null;
-		if((keybytes = JRedisSupport.getKeyBytes(key)) == null)
+		if((keybytes = encodeKey(key)) == null)
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		Future<Response> futureResponse = this.queueRequest(Command.ZADD, keybytes,  Convert.toBytes(score), member);
 		return new FutureBoolean(futureResponse);
 	}
 	@Override
-	public <K extends Object> Future<Boolean> zadd (K key, double score, String value) {
+	public <K extends Object> ListenableFuture<Boolean> zadd (K key, double score, String value) {
 		return zadd (key, score, DefaultCodec.encode(value));
 	}
 	@Override
-	public <K extends Object> Future<Boolean> zadd (K key, double score, Number value) {
+	public <K extends Object> ListenableFuture<Boolean> zadd (K key, double score, Number value) {
 		return zadd (key, score, String.valueOf(value).getBytes());
 	}
 	@Override
-	public <K extends Object, T extends Serializable> Future<Boolean> zadd (K key, double score, T value)
+	public <K extends Object, T extends Serializable> ListenableFuture<Boolean> zadd (K key, double score, T value)
 	{
-		return zadd (key, score, DefaultCodec.encode(value));
+		return zadd (key, score, encode(value));
 	}
 
 	@Override
-	public <K extends Object> Future<Double> zincrby(K key, double score, byte[] member)
+	public <K extends Object> ListenableFuture<Double> zincrby(K key, double score, byte[] member)
 	{
 		byte[] keybytes = null;
-		if((keybytes = JRedisSupport.getKeyBytes(key)) == null)
+		if((keybytes = encodeKey(key)) == null)
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		Future<Response> futureResponse = this.queueRequest(Command.ZINCRBY, keybytes,  Convert.toBytes(score), member);
 		return new FutureDouble(futureResponse);
 	}
 	@Override
-	public <K extends Object> Future<Double> zincrby (K key, double score, String value) {
+	public <K extends Object> ListenableFuture<Double> zincrby (K key, double score, String value) {
 		return zincrby (key, score, DefaultCodec.encode(value));
 	}
 	@Override
-	public <K extends Object> Future<Double> zincrby (K key, double score, Number value) {
+	public <K extends Object> ListenableFuture<Double> zincrby (K key, double score, Number value) {
 		return zincrby (key, score, String.valueOf(value).getBytes());
 	}
 	@Override
-	public <K extends Object, T extends Serializable> Future<Double> zincrby (K key, double score, T value)
+	public <K extends Object, T extends Serializable> ListenableFuture<Double> zincrby (K key, double score, T value)
 	{
-		return zincrby (key, score, DefaultCodec.encode(value));
+		return zincrby (key, score, encode(value));
 	}
 
 	@Override
@@ -337,9 +414,9 @@ public abstract class JRedisFutureSupport implements JRedisFuture {
 	// -------- set
 
 	@Override
-	public <K> Future<Boolean> setbit(K key, int offset, boolean value) {
+	public <K> ListenableFuture<Boolean> setbit(K key, int offset, boolean value) {
 		byte[] keybytes = null;
-		if((keybytes = JRedisSupport.getKeyBytes(key)) == null) 
+		if((keybytes = encodeKey(key)) == null) 
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		Future<Response> futureResponse = this.queueRequest(Command.SETBIT, keybytes,  
@@ -351,9 +428,9 @@ public abstract class JRedisFutureSupport implements JRedisFuture {
 
 
 	@Override
-	public <K> Future<Boolean> getbit(K key, int offset)  {
+	public <K> ListenableFuture<Boolean> getbit(K key, int offset)  {
 		byte[] keybytes = null;
-		if((keybytes = JRedisSupport.getKeyBytes(key)) == null) 
+		if((keybytes = encodeKey(key)) == null) 
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		Future<Response> futureResponse = this.queueRequest(Command.GETBIT, keybytes,  
@@ -365,7 +442,7 @@ public abstract class JRedisFutureSupport implements JRedisFuture {
 	@Override
 	public <K extends Object> FutureStatus set(K key, byte[] value) {
 		byte[] keybytes = null;
-		if((keybytes = JRedisSupport.getKeyBytes(key)) == null)
+		if((keybytes = encodeKey(key)) == null)
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		return new FutureStatus(this.queueRequest(Command.SET, keybytes, value));
@@ -381,82 +458,82 @@ public abstract class JRedisFutureSupport implements JRedisFuture {
 	@Override
 	public <K extends Object, T extends Serializable> FutureStatus set (K key, T value)
 	{
-		return set(key, DefaultCodec.encode(value));
+		return set(key, encode(value));
 	}
 	
 	@Override
-	public <K extends Object> Future<byte[]> getset(K key, byte[] value) {
+	public <K extends Object> ListenableFuture<byte[]> getset(K key, byte[] value) {
 		byte[] keybytes = null;
-		if((keybytes = JRedisSupport.getKeyBytes(key)) == null)
+		if((keybytes = encodeKey(key)) == null)
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		Future<Response> futureResponse = this.queueRequest(Command.GETSET, keybytes, value);
 		return new FutureByteArray(futureResponse);
 	}
 	@Override
-	public <K extends Object> Future<byte[]> getset(K key, String value) {
+	public <K extends Object> ListenableFuture<byte[]> getset(K key, String value) {
 		return getset(key, DefaultCodec.encode(value));
 	}
 	@Override
-	public <K extends Object> Future<byte[]> getset(K key, Number value) {
+	public <K extends Object> ListenableFuture<byte[]> getset(K key, Number value) {
 		return getset(key, String.valueOf(value).getBytes());
 	}
 	@Override
 	public <K extends Object, T extends Serializable>
-	Future<byte[]> getset (K key, T value)
+	ListenableFuture<byte[]> getset (K key, T value)
 	{
-		return getset(key, DefaultCodec.encode(value));
+		return getset(key, encode(value));
 	}
 	
 	@Override
-	public <K extends Object> Future<Boolean> setnx(K key, byte[] value){
+	public <K extends Object> ListenableFuture<Boolean> setnx(K key, byte[] value){
 		byte[] keybytes = null;
-		if((keybytes = JRedisSupport.getKeyBytes(key)) == null)
+		if((keybytes = encodeKey(key)) == null)
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		Future<Response> futureResponse = this.queueRequest(Command.SETNX, keybytes, value);
 		return new FutureBoolean(futureResponse);
 	}
 	@Override
-	public <K extends Object> Future<Boolean> setnx(K key, String value) {
+	public <K extends Object> ListenableFuture<Boolean> setnx(K key, String value) {
 		return setnx(key, DefaultCodec.encode(value));
 	}
 	@Override
-	public <K extends Object> Future<Boolean> setnx(K key, Number value) {
+	public <K extends Object> ListenableFuture<Boolean> setnx(K key, Number value) {
 		return setnx(key, String.valueOf(value).getBytes());
 	}
 	@Override
-	public <K extends Object, T extends Serializable> Future<Boolean> setnx (K key, T value) {
-		return setnx(key, DefaultCodec.encode(value));
+	public <K extends Object, T extends Serializable> ListenableFuture<Boolean> setnx (K key, T value) {
+		return setnx(key, encode(value));
 	}
 
 	
 	@Override
-	public <K extends Object> Future<Long> append (K key, byte[] value){
+	public <K extends Object> ListenableFuture<Long> append (K key, byte[] value){
 		byte[] keybytes = null;
-		if((keybytes = JRedisSupport.getKeyBytes(key)) == null)
+		if((keybytes = encodeKey(key)) == null)
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		Future<Response> futureResponse = this.queueRequest(Command.APPEND, keybytes, value);
 		return new FutureLong(futureResponse);
 	}
 	@Override
-	public <K extends Object> Future<Long> append(K key, String value) {
+	public <K extends Object> ListenableFuture<Long> append(K key, String value) {
 		return append(key, DefaultCodec.encode(value));
 	}
 	@Override
-	public <K extends Object> Future<Long> append(K key, Number value) {
+	public <K extends Object> ListenableFuture<Long> append(K key, Number value) {
 		return append(key, String.valueOf(value).getBytes());
 	}
 	@Override
-	public <K extends Object, T extends Serializable> Future<Long> append (K key, T value) {
-		return append(key, DefaultCodec.encode(value));
+	public <K extends Object, T extends Serializable> ListenableFuture<Long> append (K key, T value) {
+		return append(key, encode(value));
 	}
 
 	@Override
-	public <K extends Object> Future<Boolean> sismember(K key, byte[] member) {
+	public <K extends Object> ListenableFuture<Boolean> sismember(K key, byte[] member) {
 		byte[] keybytes = null;
-		if((keybytes = JRedisSupport.getKeyBytes(key)) == null)
+		if((keybytes = encodeKey(key)) == null)
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		Future<Response> futureResponse = this.queueRequest(Command.SISMEMBER, keybytes, member);
@@ -464,91 +541,91 @@ public abstract class JRedisFutureSupport implements JRedisFuture {
 	}
 
 	@Override
-	public <K extends Object> Future<Boolean> sismember(K key, String value) {
+	public <K extends Object> ListenableFuture<Boolean> sismember(K key, String value) {
 		return sismember(key, DefaultCodec.encode(value));
 	}
 
 	@Override
-	public <K extends Object> Future<Boolean> sismember(K key, Number numberValue) {
+	public <K extends Object> ListenableFuture<Boolean> sismember(K key, Number numberValue) {
 		return sismember (key, String.valueOf(numberValue).getBytes());
 	}
 
 	@Override
-	public <K extends Object, T extends Serializable> Future<Boolean> sismember(K key, T object) {
-		return sismember(key, DefaultCodec.encode(object));
+	public <K extends Object, T extends Serializable> ListenableFuture<Boolean> sismember(K key, T object) {
+		return sismember(key, encode(object));
 	}
 
-	public <K extends Object> Future<Boolean> smove (K srcKey, K destKey, byte[] member) {
+	public <K extends Object> ListenableFuture<Boolean> smove (K srcKey, K destKey, byte[] member) {
 		byte[] srcKeyBytes = null;
-		if((srcKeyBytes = JRedisSupport.getKeyBytes(srcKey)) == null)
+		if((srcKeyBytes = encodeKey(srcKey)) == null)
 			throw new IllegalArgumentException ("invalid key => ["+srcKey+"]");
 
 		byte[] destKeyBytes = null;
-		if((destKeyBytes = JRedisSupport.getKeyBytes(destKey)) == null)
+		if((destKeyBytes = encodeKey(destKey)) == null)
 			throw new IllegalArgumentException ("invalid key => ["+destKey+"]");
 
 		Future<Response> futureResponse = this.queueRequest(Command.SMOVE, srcKeyBytes, destKeyBytes, member);
 		return new FutureBoolean(futureResponse);
 	}
-	public <K extends Object> Future<Boolean> smove (K srcKey, K destKey, String stringValue) {
+	public <K extends Object> ListenableFuture<Boolean> smove (K srcKey, K destKey, String stringValue) {
 		return smove (srcKey, destKey, DefaultCodec.encode(stringValue));
 	}
-	public <K extends Object> Future<Boolean> smove (K srcKey, K destKey, Number numberValue) {
+	public <K extends Object> ListenableFuture<Boolean> smove (K srcKey, K destKey, Number numberValue) {
 		return smove (srcKey, destKey, String.valueOf(numberValue).getBytes());
 	}
 	public <K extends Object, T extends Serializable>
-		   Future<Boolean> smove (K srcKey, K destKey, T object) {
-		return smove (srcKey, destKey, DefaultCodec.encode(object));
+		   ListenableFuture<Boolean> smove (K srcKey, K destKey, T object) {
+		return smove (srcKey, destKey, encode(object));
 	}
 		
 	// ------------------------------------------------------------------------
 	// Commands operating on hashes
 	// ------------------------------------------------------------------------
 	
-	public <K extends Object> Future<Boolean> hset(K key, K field, byte[] value) {
+	public <K extends Object> ListenableFuture<Boolean> hset(K key, K field, byte[] value) {
 		byte[] keyBytes = null;
-		if((keyBytes = JRedisSupport.getKeyBytes(key)) == null)
+		if((keyBytes = encodeKey(key)) == null)
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		byte[] entryBytes = null;
-		if((entryBytes = JRedisSupport.getKeyBytes(field)) == null)
+		if((entryBytes = encodeKey(field)) == null)
 			throw new IllegalArgumentException ("invalid field => ["+field+"]");
 
 		Future<Response> futureResponse = this.queueRequest(Command.HSET, keyBytes, entryBytes, value);
 		return new FutureBoolean(futureResponse);
 	}
-	public <K extends Object> Future<Boolean> hset(K key, K field, String stringValue) {
+	public <K extends Object> ListenableFuture<Boolean> hset(K key, K field, String stringValue) {
 		return hset (key, field, DefaultCodec.encode(stringValue));
 	}
 	
-	public <K extends Object> Future<Long> hincrby(K key, K field, long increment) {
+	public <K extends Object> ListenableFuture<Long> hincrby(K key, K field, long increment) {
 		byte[] keyBytes = null;
-		if((keyBytes = JRedisSupport.getKeyBytes(key)) == null)
+		if((keyBytes = encodeKey(key)) == null)
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		byte[] entryBytes = null;
-		if((entryBytes = JRedisSupport.getKeyBytes(field)) == null)
+		if((entryBytes = encodeKey(field)) == null)
 			throw new IllegalArgumentException ("invalid field => ["+field+"]");
 
 		Future<Response> futureResponse = this.queueRequest(Command.HINCRBY, keyBytes, entryBytes, Convert.toBytes(increment));
 		return new FutureLong(futureResponse);
 	}
 	
-	public <K extends Object> Future<Boolean> hset(K key, K field, Number numberValue) {
+	public <K extends Object> ListenableFuture<Boolean> hset(K key, K field, Number numberValue) {
 		return hset (key, field, String.valueOf(numberValue).getBytes());
 	}
 	public <K extends Object, T extends Serializable>
-		Future<Boolean> hset(K key, K field, T object) {
-		return hset (key, field, DefaultCodec.encode(object));
+		ListenableFuture<Boolean> hset(K key, K field, T object) {
+		return hset (key, field, encode(object));
 	}
 	
-	public <K extends Object> Future<byte[]> hget(K key, K entry) {
+	public <K extends Object> ListenableFuture<byte[]> hget(K key, K entry) {
 		byte[] keyBytes = null;
-		if((keyBytes = JRedisSupport.getKeyBytes(key)) == null)
+		if((keyBytes = encodeKey(key)) == null)
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		byte[] entryBytes = null;
-		if((entryBytes = JRedisSupport.getKeyBytes(entry)) == null)
+		if((entryBytes = encodeKey(entry)) == null)
 			throw new IllegalArgumentException ("invalid field => ["+entry+"]");
 		
 		Future<Response> futureResponse = this.queueRequest(Command.HGET, keyBytes, entryBytes);
@@ -556,35 +633,35 @@ public abstract class JRedisFutureSupport implements JRedisFuture {
 	}
 	
 	
-	public <K extends Object> Future<Boolean> hexists(K key, K entry) {
+	public <K extends Object> ListenableFuture<Boolean> hexists(K key, K entry) {
 		byte[] keyBytes = null;
-		if((keyBytes = JRedisSupport.getKeyBytes(key)) == null)
+		if((keyBytes = encodeKey(key)) == null)
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		byte[] entryBytes = null;
-		if((entryBytes = JRedisSupport.getKeyBytes(entry)) == null)
+		if((entryBytes = encodeKey(entry)) == null)
 			throw new IllegalArgumentException ("invalid field => ["+entry+"]");
 		
 		Future<Response> futureResponse = this.queueRequest(Command.HEXISTS, keyBytes, entryBytes);
 		return new FutureBoolean(futureResponse);
 	}
 	
-	public <K extends Object> Future<Boolean> hdel(K key, K entry) {
+	public <K extends Object> ListenableFuture<Boolean> hdel(K key, K entry) {
 		byte[] keyBytes = null;
-		if((keyBytes = JRedisSupport.getKeyBytes(key)) == null)
+		if((keyBytes = encodeKey(key)) == null)
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		byte[] entryBytes = null;
-		if((entryBytes = JRedisSupport.getKeyBytes(entry)) == null)
+		if((entryBytes = encodeKey(entry)) == null)
 			throw new IllegalArgumentException ("invalid field => ["+entry+"]");
 		
 		Future<Response> futureResponse = this.queueRequest(Command.HDEL, keyBytes, entryBytes);
 		return new FutureBoolean(futureResponse);
 	}
 	
-	public <K extends Object> Future<Long> hlen(K key) {
+	public <K extends Object> ListenableFuture<Long> hlen(K key) {
 		byte[] keyBytes = null;
-		if((keyBytes = JRedisSupport.getKeyBytes(key)) == null)
+		if((keyBytes = encodeKey(key)) == null)
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		
@@ -592,9 +669,9 @@ public abstract class JRedisFutureSupport implements JRedisFuture {
 		return new FutureLong(futureResponse);
 	}
 	
-	public <K extends Object> Future<List<byte[]>> hkeys(K key) {
+	public <K extends Object> ListenableFuture<List<byte[]>> hkeys(K key) {
 		byte[] keyBytes = null;
-		if((keyBytes = JRedisSupport.getKeyBytes(key)) == null)
+		if((keyBytes = encodeKey(key)) == null)
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		Future<Response> futureResponse = this.queueRequest(Command.HKEYS, keyBytes);
@@ -602,31 +679,39 @@ public abstract class JRedisFutureSupport implements JRedisFuture {
 	}
 	
 	@Override
-	public <K extends Object> Future<List<byte[]>> hvals(K key) {
+	public <K extends Object> ListenableFuture<List<byte[]>> hvals(K key) {
 		byte[] keyBytes = null;
-		if((keyBytes = JRedisSupport.getKeyBytes(key)) == null)
+		if((keyBytes = encodeKey(key)) == null)
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		Future<Response> futureResponse = this.queueRequest(Command.HKEYS, keyBytes);
 		return new FutureByteArrayList (futureResponse);
 	}
 	@Override
-	public <K extends Object> Future<Map<byte[], byte[]>> hgetall(K key) {
+	public <K extends Object> ListenableFuture<Map<byte[], byte[]>> hgetall(K key) {
 		byte[] keyBytes = null;
-		if((keyBytes = JRedisSupport.getKeyBytes(key)) == null)
+		if((keyBytes = encodeKey(key)) == null)
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		Future<Response> futureResponse = this.queueRequest(Command.HGETALL, keyBytes);
 		return new FutureDataDictionary (futureResponse);
 	}
+	@Override
+	public <K extends Object> ListenableFuture<Long> hgetall(K key, ElementConsumer consumer) {
+		byte[] keyBytes = null;
+		if((keyBytes = encodeKey(key)) == null)
+			throw new IllegalArgumentException ("invalid key => ["+key+"]");
+
+		return streamRequest(consumer, Command.HGETALL, keyBytes);
+	}
 	
 	
 	/* ------------------------------- commands returning int value --------- */
 
 	@Override
-	public <K extends Object> Future<Long> incr(K key) {
+	public <K extends Object> ListenableFuture<Long> incr(K key) {
 		byte[] keybytes = null;
-		if((keybytes = JRedisSupport.getKeyBytes(key)) == null)
+		if((keybytes = encodeKey(key)) == null)
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		Future<Response> futureResponse = this.queueRequest(Command.INCR, keybytes);
@@ -634,9 +719,9 @@ public abstract class JRedisFutureSupport implements JRedisFuture {
 	}
 
 	@Override
-	public <K extends Object> Future<Long> incrby(K key, int delta) {
+	public <K extends Object> ListenableFuture<Long> incrby(K key, int delta) {
 		byte[] keybytes = null;
-		if((keybytes = JRedisSupport.getKeyBytes(key)) == null)
+		if((keybytes = encodeKey(key)) == null)
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		Future<Response> futureResponse = this.queueRequest(Command.INCRBY, keybytes, Convert.toBytes(delta));
@@ -644,9 +729,9 @@ public abstract class JRedisFutureSupport implements JRedisFuture {
 	}
 
 	@Override
-	public <K extends Object> Future<Long> decr(K key) {
+	public <K extends Object> ListenableFuture<Long> decr(K key) {
 		byte[] keybytes = null;
-		if((keybytes = JRedisSupport.getKeyBytes(key)) == null)
+		if((keybytes = encodeKey(key)) == null)
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		Future<Response> futureResponse = this.queueRequest(Command.DECR, keybytes);
@@ -654,9 +739,9 @@ public abstract class JRedisFutureSupport implements JRedisFuture {
 	}
 
 	@Override
-	public <K extends Object> Future<Long> decrby(K key, int delta) {
+	public <K extends Object> ListenableFuture<Long> decrby(K key, int delta) {
 		byte[] keybytes = null;
-		if((keybytes = JRedisSupport.getKeyBytes(key)) == null)
+		if((keybytes = encodeKey(key)) == null)
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		Future<Response> futureResponse = this.queueRequest(Command.DECRBY, keybytes, Convert.toBytes(delta));
@@ -664,9 +749,9 @@ public abstract class JRedisFutureSupport implements JRedisFuture {
 	}
 
 	@Override
-	public <K extends Object> Future<Long> llen(K key) {
+	public <K extends Object> ListenableFuture<Long> llen(K key) {
 		byte[] keybytes = null;
-		if((keybytes = JRedisSupport.getKeyBytes(key)) == null)
+		if((keybytes = encodeKey(key)) == null)
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		Future<Response> futureResponse = this.queueRequest(Command.LLEN, keybytes);
@@ -674,9 +759,9 @@ public abstract class JRedisFutureSupport implements JRedisFuture {
 	}
 
 	@Override
-	public <K extends Object> Future<Long> scard(K key) {
+	public <K extends Object> ListenableFuture<Long> scard(K key) {
 		byte[] keybytes = null;
-		if((keybytes = JRedisSupport.getKeyBytes(key)) == null)
+		if((keybytes = encodeKey(key)) == null)
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		Future<Response> futureResponse = this.queueRequest(Command.SCARD, keybytes);
@@ -684,27 +769,27 @@ public abstract class JRedisFutureSupport implements JRedisFuture {
 	}
 	
 	@Override
-	public <K extends Object> Future<Long> zcard(K key) {
+	public <K extends Object> ListenableFuture<Long> zcard(K key) {
 		byte[] keybytes = null;
-		if((keybytes = JRedisSupport.getKeyBytes(key)) == null)
+		if((keybytes = encodeKey(key)) == null)
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		Future<Response> futureResponse = this.queueRequest(Command.ZCARD, keybytes);
 		return new FutureLong (futureResponse);
 	}
 	
-	public <K extends Object> Future<byte[]> srandmember (K key) {
+	public <K extends Object> ListenableFuture<byte[]> srandmember (K key) {
 		byte[] keybytes = null;
-		if((keybytes = JRedisSupport.getKeyBytes(key)) == null)
+		if((keybytes = encodeKey(key)) == null)
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		Future<Response> futureResponse = this.queueRequest(Command.SRANDMEMBER, keybytes);
 		return new FutureByteArray (futureResponse);
 	}
 
-	public <K extends Object> Future<byte[]> spop (K key) {
+	public <K extends Object> ListenableFuture<byte[]> spop (K key) {
 		byte[] keybytes = null;
-		if((keybytes = JRedisSupport.getKeyBytes(key)) == null)
+		if((keybytes = encodeKey(key)) == null)
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		Future<Response> futureResponse = this.queueRequest(Command.SPOP, keybytes);
@@ -714,12 +799,12 @@ public abstract class JRedisFutureSupport implements JRedisFuture {
 	/* ------------------------------- commands returning long value --------- */
 
 	@Override
-	public <K extends Object> Future<Long> dbsize() {
+	public <K extends Object> ListenableFuture<Long> dbsize() {
 		Future<Response> futureResponse = this.queueRequest(Command.DBSIZE);
 		return new FutureLong (futureResponse);
 	}
 	@Override
-	public <K extends Object> Future<Long> lastsave() {
+	public <K extends Object> ListenableFuture<Long> lastsave() {
 		Future<Response> futureResponse = this.queueRequest(Command.LASTSAVE);
 		return new FutureLong (futureResponse);
 	}
@@ -727,9 +812,9 @@ public abstract class JRedisFutureSupport implements JRedisFuture {
 	/* ------------------------------- commands returning byte[] --------- */
 
 	@Override
-	public <K extends Object> Future<byte[]> get(K key) {
+	public <K extends Object> ListenableFuture<byte[]> get(K key) {
 		byte[] keybytes = null;
-		if((keybytes = JRedisSupport.getKeyBytes(key)) == null)
+		if((keybytes = encodeKey(key)) == null)
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		Future<Response> futureResponse = this.queueRequest(Command.GET, keybytes);
@@ -737,18 +822,18 @@ public abstract class JRedisFutureSupport implements JRedisFuture {
 	}
 
 	@Override
-	public <K extends Object> Future<byte[]> lindex(K key, long index) {
+	public <K extends Object> ListenableFuture<byte[]> lindex(K key, long index) {
 		byte[] keybytes = null;
-		if((keybytes = JRedisSupport.getKeyBytes(key)) == null)
+		if((keybytes = encodeKey(key)) == null)
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		Future<Response> futureResponse = this.queueRequest(Command.LINDEX, keybytes, Convert.toBytes(index));
 		return new FutureByteArray(futureResponse);
 	}
 	@Override
-	public <K extends Object> Future<byte[]> lpop(K key) {
+	public <K extends Object> ListenableFuture<byte[]> lpop(K key) {
 		byte[] keybytes = null;
-		if((keybytes = JRedisSupport.getKeyBytes(key)) == null)
+		if((keybytes = encodeKey(key)) == null)
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		Future<Response> futureResponse = this.queueRequest(Command.LPOP, keybytes);
@@ -756,9 +841,9 @@ public abstract class JRedisFutureSupport implements JRedisFuture {
 	}
 
 	@Override
-	public <K extends Object> Future<byte[]> rpop(K key) {
+	public <K extends Object> ListenableFuture<byte[]> rpop(K key) {
 		byte[] keybytes = null;
-		if((keybytes = JRedisSupport.getKeyBytes(key)) == null)
+		if((keybytes = encodeKey(key)) == null)
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		Future<Response> futureResponse = this.queueRequest(Command.RPOP, keybytes);
@@ -769,14 +854,14 @@ public abstract class JRedisFutureSupport implements JRedisFuture {
 	/* ------------------------------- commands returning String--------- */
 
 	@Override
-	public <K extends Object> Future<byte[]> randomkey() {
+	public <K extends Object> ListenableFuture<byte[]> randomkey() {
 		Future<Response> futureResponse = this.queueRequest(Command.RANDOMKEY);
 		return new FutureByteArray(futureResponse);
 	}
 	@Override
-	public <K extends Object> Future<RedisType> type(K key) {
+	public <K extends Object> ListenableFuture<RedisType> type(K key) {
 		byte[] keybytes = null;
-		if((keybytes = JRedisSupport.getKeyBytes(key)) == null)
+		if((keybytes = encodeKey(key)) == null)
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		return new FutureRedisType(this.queueRequest(Command.TYPE, keybytes));
@@ -785,13 +870,13 @@ public abstract class JRedisFutureSupport implements JRedisFuture {
 	/* ------------------------------- commands returning Maps --------- */
 
 	@Override
-	public <K extends Object> Future<Map<String, String>> info() {
+	public <K extends Object> ListenableFuture<Map<String, String>> info() {
 		return new FutureInfo(this.queueRequest(Command.INFO));
 	}
 
 	@Override
-	public <K extends Object> Future<ObjectInfo> debug (K key) {
-		byte[] keybytes = JRedisSupport.getKeyBytes(key);
+	public <K extends Object> ListenableFuture<ObjectInfo> debug (K key) {
+		byte[] keybytes = encodeKey(key);
 //		if(key.length() == 0)
 //			throw new IllegalArgumentException ("invalid zero length key => ["+key+"]");
 
@@ -800,14 +885,14 @@ public abstract class JRedisFutureSupport implements JRedisFuture {
 	/* ------------------------------- commands returning Lists --------- */
 
 	@Override
-	public <K extends Object> Future<List<byte[]>> mget(String ... keys) {
+	public <K extends Object> ListenableFuture<List<byte[]>> mget(String ... keys) {
 
 		if(null == keys || keys.length == 0) throw new IllegalArgumentException("no keys specified");
 		byte[] keydata = null;
 		byte[][] keybytes = new byte[keys.length][];
 		int i=0;
 		for(String k : keys) {
-			if((keydata = JRedisSupport.getKeyBytes(k)) == null)
+			if((keydata = encodeKey(k)) == null)
 				throw new IllegalArgumentException ("invalid key => ["+k+"] @ index: " + i);
 			
 			keybytes[i++] = keydata;
@@ -825,7 +910,7 @@ public abstract class JRedisFutureSupport implements JRedisFuture {
 		byte[][] mappings = new byte[keyValueMap.size()*2][];
 		int i = 0;
 		for (Entry<K, byte[]> e : keyValueMap.entrySet()){
-			mappings[i++] = JRedisSupport.getKeyBytes(e.getKey());
+			mappings[i++] = encodeKey(e.getKey());
 			mappings[i++] = e.getValue();
 		}
 		return mset(mappings);
@@ -847,75 +932,92 @@ public abstract class JRedisFutureSupport implements JRedisFuture {
 	}
 
 	/* MSETNXs */
-	private Future<Boolean> msetnx(byte[][] mappings){
+	private ListenableFuture<Boolean> msetnx(byte[][] mappings){
 		Future<Response> futureResponse = this.queueRequest(Command.MSETNX, mappings);
 		return new FutureBoolean(futureResponse);
 	}
-	public <K extends Object> Future<Boolean> msetnx(Map<K, byte[]> keyValueMap){
+	public <K extends Object> ListenableFuture<Boolean> msetnx(Map<K, byte[]> keyValueMap){
 //		KeyCodec codec = DefaultKeyCodec.provider();
 		byte[][] mappings = new byte[keyValueMap.size()*2][];
 		int i = 0;
 		for (Entry<K, byte[]> e : keyValueMap.entrySet()){
-			mappings[i++] = JRedisSupport.getKeyBytes(e.getKey());
+			mappings[i++] = encodeKey(e.getKey());
 			mappings[i++] = e.getValue();
 		}
 		return msetnx(mappings);
 	}
 	
-	public <K extends Object> Future<Boolean> msetnx(KeyValueSet.ByteArrays<K> keyValueMap){
+	public <K extends Object> ListenableFuture<Boolean> msetnx(KeyValueSet.ByteArrays<K> keyValueMap){
 		return msetnx(keyValueMap.getMappings());
 	}
-	public <K extends Object> Future<Boolean> msetnx(KeyValueSet.Strings<K> keyValueMap){
+	public <K extends Object> ListenableFuture<Boolean> msetnx(KeyValueSet.Strings<K> keyValueMap){
 		return msetnx(keyValueMap.getMappings());
 	}
 
-	public <K extends Object> Future<Boolean> msetnx(KeyValueSet.Numbers<K> keyValueMap){
+	public <K extends Object> ListenableFuture<Boolean> msetnx(KeyValueSet.Numbers<K> keyValueMap){
 		return msetnx(keyValueMap.getMappings());
 	}
 
-	public <K extends Object,T extends Serializable> Future<Boolean> msetnx(KeyValueSet.Objects<K, T> keyValueMap){
+	public <K extends Object,T extends Serializable> ListenableFuture<Boolean> msetnx(KeyValueSet.Objects<K, T> keyValueMap){
 		return msetnx(keyValueMap.getMappings());
 	}
 
 
 	@Override
-	public <K extends Object> Future<List<byte[]>> smembers(K key) {
+	public <K extends Object> ListenableFuture<List<byte[]>> smembers(K key) {
 		byte[] keydata = null;
-		if((keydata = JRedisSupport.getKeyBytes(key)) == null)
+		if((keydata = encodeKey(key)) == null)
 			throw new IllegalArgumentException ("null key.");
 
 		return new FutureByteArrayList(this.queueRequest(Command.SMEMBERS, keydata));
 	}
 	@Override
-	public <K extends Object> Future<List<byte[]>> keys() {
+	public <K extends Object> ListenableFuture<Long> smembers(K key, ElementConsumer consumer) {
+		byte[] keydata = null;
+		if((keydata = encodeKey(key)) == null)
+			throw new IllegalArgumentException ("null key.");
+
+		return streamRequest(consumer, Command.SMEMBERS, keydata);
+	}
+	@Override
+	public <K extends Object> ListenableFuture<List<byte[]>> keys() {
 		return this.keys("*");
 	}
 
 	@Override
-	public <K extends Object> Future<List<byte[]>> keys(K pattern) {
+	public <K extends Object> ListenableFuture<List<byte[]>> keys(K pattern) {
 		byte[] keydata = null;
-		if((keydata = JRedisSupport.getKeyBytes(pattern)) == null)
+		if((keydata = encodeKey(pattern)) == null)
 			throw new IllegalArgumentException ("null key.");
 
 		Future<Response> futureResponse = this.queueRequest(Command.KEYS, keydata);
 		return new FutureKeyList(futureResponse);
 	}
 
-	public <K extends Object> Future<Long> keystolist(String pattern, String listname) {
+	@Override
+	public <K extends Object> ListenableFuture<Long> keys(K pattern, ElementConsumer consumer) {
+		byte[] keydata = null;
+		if((keydata = encodeKey(pattern)) == null)
+			throw new IllegalArgumentException ("null key.");
+
+		return streamRequest(consumer, Command.KEYS, keydata);
+	}
+
+	public <K extends Object> ListenableFuture<Long> keystolist(String pattern, String listname) {
 		byte[] keydata = null;
-		if((keydata = JRedisSupport.getKeyBytes(pattern)) == null)
+		if((keydata = encodeKey(pattern)) == null)
 			throw new IllegalArgumentException ("null key.");
 		byte[] listnamedata = null;
-		if((listnamedata = JRedisSupport.getKeyBytes(listname)) == null)
+		if((listnamedata = encodeKey(listname)) == null)
 			throw new IllegalArgumentException ("null list name.");
 
 		return new FutureLong(this.queueRequest(Command.KEYSTOLIST, keydata, listnamedata));
 	}
 
 	@Override
-	public <K extends Object> Future<List<byte[]>> lrange(K key, long from, long to) {
+	public <K extends Object> ListenableFuture<List<byte[]>> lrange(K key, long from, long to) {
 		byte[] keybytes = null;
-		if((keybytes = JRedisSupport.getKeyBytes(key)) == null)
+		if((keybytes = encodeKey(key)) == null)
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		byte[] fromBytes = Convert.toBytes(from);
@@ -925,9 +1027,21 @@ public abstract class JRedisFutureSupport implements JRedisFuture {
 	}
 
 	@Override
-	public <K extends Object> Future<byte[]> substr(K key, long from, long to) {
+	public <K extends Object> ListenableFuture<Long> lrange(K key, long from, long to, ElementConsumer consumer) {
+		byte[] keybytes = null;
+		if((keybytes = encodeKey(key)) == null)
+			throw new IllegalArgumentException ("invalid key => ["+key+"]");
+
+		byte[] fromBytes = Convert.toBytes(from);
+		byte[] toBytes = Convert.toBytes(to);
+
+		return streamRequest(consumer, Command.LRANGE, keybytes, fromBytes, toBytes);
+	}
+
+	@Override
+	public <K extends Object> ListenableFuture<byte[]> substr(K key, long from, long to) {
 		byte[] keybytes = null;
-		if((keybytes = JRedisSupport.getKeyBytes(key)) == null)
+		if((keybytes = encodeKey(key)) == null)
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		byte[] fromBytes = Convert.toBytes(from);
@@ -937,9 +1051,9 @@ public abstract class JRedisFutureSupport implements JRedisFuture {
 	}
 
 	@Override
-	public <K extends Object> Future<List<byte[]>> zrange(K key, long from, long to) {
+	public <K extends Object> ListenableFuture<List<byte[]>> zrange(K key, long from, long to) {
 		byte[] keybytes = null;
-		if((keybytes = JRedisSupport.getKeyBytes(key)) == null)
+		if((keybytes = encodeKey(key)) == null)
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		byte[] fromBytes = Convert.toBytes(from);
@@ -949,9 +1063,9 @@ public abstract class JRedisFutureSupport implements JRedisFuture {
 	}
 
 	@Override
-	public <K extends Object> Future<List<byte[]>> zrangebyscore(K key, double minScore, double maxScore) {
+	public <K extends Object> ListenableFuture<List<byte[]>> zrangebyscore(K key, double minScore, double maxScore) {
 		byte[] keybytes = null;
-		if((keybytes = JRedisSupport.getKeyBytes(key)) == null)
+		if((keybytes = encodeKey(key)) == null)
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		byte[] minScoreBytes = Convert.toBytes(minScore);
@@ -961,9 +1075,9 @@ public abstract class JRedisFutureSupport implements JRedisFuture {
 	}
 	
 	@Override
-	public <K extends Object> Future<List<ZSetEntry>> zrangebyscoreSubset(K key, double minScore, double maxScore) {
+	public <K extends Object> ListenableFuture<List<ZSetEntry>> zrangebyscoreSubset(K key, double minScore, double maxScore) {
 		byte[] keybytes = null;
-		if((keybytes = JRedisSupport.getKeyBytes(key)) == null)
+		if((keybytes = encodeKey(key)) == null)
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		byte[] minScoreBytes = Convert.toBytes(minScore);
@@ -973,9 +1087,9 @@ public abstract class JRedisFutureSupport implements JRedisFuture {
 	}
 
 	@Override
-	public <K extends Object> Future<Long> zremrangebyscore(K key, double minScore, double maxScore) {
+	public <K extends Object> ListenableFuture<Long> zremrangebyscore(K key, double minScore, double maxScore) {
 		byte[] keybytes = null;
-		if((keybytes = JRedisSupport.getKeyBytes(key)) == null)
+		if((keybytes = encodeKey(key)) == null)
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		byte[] minScoreBytes = Convert.toBytes(minScore);
@@ -985,9 +1099,9 @@ public abstract class JRedisFutureSupport implements JRedisFuture {
 	}
 	
 	@Override
-	public <K extends Object> Future<Long> zcount(K key, double minScore, double maxScore) {
+	public <K extends Object> ListenableFuture<Long> zcount(K key, double minScore, double maxScore) {
 		byte[] keybytes = null;
-		if((keybytes = JRedisSupport.getKeyBytes(key)) == null)
+		if((keybytes = encodeKey(key)) == null)
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		byte[] minScoreBytes = Convert.toBytes(minScore);
@@ -997,9 +1111,9 @@ public abstract class JRedisFutureSupport implements JRedisFuture {
 	}
 	
 	@Override
-	public <K extends Object> Future<Long> zremrangebyrank(K key, long minRank, long maxRank) {
+	public <K extends Object> ListenableFuture<Long> zremrangebyrank(K key, long minRank, long maxRank) {
 		byte[] keybytes = null;
-		if((keybytes = JRedisSupport.getKeyBytes(key)) == null)
+		if((keybytes = encodeKey(key)) == null)
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		byte[] minScoreBytes = Convert.toBytes(minRank);
@@ -1010,9 +1124,9 @@ public abstract class JRedisFutureSupport implements JRedisFuture {
 
 
 	@Override
-	public <K extends Object> Future<List<byte[]>> zrevrange(K key, long from, long to) {
+	public <K extends Object> ListenableFuture<List<byte[]>> zrevrange(K key, long from, long to) {
 		byte[] keybytes = null;
-		if((keybytes = JRedisSupport.getKeyBytes(key)) == null)
+		if((keybytes = encodeKey(key)) == null)
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		byte[] fromBytes = Convert.toBytes(from);
@@ -1022,9 +1136,9 @@ public abstract class JRedisFutureSupport implements JRedisFuture {
 	}
 
 	@Override
-	public <K extends Object> Future<List<ZSetEntry>> zrangeSubset(K key, long from, long to) {
+	public <K extends Object> ListenableFuture<List<ZSetEntry>> zrangeSubset(K key, long from, long to) {
 		byte[] keybytes = null;
-		if((keybytes = JRedisSupport.getKeyBytes(key)) == null)
+		if((keybytes = encodeKey(key)) == null)
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		byte[] fromBytes = Convert.toBytes(from);
@@ -1034,9 +1148,21 @@ public abstract class JRedisFutureSupport implements JRedisFuture {
 	}
 
 	@Override
-	public <K extends Object> Future<List<ZSetEntry>> zrevrangeSubset(K key, long from, long to) {
+	public <K extends Object> ListenableFuture<Long> zrangeSubset(K key, long from, long to, ElementConsumer consumer) {
 		byte[] keybytes = null;
-		if((keybytes = JRedisSupport.getKeyBytes(key)) == null)
+		if((keybytes = encodeKey(key)) == null)
+			throw new IllegalArgumentException ("invalid key => ["+key+"]");
+
+		byte[] fromBytes = Convert.toBytes(from);
+		byte[] toBytes = Convert.toBytes(to);
+
+		return streamRequest(consumer, Command.ZRANGE$OPTS, keybytes, fromBytes, toBytes, Command.Option.WITHSCORES.bytes);
+	}
+
+	@Override
+	public <K extends Object> ListenableFuture<List<ZSetEntry>> zrevrangeSubset(K key, long from, long to) {
+		byte[] keybytes = null;
+		if((keybytes = encodeKey(key)) == null)
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		byte[] fromBytes = Convert.toBytes(from);
@@ -1048,7 +1174,7 @@ public abstract class JRedisFutureSupport implements JRedisFuture {
 	@Override
 	public <K extends Object> Sort sort(final K key) {
 		byte[] keybytes = null;
-		if((keybytes = JRedisSupport.getKeyBytes(key)) == null)
+		if((keybytes = encodeKey(key)) == null)
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 		
 		final JRedisFutureSupport client = this;
@@ -1085,15 +1211,15 @@ public abstract class JRedisFutureSupport implements JRedisFuture {
 	}
 	/* ------------------------------- commands that don't get a response END --------- */
 	@Override
-	public <K extends Object> Future<List<byte[]>> sinter(K set1, K... sets) {
+	public <K extends Object> ListenableFuture<List<byte[]>> sinter(K set1, K... sets) {
 		byte[] keydata = null;
-		if((keydata = JRedisSupport.getKeyBytes(set1)) == null)
+		if((keydata = encodeKey(set1)) == null)
 			throw new IllegalArgumentException ("invalid key => ["+set1+"]");
 
 		byte[][] keybytes = new byte[1+sets.length][];
 		int i=0; keybytes[i++] = keydata;
 		for(K k : sets) {
-			if((keydata = JRedisSupport.getKeyBytes(k)) == null)
+			if((keydata = encodeKey(k)) == null)
 				throw new IllegalArgumentException ("invalid key => ["+k+"]");
 			keybytes[i++] = keydata;
 		}
@@ -1102,15 +1228,15 @@ public abstract class JRedisFutureSupport implements JRedisFuture {
 	}
 
 	@Override
-	public <K extends Object> Future<List<byte[]>> sunion(K set1, K... sets) {
+	public <K extends Object> ListenableFuture<List<byte[]>> sunion(K set1, K... sets) {
 		byte[] keydata = null;
-		if((keydata = JRedisSupport.getKeyBytes(set1)) == null)
+		if((keydata = encodeKey(set1)) == null)
 			throw new IllegalArgumentException ("invalid key => ["+set1+"]");
 
 		byte[][] keybytes = new byte[1+sets.length][];
 		int i=0; keybytes[i++] = keydata;
 		for(K k : sets) {
-			if((keydata = JRedisSupport.getKeyBytes(k)) == null)
+			if((keydata = encodeKey(k)) == null)
 				throw new IllegalArgumentException ("invalid key => ["+k+"]");
 			keybytes[i++] = keydata;
 		}
@@ -1119,15 +1245,15 @@ public abstract class JRedisFutureSupport implements JRedisFuture {
 	}
 
 	@Override
-	public <K extends Object> Future<List<byte[]>> sdiff(K set1, K... sets) {
+	public <K extends Object> ListenableFuture<List<byte[]>> sdiff(K set1, K... sets) {
 		byte[] keydata = null;
-		if((keydata = JRedisSupport.getKeyBytes(set1)) == null)
+		if((keydata = encodeKey(set1)) == null)
 			throw new IllegalArgumentException ("invalid key => ["+set1+"]");
 
 		byte[][] keybytes = new byte[sets.length+1][];
 		int i=0; keybytes[i++] = keydata;
 		for(K k : sets) {
-			if((keydata = JRedisSupport.getKeyBytes(k)) == null)
+			if((keydata = encodeKey(k)) == null)
 				throw new IllegalArgumentException ("invalid key => ["+k+"]");
 			keybytes[i++] = keydata;
 		}
@@ -1137,7 +1263,7 @@ public abstract class JRedisFutureSupport implements JRedisFuture {
 	@Override
 	public <K extends Object> FutureStatus sinterstore(K dest, K... sets) {
 		byte[] keydata = null;
-		if((keydata = JRedisSupport.getKeyBytes(dest)) == null)
+		if((keydata = encodeKey(dest)) == null)
 			throw new IllegalArgumentException ("invalid key => ["+dest+"]");
 
 		byte[][] setbytes = new byte[1+sets.length][];
@@ -1145,7 +1271,7 @@ public abstract class JRedisFutureSupport implements JRedisFuture {
 		setbytes[i++] = keydata;
 		byte[] setdata =null;
 		for(K k : sets) {
-			if((setdata = JRedisSupport.getKeyBytes(k)) == null)
+			if((setdata = encodeKey(k)) == null)
 				throw new IllegalArgumentException ("invalid key => ["+k+"]");
 			setbytes[i++] = setdata;
 		}
@@ -1156,7 +1282,7 @@ public abstract class JRedisFutureSupport implements JRedisFuture {
 	@Override
 	public <K extends Object> FutureStatus sunionstore(K dest, K... sets) {
 		byte[] keydata = null;
-		if((keydata = JRedisSupport.getKeyBytes(dest)) == null)
+		if((keydata = encodeKey(dest)) == null)
 			throw new IllegalArgumentException ("invalid key => ["+dest+"]");
 
 		byte[][] setbytes = new byte[1+sets.length][];
@@ -1164,7 +1290,7 @@ public abstract class JRedisFutureSupport implements JRedisFuture {
 		setbytes[i++] = keydata;
 		byte[] setdata =null;
 		for(K k : sets) {
-			if((setdata = JRedisSupport.getKeyBytes(k)) == null)
+			if((setdata = encodeKey(k)) == null)
 				throw new IllegalArgumentException ("invalid key => ["+k+"]");
 			setbytes[i++] = setdata;
 		}
@@ -1175,7 +1301,7 @@ public abstract class JRedisFutureSupport implements JRedisFuture {
 	@Override
 	public <K extends Object> FutureStatus sdiffstore(K dest, K... sets) {
 		byte[] keydata = null;
-		if((keydata = JRedisSupport.getKeyBytes(dest)) == null)
+		if((keydata = encodeKey(dest)) == null)
 			throw new IllegalArgumentException ("invalid key => ["+dest+"]");
 
 		byte[][] setbytes = new byte[1+sets.length][];
@@ -1183,7 +1309,7 @@ public abstract class JRedisFutureSupport implements JRedisFuture {
 		setbytes[i++] = keydata;
 		byte[] setdata =null;
 		for(K k : sets) {
-			if((setdata = JRedisSupport.getKeyBytes(k)) == null)
+			if((setdata = encodeKey(k)) == null)
 				throw new IllegalArgumentException ("invalid key => ["+k+"]");
 			setbytes[i++] = setdata;
 		}
@@ -1192,13 +1318,13 @@ public abstract class JRedisFutureSupport implements JRedisFuture {
 	}
 
 	@Override
-	public <K extends Object> Future<Long> del(K ... keys) {
+	public <K extends Object> ListenableFuture<Long> del(K ... keys) {
 		if(null == keys || keys.length == 0) throw new IllegalArgumentException("no keys specified");
 		byte[] keydata = null;
 		byte[][] keybytes = new byte[keys.length][];
 		int i=0;
 		for(K k : keys) {
-			if((keydata = JRedisSupport.getKeyBytes(k)) == null)
+			if((keydata = encodeKey(k)) == null)
 				throw new IllegalArgumentException ("invalid key => ["+k+"] @ index: " + i);
 			
 			keybytes[i++] = keydata;
@@ -1210,9 +1336,9 @@ public abstract class JRedisFutureSupport implements JRedisFuture {
 
 
 	@Override
-	public <K extends Object> Future<Boolean> exists(K key) {
+	public <K extends Object> ListenableFuture<Boolean> exists(K key) {
 		byte[] keybytes = null;
-		if((keybytes = JRedisSupport.getKeyBytes(key)) == null)
+		if((keybytes = encodeKey(key)) == null)
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		Future<Response> futureResponse = this.queueRequest(Command.EXISTS, keybytes);
@@ -1223,7 +1349,7 @@ public abstract class JRedisFutureSupport implements JRedisFuture {
 	@Override
 	public <K extends Object> FutureLong lpush(K key, byte[] value) {
 		byte[] keybytes = null;
-		if((keybytes = JRedisSupport.getKeyBytes(key)) == null)
+		if((keybytes = encodeKey(key)) == null)
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 		
 		if(value == null)
@@ -1243,15 +1369,15 @@ public abstract class JRedisFutureSupport implements JRedisFuture {
 	@Override
 	public <K extends Object, T extends Serializable> FutureLong lpush (K key, T value)
 	{
-		return lpush(key, DefaultCodec.encode(value));
+		return lpush(key, encode(value));
 	}
 	
 
 
 	@Override
-	public <K extends Object> Future<Long> lrem(K key, byte[] value, int count) {
+	public <K extends Object> ListenableFuture<Long> lrem(K key, byte[] value, int count) {
 		byte[] keybytes = null;
-		if((keybytes = JRedisSupport.getKeyBytes(key)) == null)
+		if((keybytes = encodeKey(key)) == null)
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		byte[] countBytes = Convert.toBytes(count);
@@ -1260,24 +1386,24 @@ public abstract class JRedisFutureSupport implements JRedisFuture {
 		return new FutureLong(futureResponse);
 	}
 	@Override
-	public <K extends Object> Future<Long> lrem (K listKey, String value, int count){
+	public <K extends Object> ListenableFuture<Long> lrem (K listKey, String value, int count){
 		return lrem (listKey, DefaultCodec.encode(value), count);
 	}
 	@Override
-	public <K extends Object> Future<Long> lrem (K listKey, Number numberValue, int count) {
+	public <K extends Object> ListenableFuture<Long> lrem (K listKey, Number numberValue, int count) {
 		return lrem (listKey, String.valueOf(numberValue).getBytes(), count);
 	}
 	@Override
 	public <K extends Object, T extends Serializable>
-	Future<Long> lrem (K listKey, T object, int count){
-		return lrem (listKey, DefaultCodec.encode(object), count);
+	ListenableFuture<Long> lrem (K listKey, T object, int count){
+		return lrem (listKey, encode(object), count);
 	}
 
 
 	@Override
 	public <K extends Object> FutureStatus lset(K key, long index, byte[] value) {
 		byte[] keybytes = null;
-		if((keybytes = JRedisSupport.getKeyBytes(key)) == null)
+		if((keybytes = encodeKey(key)) == null)
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		byte[] indexBytes = Convert.toBytes(index);
@@ -1293,13 +1419,13 @@ public abstract class JRedisFutureSupport implements JRedisFuture {
 	}
 	@Override
 	public <K extends Object, T extends Serializable> FutureStatus lset (K key, long index, T object){
-		return lset (key, index, DefaultCodec.encode(object));
+		return lset (key, index, encode(object));
 	}
 
 	@Override
-	public <K extends Object> Future<Boolean> move(K key, int dbIndex) {
+	public <K extends Object> ListenableFuture<Boolean> move(K key, int dbIndex) {
 		byte[] keybytes = null;
-		if((keybytes = JRedisSupport.getKeyBytes(key)) == null)
+		if((keybytes = encodeKey(key)) == null)
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 		
 		Future<Response> futureResponse = this.queueRequest(Command.MOVE, keybytes, Convert.toBytes(dbIndex));
@@ -1308,126 +1434,126 @@ public abstract class JRedisFutureSupport implements JRedisFuture {
 
 
 	@Override
-	public <K extends Object> Future<Boolean> srem(K key, byte[] member) {
+	public <K extends Object> ListenableFuture<Boolean> srem(K key, byte[] member) {
 		byte[] keybytes = null;
-		if((keybytes = JRedisSupport.getKeyBytes(key)) == null)
+		if((keybytes = encodeKey(key)) == null)
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		Future<Response> futureResponse = this.queueRequest(Command.SREM, keybytes, member);
 		return new FutureBoolean(futureResponse);
 	}
 	@Override
-	public <K extends Object> Future<Boolean> srem (K key, String value) {
+	public <K extends Object> ListenableFuture<Boolean> srem (K key, String value) {
 		return srem (key, DefaultCodec.encode(value));
 	}
 	@Override
-	public <K extends Object> Future<Boolean> srem (K key, Number value) {
+	public <K extends Object> ListenableFuture<Boolean> srem (K key, Number value) {
 		return srem (key, String.valueOf(value).getBytes());
 	}
 	@Override
-	public <K extends Object, T extends Serializable> Future<Boolean> srem (K key, T value)
+	public <K extends Object, T extends Serializable> ListenableFuture<Boolean> srem (K key, T value)
 	{
-		return srem (key, DefaultCodec.encode(value));
+		return srem (key, encode(value));
 	}
 
 	@Override
-	public <K extends Object> Future<Boolean> zrem(K key, byte[] member) {
+	public <K extends Object> ListenableFuture<Boolean> zrem(K key, byte[] member) {
 		byte[] keybytes = null;
-		if((keybytes = JRedisSupport.getKeyBytes(key)) == null)
+		if((keybytes = encodeKey(key)) == null)
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		Future<Response> futureResponse = this.queueRequest(Command.ZREM, keybytes, member);
 		return new FutureBoolean(futureResponse);
 	}
 	@Override
-	public <K extends Object> Future<Boolean> zrem (K key, String value) {
+	public <K extends Object> ListenableFuture<Boolean> zrem (K key, String value) {
 		return zrem (key, DefaultCodec.encode(value));
 	}
 	@Override
-	public <K extends Object> Future<Boolean> zrem (K key, Number value) {
+	public <K extends Object> ListenableFuture<Boolean> zrem (K key, Number value) {
 		return zrem (key, String.valueOf(value).getBytes());
 	}
 	@Override
-	public <K extends Object, T extends Serializable> Future<Boolean> zrem (K key, T value)
+	public <K extends Object, T extends Serializable> ListenableFuture<Boolean> zrem (K key, T value)
 	{
-		return zrem (key, DefaultCodec.encode(value));
+		return zrem (key, encode(value));
 	}
 
 
 	@Override
-	public <K extends Object> Future<Double> zscore(K key, byte[] member) {
+	public <K extends Object> ListenableFuture<Double> zscore(K key, byte[] member) {
 		byte[] keybytes = null;
-		if((keybytes = JRedisSupport.getKeyBytes(key)) == null)
+		if((keybytes = encodeKey(key)) == null)
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		Future<Response> futureResponse = this.queueRequest(Command.ZSCORE, keybytes, member);
 		return new FutureDouble(futureResponse);
 	}
 	@Override
-	public <K extends Object> Future<Double> zscore (K key, String value) {
+	public <K extends Object> ListenableFuture<Double> zscore (K key, String value) {
 		return zscore (key, DefaultCodec.encode(value));
 	}
 	@Override
-	public <K extends Object> Future<Double> zscore (K key, Number value) {
+	public <K extends Object> ListenableFuture<Double> zscore (K key, Number value) {
 		return zscore (key, String.valueOf(value).getBytes());
 	}
 	@Override
-	public <K extends Object, T extends Serializable> Future<Double> zscore (K key, T value)
+	public <K extends Object, T extends Serializable> ListenableFuture<Double> zscore (K key, T value)
 	{
-		return zscore (key, DefaultCodec.encode(value));
+		return zscore (key, encode(value));
 	}
 
 	@Override
-	public <K extends Object> Future<Long> zrank(K key, byte[] member) {
+	public <K extends Object> ListenableFuture<Long> zrank(K key, byte[] member) {
 		byte[] keybytes = null;
-		if((keybytes = JRedisSupport.getKeyBytes(key)) == null)
+		if((keybytes = encodeKey(key)) == null)
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		Future<Response> futureResponse = this.queueRequest(Command.ZRANK, keybytes, member);
 		return new FutureLong(futureResponse);
 	}
 	@Override
-	public <K extends Object> Future<Long> zrank (K key, String value) {
+	public <K extends Object> ListenableFuture<Long> zrank (K key, String value) {
 		return zrank (key, DefaultCodec.encode(value));
 	}
 	@Override
-	public <K extends Object> Future<Long> zrank (K key, Number value) {
+	public <K extends Object> ListenableFuture<Long> zrank (K key, Number value) {
 		return zrank (key, String.valueOf(value).getBytes());
 	}
 	@Override
-	public <K extends Object, T extends Serializable> Future<Long> zrank (K key, T value)
+	public <K extends Object, T extends Serializable> ListenableFuture<Long> zrank (K key, T value)
 	{
-		return zrank (key, DefaultCodec.encode(value));
+		return zrank (key, encode(value));
 	}
 
 	@Override
-	public <K extends Object> Future<Long> zrevrank(K key, byte[] member) {
+	public <K extends Object> ListenableFuture<Long> zrevrank(K key, byte[] member) {
 		byte[] keybytes = null;
-		if((keybytes = JRedisSupport.getKeyBytes(key)) == null)
+		if((keybytes = encodeKey(key)) == null)
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		Future<Response> futureResponse = this.queueRequest(Command.ZREVRANK, keybytes, member);
 		return new FutureLong(futureResponse);
 	}
 	@Override
-	public <K extends Object> Future<Long> zrevrank (K key, String value) {
+	public <K extends Object> ListenableFuture<Long> zrevrank (K key, String value) {
 		return zrevrank (key, DefaultCodec.encode(value));
 	}
 	@Override
-	public <K extends Object> Future<Long> zrevrank (K key, Number value) {
+	public <K extends Object> ListenableFuture<Long> zrevrank (K key, Number value) {
 		return zrevrank (key, String.valueOf(value).getBytes());
 	}
 	@Override
-	public <K extends Object, T extends Serializable> Future<Long> zrevrank (K key, T value)
+	public <K extends Object, T extends Serializable> ListenableFuture<Long> zrevrank (K key, T value)
 	{
-		return zrevrank (key, DefaultCodec.encode(value));
+		return zrevrank (key, encode(value));
 	}
 
 
 	@Override
 	public <K extends Object> FutureStatus ltrim(K key, long keepFrom, long keepTo) {
 		byte[] keybytes = null;
-		if((keybytes = JRedisSupport.getKeyBytes(key)) == null)
+		if((keybytes = encodeKey(key)) == null)
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		byte[] fromBytes = Convert.toBytes(keepFrom);
@@ -1436,9 +1562,9 @@ public abstract class JRedisFutureSupport implements JRedisFuture {
 	}
 
 	@Override
-	public <K extends Object> Future<Boolean> expire(K key, int ttlseconds) {
+	public <K extends Object> ListenableFuture<Boolean> expire(K key, int ttlseconds) {
 		byte[] keybytes = null;
-		if((keybytes = JRedisSupport.getKeyBytes(key)) == null)
+		if((keybytes = encodeKey(key)) == null)
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		byte[] ttlbytes = Convert.toBytes(ttlseconds);
@@ -1448,9 +1574,9 @@ public abstract class JRedisFutureSupport implements JRedisFuture {
 	}
 
 	@Override
-	public <K extends Object> Future<Boolean> expireat(K key, long epochtime) {
+	public <K extends Object> ListenableFuture<Boolean> expireat(K key, long epochtime) {
 		byte[] keybytes = null;
-		if((keybytes = JRedisSupport.getKeyBytes(key)) == null)
+		if((keybytes = encodeKey(key)) == null)
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		long expiretime = TimeUnit.SECONDS.convert(epochtime, TimeUnit.MILLISECONDS);
@@ -1461,25 +1587,85 @@ public abstract class JRedisFutureSupport implements JRedisFuture {
 	}
 
 	@Override
-	public <K extends Object> Future<Long> ttl (K key) {
+	public <K extends Object> ListenableFuture<Long> ttl (K key) {
 		byte[] keybytes = null;
-		if((keybytes = JRedisSupport.getKeyBytes(key)) == null)
+		if((keybytes = encodeKey(key)) == null)
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		Future<Response> futureResponse = this.queueRequest(Command.TTL, keybytes);
 		return new FutureLong(futureResponse);
 	}
 
-	// TODO: integrate using KeyCodec and a CodecManager at client spec and init time.
-	// TODO: (implied) ClientSpec (impls. ConnectionSpec)
-	// this isn't cooked yet -- lets think more about the implications...
-	//
-//	static final private Map<String, byte[]>	keyByteCache = new ConcurrentHashMap<String, byte[]>();
-	public static final boolean	CacheKeys	= false;
-	
-	public static class FutureResultBase {
+	private <T extends Serializable> byte[] encode (T value) {
+		return DefaultCodec.encode(value, codecManager);
+	}
+
+	private <K extends Object> byte[] encodeKey (K key) throws IllegalArgumentException {
+		return keyCodec.encode(key);
+	}
+
+	/**
+	 * Streams the elements of the multi-bulk reply of the request to the consumer.
+	 * @return the future number of elements of the reply
+	 */
+	private ListenableFuture<Long> streamRequest (ElementConsumer consumer, Command cmd, byte[]...args) {
+		if(null == consumer)
+			throw new IllegalArgumentException ("null consumer");
+		return new FutureElementCount(this.queueRequest(consumer, cmd, args));
+	}
+
+	/**
+	 * Base for the typed futures, which convert the {@link Response} of the pending
+	 * request on {@link Future#get()}.  Callbacks are supported if the pending request
+	 * is a {@link PendingRequest}, which is the case for all the RI's asynchronous
+	 * connections: the callback is notified by the response handler, calling the 
+	 * (by then non-blocking) <code>get()</code> of the typed future to obtain the result.
+	 */
+	public static abstract class FutureResultBase<T> implements ListenableFuture<T> {
 		final protected Future<Response> pendingRequest;
 		protected FutureResultBase(Future<Response> pendingRequest){ this.pendingRequest = pendingRequest;}
+		
+		/* (non-Javadoc) @see org.jredis.ListenableFuture#addCallback(org.jredis.FutureCallback) */
+		public ListenableFuture<T> addCallback (FutureCallback<? super T> callback) {
+			return addCallback(callback, null);
+		}
+		/* (non-Javadoc) @see org.jredis.ListenableFuture#addCallback(org.jredis.FutureCallback, java.util.concurrent.Executor) */
+		public ListenableFuture<T> addCallback (final FutureCallback<? super T> callback, final Executor executor) {
+			Assert.notNull(callback, "callback", ClientRuntimeException.class);
+			if(!(pendingRequest instanceof PendingRequest))
+				throw new NotSupportedException("callbacks are not supported for pending request type " + pendingRequest.getClass().getName());
+			
+			final Runnable notification = new Runnable() {
+				public void run () {
+					T result;
+					try {
+						result = get();
+					}
+					catch (ExecutionException e) {
+						callback.onFailure(e.getCause());
+						return;
+					}
+					catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						callback.onFailure(e);
+						return;
+					}
+					catch (RuntimeException e) {
+						callback.onFailure(e);
+						return;
+					}
+					callback.onSuccess(result);
+				}
+			};
+			Runnable listener = notification;
+			if(executor != null) {
+				listener = new Runnable() {
+					public void run () { executor.execute(notification); }
+				};
+			}
+			((PendingRequest) pendingRequest).addCompletionListener(listener);
+			return this;
+		}
 		public boolean cancel (boolean mayInterruptIfRunning) {
 	        return pendingRequest.cancel(mayInterruptIfRunning);
         }
@@ -1490,7 +1676,7 @@ public abstract class JRedisFutureSupport implements JRedisFuture {
 	        return pendingRequest.isDone();
         }
 	}
-	public static class FutureStatus extends FutureResultBase implements Future<ResponseStatus>  {
+	public static class FutureStatus extends FutureResultBase<ResponseStatus> {
 
         protected FutureStatus (Future<Response> pendingRequest) { super(pendingRequest); }
         public ResponseStatus get () throws InterruptedException, ExecutionException {
@@ -1508,7 +1694,7 @@ public abstract class JRedisFutureSupport implements JRedisFuture {
         }
 
 	}
-	public static class FutureBoolean extends FutureResultBase implements Future<Boolean>{
+	public static class FutureBoolean extends FutureResultBase<Boolean> {
 
         protected FutureBoolean (Future<Response> pendingRequest) { super(pendingRequest); }
 
@@ -1527,7 +1713,7 @@ public abstract class JRedisFutureSupport implements JRedisFuture {
         }
 	}
 	
-	public static class FutureBit extends FutureResultBase implements Future<Boolean> {
+	public static class FutureBit extends FutureResultBase<Boolean> {
 
         protected FutureBit (Future<Response> pendingRequest) { super(pendingRequest); }
 
@@ -1546,7 +1732,7 @@ public abstract class JRedisFutureSupport implements JRedisFuture {
         }
 	}
 	
-	public static class FutureString extends FutureResultBase implements Future<String>{
+	public static class FutureString extends FutureResultBase<String> {
 
         protected FutureString (Future<Response> pendingRequest) { super(pendingRequest); }
 
@@ -1562,7 +1748,7 @@ public abstract class JRedisFutureSupport implements JRedisFuture {
         	return valResp.getStringValue();
         }
 	}
-	public static class FutureRedisType extends FutureResultBase implements Future<RedisType>{
+	public static class FutureRedisType extends FutureResultBase<RedisType> {
 
         protected FutureRedisType (Future<Response> pendingRequest) { super(pendingRequest); }
 
@@ -1582,7 +1768,7 @@ public abstract class JRedisFutureSupport implements JRedisFuture {
         	return getRedisType(valResp);
         }
 	}
-	public static class FutureLong extends FutureResultBase implements Future<Long>{
+	public static class FutureLong extends FutureResultBase<Long> {
 
         protected FutureLong (Future<Response> pendingRequest) { super(pendingRequest); }
 
@@ -1600,7 +1786,26 @@ public abstract class JRedisFutureSupport implements JRedisFuture {
         	return valResp.getLongValue();
         }
 	}
-	public static class FutureDouble extends FutureResultBase implements Future<Double>{
+	/** number of elements of a streamed multi-bulk response */
+	public static class FutureElementCount extends FutureResultBase<Long> {
+
+        protected FutureElementCount (Future<Response> pendingRequest) { super(pendingRequest); }
+
+        @SuppressWarnings("boxing")
+		public Long get () throws InterruptedException, ExecutionException {
+        	StreamingMultiBulkResponse resp = (StreamingMultiBulkResponse) pendingRequest.get();
+        	return (long) resp.getElementCount();
+        }
+
+        @SuppressWarnings("boxing")
+		public Long get (long timeout, TimeUnit unit)
+        	throws InterruptedException, ExecutionException, TimeoutException
+        {
+        	StreamingMultiBulkResponse resp = (StreamingMultiBulkResponse) pendingRequest.get(timeout, unit);
+        	return (long) resp.getElementCount();
+        }
+	}
+	public static class FutureDouble extends FutureResultBase<Double> {
 
         protected FutureDouble (Future<Response> pendingRequest) { super(pendingRequest); }
 
@@ -1622,7 +1827,7 @@ public abstract class JRedisFutureSupport implements JRedisFuture {
         	return null;
         }
 	}
-	public static class FutureByteArray extends FutureResultBase implements Future<byte[]>{
+	public static class FutureByteArray extends FutureResultBase<byte[]> {
 
         protected FutureByteArray (Future<Response> pendingRequest) { super(pendingRequest); }
 
@@ -1638,7 +1843,7 @@ public abstract class JRedisFutureSupport implements JRedisFuture {
         	return resp.getBulkData();
         }
 	}
-	public static class FutureSortStoreResp extends FutureResultBase implements Future<List<byte[]>>{
+	public static class FutureSortStoreResp extends FutureResultBase<List<byte[]>> {
 		
         protected FutureSortStoreResp (Future<Response> pendingRequest) { super(pendingRequest); }
 		
@@ -1660,7 +1865,7 @@ public abstract class JRedisFutureSupport implements JRedisFuture {
         	return list;
         }
 	}
-	public static class FutureByteArrayList extends FutureResultBase implements Future<List<byte[]>>{
+	public static class FutureByteArrayList extends FutureResultBase<List<byte[]>> {
 
         protected FutureByteArrayList (Future<Response> pendingRequest) { super(pendingRequest); }
 
@@ -1677,7 +1882,7 @@ public abstract class JRedisFutureSupport implements JRedisFuture {
         }
 	}
 
-	public static class FutureDataDictionary extends FutureResultBase implements Future<Map<byte[], byte[]>>{
+	public static class FutureDataDictionary extends FutureResultBase<Map<byte[], byte[]>> {
 
         protected FutureDataDictionary (Future<Response> pendingRequest) { super(pendingRequest); }
 
@@ -1705,7 +1910,7 @@ public abstract class JRedisFutureSupport implements JRedisFuture {
         }
 	}
 
-	public static class FutureKeyList extends FutureResultBase implements Future<List<byte[]>>{
+	public static class FutureKeyList extends FutureResultBase<List<byte[]>> {
 
         protected FutureKeyList (Future<Response> pendingRequest) { super(pendingRequest); }
 
@@ -1738,7 +1943,7 @@ public abstract class JRedisFutureSupport implements JRedisFuture {
             	return multibulkdata;
         }
 	}
-	public static class FutureInfo extends FutureResultBase implements Future<Map<String, String>>{
+	public static class FutureInfo extends FutureResultBase<Map<String, String>> {
 
         protected FutureInfo (Future<Response> pendingRequest) { super(pendingRequest); }
 
@@ -1769,7 +1974,7 @@ public abstract class JRedisFutureSupport implements JRedisFuture {
         	return getResultMap(resp);
         }
 	}
-	public static class FutureObjectInfo extends FutureResultBase implements Future<ObjectInfo>{
+	public static class FutureObjectInfo extends FutureResultBase<ObjectInfo> {
 
         protected FutureObjectInfo (Future<Response> pendingRequest) { super(pendingRequest); }
 
@@ -1789,7 +1994,7 @@ public abstract class JRedisFutureSupport implements JRedisFuture {
         	return getObjectInfo(valResp);
         }
 	}
-	public static class FutureZSetList extends FutureResultBase implements Future<List<ZSetEntry>>{
+	public static class FutureZSetList extends FutureResultBase<List<ZSetEntry>> {
 
         protected FutureZSetList (Future<Response> pendingRequest) { super(pendingRequest); }
 
@@ -1824,7 +2029,7 @@ public abstract class JRedisFutureSupport implements JRedisFuture {
 	 * @param msg
 	 * @return
 	 */
-	public <K extends Object> Future<byte[]> echo (byte[] msg) {
+	public <K extends Object> ListenableFuture<byte[]> echo (byte[] msg) {
 		if(msg == null)
 			throw new IllegalArgumentException ("invalid value for echo => [null]");
 
@@ -1832,15 +2037,15 @@ public abstract class JRedisFutureSupport implements JRedisFuture {
 		return new FutureByteArray(futureResponse);
 		
 	}
-	public <K extends Object> Future<byte[]> echo (String msg) {
+	public <K extends Object> ListenableFuture<byte[]> echo (String msg) {
 		return echo(DefaultCodec.encode(msg));
 	}
-	public <K extends Object> Future<byte[]> echo (Number msg) {
+	public <K extends Object> ListenableFuture<byte[]> echo (Number msg) {
 		return echo(String.valueOf(msg).getBytes());
 	}
 	public <K extends Object, T extends Serializable>
-		Future<byte[]> echo (T msg) {
-			return echo (DefaultCodec.encode(msg));
+		ListenableFuture<byte[]> echo (T msg) {
+			return echo (encode(msg));
 	}
 	
 
@@ -1,221 +1,655 @@
-///*
-// *   Copyright 2009 Joubin Houshyar
-// * 
-// *   Licensed under the Apache License, Version 2.0 (the "License");
-// *   you may not use this file except in compliance with the License.
-// *   You may obtain a copy of the License at
-// *    
-// *   http://www.apache.org/licenses/LICENSE-2.0
-// *    
-// *   Unless required by applicable law or agreed to in writing, software
-// *   distributed under the License is distributed on an "AS IS" BASIS,
-// *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
-// *   See the License for the specific language governing permissions and
-// *   limitations under the License.
-// */
-//
-//package org.jredis.ri.alphazero;
-//
-//import java.util.concurrent.Semaphore;
-//import org.jredis.ClientRuntimeException;
-//import org.jredis.JRedis;
-//import org.jredis.ProviderException;
-//import org.jredis.RedisException;
-//import org.jredis.connector.Connection;
-//import org.jredis.connector.ConnectionSpec;
-//import org.jredis.protocol.Command;
-//import org.jredis.protocol.Response;
-//import org.jredis.ri.alphazero.connection.DefaultConnectionSpec;
-//import org.jredis.ri.alphazero.support.Assert;
-//import org.jredis.ri.alphazero.support.Log;
-//
-///**
-// * This class utilizes a (configurable) number of {@link Connection}s in a pool
-// * and can be utilized in multi-threaded usage contexts, such as web containers,
-// * etc.  
-// * <p>
-// * The service uses an internal pool of connections (see {@link JRedisService#default_connection_count}.  If
-// * the number of service requests being processed reaches that limit, then any further calls will block until
-// * a connection becomes available.  
-// * <p>
-// *
-// * @author  Joubin Houshyar (alphazero@sensesay.net)
-// * @version alpha.0, Apr 21, 2009
-// * @since   alpha.0
-// * 
-// */
-//
-//public class JRedisService extends SynchJRedisBase {
-//
-//	// ------------------------------------------------------------------------
-//	// Consts
-//	// ------------------------------------------------------------------------
-//	/** Default value: 5 */
-//	public static final int 	default_connection_count = 5;
-//	
-//	// ------------------------------------------------------------------------
-//	// Properties
-//	// ------------------------------------------------------------------------
-//
-//	/** counting semaphore for limiting concurrent access to pool to the count */
-//	private Semaphore   			connPoolAccess;
-//	/** in use flag for the connections */
-//	private boolean 				connInUse[];
-//	/** the connections */
-//	private Connection 				conns[];
-//	
-//	/** connection spec shared by all connections in pool */
-//	private final ConnectionSpec 	connectionSpec;
-//	/** number of connections in pool */
-//	private final int				connCount;
-//
-//	// ------------------------------------------------------------------------
-//	// Construct and initialize
-//	// ------------------------------------------------------------------------
-//	
-//	/**
-//	 * @param host
-//	 * @param port
-//	 */
-//	public JRedisService (String host, int port) {
-//		this(host, port, null, 0, default_connection_count);
-//	}
-//	
-//	/**
-//	 * @param host
-//	 * @param port
-//	 * @param password
-//	 * @param database
-//	 * @param connectionCount
-//	 */
-//	public JRedisService (String host, int port, String password, int database, int connectionCount) {
-//		byte[] credentials = password != null ? password.getBytes() : null;
-//		connectionSpec = DefaultConnectionSpec.newSpec(host, port, database, credentials);
-//		connCount = connectionCount;
-//		initialize();
-//	}
-//	
-//	/**
-//	 * @param connectionSpec
-//	 * @param connectionCount
-//	 */
-//	public JRedisService (ConnectionSpec connectionSpec, int connectionCount) {
-//		this.connectionSpec = connectionSpec;
-//		// regardless of user spec, service has to assume shared connections
-//		connectionSpec.setConnectionFlag(Connection.Flag.SHARED, true);
-//		connCount = connectionCount;
-//		
-//		initialize();
-//	}
-//	
-//	/**
-//	 * Initialize the connection pool using the connection spec.
-//	 */
-//	private final void initialize () {
-//		connPoolAccess = new Semaphore(connCount);
-//		conns = new Connection[connCount];
-//		connInUse = new boolean [connCount];
-//		Connection conn = null;
-//		connectionSpec.setConnectionFlag(Connection.Flag.RELIABLE, true);
-//		connectionSpec.setConnectionFlag(Connection.Flag.SHARED, true);
-//		for(int i=0; i< connCount;i++) {
-//			try {
-//				conn = Assert.notNull(createSynchConnection(connectionSpec), "Connection " + i, ClientRuntimeException.class);
-//				conns[i] = conn;
-//				connInUse[i] = false;
-//			} 
-//			catch (Exception e) {
-//				// TODO: remove this stacktrace
-//				e.printStackTrace();
-//				throw new ClientRuntimeException("Could not create connection for service", e);
-//			}		
-//		}
-//	}
-//
-//	// ------------------------------------------------------------------------
-//	// super overrides.
-//	// ------------------------------------------------------------------------
-//	/* (non-Javadoc)
-//	 * @see org.jredis.ri.alphazero.SynchJRedisBase#setConnection(org.jredis.connector.Connection)
-//	 */
-//	@Override
-//	protected void setConnection(Connection connection) {
-//		throw new RuntimeException("who called me?");
-//	}
-//
-//	
-//	/* (non-Javadoc)
-//	 * @see org.jredis.ri.alphazero.JRedisSupport#serviceRequest(org.jredis.protocol.Command, byte[][])
-//	 */
-//	@Override
-//	protected Response serviceRequest(Command cmd, byte[]... args)
-//			throws RedisException, ClientRuntimeException, ProviderException 
-//	{
-//		Response response = null;
-//		
-//		try {
-//			// we're using a counting semaphore to remain within
-//			// bounds of the connection count
-//			// if more than cnt requests are being serviced, we block here
-//			connPoolAccess.acquire();
-//			
-//			int i = 0;
-//			try {
-//				// bare bones connection pool - mark the first available
-//				// connection as inUse and then use it
-//				// this is faster than using the synch collections of JDK and sufficient
-//				synchronized(connInUse){	// Note: could use finer grained sync on conns[i] in loop instead ..
-//					for(; i<connInUse.length;i++){
-//						if(connInUse[i]==false) {
-//							connInUse[i] = true;
-//							break;
-//						}
-//					}
-//				}
-//				
-//				// This shouldn't happen -- but lets make sure, hey?
-//				if(i>=connCount) 
-//					throw new ProviderException("BUG: JRedisService connection pool manager - index exceeds bounds!");
-//				
-//				response = conns[i].serviceRequest(cmd, args);
-//			}
-//			finally {
-//				// return the connection to the pool
-//				synchronized(connInUse){
-//					if(connInUse[i] != true) 
-//						throw new ProviderException("BUG: JRedisService connection pool manager - connection should have been marked in use!");
-//					connInUse[i] = false;
-//				}
-//				
-//				// release the bounds sem.
-//				connPoolAccess.release();
-//			}
-//		} 
-//		catch (InterruptedException e) {
-//			// TODO: need meaningful action here
-//			// its not clear what can be done since the interrupt is occurring on the
-//			// user (calling) thread and is not connection specific, and the situation
-//			// is ambiguous.  We can note it for now.
-//			e.printStackTrace();
-//			Log.log("Thread <%s> was interrupted in JRedisService.serviceRequest", Thread.currentThread().getName());
-//		}
-//		return response;
-//	}
-//	// ------------------------------------------------------------------------
-//	// Interface
-//	// =========================================================== Resource<T>
-//	/*
-//	 * Provides basic Resource support without any state management.  Extensions
-//	 * that use context in a simply manner can rely on these methods.  Others may
-//	 * wish to override.
-//	 */
-//	// ------------------------------------------------------------------------
-//	
-//	/* (non-Javadoc)
-//	 * @see org.jredis.resource.Resource#getInterface()
-//	 */
-////	@Override
-//	public JRedis getInterface() {
-//		return this;
-//	}
-//}
+/*
+ *   Copyright 2009-2012 Joubin Houshyar
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package org.jredis.ri.alphazero;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import org.jredis.ClientRuntimeException;
+import org.jredis.JRedis;
+import org.jredis.ProviderException;
+import org.jredis.RedisException;
+import org.jredis.connector.Connection;
+import org.jredis.connector.ConnectionSpec;
+import org.jredis.connector.NotConnectedException;
+import org.jredis.protocol.Command;
+import org.jredis.protocol.Response;
+import org.jredis.protocol.ResponseStatus;
+import org.jredis.ri.alphazero.connection.DefaultConnectionSpec;
+import org.jredis.ri.alphazero.protocol.VirtualResponse;
+import org.jredis.ri.alphazero.support.Assert;
+import org.jredis.ri.alphazero.support.Log;
+
+/**
+ * This class utilizes a (configurable) number of {@link Connection}s in a pool
+ * and can be utilized in multi-threaded usage contexts, such as web containers,
+ * etc.
+ * <p>
+ * Connections are handed out without locks.  Each thread first tries the
+ * connection it used last (thread affinity), and failing that, steals the
+ * first idle connection found scanning from a thread specific offset.  The
+ * pool grows on demand from {@link PoolSpec#getMinConnections()} up to
+ * {@link PoolSpec#getMaxConnections()}; once at max, callers park until a
+ * connection is released or the {@link PoolSpec#getAcquireTimeout()} expires.
+ * <p>
+ * A daemon maintenance task evicts connections idle for longer than
+ * {@link PoolSpec#getMaxIdleTime()} (while above min size) and PINGs idle
+ * connections every {@link PoolSpec#getHealthCheckInterval()}, replacing those
+ * that fail.
+ * <p>
+ * Requests that must be issued on the same connection (e.g. MULTI blocks or
+ * blocking commands) can {@link JRedisService#pin()} a connection to the calling
+ * thread until {@link JRedisService#unpin()}.  MULTI pins automatically and
+ * EXEC/DISCARD release the automatic pin.
+ * <p>
+ * Pool level counters are available via {@link JRedisService#getStats()}.
+ *
+ * @author  Joubin Houshyar (alphazero@sensesay.net)
+ * @version alpha.0, Apr 21, 2009
+ * @since   alpha.0
+ *
+ */
+
+public class JRedisService extends SyncJRedisBase {
+
+	// ------------------------------------------------------------------------
+	// Consts
+	// ------------------------------------------------------------------------
+	/** Default value: 5 */
+	public static final int 	default_connection_count = 5;
+
+	/** slot state: available */
+	private static final int	IDLE = 0;
+	/** slot state: acquired by a thread (or the maintenance task) */
+	private static final int	IN_USE = 1;
+	/** slot state: removed from the pool */
+	private static final int	EVICTED = -1;
+
+	// ------------------------------------------------------------------------
+	// Inner Types
+	// ------------------------------------------------------------------------
+	/**
+	 * Pool sizing and maintenance parameters.  All times are in milliseconds,
+	 * and a value of 0 disables the corresponding feature.
+	 */
+	public static class PoolSpec {
+		private int		minConnections = 1;
+		private int		maxConnections = default_connection_count;
+		private long	acquireTimeout = 0;
+		private long	maxIdleTime = 60000;
+		private long	healthCheckInterval = 30000;
+
+		/** @return a spec for a fixed size pool of count connections */
+		public static PoolSpec newSpec (int count) {
+			return new PoolSpec().setMinConnections(count).setMaxConnections(count);
+		}
+
+		public int getMinConnections () { return minConnections; }
+		public PoolSpec setMinConnections (int minConnections) {
+			this.minConnections = minConnections;
+			return this;
+		}
+		public int getMaxConnections () { return maxConnections; }
+		public PoolSpec setMaxConnections (int maxConnections) {
+			this.maxConnections = maxConnections;
+			return this;
+		}
+		/** @return max wait for a connection when pool is exhausted.  0 waits indefinitely. */
+		public long getAcquireTimeout () { return acquireTimeout; }
+		public PoolSpec setAcquireTimeout (long acquireTimeout) {
+			this.acquireTimeout = acquireTimeout;
+			return this;
+		}
+		/** @return idle time after which connections above min size are evicted. */
+		public long getMaxIdleTime () { return maxIdleTime; }
+		public PoolSpec setMaxIdleTime (long maxIdleTime) {
+			this.maxIdleTime = maxIdleTime;
+			return this;
+		}
+		/** @return interval between PINGs of idle connections. */
+		public long getHealthCheckInterval () { return healthCheckInterval; }
+		public PoolSpec setHealthCheckInterval (long healthCheckInterval) {
+			this.healthCheckInterval = healthCheckInterval;
+			return this;
+		}
+	}
+
+	/**
+	 * An immutable snapshot of the pool counters.
+	 */
+	public static final class Stats {
+		private final int	size, inUse, pinned;
+		private final long	acquisitions, affinityHits, steals, waits, timeouts;
+		private final long	created, evicted, healthCheckFailures;
+
+		private Stats (JRedisService s) {
+			int cnt = 0;
+			for(int i=0; i<s.slots.length(); i++){
+				Slot slot = s.slots.get(i);
+				if(slot != null && slot.state.get() == IN_USE) cnt++;
+			}
+			size = s.size.get();
+			inUse = cnt;
+			pinned = s.pinnedCnt.get();
+			acquisitions = s.acquisitions.get();
+			affinityHits = s.affinityHits.get();
+			steals = s.steals.get();
+			waits = s.waits.get();
+			timeouts = s.timeouts.get();
+			created = s.created.get();
+			evicted = s.evicted.get();
+			healthCheckFailures = s.healthCheckFailures.get();
+		}
+		/** @return number of live connections */
+		public int getSize () { return size; }
+		/** @return number of connections in use at time of snapshot */
+		public int getInUse () { return inUse; }
+		/** @return number of connections pinned to threads */
+		public int getPinned () { return pinned; }
+		public long getAcquisitions () { return acquisitions; }
+		/** @return acquisitions satisfied by the thread's previous connection */
+		public long getAffinityHits () { return affinityHits; }
+		/** @return acquisitions satisfied by another idle connection */
+		public long getSteals () { return steals; }
+		/** @return acquisitions that had to wait for a release */
+		public long getWaits () { return waits; }
+		public long getTimeouts () { return timeouts; }
+		public long getCreated () { return created; }
+		public long getEvicted () { return evicted; }
+		public long getHealthCheckFailures () { return healthCheckFailures; }
+
+		@Override
+		public String toString () {
+			return String.format("size:%d inUse:%d pinned:%d acquisitions:%d affinityHits:%d steals:%d waits:%d timeouts:%d created:%d evicted:%d healthCheckFailures:%d",
+					size, inUse, pinned, acquisitions, affinityHits, steals, waits, timeouts, created, evicted, healthCheckFailures);
+		}
+	}
+
+	/** A pooled connection */
+	private static final class Slot {
+		final int				index;
+		final Connection		conn;
+		final AtomicInteger		state = new AtomicInteger(IN_USE);
+		volatile long			lastUsed = System.currentTimeMillis();
+		volatile long			lastChecked = lastUsed;
+		Slot (int index, Connection conn) {
+			this.index = index;
+			this.conn = conn;
+		}
+	}
+
+	// ------------------------------------------------------------------------
+	// Properties
+	// ------------------------------------------------------------------------
+
+	/** connection spec shared by all connections in pool */
+	private final ConnectionSpec 	connectionSpec;
+	/**  */
+	private final PoolSpec			poolSpec;
+	/** the connections -- null entries are free slots */
+	private final AtomicReferenceArray<Slot>	slots;
+	/** number of live connections (including those being created) */
+	private final AtomicInteger		size = new AtomicInteger();
+	/** threads parked waiting for a release */
+	private final Queue<Thread>		waiters = new ConcurrentLinkedQueue<Thread>();
+	/** the connection used last by a thread */
+	private final ThreadLocal<Slot>	affinity = new ThreadLocal<Slot>();
+	/** the connection pinned to a thread, if any */
+	private final ThreadLocal<Slot>	pinnedSlot = new ThreadLocal<Slot>();
+	/** true if the thread's pin was set by MULTI */
+	private final ThreadLocal<Boolean>	pinnedByMulti = new ThreadLocal<Boolean>();
+	/**  */
+	private final AtomicBoolean		shutdown = new AtomicBoolean(false);
+	/** maintenance (eviction and health check) -- null if neither is enabled */
+	private final ScheduledExecutorService	maintenance;
+
+	private final AtomicInteger	pinnedCnt = new AtomicInteger();
+	private final AtomicLong	acquisitions = new AtomicLong();
+	private final AtomicLong	affinityHits = new AtomicLong();
+	private final AtomicLong	steals = new AtomicLong();
+	private final AtomicLong	waits = new AtomicLong();
+	private final AtomicLong	timeouts = new AtomicLong();
+	private final AtomicLong	created = new AtomicLong();
+	private final AtomicLong	evicted = new AtomicLong();
+	private final AtomicLong	healthCheckFailures = new AtomicLong();
+
+	// ------------------------------------------------------------------------
+	// Construct and initialize
+	// ------------------------------------------------------------------------
+
+	/**
+	 * @param host
+	 * @param port
+	 */
+	public JRedisService (String host, int port) {
+		this(host, port, null, 0, default_connection_count);
+	}
+
+	/**
+	 * @param host
+	 * @param port
+	 * @param password
+	 * @param database
+	 * @param connectionCount
+	 */
+	public JRedisService (String host, int port, String password, int database, int connectionCount) {
+		this(DefaultConnectionSpec.newSpec(host, port, database, (password != null ? password.getBytes() : null)), connectionCount);
+	}
+
+	/**
+	 * Creates a fixed size pool of connectionCount connections.
+	 * @param connectionSpec
+	 * @param connectionCount
+	 */
+	public JRedisService (ConnectionSpec connectionSpec, int connectionCount) {
+		this(connectionSpec, PoolSpec.newSpec(connectionCount));
+	}
+
+	/**
+	 * @param connectionSpec
+	 * @param poolSpec
+	 */
+	public JRedisService (ConnectionSpec connectionSpec, PoolSpec poolSpec) {
+		this.connectionSpec = Assert.notNull(connectionSpec, "connectionSpec", ClientRuntimeException.class);
+		this.poolSpec = Assert.notNull(poolSpec, "poolSpec", ClientRuntimeException.class);
+		if(poolSpec.getMaxConnections() < 1 || poolSpec.getMinConnections() < 0 || poolSpec.getMinConnections() > poolSpec.getMaxConnections())
+			throw new ClientRuntimeException(String.format("invalid pool sizing: min:%d max:%d", poolSpec.getMinConnections(), poolSpec.getMaxConnections()));
+
+		// regardless of user spec, service has to assume shared connections
+		connectionSpec.setConnectionFlag(Connection.Flag.RELIABLE, true);
+		connectionSpec.setConnectionFlag(Connection.Flag.SHARED, true);
+
+		slots = new AtomicReferenceArray<Slot>(poolSpec.getMaxConnections());
+		for(int i=0; i<poolSpec.getMinConnections(); i++){
+			Slot slot = tryCreate();
+			if(slot == null) throw new ProviderException("BUG: JRedisService connection pool manager - could not reserve min slots");
+			release(slot);
+		}
+
+		long period = minPositive(poolSpec.getMaxIdleTime(), poolSpec.getHealthCheckInterval());
+		if(period > 0) {
+			period = Math.max(period / 2, 100);
+			maintenance = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+				public Thread newThread (Runnable r) {
+					Thread t = new Thread(r, "jredis-service-maintenance");
+					t.setDaemon(true);
+					return t;
+				}
+			});
+			maintenance.scheduleWithFixedDelay(new Runnable() {
+				public void run () { maintain(); }
+			}, period, period, TimeUnit.MILLISECONDS);
+		}
+		else {
+			maintenance = null;
+		}
+	}
+
+	// ------------------------------------------------------------------------
+	// super overrides.
+	// ------------------------------------------------------------------------
+	/* (non-Javadoc)
+	 * @see org.jredis.ri.alphazero.SyncJRedisBase#setConnection(org.jredis.connector.Connection)
+	 */
+	@Override
+	protected void setConnection (Connection connection) {
+		/* faulted connections are not pooled -- see newConnection() */
+	}
+
+	/* (non-Javadoc)
+	 * @see org.jredis.ri.alphazero.JRedisSupport#serviceRequest(org.jredis.protocol.Command, byte[][])
+	 */
+	@Override
+	protected Response serviceRequest (Command cmd, byte[]... args)
+			throws RedisException, ClientRuntimeException, ProviderException
+	{
+		if(cmd == Command.QUIT) {
+			shutdown();
+			return new VirtualResponse(ResponseStatus.STATUS_CIAO);
+		}
+		if(shutdown.get())
+			throw new NotConnectedException("JRedisService has been shutdown");
+
+		Slot slot = pinnedSlot.get();
+		if(slot != null) {
+			try {
+				return execute(slot, cmd, args);
+			}
+			finally {
+				if((cmd == Command.EXEC || cmd == Command.DISCARD) && pinnedByMulti.get() != null)
+					unpin();
+			}
+		}
+		if(cmd == Command.MULTI) {
+			Slot pinned = pin0();
+			pinnedByMulti.set(Boolean.TRUE);
+			try {
+				return execute(pinned, cmd, args);
+			}
+			catch (RuntimeException e) {
+				unpin();
+				throw e;
+			}
+		}
+
+		slot = acquire();
+		try {
+			return execute(slot, cmd, args);
+		}
+		finally {
+			release(slot);
+		}
+	}
+
+	// ------------------------------------------------------------------------
+	// Interface
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Pins a pooled connection to the calling thread: all requests issued by
+	 * this thread will use the same connection until {@link JRedisService#unpin()}.
+	 * Pinning an already pinned thread has no effect.
+	 * @return this service
+	 * @throws ClientRuntimeException if a connection could not be acquired
+	 */
+	public JRedis pin () throws ClientRuntimeException {
+		pin0();
+		return this;
+	}
+
+	/**
+	 * Returns the connection pinned to the calling thread (if any) to the pool.
+	 */
+	public void unpin () {
+		Slot slot = pinnedSlot.get();
+		if(slot == null) return;
+		pinnedSlot.remove();
+		pinnedByMulti.remove();
+		pinnedCnt.decrementAndGet();
+		release(slot);
+	}
+
+	/**
+	 * @return a snapshot of the pool counters
+	 */
+	public Stats getStats () {
+		return new Stats(this);
+	}
+
+	/**
+	 * Closes all idle connections and stops the maintenance task.  Connections
+	 * in use are closed on release.
+	 */
+	public void shutdown () {
+		if(!shutdown.compareAndSet(false, true)) return;
+		if(maintenance != null) maintenance.shutdownNow();
+		for(int i=0; i<slots.length(); i++){
+			Slot slot = slots.get(i);
+			if(slot != null && slot.state.compareAndSet(IDLE, IN_USE))
+				discard(slot);
+		}
+		Thread waiter = null;
+		while((waiter = waiters.poll()) != null)
+			LockSupport.unpark(waiter);
+	}
+
+	// ------------------------------------------------------------------------
+	// Interface
+	// =========================================================== Resource<T>
+	// ------------------------------------------------------------------------
+
+	/* (non-Javadoc)
+	 * @see org.jredis.resource.Resource#getInterface()
+	 */
+	public JRedis getInterface () {
+		return this;
+	}
+
+	// ------------------------------------------------------------------------
+	// Inner ops: pool management
+	// ------------------------------------------------------------------------
+
+	private Response execute (Slot slot, Command cmd, byte[]... args) throws RedisException {
+		try {
+			return slot.conn.serviceRequest(cmd, args);
+		}
+		catch (NotConnectedException e) {
+			slot.lastChecked = 0;	// flag for health check
+			throw e;
+		}
+	}
+
+	private Slot pin0 () {
+		Slot slot = pinnedSlot.get();
+		if(slot == null) {
+			slot = acquire();
+			pinnedSlot.set(slot);
+			pinnedCnt.incrementAndGet();
+		}
+		return slot;
+	}
+
+	/**
+	 * Acquires an idle connection: first the thread's previous connection, then
+	 * any idle connection, then a new connection if below max, and finally
+	 * parks awaiting a release.  A waiter that leaves after its wakeup was
+	 * signalled (and not used) signals the next waiter.
+	 */
+	private Slot acquire () throws ClientRuntimeException {
+		acquisitions.incrementAndGet();
+		Slot slot = affinity.get();
+		if(slot != null && slot.state.compareAndSet(IDLE, IN_USE)) {
+			affinityHits.incrementAndGet();
+			return slot;
+		}
+		if((slot = tryAcquire()) != null)
+			return slot;
+
+		waits.incrementAndGet();
+		final long timeout = poolSpec.getAcquireTimeout();
+		final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+		final Thread self = Thread.currentThread();
+		try {
+			for(;;) {
+				waiters.add(self);
+				// re-check after enqueue so a release in between isn't missed
+				if((slot = tryAcquire()) != null)
+					return slot;
+				if(shutdown.get())
+					throw new NotConnectedException("JRedisService has been shutdown");
+				if(timeout > 0) {
+					long remaining = deadline - System.nanoTime();
+					if(remaining <= 0) {
+						timeouts.incrementAndGet();
+						throw new ClientRuntimeException(String.format("timed out after %d msecs waiting for a pooled connection", timeout));
+					}
+					LockSupport.parkNanos(this, remaining);
+				}
+				else {
+					LockSupport.park(this);
+				}
+				if(Thread.interrupted()) {
+					Log.log("Thread <%s> was interrupted in JRedisService.acquire", self.getName());
+					self.interrupt();
+					throw new ClientRuntimeException("interrupted while waiting for a pooled connection");
+				}
+				waiters.remove(self);
+			}
+		}
+		finally {
+			// not in the queue: a release polled this thread, but it got a slot
+			// (or gave up) regardless -- pass the wakeup on to the next waiter
+			if(!waiters.remove(self))
+				signalWaiter();
+		}
+	}
+
+	/** steal an idle connection or create one -- null if pool is exhausted */
+	private Slot tryAcquire () {
+		final int n = slots.length();
+		final int offset = (int) (Thread.currentThread().getId() % n);
+		for(int i=0; i<n; i++){
+			Slot slot = slots.get((offset + i) % n);
+			if(slot != null && slot.state.compareAndSet(IDLE, IN_USE)) {
+				steals.incrementAndGet();
+				affinity.set(slot);
+				return slot;
+			}
+		}
+		Slot slot = tryCreate();
+		if(slot != null)
+			affinity.set(slot);
+		return slot;
+	}
+
+	/** @return a new (in use) slot, or null if the pool is at max size */
+	private Slot tryCreate () throws ClientRuntimeException {
+		int cnt;
+		do {
+			cnt = size.get();
+			if(cnt >= slots.length()) return null;
+		} while(!size.compareAndSet(cnt, cnt+1));
+
+		Connection conn = null;
+		try {
+			conn = newConnection();
+		}
+		catch (RuntimeException e) {
+			size.decrementAndGet();
+			throw e;
+		}
+		for(int i=0; i<slots.length(); i++){
+			Slot slot = new Slot(i, conn);
+			if(slots.compareAndSet(i, null, slot)) {
+				created.incrementAndGet();
+				return slot;
+			}
+		}
+		size.decrementAndGet();
+		throw new ProviderException("BUG: JRedisService connection pool manager - no free slot for reserved connection");
+	}
+
+	private Connection newConnection () throws ClientRuntimeException {
+		Connection conn = createSyncConnection(connectionSpec);
+		if(conn == null)
+			throw new NotConnectedException(String.format("Could not create connection for service to %s:%d", connectionSpec.getAddress(), connectionSpec.getPort()));
+		return conn;
+	}
+
+	private void release (Slot slot) {
+		if(shutdown.get()) {
+			discard(slot);
+			return;
+		}
+		slot.lastUsed = System.currentTimeMillis();
+		idle(slot);
+	}
+
+	/** returns the (in use) slot to the pool, waking a waiter */
+	private void idle (Slot slot) {
+		if(!slot.state.compareAndSet(IN_USE, IDLE))
+			throw new ProviderException("BUG: JRedisService connection pool manager - connection should have been marked in use!");
+		signalWaiter();
+	}
+
+	/** wakes a thread waiting for a connection, if any */
+	private void signalWaiter () {
+		Thread waiter = waiters.poll();
+		if(waiter != null)
+			LockSupport.unpark(waiter);
+	}
+
+	/** removes the (in use) slot from the pool and closes its connection */
+	private void discard (Slot slot) {
+		if(!slot.state.compareAndSet(IN_USE, EVICTED)) return;
+		if(slots.compareAndSet(slot.index, slot, null))
+			size.decrementAndGet();
+		evicted.incrementAndGet();
+		// a waiter can now create a connection in its place
+		signalWaiter();
+		try {
+			slot.conn.serviceRequest(Command.QUIT);
+		}
+		catch (Exception e) {
+			Log.debug("JRedisService: error closing pooled connection: %s", e.getMessage());
+		}
+	}
+
+	/**
+	 * Evicts connections idle for longer than max idle time (keeping min size),
+	 * and PINGs idle connections due for a health check, replacing those that fail.
+	 */
+	private void maintain () {
+		final long now = System.currentTimeMillis();
+		final long maxIdle = poolSpec.getMaxIdleTime();
+		final long checkInterval = poolSpec.getHealthCheckInterval();
+		for(int i=0; i<slots.length() && !shutdown.get(); i++){
+			Slot slot = slots.get(i);
+			if(slot == null || !slot.state.compareAndSet(IDLE, IN_USE)) continue;
+
+			if(maxIdle > 0 && now - slot.lastUsed > maxIdle && size.get() > poolSpec.getMinConnections()) {
+				discard(slot);
+				continue;
+			}
+			if(checkInterval > 0 && now - slot.lastChecked > checkInterval) {
+				slot.lastChecked = now;
+				try {
+					slot.conn.serviceRequest(Command.PING);
+				}
+				catch (Exception e) {
+					healthCheckFailures.incrementAndGet();
+					Log.error("JRedisService: pooled connection failed health check: %s", e.getMessage());
+					discard(slot);
+					replenish();
+					continue;
+				}
+			}
+			// not release(slot): the check does not count as a use for eviction
+			idle(slot);
+		}
+		replenish();
+	}
+
+	/** restores the pool to min size */
+	private void replenish () {
+		while(!shutdown.get() && size.get() < poolSpec.getMinConnections()) {
+			try {
+				Slot slot = tryCreate();
+				if(slot == null) break;
+				release(slot);
+			}
+			catch (ClientRuntimeException e) {
+				Log.error("JRedisService: failed to replenish pool: %s", e.getMessage());
+				break;
+			}
+		}
+	}
+
+	private static long minPositive (long a, long b) {
+		if(a <= 0) return b > 0 ? b : 0;
+		if(b <= 0) return a;
+		return Math.min(a, b);
+	}
+}
@@ -27,8 +27,10 @@ import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
 import org.jredis.ClientRuntimeException;
+import org.jredis.ElementConsumer;
 import org.jredis.JRedis;
 import org.jredis.KeyValueSet;
+import org.jredis.NotSupportedException;
 import org.jredis.ObjectInfo;
 import org.jredis.ProviderException;
 import org.jredis.Redis;
@@ -41,13 +43,18 @@ import org.jredis.protocol.BulkResponse;
 import org.jredis.protocol.Command;
 import org.jredis.protocol.MultiBulkResponse;
 import org.jredis.protocol.Response;
+import org.jredis.protocol.StreamingMultiBulkResponse;
 import org.jredis.protocol.ValueResponse;
 import org.jredis.ri.RI.Release;
 import org.jredis.ri.RI.Version;
+import org.jredis.ri.alphazero.semantics.CachingKeyCodec;
+import org.jredis.ri.alphazero.semantics.CompactCodecs;
 import org.jredis.ri.alphazero.semantics.DefaultKeyCodec;
 import org.jredis.ri.alphazero.support.Convert;
 import org.jredis.ri.alphazero.support.DefaultCodec;
 import org.jredis.ri.alphazero.support.SortSupport;
+import org.jredis.semantics.CodecManager;
+import org.jredis.semantics.KeyCodec;
 
 /**
  * 
@@ -63,6 +70,53 @@ public abstract class JRedisSupport implements JRedis {
 	// ------------------------------------------------------------------------
 	// Properties
 	// ------------------------------------------------------------------------
+	/** codecs of the {@link Serializable} values -- Java serialization if null (default) */
+	private volatile CodecManager codecManager;
+	
+	/**
+	 * Sets the codecs used to encode the {@link Serializable} values of requests,
+	 * e.g. {@link CompactCodecs#newCodecManager()}.  Values of types without a codec
+	 * are (as by default) encoded with Java serialization. 
+	 * <p>
+	 * The codecs are only used by the <code>&lt;T extends Serializable&gt;</code> value 
+	 * overloads, e.g. <code>set(K, T)</code>, which the compiler selects for values 
+	 * with a static type other than <code>String</code>, <code>byte[]</code> and 
+	 * <code>Number</code>.  The <code>String</code> (UTF-8), <code>byte[]</code> (as is) 
+	 * and <code>Number</code> (decimal) overloads never use them -- the {@link CompactCodecs}
+	 * of these types encode values as these overloads do, so that a value is encoded
+	 * the same whichever overload is selected.  
+	 * <p>
+	 * This is a method of the RI (and not of the {@link JRedis} interface).
+	 * <p>
+	 * Note that the values must be decoded with the same codecs: {@link DefaultCodec#decode(byte[])}
+	 * fails on values written with a codec of the codec manager.
+	 * @param codecManager the codecs, or null for Java serialization of all values
+	 */
+	public void setCodecManager (CodecManager codecManager) {
+		this.codecManager = codecManager;
+	}
+	
+	/** @return the codecs of the {@link Serializable} values, or null */
+	public CodecManager getCodecManager () {
+		return codecManager;
+	}
+	
+	/** codec of the keys of requests */
+	private volatile KeyCodec<Object> keyCodec = DefaultKeyCodec.provider();
+	
+	/**
+	 * Sets the codec used to encode the keys of requests, e.g. a {@link CachingKeyCodec}
+	 * for a limited set of keys that are used repeatedly.
+	 * @param keyCodec the key codec, or null for the {@link DefaultKeyCodec}
+	 */
+	public void setKeyCodec (KeyCodec<Object> keyCodec) {
+		this.keyCodec = null != keyCodec ? keyCodec : DefaultKeyCodec.provider();
+	}
+	
+	/** @return the codec of the keys of requests */
+	public KeyCodec<Object> getKeyCodec () {
+		return keyCodec;
+	}
 
 	// ------------------------------------------------------------------------
 	// Constructors
@@ -93,6 +147,24 @@ public abstract class JRedisSupport implements JRedis {
 	 * @throws ProviderException
 	 */
 	protected abstract Response serviceRequest (Command cmd, byte[]...args) throws RedisException, ClientRuntimeException, ProviderException; 
+	
+	/**
+	 * Streaming variant of {@link JRedisSupport#serviceRequest(Command, byte[]...)}, per
+	 * {@link org.jredis.connector.StreamingConnection#serviceRequest(ElementConsumer, Command, byte[]...)}.
+	 * Extensions that support streaming of multi-bulk replies override this method.
+	 * 
+	 * @param consumer
+	 * @param cmd
+	 * @param args
+	 * @return the {@link StreamingMultiBulkResponse}
+	 * @throws RedisException
+	 * @throws ClientRuntimeException
+	 * @throws ProviderException
+	 * @throws NotSupportedException by default
+	 */
+	protected Response serviceRequest (ElementConsumer consumer, Command cmd, byte[]...args) throws RedisException, ClientRuntimeException, ProviderException {
+		throw new NotSupportedException ("streaming of multi-bulk replies is not supported by " + getClass().getSimpleName());
+	}
 	// ------------------------------------------------------------------------
 	// INTERFACE
 	// ================================================================ Redis
@@ -118,7 +190,7 @@ public abstract class JRedisSupport implements JRedis {
 	@Override
 	public <K> boolean setbit(K key, int offset, boolean value) throws ProviderException, ClientRuntimeException, RedisException {
 		byte[] keybytes = null;
-		if((keybytes = getKeyBytes(key)) == null) 
+		if((keybytes = encodeKey(key)) == null) 
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		/* ValueRespose */
@@ -135,7 +207,7 @@ public abstract class JRedisSupport implements JRedis {
 	@Override
 	public <K> boolean getbit(K key, int offset) throws ProviderException, ClientRuntimeException, RedisException {
 		byte[] keybytes = null;
-		if((keybytes = getKeyBytes(key)) == null) 
+		if((keybytes = encodeKey(key)) == null) 
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		/* ValueRespose */
@@ -201,7 +273,7 @@ public abstract class JRedisSupport implements JRedis {
 	
 	public <K extends Object> void slaveof(String host, int port) throws RedisException{
 		byte[] hostbytes = null;
-		if((hostbytes = getKeyBytes(host)) == null) 
+		if((hostbytes = encodeKey(host)) == null) 
 			throw new IllegalArgumentException ("invalid host => ["+host+"]");
 
 		byte[] portbytes = null;
@@ -218,11 +290,11 @@ public abstract class JRedisSupport implements JRedis {
 	@Override
 	public <K extends Object> void rename(K oldkey, K newkey) throws RedisException {
 		byte[] oldkeydata = null;
-		if((oldkeydata = getKeyBytes(oldkey)) == null) 
+		if((oldkeydata = encodeKey(oldkey)) == null) 
 			throw new IllegalArgumentException ("invalid key => ["+oldkey+"]");
 
 		byte[] newkeydata = null;
-		if((newkeydata = getKeyBytes(newkey)) == null) 
+		if((newkeydata = encodeKey(newkey)) == null) 
 			throw new IllegalArgumentException ("invalid key => ["+newkey+"]");
 
 		this.serviceRequest(Command.RENAME, oldkeydata, newkeydata);
@@ -231,11 +303,11 @@ public abstract class JRedisSupport implements JRedis {
 	@Override
 	public <K extends Object> boolean renamenx(K oldkey, K newkey) throws RedisException{
 		byte[] oldkeydata = null;
-		if((oldkeydata = getKeyBytes(oldkey)) == null) 
+		if((oldkeydata = encodeKey(oldkey)) == null) 
 			throw new IllegalArgumentException ("invalid key => ["+oldkey+"]");
 
 		byte[] newkeydata = null;
-		if((newkeydata = getKeyBytes(newkey)) == null) 
+		if((newkeydata = encodeKey(newkey)) == null) 
 			throw new IllegalArgumentException ("invalid key => ["+newkey+"]");
 
 		/* boolean ValueRespose */
@@ -254,10 +326,10 @@ public abstract class JRedisSupport implements JRedis {
 	throws RedisException 
 	{
 		byte[] srckeybytes = null;
-		if((srckeybytes = getKeyBytes(srcList)) == null) 
+		if((srckeybytes = encodeKey(srcList)) == null) 
 			throw new IllegalArgumentException ("invalid src key => ["+srcList+"]");
 		byte[] destkeybytes = null;
-		if((destkeybytes = getKeyBytes(destList)) == null) 
+		if((destkeybytes = encodeKey(destList)) == null) 
 			throw new IllegalArgumentException ("invalid dest key => ["+destList+"]");
 		byte[] bulkData= null;
 		try {
@@ -276,7 +348,7 @@ public abstract class JRedisSupport implements JRedis {
 	throws RedisException 
 	{
 		byte[] keybytes = null;
-		if((keybytes = getKeyBytes(key)) == null) 
+		if((keybytes = encodeKey(key)) == null) 
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 		
 		if(value == null) 
@@ -296,7 +368,7 @@ public abstract class JRedisSupport implements JRedis {
 	@Override
 	public <K extends Object, T extends Serializable> void rpush (K key, T value) throws RedisException
 	{
-		rpush(key, DefaultCodec.encode(value));
+		rpush(key, encode(value));
 	}
 
 	@Override
@@ -304,7 +376,7 @@ public abstract class JRedisSupport implements JRedis {
 	throws RedisException 
 	{
 		byte[] keybytes = null;
-		if((keybytes = getKeyBytes(key)) == null) 
+		if((keybytes = encodeKey(key)) == null) 
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 		/* boolean ValueRespose */
 		boolean res = false;
@@ -328,7 +400,7 @@ public abstract class JRedisSupport implements JRedis {
 	@Override
 	public <K extends Object, T extends Serializable> boolean sadd (K key, T value) throws RedisException
 	{
-		return sadd (key, DefaultCodec.encode(value));
+		return sadd (key, encode(value));
 	}
 
 	@Override
@@ -336,7 +408,7 @@ public abstract class JRedisSupport implements JRedis {
 	throws RedisException 
 	{
 		byte[] keybytes = null;
-		if((keybytes = getKeyBytes(key)) == null) 
+		if((keybytes = encodeKey(key)) == null) 
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 		/* boolean ValueRespose */
 		boolean res = false;
@@ -360,7 +432,7 @@ public abstract class JRedisSupport implements JRedis {
 	@Override
 	public <K extends Object, T extends Serializable> boolean zadd (K key, double score, T value) throws RedisException
 	{
-		return zadd (key, score, DefaultCodec.encode(value));
+		return zadd (key, score, encode(value));
 	}
 
 	@SuppressWarnings("boxing")
@@ -369,7 +441,7 @@ public abstract class JRedisSupport implements JRedis {
 	throws RedisException 
 	{
 		byte[] keybytes = null;
-		if((keybytes = getKeyBytes(key)) == null) 
+		if((keybytes = encodeKey(key)) == null) 
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 		/* Double BulkResponse */
 		Double resvalue = null;
@@ -394,7 +466,7 @@ public abstract class JRedisSupport implements JRedis {
 	@Override
 	public <K extends Object, T extends Serializable> Double zincrby (K key, double score, T value) throws RedisException
 	{
-		return zincrby (key, score, DefaultCodec.encode(value));
+		return zincrby (key, score, encode(value));
 	}
 
 	
@@ -410,7 +482,7 @@ public abstract class JRedisSupport implements JRedis {
 	@Override
 	public <K extends Object> void set(K key, byte[] value) throws RedisException {
 		byte[] keybytes = null;
-		if((keybytes = getKeyBytes(key)) == null) 
+		if((keybytes = encodeKey(key)) == null) 
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		this.serviceRequest(Command.SET, keybytes, value);
@@ -426,13 +498,13 @@ public abstract class JRedisSupport implements JRedis {
 	@Override
 	public <K extends Object, T extends Serializable> void set (K key, T value) throws RedisException
 	{
-		set(key, DefaultCodec.encode(value));
+		set(key, encode(value));
 	}
 	
 	@Override
 	public <K extends Object> byte[] getset(K key, byte[] value) throws RedisException {
 		byte[] keybytes = null;
-		if((keybytes = getKeyBytes(key)) == null) 
+		if((keybytes = encodeKey(key)) == null) 
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		byte[] bulkData= null;
@@ -457,13 +529,13 @@ public abstract class JRedisSupport implements JRedis {
 	public <K extends Object, T extends Serializable> 
 	byte[] getset (K key, T value) throws RedisException
 	{
-		return getset(key, DefaultCodec.encode(value));
+		return getset(key, encode(value));
 	}
 	
 	@Override
 	public <K extends Object> boolean setnx(K key, byte[] value) throws RedisException{
 		byte[] keybytes = null;
-		if((keybytes = getKeyBytes(key)) == null) 
+		if((keybytes = encodeKey(key)) == null) 
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		boolean resvalue = false;
@@ -486,14 +558,14 @@ public abstract class JRedisSupport implements JRedis {
 	}
 	@Override
 	public <K extends Object, T extends Serializable> boolean setnx (K key, T value) throws RedisException {
-		return setnx(key, DefaultCodec.encode(value));
+		return setnx(key, encode(value));
 	}
 
 	
 	@Override
 	public <K extends Object> long append(K key, byte[] value) throws RedisException{
 		byte[] keybytes = null;
-		if((keybytes = getKeyBytes(key)) == null) 
+		if((keybytes = encodeKey(key)) == null) 
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		long resvalue = -1;
@@ -516,7 +588,7 @@ public abstract class JRedisSupport implements JRedis {
 	}
 	@Override
 	public <K extends Object, T extends Serializable> long append (K key, T value) throws RedisException {
-		return append(key, DefaultCodec.encode(value));
+		return append(key, encode(value));
 	}
 
 	private boolean msetnx(byte[][] mappings) throws RedisException {
@@ -536,7 +608,7 @@ public abstract class JRedisSupport implements JRedis {
 		byte[][] mappings = new byte[keyValueMap.size()*2][];
 		int i = 0;
 		for (Entry<K, byte[]> e : keyValueMap.entrySet()){
-			mappings[i++] = getKeyBytes(e.getKey());
+			mappings[i++] = encodeKey(e.getKey());
 			mappings[i++] = e.getValue();
 		}
 		return msetnx(mappings);
@@ -562,7 +634,7 @@ public abstract class JRedisSupport implements JRedis {
 	@Override
 	public <K extends Object> boolean sismember(K key, byte[] member) throws RedisException {
 		byte[] keybytes = null;
-		if((keybytes = getKeyBytes(key)) == null) 
+		if((keybytes = encodeKey(key)) == null) 
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		/* boolean ValueRespose */
@@ -589,16 +661,16 @@ public abstract class JRedisSupport implements JRedis {
 
 	@Override
 	public <K extends Object, T extends Serializable> boolean sismember(K key, T object) throws RedisException {
-		return sismember(key, DefaultCodec.encode(object));
+		return sismember(key, encode(object));
 	}
 
 	public <K extends Object> boolean smove (K srcKey, K destKey, byte[] member) throws RedisException {
 		byte[] srcKeyBytes = null;
-		if((srcKeyBytes = getKeyBytes(srcKey)) == null) 
+		if((srcKeyBytes = encodeKey(srcKey)) == null) 
 			throw new IllegalArgumentException ("invalid key => ["+srcKey+"]");
 
 		byte[] destKeyBytes = null;
-		if((destKeyBytes = getKeyBytes(destKey)) == null) 
+		if((destKeyBytes = encodeKey(destKey)) == null) 
 			throw new IllegalArgumentException ("invalid key => ["+destKey+"]");
 
 		/* boolean ValueRespose */
@@ -620,7 +692,7 @@ public abstract class JRedisSupport implements JRedis {
 	}
 	public <K extends Object, T extends Serializable> 
 	boolean smove (K srcKey, K destKey, T object) throws RedisException {
-		return smove (srcKey, destKey, DefaultCodec.encode(object));
+		return smove (srcKey, destKey, encode(object));
 	}
 		   
 	// ------------------------------------------------------------------------
@@ -629,11 +701,11 @@ public abstract class JRedisSupport implements JRedis {
 	
 	public <K extends Object> boolean hset(K hashKey, K hashField, byte[] value)  throws RedisException {
 		byte[] hashKeyBytes = null;
-		if((hashKeyBytes = getKeyBytes(hashKey)) == null) 
+		if((hashKeyBytes = encodeKey(hashKey)) == null) 
 			throw new IllegalArgumentException ("invalid key => ["+hashKey+"]");
 
 		byte[] hashFieldBytes = null;
-		if((hashFieldBytes = getKeyBytes(hashField)) == null) 
+		if((hashFieldBytes = encodeKey(hashField)) == null) 
 			throw new IllegalArgumentException ("invalid field => ["+hashField+"]");
 
 		/* boolean ValueRespose */
@@ -655,16 +727,16 @@ public abstract class JRedisSupport implements JRedis {
 	}
 	public <K extends Object, T extends Serializable> 
 	boolean hset(K key, K field, T object)  throws RedisException {
-		return hset (key, field, DefaultCodec.encode(object));
+		return hset (key, field, encode(object));
 	}
 	
 	public <K extends Object> byte[] hget(K hashKey, K hashField)  throws RedisException {
 		byte[] hashKeyBytes = null;
-		if((hashKeyBytes = getKeyBytes(hashKey)) == null) 
+		if((hashKeyBytes = encodeKey(hashKey)) == null) 
 			throw new IllegalArgumentException ("invalid key => ["+hashKey+"]");
 
 		byte[] hashFieldBytes = null;
-		if((hashFieldBytes = getKeyBytes(hashField)) == null) 
+		if((hashFieldBytes = encodeKey(hashField)) == null) 
 			throw new IllegalArgumentException ("invalid field => ["+hashField+"]");
 
 		byte[] bulkData= null;
@@ -680,11 +752,11 @@ public abstract class JRedisSupport implements JRedis {
 	
 	public <K extends Object> boolean hexists(K hashKey, K hashField)  throws RedisException {
 		byte[] hashKeyBytes = null;
-		if((hashKeyBytes = getKeyBytes(hashKey)) == null) 
+		if((hashKeyBytes = encodeKey(hashKey)) == null) 
 			throw new IllegalArgumentException ("invalid key => ["+hashKey+"]");
 
 		byte[] hashFieldBytes = null;
-		if((hashFieldBytes = getKeyBytes(hashField)) == null) 
+		if((hashFieldBytes = encodeKey(hashField)) == null) 
 			throw new IllegalArgumentException ("invalid field => ["+hashField+"]");
 
 		boolean resp = false;
@@ -700,11 +772,11 @@ public abstract class JRedisSupport implements JRedis {
 	@Override
 	public <K extends Object> boolean hdel(K hashKey, K hashField)  throws RedisException {
 		byte[] hashKeyBytes = null;
-		if((hashKeyBytes = getKeyBytes(hashKey)) == null) 
+		if((hashKeyBytes = encodeKey(hashKey)) == null) 
 			throw new IllegalArgumentException ("invalid key => ["+hashKey+"]");
 
 		byte[] hashFieldBytes = null;
-		if((hashFieldBytes = getKeyBytes(hashField)) == null) 
+		if((hashFieldBytes = encodeKey(hashField)) == null) 
 			throw new IllegalArgumentException ("invalid field => ["+hashField+"]");
 
 		boolean resp = false;
@@ -720,7 +792,7 @@ public abstract class JRedisSupport implements JRedis {
 	@Override
 	public <K extends Object> long hlen(K hashKey)  throws RedisException {
 		byte[] hashKeyBytes = null;
-		if((hashKeyBytes = getKeyBytes(hashKey)) == null) 
+		if((hashKeyBytes = encodeKey(hashKey)) == null) 
 			throw new IllegalArgumentException ("invalid key => ["+hashKey+"]");
 
 		long resp = 0;
@@ -737,7 +809,7 @@ public abstract class JRedisSupport implements JRedis {
 	@Override
 	public <K extends Object> List<byte[]> hkeys(K hashKey)  throws RedisException {
 		byte[] hashKeyBytes = null;
-		if((hashKeyBytes = getKeyBytes(hashKey)) == null) 
+		if((hashKeyBytes = encodeKey(hashKey)) == null) 
 			throw new IllegalArgumentException ("invalid key => ["+hashKey+"]");
 
 		List<byte[]> multibulkData = null;
@@ -756,7 +828,7 @@ public abstract class JRedisSupport implements JRedis {
 	@Override
 	public <K extends Object> List<byte[]> hvals(K hashKey)  throws RedisException {
 		byte[] hashKeyBytes = null;
-		if((hashKeyBytes = getKeyBytes(hashKey)) == null) 
+		if((hashKeyBytes = encodeKey(hashKey)) == null) 
 			throw new IllegalArgumentException ("invalid key => ["+hashKey+"]");
 
 		List<byte[]> resp = null;
@@ -774,7 +846,7 @@ public abstract class JRedisSupport implements JRedis {
 	@Override
 	public <K extends Object> Map<byte[], byte[]> hgetall(K hashKey)  throws RedisException {
 		byte[] hashKeyBytes = null;
-		if((hashKeyBytes = getKeyBytes(hashKey)) == null) 
+		if((hashKeyBytes = encodeKey(hashKey)) == null) 
 			throw new IllegalArgumentException ("invalid key => ["+hashKey+"]");
 
 		Map<byte[], byte[]> resp = null;
@@ -794,13 +866,23 @@ public abstract class JRedisSupport implements JRedis {
 		return resp;
 	}
 
+	@Redis(versions="1.3.n")
+	@Override
+	public <K extends Object> long hgetall(K hashKey, ElementConsumer consumer)  throws RedisException {
+		byte[] hashKeyBytes = null;
+		if((hashKeyBytes = encodeKey(hashKey)) == null) 
+			throw new IllegalArgumentException ("invalid key => ["+hashKey+"]");
+
+		return streamRequest(consumer, Command.HGETALL, hashKeyBytes);
+	}
+
 	
 	/* ------------------------------- commands returning int value --------- */
 
 	@Override
 	public <K extends Object> long incr(K key) throws RedisException {
 		byte[] keybytes = null;
-		if((keybytes = getKeyBytes(key)) == null) 
+		if((keybytes = encodeKey(key)) == null) 
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		/* ValueRespose */
@@ -818,7 +900,7 @@ public abstract class JRedisSupport implements JRedis {
 	@Override
 	public <K extends Object> long incrby(K key, int delta) throws RedisException {
 		byte[] keybytes = null;
-		if((keybytes = getKeyBytes(key)) == null) 
+		if((keybytes = encodeKey(key)) == null) 
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		/* ValueRespose */
@@ -836,7 +918,7 @@ public abstract class JRedisSupport implements JRedis {
 	@Override
 	public <K extends Object> long decr(K key) throws RedisException {
 		byte[] keybytes = null;
-		if((keybytes = getKeyBytes(key)) == null) 
+		if((keybytes = encodeKey(key)) == null) 
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		/* ValueRespose */
@@ -854,7 +936,7 @@ public abstract class JRedisSupport implements JRedis {
 	@Override
 	public <K extends Object> long decrby(K key, int delta) throws RedisException {
 		byte[] keybytes = null;
-		if((keybytes = getKeyBytes(key)) == null) 
+		if((keybytes = encodeKey(key)) == null) 
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		/* ValueRespose */
@@ -872,7 +954,7 @@ public abstract class JRedisSupport implements JRedis {
 	@Override
 	public <K extends Object> long llen(K key) throws RedisException {
 		byte[] keybytes = null;
-		if((keybytes = getKeyBytes(key)) == null) 
+		if((keybytes = encodeKey(key)) == null) 
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		/* ValueRespose */ /* int since max size is 1GB, an integer 1,073,741,824 */
@@ -890,7 +972,7 @@ public abstract class JRedisSupport implements JRedis {
 	@Override
 	public <K extends Object> long scard(K key) throws RedisException {
 		byte[] keybytes = null;
-		if((keybytes = getKeyBytes(key)) == null) 
+		if((keybytes = encodeKey(key)) == null) 
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 		long value = Long.MIN_VALUE;
 		try {
@@ -906,7 +988,7 @@ public abstract class JRedisSupport implements JRedis {
 	@Override
 	public <K extends Object> long zcard(K key) throws RedisException {
 		byte[] keybytes = null;
-		if((keybytes = getKeyBytes(key)) == null) 
+		if((keybytes = encodeKey(key)) == null) 
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 		long value = Long.MIN_VALUE;
 		try {
@@ -921,7 +1003,7 @@ public abstract class JRedisSupport implements JRedis {
 	
 	public <K extends Object> byte[] srandmember (K setkey) throws RedisException {
 		byte[] keybytes = null;
-		if((keybytes = getKeyBytes(setkey)) == null) 
+		if((keybytes = encodeKey(setkey)) == null) 
 			throw new IllegalArgumentException ("invalid key => ["+setkey+"]");
 
 		byte[] bulkData= null;
@@ -937,7 +1019,7 @@ public abstract class JRedisSupport implements JRedis {
 
 	public <K extends Object> byte[] spop (K setkey) throws RedisException {
 		byte[] keybytes = null;
-		if((keybytes = getKeyBytes(setkey)) == null) 
+		if((keybytes = encodeKey(setkey)) == null) 
 			throw new IllegalArgumentException ("invalid key => ["+setkey+"]");
 
 		byte[] bulkData= null;
@@ -983,7 +1065,7 @@ public abstract class JRedisSupport implements JRedis {
 	@Override
 	public <K extends Object> byte[] get(K key) throws RedisException {
 		byte[] keybytes = null;
-		if((keybytes = getKeyBytes(key)) == null) 
+		if((keybytes = encodeKey(key)) == null) 
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		byte[] bulkData= null;
@@ -1000,7 +1082,7 @@ public abstract class JRedisSupport implements JRedis {
 	@Override
 	public <K extends Object> byte[] lindex(K key, long index) throws RedisException {
 		byte[] keybytes = null;
-		if((keybytes = getKeyBytes(key)) == null) 
+		if((keybytes = encodeKey(key)) == null) 
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		byte[] bulkData= null;
@@ -1016,7 +1098,7 @@ public abstract class JRedisSupport implements JRedis {
 	@Override
 	public <K extends Object> byte[] lpop(K key) throws RedisException {
 		byte[] keybytes = null;
-		if((keybytes = getKeyBytes(key)) == null) 
+		if((keybytes = encodeKey(key)) == null) 
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		byte[] bulkData= null;
@@ -1033,7 +1115,7 @@ public abstract class JRedisSupport implements JRedis {
 	@Override
 	public <K extends Object> byte[] rpop(K key) throws RedisException {
 		byte[] keybytes = null;
-		if((keybytes = getKeyBytes(key)) == null) 
+		if((keybytes = encodeKey(key)) == null) 
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		byte[] bulkData= null;
@@ -1071,7 +1153,7 @@ public abstract class JRedisSupport implements JRedis {
 	@Override
 	public <K extends Object> RedisType type(K key) throws RedisException {
 		byte[] keybytes = null;
-		if((keybytes = getKeyBytes(key)) == null) 
+		if((keybytes = encodeKey(key)) == null) 
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		RedisType	type = null;
@@ -1090,7 +1172,7 @@ public abstract class JRedisSupport implements JRedis {
 	@Override
 	public <K extends Object> ObjectInfo debug (K key) throws RedisException {
 		
-		byte[] keybytes = getKeyBytes(key);
+		byte[] keybytes = encodeKey(key);
 //		if(key.length() == 0)
 //			throw new IllegalArgumentException ("invalid zero length key => ["+key+"]");
 
@@ -1144,7 +1226,7 @@ public abstract class JRedisSupport implements JRedis {
 		byte[][] mappings = new byte[keyValueMap.size()*2][];
 		int i = 0;
 		for (Entry<K, byte[]> e : keyValueMap.entrySet()){
-			mappings[i++] = getKeyBytes(e.getKey());
+			mappings[i++] = encodeKey(e.getKey());
 			mappings[i++] = e.getValue();
 		}
 		mset(mappings);
@@ -1170,7 +1252,7 @@ public abstract class JRedisSupport implements JRedis {
 		byte[][] keybytes = new byte[keys.length][];
 		int i=0;
 		for(K k : keys) {
-			if((keydata = getKeyBytes(k)) == null) 
+			if((keydata = encodeKey(k)) == null) 
 				throw new IllegalArgumentException ("invalid key => ["+k+"] @ index: " + i);
 			
 			keybytes[i++] = keydata;
@@ -1190,7 +1272,7 @@ public abstract class JRedisSupport implements JRedis {
 	@Override
 	public <K extends Object> List<byte[]> smembers(K key) throws RedisException {
 		byte[] keydata = null;
-		if((keydata = getKeyBytes(key)) == null) 
+		if((keydata = encodeKey(key)) == null) 
 			throw new RedisException (Command.KEYS, "ERR Invalid key.");
 
 		List<byte[]> multiBulkData= null;
@@ -1204,6 +1286,14 @@ public abstract class JRedisSupport implements JRedis {
 		return multiBulkData;
 	}
 	@Override
+	public <K extends Object> long smembers(K key, ElementConsumer consumer) throws RedisException {
+		byte[] keydata = null;
+		if((keydata = encodeKey(key)) == null) 
+			throw new RedisException (Command.SMEMBERS, "ERR Invalid key.");
+
+		return streamRequest(consumer, Command.SMEMBERS, keydata);
+	}
+	@Override
 	public <K extends Object> List<byte[]> keys() throws RedisException {
 		return this.keys("*");
 	}
@@ -1211,7 +1301,7 @@ public abstract class JRedisSupport implements JRedis {
 	@Override
 	public <K extends Object> List<byte[]> keys(K pattern) throws RedisException {
 		byte[] keydata = null;
-		if((keydata = getKeyBytes(pattern)) == null) 
+		if((keydata = encodeKey(pattern)) == null) 
 			throw new RedisException (Command.KEYS, "ERR Invalid key.");
 
 		List<byte[]> multiBulkData= null;
@@ -1243,10 +1333,19 @@ public abstract class JRedisSupport implements JRedis {
 		*/
 	}
 
+	@Override
+	public <K extends Object> long keys(K pattern, ElementConsumer consumer) throws RedisException {
+		byte[] keydata = null;
+		if((keydata = encodeKey(pattern)) == null) 
+			throw new RedisException (Command.KEYS, "ERR Invalid key.");
+
+		return streamRequest(consumer, Command.KEYS, keydata);
+	}
+
 	@Override
 	public <K extends Object> List<byte[]> lrange(K key, long from, long to) throws RedisException {
 		byte[] keybytes = null;
-		if((keybytes = getKeyBytes(key)) == null) 
+		if((keybytes = encodeKey(key)) == null) 
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		byte[] fromBytes = Convert.toBytes(from);
@@ -1263,10 +1362,22 @@ public abstract class JRedisSupport implements JRedis {
 		return multiBulkData;
 	}
 
+	@Override
+	public <K extends Object> long lrange(K key, long from, long to, ElementConsumer consumer) throws RedisException {
+		byte[] keybytes = null;
+		if((keybytes = encodeKey(key)) == null) 
+			throw new IllegalArgumentException ("invalid key => ["+key+"]");
+
+		byte[] fromBytes = Convert.toBytes(from);
+		byte[] toBytes = Convert.toBytes(to);
+
+		return streamRequest(consumer, Command.LRANGE, keybytes, fromBytes, toBytes);
+	}
+
 	@Override
 	public <K extends Object> byte[] substr(K key, long from, long to) throws RedisException {
 		byte[] keybytes = null;
-		if((keybytes = getKeyBytes(key)) == null) 
+		if((keybytes = encodeKey(key)) == null) 
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		byte[] fromBytes = Convert.toBytes(from);
@@ -1286,7 +1397,7 @@ public abstract class JRedisSupport implements JRedis {
 	@Override
 	public <K extends Object> List<byte[]> zrangebyscore (K key, double minScore, double maxScore) throws RedisException {
 		byte[] keybytes = null;
-		if((keybytes = getKeyBytes(key)) == null) 
+		if((keybytes = encodeKey(key)) == null) 
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		byte[] fromBytes = Convert.toBytes(minScore);
@@ -1306,7 +1417,7 @@ public abstract class JRedisSupport implements JRedis {
 	@Override
 	public <K extends Object> List<ZSetEntry> zrangebyscoreSubset (K key, double minScore, double maxScore) throws RedisException {
 		byte[] keybytes = null;
-		if((keybytes = getKeyBytes(key)) == null)
+		if((keybytes = encodeKey(key)) == null)
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		byte[] fromBytes = Convert.toBytes(minScore);
@@ -1332,7 +1443,7 @@ public abstract class JRedisSupport implements JRedis {
 	@Override
 	public <K extends Object> long zremrangebyscore (K key, double minScore, double maxScore) throws RedisException {
 		byte[] keybytes = null;
-		if((keybytes = getKeyBytes(key)) == null) 
+		if((keybytes = encodeKey(key)) == null) 
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		byte[] fromBytes = Convert.toBytes(minScore);
@@ -1352,7 +1463,7 @@ public abstract class JRedisSupport implements JRedis {
 	@Override
 	public <K extends Object> long zcount (K key, double minScore, double maxScore) throws RedisException {
 		byte[] keybytes = null;
-		if((keybytes = getKeyBytes(key)) == null) 
+		if((keybytes = encodeKey(key)) == null) 
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		byte[] fromBytes = Convert.toBytes(minScore);
@@ -1372,7 +1483,7 @@ public abstract class JRedisSupport implements JRedis {
 	@Override
 	public <K extends Object> long zremrangebyrank (K key, long minRank, long maxRank) throws RedisException {
 		byte[] keybytes = null;
-		if((keybytes = getKeyBytes(key)) == null) 
+		if((keybytes = encodeKey(key)) == null) 
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		byte[] fromBytes = Convert.toBytes(minRank);
@@ -1392,7 +1503,7 @@ public abstract class JRedisSupport implements JRedis {
 	@Override
 	public <K extends Object> List<byte[]> zrange(K key, long from, long to) throws RedisException {
 		byte[] keybytes = null;
-		if((keybytes = getKeyBytes(key)) == null) 
+		if((keybytes = encodeKey(key)) == null) 
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		byte[] fromBytes = Convert.toBytes(from);
@@ -1412,7 +1523,7 @@ public abstract class JRedisSupport implements JRedis {
 	@Override
 	public <K extends Object> List<byte[]> zrevrange(K key, long from, long to) throws RedisException {
 		byte[] keybytes = null;
-		if((keybytes = getKeyBytes(key)) == null) 
+		if((keybytes = encodeKey(key)) == null) 
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		byte[] fromBytes = Convert.toBytes(from);
@@ -1431,7 +1542,7 @@ public abstract class JRedisSupport implements JRedis {
 	@Override
 	public <K extends Object> List<ZSetEntry> zrangeSubset(K key, long from, long to) throws RedisException {
 		byte[] keybytes = null;
-		if((keybytes = getKeyBytes(key)) == null) 
+		if((keybytes = encodeKey(key)) == null) 
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		byte[] fromBytes = Convert.toBytes(from);
@@ -1454,10 +1565,22 @@ public abstract class JRedisSupport implements JRedis {
 		return list;
 	}
 
+	@Override
+	public <K extends Object> long zrangeSubset(K key, long from, long to, ElementConsumer consumer) throws RedisException {
+		byte[] keybytes = null;
+		if((keybytes = encodeKey(key)) == null) 
+			throw new IllegalArgumentException ("invalid key => ["+key+"]");
+
+		byte[] fromBytes = Convert.toBytes(from);
+		byte[] toBytes = Convert.toBytes(to);
+
+		return streamRequest(consumer, Command.ZRANGE$OPTS, keybytes, fromBytes, toBytes, Command.Option.WITHSCORES.bytes);
+	}
+
 	@Override
 	public <K extends Object> List<ZSetEntry> zrevrangeSubset(K key, long from, long to) throws RedisException {
 		byte[] keybytes = null;
-		if((keybytes = getKeyBytes(key)) == null) 
+		if((keybytes = encodeKey(key)) == null) 
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		byte[] fromBytes = Convert.toBytes(from);
@@ -1484,7 +1607,7 @@ public abstract class JRedisSupport implements JRedis {
 	@Override
 	public <K extends Object> Sort sort(final K key) {
 		byte[] keybytes = null;
-		if((keybytes = getKeyBytes(key)) == null) 
+		if((keybytes = encodeKey(key)) == null) 
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		final JRedisSupport client = this;
@@ -1559,13 +1682,13 @@ public abstract class JRedisSupport implements JRedis {
 	@Override
 	public <K extends Object> List<byte[]> sinter(K set1, K... sets) throws RedisException {
 		byte[] keydata = null;
-		if((keydata = getKeyBytes(set1)) == null) 
+		if((keydata = encodeKey(set1)) == null) 
 			throw new IllegalArgumentException ("invalid key => ["+set1+"]");
 
 		byte[][] keybytes = new byte[1+sets.length][];
 		int i=0; keybytes[i++] = keydata;
 		for(K k : sets) {
-			if((keydata = getKeyBytes(k)) == null) 
+			if((keydata = encodeKey(k)) == null) 
 				throw new IllegalArgumentException ("invalid key => ["+k+"]");
 			keybytes[i++] = keydata;
 		}
@@ -1584,13 +1707,13 @@ public abstract class JRedisSupport implements JRedis {
 	@Override
 	public <K extends Object> List<byte[]> sunion(K set1, K... sets) throws RedisException {
 		byte[] keydata = null;
-		if((keydata = getKeyBytes(set1)) == null) 
+		if((keydata = encodeKey(set1)) == null) 
 			throw new IllegalArgumentException ("invalid key => ["+set1+"]");
 
 		byte[][] keybytes = new byte[1+sets.length][];
 		int i=0; keybytes[i++] = keydata;
 		for(K k : sets) {
-			if((keydata = getKeyBytes(k)) == null) 
+			if((keydata = encodeKey(k)) == null) 
 				throw new IllegalArgumentException ("invalid key => ["+k+"]");
 			keybytes[i++] = keydata;
 		}
@@ -1609,13 +1732,13 @@ public abstract class JRedisSupport implements JRedis {
 	@Override
 	public <K extends Object> List<byte[]> sdiff(K set1, K... sets) throws RedisException {
 		byte[] keydata = null;
-		if((keydata = getKeyBytes(set1)) == null) 
+		if((keydata = encodeKey(set1)) == null) 
 			throw new IllegalArgumentException ("invalid key => ["+set1+"]");
 
 		byte[][] keybytes = new byte[1+sets.length][];
 		int i=0; keybytes[i++] = keydata;
 		for(K k : sets) {
-			if((keydata = getKeyBytes(k)) == null) 
+			if((keydata = encodeKey(k)) == null) 
 				throw new IllegalArgumentException ("invalid key => ["+k+"]");
 			keybytes[i++] = keydata;
 		}
@@ -1634,7 +1757,7 @@ public abstract class JRedisSupport implements JRedis {
 	@Override
 	public <K extends Object> void sinterstore(K dest, K... sets) throws RedisException {
 		byte[] keydata = null;
-		if((keydata = getKeyBytes(dest)) == null) 
+		if((keydata = encodeKey(dest)) == null) 
 			throw new IllegalArgumentException ("invalid key => ["+dest+"]");
 
 		byte[][] setbytes = new byte[1+sets.length][];
@@ -1642,7 +1765,7 @@ public abstract class JRedisSupport implements JRedis {
 		setbytes[i++] = keydata;
 		byte[] setdata =null;
 		for(K k : sets) {
-			if((setdata = getKeyBytes(k)) == null) 
+			if((setdata = encodeKey(k)) == null) 
 				throw new IllegalArgumentException ("invalid key => ["+k+"]");
 			setbytes[i++] = setdata;
 		}
@@ -1653,7 +1776,7 @@ public abstract class JRedisSupport implements JRedis {
 	@Override
 	public <K extends Object> void sunionstore(K dest, K... sets) throws RedisException {
 		byte[] keydata = null;
-		if((keydata = getKeyBytes(dest)) == null) 
+		if((keydata = encodeKey(dest)) == null) 
 			throw new IllegalArgumentException ("invalid key => ["+dest+"]");
 
 		byte[][] setbytes = new byte[1+sets.length][];
@@ -1661,7 +1784,7 @@ public abstract class JRedisSupport implements JRedis {
 		setbytes[i++] = keydata;
 		byte[] setdata =null;
 		for(K k : sets) {
-			if((setdata = getKeyBytes(k)) == null) 
+			if((setdata = encodeKey(k)) == null) 
 				throw new IllegalArgumentException ("invalid key => ["+k+"]");
 			setbytes[i++] = setdata;
 		}
@@ -1672,7 +1795,7 @@ public abstract class JRedisSupport implements JRedis {
 	@Override
 	public <K extends Object> void sdiffstore(K dest, K... sets) throws RedisException {
 		byte[] keydata = null;
-		if((keydata = getKeyBytes(dest)) == null) 
+		if((keydata = encodeKey(dest)) == null) 
 			throw new IllegalArgumentException ("invalid key => ["+dest+"]");
 
 		byte[][] setbytes = new byte[1+sets.length][];
@@ -1680,7 +1803,7 @@ public abstract class JRedisSupport implements JRedis {
 		setbytes[i++] = keydata;
 		byte[] setdata =null;
 		for(K k : sets) {
-			if((setdata = getKeyBytes(k)) == null) 
+			if((setdata = encodeKey(k)) == null) 
 				throw new IllegalArgumentException ("invalid key => ["+k+"]");
 			setbytes[i++] = setdata;
 		}
@@ -1696,7 +1819,7 @@ public abstract class JRedisSupport implements JRedis {
 		byte[][] keybytes = new byte[keys.length][];
 		int i=0;
 		for(K k : keys) {
-			if((keydata = getKeyBytes(k)) == null) 
+			if((keydata = encodeKey(k)) == null) 
 				throw new IllegalArgumentException ("invalid key => ["+k+"] @ index: " + i);
 			
 			keybytes[i++] = keydata;
@@ -1717,7 +1840,7 @@ public abstract class JRedisSupport implements JRedis {
 	@Override
 	public <K extends Object> boolean exists(K key) throws RedisException {
 		byte[] keybytes = null;
-		if((keybytes = getKeyBytes(key)) == null) 
+		if((keybytes = encodeKey(key)) == null) 
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		boolean resvalue = false;
@@ -1735,7 +1858,7 @@ public abstract class JRedisSupport implements JRedis {
 	@Override
 	public <K extends Object> void lpush(K key, byte[] value) throws RedisException {
 		byte[] keybytes = null;
-		if((keybytes = getKeyBytes(key)) == null) 
+		if((keybytes = encodeKey(key)) == null) 
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 		
 		if(value == null) 
@@ -1755,7 +1878,7 @@ public abstract class JRedisSupport implements JRedis {
 	@Override
 	public <K extends Object, T extends Serializable> void lpush (K key, T value) throws RedisException
 	{
-		lpush(key, DefaultCodec.encode(value));
+		lpush(key, encode(value));
 	}
 	
 
@@ -1763,7 +1886,7 @@ public abstract class JRedisSupport implements JRedis {
 	@Override
 	public <K extends Object> long lrem(K key, byte[] value, int count) throws RedisException {
 		byte[] keybytes = null;
-		if((keybytes = getKeyBytes(key)) == null) 
+		if((keybytes = encodeKey(key)) == null) 
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		byte[] countBytes = Convert.toBytes(count);
@@ -1789,14 +1912,14 @@ public abstract class JRedisSupport implements JRedis {
 	@Override
 	public <K extends Object, T extends Serializable> 
 	long lrem (K listKey, T object, int count) throws RedisException{
-		return lrem (listKey, DefaultCodec.encode(object), count);
+		return lrem (listKey, encode(object), count);
 	}
 
 
 	@Override
 	public <K extends Object> void lset(K key, long index, byte[] value) throws RedisException {
 		byte[] keybytes = null;
-		if((keybytes = getKeyBytes(key)) == null) 
+		if((keybytes = encodeKey(key)) == null) 
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		byte[] indexBytes = Convert.toBytes(index);
@@ -1812,13 +1935,13 @@ public abstract class JRedisSupport implements JRedis {
 	}
 	@Override
 	public <K extends Object, T extends Serializable> void lset (K key, long index, T object) throws RedisException{
-		lset (key, index, DefaultCodec.encode(object));
+		lset (key, index, encode(object));
 	}
 
 	@Override
 	public <K extends Object> boolean move(K key, int dbIndex) throws RedisException {
 		byte[] keybytes = null;
-		if((keybytes = getKeyBytes(key)) == null) 
+		if((keybytes = encodeKey(key)) == null) 
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 		
 		byte[] toBytes = Convert.toBytes(dbIndex);
@@ -1838,7 +1961,7 @@ public abstract class JRedisSupport implements JRedis {
 	@Override
 	public <K extends Object> boolean srem(K key, byte[] member) throws RedisException {
 		byte[] keybytes = null;
-		if((keybytes = getKeyBytes(key)) == null) 
+		if((keybytes = encodeKey(key)) == null) 
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		boolean resvalue = false;
@@ -1862,13 +1985,13 @@ public abstract class JRedisSupport implements JRedis {
 	@Override
 	public <K extends Object, T extends Serializable> boolean srem (K key, T value) throws RedisException
 	{
-		return srem (key, DefaultCodec.encode(value));
+		return srem (key, encode(value));
 	}
 
 	@Override
 	public <K extends Object> boolean zrem(K key, byte[] member) throws RedisException {
 		byte[] keybytes = null;
-		if((keybytes = getKeyBytes(key)) == null) 
+		if((keybytes = encodeKey(key)) == null) 
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		boolean resvalue = false;
@@ -1892,14 +2015,14 @@ public abstract class JRedisSupport implements JRedis {
 	@Override
 	public <K extends Object, T extends Serializable> boolean zrem (K key, T value) throws RedisException
 	{
-		return zrem (key, DefaultCodec.encode(value));
+		return zrem (key, encode(value));
 	}
 
 	@SuppressWarnings("boxing")
 	@Override
 	public <K extends Object> Double zscore(K key, byte[] member) throws RedisException {
 		byte[] keybytes = null;
-		if((keybytes = getKeyBytes(key)) == null) 
+		if((keybytes = encodeKey(key)) == null) 
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		Double resvalue = null;
@@ -1924,13 +2047,13 @@ public abstract class JRedisSupport implements JRedis {
 	@Override
 	public <K extends Object, T extends Serializable> Double zscore (K key, T value) throws RedisException
 	{
-		return zscore (key, DefaultCodec.encode(value));
+		return zscore (key, encode(value));
 	}
 
 	@Override
 	public <K extends Object> long zrank(K key, byte[] member) throws RedisException {
 		byte[] keybytes = null;
-		if((keybytes = getKeyBytes(key)) == null) 
+		if((keybytes = encodeKey(key)) == null) 
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		long resvalue = -1;
@@ -1954,13 +2077,13 @@ public abstract class JRedisSupport implements JRedis {
 	@Override
 	public <K extends Object, T extends Serializable> long zrank (K key, T value) throws RedisException
 	{
-		return zrank (key, DefaultCodec.encode(value));
+		return zrank (key, encode(value));
 	}
 
 	@Override
 	public <K extends Object> long zrevrank(K key, byte[] member) throws RedisException {
 		byte[] keybytes = null;
-		if((keybytes = getKeyBytes(key)) == null) 
+		if((keybytes = encodeKey(key)) == null) 
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		long resvalue = -1;
@@ -1984,14 +2107,14 @@ public abstract class JRedisSupport implements JRedis {
 	@Override
 	public <K extends Object, T extends Serializable> long zrevrank (K key, T value) throws RedisException
 	{
-		return zrevrank (key, DefaultCodec.encode(value));
+		return zrevrank (key, encode(value));
 	}
 
 
 	@Override
 	public <K extends Object> void ltrim(K key, long keepFrom, long keepTo) throws RedisException {
 		byte[] keybytes = null;
-		if((keybytes = getKeyBytes(key)) == null) 
+		if((keybytes = encodeKey(key)) == null) 
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		byte[] fromBytes = Convert.toBytes(keepFrom);
@@ -2002,7 +2125,7 @@ public abstract class JRedisSupport implements JRedis {
 	@Override
 	public <K extends Object> boolean expire(K key, int ttlseconds) throws RedisException {
 		byte[] keybytes = null;
-		if((keybytes = getKeyBytes(key)) == null) 
+		if((keybytes = encodeKey(key)) == null) 
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		byte[] ttlbytes = Convert.toBytes(ttlseconds);
@@ -2021,7 +2144,7 @@ public abstract class JRedisSupport implements JRedis {
 	@Override
 	public <K extends Object> boolean expireat(K key, long epochtime) throws RedisException {
 		byte[] keybytes = null;
-		if((keybytes = getKeyBytes(key)) == null) 
+		if((keybytes = encodeKey(key)) == null) 
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		long expiretime = TimeUnit.SECONDS.convert(epochtime, TimeUnit.MILLISECONDS);
@@ -2041,7 +2164,7 @@ public abstract class JRedisSupport implements JRedis {
 	@Override
 	public <K extends Object> long ttl (K key) throws RedisException {
 		byte[] keybytes = null;
-		if((keybytes = getKeyBytes(key)) == null) 
+		if((keybytes = encodeKey(key)) == null) 
 			throw new IllegalArgumentException ("invalid key => ["+key+"]");
 
 		
@@ -2082,7 +2205,7 @@ public abstract class JRedisSupport implements JRedis {
 	public <K extends Object, T extends Serializable> 
 	byte[] echo (T value) throws RedisException
 	{
-		return echo(DefaultCodec.encode(value));
+		return echo(encode(value));
 	}
 	// ------------------------------------------------------------------------
 	// Transactional commands
@@ -2114,13 +2237,36 @@ public abstract class JRedisSupport implements JRedis {
 	// utility
 	// ------------------------------------------------------------------------
 	
-	// TODO: integrate using KeyCodec and a CodecManager at client spec and init time.
-	// TODO: (implied) ClientSpec (impls. ConnectionSpec)
-	// this isn't cooked yet -- lets think more about the implications...
-	// 
-//	static final private Map<String, byte[]>	keyByteCache = new ConcurrentHashMap<String, byte[]>();
-	public static boolean	CacheKeys	= false;
+	private <T extends Serializable> byte[] encode (T value) {
+		return DefaultCodec.encode(value, codecManager);
+	}
+
+	private <K extends Object> byte[] encodeKey (K key) throws IllegalArgumentException {
+		return keyCodec.encode(key);
+	}
 	
+	/**
+	 * Streams the elements of the multi-bulk reply of the request to the consumer.
+	 * @return the number of elements of the reply
+	 */
+	private long streamRequest (ElementConsumer consumer, Command cmd, byte[]...args) throws RedisException {
+		if(null == consumer)
+			throw new IllegalArgumentException ("null consumer");
+		try {
+			StreamingMultiBulkResponse response = (StreamingMultiBulkResponse) this.serviceRequest(consumer, cmd, args);
+			return response.getElementCount();
+		}
+		catch (ClassCastException e){
+			throw new ProviderException("Expecting a StreamingMultiBulkResponse here => " + e.getLocalizedMessage(), e);
+		}
+	}
+	
+	/**
+	 * @param key
+	 * @return the key encoded by the {@link DefaultKeyCodec} -- the requests of
+	 * a client use its {@link JRedisSupport#getKeyCodec()}.
+	 * @throws IllegalArgumentException
+	 */
 	public static <K extends Object> byte[] getKeyBytes(K key) throws IllegalArgumentException {
 		return DefaultKeyCodec.provider().encode(key);
 	}
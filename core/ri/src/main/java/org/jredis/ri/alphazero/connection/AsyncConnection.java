@@ -170,10 +170,10 @@ public class AsyncConnection extends ConnectionBase implements Connection {
 						Request request = Assert.notNull(protocol.createRequest (pending.cmd, pending.args), "request object from handler", ProviderException.class);
 						request.write(getOutputStream());
 						
-						pending.response = protocol.createResponse(pending.cmd);
-						pending.response.read(getInputStream());
+						Response response = protocol.createResponse(pending.cmd);
+						response.read(getInputStream());
 						
-						pending.completion.signal();
+						pending.setResponse(response);
 						if(pending.response.getStatus().isError()) {
 							Log.error ("(Asynch) Error response for " + pending.cmd.code + " => " + pending.response.getStatus().message());
 						}
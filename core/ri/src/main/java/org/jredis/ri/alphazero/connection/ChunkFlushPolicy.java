@@ -0,0 +1,94 @@
+/*
+ *   Copyright 2009-2012 Joubin Houshyar
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package org.jredis.ri.alphazero.connection;
+
+import java.util.concurrent.TimeUnit;
+import org.jredis.ClientRuntimeException;
+
+/**
+ * Determines when {@link ChunkedPipelineConnection} writes the chunk of requests
+ * it is accumulating, beyond the unconditional cases of the chunk overflowing,
+ * connection control commands (AUTH, SELECT, QUIT) and a <code>get()</code> (or
+ * callback registration) on a request still in the chunk.
+ * <p>
+ * The policy is consulted by the requester thread holding the request lock, and
+ * must be fast and thread-safe.  Set a policy instance as the
+ * {@link org.jredis.connector.Connection.Property#PIPELINE_FLUSH_POLICY} property
+ * of the {@link org.jredis.connector.ConnectionSpec}; otherwise a {@link Threshold}
+ * policy is configured per the other pipeline flush properties.
+ *
+ * @author  Joubin Houshyar (alphazero@sensesay.net)
+ * @date    Apr 13, 2012
+ *
+ */
+public interface ChunkFlushPolicy {
+
+	/**
+	 * Called after a request has been appended to the chunk.
+	 * @param chunkBytes bytes in the chunk
+	 * @param chunkRequests requests in the chunk
+	 * @param chunkSize capacity of the chunk, in bytes
+	 * @return true if the chunk should be written now
+	 */
+	public boolean flushOnAppend (int chunkBytes, int chunkRequests, int chunkSize);
+
+	/**
+	 * @return the maximum time, in nanos, the first request of a chunk waits
+	 * before the chunk is written by the pipeline's linger timer, or 0 for
+	 * no timed flushes.
+	 */
+	public long getLingerNanos ();
+
+	// ------------------------------------------------------------------------
+	// Reference Implementation
+	// ------------------------------------------------------------------------
+	/**
+	 * Flushes once the chunk reaches a byte count, or a request count, and
+	 * after a linger time.  Any of the three can be disabled with 0.
+	 */
+	public static class Threshold implements ChunkFlushPolicy {
+		private final int	bytes;
+		private final int	requests;
+		private final long	lingerNanos;
+
+		/**
+		 * @param bytes flush when the chunk holds at least this many bytes (0 for none)
+		 * @param requests flush when the chunk holds this many requests (0 for none)
+		 * @param linger maximum time before a chunk is flushed (0 for none)
+		 * @param unit
+		 */
+		public Threshold (int bytes, int requests, long linger, TimeUnit unit) {
+			if(bytes < 0 || requests < 0 || linger < 0)
+				throw new ClientRuntimeException("flush thresholds must be >= 0");
+			this.bytes = bytes;
+			this.requests = requests;
+			this.lingerNanos = unit.toNanos(linger);
+		}
+		/* (non-Javadoc) @see org.jredis.ri.alphazero.connection.ChunkFlushPolicy#flushOnAppend(int, int, int) */
+		public boolean flushOnAppend (int chunkBytes, int chunkRequests, int chunkSize) {
+			return (bytes > 0 && chunkBytes >= bytes) || (requests > 0 && chunkRequests >= requests);
+		}
+		/* (non-Javadoc) @see org.jredis.ri.alphazero.connection.ChunkFlushPolicy#getLingerNanos() */
+		public long getLingerNanos () {
+			return lingerNanos;
+		}
+		@Override
+		public String toString () {
+			return String.format("Threshold [bytes: %d requests: %d linger: %d usec]", bytes, requests, TimeUnit.NANOSECONDS.toMicros(lingerNanos));
+		}
+	}
+}
@@ -16,50 +16,45 @@
 
 package org.jredis.ri.alphazero.connection;
 
-import static org.jredis.ri.alphazero.protocol.ProtocolBase.ASCII_ZERO;
-import static org.jredis.ri.alphazero.protocol.ProtocolBase.COUNT_BYTE;
-import static org.jredis.ri.alphazero.protocol.ProtocolBase.CRLF;
-import static org.jredis.ri.alphazero.protocol.ProtocolBase.CRLF_LEN;
-import static org.jredis.ri.alphazero.protocol.ProtocolBase.SIZE_BYTE;
-
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.util.Collection;
-import java.util.Iterator;
-import java.util.NoSuchElementException;
 import java.util.Queue;
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
-import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.LockSupport;
 import java.util.concurrent.locks.ReentrantLock;
 
 import org.jredis.ClientRuntimeException;
+import org.jredis.ElementConsumer;
+import org.jredis.ElementConsumerException;
 import org.jredis.NotSupportedException;
 import org.jredis.ProviderException;
 import org.jredis.connector.Connection;
 import org.jredis.connector.ConnectionSpec;
 import org.jredis.connector.NotConnectedException;
+import org.jredis.connector.StreamingConnection;
 import org.jredis.protocol.Command;
 import org.jredis.protocol.Protocol;
 import org.jredis.protocol.Response;
+import org.jredis.protocol.StreamingMultiBulkResponse;
 import org.jredis.protocol.Command.ResponseType;
 import org.jredis.ri.alphazero.protocol.ConcurrentSyncProtocol;
-import org.jredis.ri.alphazero.protocol.ProtocolBase;
+import org.jredis.ri.alphazero.protocol.RequestEncoder;
 import org.jredis.ri.alphazero.protocol.VirtualResponse;
 import org.jredis.ri.alphazero.support.Assert;
-import org.jredis.ri.alphazero.support.Convert;
 import org.jredis.ri.alphazero.support.FastBufferedInputStream;
 import org.jredis.ri.alphazero.support.Log;
-//import org.jredis.ri.alphazero.support.Concurrent2LockQueue.Node;
+import org.jredis.ri.alphazero.support.SpscRingQueue;
 
 /**
  * WIP NOTES: 
@@ -78,12 +73,28 @@ import org.jredis.ri.alphazero.support.Log;
  * will write MTU sized packets, regardless of actual user data, so
  * clearly the more we pack per packet, the higher will be the throughput 
  * of the connector.
+ * <p>
+ * Written chunks are handed to the response handler through a bounded
+ * single producer/single consumer ring (requesters are serialized by the 
+ * request lock).  When {@link Connection.Property#PIPELINE_MAX_PENDING_CHUNKS}
+ * chunks are awaiting responses, requesters block until the response handler
+ * catches up.  The response handler (and blocked requesters) wait adaptively
+ * per {@link Connection.Property#PIPELINE_WAIT_SPINS} and 
+ * {@link Connection.Property#PIPELINE_WAIT_YIELDS}, and park when idle.
+ * <p>
+ * Beyond overflow of the chunk ({@link Connection.Property#PIPELINE_CHUNK_SIZE}),
+ * chunks are written per the {@link ChunkFlushPolicy}, by a (shared) linger timer,
+ * and on demand of a <code>get()</code> (or callback registration) on a request 
+ * that is still in the chunk.  Demand flushes are coalesced: concurrent demands on 
+ * the same chunk result in one write, and requests already written do not flush at 
+ * all.  See {@link ChunkedPipelineConnection#getChunkStats()} for chunk metrics.
  * 
  * @author Joubin <alphazero@sensesay.net>
  *
  */
 public class ChunkedPipelineConnection 
 	extends ConnectionBase // TODO: doesn't need the ThreadLocals -- re-think super via ConnectionSpec settings.
+	implements StreamingConnection
 {
 
 	// ------------------------------------------------------------------------
@@ -95,13 +106,22 @@ public class ChunkedPipelineConnection
 	/**  */
 	private Thread 					respHandlerThread;
 
-	/**  */
-	BlockingQueue<PendingCPRequest[]>	pendingResponseQueue;
+	/** chunks of requests written and awaiting responses */
+	SpscRingQueue<PendingCPRequest[]>	pendingResponseQueue;
+
+	/** 
+	 * pending queue slots reserved for the response handler: requesters block when 
+	 * fewer are free.  Set to PIPELINE_MAX_PENDING_CHUNKS, and the queue's capacity to twice that.
+	 */
+	private int						handlerReserve;
 	
 
 	/** synchronization object used to serialize request queuing  */
 	private Lock requestlock;
 
+	/** serializes requesters waiting for the response handler to catch up */
+	private Lock throttlelock;
+
 	/** 
 	 * flag (default false) indicates if a pending QUIT command is being processed.  
 	 * If true, any calls to queueRequests will result in a raise runtime exception
@@ -114,20 +134,38 @@ public class ChunkedPipelineConnection
 	/** counted down on notifyConnect */
 	private CountDownLatch		    connectionEstablished;
 
-	/** MTU multiples to use as upper bound of the size of the chunk buffer */
-	private static final int MTU_FACTOR = 2; // TODO: ConnectionSpec me.
+	/** MTU multiples to use as the default size of the chunk buffer */
+	private static final int MTU_FACTOR = 2;
 	
 	/** Assuming TCP MTU of 1500 - ~tcp header overhead rounded to nearest power of 8  */
 	static final int MTU_SIZE = 1488;
 	
-	/** chunk buffer size */
-	static final int CHUNK_BUFF_SIZE = Math.min(MTU_SIZE * MTU_FACTOR, 0xFFFF);
+	/** default for {@link Connection.Property#PIPELINE_CHUNK_SIZE} */
+	static final int DEFAULT_CHUNK_SIZE = Math.min(MTU_SIZE * MTU_FACTOR, 0xFFFF);
 	
 	/** minimum request size in bytes -- using PING e.g. 14 b */
 	static final int MIN_REQ_SIZE = 14; 
 	
+	/** default for {@link Connection.Property#PIPELINE_FLUSH_LINGER} (usecs) */
+	static final int DEFAULT_FLUSH_LINGER_USEC = 100;
+	
+	/** default for {@link Connection.Property#PIPELINE_MAX_PENDING_CHUNKS} */
+	static final int DEFAULT_MAX_PENDING_CHUNKS = 1024;
+	
+	/** default for {@link Connection.Property#PIPELINE_WAIT_SPINS} -- no point spinning on a uni-processor */
+	static final int DEFAULT_WAIT_SPINS = Runtime.getRuntime().availableProcessors() > 1 ? 1000 : 0;
+	
+	/** default for {@link Connection.Property#PIPELINE_WAIT_YIELDS} */
+	static final int DEFAULT_WAIT_YIELDS = 100;
+	
+	/** interval at which requesters blocked on a full pending queue check the connection state (msecs) */
+	private static final long BLOCKED_CHECK_MSEC = 100;
+	
+	/** chunk buffer size -- offsets are 16 bits in the control word */
+	private int chunkBuffSize;
+	
 	/** Chunk Queue size (slots) */
-	static final int CHUNK_Q_SIZE = CHUNK_BUFF_SIZE / MIN_REQ_SIZE;
+	private int chunkQSize;
 	
 	/** chunk buffer */
 	private byte[] chunkbuff;
@@ -138,6 +176,25 @@ public class ChunkedPipelineConnection
 	/** Chunk Queue of requests in Chunk buffer */
 	private PendingCPRequest[] chunkqueue;
 	
+	/** sequence number of the chunk being accumulated -- incremented (in critical block) as chunks are written */
+	private volatile long chunkSeq;
+	
+	/** when to write chunks short of overflow */
+	private ChunkFlushPolicy flushPolicy;
+	
+	/** cached flushPolicy linger */
+	private long lingerNanos;
+	
+	/** 
+	 * chunk metrics -- updated in critical block.  (Initialized in initializeComponents 
+	 * as the connection is established by the super constructor.)
+	 */
+	private long statChunks, statRequests, statBytes, statLargeRequests;
+	private long[] statFlushes;
+	
+	/** demand flushes satisfied without a write -- updated outside of the critical block */
+	private AtomicLong statCoalesced;
+	
 	// ------------------------------------------------------------------------
 	// Constructor(s)
 	// ------------------------------------------------------------------------
@@ -164,12 +221,34 @@ public class ChunkedPipelineConnection
 		spec.setConnectionFlag(Flag.RELIABLE, true);
 		spec.setConnectionFlag(Flag.SHARED, true);
 
-		chunkbuff = new byte[CHUNK_BUFF_SIZE];
-		chunkqueue = new PendingCPRequest[CHUNK_Q_SIZE];
+		chunkBuffSize = getIntProperty(Property.PIPELINE_CHUNK_SIZE, DEFAULT_CHUNK_SIZE);
+		Assert.inRange(chunkBuffSize, MIN_REQ_SIZE, 0xFFFF, "PIPELINE_CHUNK_SIZE", ClientRuntimeException.class);
+		chunkQSize = chunkBuffSize / MIN_REQ_SIZE;
+		chunkbuff = new byte[chunkBuffSize];
+		chunkqueue = new PendingCPRequest[chunkQSize];
 
 		ctl_word = 0;
+		chunkSeq = 0;
+		statFlushes = new long[FlushCause.values().length];
+		statCoalesced = new AtomicLong();
+		
+		final Object policy = spec.getConnectionProperty(Property.PIPELINE_FLUSH_POLICY);
+		if(policy == null) {
+			flushPolicy = new ChunkFlushPolicy.Threshold(
+					getIntProperty(Property.PIPELINE_FLUSH_BYTES, 0), 
+					getIntProperty(Property.PIPELINE_FLUSH_COUNT, 0), 
+					getIntProperty(Property.PIPELINE_FLUSH_LINGER, DEFAULT_FLUSH_LINGER_USEC), TimeUnit.MICROSECONDS);
+		}
+		else if(policy instanceof ChunkFlushPolicy) {
+			flushPolicy = (ChunkFlushPolicy) policy;
+		}
+		else {
+			throw new ClientRuntimeException("PIPELINE_FLUSH_POLICY connection property must be a ChunkFlushPolicy: " + policy);
+		}
+		lingerNanos = flushPolicy.getLingerNanos();
 
 		requestlock = new ReentrantLock(false);
+		throttlelock = new ReentrantLock(false);
 		
 		super.initializeComponents(); // REVU: this is a bit oddly placed .. 
 
@@ -177,7 +256,12 @@ public class ChunkedPipelineConnection
 		isActive = new AtomicBoolean(false);
 		connectionEstablished = new CountDownLatch(1);
 
-		pendingResponseQueue = new Concurrent2LockQueue<PendingCPRequest[]>();
+		final int maxPendingChunks = getIntProperty(Property.PIPELINE_MAX_PENDING_CHUNKS, DEFAULT_MAX_PENDING_CHUNKS);
+		final int waitSpins = getIntProperty(Property.PIPELINE_WAIT_SPINS, DEFAULT_WAIT_SPINS);
+		final int waitYields = getIntProperty(Property.PIPELINE_WAIT_YIELDS, DEFAULT_WAIT_YIELDS);
+		Assert.inRange(maxPendingChunks, 2, 1 << 20, "PIPELINE_MAX_PENDING_CHUNKS", ClientRuntimeException.class);
+		handlerReserve = maxPendingChunks;
+		pendingResponseQueue = new SpscRingQueue<PendingCPRequest[]>(maxPendingChunks + handlerReserve, waitSpins, waitYields);
 		
 		respHandler = new ResponseHandler();
 		respHandlerThread = new Thread(respHandler, "response-handler");
@@ -186,6 +270,19 @@ public class ChunkedPipelineConnection
 		isActive.set(false); // REVU: ? superstitious ?
 	}
 
+	/**
+	 * @param prop
+	 * @param defaultValue
+	 * @return the (Integer) connection property, or the default if not specified
+	 */
+	private int getIntProperty (Property prop, int defaultValue) {
+		final Object value = spec.getConnectionProperty(prop);
+		if(value == null) return defaultValue;
+		if(!(value instanceof Integer))
+			throw new ClientRuntimeException(prop.name() + " connection property must be an Integer: " + value);
+		return ((Integer) value).intValue();
+	}
+
 	@Override
 	protected void notifyConnected () {
 		super.notifyConnected();
@@ -252,16 +349,28 @@ public class ChunkedPipelineConnection
 	@Override
 	public final Future<Response> queueRequest (Command cmd, byte[]... args) 
 	throws ClientRuntimeException, ProviderException 
+	{
+		return queueRequest((ElementConsumer) null, cmd, args);
+	}
+
+	/**
+	 * Elements of the reply are handed to the consumer by the response handler
+	 * thread, as they are read.
+	 * @see org.jredis.connector.StreamingConnection#queueRequest(org.jredis.ElementConsumer, org.jredis.protocol.Command, byte[][])
+	 */
+	@Override
+	public final Future<Response> queueRequest (ElementConsumer consumer, Command cmd, byte[]... args) 
+	throws ClientRuntimeException, ProviderException 
 	{
 		if(!isConnected()) 
 			throw new NotConnectedException ("Not connected!");
 
+		if(null != consumer && cmd.responseType != ResponseType.MULTI_BULK)
+			throw new IllegalArgumentException ("Only multi-bulk replies can be streamed: " + cmd.code);
+
 		if(pendingQuit) 
 			throw new ClientRuntimeException("Pipeline shutting down: Quit in progess; no further requests are accepted.");
 
-		Protocol		protocol = Assert.notNull(getProtocolHandler(), "thread protocol handler", ProviderException.class);
-		//		Log.log("protocol %d@%s", protocol.hashCode(), protocol.getClass());
-
 		final boolean sendreq = 
 			cmd.responseType != ResponseType.VIRTUAL && 
 			cmd.responseType != ResponseType.NOP;
@@ -269,16 +378,16 @@ public class ChunkedPipelineConnection
 		/* setup send buffer if necessary */
 		int		reqbyteslen = 0;
 		if(sendreq) {
-			reqbyteslen = ProtocolHelper.calcReqBuffSize(cmd, args);
+			reqbyteslen = RequestEncoder.frameSize(cmd, args);
 		}
 
 		/* PendingCPRequest provides transparent hook to force flush on future get(..) */
-		final PendingCPRequest 	queuedRequest = new PendingCPRequest(this, cmd);
+		final PendingCPRequest 	queuedRequest = new PendingCPRequest(this, cmd, consumer);
 
 		/* possibly silly optimization, pulled out of sync block */
 		final OutputStream out = getOutputStream();
 		final boolean isflush = cmd == Command.CONN_FLUSH;
-		final boolean exceeds = reqbyteslen > CHUNK_BUFF_SIZE;
+		final boolean exceeds = reqbyteslen > chunkBuffSize;
 		final boolean isquit = cmd == Command.QUIT;
 
 		/* auth is used on connector initialization and must be sent asap */ 
@@ -288,9 +397,9 @@ public class ChunkedPipelineConnection
 			isquit					||
 			isflush;
 
+		/* a request adds at most 2 items to the pending queue: reserve before writing anything */
+		lockWithPendingCapacity(2);
 		try {
-			requestlock.lock();
-			
 			/* ======== CRITICAL BLOCK ====== */
 			
 			/* 4 byte control word is [ idx | off ] */
@@ -299,48 +408,48 @@ public class ChunkedPipelineConnection
 			int idx = __ctl_word >> 16;
 			int off = __ctl_word & 0x0000FFFF;
 
-			boolean overflows = exceeds || off + reqbyteslen > CHUNK_BUFF_SIZE ? true : false;
+			boolean overflows = exceeds || off + reqbyteslen > chunkBuffSize ? true : false;
 			
-			if(overflows) {
-				out.write(chunkbuff, 0, off);
-				out.flush();
+			if(overflows && off > 0) {
+				writeChunk(out, off, idx, FlushCause.OVERFLOW);
 				off = 0;
-				
-				pendingResponseQueue.add(chunkqueue);
-				chunkqueue = new PendingCPRequest[CHUNK_Q_SIZE];
 				idx = 0;
 			}
 
 			if(sendreq){
 				if(exceeds) {
-					/* can optimize and dispense with new byte[] -- only for large payloads */
-					/* chunkqueue should be empty and idx 0 : assert for now */
-					out.write(protocol.createRequestBuffer(cmd, args));
+					/* chunkbuff is empty: use it as scratch and write large values directly */
+					RequestEncoder.write(cmd, args, chunkbuff, out);
 					out.flush();
-					chunkqueue[0] = queuedRequest;
 					final PendingCPRequest[] oneoffitem =  new PendingCPRequest[1];
 					oneoffitem[0] = queuedRequest;
-					pendingResponseQueue.add(oneoffitem);
+					enqueuePending(oneoffitem);
+					statLargeRequests++;
 				}
 				else {
-					// REVU: next optimization step !
-					// NOTE: this 'new' here is not necessary and is only because of copy/paste from
-					// ProtocolBase (see ProtocolHelper.writeReq..().
-					ProtocolHelper.writeRequestToBuffer(new ProtocolHelper.Buffer(chunkbuff, off), cmd, args);
-					off+=reqbyteslen;
+					off = RequestEncoder.encode(cmd, args, chunkbuff, off);
 					chunkqueue[idx] = queuedRequest;
 					idx++;
+					queuedRequest.chunkSeq = chunkSeq;
+					
+					if(!doflush) {
+						if(flushPolicy.flushOnAppend(off, idx, chunkBuffSize)) {
+							writeChunk(out, off, idx, FlushCause.POLICY);
+							off = 0;
+							idx = 0;
+						}
+						else if(idx == 1 && lingerNanos > 0) {
+							LingerTimer.schedule(new LingerFlush(chunkSeq), lingerNanos);
+						}
+					}
 				}
 			}
 
 			if(doflush) {
 				if(!isquit){
 					if(off>0){
-						out.write(chunkbuff, 0, off);
-						out.flush();
+						writeChunk(out, off, idx, FlushCause.COMMAND);
 						off = 0;
-						pendingResponseQueue.add(chunkqueue);
-						chunkqueue = new PendingCPRequest[CHUNK_Q_SIZE];
 						idx = 0;
 					}
 				}
@@ -349,7 +458,7 @@ public class ChunkedPipelineConnection
 					isActive.set(false);
 					final PendingCPRequest[] oneoffitem =  new PendingCPRequest[1];
 					oneoffitem[0] = queuedRequest;
-					pendingResponseQueue.add(oneoffitem);
+					enqueuePending(oneoffitem);
 				}
 			}
 			
@@ -371,366 +480,192 @@ public class ChunkedPipelineConnection
 		return queuedRequest;
 	}
 
-	void onResponseHandlerError (ClientRuntimeException cre, PendingRequest request) {
-		Log.error("Pipeline response handler encountered an error: " + cre.getMessage());
-
-		// signal fault
-		onConnectionFault(cre.getMessage(), false);
-		
-		// set execution error for future object
-		request.setCRE(cre);
-
-//		PendingCPRequest pending = null;
-		while(true){
-			try {
-//				pending = pendingResponseQueue.remove();
-				PendingCPRequest[] items = null;
-				items = pendingResponseQueue.remove();
-				for(PendingCPRequest item : items){
-					if(item == null) { break; }
-					item.setCRE(cre);
-					Log.error("set pending %s response to error with CRE", item.cmd);
-				}
-//				pending.setCRE(cre);
-//				Log.error("set pending %s response to error with CRE", pending.cmd);
-			}
-			catch (NoSuchElementException empty){ break; }
-		}
-	}
-	
-	// ========================================================================
-	// Inner Class
-	// ========================================================================
-	
 	/**
-	 * This was pretty much based on Maged M. Michael, and Michael L. Scott's
-	 * 2 Lock concurrent queue as described in their paper, "Simple, Fast, 
-	 * and Practical Non-Blocking and Blocking Concurrent Algorithms" 
-	 * ({michael, scott}@cs.rochester.edu).  
-	 * 
-	 * For the specific use case of {@link ChunkedPipelineConnection}, 
-	 * we will have 1:1 producer-consumer concurrency and can do
-	 * away with the 2 locks of their algorithm and get better performance.
-	 * 
-	 * This class partially supports the {@link BlockingQueue} for the
-	 * purposes of the pipeline.  It is not intended for general use.
-	 *
-	 * @author  joubin (alphazero@sensesay.net)
-	 * @date    Dec 9, 2009 (original)
-	 * @date    Jan 23, 2012 (this version)
-	 * 
+	 * Not supported by pipelines.
+	 * @see org.jredis.connector.StreamingConnection#serviceRequest(org.jredis.ElementConsumer, org.jredis.protocol.Command, byte[][])
 	 */
-	final static class Concurrent2LockQueue<E> implements BlockingQueue<E>{
+	@Override
+	public Response serviceRequest (ElementConsumer consumer, Command cmd, byte[]... args) {
+		throw new NotSupportedException ("serviceRequest(ElementConsumer, Command, byte[]...) is not supported.");
+	}
 
-		/**
-		 * @param <E>
-		 */
-		private static final class Node<E> {
-			private volatile E 			item;
-			private volatile Node<E>	next;
-
-			@SuppressWarnings("unchecked")
-	        private static final
-			AtomicReferenceFieldUpdater<Node, Node>
-			nextUpdater = 
-				AtomicReferenceFieldUpdater.newUpdater
-				(Node.class, Node.class, "next");
-
-			@SuppressWarnings("unchecked")
-	        private static final
-			AtomicReferenceFieldUpdater<Node, Object>
-			itemUpdater = 
-				AtomicReferenceFieldUpdater.newUpdater
-				(Node.class, Object.class, "item");
-
-			private Node(E x, Node<E> n) { item = x; next = n; }
+	/**
+	 * Acquires the request lock, with (at least) the given number of free slots in
+	 * the pending queue.  Requesters wait for free slots without holding the request
+	 * lock, as the response handler may itself be queuing requests (e.g. in completion 
+	 * callbacks).  The response handler can not wait for its own progress: it may use 
+	 * the reserved slots of the pending queue, and its requests are rejected if the pending
+	 * queue is full.
+	 * @param slots
+	 * @throws ClientRuntimeException if the connection is lost while waiting, or
+	 * the caller is the response handler.
+	 */
+	private void lockWithPendingCapacity (int slots) throws ClientRuntimeException {
+		final boolean isHandler = Thread.currentThread() == respHandlerThread;
+		final int required = isHandler ? slots : slots + handlerReserve;
+		for(;;) {
+			requestlock.lock();
+			if(pendingResponseQueue.hasCapacity(required)) 
+				return;
+			requestlock.unlock();
 			
-			private final E getItem() { return item; }
-			private final void setItem(E update) { itemUpdater.set(this, update); }
-			private final void setNext(Node<E> update) { nextUpdater.set(this, update); }
-			private final Node<E> getNext() { return next; }
-		}
-
-		// --------------------------------------------------------------
-		// Properties
-		// --------------------------------------------------------------
-		private transient volatile Node<E> head = new Node<E>(null, null);
-		private transient volatile Node<E> tail = head;
-
-	    public Concurrent2LockQueue () {}
-
-		// --------------------------------------------------------------
-		// INTERFACE: BlockingQueue<E>
-		// --------------------------------------------------------------
-	    
-	    /* (non-Javadoc) @see java.util.concurrent.BlockingQueue#offer(java.lang.Object) */
-	    public final boolean offer(E item) {
-	    	if(null == item) throw new NullPointerException("item");
-	    	final Node<E> n = new Node<E>(item, null);
-
-	    	Node<E> t = tail;
-			t.setNext(n);
-			tail = n;
-
-	    	return true;
-	    }
-	    
-		/* (non-Javadoc) @see java.util.concurrent.BlockingQueue#poll(long, java.util.concurrent.TimeUnit) */
-		@Override final
-		public E poll(long timeout, TimeUnit unit) throws InterruptedException {
-			throw new RuntimeException("not supported");
+			if(isHandler)
+				throw new ClientRuntimeException("Pipeline pending response queue is full: requests queued by the response handler can not wait (use an Executor for callbacks)");
+			awaitPendingCapacity(required);
 		}
-		
-	    /* (non-Javadoc) @see java.util.Queue#poll() */
-	    public final E poll () {
-	    	E item = null;
-
-			final Node<E> h = head;
-			final Node<E> newhead = h.getNext();
-			if(newhead != null) {
-				item = newhead.getItem();
-				head = newhead;
-				newhead.setItem(null);
-				h.setNext(null);
-			} 
-
-	    	return item;
-	    }
-	    
-	    /* (non-Javadoc) @see java.util.Queue#peek() */
-	    @Override final
-	    public E peek () {
-	    	E item = null;
-
-			final Node<E> h = head;
-			final Node<E> f = h.getNext();
-			if(f != null) {
-				item = f.getItem();
-			}
-
-	    	return item;
-	    }
-	    
-		/* (non-Javadoc) @see java.util.concurrent.BlockingQueue#take() */
-		@Override final
-		public E take() throws InterruptedException {
-			E	item = null;
-			while(true){
-				item = poll();
-				if(item != null) 
-					break;
-				LockSupport.parkNanos(1L); // magic number -- let's configure this.
-				if(Thread.interrupted()){
-					Log.error("%s interrupted!", Thread.currentThread().getName());
-					throw new InterruptedException();
-				}
+	}
+	
+	/** waiting requesters are serialized by the throttle lock */
+	private void awaitPendingCapacity (int slots) throws ClientRuntimeException {
+		throttlelock.lock();
+		try {
+			while(!pendingResponseQueue.awaitCapacity(slots, BLOCKED_CHECK_MSEC, TimeUnit.MILLISECONDS)){
+				if(!isConnected() || !respHandler.isAlive())
+					throw new NotConnectedException("Pipeline disconnected while awaiting pending responses");
 			}
-			return item;
 		}
-		
-		/* (non-Javadoc) @see java.util.Queue#remove() */
-		@Override final
-		public E remove() {
-			final E item = poll();
-			if(item == null) 
-				throw new NoSuchElementException();
-			return item;
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ClientRuntimeException("Interrupted while awaiting pending responses", e);
 		}
-
-		/* (non-Javadoc) @see java.util.concurrent.BlockingQueue#add(java.lang.Object) */
-		@Override final
-		public boolean add(E e) {
-			return this.offer(e);
+		finally {
+			throttlelock.unlock();
 		}
-
-		/* -- NOT SUPPORTED -- BEGIN */
+	}
+	
+	/**
+	 * Writes the accumulated chunk and hands its requests to the response handler.  
+	 * Called in the critical block.
+	 * @param out
+	 * @param off bytes in chunk
+	 * @param idx requests in chunk
+	 * @param cause
+	 * @throws IOException
+	 */
+	private void writeChunk (OutputStream out, int off, int idx, FlushCause cause) throws IOException {
+		out.write(chunkbuff, 0, off);
+		out.flush();
+		enqueuePending(chunkqueue);
+		chunkqueue = new PendingCPRequest[chunkQSize];
+		ctl_word = 0;
 		
-		@Override final
-		public E element() {
-			throw new RuntimeException("not supported");
-		}
-		@Override final
-		public boolean addAll(Collection<? extends E> c) {
-			throw new RuntimeException("not supported");
-		}
-		@Override final
-		public void clear() {
-			throw new RuntimeException("not supported");
-		}
-		@Override final
-		public boolean contains(Object o) {
-			throw new RuntimeException("not supported");
-		}
-		@Override final
-		public boolean containsAll(Collection<?> c) {
-			throw new RuntimeException("not supported");
-		}
-		@Override final public boolean isEmpty() {
-			throw new RuntimeException("not supported");
-		}
-		@Override final
-		public Iterator<E> iterator() {
-			throw new RuntimeException("not supported");
-		}
-		@Override final
-		public boolean remove(Object o) {
-			throw new RuntimeException("not supported");
-		}
-		@Override final
-		public boolean removeAll(Collection<?> c) {
-			throw new RuntimeException("not supported");
-		}
-		@Override final
-		public boolean retainAll(Collection<?> c) {
-			throw new RuntimeException("not supported");
-		}
-		@Override final
-		public int size() {
-			throw new RuntimeException("not supported");
-		}
-		@Override final
-		public Object[] toArray() {
-			throw new RuntimeException("not supported");
-		}
-		@Override final
-		public <T> T[] toArray(T[] a) {
-			throw new RuntimeException("not supported");
-		}
-		@Override final
-		public int drainTo(Collection<? super E> c) {
-			throw new RuntimeException("not supported");
-		}
-		@Override final
-		public int drainTo(Collection<? super E> c, int maxElements) {
-			throw new RuntimeException("not supported");
+		statChunks++;
+		statRequests += idx;
+		statBytes += off;
+		statFlushes[cause.ordinal()]++;
+		
+		chunkSeq = chunkSeq + 1;	/* publishes the write to demand flushes */
+	}
+	
+	/**
+	 * Demand flush on behalf of a request in the given chunk.  Coalesced: no-op if 
+	 * the chunk has already been written.
+	 * @param seq chunk sequence of the request; negative if not sent in a chunk 
+	 */
+	final void flushChunk (long seq) {
+		if(seq < 0) return;
+		if(seq < chunkSeq) { 
+			statCoalesced.incrementAndGet();
+			return;
 		}
-		@Override final
-		public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException {
-			throw new RuntimeException("not supported");
+		if(!isConnected()) 
+			throw new NotConnectedException ("Not connected!");
+		
+		lockWithPendingCapacity(1);
+		try {
+			final int __ctl_word = ctl_word;
+			final int off = __ctl_word & 0x0000FFFF;
+			if(seq == chunkSeq && off > 0) 
+				writeChunk(getOutputStream(), off, __ctl_word >> 16, FlushCause.DEMAND);
+			else
+				statCoalesced.incrementAndGet();
+		} 
+		catch (IOException e) {
+			Log.error("IOException on flush isConnected:%b", isConnected());
+			this.onConnectionFault("IOFault (flush)", true);
+		} 
+		finally {
+			requestlock.unlock();
 		}
-		@Override final
-		public void put(E e) throws InterruptedException {
-			throw new RuntimeException("not supported");
+	}
+	
+	/**
+	 * Timed flush of the given chunk, by the linger timer.  The timer does not wait:
+	 * if a requester holds the request lock, or the pending queue is full, the flush
+	 * is rescheduled.
+	 * @param seq
+	 */
+	private void lingerFlush (long seq) {
+		if(seq != chunkSeq || !isConnected() || pendingQuit) return;
+		
+		if(!requestlock.tryLock()) {
+			LingerTimer.schedule(new LingerFlush(seq), lingerNanos);
+			return;
 		}
-		@Override final
-		public int remainingCapacity() {
-			throw new RuntimeException("not supported");
+		try {
+			if(seq != chunkSeq) return;
+			if(!pendingResponseQueue.hasCapacity(1 + handlerReserve)) {
+				LingerTimer.schedule(new LingerFlush(seq), lingerNanos);
+				return;
+			}
+			final int __ctl_word = ctl_word;
+			final int off = __ctl_word & 0x0000FFFF;
+			if(off > 0) 
+				writeChunk(getOutputStream(), off, __ctl_word >> 16, FlushCause.LINGER);
+		} 
+		catch (IOException e) {
+			Log.error("IOException on linger flush isConnected:%b", isConnected());
+			this.onConnectionFault("IOFault (linger flush)", true);
+		} 
+		catch (RuntimeException e) {
+			Log.error("linger flush: " + e.getMessage());
+		} 
+		finally {
+			requestlock.unlock();
 		}
-		/* -- NOT SUPPORTED -- END */
 	}
 	
-	// ========================================================================
-	// Inner Class
-	// ========================================================================
-	
 	/**
-	 * A not so KISSy reproduction of necessary {@link Protocol} support
-	 * from {@link ProtocolBase}.  Stays here until update of the interface
-	 * to allow for sharing of the codebase.
-	 * @author Joubin <alphazero@sensesay.net>
-	 *
+	 * @return a snapshot of the chunk metrics of this pipeline
 	 */
-	final static class ProtocolHelper {
-		/* hackedy hack -- to go bye bye soon  */
-		static class Buffer {
-			byte[] b = null;
-			private int off = 0;
-			Buffer(int size){
-				b = new byte[size];
-			}
-			Buffer(byte[] b, int off){
-				this.b = b;
-				this.off = off;
-			}
-			void write (byte[] d){
-				final int dlen = d.length;
-				System.arraycopy(d, 0, b, off, dlen);
-				off+=dlen;
-			}
-			void write (byte d){
-				b[off] = d;
-				off++;
-			}
-			byte[] getBytes() {
-				return b;
-			}
+	public ChunkStats getChunkStats () {
+		requestlock.lock();
+		try {
+			return new ChunkStats(this);
 		}
-		public static int calcReqBuffSize (Command cmd, byte[] ... args) throws IllegalArgumentException {
-			byte[] cmdLenBytes = Convert.toBytes(cmd.bytes.length);
-			byte[] lineCntBytes = Convert.toBytes(args.length+1);
-
-			int bsize = 1 + lineCntBytes.length + CRLF_LEN + 1 + cmdLenBytes.length + CRLF_LEN + cmd.bytes.length + CRLF_LEN;
-			for(int i=0;i<args.length; i++){
-				byte[] argLenBytes = Convert.toBytes(Assert.notNull(args[i], i, ProviderException.class).length);
-				int _bsize = 1 + argLenBytes.length + CRLF_LEN + args[i].length + CRLF_LEN;
-				bsize += _bsize;
-			}
-			return bsize;
+		finally {
+			requestlock.unlock();
 		}
-		static public byte[] writeRequestToBuffer(final Buffer buffer, final Command cmd, final byte[]...args) throws ProviderException, IllegalArgumentException {
-			//    		Buffer buffer = null;
-			byte[] cmdLenBytes = Convert.toBytes(cmd.bytes.length);
-			byte[] lineCntBytes = Convert.toBytes(args.length+1);
-
-			buffer.write(COUNT_BYTE);  		
-			buffer.write(lineCntBytes);		
-			buffer.write(CRLF);				
-			buffer.write(SIZE_BYTE);		
-			buffer.write(cmdLenBytes);		
-			buffer.write(CRLF);				
-			buffer.write(cmd.bytes);		
-			buffer.write(CRLF);
-
-			switch (cmd.requestType) {
+	}
+	
+	/** capacity is reserved by {@link ChunkedPipelineConnection#lockWithPendingCapacity(int)} */
+	private void enqueuePending (PendingCPRequest[] items) {
+		if(!pendingResponseQueue.offer(items))
+			throw new ProviderException("BUG - pending queue capacity was reserved");
+	}
 
-			case NO_ARG:
-				break;
+	void onResponseHandlerError (ClientRuntimeException cre, PendingRequest request) {
+		Log.error("Pipeline response handler encountered an error: " + cre.getMessage());
 
-				// TODO: check w/ antirez if in fact nulls are now generally accepted
-				// that is the only diff here.
-			case BULK_SET:
-				String errmsg = "Only MSET, MSETNX, LINSERT bulk commands are supported";
-				Assert.isTrue(cmd == Command.MSET || cmd == Command.MSETNX || cmd == Command.LINSERT, errmsg, NotSupportedException.class);
-
-				// THIS IS CLEARLY BROKEN ... SO MUCH FOR COMPREHSIVE TESTS ...
-				buffer.write(COUNT_BYTE);
-				buffer.write(lineCntBytes);
-				buffer.write(CRLF);
-				buffer.write(SIZE_BYTE);
-				buffer.write(cmdLenBytes);
-				buffer.write(CRLF);
-				buffer.write(cmd.bytes);
-				buffer.write(CRLF);
-
-				for(int s=0; s<args.length; s++){
-					buffer.write(SIZE_BYTE);
-					if (args[s] != null) {
-						buffer.write(Convert.toBytes(args[s].length));
-						buffer.write(CRLF);
-						buffer.write(args[s]);
-						buffer.write(CRLF);
-					} else {
-						buffer.write(ASCII_ZERO);
-						buffer.write(CRLF);
-						buffer.write(CRLF);
-					}
-				}
-				break;
+		// signal fault -- the pending requests are completed even if the
+		// shutdown sequence raises (e.g. the connection was concurrently closed)
+		try {
+			onConnectionFault(cre.getMessage(), false);
+		}
+		finally {
+			// set execution error for future object
+			request.setCRE(cre);
 
-			default:
-				for(int i=0;i<args.length; i++){
-					buffer.write(SIZE_BYTE);
-					buffer.write(Convert.toBytes(Assert.notNull(args[i], i, ProviderException.class).length));
-					buffer.write(CRLF);
-					buffer.write(args[i]);
-					buffer.write(CRLF);
+//			PendingCPRequest pending = null;
+			PendingCPRequest[] items = null;
+			while((items = pendingResponseQueue.poll()) != null){
+				for(PendingCPRequest item : items){
+					if(item == null) { break; }
+					item.setCRE(cre);
+					Log.error("set pending %s response to error with CRE", item.cmd);
 				}
-				break;
-
 			}
-			return buffer.getBytes();
 		}
-
 	}
 	
 	// ========================================================================
@@ -748,30 +683,131 @@ public class ChunkedPipelineConnection
 
 		private final ChunkedPipelineConnection pipeline;
 		
-		PendingCPRequest(ChunkedPipelineConnection pipeline, Command cmd) {
+		/** sequence of the chunk this request was sent in -- set in critical block; -1 if not sent in a chunk */
+		long chunkSeq = -1;
+		
+		/** consumer of the streamed elements of the reply, or null */
+		final ElementConsumer consumer;
+		
+		PendingCPRequest(ChunkedPipelineConnection pipeline, Command cmd, ElementConsumer consumer) {
 			super(cmd);
 			this.pipeline = pipeline;
+			this.consumer = consumer;
 		}
 		@Override final
 		public Response get() 
 		throws InterruptedException, ExecutionException {
-			requestFlush();
+			if(!isDone()) pipeline.flushChunk(chunkSeq);
 			return super.get();
 		}
 		@Override final
 		public Response get(long timeout, TimeUnit unit)
 		throws InterruptedException, ExecutionException, TimeoutException 
 		{
-			requestFlush();
+			if(!isDone()) pipeline.flushChunk(chunkSeq);
 			return super.get(timeout, unit);
 		}
-		final private void requestFlush() {
-			if(cmd != Command.QUIT) {
-				pipeline.queueRequest(Command.CONN_FLUSH);
-			}
-			else {
-				new Exception().printStackTrace();
-			}
+		/** a listener is as good as a waiter: flush so the request is not left sitting in the chunk */
+		@Override final
+		public void addCompletionListener(Runnable listener) {
+			super.addCompletionListener(listener);
+			if(!isDone()) pipeline.flushChunk(chunkSeq);
+		}
+	}
+	
+	// ========================================================================
+	// Inner Types: chunk flush and metrics
+	// ========================================================================
+	
+	/** reason a chunk was written */
+	public enum FlushCause {
+		/** next request did not fit in the chunk */
+		OVERFLOW,
+		/** per the {@link ChunkFlushPolicy} */
+		POLICY,
+		/** linger time of the chunk's first request elapsed */
+		LINGER,
+		/** <code>get()</code> or callback registration on a request in the chunk */
+		DEMAND,
+		/** AUTH, SELECT, or {@link Command#CONN_FLUSH} */
+		COMMAND
+	}
+	
+	/**
+	 * Snapshot of the chunk metrics of a pipeline.  Requests larger than the chunk
+	 * are written directly and are only counted by {@link ChunkStats#getLargeRequests()}.
+	 */
+	public static final class ChunkStats {
+		private final int	chunkSize;
+		private final long	chunks, requests, bytes, largeRequests, coalesced;
+		private final long[] flushes;
+
+		private ChunkStats (ChunkedPipelineConnection c) {
+			chunkSize = c.chunkBuffSize;
+			chunks = c.statChunks;
+			requests = c.statRequests;
+			bytes = c.statBytes;
+			largeRequests = c.statLargeRequests;
+			coalesced = c.statCoalesced.get();
+			flushes = c.statFlushes.clone();
+		}
+		/** @return size of the chunk buffer in bytes */
+		public int getChunkSize () { return chunkSize; }
+		/** @return number of chunks written */
+		public long getChunks () { return chunks; }
+		/** @return number of requests written in chunks */
+		public long getRequests () { return requests; }
+		/** @return number of bytes written in chunks */
+		public long getBytes () { return bytes; }
+		/** @return number of requests written directly, bypassing the chunk */
+		public long getLargeRequests () { return largeRequests; }
+		/** @return demand flushes that did not require a write */
+		public long getCoalescedFlushes () { return coalesced; }
+		/** @return number of chunks written for the given cause */
+		public long getFlushes (FlushCause cause) { return flushes[cause.ordinal()]; }
+		/** @return average fill of written chunks, 0.0 to 1.0 */
+		public double getAverageFill () { 
+			return chunks == 0 ? 0.0 : (double) bytes / ((double) chunks * chunkSize); 
+		}
+		/** @return average number of requests per written chunk */
+		public double getAverageRequests () { 
+			return chunks == 0 ? 0.0 : (double) requests / chunks; 
+		}
+		@Override
+		public String toString () {
+			StringBuilder b = new StringBuilder();
+			b.append(String.format("chunks: %d requests: %d bytes: %d fill: %.3f req/chunk: %.2f large: %d coalesced: %d", 
+					chunks, requests, bytes, getAverageFill(), getAverageRequests(), largeRequests, coalesced));
+			for(FlushCause cause : FlushCause.values())
+				b.append(String.format(" %s: %d", cause.name().toLowerCase(), flushes[cause.ordinal()]));
+			return b.toString();
+		}
+	}
+	
+	/** timed flush of a chunk */
+	private final class LingerFlush implements Runnable {
+		private final long seq;
+		LingerFlush (long seq) { this.seq = seq; }
+		@Override
+		public void run () { lingerFlush(seq); }
+	}
+	
+	/** 
+	 * A single (daemon) timer thread shared by all pipelines -- lazily started on
+	 * first use, so pipelines with linger disabled never start it. 
+	 */
+	private static final class LingerTimer {
+		private static final ScheduledExecutorService timer = 
+			Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread (Runnable r) {
+					final Thread t = new Thread(r, "jredis-pipeline-linger");
+					t.setDaemon(true);
+					return t;
+				}
+			});
+		static void schedule (Runnable task, long nanos) {
+			timer.schedule(task, nanos, TimeUnit.NANOSECONDS);
 		}
 	}
 	
@@ -850,15 +886,21 @@ public class ChunkedPipelineConnection
 						try {
 							// TODO: here -- simplify REVU: ?
 							response = protocol.createResponse(pending.cmd);
+							if(null != pending.consumer)
+								((StreamingMultiBulkResponse) response).setElementConsumer(pending.consumer);
 							response.read(getInputStream());
-							pending.response = response;
-							pending.completion.signal();
+							pending.setResponse(response);
 							if(response.getStatus().isError()) {
 								Log.error ("(Asynch) Error response for " + pending.cmd.code + " => " + response.getStatus().message());
 							}
 
 						}
 
+						// the reply has been read -- only the request fails
+						catch (ElementConsumerException e) {
+							Log.error ("(Asynch) ElementConsumer error for " + pending.cmd.code + " => " + e.getCause());
+							pending.setCRE(e);
+						}
 						// TODO: REVU: this in context of both connection and (general) errors. 
 						catch (ProviderException bug){
 							Log.bug ("ProviderException: " + bug.getMessage());
@@ -897,6 +939,11 @@ public class ChunkedPipelineConnection
 			alive_flag.compareAndSet(true, false);
 		}
 
+		/** @return true if the handler thread is running */
+		final boolean isAlive() {
+			return alive_flag.get();
+		}
+		
 		// REVU: TODO: 
 		final private void stopHandler() {
 			Log.log("%s stopping handler thread", this);
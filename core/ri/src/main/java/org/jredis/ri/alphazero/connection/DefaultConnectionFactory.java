@@ -46,10 +46,10 @@ public class DefaultConnectionFactory implements Connection.Factory {
 			case PubSub:
 				throw new ProviderException("NOT IMPLEMENTED!");
 			case Asynchronous:
-				conn = newAsyncConnection(spec);
+				conn = isMultiplexed(spec) ? new MultiplexedConnection(spec) : newAsyncConnection(spec);
 				break;
 			case Synchronous:
-				conn = new SyncConnection(spec);
+				conn = isMultiplexed(spec) ? new MultiplexedConnection(spec) : new SyncConnection(spec);
 				break;
     	}
     	// TODO: factories create completed products --
@@ -63,6 +63,15 @@ public class DefaultConnectionFactory implements Connection.Factory {
 	    return conn;
     }
 
+	/**
+	 * @param spec
+	 * @return true if the {@link Connection.Property#SELECTOR_LOOP} is specified, in which case
+	 * a (non-blocking) {@link MultiplexedConnection} is used regardless of the other connection flags.
+	 */
+	private boolean isMultiplexed (ConnectionSpec spec) {
+		return spec.getConnectionProperty(Connection.Property.SELECTOR_LOOP) != null;
+	}
+
 	/**
 	 * Creates a new {@link Connection.Modality#Asynchronous} {@link Connection}
 	 * per {@link ConnectionSpec} settings. 
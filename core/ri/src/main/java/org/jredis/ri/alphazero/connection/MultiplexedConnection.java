@@ -0,0 +1,566 @@
+/*
+ *   Copyright 2009-2012 Joubin Houshyar
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package org.jredis.ri.alphazero.connection;
+
+import static org.jredis.connector.Connection.Socket.Property.SO_PREF_BANDWIDTH;
+import static org.jredis.connector.Connection.Socket.Property.SO_PREF_CONN_TIME;
+import static org.jredis.connector.Connection.Socket.Property.SO_PREF_LATENCY;
+import static org.jredis.connector.Connection.Socket.Property.SO_RCVBUF;
+import static org.jredis.connector.Connection.Socket.Property.SO_SNDBUF;
+import static org.jredis.connector.Connection.Socket.Property.SO_TIMEOUT;
+import static org.jredis.ri.alphazero.support.Assert.notNull;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.HashSet;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.jredis.ClientRuntimeException;
+import org.jredis.ProviderException;
+import org.jredis.RedisException;
+import org.jredis.connector.Connection;
+import org.jredis.connector.ConnectionSpec;
+import org.jredis.connector.NotConnectedException;
+import org.jredis.connector.Connection.Event.Type;
+import org.jredis.protocol.Command;
+import org.jredis.protocol.Protocol;
+import org.jredis.protocol.Response;
+import org.jredis.protocol.ResponseStatus;
+import org.jredis.ri.alphazero.protocol.ConcurrentSyncProtocol;
+import org.jredis.ri.alphazero.protocol.IncrementalResponseParser;
+import org.jredis.ri.alphazero.protocol.RequestEncoder;
+import org.jredis.ri.alphazero.support.Assert;
+import org.jredis.ri.alphazero.support.Convert;
+import org.jredis.ri.alphazero.support.Log;
+
+/**
+ * A non-blocking {@link Connection} over a {@link SocketChannel} that is driven
+ * by a (typically shared) {@link SelectorLoop}.  Unlike the {@link ConnectionBase}
+ * derived connections, this connection does not own any threads: a single loop
+ * thread can service the IO of any number of these connections.
+ * <p>
+ * Requesting threads encode their requests directly into the connection's
+ * outbound queue (see {@link RequestEncoder}), which is written (non-blocking) to the
+ * channel by the requesting thread if possible, and by the loop thread on write
+ * readiness otherwise.
+ * Replies are read on read readiness and parsed incrementally by an {@link IncrementalResponseParser}, and the associated
+ * {@link PendingRequest}s are completed on the loop thread in request order.
+ * <p>
+ * Both {@link Connection#queueRequest(Command, byte[]...)} and the (blocking)
+ * {@link Connection#serviceRequest(Command, byte[]...)} are supported, so this connection
+ * can be used for either {@link Connection.Modality#Synchronous} or {@link Connection.Modality#Asynchronous}
+ * clients.  It is selected by {@link DefaultConnectionFactory} if the
+ * {@link Connection.Property#SELECTOR_LOOP} property of the {@link ConnectionSpec} is set.
+ *
+ * @author  Joubin Houshyar (alphazero@sensesay.net)
+ * @date    Apr 2, 2012
+ *
+ */
+
+public class MultiplexedConnection implements Connection, SelectorLoop.Handler {
+
+	// ------------------------------------------------------------------------
+	// Properties
+	// ------------------------------------------------------------------------
+	/** Connection specs used to create this {@link Connection} */
+	final protected ConnectionSpec		spec;
+
+	/** address of the socket connection */
+	private final InetSocketAddress		socketAddress;
+
+	/** the event loop driving this connection */
+	private final SelectorLoop			loop;
+
+	/** used to create requests (any thread) and responses (loop thread) */
+	private final Protocol				protocol;
+
+	/** Connector Listeners */
+	final private Set<Connection.Listener> listeners = new HashSet<Connection.Listener>();
+
+	/**  */
+	private volatile boolean			isConnected = false;
+
+	/** set when a QUIT is queued.  no further requests are accepted. */
+	private volatile boolean			pendingQuit = false;
+
+	/** a new instance is obtained on each connect */
+	private volatile SocketChannel		channel;
+
+	/** loop thread only */
+	private SelectionKey				key;
+
+	/** guards the outbound queue, pending queue order, and write interest */
+	private final Object				outLock = new Object();
+
+	/** encodes requests into the outbound queue */
+	private final RequestEncoder		encoder;
+
+	/** true if OP_WRITE interest has been requested */
+	private boolean						writeInterest = false;
+
+	/**
+	 * requests awaiting response in request order.  added to under the outLock, and
+	 * consumed by the loop thread only.  a new queue is set (under the outLock) on disconnect.
+	 */
+	private volatile Queue<PendingRequest>	pendingQueue = new ConcurrentLinkedQueue<PendingRequest>();
+
+	/** inbound buffer -- loop thread only.  in write mode (data in [0, position)) */
+	private ByteBuffer					inbuf;
+
+	/** resumable reply parser -- loop thread only */
+	private final IncrementalResponseParser	parser = new IncrementalResponseParser();
+
+	/** enables OP_WRITE interest -- loop thread task */
+	private final Runnable				enableWriteInterest = new Runnable() {
+		public void run () {
+			if(key != null && key.isValid())
+				key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+		}
+	};
+
+	/** completes virtual requests at the head of the pending queue -- loop thread task */
+	private final Runnable				completeVirtualRequests = new Runnable() {
+		public void run () { onVirtualRequestsAtHead(pendingQueue); }
+	};
+
+	// ------------------------------------------------------------------------
+	// Constructor
+	// ------------------------------------------------------------------------
+	/**
+	 * @param spec
+	 * @throws ClientRuntimeException if connection attempt to specified host is not possible and
+	 * connect immediate was requested.
+	 */
+	@SuppressWarnings("boxing")
+	public MultiplexedConnection (ConnectionSpec spec) throws ClientRuntimeException {
+		try {
+			this.spec = notNull(spec, "ConnectionSpec init parameter", ClientRuntimeException.class);
+			socketAddress = new InetSocketAddress(spec.getAddress(), spec.getPort());
+		}
+		catch (IllegalArgumentException e) {
+			throw new ClientRuntimeException
+				("invalid connection spec parameters: " + e.getLocalizedMessage(), e);
+		}
+		Object loopSpec = notNull(spec.getConnectionProperty(Property.SELECTOR_LOOP), "SELECTOR_LOOP connection property", ClientRuntimeException.class);
+		if(loopSpec instanceof SelectorLoop)
+			loop = (SelectorLoop) loopSpec;
+		else if (Boolean.TRUE.equals(loopSpec))
+			loop = SelectorLoop.getDefault();
+		else
+			throw new ClientRuntimeException("SELECTOR_LOOP connection property must be Boolean.TRUE or a SelectorLoop: " + loopSpec);
+
+		protocol = new ConcurrentSyncProtocol();
+		encoder = new RequestEncoder(spec.getSocketProperty(SO_SNDBUF), RequestEncoder.DEFAULT_GATHER_THRESHOLD);
+		inbuf = ByteBuffer.allocateDirect(spec.getSocketProperty(SO_RCVBUF));
+
+		if (spec.getConnectionFlag(Flag.CONNECT_IMMEDIATELY)) {
+			connect ();
+		}
+	}
+
+	// ------------------------------------------------------------------------
+	// Interface
+	// ============================================================ Connection
+	// ------------------------------------------------------------------------
+
+	/* (non-Javadoc) @see org.jredis.connector.Connection#getSpec() */
+	public ConnectionSpec getSpec () {
+		return spec;
+	}
+
+	/**
+	 * Queues the request and blocks until its response is read.  Waits at most
+	 * for the {@link Connection.Socket.Property#SO_TIMEOUT} of the spec, if set.
+	 * @see org.jredis.connector.Connection#serviceRequest(org.jredis.protocol.Command, byte[][])
+	 */
+	@SuppressWarnings("boxing")
+	public Response serviceRequest (Command cmd, byte[]... args)
+		throws RedisException, ClientRuntimeException, ProviderException
+	{
+		Future<Response> future = queueRequest(cmd, args);
+		Response response = null;
+		try {
+			final int timeout = spec.getSocketProperty(SO_TIMEOUT);
+			response = timeout > 0 ? future.get(timeout, TimeUnit.MILLISECONDS) : future.get();
+		}
+		catch (InterruptedException e) {
+			throw new ClientRuntimeException("Interrupted while waiting for response to " + cmd.code, e);
+		}
+		catch (TimeoutException e) {
+			throw new ClientRuntimeException("Timed out waiting for response to " + cmd.code);
+		}
+		catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if(cause instanceof RedisException)
+				throw (RedisException) cause;
+			else if(cause instanceof ProviderException)
+				throw (ProviderException) cause;
+			else if(cause instanceof ClientRuntimeException)
+				throw (ClientRuntimeException) cause;
+			throw new ProviderException("Unexpected cause for ExecutionException", e);
+		}
+		if(response.getStatus().code() == ResponseStatus.Code.CIAO) {
+			// normal for quit and shutdown commands.  we disconnect too.
+			disconnect();
+		}
+		return response;
+	}
+
+	/**
+	 * Encodes the request into the shared outbound queue and returns immediately.  The request
+	 * is written by the calling thread if the channel accepts it, and by the loop thread otherwise.
+	 * <p>
+	 * Once a QUIT request has been queued, no further requests are accepted and a
+	 * {@link ClientRuntimeException} is thrown.
+	 * @see org.jredis.connector.Connection#queueRequest(org.jredis.protocol.Command, byte[][])
+	 */
+	public Future<Response> queueRequest (Command cmd, byte[]... args)
+		throws ClientRuntimeException, ProviderException
+	{
+		if(!isConnected)
+			throw new NotConnectedException ("Not connected!");
+
+		if(pendingQuit)
+			throw new ClientRuntimeException("Connection shutting down: Quit in progess; no further requests are accepted.");
+
+		PendingRequest 	pending = new PendingRequest(cmd);
+		if(cmd.responseType == Command.ResponseType.NOP) {
+			pending.setResponse(protocol.createResponse(cmd));
+			return pending;
+		}
+		final boolean isVirtual = cmd.responseType == Command.ResponseType.VIRTUAL;
+		final boolean sendreq = cmd != Command.QUIT;
+		if(sendreq)
+			RequestEncoder.frameSize(cmd, args);	// validate args before queuing
+
+		synchronized (outLock) {
+			if(!isConnected)
+				throw new NotConnectedException ("Not connected!");
+			if(cmd == Command.QUIT)
+				pendingQuit = true;
+			pendingQueue.add(pending);
+			if(sendreq) {
+				encoder.append(cmd, args);
+				flush();
+			}
+		}
+		if(isVirtual)
+			loop.execute(completeVirtualRequests);
+
+		return pending;
+	}
+
+	// ------------------------------------------------------------------------
+	// Event management
+
+	/* (non-Javadoc) @see org.jredis.connector.Connection#addListener(org.jredis.connector.Connection.Listener) */
+	final public boolean addListener(Listener connListener){
+		return listeners.add(connListener);
+	}
+
+	/* (non-Javadoc) @see org.jredis.connector.Connection#removeListener(org.jredis.connector.Connection.Listener) */
+	final public boolean removeListener(Listener connListener){
+		return listeners.remove(connListener);
+	}
+
+	// ------------------------------------------------------------------------
+	// Interface
+	// =================================================== SelectorLoop.Handler
+	/*
+	 * All invoked on the loop thread.
+	 */
+	// ------------------------------------------------------------------------
+
+	/* (non-Javadoc) @see org.jredis.ri.alphazero.connection.SelectorLoop.Handler#onRegistered(java.nio.channels.SelectionKey) */
+	public void onRegistered (SelectionKey key) {
+		this.key = key;
+	}
+
+	/* (non-Javadoc) @see org.jredis.ri.alphazero.connection.SelectorLoop.Handler#onWritable() */
+	public void onWritable () {
+		synchronized (outLock) {
+			flush();
+		}
+	}
+
+	/**
+	 * Reads what is available and completes the pending requests of all complete
+	 * replies in the inbound buffer.  A partial reply is retained by the parser,
+	 * which resumes on the next read.
+	 * @see org.jredis.ri.alphazero.connection.SelectorLoop.Handler#onReadable()
+	 */
+	public void onReadable () {
+		// a disconnect (on any thread) sets a new queue -- read both of the same connect
+		final SocketChannel ch;
+		final Queue<PendingRequest> queue;
+		synchronized (outLock) {
+			ch = channel;
+			queue = pendingQueue;
+		}
+		if(ch == null) return;
+		try {
+			if(ch.read(inbuf) < 0) {
+				onConnectionFault("Connection closed by server", false);
+				return;
+			}
+		}
+		catch (IOException e) {
+			onConnectionFault("[IO] on read: " + e.getMessage(), false);
+			return;
+		}
+
+		inbuf.flip();
+		try {
+			while(isConnected && inbuf.hasRemaining()){
+				onVirtualRequestsAtHead(queue);
+				PendingRequest pending = queue.peek();
+				if(pending == null)
+					throw new ProviderException("[BUG] received a reply with no pending requests");
+
+				Response response = parser.parse(pending.cmd, inbuf);
+				if(response == null)
+					break;
+				queue.poll();
+				pending.setResponse(response);
+				if(response.getStatus().isError()) {
+					Log.error ("(Multiplexed) Error response for " + pending.cmd.code + " => " + response.getStatus().message());
+				}
+				onVirtualRequestsAtHead(queue);
+			}
+		}
+		catch (RuntimeException e) {
+			onConnectionFault("Error processing reply: " + e.getMessage(), false);
+		}
+		finally {
+			inbuf.compact();
+		}
+	}
+
+	// ------------------------------------------------------------------------
+	// Inner ops: request/response processing
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Non-blocking gathering write of the outbound queue.  Requests write interest if data
+	 * remains and clears it (on the loop thread) if fully written.  Must hold the outLock.
+	 */
+	private final void flush () {
+		final SocketChannel ch = channel;
+		if(ch == null) return;
+		try {
+			while(encoder.hasRemaining() && encoder.writeTo(ch) > 0)
+				;
+		}
+		catch (IOException e) {
+			onConnectionFault("[IO] on write: " + e.getMessage(), false);
+			return;
+		}
+		if(encoder.hasRemaining()) {
+			if(!writeInterest) {
+				writeInterest = true;
+				loop.execute(enableWriteInterest);
+			}
+		}
+		else if(writeInterest && loop.inLoop()) {
+			writeInterest = false;
+			if(key != null && key.isValid())
+				key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+		}
+	}
+
+	/**
+	 * Requests with {@link Command.ResponseType#VIRTUAL} responses are not replied to by the
+	 * server, so they are completed as soon as they reach the head of the pending queue.
+	 * Completion of QUIT disconnects the connection.  Loop thread only.
+	 */
+	private final void onVirtualRequestsAtHead (Queue<PendingRequest> queue) {
+		PendingRequest head = null;
+		while((head = queue.peek()) != null && head.cmd.responseType == Command.ResponseType.VIRTUAL) {
+			queue.poll();
+			if(head.cmd == Command.QUIT) {
+				disconnect();
+			}
+			head.setResponse(protocol.createResponse(head.cmd));
+		}
+	}
+
+	/**
+	 * Sets the error of all requests of the (detached) queue.  The loop thread
+	 * may be parsing a reply of its head, so the queue is drained on the loop thread,
+	 * or here if the loop has been shutdown.
+	 * @param queue
+	 * @param cre
+	 */
+	private final void failPendingRequests (final Queue<PendingRequest> queue, final ClientRuntimeException cre) {
+		Runnable failAll = new Runnable() {
+			public void run () {
+				PendingRequest pending = null;
+				while((pending = queue.poll()) != null){
+					pending.setCRE(cre);
+				}
+			}
+		};
+		try {
+			loop.execute(failAll);
+		}
+		catch (ClientRuntimeException shutdown) {
+			failAll.run();
+		}
+	}
+
+	// ------------------------------------------------------------------------
+	// Inner ops: socket and connection management
+	// ------------------------------------------------------------------------
+	/**
+	 * Opens and connects the channel (blocking) per the spec, switches it to
+	 * non-blocking mode, and registers it with the loop.
+	 * @throws IllegalStateException if already connected
+	 * @throws ClientRuntimeException
+	 */
+	@SuppressWarnings("boxing")
+	protected final void connect () throws IllegalStateException, ClientRuntimeException {
+		Assert.isTrue (!isConnected, IllegalStateException.class);
+
+		SocketChannel ch = null;
+		try {
+			ch = SocketChannel.open();
+			java.net.Socket socket = ch.socket();
+			socket.setKeepAlive (spec.getSocketFlag (Connection.Socket.Flag.SO_KEEP_ALIVE));
+			socket.setPerformancePreferences(
+					spec.getSocketProperty (SO_PREF_CONN_TIME),
+					spec.getSocketProperty (SO_PREF_LATENCY),
+					spec.getSocketProperty (SO_PREF_BANDWIDTH));
+			if(socket.getSendBufferSize() < spec.getSocketProperty(SO_SNDBUF))
+				socket.setSendBufferSize(spec.getSocketProperty(SO_SNDBUF));
+			if(socket.getReceiveBufferSize() < spec.getSocketProperty(SO_RCVBUF))
+				socket.setReceiveBufferSize(spec.getSocketProperty(SO_RCVBUF));
+			socket.connect(socketAddress);
+			ch.configureBlocking(false);
+		}
+		catch (IOException e) {
+			if(ch != null) try { ch.close(); } catch (IOException ignore) { }
+			String faultmsg = String.format("Socket connect failed [cause: %s] -- make sure the server is running at %s:%d", e, spec.getAddress().getHostName(), spec.getPort());
+			onConnectionFault(faultmsg, true);
+		}
+
+		synchronized (outLock) {
+			encoder.clear();
+			writeInterest = false;
+			channel = ch;
+			pendingQuit = false;
+			isConnected = true;
+		}
+		// inbuf and parser are loop thread state -- reset them on the loop.
+		loop.execute(new Runnable() {
+			public void run () {
+				inbuf.clear();
+				parser.reset();
+			}
+		});
+		loop.register(ch, this);
+
+		try {
+			initializeOnConnect();
+		}
+		catch (RedisException e) {
+			// either authorize or db select is using invalid parameters
+			// which is user error
+			throw new IllegalArgumentException("Failed to connect -- check credentials and/or database settings for the connection spec", e);
+		}
+
+		Log.debug ("CONNECTED | conn: %s", toString());
+		notifyListeners(new Event(this, Type.CONNECTED));
+	}
+
+	/**
+	 * Closes the channel and sets the error of any pending requests.  Both the
+	 * loop thread (on QUIT, faults) and requesting threads (on CIAO) may disconnect,
+	 * so this method is a no-op if not connected.
+	 */
+	protected final void disconnect () {
+		disconnect(new ClientRuntimeException("Connection disconnected with pending requests"));
+	}
+
+	/**
+	 * @param cre the error of the pending requests
+	 */
+	private final void disconnect (ClientRuntimeException cre) {
+		final SocketChannel ch;
+		final Queue<PendingRequest> pending;
+		synchronized (outLock) {
+			if(!isConnected) return;
+			isConnected = false;
+			ch = channel;
+			channel = null;
+			pending = pendingQueue;
+			pendingQueue = new ConcurrentLinkedQueue<PendingRequest>();
+		}
+		try {
+			ch.close();
+		}
+		catch (IOException e) {
+			Log.error("[IO] on disconnect -- disconnect() continues ..." + e.getLocalizedMessage());
+		}
+		failPendingRequests(pending, cre);
+
+		notifyListeners(new Event(this, Type.DISCONNECTED));
+		Log.debug ("DISCONNECTED | conn: %s", toString());
+	}
+
+	/**
+	 * Will throw a {@link ClientRuntimeException} if raiseEx is true
+	 */
+	protected final void onConnectionFault (String fault, boolean raiseEx) throws ClientRuntimeException {
+		notifyListeners(new Event(this, Type.FAULTED, fault));
+		Log.problem("Shutting down due to connection FAULT: %s - %s", fault, this);
+		notifyListeners(new Event(this, Type.SHUTDOWN));
+		disconnect(new ClientRuntimeException(fault));
+		if(raiseEx)
+			throw new ClientRuntimeException(fault);
+	}
+
+	/**
+	 * AUTH and SELECT per spec.
+	 * @throws RedisException
+	 */
+	private final void initializeOnConnect () throws ProviderException, ClientRuntimeException, RedisException {
+		if(null!=spec.getCredentials()) {
+			serviceRequest(Command.AUTH, spec.getCredentials());
+		}
+		if(spec.getDatabase() != 0) {
+			serviceRequest(Command.SELECT, Convert.toBytes(spec.getDatabase()));
+		}
+	}
+
+	final protected void notifyListeners(Connection.Event e) {
+		for(Connection.Listener l : listeners)
+			l.onEvent(e);
+	}
+
+	@SuppressWarnings("boxing")
+	@Override
+	public String toString() {
+		return String.format("Connection: %-12s %s:%d db:%d | %s@%d", spec.getModality().name().toUpperCase(), spec.getAddress(), spec.getPort(), spec.getDatabase(), getClass().getSimpleName(), hashCode());
+	}
+}
@@ -20,19 +20,35 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
 import org.jredis.ClientRuntimeException;
 import org.jredis.ProviderException;
 import org.jredis.RedisException;
 import org.jredis.protocol.Command;
 import org.jredis.protocol.Request;
 import org.jredis.protocol.Response;
-import org.jredis.ri.alphazero.support.Signal;
+import org.jredis.ri.alphazero.support.Log;
 
 /**
  * An implementation of {@link Future} for parameteric <code>T</code> type {@link Response}
  * used for processing of pipelined responses from the server.
  * <p>
  * Note that this implementation does NOT support canceling of {@link Request}s.
+ * <p>
+ * Completion is lock-free: a volatile state flipped once by CAS, and the waiting
+ * thread is parked/unparked directly.  A waiter first spins briefly (see 
+ * {@link PendingRequest#SPINS}), since in a busy pipeline the response is usually
+ * only a few micros away, and then parks.  The common case of one waiting thread 
+ * requires no allocation beyond the request itself; additional concurrent waiters 
+ * (rare) are linked in a stack of wait nodes.
+ * <p>
+ * Completion listeners (see {@link PendingRequest#addCompletionListener(Runnable)})
+ * are run by the completing thread, after waiters have been released.
+ * <p>
+ * Subclasses may complete requests derived from other requests (e.g. the responses
+ * of several nodes of a cluster) with the protected completion methods.
  * 
  * @author  Joubin Houshyar (alphazero@sensesay.net)
  * @version alpha.0, Sep 7, 2009
@@ -41,12 +57,47 @@ import org.jredis.ri.alphazero.support.Signal;
  */
 public class PendingRequest implements Future<Response> {
 
+	// ------------------------------------------------------------------------
+	// Completion tuning
+	// ------------------------------------------------------------------------
+	/** 
+	 * Number of times a waiter checks for completion before parking.  Defaults 
+	 * to 0 on uni-processors (spinning can only delay the completing thread) and 
+	 * 128 otherwise.  Set system property <code>jredis.future.spins</code> to override.
+	 */
+	public static final int SPINS = Integer.getInteger("jredis.future.spins", 
+			Runtime.getRuntime().availableProcessors() > 1 ? 128 : 0).intValue();
+
+	private static final int PENDING = 0;
+	private static final int COMPLETING = 1;
+	private static final int DONE = 2;
+
+	private static final AtomicIntegerFieldUpdater<PendingRequest> stateUpdater = 
+		AtomicIntegerFieldUpdater.newUpdater(PendingRequest.class, "state");
+	private static final AtomicReferenceFieldUpdater<PendingRequest, Thread> waiterUpdater = 
+		AtomicReferenceFieldUpdater.newUpdater(PendingRequest.class, Thread.class, "waiter");
+	private static final AtomicReferenceFieldUpdater<PendingRequest, WaitNode> waitNodesUpdater = 
+		AtomicReferenceFieldUpdater.newUpdater(PendingRequest.class, WaitNode.class, "waitNodes");
+	private static final AtomicReferenceFieldUpdater<PendingRequest, ListenerNode> listenersUpdater = 
+		AtomicReferenceFieldUpdater.newUpdater(PendingRequest.class, ListenerNode.class, "listeners");
+
+	/** marks the listener stack as drained -- listeners added after are run by the adding thread */
+	private static final ListenerNode FIRED = new ListenerNode(null);
+
 	// ------------------------------------------------------------------------
 	// Properties
 	// ------------------------------------------------------------------------
-	/** Used to signal completion of the request */
-//	final private BooleanLatch completion = new BooleanLatch();
-	final Signal completion = new Signal();
+	/** completion state -- response (or cre) are published by the write of DONE */
+	private volatile int state = PENDING;
+
+	/** the (first) thread parked awaiting completion */
+	private volatile Thread waiter;
+
+	/** any additional threads parked awaiting completion */
+	private volatile WaitNode waitNodes;
+
+	/** completion listeners, in reverse order of registration, or FIRED */
+	private volatile ListenerNode listeners;
 
 	/** awaited response */
 	Response response;
@@ -59,6 +110,9 @@ public class PendingRequest implements Future<Response> {
 	
 	/** if {@link PendingRequest#excepted} is true, this will be set to the cause. */
 	private ClientRuntimeException cre = null;
+
+	/** if {@link PendingRequest#excepted} is true, and cre is null, the error of a derived request */
+	private RedisException redisException = null;
 	
 	final byte[][] args;
 	// ------------------------------------------------------------------------
@@ -81,30 +135,180 @@ public class PendingRequest implements Future<Response> {
 		return cmd;
 	}
 
+	/**
+	 * Registers a listener to be run on completion of this request, by the 
+	 * thread completing it -- typically the response handler of the connection,
+	 * so listeners must not block.  If already completed, the listener is run
+	 * immediately by the calling thread.  Listeners run in order of registration,
+	 * and (runtime) exceptions they throw are logged and otherwise ignored. 
+	 * @param listener
+	 */
+	public void addCompletionListener (Runnable listener) {
+		link(listener);
+	}
+
+	/**
+	 * Registers a listener as {@link PendingRequest#addCompletionListener(Runnable)}
+	 * does, for observers that do not wait on the result (e.g. request metrics): 
+	 * the registration does not expedite the request, as registration of a 
+	 * completion listener may (e.g. flushing a pipeline).
+	 * @param listener
+	 */
+	public final void addPassiveCompletionListener (Runnable listener) {
+		link(listener);
+	}
+
+	private void link (Runnable listener) {
+		final ListenerNode node = new ListenerNode(listener);
+		ListenerNode head;
+		do {
+			head = listeners;
+			if(head == FIRED) {
+				runListener(listener);
+				return;
+			}
+			node.next = head;
+		} while(!listenersUpdater.compareAndSet(this, head, node));
+	}
+
 	/**
 	 * Signals completion without error.
 	 * <p>
 	 * Sets the response, which also signals the completion of this {@link Future} 
 	 * object.  When this method is invoked, a call to {@link PendingRequest#get()}
 	 * will immediately return with the response.
+	 * <p>
+	 * Only the first completion (response or error) takes effect.
 	 * @param response
 	 */
-	final void setResponse(Response response){
+	protected final void setResponse(Response response){
+		if(!stateUpdater.compareAndSet(this, PENDING, COMPLETING)) return;
 		this.response = response;
-		this.completion.signal();
+		complete();
 	}
 
 	/**
 	 * Signals completion with error -- response will be null
 	 * @param cre
 	 */
-	final void setCRE (ClientRuntimeException cre){
+	protected final void setCRE (ClientRuntimeException cre){
+		if(!stateUpdater.compareAndSet(this, PENDING, COMPLETING)) return;
 		this.cre = cre;
 		excepted = true;
-		setResponse(null);
-//		this.completion.signal();
+		this.response = null;
+		complete();
 	}
 	
+	/**
+	 * Signals completion with the error of a request this request is derived from,
+	 * i.e. the cause of the {@link ExecutionException} of its <code>get()</code>.
+	 * @param cause a {@link RedisException} or a {@link ClientRuntimeException}
+	 */
+	protected final void setError (Throwable cause){
+		if(cause instanceof ClientRuntimeException) {
+			setCRE((ClientRuntimeException) cause);
+			return;
+		}
+		if(!(cause instanceof RedisException)) {
+			setCRE(new ProviderException("Unexpected cause of derived request error", cause));
+			return;
+		}
+		if(!stateUpdater.compareAndSet(this, PENDING, COMPLETING)) return;
+		this.redisException = (RedisException) cause;
+		excepted = true;
+		this.response = null;
+		complete();
+	}
+	
+	/**
+	 * Publishes the outcome set by the (sole) completing thread and wakes up 
+	 * the waiter(s).
+	 */
+	private final void complete () {
+		state = DONE;
+		
+		final Thread t = waiter;
+		if(t != null) LockSupport.unpark(t);
+		for(WaitNode node = waitNodes; node != null; node = node.next){
+			final Thread nt = node.thread;
+			if(nt != null) LockSupport.unpark(nt);
+		}
+		
+		ListenerNode head = listenersUpdater.getAndSet(this, FIRED);
+		if(head != null) {
+			if(head.next == null) {
+				runListener(head.listener);
+			}
+			else {
+				ListenerNode ordered = null;
+				while(head != null){
+					ListenerNode next = head.next;
+					head.next = ordered;
+					ordered = head;
+					head = next;
+				}
+				for(; ordered != null; ordered = ordered.next)
+					runListener(ordered.listener);
+			}
+		}
+	}
+	
+	private final void runListener (Runnable listener) {
+		try {
+			listener.run();
+		}
+		catch (RuntimeException e) {
+			Log.error("completion listener of [" + cmd.name() + "] threw exception", e);
+		}
+	}
+	
+	/**
+	 * Awaits completion.
+	 * @param timed
+	 * @param nanos timeout if timed
+	 * @return true if completed, false if timed out
+	 * @throws InterruptedException
+	 */
+	private final boolean awaitDone (boolean timed, long nanos) throws InterruptedException {
+		if(state == DONE) return true;
+		
+		for(int i=0; i<SPINS; i++){
+			if(state == DONE) return true;
+		}
+		
+		final long deadline = timed ? System.nanoTime() + nanos : 0L;
+		final Thread current = Thread.currentThread();
+		WaitNode node = null;
+		if(!waiterUpdater.compareAndSet(this, null, current)){
+			node = new WaitNode(current);
+			WaitNode head;
+			do {
+				head = waitNodes;
+				node.next = head;
+			} while(!waitNodesUpdater.compareAndSet(this, head, node));
+		}
+		
+		try {
+			// state must be re-checked after publishing the waiter
+			while(state != DONE){
+				if(Thread.interrupted())
+					throw new InterruptedException();
+				if(timed){
+					nanos = deadline - System.nanoTime();
+					if(nanos <= 0L) return state == DONE;
+					LockSupport.parkNanos(this, nanos);
+				}
+				else {
+					LockSupport.park(this);
+				}
+			}
+			return true;
+		}
+		finally {
+			if(node == null) waiterUpdater.compareAndSet(this, current, null);
+			else node.thread = null;
+		}
+	}
 	
 	/**
 	 * Determines if a completed request encountered errors and will throw an {@link ExecutionException} wrapping 
@@ -121,6 +325,9 @@ public class PendingRequest implements Future<Response> {
 				else
 					throw new ExecutionException ("Client Runtime Exception", cre);
 			}
+			else if(redisException != null) {
+				throw new ExecutionException("Redis Exception on ["+cmd.name()+"] " + redisException.getMessage(), redisException);
+			}
 			else {
 				throw new ExecutionException ("Bug -- Request processing encountered exceptions but CRE is null", new ProviderException("unknown cause"));
 			}
@@ -137,7 +344,7 @@ public class PendingRequest implements Future<Response> {
 	/* (non-Javadoc) @see java.util.concurrent.Future#get() */
 	@Override
 	public Response get () throws InterruptedException, ExecutionException {
-		completion.await();
+		awaitDone(false, 0L);
 
 		checkStatus();
 		return response;
@@ -148,7 +355,7 @@ public class PendingRequest implements Future<Response> {
 	public Response get (long timeout, TimeUnit unit)
 	throws InterruptedException, ExecutionException, TimeoutException 
 	{
-		if(!completion.await(timeout, unit))
+		if(!awaitDone(true, unit.toNanos(timeout)))
 			throw new TimeoutException();
 		
 		checkStatus();
@@ -174,6 +381,22 @@ public class PendingRequest implements Future<Response> {
 	/* (non-Javadoc) @see java.util.concurrent.Future#isDone() */
 	@Override
 	public boolean isDone () { 
-		return completion.isSignalled(); 
+		return state == DONE; 
+	}
+	
+	// ------------------------------------------------------------------------
+	// Inner Type
+	// ------------------------------------------------------------------------
+	/** additional waiter -- thread is nulled when the waiter leaves */
+	static final class WaitNode {
+		volatile Thread thread;
+		WaitNode next;
+		WaitNode (Thread thread) { this.thread = thread; }
+	}
+	/** registered completion listener */
+	static final class ListenerNode {
+		final Runnable listener;
+		ListenerNode next;
+		ListenerNode (Runnable listener) { this.listener = listener; }
 	}
-}
\ No newline at end of file
+}
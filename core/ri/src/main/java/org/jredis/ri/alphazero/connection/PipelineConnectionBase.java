@@ -315,8 +315,7 @@ public abstract class PipelineConnectionBase extends ConnectionBase {
 					try {
 						response = protocol.createResponse(pending.cmd);
 						response.read(getInputStream());
-						pending.response = response;
-						pending.completion.signal();
+						pending.setResponse(response);
 						if(response.getStatus().isError()) {
 							Log.error ("(Asynch) Error response for " + pending.cmd.code + " => " + response.getStatus().message());
 						}
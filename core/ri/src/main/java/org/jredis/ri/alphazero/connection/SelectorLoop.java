@@ -0,0 +1,234 @@
+/*
+ *   Copyright 2009-2012 Joubin Houshyar
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package org.jredis.ri.alphazero.connection;
+
+import java.io.IOException;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.jredis.ClientRuntimeException;
+import org.jredis.connector.Connection;
+import org.jredis.ri.alphazero.support.Log;
+
+/**
+ * A single threaded {@link Selector} event loop that drives any number of
+ * non-blocking {@link SocketChannel}s.  Channel registration and interest
+ * changes requested by other threads are queued as tasks and run by the loop
+ * thread between selects, so the {@link Selector} (and the channels' {@link SelectionKey}s)
+ * are only ever touched by the loop thread.
+ * <p>
+ * A process wide default loop is available via {@link SelectorLoop#getDefault()}
+ * and is used by {@link MultiplexedConnection} when the {@link Connection.Property#SELECTOR_LOOP}
+ * property is set to {@link Boolean#TRUE}.
+ *
+ * @author  Joubin Houshyar (alphazero@sensesay.net)
+ * @date    Apr 2, 2012
+ *
+ */
+
+public final class SelectorLoop implements Runnable {
+
+	// ------------------------------------------------------------------------
+	// Inner Types
+	// ------------------------------------------------------------------------
+	/**
+	 * Readiness callbacks.  All methods are invoked on the loop thread.
+	 */
+	interface Handler {
+		/** @param key the key of the newly registered channel */
+		void onRegistered (SelectionKey key);
+		/** channel is ready for reading */
+		void onReadable ();
+		/** channel is ready for writing */
+		void onWritable ();
+	}
+
+	// ------------------------------------------------------------------------
+	// Properties
+	// ------------------------------------------------------------------------
+	/**  */
+	private final Selector				selector;
+	/** tasks queued by non-loop threads */
+	private final Queue<Runnable>		tasks = new ConcurrentLinkedQueue<Runnable>();
+	/** true if a wakeup is pending -- avoids redundant {@link Selector#wakeup()} calls */
+	private final AtomicBoolean			wakeupPending = new AtomicBoolean(false);
+	/**  */
+	private final AtomicBoolean			work_flag = new AtomicBoolean(true);
+	/**  */
+	private final Thread				thread;
+
+	/** lazily initialized default loop */
+	private static SelectorLoop			defaultLoop;
+
+	// ------------------------------------------------------------------------
+	// Constructor
+	// ------------------------------------------------------------------------
+	/**
+	 * Opens the selector and starts the (daemon) loop thread.
+	 * @param name of the loop thread
+	 * @throws ClientRuntimeException if the selector can not be opened.
+	 */
+	public SelectorLoop (String name) throws ClientRuntimeException {
+		try {
+			selector = Selector.open();
+		}
+		catch (IOException e) {
+			throw new ClientRuntimeException("Failed to open selector", e);
+		}
+		thread = new Thread(this, name);
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * @return the process wide default {@link SelectorLoop}
+	 */
+	public static synchronized SelectorLoop getDefault () {
+		if(defaultLoop == null) {
+			defaultLoop = new SelectorLoop("selector-loop");
+		}
+		return defaultLoop;
+	}
+
+	// ------------------------------------------------------------------------
+	// Interface
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Queue the task for execution on the loop thread.  If called from the
+	 * loop thread, the task is executed immediately.  A task is either run
+	 * or rejected: none are dropped on {@link SelectorLoop#shutdown()}.
+	 * @param task
+	 * @throws ClientRuntimeException if the loop has been shutdown
+	 */
+	public void execute (Runnable task) throws ClientRuntimeException {
+		if(Thread.currentThread() == thread) {
+			task.run();
+			return;
+		}
+		if(!work_flag.get())
+			throw new ClientRuntimeException("SelectorLoop <" + thread.getName() + "> is shutdown");
+		tasks.add(task);
+		// raced a shutdown: reject the task, unless the loop's final drain has run it
+		if(!work_flag.get() && tasks.remove(task))
+			throw new ClientRuntimeException("SelectorLoop <" + thread.getName() + "> is shutdown");
+		if(wakeupPending.compareAndSet(false, true))
+			selector.wakeup();
+	}
+
+	/**
+	 * Registers the (non-blocking) channel for {@link SelectionKey#OP_READ}.
+	 * The handler is notified of the registration via {@link Handler#onRegistered(SelectionKey)}.
+	 * @param channel
+	 * @param handler
+	 */
+	void register (final SocketChannel channel, final Handler handler) {
+		execute(new Runnable() {
+			public void run () {
+				try {
+					handler.onRegistered(channel.register(selector, SelectionKey.OP_READ, handler));
+				}
+				catch (ClosedChannelException e) {
+					Log.error("SelectorLoop: attempt to register a closed channel -- ignored");
+				}
+			}
+		});
+	}
+
+	/** @return true if current thread is this loop's thread */
+	public boolean inLoop () {
+		return Thread.currentThread() == thread;
+	}
+
+	/**
+	 * Stops the loop thread and closes the selector.  Registered channels are not closed.
+	 * Tasks queued before the shutdown are run before the loop thread exits, and
+	 * later tasks are rejected.
+	 */
+	public void shutdown () {
+		work_flag.set(false);
+		selector.wakeup();
+	}
+
+	// ------------------------------------------------------------------------
+	// Interface: Runnable
+	// ------------------------------------------------------------------------
+
+	/* (non-Javadoc) @see java.lang.Runnable#run() */
+	public void run () {
+		Log.log("SelectorLoop <%s> started.", thread.getName());
+		while(work_flag.get()){
+			try {
+				selector.select();
+			}
+			catch (IOException e) {
+				Log.problem("SelectorLoop select: %s", e.getMessage());
+				break;
+			}
+			wakeupPending.set(false);
+			runTasks();
+
+			Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+			while(keys.hasNext()){
+				SelectionKey key = keys.next();
+				keys.remove();
+				Handler handler = (Handler) key.attachment();
+				try {
+					if(key.isValid() && key.isReadable())
+						handler.onReadable();
+					if(key.isValid() && key.isWritable())
+						handler.onWritable();
+				}
+				catch (CancelledKeyException e) { /* channel closed by handler -- next */ }
+				catch (RuntimeException e) {
+					Log.bug("SelectorLoop: unexpected exception in handler %s: %s", handler, e);
+				}
+			}
+		}
+		work_flag.set(false);	// (if select failed)
+		runTasks();
+		try {
+			selector.close();
+		}
+		catch (IOException e) {
+			Log.error("SelectorLoop close: %s", e.getMessage());
+		}
+		Log.log("SelectorLoop <%s> stopped.", thread.getName());
+	}
+
+	// ------------------------------------------------------------------------
+	// Inner ops
+	// ------------------------------------------------------------------------
+
+	private final void runTasks () {
+		Runnable task = null;
+		while((task = tasks.poll()) != null) {
+			try {
+				task.run();
+			}
+			catch (RuntimeException e) {
+				Log.bug("SelectorLoop: unexpected exception in task: %s", e);
+			}
+		}
+	}
+}
@@ -16,20 +16,27 @@
 
 package org.jredis.ri.alphazero.connection;
 
+import java.util.concurrent.Future;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import org.jredis.ClientRuntimeException;
+import org.jredis.ElementConsumer;
+import org.jredis.ElementConsumerException;
+import org.jredis.NotSupportedException;
 import org.jredis.ProviderException;
 import org.jredis.RedisException;
 import org.jredis.connector.Connection;
 import org.jredis.connector.ConnectionReset;
 import org.jredis.connector.ConnectionSpec;
 import org.jredis.connector.NotConnectedException;
+import org.jredis.connector.StreamingConnection;
 import org.jredis.protocol.Command;
 import org.jredis.protocol.Protocol;
 import org.jredis.protocol.Request;
 import org.jredis.protocol.Response;
 import org.jredis.protocol.ResponseStatus;
+import org.jredis.protocol.StreamingMultiBulkResponse;
+import org.jredis.protocol.Command.ResponseType;
 import org.jredis.ri.alphazero.support.Assert;
 import org.jredis.ri.alphazero.support.Log;
 
@@ -42,7 +49,7 @@ import org.jredis.ri.alphazero.support.Log;
  * @since   alpha.0
  * 
  */
-public class SyncConnection extends ConnectionBase implements Connection {
+public class SyncConnection extends ConnectionBase implements StreamingConnection {
 
 	// ------------------------------------------------------------------------
 	// Properties
@@ -105,8 +112,21 @@ public class SyncConnection extends ConnectionBase implements Connection {
 	@Override
 	public Response serviceRequest (Command cmd, byte[]... args) 
 		throws RedisException
+	{
+		return serviceRequest((ElementConsumer) null, cmd, args);
+	}
+
+	/**
+	 * Elements of the reply are handed to the consumer as they are read.
+	 * @see org.jredis.connector.StreamingConnection#serviceRequest(org.jredis.ElementConsumer, org.jredis.protocol.Command, byte[][])
+	 */
+	@Override
+	public Response serviceRequest (ElementConsumer consumer, Command cmd, byte[]... args) 
+		throws RedisException
 	{
 		if(!isConnected()) throw new NotConnectedException ("Not connected!");
+		if(null != consumer && cmd.responseType != ResponseType.MULTI_BULK)
+			throw new IllegalArgumentException ("Only multi-bulk replies can be streamed: " + cmd.code);
 		
 		Request  		request = null;
 		Response		response = null;
@@ -123,10 +143,17 @@ public class SyncConnection extends ConnectionBase implements Connection {
 			// 2 - response
 			//				Log.log("RedisConnection - read response ..." + cmd.code);
 			response = Assert.notNull(protocol.createResponse(cmd), "response object from handler", ProviderException.class);
+			if(null != consumer)
+				((StreamingMultiBulkResponse) response).setElementConsumer(consumer);
 			response.read(super.getInputStream());
 
 			//				break;
 		}
+		catch (ElementConsumerException e) {
+			// the reply has been read -- the connection is fine
+			Log.error ("serviceRequest() -- ElementConsumer error for " + cmd.code + " => " + e.getCause());
+			throw e;
+		}
 		catch (ProviderException bug){
 			Log.bug ("serviceRequest() -- ProviderException: " + bug.getLocalizedMessage());
 			Log.log ("serviceRequest() -- closing connection ...");
@@ -162,6 +189,15 @@ public class SyncConnection extends ConnectionBase implements Connection {
 
 		return response;
 	}
+
+	/**
+	 * Not supported by synchronous connections.
+	 * @see org.jredis.connector.StreamingConnection#queueRequest(org.jredis.ElementConsumer, org.jredis.protocol.Command, byte[][])
+	 */
+	@Override
+	public Future<Response> queueRequest (ElementConsumer consumer, Command cmd, byte[]... args) {
+		throw new NotSupportedException ("queueRequest(ElementConsumer, Command, byte[]...) is not supported.");
+	}
 	@SuppressWarnings("unused")
     private Lock acquireLock() {
 		lock.lock();
@@ -0,0 +1,422 @@
+/*
+ *   Copyright 2009-2012 Joubin Houshyar
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package org.jredis.ri.alphazero.protocol;
+
+import static org.jredis.ri.alphazero.protocol.ProtocolBase.COUNT_BYTE;
+import static org.jredis.ri.alphazero.protocol.ProtocolBase.CRLF_LEN;
+import static org.jredis.ri.alphazero.protocol.ProtocolBase.ERR_BYTE;
+import static org.jredis.ri.alphazero.protocol.ProtocolBase.SIZE_BYTE;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import org.jredis.ClientRuntimeException;
+import org.jredis.NotSupportedException;
+import org.jredis.ProviderException;
+import org.jredis.protocol.BulkResponse;
+import org.jredis.protocol.Command;
+import org.jredis.protocol.MultiBulkResponse;
+import org.jredis.protocol.Response;
+import org.jredis.protocol.ResponseStatus;
+import org.jredis.protocol.StatusResponse;
+import org.jredis.protocol.ValueResponse;
+import org.jredis.ri.alphazero.support.Convert;
+
+/**
+ * A resumable state machine parser of redis replies that consumes arbitrary
+ * {@link ByteBuffer} slices.  Parsing of a reply may be suspended at any byte
+ * boundary (when the buffer is exhausted) and is resumed on the next call to
+ * {@link IncrementalResponseParser#parse(Command, ByteBuffer)} with more bytes.
+ * <p>
+ * Control lines are located by scanning the buffer for the line terminator
+ * in bulk, and bulk data is copied directly from the buffer to the (exactly sized)
+ * value array, so each byte of the reply is examined or copied only once.
+ * <p>
+ * The parsed responses are of the same {@link StatusResponse}, {@link ValueResponse},
+ * {@link BulkResponse} and {@link MultiBulkResponse} types as created by
+ * {@link SyncProtocol}, and are fully read on return (so {@link Response#read(InputStream)}
+ * is a no-op).
+ * <p>
+ * Instances are stateful and not thread-safe: a parser is expected to be owned by
+ * the (single) thread reading replies of a connection.
+ *
+ * @author  Joubin Houshyar (alphazero@sensesay.net)
+ * @date    Apr 4, 2012
+ *
+ */
+
+public final class IncrementalResponseParser {
+
+	// ------------------------------------------------------------------------
+	// Consts
+	// ------------------------------------------------------------------------
+	/** Initial size of the line buffer */
+	private static final int	PREFERRED_LINE_BUFFER_SIZE = 128;
+
+	/** line terminator scanned for */
+	private static final byte	LF = ProtocolBase.CRLF[1];
+
+	/** parser states */
+	private enum State {
+		/** reading the reply's (first) control line */
+		CONTROL_LINE,
+		/** reading the data of a bulk reply */
+		BULK_DATA,
+		/** reading the control line of a multi-bulk element */
+		ELEMENT_LINE,
+		/** reading the data of a multi-bulk element */
+		ELEMENT_DATA
+	}
+
+	// ------------------------------------------------------------------------
+	// Properties
+	// ------------------------------------------------------------------------
+	/**  */
+	private State			state = State.CONTROL_LINE;
+	/** command of the reply being parsed, null if between replies */
+	private Command			cmd = null;
+
+	/** control line (accumulated across buffers) including CRLF */
+	private byte[]			line = new byte[PREFERRED_LINE_BUFFER_SIZE];
+	/** bytes in line */
+	private int				lineLen = 0;
+
+	/** bulk data being read */
+	private byte[]			data;
+	/** bytes of data read */
+	private int				dataOff;
+	/** bytes of the trailing CRLF of the bulk data yet to be consumed */
+	private int				trailer;
+
+	/** multi-bulk elements read */
+	private List<byte[]>	datalist;
+	/** multi-bulk elements yet to be read */
+	private int				elementsRemaining;
+
+	// ------------------------------------------------------------------------
+	// Interface
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Consumes bytes (from position to limit) of the buffer until either the reply for
+	 * the command is complete, or the buffer is exhausted.  On return, the buffer's position
+	 * is after the last consumed byte.
+	 * <p>
+	 * {@link Command.ResponseType#VIRTUAL} and {@link Command.ResponseType#NOP} responses
+	 * are returned immediately and consume no bytes.
+	 *
+	 * @param cmd the command of the reply.  Must be the same command until the reply is returned.
+	 * @param buffer
+	 * @return the completed response, or null if more bytes are required.
+	 * @throws ProviderException on protocol errors (e.g. unexpected control bytes).
+	 * @throws NotSupportedException for response types not supported.
+	 */
+	public Response parse (Command cmd, ByteBuffer buffer) throws ProviderException, NotSupportedException {
+		if(this.cmd == null) {
+			switch (cmd.responseType){
+				case VIRTUAL:
+					return new VirtualResponse(ResponseStatus.STATUS_CIAO);
+				case NOP:
+					return new VirtualResponse(ResponseStatus.STATUS_OK);
+				case QUEUED:
+				case RESULT_SET:
+					throw new NotSupportedException(String.format("ResponseType %s not yet supported", cmd.responseType.name()));
+				default:
+					break;
+			}
+			this.cmd = cmd;
+			state = State.CONTROL_LINE;
+			lineLen = 0;
+		}
+		else if (this.cmd != cmd){
+			throw new ProviderException(String.format("[BUG] parse of %s reply requested while %s reply in progress", cmd.code, this.cmd.code));
+		}
+
+		for(;;){
+			switch (state){
+				case CONTROL_LINE:
+					if(!readLine(buffer)) return null;
+					Response response = onControlLine();
+					if(response != null) return onComplete(response);
+					break;
+
+				case BULK_DATA:
+					if(!readData(buffer)) return null;
+					return onComplete(new BulkReply(cmd, ResponseStatus.STATUS_OK, data));
+
+				case ELEMENT_LINE:
+					if(!readLine(buffer)) return null;
+					onElementLine();
+					if(elementsRemaining == 0)
+						return onComplete(new MultiBulkReply(cmd, ResponseStatus.STATUS_OK, datalist));
+					break;
+
+				case ELEMENT_DATA:
+					if(!readData(buffer)) return null;
+					datalist.add(data);
+					state = State.ELEMENT_LINE;
+					if(--elementsRemaining == 0)
+						return onComplete(new MultiBulkReply(cmd, ResponseStatus.STATUS_OK, datalist));
+					break;
+			}
+		}
+	}
+
+	/** @return true if parsing of a reply is in progress */
+	public boolean inProgress () { return cmd != null; }
+
+	/**
+	 * Discards any partially parsed reply.  Should be called when the stream is
+	 * reset (e.g. on reconnect).
+	 */
+	public void reset () {
+		onComplete(null);
+	}
+
+	// ------------------------------------------------------------------------
+	// Inner ops
+	// ------------------------------------------------------------------------
+	/**
+	 * Accumulates the control line.  Scans the buffer for LF and bulk copies
+	 * the scanned bytes to the line buffer.
+	 * @return true if the complete line (CRLF terminated) has been read.
+	 */
+	private final boolean readLine (ByteBuffer buffer) {
+		final int start = buffer.position();
+		final int limit = buffer.limit();
+		int end = -1;
+		if(buffer.hasArray()){
+			final byte[] b = buffer.array();
+			final int aoff = buffer.arrayOffset();
+			for(int i=start+aoff, n=limit+aoff; i<n; i++){
+				if(b[i] == LF) { end = i - aoff + 1; break; }
+			}
+		}
+		else {
+			for(int i=start; i<limit; i++){
+				if(buffer.get(i) == LF) { end = i + 1; break; }
+			}
+		}
+		final int cnt = (end < 0 ? limit : end) - start;
+		if(lineLen + cnt > line.length){
+			byte[] newline = new byte[Math.max(line.length * 2, lineLen + cnt)];
+			System.arraycopy(line, 0, newline, 0, lineLen);
+			line = newline;
+		}
+		buffer.get(line, lineLen, cnt);
+		lineLen += cnt;
+		return end >= 0;
+	}
+
+	/**
+	 * Reads bulk data and then consumes the trailing CRLF.
+	 * @return true if bulk data (and its CRLF) have been fully read
+	 */
+	private final boolean readData (ByteBuffer buffer) {
+		final int dataRemaining = data.length - dataOff;
+		if(dataRemaining > 0) {
+			final int cnt = Math.min(dataRemaining, buffer.remaining());
+			buffer.get(data, dataOff, cnt);
+			dataOff += cnt;
+			if(dataOff < data.length) return false;
+		}
+		while(trailer > 0 && buffer.hasRemaining()){
+			buffer.get();
+			trailer--;
+		}
+		return trailer == 0;
+	}
+
+	/** line content length (excluding the type byte and CRLF) */
+	private final int contentLen () { return lineLen - 1 - CRLF_LEN; }
+
+	/** @return the error status of an error line */
+	private final ResponseStatus errorStatus () {
+		return new ResponseStatus(ResponseStatus.Code.ERROR, new String(line, 1, contentLen()));
+	}
+
+	/**
+	 * @return the completed response for single line replies and errors, or null if
+	 * data or elements are to follow.
+	 */
+	private final Response onControlLine () {
+		final boolean isError = line[0] == ERR_BYTE;
+		switch (cmd.responseType){
+			case STATUS:
+				return new LineReply(cmd, LineReply.Flavor.STATUS, isError ? errorStatus() : ResponseStatus.STATUS_OK);
+			case BOOLEAN:
+			case NUMBER:
+			case STRING: {
+				if(isError)
+					return new LineReply(cmd, LineReply.Flavor.valueOf(cmd.responseType.name()), errorStatus());
+				LineReply reply = new LineReply(cmd, LineReply.Flavor.valueOf(cmd.responseType.name()), ResponseStatus.STATUS_OK);
+				switch (reply.flavor){
+					case BOOLEAN: reply.booleanValue = line[1] == 49; break;
+					case NUMBER:  reply.longValue = Convert.toLong (line, 1, contentLen()); break;
+					case STRING:  reply.stringValue = new String (line, 1, contentLen()); break;
+					default: break;
+				}
+				return reply;
+			}
+			case BULK: {
+				if(isError) return new BulkReply(cmd, errorStatus(), null);
+				final int size = controlValue(SIZE_BYTE);
+				if(size < 0) return new BulkReply(cmd, ResponseStatus.STATUS_OK, null);
+				beginData(size);
+				state = State.BULK_DATA;
+				return null;
+			}
+			case MULTI_BULK: {
+				if(isError) return new MultiBulkReply(cmd, errorStatus(), null);
+				final int count = controlValue(COUNT_BYTE);
+				if(count < 0) return new MultiBulkReply(cmd, ResponseStatus.STATUS_OK, null);
+				if(count == 0) return new MultiBulkReply(cmd, ResponseStatus.STATUS_OK, new ArrayList<byte[]>(0));
+				datalist = new ArrayList<byte[]>(count);
+				elementsRemaining = count;
+				lineLen = 0;
+				state = State.ELEMENT_LINE;
+				return null;
+			}
+			default:
+				throw new ProviderException("[BUG] unexpected response type " + cmd.responseType.name());
+		}
+	}
+
+	/**
+	 * Processes a multi-bulk element control line.  Bulk elements transition to
+	 * {@link State#ELEMENT_DATA}.  Single line elements (e.g. in EXEC replies) are added
+	 * as the bytes of the line content.
+	 */
+	private final void onElementLine () {
+		switch (line[0]){
+			case SIZE_BYTE: {
+				final int size = Convert.toInt (line, 1, contentLen());
+				if(size >= 0) {
+					beginData(size);
+					state = State.ELEMENT_DATA;
+					return;
+				}
+				datalist.add(null);
+				break;
+			}
+			case COUNT_BYTE:
+				throw new ProviderException("Nested multi-bulk replies are not supported. Command: " + cmd.code);
+			default: {
+				byte[] element = new byte[contentLen()];
+				System.arraycopy(line, 1, element, 0, element.length);
+				datalist.add(element);
+				break;
+			}
+		}
+		lineLen = 0;
+		elementsRemaining--;
+	}
+
+	private final int controlValue (byte ctlByte) {
+		if(line[0] != ctlByte)
+			throw new ProviderException (String.format("Bug?  Expecting control byte '%c' for %s but got '%c'", (char)ctlByte, cmd.code, (char)line[0]));
+		return Convert.toInt (line, 1, contentLen());
+	}
+
+	private final void beginData (int size) {
+		data = new byte[size];
+		dataOff = 0;
+		trailer = CRLF_LEN;
+		lineLen = 0;
+	}
+
+	private final Response onComplete (Response response) {
+		cmd = null;
+		state = State.CONTROL_LINE;
+		lineLen = 0;
+		data = null;
+		datalist = null;
+		elementsRemaining = 0;
+		return response;
+	}
+
+	// ========================================================================
+	// Inner Types
+	// ========================================================================
+	/**
+	 * Base of the (already read) parsed responses.
+	 */
+	static abstract class ParsedResponse extends ResponseSupport {
+		ParsedResponse (Command cmd, Type type, ResponseStatus status) {
+			super(cmd, type);
+			this.status = status;
+			this.isError = status.isError();
+			this.didRead = true;
+		}
+		/** parsed responses are read on creation -- no-op */
+		public void read (InputStream in) throws ClientRuntimeException, ProviderException { return; }
+	}
+
+	/**
+	 * Single line replies.
+	 */
+	static final class LineReply extends ParsedResponse implements StatusResponse, ValueResponse {
+		enum Flavor { STATUS, BOOLEAN, NUMBER, STRING }
+		final Flavor	flavor;
+		String			stringValue;
+		long			longValue;
+		boolean			booleanValue;
+
+		LineReply (Command cmd, Flavor flavor, ResponseStatus status) {
+			super(cmd, flavor == Flavor.STATUS ? Type.Status : Type.Value, status);
+			this.flavor = flavor;
+		}
+		public boolean getBooleanValue () throws IllegalStateException {
+			if(flavor != Flavor.BOOLEAN) throw new IllegalStateException ("Response value type is " + flavor.name() + " not " + Flavor.BOOLEAN.name());
+			return booleanValue;
+		}
+		public long getLongValue () throws IllegalStateException {
+			if(flavor != Flavor.NUMBER) throw new IllegalStateException ("Response value type is " + flavor.name() + " not " + Flavor.NUMBER.name());
+			return longValue;
+		}
+		public String getStringValue () throws IllegalStateException {
+			if(flavor != Flavor.STRING) throw new IllegalStateException ("Response value type is " + flavor.name() + " not " + Flavor.STRING.name());
+			return stringValue;
+		}
+	}
+
+	/**
+	 * Bulk replies.
+	 */
+	static final class BulkReply extends ParsedResponse implements BulkResponse {
+		final byte[] data;
+		BulkReply (Command cmd, ResponseStatus status, byte[] data) {
+			super(cmd, Type.Bulk, status);
+			this.data = data;
+		}
+		public byte[] getBulkData () { return data; }
+	}
+
+	/**
+	 * Multi-bulk replies.
+	 */
+	static final class MultiBulkReply extends ParsedResponse implements MultiBulkResponse {
+		final List<byte[]> datalist;
+		MultiBulkReply (Command cmd, ResponseStatus status, List<byte[]> datalist) {
+			super(cmd, Type.MultiBulk, status);
+			this.datalist = datalist;
+		}
+		public List<byte[]> getMultiBulkData () throws ClientRuntimeException, ProviderException {
+			return datalist;
+		}
+	}
+}
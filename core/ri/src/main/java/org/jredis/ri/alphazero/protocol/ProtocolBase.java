@@ -30,8 +30,6 @@ import org.jredis.protocol.Protocol;
 import org.jredis.protocol.Request;
 import org.jredis.protocol.Response;
 import org.jredis.protocol.ResponseStatus;
-import org.jredis.ri.alphazero.support.Assert;
-import org.jredis.ri.alphazero.support.Convert;
 import org.jredis.ri.alphazero.support.Log;
 
 
@@ -75,96 +73,14 @@ public abstract class ProtocolBase implements Protocol {
 		return version.equals("0.09");
 	}
 	
+	/**
+	 * Encodes the request in a single pass into an exact size array.
+	 * @see org.jredis.protocol.Protocol#createRequestBuffer(org.jredis.protocol.Command, byte[][])
+	 */
 	public byte[] createRequestBuffer(Command cmd, byte[]...args) throws ProviderException, IllegalArgumentException {
-		class Buffer {
-			byte[] b = null;
-			private int off = 0;
-			Buffer(int size){
-				b = new byte[size];
-			}
-			void write (byte[] d){
-				final int dlen = d.length;
-				System.arraycopy(d, 0, b, off, dlen);
-				off+=dlen;
-			}
-			void write (byte d){
-				b[off] = d;
-				off++;
-			}
-			byte[] getBytes() {
-				return b;
-			}
-		}
-		Buffer buffer = null;
-		byte[] cmdLenBytes = Convert.toBytes(cmd.bytes.length);
-		byte[] lineCntBytes = Convert.toBytes(args.length+1);
-
-		// calculate the buffer size
-		int bsize = 1 + lineCntBytes.length + CRLF_LEN + 1 + cmdLenBytes.length + CRLF_LEN + cmd.bytes.length + CRLF_LEN;
-		for(int i=0;i<args.length; i++){
-			byte[] argLenBytes = Convert.toBytes(Assert.notNull(args[i], i, ProviderException.class).length);
-			int _bsize = 1 + argLenBytes.length + CRLF_LEN + args[i].length + CRLF_LEN;
-			bsize += _bsize;
-		}
-		
-		buffer = new Buffer(bsize);
-        buffer.write(COUNT_BYTE);  		// 1
-        buffer.write(lineCntBytes);		// lineCntBytes.length()
-        buffer.write(CRLF);				// CRLF.lengt
-        buffer.write(SIZE_BYTE);		// 1
-        buffer.write(cmdLenBytes);		// length
-        buffer.write(CRLF);				// CRLF_LEN
-        buffer.write(cmd.bytes);		//
-        buffer.write(CRLF);
-        
-		switch (cmd.requestType) {
-
-		case NO_ARG:
-		    break;
-		    
-		// TODO: check w/ antirez if in fact nulls are now generally accepted
-		// that is the only diff here.
-		case BULK_SET:
-			String errmsg = "Only MSET, MSETNX, LINSERT bulk commands are supported";
-			Assert.isTrue(cmd == Command.MSET || cmd == Command.MSETNX || cmd == Command.LINSERT, errmsg, NotSupportedException.class);
-
-			// THIS IS CLEARLY BROKEN ... SO MUCH FOR COMPREHSIVE TESTS ...
-			buffer.write(COUNT_BYTE);
-			buffer.write(lineCntBytes);
-			buffer.write(CRLF);
-			buffer.write(SIZE_BYTE);
-			buffer.write(cmdLenBytes);
-			buffer.write(CRLF);
-			buffer.write(cmd.bytes);
-			buffer.write(CRLF);
-			
-			for(int s=0; s<args.length; s++){
-				buffer.write(SIZE_BYTE);
-				if (args[s] != null) {
-  					buffer.write(Convert.toBytes(args[s].length));
-  					buffer.write(CRLF);
-  					buffer.write(args[s]);
-  					buffer.write(CRLF);
-  				} else {
-					buffer.write(ASCII_ZERO);
-					buffer.write(CRLF);
-					buffer.write(CRLF);
-  				}
-			}
-			break;
-		
-		default:
-			for(int i=0;i<args.length; i++){
-				buffer.write(SIZE_BYTE);
-				buffer.write(Convert.toBytes(Assert.notNull(args[i], i, ProviderException.class).length));
-				buffer.write(CRLF);
-				buffer.write(args[i]);
-				buffer.write(CRLF);
-			}
-			break;
-		
-		}
-		return buffer.getBytes();
+		byte[] buffer = new byte[RequestEncoder.frameSize(cmd, args)];
+		RequestEncoder.encode(cmd, args, buffer, 0);
+		return buffer;
 	}
 
 	/* (non-Javadoc)
@@ -172,74 +88,8 @@ public abstract class ProtocolBase implements Protocol {
 	 */
 	@Override
 	public Request createRequest(Command cmd, byte[]... args) throws ProviderException, IllegalArgumentException {
-		
-		ByteArrayOutputStream buffer = createRequestBufffer (cmd);
-
-		try {
-			byte[] cmdLenBytes = Convert.toBytes(cmd.bytes.length);
-			byte[] lineCntBytes = Convert.toBytes(args.length+1);
-
-            buffer.write(COUNT_BYTE);
-            buffer.write(lineCntBytes);
-            buffer.write(CRLF);
-            buffer.write(SIZE_BYTE);
-            buffer.write(cmdLenBytes);
-            buffer.write(CRLF);
-            buffer.write(cmd.bytes);
-            buffer.write(CRLF);
-            
-			switch (cmd.requestType) {
-
-			case NO_ARG:
-			    break;
-			    
-			// TODO: check w/ antirez if in fact nulls are now generally accepted
-			// that is the only diff here.
-			case BULK_SET:
-				String errmsg = "Only MSET, MSETNX, LINSERT bulk commands are supported";
-				Assert.isTrue(cmd == Command.MSET || cmd == Command.MSETNX || cmd == Command.LINSERT, errmsg, NotSupportedException.class);
-
-				// THIS IS CLEARLY BROKEN ... SO MUCH FOR COMPREHSIVE TESTS ...
-				buffer.write(COUNT_BYTE);
-				buffer.write(lineCntBytes);
-				buffer.write(CRLF);
-				buffer.write(SIZE_BYTE);
-				buffer.write(cmdLenBytes);
-				buffer.write(CRLF);
-				buffer.write(cmd.bytes);
-				buffer.write(CRLF);
-				
-				for(int s=0; s<args.length; s++){
-					buffer.write(SIZE_BYTE);
-					if (args[s] != null) {
-	  					buffer.write(Convert.toBytes(args[s].length));
-	  					buffer.write(CRLF);
-	  					buffer.write(args[s]);
-	  					buffer.write(CRLF);
-	  				} else {
-						buffer.write(ASCII_ZERO);
-						buffer.write(CRLF);
-						buffer.write(CRLF);
-	  				}
-				}
-				break;
-			
-			default:
-				for(int i=0;i<args.length; i++){
-					buffer.write(SIZE_BYTE);
-					buffer.write(Convert.toBytes(Assert.notNull(args[i], i, ProviderException.class).length));
-					buffer.write(CRLF);
-					buffer.write(args[i]);
-					buffer.write(CRLF);
-				}
-				break;
-			
-			}
-		}
-		catch (IOException e) {
-			throw new ProviderException("Problem writing to the buffer" + e.getLocalizedMessage(), e);
-		}
-		return createRequest(buffer);
+		RequestEncoder.frameSize(cmd, args);	// validates args
+		return createRequest(cmd, args, getRequestBuffer(cmd));
 	}
 	
 	/* (non-Javadoc)
@@ -289,8 +139,19 @@ public abstract class ProtocolBase implements Protocol {
 	// Extension Points
 	// ------------------------------------------------------------------------
 	
-	protected abstract ByteArrayOutputStream createRequestBufffer(Command cmd);
-	protected abstract Request createRequest (ByteArrayOutputStream buffer);
+	/**
+	 * @param cmd
+	 * @return the (possibly shared) scratch buffer used to coalesce the request frame
+	 * when writing it to the connection's stream.
+	 */
+	protected abstract byte[] getRequestBuffer(Command cmd);
+	/**
+	 * Extension point for implementations that cache {@link Request} objects.
+	 * @return a request that writes the encoded command using the scratch buffer
+	 */
+	protected Request createRequest (Command cmd, byte[][] args, byte[] scratch) {
+		return new EncodedRequest(cmd, args, scratch);
+	}
 	protected abstract Response createMultiBulkResponse(Command cmd) ;
 	protected abstract Response createBulkResponse(Command cmd) ;
 	protected abstract Response createNumberResponse(Command cmd /*, boolean bigNum*/) ;
@@ -303,6 +164,58 @@ public abstract class ProtocolBase implements Protocol {
 	// Inner Types
 	// ========================================================================
 	
+	/**
+	 * A request that is encoded (in a single pass) as it is written to the
+	 * output stream.  The frame is coalesced in the scratch buffer, except for
+	 * values that do not fit, which are written directly from the caller's array.
+	 *
+	 * @author  Joubin Houshyar (alphazero@sensesay.net)
+	 * @date    Apr 6, 2012
+	 * 
+	 */
+	public static class EncodedRequest implements Request {
+		Command		cmd;
+		byte[][]	args;
+		final byte[] scratch;
+		public EncodedRequest (Command cmd, byte[][] args, byte[] scratch) {
+			this.cmd = cmd;
+			this.args = args;
+			this.scratch = scratch;
+		}
+		public void reset (Command cmd, byte[][] args) {
+			this.cmd = cmd;
+			this.args = args;
+		}
+		/* (non-Javadoc)
+		 * @see org.jredis.protocol.Message#read(java.io.InputStream)
+		 */
+		@Override
+		public void read(InputStream in) throws ClientRuntimeException, ProviderException {
+			throw new ProviderException("Request.read is not supported by this class!");
+		}
+
+		/**
+		 * Writes the encoded request to the output stream and flushes it.
+		 * 
+		 * @param out the stream to write the Request message to.
+		 */
+		@Override
+		public void write(OutputStream out) throws ClientRuntimeException, ProviderException {
+			try {
+				RequestEncoder.write(cmd, args, scratch, out);
+				out.flush();
+			}
+			catch (SocketException e){
+				Log.error("EncodedRequest.write(): SocketException on write: " + e.getLocalizedMessage());
+				throw new ClientRuntimeException ("socket exception", e);
+			}
+			catch (IOException e) { 
+				Log.error("EncodedRequest.write(): IOException on write: " + e.getLocalizedMessage());
+				throw new ClientRuntimeException ("stream io exception", e);
+			}
+		}
+	}
+
 	/**
 	 * SimpleRequest implements the required {@link Request#read(InputStream)}
 	 * using a (likely) shared data buffer.  It is not thread safe and can only
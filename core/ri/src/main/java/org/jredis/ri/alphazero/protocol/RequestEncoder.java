@@ -0,0 +1,370 @@
+/*
+ *   Copyright 2009-2012 Joubin Houshyar
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package org.jredis.ri.alphazero.protocol;
+
+import static org.jredis.ri.alphazero.protocol.ProtocolBase.COUNT_BYTE;
+import static org.jredis.ri.alphazero.protocol.ProtocolBase.CRLF_LEN;
+import static org.jredis.ri.alphazero.protocol.ProtocolBase.SIZE_BYTE;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import org.jredis.NotSupportedException;
+import org.jredis.ProviderException;
+import org.jredis.protocol.Command;
+import org.jredis.ri.alphazero.support.Assert;
+
+/**
+ * Single pass RESP request encoder.
+ * <p>
+ * The static methods compute the exact frame size and write the frame into a
+ * byte array, a {@link ByteBuffer}, or an {@link OutputStream} without any
+ * intermediate allocations: the bulk header of each {@link Command} is precomputed
+ * and lengths are written digit by digit.
+ * <p>
+ * Instances maintain an outbound queue for non-blocking channels.  Frames are
+ * encoded straight into pooled direct buffers, while argument values larger than
+ * the gather threshold are queued as wrappers of the caller's array, and the queue
+ * is drained with a single gathering write.  Such values must not be modified
+ * until written.  Instances are not thread-safe.
+ *
+ * @author  Joubin Houshyar (alphazero@sensesay.net)
+ * @date    Apr 6, 2012
+ *
+ */
+
+public final class RequestEncoder {
+
+	// ------------------------------------------------------------------------
+	// Consts
+	// ------------------------------------------------------------------------
+	/** Default size of the pooled direct buffers */
+	public static final int		DEFAULT_BUFFER_SIZE = 1024 * 16;
+	/** Default size above which argument values are gathered rather than copied */
+	public static final int		DEFAULT_GATHER_THRESHOLD = 1024 * 8;
+	/** max number of buffers handed to a single gathering write */
+	private static final int	MAX_GATHER = 64;
+	/** max number of free direct buffers retained */
+	private static final int	MAX_POOLED = 4;
+	/** max bytes of a "*n\r\n" or "$n\r\n" line */
+	private static final int	MAX_LINE = 1 + 10 + CRLF_LEN;
+
+	/** the "$len\r\nCODE\r\n" bulk header of each command, by ordinal */
+	private static final byte[][]	commandHeaders;
+	static {
+		Command[] commands = Command.values();
+		commandHeaders = new byte[commands.length][];
+		for(Command cmd : commands){
+			final int len = cmd.bytes.length;
+			byte[] header = new byte[1 + digits(len) + CRLF_LEN + len + CRLF_LEN];
+			int off = putSize(header, 0, SIZE_BYTE, len);
+			System.arraycopy(cmd.bytes, 0, header, off, len);
+			off += len;
+			header[off++] = '\r';
+			header[off] = '\n';
+			commandHeaders[cmd.ordinal()] = header;
+		}
+	}
+
+	// ------------------------------------------------------------------------
+	// Static: frame encoding
+	// ------------------------------------------------------------------------
+
+	/**
+	 * @param cmd
+	 * @param args
+	 * @return the exact size in bytes of the encoded request
+	 * @throws ProviderException if a (non BULK_SET) argument is null
+	 */
+	public static int frameSize (Command cmd, byte[]... args) throws ProviderException {
+		int size = 1 + digits(args.length + 1) + CRLF_LEN + commandHeaders[cmd.ordinal()].length;
+		for(int i=0; i<args.length; i++)
+			size += bulkSize(cmd, args, i);
+		return size;
+	}
+
+	/**
+	 * Encodes the request into the array, which must have at least {@link RequestEncoder#frameSize(Command, byte[][])}
+	 * bytes available at off.
+	 * @return offset following the encoded request
+	 */
+	public static int encode (Command cmd, byte[][] args, byte[] dest, int off) throws ProviderException {
+		off = putHeader(cmd, args, dest, off);
+		for(int i=0; i<args.length; i++){
+			final byte[] arg = arg(cmd, args, i);
+			off = putSize(dest, off, SIZE_BYTE, arg.length);
+			System.arraycopy(arg, 0, dest, off, arg.length);
+			off += arg.length;
+			dest[off++] = '\r';
+			dest[off++] = '\n';
+		}
+		return off;
+	}
+
+	/**
+	 * Encodes the request into the buffer.
+	 * @throws java.nio.BufferOverflowException if buffer has less than
+	 * {@link RequestEncoder#frameSize(Command, byte[][])} bytes remaining.
+	 */
+	public static void encode (Command cmd, byte[][] args, ByteBuffer dest) throws ProviderException {
+		putHeader(cmd, args, dest);
+		for(int i=0; i<args.length; i++){
+			final byte[] arg = arg(cmd, args, i);
+			putSize(dest, SIZE_BYTE, arg.length);
+			dest.put(arg).put((byte)'\r').put((byte)'\n');
+		}
+	}
+
+	/**
+	 * Writes the request to the stream using scratch to coalesce the frame.
+	 * Values that do not fit the scratch buffer are written directly from the
+	 * caller's array.  The stream is not flushed.
+	 * @param scratch must be large enough for the command header and any length line
+	 */
+	public static void write (Command cmd, byte[][] args, byte[] scratch, OutputStream out) throws IOException, ProviderException {
+		final int size = frameSize(cmd, args);
+		if(size <= scratch.length){
+			out.write(scratch, 0, encode(cmd, args, scratch, 0));
+			return;
+		}
+		int off = putHeader(cmd, args, scratch, 0);
+		for(int i=0; i<args.length; i++){
+			final byte[] arg = arg(cmd, args, i);
+			if(scratch.length - off < MAX_LINE) {
+				out.write(scratch, 0, off);
+				off = 0;
+			}
+			off = putSize(scratch, off, SIZE_BYTE, arg.length);
+			if(arg.length + CRLF_LEN <= scratch.length - off) {
+				System.arraycopy(arg, 0, scratch, off, arg.length);
+				off += arg.length;
+			}
+			else {
+				out.write(scratch, 0, off);
+				out.write(arg);
+				off = 0;
+			}
+			scratch[off++] = '\r';
+			scratch[off++] = '\n';
+		}
+		out.write(scratch, 0, off);
+	}
+
+	// ------------------------------------------------------------------------
+	// Properties: outbound queue
+	// ------------------------------------------------------------------------
+	/**  */
+	private final int				bufferSize;
+	/**  */
+	private final int				gatherThreshold;
+	/** sealed segments in write order, in read mode */
+	private final ArrayDeque<ByteBuffer>	segments = new ArrayDeque<ByteBuffer>();
+	/** free pooled direct buffers */
+	private final ArrayDeque<ByteBuffer>	free = new ArrayDeque<ByteBuffer>();
+	/** buffer being encoded into, in write mode */
+	private ByteBuffer				current;
+	/** reused array for gathering writes */
+	private final ByteBuffer[]		gather = new ByteBuffer[MAX_GATHER];
+
+	// ------------------------------------------------------------------------
+	// Constructor
+	// ------------------------------------------------------------------------
+
+	public RequestEncoder () {
+		this(DEFAULT_BUFFER_SIZE, DEFAULT_GATHER_THRESHOLD);
+	}
+
+	/**
+	 * @param bufferSize size of the pooled direct buffers
+	 * @param gatherThreshold values of at least this size are gathered rather than copied
+	 */
+	public RequestEncoder (int bufferSize, int gatherThreshold) {
+		Assert.isTrue(bufferSize >= 1024, "bufferSize must be at least 1024", IllegalArgumentException.class);
+		this.bufferSize = bufferSize;
+		this.gatherThreshold = Math.min(gatherThreshold, bufferSize);
+		current = ByteBuffer.allocateDirect(bufferSize);
+	}
+
+	// ------------------------------------------------------------------------
+	// Interface: outbound queue
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Appends the encoded request to the outbound queue.
+	 */
+	public void append (Command cmd, byte[]... args) throws ProviderException {
+		boolean gathers = false;
+		for(int i=0; i<args.length && !gathers; i++)
+			gathers = args[i] != null && args[i].length >= gatherThreshold;
+
+		if(!gathers) {
+			final int size = frameSize(cmd, args);
+			if(size > current.remaining()) {
+				seal();
+				if(size > current.capacity())
+					current = ByteBuffer.allocateDirect(size);	// not pooled
+			}
+			encode(cmd, args, current);
+			return;
+		}
+		ensure(1 + MAX_LINE + commandHeaders[cmd.ordinal()].length);
+		putHeader(cmd, args, current);
+		for(int i=0; i<args.length; i++){
+			final byte[] arg = arg(cmd, args, i);
+			ensure(MAX_LINE);
+			putSize(current, SIZE_BYTE, arg.length);
+			if(arg.length >= gatherThreshold) {
+				seal();
+				segments.add(ByteBuffer.wrap(arg));
+			}
+			else {
+				ensure(arg.length);
+				current.put(arg);
+			}
+			ensure(CRLF_LEN);
+			current.put((byte)'\r').put((byte)'\n');
+		}
+	}
+
+	/**
+	 * Writes as much of the outbound queue as the channel accepts with a single
+	 * gathering write.  Fully written pooled buffers are recycled.
+	 * @return bytes written
+	 */
+	public long writeTo (GatheringByteChannel channel) throws IOException {
+		seal();
+		int n = 0;
+		for(Iterator<ByteBuffer> it = segments.iterator(); it.hasNext() && n < MAX_GATHER; )
+			gather[n++] = it.next();
+		if(n == 0) return 0;
+
+		long written = channel.write(gather, 0, n);
+		for(int i=0; i<n; i++) gather[i] = null;
+
+		ByteBuffer head = null;
+		while((head = segments.peek()) != null && !head.hasRemaining())
+			recycle(segments.poll());
+		return written;
+	}
+
+	/** @return true if there is data queued for writing */
+	public boolean hasRemaining () {
+		return current.position() > 0 || !segments.isEmpty();
+	}
+
+	/** discards all queued data */
+	public void clear () {
+		ByteBuffer b = null;
+		while((b = segments.poll()) != null)
+			recycle(b);
+		current.clear();
+	}
+
+	// ------------------------------------------------------------------------
+	// Inner ops
+	// ------------------------------------------------------------------------
+
+	/** moves current to the segment queue if it has data */
+	private void seal () {
+		if(current.position() == 0) return;
+		current.flip();
+		segments.add(current);
+		ByteBuffer b = free.poll();
+		current = b != null ? b : ByteBuffer.allocateDirect(bufferSize);
+	}
+
+	/** seals current if it has less than n bytes remaining */
+	private void ensure (int n) {
+		if(current.remaining() < n) seal();
+	}
+
+	private void recycle (ByteBuffer b) {
+		if(b.isDirect() && b.capacity() == bufferSize && free.size() < MAX_POOLED) {
+			b.clear();
+			free.add(b);
+		}
+	}
+
+	private static byte[] arg (Command cmd, byte[][] args, int i) {
+		final byte[] arg = args[i];
+		if(arg != null) return arg;
+		if(cmd.requestType == Command.RequestType.BULK_SET) return EMPTY;
+		throw new ProviderException(String.format("null argument %d for command %s", i, cmd.code));
+	}
+	private static final byte[] EMPTY = new byte[0];
+
+	private static int bulkSize (Command cmd, byte[][] args, int i) {
+		final int len = arg(cmd, args, i).length;
+		return 1 + digits(len) + CRLF_LEN + len + CRLF_LEN;
+	}
+
+	private static void checkRequestType (Command cmd) {
+		if(cmd.requestType == Command.RequestType.BULK_SET) {
+			String errmsg = "Only MSET, MSETNX, LINSERT bulk commands are supported";
+			Assert.isTrue(cmd == Command.MSET || cmd == Command.MSETNX || cmd == Command.LINSERT, errmsg, NotSupportedException.class);
+		}
+	}
+
+	private static int putHeader (Command cmd, byte[][] args, byte[] dest, int off) {
+		checkRequestType(cmd);
+		off = putSize(dest, off, COUNT_BYTE, args.length + 1);
+		final byte[] header = commandHeaders[cmd.ordinal()];
+		System.arraycopy(header, 0, dest, off, header.length);
+		return off + header.length;
+	}
+
+	private static void putHeader (Command cmd, byte[][] args, ByteBuffer dest) {
+		checkRequestType(cmd);
+		putSize(dest, COUNT_BYTE, args.length + 1);
+		dest.put(commandHeaders[cmd.ordinal()]);
+	}
+
+	/** @return number of decimal digits of non-negative n */
+	static int digits (int n) {
+		int d = 1;
+		while(n >= 10) { n /= 10; d++; }
+		return d;
+	}
+
+	/** writes prefix, decimal n, and CRLF */
+	private static int putSize (byte[] dest, int off, byte prefix, int n) {
+		dest[off] = prefix;
+		int end = off + 1 + digits(n);
+		for(int i=end-1; i>off; i--) {
+			dest[i] = (byte) ('0' + n % 10);
+			n /= 10;
+		}
+		dest[end++] = '\r';
+		dest[end++] = '\n';
+		return end;
+	}
+
+	/** writes prefix, decimal n, and CRLF */
+	private static void putSize (ByteBuffer dest, byte prefix, int n) {
+		final int off = dest.position();
+		final int end = off + 1 + digits(n);
+		dest.put(prefix);
+		for(int i=end-1; i>off; i--) {
+			dest.put(i, (byte) ('0' + n % 10));
+			n /= 10;
+		}
+		dest.position(end);
+		dest.put((byte)'\r').put((byte)'\n');
+	}
+}
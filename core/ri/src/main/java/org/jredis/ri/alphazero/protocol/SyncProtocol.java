@@ -17,13 +17,14 @@
 package org.jredis.ri.alphazero.protocol;
 
 //import java.io.BufferedInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.SocketException;
 import java.util.ArrayList;
 import java.util.List;
 import org.jredis.ClientRuntimeException;
+import org.jredis.ElementConsumer;
+import org.jredis.ElementConsumerException;
 import org.jredis.ProviderException;
 import org.jredis.connector.ConnectionReset;
 import org.jredis.protocol.BulkResponse;
@@ -34,9 +35,11 @@ import org.jredis.protocol.Request;
 import org.jredis.protocol.Response;
 import org.jredis.protocol.ResponseStatus;
 import org.jredis.protocol.StatusResponse;
+import org.jredis.protocol.StreamingMultiBulkResponse;
 import org.jredis.protocol.ValueResponse;
 import org.jredis.ri.alphazero.connection.UnexpectedEOFException;
 import org.jredis.ri.alphazero.support.Convert;
+import org.jredis.ri.alphazero.support.FastBufferedInputStream;
 import org.jredis.ri.alphazero.support.Log;
 
 
@@ -68,10 +71,10 @@ public class SyncProtocol extends ProtocolBase {
 	// ------------------------------------------------------------------------
 	
 	/** Shared by <b>all</b> {@link Request} instances of this <b>non-thread-safe</b> {@link Protocol} implementation. */
-	private final ByteArrayOutputStream sharedRequestBuffer;
+	private final byte[] 				sharedRequestBuffer;
 
 	/** Shared {@link Request} instance of this <b>non-thread-safe</b> {@link Protocol} implementation. */
-	private final StreamBufferRequest   sharedRequestObject;
+	private final EncodedRequest   		sharedRequestObject;
 
 	/** Shared by <b>all</b> {@link Response} instances of this <b>non-thread-safe</b> {@link Protocol} implementation. */
 	private final byte[]	sharedResponseBuffer;
@@ -81,8 +84,8 @@ public class SyncProtocol extends ProtocolBase {
 	// ------------------------------------------------------------------------
 	
 	public SyncProtocol() {
-		sharedRequestBuffer = new ByteArrayOutputStream (PREFERRED_REQUEST_BUFFER_SIZE);
-		sharedRequestObject = new StreamBufferRequest (sharedRequestBuffer);
+		sharedRequestBuffer = new byte [PREFERRED_REQUEST_BUFFER_SIZE];
+		sharedRequestObject = new EncodedRequest (null, null, sharedRequestBuffer);
 		sharedResponseBuffer = new byte [PREFERRED_LINE_BUFFER_SIZE];
 
 	}
@@ -94,17 +97,20 @@ public class SyncProtocol extends ProtocolBase {
 	 * @param cmd {@link Command} for this request - potentially useful for 
 	 * optimizing buffers.
 	 * 
-	 * @return the shared instance of {@link ByteArrayOutputStream} that
-	 * is used <b>by all requests</b> created by this {@link Protocol} implementation.
+	 * @return the shared scratch buffer that is used <b>by all requests</b> 
+	 * created by this {@link Protocol} implementation.
 	 */
 	@Override
-	protected ByteArrayOutputStream createRequestBufffer(Command cmd) {
-		sharedRequestBuffer.reset();
+	protected byte[] getRequestBuffer(Command cmd) {
 		return sharedRequestBuffer;
 	}
 	
-	protected Request createRequest (ByteArrayOutputStream buffer) {
-//		sharedRequestObject.reset(buffer);
+	/**
+	 * @return the shared {@link Request} instance, reset for this request.
+	 */
+	@Override
+	protected Request createRequest (Command cmd, byte[][] args, byte[] scratch) {
+		sharedRequestObject.reset(cmd, args);
 		return sharedRequestObject;
 	}
 
@@ -217,29 +223,52 @@ public class SyncProtocol extends ProtocolBase {
 			isError = false;
 		}
 		/**
-		 * Makes blocking calls to input stream until it gets crlf. Should not be
-		 * used for size/count lines.
+		 * Reads a line, including its crlf, into the buffer, setting offset to
+		 * its length.  Lines of a {@link FastBufferedInputStream} are scanned in
+		 * its buffer and copied in one go; other streams are read a byte at a time.
 		 * @param in
+		 * @return false if the stream reached EOF before the end of the line
+		 * @throws IOException
 		 */
-		void readSingleLineResponse (InputStream in) {
+		final boolean readLine (InputStream in) throws IOException {
+			if(in instanceof FastBufferedInputStream) {
+				final FastBufferedInputStream fin = (FastBufferedInputStream) in;
+				final int len = fin.peekLine();
+				if(len == -1) return false;
+				if(len > buffer.length) 
+					buffer = new byte[Math.max(len, buffer.length * 2)];
+				System.arraycopy(fin.buffer(), fin.position(), buffer, 0, len);
+				fin.consume(len);
+				offset = len;
+				return true;
+			}
 			offset = 0;
 			int c = -1;
 			int available = buffer.length;
-			try {
-				while ((c = in.read(buffer, offset, 1)) != -1) {
-					offset += c; 
-					available -= c;
-					if(offset > 2 && buffer[offset-2]==(byte)13 && buffer[offset-1]==(byte)10){
-						break;  // we're done
-					}
-					if(available == 0) {
-						byte[] newbuff = new byte[buffer.length * 2];
-						System.arraycopy(buffer, 0, newbuff, 0, buffer.length);
-						buffer = newbuff;
-						available = buffer.length - offset;
-					}
+			while ((c = in.read(buffer, offset, 1)) != -1) {
+				offset += c; 
+				available -= c;
+				if(offset > 2 && buffer[offset-2]==(byte)13 && buffer[offset-1]==(byte)10){
+					return true;  // we're done
+				}
+				if(available == 0) {
+					byte[] newbuff = new byte[buffer.length * 2];
+					System.arraycopy(buffer, 0, newbuff, 0, buffer.length);
+					buffer = newbuff;
+					available = buffer.length - offset;
 				}
-				if(c == -1) {
+			}
+			return false;
+		}
+
+		/**
+		 * Makes blocking calls to input stream until it gets crlf. Should not be
+		 * used for size/count lines.
+		 * @param in
+		 */
+		void readSingleLineResponse (InputStream in) {
+			try {
+				if(!readLine(in)) {
 					Log.error("-1 read count in readLine() while reading response line.");
 					throw new UnexpectedEOFException ("Unexpected EOF (read -1) in readLine.  Command: " + cmd.code);
 				}
@@ -368,30 +397,16 @@ public class SyncProtocol extends ProtocolBase {
 		 * @param in
 		 */
 		void seekToCRLF (InputStream in){
-			offset = 0;
-			int c = -1;
-			int available = buffer.length;
+			boolean eol;
 			try {
-				while ((c = in.read(buffer, offset, 1)) != -1) {
-					offset += c;
-					available -= c;
-					if(offset > 2 && buffer[offset-2]==(byte)13 && buffer[offset-1]==(byte)10){
-						break;  // we're done
-					}
-					if(available == 0) {
-						byte[] newbuff = new byte[buffer.length * 2];
-						System.arraycopy(buffer, 0, newbuff, 0, buffer.length);
-						buffer = newbuff;
-						available = buffer.length - offset;
-					}
-				}
+				eol = readLine(in);
 			}
 			catch (IOException e) {
 				e.printStackTrace();
 				throw new ClientRuntimeException ("IOEx while reading line for command " + cmd.code, e);
 			}
 			
-			if(c==-1) throw new ClientRuntimeException ("in.read returned -1");
+			if(!eol) throw new ClientRuntimeException ("in.read returned -1");
 		}
 		/**
 		 * @param in
@@ -509,11 +524,23 @@ public class SyncProtocol extends ProtocolBase {
 	// Inner Type
 	// ============================================================ Response(s)
 	// ------------------------------------------------------------------------
-	public class SyncMultiBulkResponse extends SyncMultiLineResponseBase implements MultiBulkResponse {
+	/**
+	 * With an {@link ElementConsumer}, the elements are streamed to the consumer as
+	 * they are read.  Elements that fit the buffer of a {@link FastBufferedInputStream}
+	 * are handed out as slices of that buffer, so streaming a reply of any length
+	 * only allocates for elements larger than the buffer.
+	 */
+	public class SyncMultiBulkResponse extends SyncMultiLineResponseBase implements StreamingMultiBulkResponse {
 
 		/**  */
 		List<byte[]>   datalist;
 		
+		/** number of elements (-1 for nil) */
+		int            count;
+		
+		/** streams the elements if set */
+		ElementConsumer consumer;
+		
 		/**
 		 * @param cmd
 		 */
@@ -528,6 +555,19 @@ public class SyncProtocol extends ProtocolBase {
 		protected void reset (Command cmd){
 			super.reset(cmd, Type.Bulk);
 			this.datalist = null;
+			this.consumer = null;
+		}
+
+		@Override
+		public void setElementConsumer(ElementConsumer consumer) {
+			if(didRead) throw new ProviderException ("Bug: consumer set on a response that has been read");
+			this.consumer = consumer;
+		}
+
+		@Override
+		public int getElementCount() throws ClientRuntimeException, ProviderException {
+			assertResponseRead();
+			return count;
 		}
 
 		@Override
@@ -541,19 +581,24 @@ public class SyncProtocol extends ProtocolBase {
 			if(didRead) return;
 			
 //			BufferedInputStream bin = new BufferedInputStream(in, 1024);
-			int count = super.readControlLine (in, true, COUNT_BYTE);
+			count = super.readControlLine (in, true, COUNT_BYTE);
 			
 			if(!status.isError() && count >= 0){
-				datalist = new ArrayList<byte[]>(count);
 				try {
-					int size = -1;
-					for(int i=0;i<count; i++){
-						size = readControlLine(in, false, SIZE_BYTE);
-
-						if(size >= 0)
-							datalist.add (super.readBulkData(in, size));
-						else
-							datalist.add(null);
+					if(null != consumer) {
+						streamElements(in);
+					}
+					else {
+						datalist = new ArrayList<byte[]>(count);
+						int size = -1;
+						for(int i=0;i<count; i++){
+							size = readControlLine(in, false, SIZE_BYTE);
+
+							if(size >= 0)
+								datalist.add (super.readBulkData(in, size));
+							else
+								datalist.add(null);
+						}
 					}
 				}
 				catch (IllegalArgumentException bug){ 
@@ -562,6 +607,9 @@ public class SyncProtocol extends ProtocolBase {
 				catch (IOException problem) {
 					throw new ClientRuntimeException ("Problem: reading the bulk data bytes", problem);
 				}
+				catch (ElementConsumerException e) {
+					throw e;
+				}
 				catch (RuntimeException bug) {
 					throw new ProviderException ("Bug: reading the multibulk data bytes.", bug);
 				}
@@ -569,5 +617,48 @@ public class SyncProtocol extends ProtocolBase {
 			didRead = true;
 			return;
 		}
+
+		/**
+		 * Once the consumer raises an exception, the remaining elements are read and
+		 * discarded, and the request fails (only) after the reply has been read.
+		 * @throws ElementConsumerException if the consumer raised an exception
+		 */
+		private void streamElements (InputStream in) throws IOException, ElementConsumerException {
+			final FastBufferedInputStream fin = in instanceof FastBufferedInputStream ? (FastBufferedInputStream) in : null;
+			RuntimeException error = null;
+			int size = -1;
+			for(int i=0;i<count; i++){
+				size = readControlLine(in, false, SIZE_BYTE);
+
+				if(size < 0) {
+					error = consume(error, i, null, 0, -1);
+				}
+				else if(null != fin && size + CRLF_LEN <= fin.buffer().length) {
+					if(!fin.peek(size + CRLF_LEN)) throw new ClientRuntimeException("IO - read returned -1 -- problem");
+					error = consume(error, i, fin.buffer(), fin.position(), size);
+					fin.consume(size + CRLF_LEN);
+				}
+				else {
+					byte[] data = super.readBulkData(in, size);
+					error = consume(error, i, data, 0, size);
+				}
+			}
+			if(null != error) {
+				didRead = true;
+				throw new ElementConsumerException ("ElementConsumer raised an exception", error);
+			}
+		}
+
+		/** @return the (first) error of the consumer -- which is not called once it has raised one */
+		private RuntimeException consume (RuntimeException error, int index, byte[] buffer, int offset, int length) {
+			if(null != error) return error;
+			try {
+				consumer.consume(index, buffer, offset, length);
+				return null;
+			}
+			catch (RuntimeException e) {
+				return e;
+			}
+		}
 	}
 }
@@ -0,0 +1,208 @@
+/*
+ *   Copyright 2009-2012 Joubin Houshyar
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package org.jredis.ri.alphazero.semantics;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+import org.jredis.NotSupportedException;
+import org.jredis.ri.alphazero.support.Assert;
+import org.jredis.semantics.KeyCodec;
+
+/**
+ * A {@link KeyCodec} that caches the (validated) encoding of up to capacity
+ * {@link String} keys, for usage scenarios where a limited set of hot keys is
+ * used repeatedly.  Set it per client, e.g.:
+ * <pre><code>
+ * CachingKeyCodec&lt;Object&gt; keys = new CachingKeyCodec&lt;Object&gt;(10000);
+ * jredis.setKeyCodec(keys);
+ * ...
+ * Log.log("key cache hit rate: %f", keys.getHitRate());
+ * </code></pre>
+ * Keys are evicted by the CLOCK algorithm: a hit marks the key as referenced,
+ * and the clock hand evicts the first key that was not referenced since it
+ * last passed.  New keys are not marked, so a stream of keys used once
+ * evicts these (and not the hot keys) first.
+ * <p>
+ * Lookups do not lock.  Misses are added to the cache if its lock is not
+ * held, and otherwise just encoded.  The hit and miss counts are striped
+ * by thread.  byte[] keys are not cached.
+ * <p>
+ * The cached byte[]s are shared by all requests of the key, and must not be
+ * modified.
+ *
+ * @author  Joubin Houshyar (alphazero@sensesay.net)
+ * @date    Apr 16, 2012
+ *
+ */
+
+public class CachingKeyCodec<K extends Object> implements KeyCodec<K> {
+
+	/** default number of cached keys */
+	public static final int DEFAULT_CAPACITY = 1024 * 8;
+
+	/** number of counter stripes (a power of 2) */
+	private static final int STRIPES = 16;
+	/** counters per stripe -- a stripe per 128 byte (cache line pair) */
+	private static final int STRIPE_LEN = 16;
+	private static final int HITS = 0;
+	private static final int MISSES = 1;
+
+	/** a cached key */
+	static final class Entry {
+		final String key;
+		final byte[] bytes;
+		volatile boolean referenced;
+		Entry (String key, byte[] bytes) {
+			this.key = key;
+			this.bytes = bytes;
+		}
+	}
+
+	private final ConcurrentHashMap<String, Entry>	index;
+	/** guards the clock */
+	private final ReentrantLock						lock = new ReentrantLock();
+	private final Entry[]							clock;
+	private int										hand;
+	private int										size;
+	private final AtomicLongArray					counters = new AtomicLongArray(STRIPES * STRIPE_LEN);
+
+	/**
+	 * A cache of {@link CachingKeyCodec#DEFAULT_CAPACITY} keys.
+	 */
+	public CachingKeyCodec () {
+		this(DEFAULT_CAPACITY);
+	}
+	/**
+	 * @param capacity the maximum number of cached keys
+	 */
+	public CachingKeyCodec (int capacity) {
+		Assert.isTrue(capacity > 0, "capacity must be positive", IllegalArgumentException.class);
+		this.clock = new Entry[capacity];
+		this.index = new ConcurrentHashMap<String, Entry>(capacity + capacity / 3 + 1);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.jredis.Codec#decode(byte[])
+	 */
+	public K decode (byte[] bytes) { throw new NotSupportedException("key decode not supported."); }
+
+	/* (non-Javadoc)
+	 * @see org.jredis.Codec#encode(java.lang.Object)
+	 */
+	public byte[] encode (K key) {
+		if(key instanceof String) {
+			return encodeString((String) key);
+		}
+		return DefaultKeyCodec.provider().encode(key);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.jredis.Codec#supports(java.lang.Class)
+	 */
+	public boolean supports (Class<?> type) {
+		return DefaultKeyCodec.provider().supports(type);
+	}
+
+	/**
+	 * @param key
+	 * @return the (cached) bytes of the key
+	 * @throws IllegalArgumentException if the key is null or invalid
+	 * @see DefaultKeyCodec#encodeString(String)
+	 */
+	public byte[] encodeString (String key) throws IllegalArgumentException {
+		if(null == key) throw new IllegalArgumentException("key is null");
+		int stripe = (int) (Thread.currentThread().getId() & (STRIPES - 1)) * STRIPE_LEN;
+		Entry entry = index.get(key);
+		if(null != entry) {
+			if(!entry.referenced) entry.referenced = true;
+			counters.incrementAndGet(stripe + HITS);
+			return entry.bytes;
+		}
+		counters.incrementAndGet(stripe + MISSES);
+		byte[] bytes = DefaultKeyCodec.encodeString(key);
+		if(lock.tryLock()) {
+			try { admit(key, bytes); }
+			finally { lock.unlock(); }
+		}
+		return bytes;
+	}
+
+	// ------------------------------------------------------------------------
+	// Metrics
+	// ------------------------------------------------------------------------
+	/** @return the number of cached keys */
+	public int size () { return index.size(); }
+
+	/** @return the maximum number of cached keys */
+	public int getCapacity () { return clock.length; }
+
+	/** @return the number of encoded String keys that were cached */
+	public long getHits () { return sum(HITS); }
+
+	/** @return the number of encoded String keys that were not cached */
+	public long getMisses () { return sum(MISSES); }
+
+	/** @return the ratio of hits to encoded String keys, or 0 if none were encoded */
+	public double getHitRate () {
+		long hits = getHits();
+		long total = hits + getMisses();
+		return total == 0 ? 0 : (double) hits / total;
+	}
+
+	/** Removes the cached keys, and resets the hit and miss counts */
+	public void clear () {
+		lock.lock();
+		try {
+			for(int i = 0; i < size; i++) clock[i] = null;
+			size = 0;
+			hand = 0;
+			index.clear();
+			for(int i = 0; i < counters.length(); i++) counters.set(i, 0);
+		}
+		finally { lock.unlock(); }
+	}
+
+	// ------------------------------------------------------------------------
+	// Internal ops
+	// ------------------------------------------------------------------------
+	/** must hold the lock */
+	private void admit (String key, byte[] bytes) {
+		if(index.containsKey(key)) return;
+		Entry entry = new Entry(key, bytes);
+		if(size < clock.length) {
+			clock[size++] = entry;
+		}
+		else {
+			// hits may (re)mark keys as the hand passes, so give up after two rounds
+			for(int i = 0; clock[hand].referenced && i < 2 * clock.length; i++) {
+				clock[hand].referenced = false;
+				hand = (hand + 1) % clock.length;
+			}
+			index.remove(clock[hand].key);
+			clock[hand] = entry;
+			hand = (hand + 1) % clock.length;
+		}
+		index.put(key, entry);
+	}
+
+	private long sum (int counter) {
+		long sum = 0;
+		for(int i = 0; i < STRIPES; i++) sum += counters.get(i * STRIPE_LEN + counter);
+		return sum;
+	}
+}
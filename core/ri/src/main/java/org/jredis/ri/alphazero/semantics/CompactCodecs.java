@@ -0,0 +1,141 @@
+/*
+ *   Copyright 2009-2012 Joubin Houshyar
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package org.jredis.ri.alphazero.semantics;
+
+import org.jredis.Codec;
+import org.jredis.ri.alphazero.support.Convert;
+import org.jredis.ri.alphazero.support.DefaultCodec;
+import org.jredis.semantics.BasicCodecManager;
+import org.jredis.semantics.CodecManager;
+
+/**
+ * Compact {@link Codec}s for the (boxed) primitive types, {@link String}s and
+ * byte[]s, as alternatives to the Java serialization of {@link DefaultCodec#encode(java.io.Serializable)}.
+ * <p>
+ * Numbers are encoded as the ASCII bytes of their decimal representation, as are
+ * the {@link Number} values of the {@link org.jredis.JRedis} api, so the values
+ * remain usable with Redis' numeric commands (e.g. INCR), and Redis stores integers
+ * in their native encoding.  Strings are UTF-8 encoded and byte[]s are not copied.
+ * <p>
+ * A client uses its codec manager for the <code>&lt;T extends Serializable&gt;</code> value
+ * overloads only (see {@link org.jredis.ri.alphazero.JRedisSupport#setCodecManager(CodecManager)}):
+ * the codecs of these types match the encoding of the <code>String</code>, <code>byte[]</code>
+ * and <code>Number</code> overloads, so values are encoded the same by either.
+ * <p>
+ * Usage:
+ * <pre><code>
+ * CodecManager codecs = CompactCodecs.newCodecManager();
+ * codecs.register(new MyDomainCodec(), MyDomainType.class); // e.g. a schema based serializer
+ * jredis.setCodecManager(codecs);
+ * ...
+ * MyDomainType value = codecs.getCodec(MyDomainType.class).decode(jredis.get(key));
+ * </code></pre>
+ *
+ * @author  Joubin Houshyar (alphazero@sensesay.net)
+ * @date    Apr 16, 2012
+ *
+ */
+
+public final class CompactCodecs {
+
+	private CompactCodecs () {}
+
+	public static final Codec<String>	STRING = new StringCodec();
+	public static final Codec<byte[]>	BYTES = new BytesCodec();
+	public static final Codec<Long>		LONG = new LongCodec();
+	public static final Codec<Integer>	INTEGER = new IntegerCodec();
+	public static final Codec<Short>	SHORT = new ShortCodec();
+	public static final Codec<Double>	DOUBLE = new DoubleCodec();
+	public static final Codec<Float>	FLOAT = new FloatCodec();
+	public static final Codec<Boolean>	BOOLEAN = new BooleanCodec();
+
+	/**
+	 * Registers the compact codecs with the codec manager.
+	 * @param codecs
+	 * @return the codec manager
+	 */
+	public static CodecManager registerWith (CodecManager codecs) {
+		codecs.register(STRING, String.class);
+		codecs.register(BYTES, byte[].class);
+		codecs.register(LONG, Long.class);
+		codecs.register(INTEGER, Integer.class);
+		codecs.register(SHORT, Short.class);
+		codecs.register(DOUBLE, Double.class);
+		codecs.register(FLOAT, Float.class);
+		codecs.register(BOOLEAN, Boolean.class);
+		return codecs;
+	}
+
+	/**
+	 * @return a new {@link BasicCodecManager} with the compact codecs registered.
+	 */
+	public static CodecManager newCodecManager () {
+		return registerWith(new BasicCodecManager());
+	}
+
+	// ------------------------------------------------------------------------
+	// Inner Class
+	// ------------------------------------------------------------------------
+	static final class StringCodec implements Codec<String> {
+		public String decode (byte[] bytes) { return DefaultCodec.toStr(bytes); }
+		public byte[] encode (String value) { return DefaultCodec.encode(value); }
+		public boolean supports (Class<?> type) { return type == String.class; }
+	}
+	static final class BytesCodec implements Codec<byte[]> {
+		public byte[] decode (byte[] bytes) { return bytes; }
+		public byte[] encode (byte[] value) { return value; }
+		public boolean supports (Class<?> type) { return type == byte[].class; }
+	}
+	@SuppressWarnings("boxing")
+	static final class LongCodec implements Codec<Long> {
+		public Long decode (byte[] bytes) { return Convert.toLong(bytes); }
+		public byte[] encode (Long value) { return Convert.toBytes(value.longValue()); }
+		public boolean supports (Class<?> type) { return type == Long.class; }
+	}
+	@SuppressWarnings("boxing")
+	static final class IntegerCodec implements Codec<Integer> {
+		public Integer decode (byte[] bytes) { return Convert.toInt(bytes); }
+		public byte[] encode (Integer value) { return Convert.toBytes(value.intValue()); }
+		public boolean supports (Class<?> type) { return type == Integer.class; }
+	}
+	@SuppressWarnings("boxing")
+	static final class ShortCodec implements Codec<Short> {
+		public Short decode (byte[] bytes) { return (short) Convert.toInt(bytes); }
+		public byte[] encode (Short value) { return Convert.toBytes(value.intValue()); }
+		public boolean supports (Class<?> type) { return type == Short.class; }
+	}
+	@SuppressWarnings("boxing")
+	static final class DoubleCodec implements Codec<Double> {
+		public Double decode (byte[] bytes) { return Convert.toDouble(bytes); }
+		public byte[] encode (Double value) { return Convert.toBytes(value.doubleValue()); }
+		public boolean supports (Class<?> type) { return type == Double.class; }
+	}
+	@SuppressWarnings("boxing")
+	static final class FloatCodec implements Codec<Float> {
+		public Float decode (byte[] bytes) { return Float.parseFloat(DefaultCodec.toStr(bytes)); }
+		public byte[] encode (Float value) { return DefaultCodec.encode(value.toString()); }
+		public boolean supports (Class<?> type) { return type == Float.class; }
+	}
+	@SuppressWarnings("boxing")
+	static final class BooleanCodec implements Codec<Boolean> {
+		private static final byte[] TRUE = {'1'};
+		private static final byte[] FALSE = {'0'};
+		public Boolean decode (byte[] bytes) { return bytes.length == 1 && bytes[0] == '1'; }
+		public byte[] encode (Boolean value) { return value.booleanValue() ? TRUE.clone() : FALSE.clone(); }
+		public boolean supports (Class<?> type) { return type == Boolean.class; }
+	}
+}
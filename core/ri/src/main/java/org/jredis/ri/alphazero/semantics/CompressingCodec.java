@@ -0,0 +1,212 @@
+/*
+ *   Copyright 2009-2012 Joubin Houshyar
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package org.jredis.ri.alphazero.semantics;
+
+import org.jredis.Codec;
+import org.jredis.ri.alphazero.support.Assert;
+import org.jredis.ri.alphazero.support.GZip;
+import org.jredis.ri.alphazero.support.LZ4;
+
+/**
+ * A {@link Codec} that compresses the encoding of its delegate codec, if it is
+ * of at least threshold bytes.  The encoded values begin with a header byte
+ * that identifies the {@link Algorithm} (or its absence) followed, for compressed
+ * values, by the size of the uncompressed data as a varint.  Values that do
+ * not compress to less than their size are stored uncompressed.
+ * <p>
+ * E.g. for large JSON strings, and any byte[] values:
+ * <pre><code>
+ * Codec&lt;String&gt; json = new CompressingCodec&lt;String&gt;(CompactCodecs.STRING, Algorithm.LZ4, 1024);
+ * Codec&lt;byte[]&gt; blobs = new CompressingCodec&lt;byte[]&gt;(CompactCodecs.BYTES);
+ * 
+ * jredis.set(key, json.encode(value));
+ * String value = json.decode(jredis.get(key));
+ * </code></pre>
+ * The <code>String</code> and <code>byte[]</code> value overloads of the {@link org.jredis.JRedis}
+ * api send their values as is and never consult a {@link org.jredis.semantics.CodecManager}: 
+ * callers must <code>encode</code> (and <code>decode</code>) the values of these types themselves, 
+ * as above.  Registering a <code>CompressingCodec&lt;String&gt;</code> or <code>CompressingCodec&lt;byte[]&gt;</code>
+ * with the codec manager of a client does not compress them.
+ * Decoding does not depend on the algorithm or threshold of the codec, so these
+ * can be changed for existing data.  Note that the encoding is not that of
+ * {@link GZipCompressedStringCodec}.
+ *
+ * @author  Joubin Houshyar (alphazero@sensesay.net)
+ * @date    Apr 16, 2012
+ *
+ */
+
+public class CompressingCodec<T> implements Codec<T> {
+
+	/**
+	 * The compression algorithms, identified by their header byte.
+	 */
+	public enum Algorithm {
+		/** {@link GZip#deflate(byte[], int, int)} (without the gzip header and checksum) */
+		DEFLATE (1, 1032),
+		/** the (much) faster, but less compact, {@link LZ4} */
+		LZ4 (2, 255);
+		final byte header;
+		/** the maximum ratio of the decompressed to the compressed size */
+		final int maxRatio;
+		Algorithm (int header, int maxRatio) { 
+			this.header = (byte) header; 
+			this.maxRatio = maxRatio;
+		}
+	}
+
+	/** header byte of uncompressed values */
+	public static final byte UNCOMPRESSED = 0;
+
+	/** values smaller than this (in bytes) are not compressed by default */
+	public static final int DEFAULT_THRESHOLD = 512;
+
+	private final Codec<T>	codec;
+	private final Algorithm	algorithm;
+	private final int		threshold;
+
+	/**
+	 * {@link Algorithm#DEFLATE} compression of values of {@link CompressingCodec#DEFAULT_THRESHOLD}
+	 * or more bytes.
+	 * @param codec
+	 */
+	public CompressingCodec (Codec<T> codec) {
+		this(codec, Algorithm.DEFLATE, DEFAULT_THRESHOLD);
+	}
+	/**
+	 * @param codec the codec of the values
+	 * @param algorithm
+	 * @param threshold the minimum size of the encoding of the values that are compressed
+	 */
+	public CompressingCodec (Codec<T> codec, Algorithm algorithm, int threshold) {
+		Assert.notNull(codec, "codec", IllegalArgumentException.class);
+		Assert.notNull(algorithm, "algorithm", IllegalArgumentException.class);
+		Assert.isTrue(threshold >= 0, "threshold must be non-negative", IllegalArgumentException.class);
+		this.codec = codec;
+		this.algorithm = algorithm;
+		this.threshold = threshold;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.jredis.Codec#decode(byte[])
+	 */
+	public T decode (byte[] bytes) {
+		return codec.decode(decompress(bytes));
+	}
+
+	/* (non-Javadoc)
+	 * @see org.jredis.Codec#encode(java.lang.Object)
+	 */
+	public byte[] encode (T value) {
+		return compress(codec.encode(value));
+	}
+
+	/* (non-Javadoc)
+	 * @see org.jredis.Codec#supports(java.lang.Class)
+	 */
+	public boolean supports (Class<?> type) {
+		return codec.supports(type);
+	}
+
+	/**
+	 * @param data
+	 * @return the header byte and data, compressed if it is of at least threshold
+	 * bytes and compressible
+	 */
+	public byte[] compress (byte[] data) {
+		if(data.length >= threshold && data.length > 0) {
+			byte[] compressed = algorithm == Algorithm.LZ4 ?
+					LZ4.compress(data, 0, data.length) : GZip.deflate(data, 0, data.length);
+			int head = 1 + varintLength(data.length);
+			if(head + compressed.length < 1 + data.length) {
+				byte[] out = new byte[head + compressed.length];
+				out[0] = algorithm.header;
+				writeVarint(out, 1, data.length);
+				System.arraycopy(compressed, 0, out, head, compressed.length);
+				return out;
+			}
+		}
+		byte[] out = new byte[1 + data.length];
+		out[0] = UNCOMPRESSED;
+		System.arraycopy(data, 0, out, 1, data.length);
+		return out;
+	}
+
+	/**
+	 * @param bytes the output of {@link CompressingCodec#compress(byte[])}, of any algorithm
+	 * @return the (decompressed) data
+	 * @throws IllegalArgumentException if the bytes are not of this codec, or are corrupt
+	 */
+	public static byte[] decompress (byte[] bytes) {
+		Assert.isTrue(bytes.length > 0, "empty bytes are not of a CompressingCodec", IllegalArgumentException.class);
+		byte header = bytes[0];
+		if(header == UNCOMPRESSED) {
+			byte[] data = new byte[bytes.length - 1];
+			System.arraycopy(bytes, 1, data, 0, data.length);
+			return data;
+		}
+		Algorithm algorithm = null;
+		for(Algorithm a : Algorithm.values())
+			if(a.header == header) algorithm = a;
+		Assert.notNull(algorithm, "Unknown CompressingCodec header: " + header, IllegalArgumentException.class);
+		int size = readVarint(bytes, 1);
+		int off = 1 + varintLength(size);
+		int len = bytes.length - off;
+		// the size is allocated before decompression: reject sizes the data can not have
+		if(size / algorithm.maxRatio > len)
+			throw new IllegalArgumentException("Corrupt CompressingCodec data: " + len + " bytes can not decompress to " + size);
+		if(algorithm == Algorithm.LZ4)
+			return LZ4.decompress(bytes, off, len, size);
+		try {
+			return GZip.inflate(bytes, off, len, size);
+		}
+		catch (RuntimeException e) {
+			throw new IllegalArgumentException("Corrupt CompressingCodec data", e);
+		}
+	}
+
+	// ------------------------------------------------------------------------
+	// Internal ops
+	// ------------------------------------------------------------------------
+	private static int varintLength (int v) {
+		int n = 1;
+		while((v >>>= 7) != 0) n++;
+		return n;
+	}
+
+	private static void writeVarint (byte[] b, int off, int v) {
+		while((v & ~0x7f) != 0) {
+			b[off++] = (byte) ((v & 0x7f) | 0x80);
+			v >>>= 7;
+		}
+		b[off] = (byte) v;
+	}
+
+	private static int readVarint (byte[] b, int off) {
+		int v = 0;
+		for(int shift = 0; shift < 32; shift += 7) {
+			Assert.isTrue(off < b.length, "truncated CompressingCodec header", IllegalArgumentException.class);
+			int bits = b[off++];
+			v |= (bits & 0x7f) << shift;
+			if(bits >= 0) {
+				Assert.isTrue(v >= 0, "invalid size in CompressingCodec header", IllegalArgumentException.class);
+				return v;
+			}
+		}
+		throw new IllegalArgumentException("invalid size in CompressingCodec header");
+	}
+}
@@ -18,16 +18,14 @@ package org.jredis.ri.alphazero.semantics;
 
 import java.io.UnsupportedEncodingException;
 import java.lang.reflect.UndeclaredThrowableException;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 import org.jredis.NotSupportedException;
-import org.jredis.ri.alphazero.JRedisSupport;
 import org.jredis.ri.alphazero.support.DefaultCodec;
 import org.jredis.semantics.KeyCodec;
 
 /**
- * Default {@link KeyCodec} provider for JRedis RI.
+ * Default {@link KeyCodec} provider for JRedis RI.  Keys are encoded on each
+ * use -- see {@link CachingKeyCodec} for a (bounded) cache of the encoded keys.
  * 
  * @author  Joubin Houshyar (alphazero@sensesay.net)
  * @version alpha.0, Nov 25, 2009
@@ -40,13 +38,8 @@ public class DefaultKeyCodec<K extends Object> implements KeyCodec<K> {
 	static {
 		instance = new DefaultKeyCodec<Object>();
 	}
-	/**  */
-	static final private Map<String, byte[]>	keyByteCache = new ConcurrentHashMap<String, byte[]>();
 	
 	public static final KeyCodec<Object> provider() { return instance; }
-	
-	/** TODO: jvm arg me ... defaults to FALSE now */
-	public static final boolean	CacheKeys	= false;
 
 	/* (non-Javadoc)
 	 * @see org.jredis.Codec#decode(byte[])
@@ -74,23 +67,16 @@ public class DefaultKeyCodec<K extends Object> implements KeyCodec<K> {
 	public static byte[] encodeString(String key) throws IllegalArgumentException {
 		if(null == key) throw new IllegalArgumentException("key is null");
 		byte[] bytes = null;
-		if(JRedisSupport.CacheKeys == true)
-			bytes = keyByteCache.get(key);
-		if(null == bytes) {
-//			bytes = key.getBytes(DefaultCodec.SUPPORTED_CHARSET); // java 1.6
-			try {
-	            bytes = key.getBytes(DefaultCodec.SUPPORTED_CHARSET_NAME);
-            }
-            catch (UnsupportedEncodingException e) {
-	            throw new UndeclaredThrowableException(e);
-            }
-			for(byte b : bytes) {
-				if (b == (byte)32 || b == (byte)10 || b == (byte)13)
-					throw new IllegalArgumentException ("Key includes invalid byte value: " + (int)b);
-			}
-			
-			if(JRedisSupport.CacheKeys == true)
-				keyByteCache.put(key, bytes);
+//		bytes = key.getBytes(DefaultCodec.SUPPORTED_CHARSET); // java 1.6
+		try {
+            bytes = key.getBytes(DefaultCodec.SUPPORTED_CHARSET_NAME);
+        }
+        catch (UnsupportedEncodingException e) {
+            throw new UndeclaredThrowableException(e);
+        }
+		for(byte b : bytes) {
+			if (b == (byte)32 || b == (byte)10 || b == (byte)13)
+				throw new IllegalArgumentException ("Key includes invalid byte value: " + (int)b);
 		}
 		return bytes;
 	}
@@ -29,7 +29,9 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import org.jredis.Codec;
 import org.jredis.JRedis;
+import org.jredis.semantics.CodecManager;
 import org.jredis.semantics.KeyCodec;
 
 /**
@@ -223,6 +225,9 @@ public class DefaultCodec {
 	 * <p>
 	 * This method is the decoding peer of {@link DefaultCodec#encode(Serializable)}, and it is
 	 * assumed (and certainly recommended) that you use these two methods in tandem.
+	 * It fails on values written by a client with a codec manager set (see
+	 * {@link org.jredis.ri.alphazero.JRedisSupport#setCodecManager(org.jredis.semantics.CodecManager)}) 
+	 * and a codec for their type: decode these with the codec of the manager.
 	 * <p>
 	 * Naturally, all caveats, rules, and considerations that generally apply to {@link Serializable}
 	 * and the Object Serialization specification apply.
@@ -272,6 +277,28 @@ public class DefaultCodec {
 	 * @return
 	 */
 	public static final <T extends Serializable>  byte[]  encode(T obj) {
+		return serialize(obj);
+	}
+	
+	/**
+	 * Encodes the object with the codec of its type, if the codec manager has one,
+	 * and otherwise serializes it per {@link DefaultCodec#encode(Serializable)}.
+	 * @param <T>
+	 * @param obj
+	 * @param codecs may be null
+	 * @return
+	 */
+	@SuppressWarnings("unchecked")
+	public static final <T extends Serializable>  byte[]  encode(T obj, CodecManager codecs) {
+		if(null != codecs && null != obj) {
+			Codec<T> codec = (Codec<T>) codecs.getCodec(obj.getClass());
+			if(null != codec)
+				return codec.encode(obj);
+		}
+		return serialize(obj);
+	}
+	
+	private static final <T extends Serializable>  byte[]  serialize(T obj) {
 		byte[] bytes = null;
 		try {
 			ByteArrayOutputStream bout = new ByteArrayOutputStream();
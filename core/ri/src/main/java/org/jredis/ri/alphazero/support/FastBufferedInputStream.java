@@ -8,29 +8,39 @@ import org.jredis.ProviderException;
  * Extension of {@link java.io.InputStream} that uses the enclosing instance's
  * {@link InputStream} its data source. This is not supposed to be a general purpose
  * implementation.
+ * <p>
+ * Data is read from the source directly into a single compacting buffer: the
+ * unread remainder is moved to the head of the buffer only when a read needs
+ * the space at its tail, and the buffer is only reallocated (doubled) for lines
+ * longer than its capacity.  Block reads larger than the buffer drain the buffer
+ * and then read directly from the source into the caller's array.
+ * <p>
+ * Protocol parsers can scan for reply lines in place with
+ * {@link FastBufferedInputStream#peekLine()} (or buffer data with
+ * {@link FastBufferedInputStream#peek(int)}), and read them from
+ * {@link FastBufferedInputStream#buffer()} before consuming them.
  *
  * @author  Joubin Houshyar (alphazero@sensesay.net)
  * @version alpha.0, Sep 5, 2009
  * @since   alpha.0
- * 
+ *
  */
 public final class FastBufferedInputStream extends java.io.InputStream {
 
 	// ------------------------------------------------------------------------
 	// Properties
 	// ------------------------------------------------------------------------
+	private static final byte CR = (byte) 13;
+	private static final byte LF = (byte) 10;
+
 	/** data buffer (cache) */
 	private byte[] buffer;
 
 	/** current (read) offset of {@link FastBufferedInputStream#buffer} */
 	private int   offset = 0;
 
-	/** 
-	 * underlying input stream read buffer -- the size of this buffer determines the
-	 * maximum bytes read  
-	 */
-	final 
-	private byte[] iobuffer;
+	/** end of the data in {@link FastBufferedInputStream#buffer} */
+	private int   limit = 0;
 
 	/** underying input stream */
 	final
@@ -41,55 +51,123 @@ public final class FastBufferedInputStream extends java.io.InputStream {
 	// ------------------------------------------------------------------------
 	/**
 	 * @param in the input source
-	 * @param bufferSize size of the {@link FastBufferedInputStream#iobuffer}
-	 * 
+	 * @param bufferSize initial size of the {@link FastBufferedInputStream#buffer},
+	 * and so the maximum bytes read from the source per read.
+	 *
 	 */
 	public FastBufferedInputStream (InputStream in, int bufferSize) {
+		if(bufferSize < 1) throw new IllegalArgumentException("bufferSize: " + bufferSize);
 		this.in = in;
-		buffer = new byte [0];
-		iobuffer = new byte[bufferSize];
+		buffer = new byte [bufferSize];
 	}
 
 	// ------------------------------------------------------------------------
 	// Inner Ops
 	// ------------------------------------------------------------------------
 	/**
-	 * Get more bytes from the underling {@link InputStream}.  
-	 * Only reads from input source if len exceeds available data in 
-	 * {@link FastBufferedInputStream#buffer}.
+	 * Get more bytes from the underling {@link InputStream}, until (minimally)
+	 * len bytes are buffered.  Only reads from input source if len exceeds
+	 * available data in {@link FastBufferedInputStream#buffer}.
 	 * <p>
-	 * This call will block until (minimally) len bytes have been read.
-	 * 
+	 * This call will block until (minimally) len bytes have been buffered.
+	 *
 	 * @param len
+	 * @return false if the source returned -1 before len bytes were buffered.
 	 * @throws IOException if a read on the underlying stream returns 0 length bytes.
 	 * This (obviously) shouldn't happen but if it does, it would be treated as an exception.
 	 */
 	@SuppressWarnings("boxing")
-	private final int getMoreBytes (int len) throws IOException {
+	private final boolean fill (int len) throws IOException {
+		if(limit - offset >= len) return true;
+
+		// make room at the tail: compact, and grow only if len exceeds capacity
+		if(offset + len > buffer.length) {
+			final int remaining = limit - offset;
+			if(len > buffer.length) {
+				byte[] newbuffer = new byte[Math.max(len, buffer.length * 2)];
+				System.arraycopy(buffer, offset, newbuffer, 0, remaining);
+				buffer = newbuffer;
+			}
+			else if(remaining > 0) {
+				System.arraycopy(buffer, offset, buffer, 0, remaining);
+			}
+			offset = 0;
+			limit = remaining;
+		}
 
-		// hit the date source until we have enough bytes
-		// compact (reset offset to 0) on first copy
-		int rlen = 0;
-		while (len > buffer.length - offset) {
-			int c = in.read(iobuffer, 0, iobuffer.length);
+		// hit the data source until we have enough bytes
+		while (limit - offset < len) {
+			int c = in.read(buffer, limit, buffer.length - limit);
 			if(c==-1) {
-				return -1;
+				return false;
 			}
 			else if(c > 0){
-				int bufflen = buffer.length - offset;
-				rlen+=c;
-				byte[] newbuffer = new byte[bufflen + c];
-				System.arraycopy(buffer, offset, newbuffer, 0, bufflen);
-				System.arraycopy(iobuffer, 0, newbuffer, bufflen, c);
-				offset = 0;
-				buffer = newbuffer;
+				limit += c;
 			}
 			else {// should never happen per contract of inputstream ...
 				Log.bug (String.format("ZERO! <= %d\n", c));
 				throw new IOException ("input stream read return 0 bytes!");
 			}
 		}
-		return rlen;
+		return true;
+	}
+
+	// ------------------------------------------------------------------------
+	// Interface: line access
+	// ------------------------------------------------------------------------
+	/**
+	 * Buffers (blocking as necessary) the next CRLF terminated line of the stream,
+	 * without consuming it.  The line is at {@link FastBufferedInputStream#position()}
+	 * of {@link FastBufferedInputStream#buffer()} until the next read, and is
+	 * consumed with {@link FastBufferedInputStream#consume(int)}.
+	 *
+	 * @return the length of the line, including its CRLF, or -1 if the source
+	 * reached EOF before the end of the line.
+	 * @throws IOException
+	 */
+	public int peekLine () throws IOException {
+		int scanned = 0;
+		for(;;) {
+			final byte[] b = buffer;
+			for(int i = offset + Math.max(scanned, 1); i < limit; i++) {
+				if(b[i] == LF && b[i-1] == CR)
+					return i + 1 - offset;
+			}
+			scanned = limit - offset;
+			if(!fill(scanned + 1)) return -1;
+		}
+	}
+
+	/**
+	 * Buffers (blocking as necessary) the next len bytes of the stream, without
+	 * consuming them.  The buffer is grown if len exceeds its capacity.
+	 * @param len
+	 * @return false if the source reached EOF before len bytes were buffered.
+	 * @throws IOException
+	 */
+	public boolean peek (int len) throws IOException {
+		return fill(len);
+	}
+
+	/**
+	 * @return the buffer of the stream -- valid until the next read.
+	 */
+	public byte[] buffer () { return buffer; }
+
+	/**
+	 * @return the (read) offset of the {@link FastBufferedInputStream#buffer()}
+	 */
+	public int position () { return offset; }
+
+	/**
+	 * Consumes buffered data, e.g. a line scanned with {@link FastBufferedInputStream#peekLine()}.
+	 * @param len
+	 * @throws ProviderException if len exceeds the buffered data
+	 */
+	public void consume (int len) {
+		if(len < 0 || len > limit - offset)
+			throw new ProviderException ("Bug: consume(" + len + ") with " + (limit - offset) + " bytes available");
+		offset += len;
 	}
 
 	// ------------------------------------------------------------------------
@@ -98,34 +176,41 @@ public final class FastBufferedInputStream extends java.io.InputStream {
 
 	/**
 	 * <b>Note:</b><br>
-	 * Breaks the contract of the {@link InputStream#read(byte[], int, int)} 
-	 * to the extent that <b>call will block</b> on the underlying {@link InputStream} 
+	 * Breaks the contract of the {@link InputStream#read(byte[], int, int)}
+	 * to the extent that <b>call will block</b> on the underlying {@link InputStream}
 	 * until it gets all the <code>len</code> bytes specified.
 	 * <p>
-	 * Also, this call will return -1 if and only if it (a) needs to get more 
-	 * data by calling {@link FastBufferedInputStream#getMoreBytes(int)},
-	 * and (b) that call returns -1.  Note that it is possible, in a general 
-	 * context, that -1 is returned but there is previously accumulated data in 
-	 * {@link FastBufferedInputStream#buffer} and thus 
-	 * {@link FastBufferedInputStream#available()} returns a non zero positive 
+	 * Also, this call will return -1 if and only if it (a) needs to get more
+	 * data from the underlying {@link InputStream},
+	 * and (b) that read returns -1.  Note that it is possible, in a general
+	 * context, that -1 is returned but there is previously accumulated data in
+	 * {@link FastBufferedInputStream#buffer} and thus
+	 * {@link FastBufferedInputStream#available()} returns a non zero positive
 	 * integer which is less than specified <b>len</b>.  But that is not expected
 	 * in the specific context of Redis protocol.
-	 * 
+	 *
 	 * @see java.io.InputStream#read(byte[], int, int)
 	 */
-	int maxRead = 0;
 	@Override
 	public int read (byte[] b, int off, int len) throws IOException {
 		if (off < 0 || off >= b.length || len < 0 || off + len > b.length) {
 			throw new ArrayIndexOutOfBoundsException();
 		}
-		int available = buffer.length - offset;
-		if(len > available) {
-			int c = getMoreBytes (len);  // this is a potentially blocking call
-			if(c==-1) return -1;
-			else if(c < len - available) 
-				throw new ProviderException ("Bug: getMoreBytes() returned less bytes than requested.  c="+c+" len=" + len + "available=" + available);
+		final int available = limit - offset;
+		if(len > buffer.length) {
+			// drain the buffer, and read the rest directly
+			System.arraycopy(buffer, offset, b, off, available);
+			offset = limit = 0;
+			int n = available;
+			while(n < len) {
+				int c = in.read(b, off + n, len - n);
+				if(c == -1) return -1;
+				n += c;
+			}
+			return len;
 		}
+		if(len > available && !fill(len))
+			return -1;
 
 		if(len == 1){
 			b[off] = buffer[offset];
@@ -137,15 +222,15 @@ public final class FastBufferedInputStream extends java.io.InputStream {
 		offset += len;
 		return len;
 	}
-	
-	/** 
+
+	/**
 	 * @return the length of data available without making call
 	 * to the underlying stream.
 	 * @see java.io.InputStream#available()
 	 */
 	@Override
 	public int available () throws IOException {
-		return buffer.length - offset;
+		return limit - offset;
 	}
 
 	/**
@@ -165,10 +250,8 @@ public final class FastBufferedInputStream extends java.io.InputStream {
 	 * @see java.io.InputStream#read()
 	 */
 	@Override
-	public int read () throws IOException { 
-		byte[] b = new byte[1];
-		int c = read(b, 0, 1);
-		if(c == -1) return -1;
-		return b[0];
+	public int read () throws IOException {
+		if(offset == limit && !fill(1)) return -1;
+		return buffer[offset++] & 0xff;
 	}
-}
\ No newline at end of file
+}
@@ -19,11 +19,32 @@ package org.jredis.ri.alphazero.support;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
 import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
 
 /**
  * GZip (de)compression utility methods.
+ * <p>
+ * The {@link Deflater} and {@link Inflater} (and a scratch buffer of up to
+ * {@link GZip#MAX_RETAINED_BUFFER} bytes) are reused per thread, and the gzip
+ * header and trailer are written directly, so a (de)compression allocates
+ * (about) the result array only.  The output is a single member gzip stream
+ * (as written by {@link java.util.zip.GZIPOutputStream}, though the OS byte of
+ * the header may differ) and input of any gzip writer is decompressed.
+ * <p>
+ * The native memory of the {@link Deflater} and {@link Inflater} of a thread is
+ * held until the thread terminates (and they are finalized), or until the thread
+ * calls {@link GZip#release()} -- threads of short lived pools that (de)compress
+ * should do so.
+ * <p>
+ * The raw {@link GZip#deflate(byte[], int, int)} and {@link GZip#inflate(byte[], int, int, int)}
+ * are for formats (e.g. {@link org.jredis.ri.alphazero.semantics.CompressingCodec})
+ * that record the size of the data and do not need the checksum of gzip.
+ * 
  * @author  Houshyar (alphazero@sensesay.net)
  * @version alpha.0, Aug 24, 2009
  * @since   alpha.0
@@ -31,40 +52,216 @@ import java.util.zip.GZIPOutputStream;
  */
 
 public class GZip {
+	/** scratch buffers larger than this are not retained by threads */
+	public static final int MAX_RETAINED_BUFFER = 1024 * 64;
+
+	private static final int GZIP_MAGIC = 0x8b1f;
+	private static final int HEADER_LEN = 10;
+	private static final int TRAILER_LEN = 8;
+	private static final byte[] HEADER = {
+		(byte) GZIP_MAGIC, (byte) (GZIP_MAGIC >> 8), Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0
+	};
+	private static final int MAX_DEFLATE_RATIO = 1032;
+	private static final int FHCRC = 2;
+	private static final int FEXTRA = 4;
+	private static final int FNAME = 8;
+	private static final int FCOMMENT = 16;
+
+	/** per thread (de)compression state */
+	private static final class Context {
+		final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+		final Inflater inflater = new Inflater(true);
+		byte[] buffer = new byte[1024 * 4];
+		byte[] buffer (int size) {
+			if(buffer.length >= size) return buffer;
+			byte[] b = new byte[size];
+			if(size <= MAX_RETAINED_BUFFER) buffer = b;
+			return b;
+		}
+	}
+	private static final ThreadLocal<Context> context = new ThreadLocal<Context>() {
+		@Override protected Context initialValue () { return new Context(); }
+	};
+
     /**
      * @param data
-     * @return
+     * @return the gzip compressed data
      */
     public static final byte[] compress(byte[] data){
-    	ByteArrayOutputStream out = new ByteArrayOutputStream();
-    	try {
-            GZIPOutputStream gzipOutputtStream = new GZIPOutputStream(out);
-            gzipOutputtStream.write(data);
-            gzipOutputtStream.close();
-        }
-        catch (IOException e) {
-			throw new RuntimeException("Failed to GZip compress data", e);
-        }
-        return out.toByteArray();
+    	byte[] out = deflate(context.get(), data, 0, data.length, HEADER_LEN, TRAILER_LEN);
+    	System.arraycopy(HEADER, 0, out, 0, HEADER_LEN);
+    	CRC32 crc = new CRC32();
+    	crc.update(data, 0, data.length);
+    	int off = out.length - TRAILER_LEN;
+    	writeIntLE(out, off, (int) crc.getValue());
+    	writeIntLE(out, off + 4, data.length);
+        return out;
     }
     
     /**
-     * @param data
-     * @return
+     * @param data gzip compressed data
+     * @return the decompressed data
      */
     public static final byte[] decompress(byte[] data){
+    	Inflater inflater = context.get().inflater;
+    	try {
+    		int off = readHeader(data);
+    		if(off == -1) return decompressStream(data);
+    		int len = data.length - off;
+    		int size = readIntLE(data, data.length - 4);
+    		if(size < 0 || size / MAX_DEFLATE_RATIO > len) size = -1; // corrupt (or foreign) trailer 
+    		byte[] out = inflate(inflater, data, off, len, size);
+    		if(inflater.getRemaining() != TRAILER_LEN) {
+    			// concatenated gzip members, or trailing garbage: leave it to GZIPInputStream
+    			return decompressStream(data);
+    		}
+    		CRC32 crc = new CRC32();
+    		crc.update(out, 0, out.length);
+    		if((int) crc.getValue() != readIntLE(data, data.length - TRAILER_LEN) || out.length != readIntLE(data, data.length - 4))
+    			throw new RuntimeException("Failed to GZip decompress data", new DataFormatException("Corrupt GZIP trailer"));
+    		return out;
+    	}
+    	catch (DataFormatException e) {
+    		throw new RuntimeException("Failed to GZip decompress data", e);
+    	}
+    	finally {
+    		inflater.reset();
+    	}
+    }
+
+    /**
+     * Ends the {@link Deflater} and {@link Inflater} of the calling thread, releasing
+     * their native memory.  A later (de)compression by the thread allocates new ones.
+     */
+    public static final void release(){
+    	Context ctx = context.get();
+    	context.remove();
+    	ctx.deflater.end();
+    	ctx.inflater.end();
+    }
+
+    /**
+     * Raw (no header or checksum) deflate compression of the data, with the
+     * {@link Deflater} of the thread.
+     * @param data
+     * @param off
+     * @param len
+     * @return the compressed data
+     */
+    public static final byte[] deflate(byte[] data, int off, int len){
+    	return deflate(context.get(), data, off, len, 0, 0);
+    }
+
+    /**
+     * Decompresses data compressed by {@link GZip#deflate(byte[], int, int)}, with
+     * the {@link Inflater} of the thread.
+     * @param data
+     * @param off
+     * @param len
+     * @param size the size of the decompressed data
+     * @return the decompressed data
+     */
+    public static final byte[] inflate(byte[] data, int off, int len, int size){
+    	Inflater inflater = context.get().inflater;
+    	try {
+    		byte[] out = inflate(inflater, data, off, len, size);
+    		if(out.length != size) 
+    			throw new DataFormatException("Expecting " + size + " bytes but inflated " + out.length);
+    		return out;
+    	}
+    	catch (DataFormatException e) {
+    		throw new RuntimeException("Failed to inflate data", e);
+    	}
+    	finally {
+    		inflater.reset();
+    	}
+    }
+
+	// ------------------------------------------------------------------------
+	// Internal ops
+	// ------------------------------------------------------------------------
+    /**
+     * @return the compressed data, at offset head of an array with tail bytes of room at its end
+     */
+    private static byte[] deflate(Context ctx, byte[] data, int off, int len, int head, int tail) {
+    	Deflater deflater = ctx.deflater;
+    	deflater.setInput(data, off, len);
+    	deflater.finish();
+    	// zlib's deflateBound
+    	byte[] buffer = ctx.buffer(head + len + (len >> 12) + (len >> 14) + (len >> 25) + 13 + tail);
+    	int n = head;
+    	try {
+    		for(;;) {
+    			n += deflater.deflate(buffer, n, buffer.length - tail - n);
+    			if(deflater.finished()) break;
+    			buffer = Arrays.copyOf(buffer, buffer.length * 2);
+    		}
+    	}
+    	finally {
+    		deflater.reset();
+    	}
+    	return Arrays.copyOf(buffer, n + tail);
+    }
+
+    private static byte[] inflate(Inflater inflater, byte[] data, int off, int len, int size) throws DataFormatException {
+    	inflater.setInput(data, off, len);
+    	byte[] out = new byte[size < 0 ? len * 2 : size];
+    	int n = 0;
+    	for(;;) {
+    		n += inflater.inflate(out, n, out.length - n);
+    		if(inflater.finished()) break;
+    		if(n == out.length) 
+    			out = Arrays.copyOf(out, Math.max(out.length * 2, 64));
+    		else if(inflater.needsInput() || inflater.needsDictionary())
+    			throw new DataFormatException("Unexpected end of deflated data");
+    	}
+    	return n == out.length ? out : Arrays.copyOf(out, n);
+    }
+
+    /**
+     * @return the offset of the deflated data, or -1 if the header is not of a
+     * single member gzip stream
+     */
+    private static int readHeader(byte[] data) throws DataFormatException {
+    	if(data.length < HEADER_LEN + TRAILER_LEN || (data[0] & 0xff | (data[1] & 0xff) << 8) != GZIP_MAGIC)
+    		throw new DataFormatException("Not in GZIP format");
+    	if(data[2] != Deflater.DEFLATED)
+    		throw new DataFormatException("Unsupported compression method");
+    	int flags = data[3] & 0xff;
+    	int off = HEADER_LEN;
+    	if((flags & FEXTRA) != 0) off += 2 + (data[off] & 0xff | (data[off + 1] & 0xff) << 8);
+    	if((flags & FNAME) != 0) off = skipString(data, off);
+    	if((flags & FCOMMENT) != 0) off = skipString(data, off);
+    	if((flags & FHCRC) != 0) off += 2;
+    	return off + TRAILER_LEN <= data.length ? off : -1;
+    }
+
+    private static int skipString(byte[] data, int off) {
+    	while(off < data.length && data[off] != 0) off++;
+    	return off + 1;
+    }
+
+    private static void writeIntLE(byte[] b, int off, int v) {
+    	b[off] = (byte) v;
+    	b[off + 1] = (byte) (v >> 8);
+    	b[off + 2] = (byte) (v >> 16);
+    	b[off + 3] = (byte) (v >> 24);
+    }
+
+    private static int readIntLE(byte[] b, int off) {
+    	return (b[off] & 0xff) | (b[off + 1] & 0xff) << 8 | (b[off + 2] & 0xff) << 16 | (b[off + 3] & 0xff) << 24;
+    }
+
+    private static byte[] decompressStream(byte[] data){
 		ByteArrayOutputStream buffer = null;
 		GZIPInputStream gizpInputStream= null;
 		try {
 			buffer = new ByteArrayOutputStream();
 			gizpInputStream = new GZIPInputStream(new ByteArrayInputStream(data));
 			int n=-1;
-			@SuppressWarnings("unused")
-			int tot = 0;
 			byte[] _buffer = new byte[1024 * 12];
 			while(-1 != (n = gizpInputStream.read(_buffer))){
 				buffer.write(_buffer, 0, n);
-				tot += n;
 			}
 			gizpInputStream.close();
 			buffer.close();
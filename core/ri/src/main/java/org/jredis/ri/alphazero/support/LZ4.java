@@ -0,0 +1,211 @@
+/*
+ *   Copyright 2009-2012 Joubin Houshyar
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package org.jredis.ri.alphazero.support;
+
+import java.util.Arrays;
+
+/**
+ * A (pure java) compressor of the LZ4 block format: a single pass greedy
+ * matcher over a hash table of 4 byte sequences.  It compresses less than
+ * {@link GZip} but is many times faster, in particular to decompress.
+ * <p>
+ * The block does not record the size of the decompressed data, which must be
+ * provided to {@link LZ4#decompress(byte[], int, int, int)}.  The hash table
+ * (and a scratch buffer of up to {@link GZip#MAX_RETAINED_BUFFER} bytes) are
+ * reused per thread.
+ *
+ * @author  Joubin Houshyar (alphazero@sensesay.net)
+ * @date    Apr 16, 2012
+ *
+ */
+
+public class LZ4 {
+	private static final int MIN_MATCH = 4;
+	/** matches can not start in the last 12 bytes */
+	private static final int MF_LIMIT = 12;
+	/** the last 5 bytes are always literals */
+	private static final int LAST_LITERALS = 5;
+	private static final int MAX_DISTANCE = 0xffff;
+	private static final int HASH_LOG = 12;
+	/** after 2^SKIP_STRENGTH misses, the search steps over more bytes */
+	private static final int SKIP_STRENGTH = 6;
+	private static final int RUN_MASK = 0x0f;
+
+	/** per thread compression state */
+	private static final class Context {
+		final int[] table = new int[1 << HASH_LOG];
+		byte[] buffer = new byte[1024 * 4];
+		byte[] buffer (int size) {
+			if(buffer.length >= size) return buffer;
+			byte[] b = new byte[size];
+			if(size <= GZip.MAX_RETAINED_BUFFER) buffer = b;
+			return b;
+		}
+	}
+	private static final ThreadLocal<Context> context = new ThreadLocal<Context>() {
+		@Override protected Context initialValue () { return new Context(); }
+	};
+
+	/**
+	 * @param len
+	 * @return the maximum size of the compressed block of len bytes
+	 */
+	public static int maxCompressedLength (int len) {
+		return len + len / 255 + 16;
+	}
+
+	/**
+	 * @param data
+	 * @param off
+	 * @param len
+	 * @return the LZ4 block of the data
+	 */
+	public static byte[] compress (byte[] data, int off, int len) {
+		Context ctx = context.get();
+		byte[] buffer = ctx.buffer(maxCompressedLength(len));
+		int n = compress(ctx.table, data, off, len, buffer);
+		return Arrays.copyOf(buffer, n);
+	}
+
+	/**
+	 * @param block
+	 * @param off
+	 * @param len
+	 * @param size the size of the decompressed data
+	 * @return the decompressed data
+	 * @throws IllegalArgumentException if the block is corrupt, or does not decompress to size bytes
+	 */
+	public static byte[] decompress (byte[] block, int off, int len, int size) {
+		byte[] out = new byte[size];
+		int end = off + len;
+		int sp = off;
+		int dp = 0;
+		try {
+			for(;;) {
+				int token = block[sp++] & 0xff;
+				int literals = token >>> 4;
+				if(literals == RUN_MASK) {
+					int b;
+					do { literals += (b = block[sp++] & 0xff); } while (b == 0xff);
+				}
+				System.arraycopy(block, sp, out, dp, literals);
+				sp += literals;
+				dp += literals;
+				if(sp >= end) break;
+
+				int distance = (block[sp++] & 0xff) | (block[sp++] & 0xff) << 8;
+				int ref = dp - distance;
+				if(distance == 0 || ref < 0)
+					throw new IllegalArgumentException("Corrupt LZ4 block: invalid match distance at " + (sp - off));
+				int match = token & RUN_MASK;
+				if(match == RUN_MASK) {
+					int b;
+					do { match += (b = block[sp++] & 0xff); } while (b == 0xff);
+				}
+				match += MIN_MATCH;
+				if(distance >= match) {
+					System.arraycopy(out, ref, out, dp, match);
+					dp += match;
+				}
+				else {
+					// overlapping: repeats the last distance bytes
+					for(int i = 0; i < match; i++) out[dp++] = out[ref++];
+				}
+			}
+		}
+		catch (IndexOutOfBoundsException e) {
+			throw new IllegalArgumentException("Corrupt LZ4 block, or not of " + size + " bytes", e);
+		}
+		if(dp != size || sp != end)
+			throw new IllegalArgumentException("Corrupt LZ4 block, or not of " + size + " bytes");
+		return out;
+	}
+
+	// ------------------------------------------------------------------------
+	// Internal ops
+	// ------------------------------------------------------------------------
+	/**
+	 * @return the size of the block written to out
+	 */
+	private static int compress (int[] table, byte[] data, int off, int len, byte[] out) {
+		int end = off + len;
+		int anchor = off;
+		int dp = 0;
+		if(len > MF_LIMIT) {
+			Arrays.fill(table, -1);
+			int limit = end - MF_LIMIT;
+			int matchLimit = end - LAST_LITERALS;
+			int ip = off;
+			int misses = 0;
+			while(ip < limit) {
+				int sequence = readInt(data, ip);
+				int h = (sequence * -1640531535) >>> (32 - HASH_LOG);
+				int ref = table[h];
+				table[h] = ip;
+				if(ref < 0 || ip - ref > MAX_DISTANCE || readInt(data, ref) != sequence) {
+					ip += 1 + (misses++ >>> SKIP_STRENGTH);
+					continue;
+				}
+				misses = 0;
+				while(ip > anchor && ref > off && data[ip - 1] == data[ref - 1]) { ip--; ref--; }
+				int match = MIN_MATCH;
+				while(ip + match < matchLimit && data[ip + match] == data[ref + match]) match++;
+
+				dp = writeSequence(data, anchor, ip - anchor, out, dp, ip - ref, match - MIN_MATCH);
+				ip += match;
+				anchor = ip;
+			}
+		}
+		return writeSequence(data, anchor, end - anchor, out, dp, 0, -1);
+	}
+
+	/** writes the literals, and the match if match is not -1 */
+	private static int writeSequence (byte[] data, int anchor, int literals, byte[] out, int dp, int distance, int match) {
+		int token = dp++;
+		if(literals >= RUN_MASK) {
+			out[token] = (byte) (RUN_MASK << 4);
+			dp = writeLength(out, dp, literals - RUN_MASK);
+		}
+		else {
+			out[token] = (byte) (literals << 4);
+		}
+		System.arraycopy(data, anchor, out, dp, literals);
+		dp += literals;
+		if(match == -1) return dp;
+
+		out[dp++] = (byte) distance;
+		out[dp++] = (byte) (distance >>> 8);
+		if(match >= RUN_MASK) {
+			out[token] |= RUN_MASK;
+			dp = writeLength(out, dp, match - RUN_MASK);
+		}
+		else {
+			out[token] |= match;
+		}
+		return dp;
+	}
+
+	private static int writeLength (byte[] out, int dp, int len) {
+		for(; len >= 0xff; len -= 0xff) out[dp++] = (byte) 0xff;
+		out[dp++] = (byte) len;
+		return dp;
+	}
+
+	private static int readInt (byte[] b, int off) {
+		return (b[off] & 0xff) | (b[off + 1] & 0xff) << 8 | (b[off + 2] & 0xff) << 16 | (b[off + 3] & 0xff) << 24;
+	}
+}
@@ -0,0 +1,231 @@
+/*
+ *   Copyright 2009-2012 Joubin Houshyar
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package org.jredis.ri.alphazero.support;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bounded, array backed, single producer/single consumer queue.
+ * <p>
+ * The producer and consumer indices are kept on separate (padded) cache lines,
+ * and each side caches the last seen value of the other's index, so that in
+ * steady state the two threads only touch shared lines when the queue appears
+ * to be full (producer) or empty (consumer).
+ * <p>
+ * Waiting -- of the consumer for an item in {@link SpscRingQueue#take()}, and of
+ * the producer for free slots in {@link SpscRingQueue#awaitCapacity(int, long, TimeUnit)} --
+ * is adaptive: busy spin, then {@link Thread#yield()}, then park until woken
+ * up by the other side.  An idle queue costs no CPU.
+ * <p>
+ * <b>Not</b> safe for concurrent producers (or consumers).  Multiple threads may
+ * produce (or consume) if externally serialized, e.g. by a lock.
+ *
+ * @author  Joubin Houshyar (alphazero@sensesay.net)
+ * @date    Apr 12, 2012
+ *
+ * @param <E> item type
+ */
+public final class SpscRingQueue<E> {
+
+	// ------------------------------------------------------------------------
+	// Properties
+	// ------------------------------------------------------------------------
+	private final Object[]		items;
+	private final int			mask;
+	private final int			capacity;
+	private final int			spins;
+	private final int			yields;
+
+	/** next slot to write -- producer owned; cache is producer's view of head */
+	private final Sequence		tail = new Sequence();
+
+	/** next slot to read -- consumer owned; cache is consumer's view of tail */
+	private final Sequence		head = new Sequence();
+
+	private volatile Thread		parkedConsumer;
+	private volatile Thread		parkedProducer;
+
+	// ------------------------------------------------------------------------
+	// Constructor
+	// ------------------------------------------------------------------------
+	/**
+	 * @param capacity maximum number of queued items
+	 * @param spins number of busy spins of a waiting thread before yielding
+	 * @param yields number of yields of a waiting thread before parking
+	 */
+	public SpscRingQueue (int capacity, int spins, int yields) {
+		if(capacity < 1 || capacity > (1 << 30)) throw new IllegalArgumentException("capacity: " + capacity);
+		if(spins < 0 || yields < 0) throw new IllegalArgumentException("spins and yields must be >= 0");
+		int size = 1;
+		while(size < capacity) size <<= 1;
+		this.items = new Object[size];
+		this.mask = size - 1;
+		this.capacity = capacity;
+		this.spins = spins;
+		this.yields = yields;
+	}
+
+	// ------------------------------------------------------------------------
+	// Producer
+	// ------------------------------------------------------------------------
+	/**
+	 * Non-blocking offer.
+	 * @param item
+	 * @return false if the queue is full
+	 */
+	public boolean offer (E item) {
+		if(item == null) throw new NullPointerException("item");
+		final long t = tail.value;
+		if(t - tail.cache >= capacity) {
+			tail.cache = head.value;
+			if(t - tail.cache >= capacity) return false;
+		}
+		items[(int) t & mask] = item;
+		tail.value = t + 1;		// publishes item; volatile write also orders the check below
+
+		final Thread consumer = parkedConsumer;
+		if(consumer != null) LockSupport.unpark(consumer);
+		return true;
+	}
+
+	/**
+	 * Waits up to the timeout for the given number of free slots.  Used by producers
+	 * that must not commit to an item they can not queue.
+	 * <p>
+	 * May be called concurrently with the producer (e.g. by a thread waiting to 
+	 * become the producer) but by only one thread at a time: a single waiter is
+	 * woken up by the consumer.
+	 * @param slots
+	 * @param timeout
+	 * @param unit
+	 * @return false if timed out
+	 * @throws InterruptedException
+	 */
+	public boolean awaitCapacity (int slots, long timeout, TimeUnit unit) throws InterruptedException {
+		if(slots > capacity) throw new IllegalArgumentException("slots exceed capacity: " + slots);
+		if(remainingCapacity() >= slots) return true;
+		final long deadline = System.nanoTime() + unit.toNanos(timeout);
+		for(int n = 0; ; ) {
+			if(Thread.interrupted()) throw new InterruptedException();
+			if(n < spins) { n++; }
+			else if(n < spins + yields) { n++; Thread.yield(); }
+			else {
+				final long nanos = deadline - System.nanoTime();
+				if(nanos <= 0) return remainingCapacity() >= slots;
+				parkedProducer = Thread.currentThread();
+				if(remainingCapacity() < slots) LockSupport.parkNanos(this, nanos);
+				parkedProducer = null;
+			}
+			if(remainingCapacity() >= slots) return true;
+		}
+	}
+
+	/**
+	 * Non-blocking check, by the producer only.
+	 * @param slots
+	 * @return true if at least the given number of slots are free
+	 */
+	public boolean hasCapacity (int slots) {
+		final long t = tail.value + slots;
+		if(t - tail.cache > capacity) {
+			tail.cache = head.value;
+			if(t - tail.cache > capacity) return false;
+		}
+		return true;
+	}
+
+	// ------------------------------------------------------------------------
+	// Consumer
+	// ------------------------------------------------------------------------
+	/**
+	 * Non-blocking poll.
+	 * @return the head item, or null if empty
+	 */
+	@SuppressWarnings("unchecked")
+	public E poll () {
+		final long h = head.value;
+		if(h >= head.cache) {
+			head.cache = tail.value;
+			if(h >= head.cache) return null;
+		}
+		final int slot = (int) h & mask;
+		final E item = (E) items[slot];
+		items[slot] = null;
+		head.value = h + 1;		// frees slot; volatile write also orders the check below
+
+		final Thread producer = parkedProducer;
+		if(producer != null) LockSupport.unpark(producer);
+		return item;
+	}
+
+	/**
+	 * Blocking take, waiting (spin, yield, park) until an item is available.
+	 * @return the head item
+	 * @throws InterruptedException
+	 */
+	public E take () throws InterruptedException {
+		E item = poll();
+		for(int n = 0; item == null; ) {
+			if(n < spins) { n++; }
+			else if(n < spins + yields) { n++; Thread.yield(); }
+			else {
+				parkedConsumer = Thread.currentThread();
+				if(isEmpty()) LockSupport.park(this);
+				parkedConsumer = null;
+			}
+			if(Thread.interrupted()) throw new InterruptedException();
+			item = poll();
+		}
+		return item;
+	}
+
+	// ------------------------------------------------------------------------
+	// Inspection
+	// ------------------------------------------------------------------------
+	/** @return maximum number of queued items */
+	public int capacity () { return capacity; }
+
+	/** @return number of queued items -- a snapshot if called concurrently with producer or consumer */
+	public int size () {
+		final long h = head.value;
+		return (int) (tail.value - h);
+	}
+
+	/** @return number of free slots -- a snapshot if called concurrently with producer or consumer */
+	public int remainingCapacity () {
+		return capacity - size();
+	}
+
+	/** @return true if there are no queued items */
+	public boolean isEmpty () { return tail.value == head.value; }
+
+	// ------------------------------------------------------------------------
+	// Inner Type
+	// ------------------------------------------------------------------------
+	/*
+	 * Sequence padded to 2 x 64 byte cache lines -- value and cache on both sides
+	 * of the padding would defeat the purpose.  Superclass fields are laid out
+	 * first, so padding by inheritance holds regardless of field reordering.
+	 */
+	static class SequenceLhsPad { long p00, p01, p02, p03, p04, p05, p06, p07; }
+	static class SequenceValue extends SequenceLhsPad {
+		volatile long value;
+		long cache;
+	}
+	static final class Sequence extends SequenceValue { long p10, p11, p12, p13, p14, p15, p16; }
+}
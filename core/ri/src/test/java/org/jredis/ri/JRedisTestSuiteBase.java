@@ -18,6 +18,7 @@ package org.jredis.ri;
 
 import static org.testng.Assert.fail;
 
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.HashSet;
@@ -25,8 +26,11 @@ import java.util.List;
 import java.util.Random;
 import java.util.Set;
 
+import org.jredis.loopback.LoopbackServer;
 import org.jredis.ri.alphazero.support.Log;
+import org.testng.annotations.AfterSuite;
 import org.testng.annotations.BeforeSuite;
+import org.testng.annotations.Optional;
 import org.testng.annotations.Parameters;
 
 /**
@@ -58,6 +62,9 @@ public abstract class JRedisTestSuiteBase<T> extends ProviderTestBase<T>{
 	protected int db1 = 13;
 	protected int db2 = 10;
 
+	/** in-process server standing in for Redis -- null unless jredis.test.loopback is true */
+	protected static LoopbackServer loopbackServer;
+
 	// ------------------------------------------------------------------------
 	// General RI Test Suite Parameters with default values to avoid XML
 	// ------------------------------------------------------------------------
@@ -145,7 +152,8 @@ public abstract class JRedisTestSuiteBase<T> extends ProviderTestBase<T>{
 		"jredis.test.cnt.medium",
 		"jredis.test.cnt.large",
 		"jredis.test.expire.secs",
-		"jredis.test.expire.wait.millisecs"
+		"jredis.test.expire.wait.millisecs",
+		"jredis.test.loopback"
 
 	})
 	@BeforeSuite
@@ -163,7 +171,8 @@ public abstract class JRedisTestSuiteBase<T> extends ProviderTestBase<T>{
 			int medium_cnt,
 			int large_cnt,
 			int expire_secs,
-			int expire_wait_millisecs
+			int expire_wait_millisecs,
+			@Optional("false") boolean loopback
 	) 
 	{
 		this.password = password;
@@ -181,11 +190,43 @@ public abstract class JRedisTestSuiteBase<T> extends ProviderTestBase<T>{
 		this.expire_secs = expire_secs;
 		this.expire_wait_millisecs = expire_wait_millisecs;
 
+		if(loopback) startLoopbackServer();
+
 		Log.log("Suite parameters initialized <suiteParametersInit>");
 
 		setupTestSuiteData();
 	}	
 
+	/**
+	 * Starts a {@link LoopbackServer} on an ephemeral port, expecting the suite
+	 * password, and points the suite's host and port at it.
+	 */
+	protected final void startLoopbackServer () {
+		synchronized (JRedisTestSuiteBase.class) {
+			if(loopbackServer == null){
+				try {
+					loopbackServer = LoopbackServer.start(LoopbackServer.Spec.newSpec().setPassword(password));
+				}
+				catch (IOException e) {
+					fail("failed to start loopback server", e);
+				}
+				Log.log("TEST-SUITE-INIT: loopback server started on port %d", loopbackServer.getPort());
+			}
+		}
+		this.host = loopbackServer.getAddress().getHostAddress();
+		this.port = loopbackServer.getPort();
+	}
+
+	@AfterSuite(alwaysRun=true)
+	public void stopLoopbackServer () {
+		synchronized (JRedisTestSuiteBase.class) {
+			if(loopbackServer != null) {
+				loopbackServer.stop();
+				loopbackServer = null;
+			}
+		}
+	}
+
 	// ------------------------------------------------------------------------
 	// Test data setup methods
 	// ------------------------------------------------------------------------
@@ -1,112 +1,247 @@
-///*
-// *   Copyright 2009 Joubin Houshyar
-// * 
-// *   Licensed under the Apache License, Version 2.0 (the "License");
-// *   you may not use this file except in compliance with the License.
-// *   You may obtain a copy of the License at
-// *    
-// *   http://www.apache.org/licenses/LICENSE-2.0
-// *    
-// *   Unless required by applicable law or agreed to in writing, software
-// *   distributed under the License is distributed on an "AS IS" BASIS,
-// *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
-// *   See the License for the specific language governing permissions and
-// *   limitations under the License.
-// */
-//
-//package org.jredis.ri.alphazero;
-//
-//import static org.testng.Assert.fail;
-//import org.jredis.ClientRuntimeException;
-//import org.jredis.JRedis;
-//import org.jredis.connector.ConnectionSpec;
-//import org.jredis.ri.alphazero.connection.DefaultConnectionSpec;
-//import org.jredis.ri.alphazero.support.Log;
-//import org.testng.annotations.AfterTest;
-//import org.testng.annotations.BeforeSuite;
-//import org.testng.annotations.Parameters;
-//import org.testng.annotations.Test;
-//
-///**
-// * As of now, this class simply runs the same set of {@link JRedis} contract
-// * compliance using {@link JRedisService} as the provider.
-// * 
-// * TODO: figure out a good way to meaningfully test service (e.g. concurrent
-// * and random method usage ..)
-// * 
-// * @author  Joubin Houshyar (alphazero@sensesay.net)
-// * @version alpha.0, Oct 9, 2009
-// * @since   alpha.0
-// * 
-// */
-//@Test(sequential = true, suiteName="JRedisService-tests")
-////public class JRedisServiceTest extends JRedisProviderTestsBase {
-//public class JRedisServiceTest extends ConcurrentJRedisProviderTestsBase {
-//	
-//	// ------------------------------------------------------------------------
-//	// JRedisService specific Test Suite Parameters with default values
-//	// ------------------------------------------------------------------------
-//	protected int connectionCnt = 1;
-//	
-//	// ------------------------------------------------------------------------
-//	// TEST SETUP 
-//	// ------------------------------------------------------------------------
-//	/**
-//	 * {@link JRedisService} test suite requires the additional params.
-//	 * @param connectionCount
-//	 */
-//	@Parameters({ 
-//		"jredis.service.connection.cnt" 
-//	})
-//	@BeforeSuite
-//	public void serviceSuiteParametersInit(
-//			int connectionCount
-//		) 
-//	{
-//		this.connectionCnt = connectionCount;
-//		Log.log("JRedisServiceTest: Using %d connections", connectionCount);
-//		Log.log("JRedisService Suite parameters initialized <suiteParametersInit>");
-//	}	
-//
-//	/* (non-Javadoc)
-//	 * @see org.jredis.ri.alphazero.JRedisProviderTestNGBase#newJRedisProviderInstance()
-//	 */
-//	protected JRedis newProviderInstance () {
-//		JRedis provider = null;
-//		try {
-//			ConnectionSpec connectionSpec = DefaultConnectionSpec.newSpec(this.host, this.port, this.db2, this.password.getBytes());
-//			provider = new JRedisService(connectionSpec, this.connectionCnt);
-//        }
-//        catch (ClientRuntimeException e) {
-//        	Log.error(e.getLocalizedMessage());
-//        }
-//        return provider;
-//	}
-//	
-//	// ------------------------------------------------------------------------
-//	// The Tests
-//	// ========================================================= JRedisClient
-//	/**
-//	 * We define and run any additional, provider specific tests here.  The
-//	 * basic generally applicable JRedis interface method test are defined 
-//	 * in the super class.
-//	 * 
-//	 * Here we test Quit in a post test method to insure all tests have been
-//	 * completed.
-//	 */
-//	// ------------------------------------------------------------------------
-//	/**
-//	 * Test method for {@link org.jredis.ri.alphazero.JRedisSupport#auth(java.lang.String)}.
-//	 */
-//	@AfterTest
-//	public void testQuit() {
-//		Log.log("TEST: QUIT command -- WARNING: using quit with JRedisService should not be allowed!");
-//		try {
-//			JRedis service = getProviderInstance();
-//			service.quit ();
-//		} 
-//		catch (Exception e) {
-//			fail("QUIT" + e);
-//		}
-//	}
-//}
+/*
+ *   Copyright 2009-2012 Joubin Houshyar
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package org.jredis.ri.alphazero;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.jredis.ClientRuntimeException;
+import org.jredis.RedisException;
+import org.jredis.loopback.LoopbackServer;
+import org.jredis.ri.alphazero.JRedisService.PoolSpec;
+import org.jredis.ri.alphazero.JRedisService.Stats;
+import org.jredis.ri.alphazero.connection.DefaultConnectionSpec;
+import org.jredis.ri.alphazero.support.Log;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+/**
+ * Tests the connection pool of {@link JRedisService} against a {@link LoopbackServer}.
+ *
+ * @author  Joubin Houshyar (alphazero@sensesay.net)
+ * @date    Apr 16, 2012
+ *
+ */
+
+@Test(suiteName="JRedisService-tests")
+public class JRedisServiceTest {
+
+	private LoopbackServer server;
+
+	@BeforeClass
+	public void startServer () throws IOException {
+		server = LoopbackServer.start(LoopbackServer.Spec.newSpec());
+	}
+
+	@AfterClass
+	public void stopServer () {
+		server.stop();
+	}
+
+	private static JRedisService newService (LoopbackServer server, PoolSpec poolSpec) {
+		return new JRedisService(DefaultConnectionSpec.newSpec(server.getAddress().getHostAddress(), server.getPort(), 0, null), poolSpec);
+	}
+
+	/** runs the task on a new (started) thread, recording its failure */
+	private static Thread start (final Runnable task, final AtomicReference<Throwable> error) {
+		Thread thread = new Thread(new Runnable() {
+			public void run () {
+				try { task.run(); }
+				catch (Throwable e) { error.compareAndSet(null, e); }
+			}
+		});
+		thread.setDaemon(true);
+		thread.start();
+		return thread;
+	}
+
+	private static final Runnable ping (final JRedisService service) {
+		return new Runnable() {
+			public void run () {
+				try { service.ping(); }
+				catch (RedisException e) { throw new RuntimeException(e); }
+			}
+		};
+	}
+
+	@Test
+	public void testConcurrentAcquireRelease () throws Exception {
+		Log.log("Testing JRedisService acquire/release under contention ...");
+		final JRedisService service = newService(server, new PoolSpec().setMinConnections(1).setMaxConnections(3));
+		final String key = "service-test:counter";
+		service.del(key);
+		final int threadCnt = 8;
+		final int incrCnt = 500;
+		AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+		Thread[] threads = new Thread[threadCnt];
+		for(int i = 0; i < threadCnt; i++) {
+			threads[i] = start(new Runnable() {
+				public void run () {
+					try { for(int j = 0; j < incrCnt; j++) service.incr(key); }
+					catch (RedisException e) { throw new RuntimeException(e); }
+				}
+			}, error);
+		}
+		for(Thread thread : threads) thread.join(10000);
+		Assert.assertNull(error.get(), "request failed: " + error.get());
+		Assert.assertEquals(service.incr(key), threadCnt * incrCnt + 1);
+
+		Stats stats = service.getStats();
+		Log.log("JRedisService stats: %s", stats);
+		Assert.assertTrue(stats.getSize() >= 1 && stats.getSize() <= 3, "pool size should be within min and max");
+		Assert.assertEquals(stats.getInUse(), 0);
+		Assert.assertTrue(stats.getAcquisitions() > threadCnt * incrCnt);
+		Assert.assertTrue(stats.getAffinityHits() + stats.getSteals() > 0);
+		service.shutdown();
+	}
+
+	@Test
+	public void testAcquireTimeout () throws Exception {
+		Log.log("Testing JRedisService acquire timeout ...");
+		JRedisService service = newService(server, PoolSpec.newSpec(1).setAcquireTimeout(100));
+		service.pin();
+		AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+		long start = System.nanoTime();
+		Thread waiter = start(ping(service), error);
+		waiter.join(5000);
+		Assert.assertFalse(waiter.isAlive(), "waiter should have timed out");
+		Assert.assertTrue(error.get() instanceof ClientRuntimeException, "expecting a ClientRuntimeException, but got " + error.get());
+		Assert.assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(100));
+		Assert.assertEquals(service.getStats().getTimeouts(), 1);
+
+		service.unpin();
+		service.ping();
+		service.shutdown();
+	}
+
+	@Test
+	public void testWaiterWokenByRelease () throws Exception {
+		Log.log("Testing JRedisService waiter woken by a release ...");
+		JRedisService service = newService(server, PoolSpec.newSpec(1));
+		service.pin();
+		AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+		Thread waiter = start(ping(service), error);
+		Thread.sleep(100);
+		Assert.assertTrue(waiter.isAlive(), "waiter should be waiting for the pinned connection");
+		Assert.assertEquals(service.getStats().getWaits(), 1);
+
+		service.unpin();
+		waiter.join(5000);
+		Assert.assertFalse(waiter.isAlive(), "waiter should have been woken by the release");
+		Assert.assertNull(error.get());
+		service.shutdown();
+	}
+
+	@Test
+	public void testWaitersWokenOneReleaseAtATime () throws Exception {
+		Log.log("Testing JRedisService wakeup of more waiters than connections ...");
+		// no maintenance, so only releases wake the waiters
+		final JRedisService service = newService(server, PoolSpec.newSpec(2).setMaxIdleTime(0).setHealthCheckInterval(0));
+		AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+		final CountDownLatch pinned = new CountDownLatch(2);
+		final CountDownLatch[] unpin = { new CountDownLatch(1), new CountDownLatch(1) };
+		Thread[] holders = new Thread[2];
+		for(int i = 0; i < holders.length; i++) {
+			final CountDownLatch release = unpin[i];
+			holders[i] = start(new Runnable() {
+				public void run () {
+					service.pin();
+					pinned.countDown();
+					try { release.await(); }
+					catch (InterruptedException e) { throw new RuntimeException(e); }
+					service.unpin();
+				}
+			}, error);
+		}
+		pinned.await();
+
+		final int waiterCnt = 8;
+		Thread[] waiters = new Thread[waiterCnt];
+		for(int i = 0; i < waiterCnt; i++) {
+			waiters[i] = start(new Runnable() {
+				public void run () {
+					for(int j = 0; j < 100; j++) ping(service).run();
+				}
+			}, error);
+		}
+		Thread.sleep(100);
+		Assert.assertEquals(service.getStats().getWaits(), waiterCnt, "all waiters should be parked");
+
+		for(int i = 0; i < unpin.length; i++) {
+			unpin[i].countDown();
+			Thread.sleep(50);
+		}
+		for(Thread waiter : waiters) {
+			waiter.join(10000);
+			Assert.assertFalse(waiter.isAlive(), "waiter should have been woken by a release");
+		}
+		Assert.assertNull(error.get());
+		Assert.assertEquals(service.getStats().getInUse(), 0);
+		service.shutdown();
+	}
+
+	@Test
+	public void testHealthCheckReplacesConnection () throws Exception {
+		Log.log("Testing JRedisService replacement of connections failing health check ...");
+		JRedisService service = newService(server, PoolSpec.newSpec(1).setMaxIdleTime(0).setHealthCheckInterval(100));
+		service.ping();
+		Assert.assertEquals(service.getStats().getCreated(), 1);
+
+		server.disconnectClients();
+		long deadline = System.currentTimeMillis() + 5000;
+		while(service.getStats().getCreated() < 2 && System.currentTimeMillis() < deadline)
+			Thread.sleep(20);
+
+		Stats stats = service.getStats();
+		Assert.assertTrue(stats.getHealthCheckFailures() >= 1, "expecting a failed health check: " + stats);
+		Assert.assertTrue(stats.getCreated() >= 2, "expecting a replacement connection: " + stats);
+		Assert.assertEquals(stats.getSize(), 1);
+		service.ping();
+		service.shutdown();
+	}
+
+	@Test
+	public void testWaiterWokenAfterHealthCheck () throws Exception {
+		Log.log("Testing JRedisService waiter woken by the end of a health check ...");
+		// slow replies, so the health checks (of the only connection) keep it busy most of the time
+		LoopbackServer slowServer = LoopbackServer.start(LoopbackServer.Spec.newSpec().setLatency(100, TimeUnit.MILLISECONDS));
+		try {
+			final JRedisService service = newService(slowServer, PoolSpec.newSpec(1).setMaxIdleTime(0).setHealthCheckInterval(20));
+			AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+			Thread requests = start(new Runnable() {
+				public void run () {
+					for(int i = 0; i < 10; i++) {
+						ping(service).run();
+						try { Thread.sleep(50); }
+						catch (InterruptedException e) { throw new RuntimeException(e); }
+					}
+				}
+			}, error);
+			requests.join(10000);
+			Assert.assertFalse(requests.isAlive(), "requests waiting on the health check should have been woken");
+			Assert.assertNull(error.get());
+			Assert.assertTrue(service.getStats().getWaits() > 0, "expecting requests to wait on the health check");
+			service.shutdown();
+		}
+		finally {
+			slowServer.stop();
+		}
+	}
+}
@@ -0,0 +1,58 @@
+/*
+ *   Copyright 2009-2012 Joubin Houshyar
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package org.jredis.ri.alphazero.connection;
+
+import java.util.concurrent.TimeUnit;
+import org.jredis.ClientRuntimeException;
+import org.jredis.ri.alphazero.support.Log;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests the reference {@link ChunkFlushPolicy}.
+ *
+ * @author  Joubin Houshyar (alphazero@sensesay.net)
+ * @date    Apr 13, 2012
+ *
+ */
+
+@Test(suiteName="connection-tests")
+public class ChunkFlushPolicyTest {
+
+	@Test
+	public void testThresholds () {
+		Log.log("Testing ChunkFlushPolicy.Threshold ...");
+		ChunkFlushPolicy none = new ChunkFlushPolicy.Threshold(0, 0, 0, TimeUnit.MICROSECONDS);
+		Assert.assertFalse(none.flushOnAppend(2976, 200, 2976));
+		Assert.assertEquals(none.getLingerNanos(), 0);
+
+		ChunkFlushPolicy bytes = new ChunkFlushPolicy.Threshold(1024, 0, 100, TimeUnit.MICROSECONDS);
+		Assert.assertFalse(bytes.flushOnAppend(1023, 100, 2976));
+		Assert.assertTrue(bytes.flushOnAppend(1024, 1, 2976));
+		Assert.assertEquals(bytes.getLingerNanos(), 100000);
+
+		ChunkFlushPolicy count = new ChunkFlushPolicy.Threshold(0, 16, 0, TimeUnit.MICROSECONDS);
+		Assert.assertFalse(count.flushOnAppend(2000, 15, 2976));
+		Assert.assertTrue(count.flushOnAppend(32, 16, 2976));
+	}
+
+	@Test(expectedExceptions=ClientRuntimeException.class)
+	public void testNegativeThreshold () {
+		Log.log("Testing ChunkFlushPolicy.Threshold rejects negative thresholds ...");
+		new ChunkFlushPolicy.Threshold(-1, 0, 0, TimeUnit.MICROSECONDS);
+	}
+}
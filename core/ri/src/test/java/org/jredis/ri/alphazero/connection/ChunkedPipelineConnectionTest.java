@@ -0,0 +1,283 @@
+/*
+ *   Copyright 2009-2012 Joubin Houshyar
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package org.jredis.ri.alphazero.connection;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.jredis.ElementConsumer;
+import org.jredis.ElementConsumerException;
+import org.jredis.connector.Connection;
+import org.jredis.connector.ConnectionSpec;
+import org.jredis.loopback.LoopbackServer;
+import org.jredis.protocol.BulkResponse;
+import org.jredis.protocol.Command;
+import org.jredis.protocol.MultiBulkResponse;
+import org.jredis.protocol.Response;
+import org.jredis.ri.alphazero.support.Convert;
+import org.jredis.ri.alphazero.support.Log;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+/**
+ * Tests {@link ChunkedPipelineConnection} (and {@link SyncConnection}) against a {@link LoopbackServer}.
+ *
+ * @author  Joubin Houshyar (alphazero@sensesay.net)
+ * @date    Apr 16, 2012
+ *
+ */
+
+@Test(suiteName="connection-tests")
+public class ChunkedPipelineConnectionTest {
+
+	private LoopbackServer	server;
+
+	@BeforeClass
+	public void start () throws IOException {
+		server = LoopbackServer.start(LoopbackServer.Spec.newSpec());
+	}
+
+	@AfterClass
+	public void stop () {
+		server.stop();
+	}
+
+	private ConnectionSpec newSpec () {
+		return newSpec(server);
+	}
+
+	private static ConnectionSpec newSpec (LoopbackServer server) {
+		return DefaultConnectionSpec.newSpec(server.getAddress().getHostAddress(), server.getPort(), 0, null);
+	}
+
+	private static byte[] getBulkData (Response response) {
+		return ((BulkResponse) response).getBulkData();
+	}
+
+	/** raises an error for the element at index, after collecting the preceding elements */
+	static final class FailingConsumer implements ElementConsumer {
+		final int failAt;
+		final RuntimeException error = new IllegalStateException("consumer error");
+		final List<String> elements = new ArrayList<String>();
+		FailingConsumer (int failAt) { this.failAt = failAt; }
+		public void consume (int index, byte[] buffer, int offset, int length) {
+			if(index == failAt) throw error;
+			elements.add(new String(buffer, offset, length));
+		}
+	}
+
+	/** pushes count elements, of sizes up to and beyond the connection buffers, to the list */
+	private void pushElements (byte[] key, int count) throws Exception {
+		Connection conn = new SyncConnection(newSpec());
+		conn.serviceRequest(Command.DEL, key);
+		for(int i = 0; i < count; i++) {
+			int size = (i % 10 == 0) ? 1024 * 64 + i : i;
+			conn.serviceRequest(Command.RPUSH, key, new String(new char[size]).replace('\0', (char)('a' + i % 26)).getBytes());
+		}
+		conn.serviceRequest(Command.QUIT);
+	}
+
+	@Test
+	public void testPipelineConsumerError () throws Exception {
+		Log.log("Testing ChunkedPipelineConnection streamed request with a failing consumer ...");
+		ChunkedPipelineConnection conn = new ChunkedPipelineConnection(newSpec());
+		byte[] key = "cp-test:list".getBytes();
+		pushElements(key, 100);
+
+		FailingConsumer consumer = new FailingConsumer(3);
+		Future<Response> streamed = conn.queueRequest(consumer, Command.LRANGE, key, Convert.toBytes(0), Convert.toBytes(-1));
+		Future<Response> next = conn.queueRequest(Command.ECHO, "next".getBytes());
+		try {
+			streamed.get(5, TimeUnit.SECONDS);
+			Assert.fail("expecting the streamed request to fail");
+		}
+		catch (ExecutionException e) {
+			Assert.assertTrue(e.getCause() instanceof ElementConsumerException, "expecting an ElementConsumerException, but got " + e.getCause());
+			Assert.assertSame(e.getCause().getCause(), consumer.error);
+		}
+		Assert.assertEquals(consumer.elements.size(), 3, "consumer should not be called after raising an error");
+
+		// the rest of the reply was read: the connection is in sync
+		Assert.assertEquals(getBulkData(next.get(5, TimeUnit.SECONDS)), "next".getBytes());
+		Response all = conn.queueRequest(Command.LRANGE, key, Convert.toBytes(0), Convert.toBytes(-1)).get(5, TimeUnit.SECONDS);
+		Assert.assertEquals(((MultiBulkResponse) all).getMultiBulkData().size(), 100);
+		Assert.assertTrue(conn.isConnected());
+		conn.queueRequest(Command.QUIT).get(5, TimeUnit.SECONDS);
+	}
+
+	@Test
+	public void testSyncConsumerError () throws Exception {
+		Log.log("Testing SyncConnection streamed request with a failing consumer ...");
+		SyncConnection conn = new SyncConnection(newSpec());
+		byte[] key = "cp-test:synclist".getBytes();
+		pushElements(key, 100);
+
+		FailingConsumer consumer = new FailingConsumer(11);
+		try {
+			conn.serviceRequest(consumer, Command.LRANGE, key, Convert.toBytes(0), Convert.toBytes(-1));
+			Assert.fail("expecting the streamed request to fail");
+		}
+		catch (ElementConsumerException e) {
+			Assert.assertSame(e.getCause(), consumer.error);
+		}
+		Assert.assertEquals(consumer.elements.size(), 11, "consumer should not be called after raising an error");
+		Assert.assertEquals(getBulkData(conn.serviceRequest(Command.ECHO, "next".getBytes())), "next".getBytes());
+		conn.serviceRequest(Command.QUIT);
+	}
+
+	@Test
+	public void testPendingBackpressure () throws Exception {
+		Log.log("Testing ChunkedPipelineConnection backpressure of the pending response queue ...");
+		LoopbackServer slowServer = LoopbackServer.start(LoopbackServer.Spec.newSpec().setLatency(10, TimeUnit.MILLISECONDS));
+		try {
+			// a chunk per request, and the least pending capacity: requesters block while replies lag
+			ConnectionSpec spec = newSpec(slowServer)
+				.setConnectionProperty(Connection.Property.PIPELINE_MAX_PENDING_CHUNKS, 2)
+				.setConnectionProperty(Connection.Property.PIPELINE_FLUSH_COUNT, 1);
+			final ChunkedPipelineConnection conn = new ChunkedPipelineConnection(spec);
+			final int reqCnt = 100;
+			final List<Future<Response>> futures = Collections.synchronizedList(new ArrayList<Future<Response>>());
+			final List<Integer> completed = Collections.synchronizedList(new ArrayList<Integer>());
+			final List<Future<Response>> handlerFutures = Collections.synchronizedList(new ArrayList<Future<Response>>());
+			final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+			final AtomicInteger queued = new AtomicInteger();
+			final CountDownLatch callbacks = new CountDownLatch(reqCnt);
+			Thread producer = new Thread(new Runnable() {
+				public void run () {
+					try {
+						for(int i = 0; i < reqCnt; i++) {
+							final int n = i;
+							PendingRequest future = (PendingRequest) conn.queueRequest(Command.ECHO, Convert.toBytes(n));
+							futures.add(future);
+							queued.incrementAndGet();
+							future.addCompletionListener(new Runnable() {
+								public void run () {
+									completed.add(n);
+									// the response handler queues in the reserved slots of the pending queue
+									if(n % 10 == 0 && Thread.currentThread().getName().equals("response-handler")) {
+										try { handlerFutures.add(conn.queueRequest(Command.ECHO, ("handler:" + n).getBytes())); }
+										catch (Throwable e) { error.compareAndSet(null, e); }
+									}
+									callbacks.countDown();
+								}
+							});
+						}
+					}
+					catch (Throwable e) { error.compareAndSet(null, e); }
+				}
+			}, "producer");
+			producer.start();
+
+			Thread.sleep(100);
+			int queuedWhileBlocked = queued.get();
+			Log.log("%d of %d requests queued after 100 msecs", queuedWhileBlocked, reqCnt);
+			Assert.assertTrue(queuedWhileBlocked < reqCnt, "producer should be blocked while the pending queue is full");
+			Assert.assertTrue(producer.isAlive());
+
+			// the producer is released as replies arrive
+			producer.join(20000);
+			Assert.assertFalse(producer.isAlive(), "producer should be released");
+			Assert.assertNull(error.get(), "request failed: " + error.get());
+			for(int i = 0; i < reqCnt; i++)
+				Assert.assertEquals(getBulkData(futures.get(i).get(5, TimeUnit.SECONDS)), Convert.toBytes(i), "reply of another request");
+			Assert.assertTrue(callbacks.await(5, TimeUnit.SECONDS), "expecting a callback per request");
+			List<Integer> expected = new ArrayList<Integer>();
+			for(int i = 0; i < reqCnt; i++) expected.add(i);
+			Assert.assertEquals(completed, expected, "responses should complete in request order");
+
+			Log.log("%d requests queued by the response handler", handlerFutures.size());
+			Assert.assertFalse(handlerFutures.isEmpty(), "expecting requests queued by the response handler");
+			for(Future<Response> future : handlerFutures)
+				Assert.assertTrue(new String(getBulkData(future.get(5, TimeUnit.SECONDS))).startsWith("handler:"));
+			Assert.assertNull(error.get(), "request failed: " + error.get());
+			conn.queueRequest(Command.QUIT).get(5, TimeUnit.SECONDS);
+		}
+		finally {
+			slowServer.stop();
+		}
+	}
+
+	@Test
+	public void testLingerFlush () throws Exception {
+		Log.log("Testing ChunkedPipelineConnection linger timer flush of a lone request ...");
+		ConnectionSpec spec = newSpec().setConnectionProperty(Connection.Property.PIPELINE_FLUSH_LINGER, 1000);
+		ChunkedPipelineConnection conn = new ChunkedPipelineConnection(spec);
+		Future<Response> future = conn.queueRequest(Command.ECHO, "lone".getBytes());
+
+		// no get() (or callback) demands the flush: the timer writes the chunk
+		long deadline = System.currentTimeMillis() + 5000;
+		while(!future.isDone() && System.currentTimeMillis() < deadline)
+			Thread.sleep(1);
+		Assert.assertTrue(future.isDone(), "lone request should be written by the linger timer");
+		ChunkedPipelineConnection.ChunkStats stats = conn.getChunkStats();
+		Log.log("chunk stats: %s", stats);
+		Assert.assertEquals(stats.getFlushes(ChunkedPipelineConnection.FlushCause.LINGER), 1);
+		Assert.assertEquals(stats.getFlushes(ChunkedPipelineConnection.FlushCause.DEMAND), 0);
+		Assert.assertEquals(getBulkData(future.get()), "lone".getBytes());
+		conn.queueRequest(Command.QUIT).get(5, TimeUnit.SECONDS);
+	}
+
+	@Test
+	public void testCoalescedDemandFlush () throws Exception {
+		Log.log("Testing ChunkedPipelineConnection coalescing of concurrent demand flushes ...");
+		// replies lag, so all waiters demand the flush before the reply is read
+		LoopbackServer slowServer = LoopbackServer.start(LoopbackServer.Spec.newSpec().setLatency(200, TimeUnit.MILLISECONDS));
+		try {
+			ConnectionSpec spec = newSpec(slowServer).setConnectionProperty(Connection.Property.PIPELINE_FLUSH_LINGER, 0);
+			ChunkedPipelineConnection conn = new ChunkedPipelineConnection(spec);
+			final Future<Response> future = conn.queueRequest(Command.ECHO, "shared".getBytes());
+			final int waiterCnt = 8;
+			final CountDownLatch start = new CountDownLatch(1);
+			final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+			Thread[] waiters = new Thread[waiterCnt];
+			for(int t = 0; t < waiterCnt; t++) {
+				waiters[t] = new Thread(new Runnable() {
+					public void run () {
+						try {
+							start.await();
+							Assert.assertEquals(getBulkData(future.get()), "shared".getBytes());
+						}
+						catch (Throwable e) { error.compareAndSet(null, e); }
+					}
+				});
+				waiters[t].start();
+			}
+			start.countDown();
+			for(Thread waiter : waiters) waiter.join(5000);
+			Assert.assertNull(error.get(), "request failed: " + error.get());
+
+			ChunkedPipelineConnection.ChunkStats stats = conn.getChunkStats();
+			Log.log("chunk stats: %s", stats);
+			Assert.assertEquals(stats.getFlushes(ChunkedPipelineConnection.FlushCause.DEMAND), 1, "concurrent get()s should write the chunk once");
+			Assert.assertEquals(stats.getCoalescedFlushes(), waiterCnt - 1);
+			Assert.assertEquals(stats.getFlushes(ChunkedPipelineConnection.FlushCause.LINGER), 0);
+			conn.queueRequest(Command.QUIT).get(5, TimeUnit.SECONDS);
+		}
+		finally {
+			slowServer.stop();
+		}
+	}
+}
@@ -0,0 +1,308 @@
+/*
+ *   Copyright 2009-2012 Joubin Houshyar
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package org.jredis.ri.alphazero.connection;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.jredis.ClientRuntimeException;
+import org.jredis.RedisException;
+import org.jredis.connector.Connection;
+import org.jredis.connector.ConnectionSpec;
+import org.jredis.connector.NotConnectedException;
+import org.jredis.loopback.LoopbackServer;
+import org.jredis.protocol.BulkResponse;
+import org.jredis.protocol.Command;
+import org.jredis.protocol.Response;
+import org.jredis.protocol.ValueResponse;
+import org.jredis.ri.alphazero.support.Convert;
+import org.jredis.ri.alphazero.support.Log;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+/**
+ * Tests {@link MultiplexedConnection} and its {@link SelectorLoop} against a {@link LoopbackServer}.
+ *
+ * @author  Joubin Houshyar (alphazero@sensesay.net)
+ * @date    Apr 16, 2012
+ *
+ */
+
+@Test(suiteName="connection-tests")
+public class MultiplexedConnectionTest {
+
+	private LoopbackServer	server;
+	private SelectorLoop	loop;
+
+	@BeforeClass
+	public void start () throws IOException {
+		server = LoopbackServer.start(LoopbackServer.Spec.newSpec());
+		loop = new SelectorLoop("test-selector-loop");
+	}
+
+	@AfterClass
+	public void stop () {
+		loop.shutdown();
+		server.stop();
+	}
+
+	private ConnectionSpec newSpec (LoopbackServer server) {
+		ConnectionSpec spec = DefaultConnectionSpec.newSpec(server.getAddress().getHostAddress(), server.getPort(), 0, null);
+		return spec.setConnectionProperty(Connection.Property.SELECTOR_LOOP, loop);
+	}
+
+	/** records the event types of the connection */
+	private static List<Connection.Event.Type> listen (Connection conn) {
+		final List<Connection.Event.Type> events = Collections.synchronizedList(new ArrayList<Connection.Event.Type>());
+		conn.addListener(new Connection.Listener() {
+			public void onEvent (Connection.Event event) { events.add(event.getType()); }
+		});
+		return events;
+	}
+
+	private static byte[] getBulkData (Response response) {
+		return ((BulkResponse) response).getBulkData();
+	}
+
+	@Test
+	public void testServiceRequest () throws Exception {
+		Log.log("Testing MultiplexedConnection synchronous requests ...");
+		Connection conn = new DefaultConnectionFactory().newConnection(newSpec(server));
+		Assert.assertTrue(conn instanceof MultiplexedConnection, "SELECTOR_LOOP should select a MultiplexedConnection");
+
+		Assert.assertFalse(conn.serviceRequest(Command.PING).getStatus().isError());
+		conn.serviceRequest(Command.SET, "mux-test:key".getBytes(), "value".getBytes());
+		Assert.assertEquals(getBulkData(conn.serviceRequest(Command.GET, "mux-test:key".getBytes())), "value".getBytes());
+		Assert.assertNull(getBulkData(conn.serviceRequest(Command.GET, "mux-test:nokey".getBytes())));
+		boolean didRaiseError = false;
+		try { conn.serviceRequest(Command.INCR, "mux-test:key".getBytes()); }
+		catch (RedisException e) { didRaiseError = true; }
+		Assert.assertTrue(didRaiseError, "expecting a RedisException for the error response");
+		Assert.assertFalse(conn.serviceRequest(Command.PING).getStatus().isError(), "error responses should not fault the connection");
+		conn.serviceRequest(Command.QUIT);
+	}
+
+	@Test
+	public void testQueueRequest () throws Exception {
+		Log.log("Testing MultiplexedConnection queued requests of concurrent threads ...");
+		final Connection conn = new MultiplexedConnection(newSpec(server));
+		final byte[] key = "mux-test:counter".getBytes();
+		conn.serviceRequest(Command.DEL, key);
+		final int threadCnt = 4;
+		final int reqCnt = 2000;
+		final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+		Thread[] threads = new Thread[threadCnt];
+		for(int t = 0; t < threadCnt; t++) {
+			threads[t] = new Thread(new Runnable() {
+				public void run () {
+					try {
+						List<Future<Response>> futures = new ArrayList<Future<Response>>(reqCnt);
+						for(int i = 0; i < reqCnt; i++) {
+							futures.add(conn.queueRequest(Command.ECHO, Convert.toBytes(i)));
+							futures.add(conn.queueRequest(Command.INCR, key));
+						}
+						long last = 0;
+						for(int i = 0; i < reqCnt; i++) {
+							Assert.assertEquals(getBulkData(futures.get(2 * i).get()), Convert.toBytes(i));
+							long value = ((ValueResponse) futures.get(2 * i + 1).get()).getLongValue();
+							Assert.assertTrue(value > last, "responses of a thread should be in request order");
+							last = value;
+						}
+					}
+					catch (Throwable e) { error.compareAndSet(null, e); }
+				}
+			});
+			threads[t].start();
+		}
+		for(Thread thread : threads) thread.join(20000);
+		Assert.assertNull(error.get(), "request failed: " + error.get());
+		Assert.assertEquals(((ValueResponse) conn.serviceRequest(Command.INCR, key)).getLongValue(), threadCnt * reqCnt + 1);
+		conn.serviceRequest(Command.QUIT);
+	}
+
+	@Test
+	public void testSplitReadsAndPartialWrites () throws Exception {
+		Log.log("Testing MultiplexedConnection replies split across reads and partial writes ...");
+		// a tiny inbound buffer splits every reply across reads
+		ConnectionSpec spec = newSpec(server).setSocketProperty(Connection.Socket.Property.SO_RCVBUF, 64);
+		Connection conn = new MultiplexedConnection(spec);
+		Random random = new Random(16L);
+
+		// a value larger than the socket buffers can not be written in one go
+		byte[] large = new byte[1024 * 1024 * 4];
+		random.nextBytes(large);
+		List<Future<Response>> futures = new ArrayList<Future<Response>>();
+		for(int i = 0; i < 4; i++) {
+			futures.add(conn.queueRequest(Command.SET, ("mux-test:large:" + i).getBytes(), large));
+			futures.add(conn.queueRequest(Command.GET, ("mux-test:large:" + i).getBytes()));
+			futures.add(conn.queueRequest(Command.PING));
+		}
+		for(int i = 0; i < futures.size(); i += 3) {
+			Assert.assertFalse(futures.get(i).get(10, TimeUnit.SECONDS).getStatus().isError());
+			Assert.assertEquals(getBulkData(futures.get(i + 1).get(10, TimeUnit.SECONDS)), large);
+			Assert.assertFalse(futures.get(i + 2).get(10, TimeUnit.SECONDS).getStatus().isError());
+		}
+
+		// many small replies per read, and replies split at any offset
+		futures.clear();
+		byte[][] values = new byte[1000][];
+		for(int i = 0; i < values.length; i++) {
+			values[i] = new byte[random.nextInt(200)];
+			random.nextBytes(values[i]);
+			futures.add(conn.queueRequest(Command.ECHO, values[i]));
+		}
+		for(int i = 0; i < values.length; i++) {
+			Assert.assertEquals(getBulkData(futures.get(i).get(10, TimeUnit.SECONDS)), values[i]);
+		}
+		conn.serviceRequest(Command.QUIT);
+	}
+
+	@Test
+	public void testQuit () throws Exception {
+		Log.log("Testing MultiplexedConnection QUIT ...");
+		Connection conn = new MultiplexedConnection(newSpec(server));
+		List<Connection.Event.Type> events = listen(conn);
+		List<Future<Response>> futures = new ArrayList<Future<Response>>();
+		for(int i = 0; i < 100; i++)
+			futures.add(conn.queueRequest(Command.PING));
+		Future<Response> quit = conn.queueRequest(Command.QUIT);
+
+		boolean didRaiseError = false;
+		try { conn.queueRequest(Command.PING); }
+		catch (ClientRuntimeException e) { didRaiseError = true; }
+		Assert.assertTrue(didRaiseError, "requests after a QUIT should be rejected");
+
+		quit.get(5, TimeUnit.SECONDS);
+		for(Future<Response> future : futures) {
+			Assert.assertTrue(future.isDone(), "requests queued before a QUIT should complete before it");
+			Assert.assertFalse(future.get().getStatus().isError());
+		}
+		Assert.assertTrue(events.contains(Connection.Event.Type.DISCONNECTED));
+		didRaiseError = false;
+		try { conn.queueRequest(Command.PING); }
+		catch (NotConnectedException e) { didRaiseError = true; }
+		Assert.assertTrue(didRaiseError, "expecting a NotConnectedException after QUIT");
+	}
+
+	@Test
+	public void testServerDisconnect () throws Exception {
+		Log.log("Testing MultiplexedConnection failure of pending requests on server disconnect ...");
+		LoopbackServer slowServer = LoopbackServer.start(LoopbackServer.Spec.newSpec().setLatency(500, TimeUnit.MILLISECONDS));
+		try {
+			Connection conn = new MultiplexedConnection(newSpec(slowServer));
+			conn.serviceRequest(Command.PING);	// the server has accepted the connection
+			List<Connection.Event.Type> events = listen(conn);
+			List<Future<Response>> futures = new ArrayList<Future<Response>>();
+			for(int i = 0; i < 100; i++)
+				futures.add(conn.queueRequest(Command.PING));
+			slowServer.disconnectClients();
+
+			for(Future<Response> future : futures)
+				assertFailed(future);
+			Assert.assertTrue(events.contains(Connection.Event.Type.FAULTED));
+			Assert.assertTrue(events.contains(Connection.Event.Type.DISCONNECTED));
+			boolean didRaiseError = false;
+			try { conn.queueRequest(Command.PING); }
+			catch (NotConnectedException e) { didRaiseError = true; }
+			Assert.assertTrue(didRaiseError, "expecting a NotConnectedException after a fault");
+		}
+		finally {
+			slowServer.stop();
+		}
+	}
+
+	@Test
+	public void testDisconnectWhileReading () throws Exception {
+		Log.log("Testing MultiplexedConnection disconnect with pending requests while replies are read ...");
+		for(int round = 0; round < 20; round++) {
+			MultiplexedConnection conn = new MultiplexedConnection(newSpec(server));
+			List<Future<Response>> futures = new ArrayList<Future<Response>>();
+			for(int i = 0; i < 2000; i++)
+				futures.add(conn.queueRequest(Command.ECHO, Convert.toBytes(i)));
+			futures.get(round * 50).get(5, TimeUnit.SECONDS);
+			conn.disconnect();
+
+			// every request completes -- with its own reply, or failed
+			int failed = 0;
+			for(int i = 0; i < futures.size(); i++) {
+				try {
+					Assert.assertEquals(getBulkData(futures.get(i).get(5, TimeUnit.SECONDS)), Convert.toBytes(i), "reply of another request");
+				}
+				catch (ExecutionException e) {
+					Assert.assertTrue(e.getCause() instanceof ClientRuntimeException);
+					failed++;
+				}
+			}
+			if(round == 0) Log.log("%d of %d pending requests failed on disconnect", failed, futures.size());
+		}
+	}
+
+	@Test
+	public void testLoopShutdown () throws Exception {
+		Log.log("Testing SelectorLoop tasks queued around a shutdown ...");
+		for(int round = 0; round < 20; round++) {
+			final SelectorLoop stopped = new SelectorLoop("test-shutdown-loop");
+			final AtomicInteger ran = new AtomicInteger();
+			final AtomicInteger rejected = new AtomicInteger();
+			final int taskCnt = 1000;
+			Thread producer = new Thread(new Runnable() {
+				public void run () {
+					for(int i = 0; i < taskCnt; i++) {
+						try {
+							stopped.execute(new Runnable() {
+								public void run () { ran.incrementAndGet(); }
+							});
+						}
+						catch (ClientRuntimeException e) { rejected.incrementAndGet(); }
+					}
+				}
+			});
+			producer.start();
+			stopped.shutdown();
+			producer.join(5000);
+			for(long deadline = System.currentTimeMillis() + 5000; ran.get() + rejected.get() < taskCnt && System.currentTimeMillis() < deadline; )
+				Thread.sleep(10);
+			Assert.assertEquals(ran.get() + rejected.get(), taskCnt, "tasks should either run or be rejected");
+		}
+
+		SelectorLoop stopped = new SelectorLoop("test-shutdown-loop");
+		stopped.shutdown();
+		boolean didRaiseError = false;
+		try { stopped.execute(new Runnable() { public void run () { } }); }
+		catch (ClientRuntimeException e) { didRaiseError = true; }
+		Assert.assertTrue(didRaiseError, "expecting a ClientRuntimeException for a task after shutdown");
+	}
+
+	private static void assertFailed (Future<Response> future) throws Exception {
+		try {
+			future.get(5, TimeUnit.SECONDS);
+			Assert.fail("expecting the pending request to fail");
+		}
+		catch (ExecutionException e) {
+			Assert.assertTrue(e.getCause() instanceof ClientRuntimeException, "expecting a ClientRuntimeException, but got " + e.getCause());
+		}
+	}
+}
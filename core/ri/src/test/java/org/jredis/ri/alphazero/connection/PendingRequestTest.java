@@ -0,0 +1,166 @@
+/*
+ *   Copyright 2009-2012 Joubin Houshyar
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package org.jredis.ri.alphazero.connection;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.jredis.ClientRuntimeException;
+import org.jredis.protocol.Command;
+import org.jredis.protocol.Response;
+import org.jredis.ri.alphazero.protocol.VirtualResponse;
+import org.jredis.ri.alphazero.support.Log;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests the lock-free completion of {@link PendingRequest}.
+ *
+ * @author  Joubin Houshyar (alphazero@sensesay.net)
+ * @date    Apr 10, 2012
+ *
+ */
+
+@Test(suiteName="connection-tests")
+public class PendingRequestTest {
+
+	@Test
+	public void testCompletedBeforeGet () throws Exception {
+		Log.log("Testing PendingRequest completed before get ...");
+		PendingRequest pending = new PendingRequest(Command.PING);
+		Assert.assertFalse(pending.isDone());
+		Response response = new VirtualResponse();
+		pending.setResponse(response);
+		Assert.assertTrue(pending.isDone());
+		Assert.assertSame(pending.get(), response);
+		Assert.assertSame(pending.get(0, TimeUnit.NANOSECONDS), response);
+
+		// first completion wins
+		pending.setCRE(new ClientRuntimeException("late"));
+		pending.setResponse(new VirtualResponse());
+		Assert.assertSame(pending.get(), response);
+	}
+
+	@Test
+	public void testError () throws Exception {
+		Log.log("Testing PendingRequest completed with error ...");
+		PendingRequest pending = new PendingRequest(Command.PING);
+		pending.setCRE(new ClientRuntimeException("fault"));
+		try {
+			pending.get();
+			Assert.fail("expected ExecutionException");
+		}
+		catch (ExecutionException e) {
+			Assert.assertTrue(e.getCause() instanceof ClientRuntimeException);
+		}
+	}
+
+	@Test
+	public void testTimeoutAndInterrupt () throws Exception {
+		Log.log("Testing PendingRequest timeout and interrupt ...");
+		PendingRequest pending = new PendingRequest(Command.PING);
+		long start = System.nanoTime();
+		try {
+			pending.get(20, TimeUnit.MILLISECONDS);
+			Assert.fail("expected TimeoutException");
+		}
+		catch (TimeoutException e) {
+			Assert.assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(20));
+		}
+
+		Thread.currentThread().interrupt();
+		try {
+			pending.get();
+			Assert.fail("expected InterruptedException");
+		}
+		catch (InterruptedException e) { /* expected */ }
+
+		// still completes normally after the waiter has left
+		Response response = new VirtualResponse();
+		pending.setResponse(response);
+		Assert.assertSame(pending.get(), response);
+	}
+
+	@Test
+	public void testCompletionWakesAllWaiters () throws Exception {
+		Log.log("Testing PendingRequest completion with concurrent waiters ...");
+		final int waiterCnt = 4;
+		final int requestCnt = 10000;
+		for(int r=0; r<requestCnt; r++) {
+			final PendingRequest pending = new PendingRequest(Command.PING);
+			final Response response = new VirtualResponse();
+			final CountDownLatch done = new CountDownLatch(waiterCnt);
+			final AtomicInteger ok = new AtomicInteger();
+			final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+			if(r % 1000 == 0 || r == requestCnt - 1){
+				for(int i=0; i<waiterCnt; i++){
+					new Thread(new Runnable() {
+						public void run () {
+							try { if(pending.get(5, TimeUnit.SECONDS) == response) ok.incrementAndGet(); }
+							catch (Throwable e) { error.compareAndSet(null, e); }
+							finally { done.countDown(); }
+						}
+					}).start();
+				}
+				Thread.sleep(5);
+				pending.setResponse(response);
+				Assert.assertTrue(done.await(5, TimeUnit.SECONDS), "waiters did not complete");
+				Assert.assertNull(error.get(), "waiter failed: " + error.get());
+				Assert.assertEquals(ok.get(), waiterCnt);
+			}
+			else {
+				// single waiter handoff: complete on another thread as we wait
+				new Thread(new Runnable() {
+					public void run () { pending.setResponse(response); }
+				}).start();
+				Assert.assertSame(pending.get(5, TimeUnit.SECONDS), response);
+			}
+		}
+	}
+
+	@Test
+	public void testCompletionListeners () throws Exception {
+		Log.log("Testing PendingRequest completion listeners ...");
+		final PendingRequest pending = new PendingRequest(Command.PING);
+		final StringBuffer order = new StringBuffer();
+		for(int i=0; i<3; i++){
+			final int n = i;
+			pending.addCompletionListener(new Runnable() {
+				public void run () {
+					Assert.assertTrue(pending.isDone());
+					order.append(n);
+				}
+			});
+		}
+		pending.addCompletionListener(new Runnable() {
+			public void run () { throw new RuntimeException("expected: listener fault is logged and ignored"); }
+		});
+		Assert.assertEquals(order.length(), 0);
+
+		pending.setResponse(new VirtualResponse());
+		Assert.assertEquals(order.toString(), "012");
+
+		// after completion, listener runs immediately on registering thread
+		pending.addCompletionListener(new Runnable() {
+			public void run () { order.append(Thread.currentThread().getName()); }
+		});
+		Assert.assertEquals(order.toString(), "012" + Thread.currentThread().getName());
+	}
+}
@@ -0,0 +1,130 @@
+/*
+ *   Copyright 2009-2012 Joubin Houshyar
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package org.jredis.ri.alphazero.protocol;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import org.jredis.protocol.BulkResponse;
+import org.jredis.protocol.Command;
+import org.jredis.protocol.MultiBulkResponse;
+import org.jredis.protocol.Response;
+import org.jredis.protocol.ValueResponse;
+import org.jredis.ri.alphazero.support.Log;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests {@link IncrementalResponseParser} with replies delivered whole, and
+ * fragmented at every possible byte boundary.
+ *
+ * @author  Joubin Houshyar (alphazero@sensesay.net)
+ * @date    Apr 4, 2012
+ *
+ */
+
+@Test(suiteName="protocol-tests")
+public class IncrementalResponseParserTest {
+
+	@Test
+	public void testLineReplies () {
+		Log.log("Testing incremental parse of single line replies ...");
+		Response r = parseFragmented(Command.SET, "+OK\r\n", 1);
+		Assert.assertFalse(r.isError());
+
+		r = parseFragmented(Command.INCR, ":-12345\r\n", 1);
+		Assert.assertEquals(((ValueResponse) r).getLongValue(), -12345L);
+
+		r = parseFragmented(Command.EXISTS, ":1\r\n", 1);
+		Assert.assertTrue(((ValueResponse) r).getBooleanValue());
+
+		r = parseFragmented(Command.TYPE, "+string\r\n", 1);
+		Assert.assertEquals(((ValueResponse) r).getStringValue(), "string");
+
+		r = parseFragmented(Command.INCR, "-ERR value is not an integer\r\n", 1);
+		Assert.assertTrue(r.isError());
+		Assert.assertEquals(r.getStatus().message(), "ERR value is not an integer");
+	}
+
+	@Test
+	public void testBulkReplies () {
+		Log.log("Testing incremental parse of bulk replies ...");
+		for(int frag=1; frag<12; frag++){
+			Response r = parseFragmented(Command.GET, "$6\r\nfoo\r\nb\r\n", frag);
+			Assert.assertEquals(new String(((BulkResponse) r).getBulkData()), "foo\r\nb");
+
+			r = parseFragmented(Command.GET, "$-1\r\n", frag);
+			Assert.assertNull(((BulkResponse) r).getBulkData());
+
+			r = parseFragmented(Command.GET, "$0\r\n\r\n", frag);
+			Assert.assertEquals(((BulkResponse) r).getBulkData().length, 0);
+		}
+	}
+
+	@Test
+	public void testMultiBulkReplies () {
+		Log.log("Testing incremental parse of multi-bulk replies ...");
+		final String reply = "*4\r\n$3\r\nfoo\r\n$-1\r\n$0\r\n\r\n$5\r\nhello\r\n";
+		for(int frag=1; frag<reply.length(); frag++){
+			Response r = parseFragmented(Command.MGET, reply, frag);
+			List<byte[]> data = ((MultiBulkResponse) r).getMultiBulkData();
+			Assert.assertEquals(data.size(), 4);
+			Assert.assertEquals(new String(data.get(0)), "foo");
+			Assert.assertNull(data.get(1));
+			Assert.assertEquals(data.get(2).length, 0);
+			Assert.assertEquals(new String(data.get(3)), "hello");
+		}
+		Response r = parseFragmented(Command.KEYS, "*0\r\n", 1);
+		Assert.assertEquals(((MultiBulkResponse) r).getMultiBulkData().size(), 0);
+
+		r = parseFragmented(Command.KEYS, "*-1\r\n", 1);
+		Assert.assertNull(((MultiBulkResponse) r).getMultiBulkData());
+	}
+
+	@Test
+	public void testPipelinedReplies () {
+		Log.log("Testing incremental parse of consecutive replies in one buffer ...");
+		IncrementalResponseParser parser = new IncrementalResponseParser();
+		ByteBuffer buffer = ByteBuffer.wrap("+OK\r\n$3\r\nbar\r\n:7\r\n".getBytes());
+
+		Assert.assertFalse(parser.parse(Command.SET, buffer).isError());
+		Assert.assertEquals(new String(((BulkResponse) parser.parse(Command.GET, buffer)).getBulkData()), "bar");
+		Assert.assertEquals(((ValueResponse) parser.parse(Command.INCR, buffer)).getLongValue(), 7L);
+		Assert.assertFalse(buffer.hasRemaining());
+		Assert.assertFalse(parser.inProgress());
+	}
+
+	/**
+	 * Feeds the reply to a new parser in fragments of (at most) fragSize bytes,
+	 * using a direct buffer to exercise the non-array scan path.
+	 */
+	private Response parseFragmented (Command cmd, String reply, int fragSize) {
+		IncrementalResponseParser parser = new IncrementalResponseParser();
+		byte[] bytes = reply.getBytes();
+		Response response = null;
+		for(int off=0; off<bytes.length; off+=fragSize){
+			int len = Math.min(fragSize, bytes.length - off);
+			ByteBuffer buffer = ByteBuffer.allocateDirect(len);
+			buffer.put(bytes, off, len).flip();
+			Assert.assertNull(response, "response completed before all bytes were consumed");
+			response = parser.parse(cmd, buffer);
+			Assert.assertFalse(buffer.hasRemaining());
+		}
+		Assert.assertNotNull(response);
+		Assert.assertTrue(response.didRead());
+		return response;
+	}
+}
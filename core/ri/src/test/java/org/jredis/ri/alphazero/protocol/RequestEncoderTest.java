@@ -0,0 +1,124 @@
+/*
+ *   Copyright 2009-2012 Joubin Houshyar
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package org.jredis.ri.alphazero.protocol;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.util.Arrays;
+import org.jredis.protocol.Command;
+import org.jredis.ri.alphazero.support.Log;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests {@link RequestEncoder} frame encoding over arrays, buffers, streams,
+ * and the gathering outbound queue.
+ *
+ * @author  Joubin Houshyar (alphazero@sensesay.net)
+ * @date    Apr 6, 2012
+ *
+ */
+
+@Test(suiteName="protocol-tests")
+public class RequestEncoderTest {
+
+	@Test
+	public void testEncode () {
+		Log.log("Testing single pass request encoding ...");
+		assertEncoding(Command.PING, "*1\r\n$4\r\nPING\r\n");
+		assertEncoding(Command.SET, "*3\r\n$3\r\nSET\r\n$3\r\nfoo\r\n$10\r\n0123456789\r\n", "foo".getBytes(), "0123456789".getBytes());
+		assertEncoding(Command.GET, "*2\r\n$3\r\nGET\r\n$0\r\n\r\n", new byte[0]);
+		assertEncoding(Command.MSET, "*5\r\n$4\r\nMSET\r\n$1\r\na\r\n$0\r\n\r\n$1\r\nb\r\n$1\r\n2\r\n", "a".getBytes(), null, "b".getBytes(), "2".getBytes());
+	}
+
+	@Test
+	public void testStreamWriteWithSmallScratch () throws IOException {
+		Log.log("Testing request stream writes with values exceeding scratch buffer ...");
+		byte[] big = new byte[5000];
+		Arrays.fill(big, (byte)'x');
+		byte[][] args = { "key".getBytes(), big };
+		byte[] expected = new byte[RequestEncoder.frameSize(Command.SET, args)];
+		RequestEncoder.encode(Command.SET, args, expected, 0);
+
+		for(int scratchSize : new int[]{64, 100, 4096, 8192}){
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			RequestEncoder.write(Command.SET, args, new byte[scratchSize], out);
+			Assert.assertEquals(out.toByteArray(), expected, "scratch size " + scratchSize);
+		}
+	}
+
+	@Test
+	public void testGatheringQueue () throws IOException {
+		Log.log("Testing outbound queue with gathered values and partial writes ...");
+		byte[] big = new byte[20000];
+		for(int i=0; i<big.length; i++) big[i] = (byte) i;
+		RequestEncoder encoder = new RequestEncoder(1024, 512);
+		ByteArrayOutputStream expected = new ByteArrayOutputStream();
+		for(int i=0; i<50; i++){
+			byte[][] args = i % 7 == 0 ? new byte[][]{ ("k" + i).getBytes(), big } : new byte[][]{ ("k" + i).getBytes() };
+			Command cmd = args.length == 2 ? Command.SET : Command.INCR;
+			encoder.append(cmd, args);
+			byte[] frame = new byte[RequestEncoder.frameSize(cmd, args)];
+			RequestEncoder.encode(cmd, args, frame, 0);
+			expected.write(frame);
+		}
+		ThrottledChannel channel = new ThrottledChannel(777);
+		while(encoder.hasRemaining())
+			encoder.writeTo(channel);
+		Assert.assertEquals(channel.out.toByteArray(), expected.toByteArray());
+	}
+
+	private void assertEncoding (Command cmd, String expected, byte[]... args) {
+		int size = RequestEncoder.frameSize(cmd, args);
+		Assert.assertEquals(size, expected.length());
+
+		byte[] array = new byte[size + 2];
+		Assert.assertEquals(RequestEncoder.encode(cmd, args, array, 2), size + 2);
+		Assert.assertEquals(new String(array, 2, size), expected);
+
+		ByteBuffer buffer = ByteBuffer.allocateDirect(size);
+		RequestEncoder.encode(cmd, args, buffer);
+		Assert.assertFalse(buffer.hasRemaining());
+		buffer.flip();
+		byte[] b = new byte[size];
+		buffer.get(b);
+		Assert.assertEquals(new String(b), expected);
+	}
+
+	/** accepts at most max bytes per write */
+	private static final class ThrottledChannel implements GatheringByteChannel {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		final int max;
+		ThrottledChannel (int max) { this.max = max; }
+		public long write (ByteBuffer[] srcs, int offset, int length) {
+			int n = 0;
+			for(int i=offset; i<offset+length && n < max; i++){
+				while(srcs[i].hasRemaining() && n < max) {
+					out.write(srcs[i].get());
+					n++;
+				}
+			}
+			return n;
+		}
+		public long write (ByteBuffer[] srcs) { return write(srcs, 0, srcs.length); }
+		public int write (ByteBuffer src) { return (int) write(new ByteBuffer[]{src}); }
+		public boolean isOpen () { return true; }
+		public void close () { }
+	}
+}
@@ -0,0 +1,153 @@
+/*
+ *   Copyright 2009-2012 Joubin Houshyar
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package org.jredis.ri.alphazero.protocol;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import org.jredis.ElementConsumer;
+import org.jredis.ElementConsumerException;
+import org.jredis.protocol.Command;
+import org.jredis.protocol.StreamingMultiBulkResponse;
+import org.jredis.ri.alphazero.support.FastBufferedInputStream;
+import org.jredis.ri.alphazero.support.Log;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests the streaming of the elements of {@link SyncProtocol.SyncMultiBulkResponse}
+ * to an {@link ElementConsumer}.
+ *
+ * @author  Joubin Houshyar (alphazero@sensesay.net)
+ * @date    Apr 16, 2012
+ *
+ */
+
+@Test(suiteName="protocol-tests")
+public class SyncMultiBulkResponseTest {
+
+	static final String LARGE = new String(new char[40]).replace('\0', 'x');
+	static final String REPLY = "*5\r\n$3\r\nfoo\r\n$-1\r\n$0\r\n\r\n$40\r\n" + LARGE + "\r\n$5\r\nhello\r\n";
+
+	/** returns at most fragment bytes per read */
+	static final class FragmentedInputStream extends ByteArrayInputStream {
+		final int fragment;
+		FragmentedInputStream (byte[] data, int fragment) {
+			super(data);
+			this.fragment = fragment;
+		}
+		@Override
+		public synchronized int read (byte[] b, int off, int len) {
+			return super.read(b, off, Math.min(len, fragment));
+		}
+	}
+
+	/** copies the elements, and notes which were slices of the given buffer */
+	static final class CollectingConsumer implements ElementConsumer {
+		final FastBufferedInputStream in;
+		final List<String> elements = new ArrayList<String>();
+		final List<Boolean> slices = new ArrayList<Boolean>();
+		CollectingConsumer (FastBufferedInputStream in) { this.in = in; }
+		public void consume (int index, byte[] buffer, int offset, int length) {
+			Assert.assertEquals(index, elements.size(), "elements should be consumed in order");
+			elements.add(length == -1 ? null : new String(buffer, offset, length));
+			slices.add(null != in && buffer == in.buffer());
+		}
+	}
+
+	private static StreamingMultiBulkResponse newResponse () {
+		return (StreamingMultiBulkResponse) new ConcurrentSyncProtocol().createResponse(Command.LRANGE);
+	}
+
+	@Test
+	public void testStreamedElements () {
+		Log.log("Testing streaming of multi-bulk elements ...");
+		for(int fragment : new int[]{1, 3, 1000}) {
+			FastBufferedInputStream in = new FastBufferedInputStream(new FragmentedInputStream(REPLY.getBytes(), fragment), 16);
+			CollectingConsumer consumer = new CollectingConsumer(in);
+			StreamingMultiBulkResponse response = newResponse();
+			response.setElementConsumer(consumer);
+			response.read(in);
+
+			Assert.assertEquals(response.getElementCount(), 5);
+			Assert.assertNull(response.getMultiBulkData(), "streamed responses are not collected");
+			Assert.assertEquals(consumer.elements.toArray(), new String[]{"foo", null, "", LARGE, "hello"});
+			Assert.assertTrue(consumer.slices.get(0), "elements that fit the buffer should be slices");
+			Assert.assertFalse(consumer.slices.get(3), "elements larger than the buffer should not be slices");
+			Assert.assertEquals(in.buffer().length, 16, "streaming should not grow the buffer");
+		}
+
+		// streams of other types
+		CollectingConsumer consumer = new CollectingConsumer(null);
+		StreamingMultiBulkResponse response = newResponse();
+		response.setElementConsumer(consumer);
+		response.read(new FragmentedInputStream(REPLY.getBytes(), 7));
+		Assert.assertEquals(response.getElementCount(), 5);
+		Assert.assertEquals(consumer.elements.toArray(), new String[]{"foo", null, "", LARGE, "hello"});
+
+		// nil and empty replies
+		for(String reply : new String[]{"*-1\r\n", "*0\r\n"}) {
+			consumer = new CollectingConsumer(null);
+			response = newResponse();
+			response.setElementConsumer(consumer);
+			response.read(new ByteArrayInputStream(reply.getBytes()));
+			Assert.assertEquals(response.getElementCount(), reply.equals("*0\r\n") ? 0 : -1);
+			Assert.assertTrue(consumer.elements.isEmpty());
+		}
+	}
+
+	@Test
+	public void testCollectedElements () {
+		Log.log("Testing count of collected multi-bulk elements ...");
+		StreamingMultiBulkResponse response = newResponse();
+		response.read(new FastBufferedInputStream(new ByteArrayInputStream(REPLY.getBytes()), 16));
+		Assert.assertEquals(response.getElementCount(), 5);
+		Assert.assertEquals(response.getMultiBulkData().size(), 5);
+		Assert.assertEquals(new String(response.getMultiBulkData().get(3)), LARGE);
+	}
+
+	@Test
+	public void testConsumerError () throws IOException {
+		Log.log("Testing errors raised by the element consumer ...");
+		final RuntimeException error = new IllegalStateException("consumer error");
+		final List<Integer> calls = new ArrayList<Integer>();
+		StreamingMultiBulkResponse response = newResponse();
+		response.setElementConsumer(new ElementConsumer() {
+			public void consume (int index, byte[] buffer, int offset, int length) {
+				calls.add(index);
+				if(index == 1) throw error;
+			}
+		});
+		String next = "+OK\r\n";
+		InputStream in = new FastBufferedInputStream(new ByteArrayInputStream((REPLY + next).getBytes()), 16);
+		boolean didRaiseError = false;
+		try { response.read(in); }
+		catch (ElementConsumerException e) {
+			didRaiseError = true;
+			Assert.assertSame(e.getCause(), error);
+		}
+		Assert.assertTrue(didRaiseError, "expecting an ElementConsumerException for errors of the consumer");
+		Assert.assertEquals(calls.toArray(), new Integer[]{0, 1}, "consumer should not be called after raising an error");
+
+		// the rest of the reply has been read
+		byte[] rest = new byte[next.length()];
+		Assert.assertEquals(in.read(rest), rest.length);
+		Assert.assertEquals(new String(rest), next);
+	}
+}
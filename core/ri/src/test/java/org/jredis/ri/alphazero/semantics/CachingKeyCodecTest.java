@@ -0,0 +1,111 @@
+/*
+ *   Copyright 2009-2012 Joubin Houshyar
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package org.jredis.ri.alphazero.semantics;
+
+import java.util.concurrent.atomic.AtomicReference;
+import org.jredis.ri.alphazero.support.Log;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests {@link CachingKeyCodec}.
+ *
+ * @author  Joubin Houshyar (alphazero@sensesay.net)
+ * @date    Apr 16, 2012
+ *
+ */
+
+@Test(suiteName="semantics-tests")
+public class CachingKeyCodecTest {
+
+	@Test
+	public void testCaching () {
+		Log.log("Testing CachingKeyCodec caching of keys ...");
+		CachingKeyCodec<Object> codec = new CachingKeyCodec<Object>(4);
+		byte[] bytes = codec.encode("counter:id");
+		Assert.assertEquals(bytes, DefaultKeyCodec.encodeString("counter:id"));
+		Assert.assertSame(codec.encode("counter:id"), bytes, "expecting the cached bytes");
+		Assert.assertEquals(codec.getHits(), 1);
+		Assert.assertEquals(codec.getMisses(), 1);
+		Assert.assertEquals(codec.getHitRate(), 0.5d);
+
+		byte[] bkey = {'k'};
+		Assert.assertSame(codec.encode(bkey), bkey, "byte[] keys should not be copied");
+		Assert.assertEquals(codec.size(), 1, "byte[] keys should not be cached");
+
+		for(Object key : new Object[]{ null, "a key", "key\r\n", new byte[0], Long.valueOf(1) }) {
+			boolean didRaiseError = false;
+			try { codec.encode(key); }
+			catch (IllegalArgumentException e) { didRaiseError = true; }
+			Assert.assertTrue(didRaiseError, "expecting an error for key " + key);
+		}
+		Assert.assertEquals(codec.size(), 1, "invalid keys should not be cached");
+
+		codec.clear();
+		Assert.assertEquals(codec.size(), 0);
+		Assert.assertEquals(codec.getHits() + codec.getMisses(), 0);
+		Assert.assertEquals(codec.getHitRate(), 0d);
+		Assert.assertNotSame(codec.encode("counter:id"), bytes);
+	}
+
+	@Test
+	public void testEviction () {
+		Log.log("Testing CachingKeyCodec eviction of keys ...");
+		int capacity = 100;
+		CachingKeyCodec<Object> codec = new CachingKeyCodec<Object>(capacity);
+		String[] hot = new String[capacity / 2];
+		for(int i = 0; i < hot.length; i++) hot[i] = "hot:" + i;
+
+		for(int i = 0; i < 100000; i++) {
+			codec.encode(hot[i % hot.length]);
+			codec.encode("cold:" + i);
+			Assert.assertTrue(codec.size() <= capacity, "cache should be bounded by its capacity");
+		}
+		Assert.assertEquals(codec.size(), capacity);
+		// hot keys are only missed on their first use
+		Assert.assertEquals(codec.getHits(), 100000 - hot.length);
+		Assert.assertEquals(codec.getMisses(), 100000 + hot.length);
+	}
+
+	@Test
+	public void testConcurrentUse () throws InterruptedException {
+		Log.log("Testing concurrent use of CachingKeyCodec ...");
+		final CachingKeyCodec<Object> codec = new CachingKeyCodec<Object>(64);
+		final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+		final int n = 100000;
+		Thread[] threads = new Thread[4];
+		for(int t = 0; t < threads.length; t++) {
+			final int seed = t;
+			threads[t] = new Thread(new Runnable() {
+				public void run () {
+					try {
+						for(int i = 0; i < n; i++) {
+							String key = "key:" + ((i * 31 + seed) % 128);
+							Assert.assertEquals(codec.encode(key), key.getBytes());
+						}
+					}
+					catch (Throwable e) { error.compareAndSet(null, e); }
+				}
+			});
+			threads[t].start();
+		}
+		for(Thread thread : threads) thread.join();
+		Assert.assertNull(error.get());
+		Assert.assertTrue(codec.size() <= 64);
+		Assert.assertEquals(codec.getHits() + codec.getMisses(), threads.length * n);
+	}
+}
@@ -0,0 +1,113 @@
+/*
+ *   Copyright 2009-2012 Joubin Houshyar
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package org.jredis.ri.alphazero.semantics;
+
+import java.io.Serializable;
+import java.util.Date;
+import org.jredis.Codec;
+import org.jredis.ri.alphazero.support.Convert;
+import org.jredis.ri.alphazero.support.DefaultCodec;
+import org.jredis.ri.alphazero.support.Log;
+import org.jredis.semantics.CodecManager;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests {@link CompactCodecs} and their use with a {@link CodecManager}.
+ *
+ * @author  Joubin Houshyar (alphazero@sensesay.net)
+ * @date    Apr 16, 2012
+ *
+ */
+
+@Test(suiteName="semantics-tests")
+public class CompactCodecsTest {
+
+	@SuppressWarnings("boxing")
+	@Test
+	public void testRoundTrips () {
+		Log.log("Testing CompactCodecs round trips ...");
+		CodecManager codecs = CompactCodecs.newCodecManager();
+		Object[] values = {
+			"", "h\u00e9llo w\u00f6rld", Long.MIN_VALUE, -1L, 0L, 65536L, Long.MAX_VALUE,
+			Integer.MIN_VALUE, 12345, (short) -7, 3.141592653589793d, -0.0d, Double.NaN, 1.5e-300d,
+			2.5f, true, false
+		};
+		for(Object value : values) {
+			assertRoundTrip(codecs, value);
+		}
+		byte[] bytes = {0, 1, 2, (byte) 0xff};
+		Assert.assertSame(codecs.getCodec(byte[].class).encode(bytes), bytes, "byte[]s should not be copied");
+
+		// numbers are encoded as redis would
+		Assert.assertEquals(codecs.getCodec(Long.class).encode(-12345L), "-12345".getBytes());
+		Assert.assertEquals(codecs.getCodec(Integer.class).encode(100000), Convert.toBytes(100000));
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> void assertRoundTrip (CodecManager codecs, T value) {
+		Codec<T> codec = codecs.getCodec((Class<T>) value.getClass());
+		Assert.assertNotNull(codec, "expecting a codec for " + value.getClass());
+		Assert.assertEquals(codec.decode(codec.encode(value)), value);
+	}
+
+	@SuppressWarnings("boxing")
+	@Test
+	public void testEncoding () {
+		Log.log("Testing encoding of Serializable values with a CodecManager ...");
+		CodecManager codecs = CompactCodecs.newCodecManager();
+		Long value = 1234567890L;
+		byte[] serialized = DefaultCodec.encode(value);
+		byte[] compact = DefaultCodec.encode(value, codecs);
+		Assert.assertEquals(compact, "1234567890".getBytes());
+		Assert.assertTrue(compact.length * 5 < serialized.length, "expecting compact encoding to be smaller");
+		Assert.assertEquals(DefaultCodec.encode(value, null), serialized, "without codecs, values are serialized");
+
+		// types without codecs are serialized
+		Date date = new Date(0);
+		Assert.assertEquals(DefaultCodec.encode(date, codecs), DefaultCodec.encode(date));
+		Assert.assertEquals(DefaultCodec.decode(DefaultCodec.encode(date, codecs)), date);
+	}
+
+	/** a codec for a base type */
+	static class Shape implements Serializable {
+		private static final long serialVersionUID = 1L;
+		final int sides;
+		Shape (int sides) { this.sides = sides; }
+	}
+	static final class Square extends Shape {
+		private static final long serialVersionUID = 1L;
+		Square () { super(4); }
+	}
+	static final class ShapeCodec implements Codec<Shape> {
+		public Shape decode (byte[] bytes) { return new Shape(Convert.toInt(bytes)); }
+		public byte[] encode (Shape shape) { return Convert.toBytes(shape.sides); }
+		public boolean supports (Class<?> type) { return Shape.class.isAssignableFrom(type); }
+	}
+
+	@Test
+	public void testRegistration () {
+		Log.log("Testing registration of codecs ...");
+		CodecManager codecs = CompactCodecs.newCodecManager();
+		Assert.assertNull(codecs.getCodec(Square.class));
+		Assert.assertFalse(codecs.register(CompactCodecs.LONG, Long.class), "a type has one codec");
+
+		Assert.assertTrue(codecs.register(new ShapeCodec(), Shape.class));
+		Assert.assertNotNull(codecs.getCodec(Square.class), "codecs of base types should serve subtypes");
+		Assert.assertEquals(DefaultCodec.encode(new Square(), codecs), "4".getBytes());
+	}
+}
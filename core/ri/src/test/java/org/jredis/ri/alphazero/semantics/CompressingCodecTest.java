@@ -0,0 +1,112 @@
+/*
+ *   Copyright 2009-2012 Joubin Houshyar
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package org.jredis.ri.alphazero.semantics;
+
+import java.util.Random;
+import org.jredis.Codec;
+import org.jredis.ri.alphazero.semantics.CompressingCodec.Algorithm;
+import org.jredis.ri.alphazero.support.Log;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests {@link CompressingCodec}.
+ *
+ * @author  Joubin Houshyar (alphazero@sensesay.net)
+ * @date    Apr 16, 2012
+ *
+ */
+
+@Test(suiteName="semantics-tests")
+public class CompressingCodecTest {
+	final Random random = new Random(16L);
+
+	private String getJson (int size) {
+		StringBuilder builder = new StringBuilder("[");
+		for(int i = 0; builder.length() < size; i++) {
+			builder.append("{\"id\":").append(random.nextInt(100000)).append(",\"name\":\"r\u00e9sum\u00e9-").append(i).append("\"},");
+		}
+		return builder.append("]").toString();
+	}
+
+	@Test
+	public void testCompression () {
+		Log.log("Testing CompressingCodec compression of values ...");
+		for(Algorithm algorithm : Algorithm.values()) {
+			Codec<String> codec = new CompressingCodec<String>(CompactCodecs.STRING, algorithm, 100);
+			for(int size : new int[]{0, 10, 99, 100, 1000, 100000}) {
+				String json = getJson(size);
+				byte[] encoded = codec.encode(json);
+				Assert.assertEquals(codec.decode(encoded), json);
+				if(json.length() < 100) {
+					Assert.assertEquals(encoded[0], CompressingCodec.UNCOMPRESSED, "values under the threshold should not be compressed");
+				}
+				else if(json.length() >= 1000) {
+					Assert.assertEquals(encoded[0], algorithm.header);
+					Assert.assertTrue(encoded.length * 2 < CompactCodecs.STRING.encode(json).length, "expecting compression");
+				}
+			}
+		}
+
+		// incompressible values are not compressed
+		CompressingCodec<byte[]> codec = new CompressingCodec<byte[]>(CompactCodecs.BYTES, Algorithm.DEFLATE, 0);
+		byte[] bytes = new byte[1000];
+		random.nextBytes(bytes);
+		byte[] encoded = codec.encode(bytes);
+		Assert.assertEquals(encoded.length, bytes.length + 1);
+		Assert.assertEquals(encoded[0], CompressingCodec.UNCOMPRESSED);
+		Assert.assertEquals(codec.decode(encoded), bytes);
+		Assert.assertEquals(codec.decode(codec.encode(new byte[0])), new byte[0]);
+	}
+
+	@Test
+	public void testDecoding () {
+		Log.log("Testing CompressingCodec decoding of values of other codecs ...");
+		String json = getJson(10000);
+		CompressingCodec<String> deflate = new CompressingCodec<String>(CompactCodecs.STRING);
+		CompressingCodec<String> lz4 = new CompressingCodec<String>(CompactCodecs.STRING, Algorithm.LZ4, 0);
+		Assert.assertEquals(deflate.decode(lz4.encode(json)), json);
+		Assert.assertEquals(lz4.decode(deflate.encode(json)), json);
+
+		// a (corrupt) size of Integer.MAX_VALUE
+		byte[] maxSize = {(byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff, 0x07};
+		byte[][] corrupt = {
+			{}, {9, 1, 2}, {Algorithm.LZ4.header, (byte) 0x80},
+			concat(new byte[]{Algorithm.LZ4.header}, maxSize, new byte[]{0x10, 'x'}),
+			concat(new byte[]{Algorithm.DEFLATE.header}, maxSize, new byte[]{1, 2, 3}),
+			{Algorithm.DEFLATE.header, 10, 1, 2, 3}
+		};
+		int errors = 0;
+		for(byte[] bytes : corrupt) {
+			try { deflate.decode(bytes); }
+			catch (IllegalArgumentException e) { errors++; }
+		}
+		Assert.assertEquals(errors, corrupt.length, "expecting errors for bytes not of a CompressingCodec");
+	}
+
+	private static byte[] concat (byte[]... parts) {
+		int len = 0;
+		for(byte[] part : parts) len += part.length;
+		byte[] bytes = new byte[len];
+		int off = 0;
+		for(byte[] part : parts) {
+			System.arraycopy(part, 0, bytes, off, part.length);
+			off += part.length;
+		}
+		return bytes;
+	}
+}
@@ -0,0 +1,128 @@
+/*
+ *   Copyright 2009-2012 Joubin Houshyar
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package org.jredis.ri.alphazero.support;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests {@link FastBufferedInputStream} over sources that return the data in
+ * fragments.
+ *
+ * @author  Joubin Houshyar (alphazero@sensesay.net)
+ * @date    Apr 16, 2012
+ *
+ */
+
+@Test(suiteName="support-tests")
+public class FastBufferedInputStreamTest {
+
+	/** returns at most fragment bytes per read */
+	static final class FragmentedInputStream extends ByteArrayInputStream {
+		final int fragment;
+		FragmentedInputStream (byte[] data, int fragment) {
+			super(data);
+			this.fragment = fragment;
+		}
+		@Override
+		public synchronized int read (byte[] b, int off, int len) {
+			return super.read(b, off, Math.min(len, fragment));
+		}
+	}
+
+	private static byte[] data (int size) {
+		byte[] data = new byte[size];
+		for(int i=0; i<size; i++) data[i] = (byte) (i * 31);
+		return data;
+	}
+
+	@Test
+	public void testBlockReads () throws IOException {
+		Log.log("Testing FastBufferedInputStream block reads ...");
+		final byte[] data = data(10000);
+		for(int fragment : new int[]{1, 7, 64, 10000}) {
+			FastBufferedInputStream in = new FastBufferedInputStream(new FragmentedInputStream(data, fragment), 64);
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] b = new byte[200];
+			int n = 0;
+			for(int len : new int[]{1, 63, 64, 65, 200, 3}) {
+				Assert.assertEquals(in.read(b, 0, len), len);
+				out.write(b, 0, len);
+				n += len;
+			}
+			while(n < data.length) {
+				int c = in.read();
+				Assert.assertTrue(c >= 0 && c <= 255, "read() should return unsigned bytes");
+				out.write(c);
+				n++;
+			}
+			Assert.assertEquals(out.toByteArray(), data);
+			Assert.assertEquals(in.read(), -1);
+			Assert.assertEquals(in.buffer().length, 64, "block reads should not grow the buffer");
+		}
+	}
+
+	@Test
+	public void testPeekLine () throws IOException {
+		Log.log("Testing FastBufferedInputStream line scanning ...");
+		final String longLine = new String(new char[300]).replace('\0', 'x');
+		final String trace = "+OK\r\n:12345\r\n$" + longLine.length() + "\r\n" + longLine + "\r\n-ERR\rbad\r\n";
+		for(int fragment : new int[]{1, 2, 5, 1000}) {
+			FastBufferedInputStream in = new FastBufferedInputStream(new FragmentedInputStream(trace.getBytes(), fragment), 16);
+			Assert.assertEquals(nextLine(in), "+OK\r\n");
+			Assert.assertEquals(nextLine(in), ":12345\r\n");
+			Assert.assertEquals(nextLine(in), "$300\r\n");
+			Assert.assertEquals(nextLine(in), longLine + "\r\n", "lines longer than the buffer");
+			Assert.assertEquals(nextLine(in), "-ERR\rbad\r\n", "a CR alone does not end a line");
+			Assert.assertEquals(in.peekLine(), -1);
+		}
+
+		// a line is not consumed until it is read
+		FastBufferedInputStream in = new FastBufferedInputStream(new FragmentedInputStream("*2\r\n".getBytes(), 1), 16);
+		Assert.assertEquals(in.peekLine(), 4);
+		Assert.assertEquals(in.peekLine(), 4);
+		Assert.assertEquals(in.read(), '*');
+		Assert.assertEquals(in.peekLine(), 3);
+
+		boolean didRaiseError = false;
+		try { in.consume(4); }
+		catch (RuntimeException e) { didRaiseError = true; }
+		Assert.assertTrue(didRaiseError, "expecting an error consuming more than the available data");
+	}
+
+	private static String nextLine (FastBufferedInputStream in) throws IOException {
+		int len = in.peekLine();
+		Assert.assertTrue(len > 0, "expecting a line");
+		String line = new String(in.buffer(), in.position(), len);
+		in.consume(len);
+		return line;
+	}
+
+	/** an unbuffered source: EOF while reading directly into the caller's array */
+	@Test
+	public void testEOF () throws IOException {
+		Log.log("Testing FastBufferedInputStream EOF ...");
+		InputStream src = new FragmentedInputStream(data(100), 10);
+		FastBufferedInputStream in = new FastBufferedInputStream(src, 16);
+		Assert.assertEquals(in.read(new byte[8], 0, 8), 8);
+		Assert.assertEquals(in.read(new byte[200], 0, 200), -1);
+	}
+}
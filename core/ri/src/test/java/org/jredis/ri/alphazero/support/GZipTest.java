@@ -16,8 +16,14 @@
 
 package org.jredis.ri.alphazero.support;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.nio.charset.Charset;
+import java.util.Arrays;
 import java.util.Random;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 import org.testng.annotations.*;
 import org.testng.Assert;
 import static org.jredis.ri.alphazero.support.GZip.*;
@@ -47,6 +53,81 @@ public class GZipTest {
     		Assert.assertEquals(decompressed, stringBytes);
     	}
 	}
+
+	@Test
+	public void testGZipFormat() throws IOException {
+		Log.log("Testing compatibility with GZIP streams ...");
+		for(int size : new int[]{0, 1, 100, 1024 * 24, 1024 * 200}) {
+			byte[] data = getRandomString(size).getBytes();
+			byte[] compressed = compress(data);
+			
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			GZIPOutputStream gzip = new GZIPOutputStream(out);
+			gzip.write(data);
+			gzip.close();
+			Assert.assertEquals(decompress(out.toByteArray()), data, "expecting to decompress the output of GZIPOutputStream");
+			Assert.assertEquals(compressed.length, out.size());
+
+			GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed));
+			byte[] decompressed = new byte[size];
+			int n = 0;
+			for(int r = 0; n < size && -1 != (r = in.read(decompressed, n, size - n)); n += r);
+			Assert.assertEquals(n, size);
+			Assert.assertEquals(decompressed, data);
+			
+			// concatenated members
+			byte[] twice = Arrays.copyOf(compressed, compressed.length * 2);
+			System.arraycopy(compressed, 0, twice, compressed.length, compressed.length);
+			byte[] expected = Arrays.copyOf(data, size * 2);
+			System.arraycopy(data, 0, expected, size, size);
+			Assert.assertEquals(decompress(twice), expected);
+		}
+		
+		// header with a file name
+		byte[] data = getRandomString(1000).getBytes();
+		byte[] compressed = compress(data);
+		byte[] named = new byte[compressed.length + 4];
+		System.arraycopy(compressed, 0, named, 0, 10);
+		named[3] = 8; // FNAME
+		named[10] = 'a'; named[11] = '.'; named[12] = 'z'; named[13] = 0;
+		System.arraycopy(compressed, 10, named, 14, compressed.length - 10);
+		Assert.assertEquals(decompress(named), data);
+
+		// corrupt checksum
+		compressed[compressed.length - 8] ^= 1;
+		boolean didRaiseError = false;
+		try { decompress(compressed); }
+		catch (RuntimeException e) { didRaiseError = true; }
+		Assert.assertTrue(didRaiseError, "expecting an error for a corrupt checksum");
+	}
+
+	@Test
+	public void testRelease() {
+		Log.log("Testing release of the thread's (de)compressors ...");
+		byte[] data = getRandomString(1000).getBytes();
+		byte[] compressed = compress(data);
+		release();
+		Assert.assertEquals(decompress(compressed), data);
+		Assert.assertEquals(compress(data), compressed);
+		release();
+	}
+
+	@Test
+	public void testDeflate() {
+		Log.log("Testing raw deflate/inflate ...");
+		for(int size : new int[]{0, 1, 100, 1024 * 24, 1024 * 200}) {
+			byte[] data = getRandomString(size).getBytes();
+			byte[] deflated = deflate(data, 0, size);
+			Assert.assertEquals(inflate(deflated, 0, deflated.length, size), data);
+		}
+		byte[] data = getRandomString(1000).getBytes();
+		byte[] deflated = deflate(data, 0, data.length);
+		boolean didRaiseError = false;
+		try { inflate(deflated, 0, deflated.length, data.length + 1); }
+		catch (RuntimeException e) { didRaiseError = true; }
+		Assert.assertTrue(didRaiseError, "expecting an error for a wrong size");
+	}
+
 	/*
 	 * OK, so this is a reduandant hack -- the Bench pom states that it is dependent
 	 * on RI and API, but here we are testing a RI class so Bench isn't installed
@@ -0,0 +1,111 @@
+/*
+ *   Copyright 2009-2012 Joubin Houshyar
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package org.jredis.ri.alphazero.support;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests {@link LZ4} (de)compression.
+ *
+ * @author  Joubin Houshyar (alphazero@sensesay.net)
+ * @date    Apr 16, 2012
+ *
+ */
+
+@Test(suiteName="support-tests")
+public class LZ4Test {
+	final Random random = new Random(16L);
+
+	/** json like records, with runs of a single byte */
+	private byte[] getRecords (int size) {
+		StringBuilder builder = new StringBuilder(size);
+		for(int i = 0; builder.length() < size; i++) {
+			builder.append("{\"id\":").append(random.nextInt(100000)).append(",\"name\":\"user-").append(i % 37);
+			builder.append("\",\"tags\":[\"a\",\"b\"],\"pad\":\"");
+			for(int j = random.nextInt(300); j > 0; j--) builder.append('x');
+			builder.append("\"},");
+		}
+		return builder.substring(0, size).getBytes();
+	}
+
+	@Test
+	public void testCompression () {
+		Log.log("Testing LZ4 compress/decompress ...");
+		for(int size = 0; size < 300; size++) {
+			assertRoundTrip(getRecords(size));
+			byte[] random = new byte[size];
+			this.random.nextBytes(random);
+			assertRoundTrip(random);
+		}
+		for(int size : new int[]{1024 * 24, 1024 * 200}) {
+			byte[] records = getRecords(size);
+			byte[] compressed = assertRoundTrip(records);
+			Assert.assertTrue(compressed.length * 3 < size, "expecting records to compress");
+
+			byte[] zeros = new byte[size];
+			compressed = assertRoundTrip(zeros);
+			Assert.assertTrue(compressed.length * 200 < size, "expecting runs to compress");
+
+			byte[] random = new byte[size];
+			this.random.nextBytes(random);
+			compressed = assertRoundTrip(random);
+			Assert.assertTrue(compressed.length <= LZ4.maxCompressedLength(size));
+		}
+
+		// slices
+		byte[] records = getRecords(10000);
+		byte[] compressed = LZ4.compress(records, 1000, 5000);
+		Assert.assertEquals(LZ4.decompress(compressed, 0, compressed.length, 5000), Arrays.copyOfRange(records, 1000, 6000));
+		byte[] padded = new byte[compressed.length + 20];
+		System.arraycopy(compressed, 0, padded, 10, compressed.length);
+		Assert.assertEquals(LZ4.decompress(padded, 10, compressed.length, 5000), Arrays.copyOfRange(records, 1000, 6000));
+	}
+
+	private static byte[] assertRoundTrip (byte[] data) {
+		byte[] compressed = LZ4.compress(data, 0, data.length);
+		Assert.assertEquals(LZ4.decompress(compressed, 0, compressed.length, data.length), data);
+		return compressed;
+	}
+
+	@Test
+	public void testCorruptBlocks () {
+		Log.log("Testing LZ4 decompression of corrupt blocks ...");
+		byte[] records = getRecords(10000);
+		byte[] compressed = LZ4.compress(records, 0, records.length);
+		int errors = 0;
+		for(int size : new int[]{records.length - 1, records.length + 1}) {
+			try { LZ4.decompress(compressed, 0, compressed.length, size); }
+			catch (IllegalArgumentException e) { errors++; }
+		}
+		for(int len : new int[]{compressed.length - 1, compressed.length / 2}) {
+			try { LZ4.decompress(compressed, 0, len, records.length); }
+			catch (IllegalArgumentException e) { errors++; }
+		}
+		Assert.assertEquals(errors, 4, "expecting errors for wrong sizes and truncated blocks");
+
+		// garbage may decompress to garbage, but should not raise anything else
+		for(int i = 0; i < 1000; i++) {
+			byte[] corrupt = compressed.clone();
+			corrupt[random.nextInt(corrupt.length)] = (byte) random.nextInt();
+			try { LZ4.decompress(corrupt, 0, corrupt.length, records.length); }
+			catch (IllegalArgumentException e) { }
+		}
+	}
+}
@@ -0,0 +1,92 @@
+/*
+ *   Copyright 2009-2012 Joubin Houshyar
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package org.jredis.ri.alphazero.support;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests {@link SpscRingQueue}.
+ *
+ * @author  Joubin Houshyar (alphazero@sensesay.net)
+ * @date    Apr 12, 2012
+ *
+ */
+
+@Test(suiteName="support-tests")
+public class SpscRingQueueTest {
+
+	@Test
+	public void testBoundsAndOrder () throws Exception {
+		Log.log("Testing SpscRingQueue bounds and order ...");
+		SpscRingQueue<Integer> q = new SpscRingQueue<Integer>(5, 0, 0);
+		Assert.assertEquals(q.capacity(), 5);
+		for(int round=0; round<3; round++){
+			Assert.assertTrue(q.isEmpty());
+			Assert.assertNull(q.poll());
+			for(int i=0; i<5; i++) Assert.assertTrue(q.offer(i));
+			Assert.assertFalse(q.offer(5));
+			Assert.assertFalse(q.hasCapacity(1));
+			Assert.assertFalse(q.awaitCapacity(1, 1, TimeUnit.MILLISECONDS));
+			Assert.assertEquals(q.size(), 5);
+			Assert.assertEquals(q.poll(), Integer.valueOf(0));
+			Assert.assertTrue(q.hasCapacity(1));
+			Assert.assertFalse(q.hasCapacity(2));
+			for(int i=1; i<5; i++) Assert.assertEquals(q.take(), Integer.valueOf(i));
+		}
+	}
+
+	@Test
+	public void testHandoff () throws Exception {
+		Log.log("Testing SpscRingQueue producer/consumer handoff with parking ...");
+		final int cnt = 200000;
+		final SpscRingQueue<Integer> q = new SpscRingQueue<Integer>(16, 10, 1);
+		final AtomicReference<Throwable> fault = new AtomicReference<Throwable>();
+		Thread producer = new Thread(new Runnable() {
+			public void run () {
+				try {
+					for(int i=0; i<cnt; i++){
+						while(!q.awaitCapacity(1, 1, TimeUnit.SECONDS)) {}
+						Assert.assertTrue(q.offer(i));
+						if(i % 10000 == 0) Thread.sleep(2); // let the consumer park
+					}
+				}
+				catch (Throwable t) { fault.set(t); }
+			}
+		});
+		producer.start();
+		for(int i=0; i<cnt; i++)
+			Assert.assertEquals(q.take().intValue(), i);
+		producer.join(5000);
+		Assert.assertNull(fault.get());
+		Assert.assertTrue(q.isEmpty());
+	}
+
+	@Test
+	public void testTakeInterrupted () throws Exception {
+		Log.log("Testing SpscRingQueue take interrupted ...");
+		SpscRingQueue<Integer> q = new SpscRingQueue<Integer>(4, 0, 0);
+		Thread.currentThread().interrupt();
+		try {
+			q.take();
+			Assert.fail("expected InterruptedException");
+		}
+		catch (InterruptedException e) { /* expected */ }
+	}
+}
@@ -21,6 +21,8 @@ import java.util.Set;
 import org.jredis.ClientRuntimeException;
 import org.jredis.NotSupportedException;
 import org.jredis.ProviderException;
+import org.jredis.cluster.support.HashAlgorithm;
+import org.jredis.cluster.support.HashTag;
 
 /**
  * Represent (a potentially active) model of a cluster.  
@@ -72,6 +74,21 @@ public interface ClusterModel {
 	 */
 	public void removeNode(ClusterNodeSpec nodeSpec) throws IllegalArgumentException;
 
+	/**
+	 * Optional.
+	 * <p>
+	 * Sets the weight of a node of the model, and rebalances the model's keys per
+	 * the new weight.  Must raise a {@link ClusterModel.Event.Type#NodeReweighted} 
+	 * event with the node as the event's info.  Event must be raised after the model
+	 * has transitioned to the new state.
+	 * @param nodeSpec
+	 * @param weight
+	 * @throws IllegalArgumentException if the node is not part of the model, or the
+	 * weight is not valid
+	 * @see ClusterNodeSpec#getWeight()
+	 */
+	public void setNodeWeight(ClusterNodeSpec nodeSpec, int weight) throws IllegalArgumentException;
+
 	// ------------------------------------------------------------------------
 	// Cluster semantics
 
@@ -154,7 +171,8 @@ public interface ClusterModel {
 		public enum Type {
 			Initialized,
 			NodeAdded,
-			NodeRemoved
+			NodeRemoved,
+			NodeReweighted
 		}
 	}
 	
@@ -183,6 +201,8 @@ public interface ClusterModel {
 		final private Set<Listener> listeners = new HashSet<Listener>();
 		/**  */
 		final protected Object configLock = new Object();	
+		/** hash tag of keys, per the spec at construction -- null for none */
+		protected HashTag hashTag;
 
 
 		// --------------------------------------------------------------------
@@ -218,6 +238,7 @@ public interface ClusterModel {
 				throw new IllegalArgumentException("clusterSpec has no ClusterNodeSpecs and this model can not be reconfigured.");
 			
 			this.clusterSpec = clusterSpec;
+			this.hashTag = clusterSpec.getHashTag();
 			initialize();
 		}
 
@@ -231,7 +252,7 @@ public interface ClusterModel {
 		{
 			if(supportsReconfiguration()){
 				synchronized (configLock) {
-					clusterSpec.addNode(nodeSpec);
+					if(!clusterSpec.addNode(nodeSpec)) throw new IllegalArgumentException("NodeSpec already part of cluster spec!");
 					onNodeAddition (nodeSpec);
 				}
 				notifyListeners(new ClusterModel.Event(this, ClusterModel.Event.Type.NodeAdded, nodeSpec));
@@ -244,10 +265,9 @@ public interface ClusterModel {
 		/* (non-Javadoc) @see org.jredis.cluster.ClusterModel#removeNode(org.jredis.cluster.ClusterNodeSpec) */
 		final public void removeNode (ClusterNodeSpec nodeSpec) throws IllegalArgumentException {
 			if(supportsReconfiguration()){
-				if(!clusterSpec.getNodeSpecs().contains(nodeSpec)) throw new IllegalArgumentException("NodeSpec not part of cluster spec!");
 				synchronized (configLock) {
-					clusterSpec.removeNode(nodeSpec);
-					onNodeAddition (nodeSpec);
+					if(!clusterSpec.removeNode(nodeSpec)) throw new IllegalArgumentException("NodeSpec not part of cluster spec!");
+					onNodeRemoval (nodeSpec);
 				}
 				notifyListeners(new ClusterModel.Event(this, ClusterModel.Event.Type.NodeRemoved, nodeSpec));
 			}
@@ -256,6 +276,29 @@ public interface ClusterModel {
 			}
 		}
 
+		/* (non-Javadoc) @see org.jredis.cluster.ClusterModel#setNodeWeight(org.jredis.cluster.ClusterNodeSpec, int) */
+		final public void setNodeWeight (ClusterNodeSpec nodeSpec, int weight) throws IllegalArgumentException {
+			if(supportsReconfiguration()){
+				synchronized (configLock) {
+					if(!clusterSpec.getNodeSpecs().contains(nodeSpec)) throw new IllegalArgumentException("NodeSpec not part of cluster spec!");
+					final int prior = nodeSpec.getWeight();
+					nodeSpec.setWeight(weight);
+					if(prior == weight) return;
+					try {
+						onNodeReweight (nodeSpec, prior);
+					}
+					catch (RuntimeException e) {
+						nodeSpec.setWeight(prior);
+						throw e;
+					}
+				}
+				notifyListeners(new ClusterModel.Event(this, ClusterModel.Event.Type.NodeReweighted, nodeSpec));
+			}
+			else {
+				throw new NotSupportedException("Cluster reconfiguration not supported.");
+			}
+		}
+
 		/* (non-Javadoc) @see org.jredis.cluster.ClusterModel#getSpec() */
 		final public ClusterSpec getSpec () {
 			return clusterSpec;
@@ -276,6 +319,15 @@ public interface ClusterModel {
 			initializeModel();
 		}
 		
+		/**
+		 * @param algo
+		 * @param key
+		 * @return the hash of the key's {@link HashTag}, if any, and otherwise of the key
+		 */
+		protected final long hashKey (HashAlgorithm algo, byte[] key) {
+			return null == hashTag ? algo.hash(key) : hashTag.hash(algo, key);
+		}
+		
 		private final void notifyListeners(ClusterModel.Event e) {
 			for(ClusterModel.Listener l : listeners)
 				l.onEvent(e);
@@ -293,6 +345,16 @@ public interface ClusterModel {
 		 * @return
 		 */
 		abstract protected boolean onNodeRemoval(ClusterNodeSpec newNode);
+		/**
+		 * Rebalances the model per the node's new weight.  Called with the config 
+		 * lock held, after the weight of the node is set.  By default, not supported.
+		 * @param node
+		 * @param priorWeight
+		 * @return
+		 */
+		protected boolean onNodeReweight(ClusterNodeSpec node, int priorWeight) {
+			throw new NotSupportedException("Node weights are not supported by this model.");
+		}
 		/**
 		 * 
 		 */
@@ -16,7 +16,10 @@
 
 package org.jredis.cluster;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 import org.jredis.connector.ConnectionSpec;
 
 /**
@@ -36,6 +39,9 @@ import org.jredis.connector.ConnectionSpec;
 
 // this is just a data structure with a few methods - make it a class
 public interface ClusterNodeSpec {
+
+	/** weight of a node of standard capacity */
+	public static final int DEFAULT_WEIGHT = 100;
 	/**
 	 * @return
 	 */
@@ -61,6 +67,50 @@ public interface ClusterNodeSpec {
 	 */
 	public String getKeyForReplicationInstance (int rangeReplicationIndex);
 	
+	/**
+	 * @return the {@link ConnectionSpec}s of the read replicas of the node, if any.  
+	 * Replicas do not affect the identity of the node.
+	 */
+	public List<ConnectionSpec> getReplicaSpecs ();
+	
+	/**
+	 * @param replicaSpec {@link ConnectionSpec} of a read replica of the node (e.g. a slave 
+	 * of the node's master)
+	 * @return this spec
+	 * @throws IllegalArgumentException if replicaSpec is null
+	 */
+	public ClusterNodeSpec addReplicaSpec (ConnectionSpec replicaSpec);
+	
+	/**
+	 * @return the routing of the node's read requests; {@link ReadPolicy#MASTER_ONLY} 
+	 * by default.
+	 */
+	public ReadPolicy getReadPolicy ();
+	
+	/**
+	 * @param readPolicy
+	 * @return this spec
+	 * @throws IllegalArgumentException if readPolicy is null
+	 */
+	public ClusterNodeSpec setReadPolicy (ReadPolicy readPolicy);
+	
+	/**
+	 * @return the relative capacity of the node, in percent of a node of standard
+	 * capacity; {@link ClusterNodeSpec#DEFAULT_WEIGHT} by default.  Consistent hash 
+	 * models scale the node's points on the ring by its weight.  The weight does not
+	 * affect the identity of the node.
+	 */
+	public int getWeight ();
+	
+	/**
+	 * Sets the weight of a node that is not (yet) in a cluster model.  To change 
+	 * the weight of a node of a model, use {@link ClusterModel#setNodeWeight(ClusterNodeSpec, int)}.
+	 * @param weight
+	 * @return this spec
+	 * @throws IllegalArgumentException if weight is not in [1, 100 * {@link ClusterNodeSpec#DEFAULT_WEIGHT}]
+	 */
+	public ClusterNodeSpec setWeight (int weight);
+	
 	// ------------------------------------------------------------------------
 	// Reference Implementation 
 	// ------------------------------------------------------------------------
@@ -83,6 +133,15 @@ public interface ClusterNodeSpec {
 		/** Cluster wide unique identifier */
 		final protected String id;
 		
+		/** {@link ConnectionSpec}s of the read replicas of this node */
+		final protected List<ConnectionSpec> replicaSpecs = new CopyOnWriteArrayList<ConnectionSpec>();
+		
+		/** routing of read requests */
+		private volatile ReadPolicy readPolicy = ReadPolicy.MASTER_ONLY;
+		
+		/** relative capacity */
+		private volatile int weight = DEFAULT_WEIGHT;
+		
 		// ------------------------------------------------------------------------
 		// Constructor(s)
 		// ------------------------------------------------------------------------
@@ -110,6 +169,39 @@ public interface ClusterNodeSpec {
 //        @Override
         final public String getId () { return this.id;}
         
+		/* (non-Javadoc) @see org.jredis.cluster.ClusterNodeSpec#getReplicaSpecs() */
+        final public List<ConnectionSpec> getReplicaSpecs () { return Collections.unmodifiableList(replicaSpecs); }
+        
+		/* (non-Javadoc) @see org.jredis.cluster.ClusterNodeSpec#addReplicaSpec(org.jredis.connector.ConnectionSpec) */
+        final public ClusterNodeSpec addReplicaSpec (ConnectionSpec replicaSpec) {
+        	if(null == replicaSpec)
+        		throw new IllegalArgumentException("null replicaSpec");
+        	replicaSpecs.add(replicaSpec);
+        	return this;
+        }
+        
+		/* (non-Javadoc) @see org.jredis.cluster.ClusterNodeSpec#getReadPolicy() */
+        final public ReadPolicy getReadPolicy () { return readPolicy; }
+        
+		/* (non-Javadoc) @see org.jredis.cluster.ClusterNodeSpec#setReadPolicy(org.jredis.cluster.ReadPolicy) */
+        final public ClusterNodeSpec setReadPolicy (ReadPolicy readPolicy) {
+        	if(null == readPolicy)
+        		throw new IllegalArgumentException("null readPolicy");
+        	this.readPolicy = readPolicy;
+        	return this;
+        }
+        
+		/* (non-Javadoc) @see org.jredis.cluster.ClusterNodeSpec#getWeight() */
+        final public int getWeight () { return weight; }
+        
+		/* (non-Javadoc) @see org.jredis.cluster.ClusterNodeSpec#setWeight(int) */
+        final public ClusterNodeSpec setWeight (int weight) {
+        	if(weight < 1 || weight > 100 * DEFAULT_WEIGHT)
+        		throw new IllegalArgumentException("weight must be in [1, " + 100 * DEFAULT_WEIGHT + "]: " + weight);
+        	this.weight = weight;
+        	return this;
+        }
+        
 		// ------------------------------------------------------------------------
 		// Identity
 		// ------------------------------------------------------------------------
@@ -19,6 +19,8 @@ package org.jredis.cluster;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Set;
+import org.jredis.cluster.support.HashAlgorithm;
+import org.jredis.cluster.support.HashTag;
 
 /**
  * [TODO: document me!]
@@ -46,6 +48,30 @@ public interface ClusterSpec {
 	public ClusterType getType ();
 	public ClusterSpec setType (ClusterType clusterType);
 	
+	/**
+	 * @return the algorithm used to hash keys, or null if the {@link ClusterModel}'s 
+	 * default is to be used.
+	 */
+	public HashAlgorithm getHashAlgorithm ();
+	
+	/**
+	 * @param hashAlgorithm algorithm used to hash keys; null for the model default.
+	 * @return this spec
+	 */
+	public ClusterSpec setHashAlgorithm (HashAlgorithm hashAlgorithm);
+	
+	/**
+	 * @return the hash tag delimiters of keys, or null if keys are hashed in full.
+	 */
+	public HashTag getHashTag ();
+	
+	/**
+	 * @param hashTag hash tag delimiters of keys, e.g. {@link HashTag#BRACES}; null 
+	 * (the default) to hash keys in full.
+	 * @return this spec
+	 */
+	public ClusterSpec setHashTag (HashTag hashTag);
+	
 	// ------------------------------------------------------------------------
 	// Membership
 	// ------------------------------------------------------------------------
@@ -97,6 +123,8 @@ public interface ClusterSpec {
 //		/**  */
 //		final protected ClusterModel distributionStrategy;
 		private ClusterType type;
+		private HashAlgorithm hashAlgorithm;
+		private HashTag hashTag;
 		
 		/**  */
 		final protected Set<ClusterNodeSpec> nodeSpecs = new HashSet<ClusterNodeSpec>();
@@ -114,6 +142,12 @@ public interface ClusterSpec {
 		public ClusterType getType() { return type; }
 		public ClusterSpec setType(ClusterType type) { this.type = type; return this; }
 		
+		public HashAlgorithm getHashAlgorithm() { return hashAlgorithm; }
+		public ClusterSpec setHashAlgorithm(HashAlgorithm hashAlgorithm) { this.hashAlgorithm = hashAlgorithm; return this; }
+		
+		public HashTag getHashTag() { return hashTag; }
+		public ClusterSpec setHashTag(HashTag hashTag) { this.hashTag = hashTag; return this; }
+		
 		/* (non-Javadoc) @see org.jredis.cluster.ClusterSpec#addAll(java.util.List) */
 //      @Override
         public boolean addAll (Collection<ClusterNodeSpec> nodes) {
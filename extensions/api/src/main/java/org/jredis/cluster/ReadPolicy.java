@@ -0,0 +1,40 @@
+/*
+ *   Copyright 2009-2012 Joubin Houshyar
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package org.jredis.cluster;
+
+/**
+ * Routing of the read-only requests of a cluster node with replicas (see
+ * {@link ClusterNodeSpec#addReplicaSpec(org.jredis.connector.ConnectionSpec)}).
+ * Writes are always sent to the node's master.
+ * <p>
+ * Note that replicas may lag their master: reads routed to replicas may not
+ * reflect the latest writes.
+ *
+ * @author  joubin (alphazero@sensesay.net)
+ * @date    Apr 16, 2012
+ *
+ */
+public enum ReadPolicy {
+	/** reads are sent to the master (the default) */
+	MASTER_ONLY,
+	/** reads are spread over the replicas in turn */
+	ROUND_ROBIN,
+	/** reads are sent to the replica with the fewest outstanding requests */
+	LEAST_OUTSTANDING,
+	/** reads are sent to the replica with the lowest expected wait: its (moving average) latency times its outstanding requests */
+	LATENCY_WEIGHTED
+}
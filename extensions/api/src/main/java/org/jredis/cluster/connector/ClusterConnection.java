@@ -17,6 +17,7 @@
 package org.jredis.cluster.connector;
 
 import java.util.Collection;
+import java.util.concurrent.TimeUnit;
 import org.jredis.NotSupportedException;
 import org.jredis.cluster.ClusterModel;
 import org.jredis.cluster.ClusterNodeSpec;
@@ -38,7 +39,7 @@ import org.jredis.protocol.Command;
  * throw a {@link NotSupportedException}.
  * <li>All the underlying {@link Connection}s for the cluster must have the
  * same {@link Connection.Modality} as that which is returned by the cluster's 
- * {@link Connection#getModality()} method.
+ * {@link ClusterConnection#getModality()} method.
  * <p>
  * Further, some implementations may elect to not support Redis {@link Command}s 
  * which are problematic in context of a cluster, and must accurately indicate
@@ -72,6 +73,12 @@ public interface ClusterConnection extends Connection{
 	 */
 	public ClusterModel getClusterModel();
 	
+	/**
+	 * @return the {@link Connection.Modality} of this {@link ClusterConnection}, and
+	 * of all its node connections.
+	 */
+	public Connection.Modality getModality();
+	
 	/**
 	 * Indicates whether the specific {@link Command} is supported by this {@link ClusterConnection}.
 	 * @param cmd
@@ -83,4 +90,38 @@ public interface ClusterConnection extends Connection{
 	 * @return the set of {@link Command}s supported by this {@link ClusterConnection}
 	 */
 	public Collection<Command> getSupportedCommands ();
+	
+	/**
+	 * Sets the migration window opened on reconfiguration of the cluster's model.
+	 * During the window, reads of keys whose owner node changed fall back to the
+	 * previous owner, if the key is not found on the current owner, and connections
+	 * to removed nodes remain open.
+	 * @param window 0 for no migration window
+	 * @param unit
+	 * @throws NotSupportedException if the model can not be reconfigured
+	 */
+	public void setMigrationWindow (long window, TimeUnit unit);
+	
+	/**
+	 * Sets the ejection of failing nodes.  A node is ejected when its connection 
+	 * fails the set number of consecutive requests (e.g. on I/O errors or socket 
+	 * timeouts), or faults.  Keys of ejected nodes of consistent hash models are 
+	 * remapped to the live nodes, and requests for the keys of other ejected nodes
+	 * fail fast.  Ejected nodes are probed in the background, and re-admitted when 
+	 * they respond.
+	 * @param failureThreshold consecutive failures that eject a node -- 0 for no ejection
+	 * @param probeInterval interval of the probes of the ejected nodes
+	 * @param unit
+	 */
+	public void setNodeEjection (int failureThreshold, long probeInterval, TimeUnit unit);
+	
+	/**
+	 * Sets the cache of the nodes of (hot) keys, sparing their re-hashing and 
+	 * lookup on the model's configuration on each request.  The cache is bounded: 
+	 * a key replaces the cached key of its slot, and it is invalidated on all
+	 * changes of the configuration (including node ejections).  A new cache replaces
+	 * the current.
+	 * @param capacity number of cached keys, rounded up to a power of 2 -- 0 for no cache
+	 */
+	public void setRoutingCache (int capacity);
 }
@@ -16,6 +16,7 @@
 
 package org.jredis.cluster.model;
 
+import java.util.Map;
 import java.util.SortedMap;
 import org.jredis.cluster.ClusterModel;
 import org.jredis.cluster.ClusterNodeSpec;
@@ -45,6 +46,20 @@ public interface ConsistentHashCluster extends ClusterModel {
 	 */
 	NodeMap getNodeMap ();
 	
+	/**
+	 * @return the current lookup snapshot of the node map.  A reconfiguration of
+	 * the model publishes a new ring, and does not modify a returned ring.
+	 */
+	ConsistentHashRing getRing ();
+	
+	/**
+	 * Maps the key per a (possibly prior) ring of this model.
+	 * @param key
+	 * @param ring a ring of this model -- see {@link ConsistentHashCluster#getRing()}
+	 * @return the node for the key on the given ring
+	 */
+	ClusterNodeSpec getNodeForKey (byte[] key, ConsistentHashRing ring);
+	
 	// ========================================================================
 	// Inner Types
 	// ========================================================================
@@ -65,8 +80,10 @@ public interface ConsistentHashCluster extends ClusterModel {
 		
 		/** what is a sensible value here? */
 		protected static final double DEFAULT_REPLICATION_CONST = 100;
-		/**  */
-		protected NodeMap	nodeMap;
+		/** copy-on-write: replaced, not modified, on reconfiguration */
+		protected volatile NodeMap	nodeMap;
+		/** lookup snapshot of the nodeMap -- see {@link Support#snapshotRing()} */
+		protected volatile ConsistentHashRing ring;
 		/**  */
 		protected int nodeReplicationCnt;
 		
@@ -95,6 +112,13 @@ public interface ConsistentHashCluster extends ClusterModel {
          */
         abstract protected void mapNodes();
         
+        /**
+         * Maps the replication points of the node on the given map.
+         * @param map
+         * @param node
+         */
+        abstract protected void mapNode(NodeMap map, ClusterNodeSpec node);
+        
         /**
          * TODO: need to change this to getReplicationConstant and 
          * TODO: extend ClusterSpec to allow setting of arbitrary parameters so it can be user configured.
@@ -117,7 +141,8 @@ public interface ConsistentHashCluster extends ClusterModel {
 		// ------------------------------------------------------------------------
         /**
          * This method will first invoke {@link ConsistentHashCluster.Support#initializeComponents()},
-         * and then will invoke the abstract {@link ConsistentHashCluster.Support#mapNodes()}.
+         * and then will invoke the abstract {@link ConsistentHashCluster.Support#mapNodes()}, and
+         * finally snapshot the node map into the lookup {@link ConsistentHashRing}.
          * <p>
          * When this method returns, the cluster model is expected to be ready to service request to 
          * map keys to nodes.
@@ -131,24 +156,98 @@ public interface ConsistentHashCluster extends ClusterModel {
         	nodeReplicationCnt = replicationCount();
         	nodeMap = newClusterNodeMap();
         	mapNodes();
+        	snapshotRing();
+        }
+        
+        /**
+         * Publishes a new {@link ConsistentHashRing} of the current node map.  Models 
+         * supporting reconfiguration must call this method after modifying the node map. 
+         */
+        protected final void snapshotRing () {
+        	ring = ConsistentHashRing.snapshot(nodeMap);
         }
 
-		/* (non-Javadoc) @see org.jredis.cluster.ClusterModel.Support#onNodeAddition(org.jredis.cluster.ClusterNodeSpec) */
+		/**
+		 * Maps the new node on a copy of the node map, and publishes the copy and its
+		 * ring.  Only keys mapped to the new node's points change owner.  Called with
+		 * the config lock held.
+		 * @see Support#mapNodeFree(NodeMap, ClusterNodeSpec)
+		 * @see org.jredis.cluster.ClusterModel.Support#onNodeAddition(org.jredis.cluster.ClusterNodeSpec) 
+		 */
         @Override
         protected boolean onNodeAddition (ClusterNodeSpec newNode) {
-        	throw new RuntimeException("not implemented");        
+        	NodeMap next = newClusterNodeMap();
+        	next.putAll(nodeMap);
+        	mapNodeFree(next, newNode);
+        	nodeMap = next;
+        	snapshotRing();
+        	return true;
         }
 
-		/* (non-Javadoc) @see org.jredis.cluster.ClusterModel.Support#onNodeRemoval(org.jredis.cluster.ClusterNodeSpec) */
+		/**
+		 * Unmaps the node's points on a copy of the node map, and publishes the copy
+		 * and its ring.  Only keys mapped to the removed node change owner.  Called 
+		 * with the config lock held.
+		 * @see org.jredis.cluster.ClusterModel.Support#onNodeRemoval(org.jredis.cluster.ClusterNodeSpec) 
+		 */
         @Override
-        protected boolean onNodeRemoval (ClusterNodeSpec newNode) {
-        	throw new RuntimeException("not implemented");        
+        protected boolean onNodeRemoval (ClusterNodeSpec node) {
+        	nodeMap = copyWithout(node);
+        	snapshotRing();
+        	return true;
+        }
+
+		/**
+		 * Remaps the node's points, per its new weight, on a copy of the node map, 
+		 * and publishes the copy and its ring.  Only keys mapped to the points the
+		 * node gains or loses change owner, if {@link Support#mapNode(NodeMap, ClusterNodeSpec)}
+		 * maps the points of a lesser weight as a subset of those of a greater.  Called 
+		 * with the config lock held.
+		 * @see org.jredis.cluster.ClusterModel.Support#onNodeReweight(org.jredis.cluster.ClusterNodeSpec, int)
+		 */
+        @Override
+        protected boolean onNodeReweight (ClusterNodeSpec node, int priorWeight) {
+        	NodeMap next = copyWithout(node);
+        	mapNodeFree(next, node);
+        	nodeMap = next;
+        	snapshotRing();
+        	return true;
+        }
+
+        /**
+         * Maps the points of the node that are not points of other nodes: colliding points 
+         * remain with their owner, so that removing the node later does not drop them.
+         * @param map
+         * @param node
+         */
+        private void mapNodeFree (NodeMap map, ClusterNodeSpec node) {
+        	NodeMap points = newClusterNodeMap();
+        	mapNode(points, node);
+        	for(Map.Entry<Long, ClusterNodeSpec> e : points.entrySet()){
+        		if(!map.containsKey(e.getKey()))
+        			map.put(e.getKey(), e.getValue());
+        	}
+        }
+
+        /** @return a copy of the node map, without the points of the node */
+        private NodeMap copyWithout (ClusterNodeSpec node) {
+        	NodeMap next = newClusterNodeMap();
+        	for(Map.Entry<Long, ClusterNodeSpec> e : nodeMap.entrySet()){
+        		if(!e.getValue().equals(node))
+        			next.put(e.getKey(), e.getValue());
+        	}
+        	return next;
+        }
+
+		/* (non-Javadoc) @see org.jredis.cluster.model.ConsistentHashCluster#getRing() */
+        final public ConsistentHashRing getRing () {
+        	return ring;
         }
 
     	/**
-    	 * TODO: return the map or clone it?  WHY IS METHOD EVEN NECESSARY?
+    	 * The returned map is not modified by reconfigurations of the model, which
+    	 * replace the node map.
     	 * @see org.jredis.cluster.model.ConsistentHashCluster#getNodeMap()
-    	 * @return ???
     	 */
         public NodeMap getNodeMap () {
     	    return nodeMap;
@@ -0,0 +1,139 @@
+/*
+ *   Copyright 2009-2012 Joubin Houshyar
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package org.jredis.cluster.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import org.jredis.cluster.ClusterNodeSpec;
+
+/**
+ * Immutable snapshot of a {@link ConsistentHashCluster.NodeMap}, for lookups.
+ * <p>
+ * The ring points are held in a sorted <code>long[]</code>, with a parallel array
+ * of indexes into the (distinct) nodes of the ring.  A lookup is a binary search for
+ * the first point at or after the hash, wrapping around to the first point of the
+ * ring -- no boxing, and no allocation.
+ * <p>
+ * Models rebuild the ring on (re)configuration of the node map, and publish it
+ * (e.g. via a volatile reference) to the lookup threads.
+ *
+ * @author  Joubin Houshyar (alphazero@sensesay.net)
+ * @date    Apr 14, 2012
+ *
+ */
+
+public final class ConsistentHashRing {
+
+	// ------------------------------------------------------------------------
+	// Properties
+	// ------------------------------------------------------------------------
+	/** sorted ring points */
+	private final long[]			points;
+	/** owners[i] is the index in nodes of the owner of points[i] */
+	private final int[]				owners;
+	/** distinct nodes of the ring */
+	private final ClusterNodeSpec[]	nodes;
+
+	// ------------------------------------------------------------------------
+	// Constructor
+	// ------------------------------------------------------------------------
+	private ConsistentHashRing (long[] points, int[] owners, ClusterNodeSpec[] nodes) {
+		this.points = points;
+		this.owners = owners;
+		this.nodes = nodes;
+	}
+
+	/**
+	 * @param nodeMap node map, in natural order of its keys
+	 * @return an immutable ring of the node map's current mappings.  The node map
+	 * must not be modified during the call.
+	 */
+	public static ConsistentHashRing snapshot (SortedMap<Long, ClusterNodeSpec> nodeMap) {
+		if(null == nodeMap) throw new IllegalArgumentException("null nodeMap");
+		if(null != nodeMap.comparator()) throw new IllegalArgumentException("nodeMap must be in natural order");
+
+		final int size = nodeMap.size();
+		final long[] points = new long[size];
+		final int[] owners = new int[size];
+		final Map<ClusterNodeSpec, Integer> index = new IdentityHashMap<ClusterNodeSpec, Integer>();
+		final List<ClusterNodeSpec> nodes = new ArrayList<ClusterNodeSpec>();
+		int i = 0;
+		for(Map.Entry<Long, ClusterNodeSpec> e : nodeMap.entrySet()){
+			final ClusterNodeSpec node = e.getValue();
+			Integer n = index.get(node);
+			if(n == null){
+				n = nodes.size();
+				index.put(node, n);
+				nodes.add(node);
+			}
+			points[i] = e.getKey();
+			owners[i] = n;
+			i++;
+		}
+		return new ConsistentHashRing(points, owners, nodes.toArray(new ClusterNodeSpec[nodes.size()]));
+	}
+
+	// ------------------------------------------------------------------------
+	// Interface
+	// ------------------------------------------------------------------------
+	/**
+	 * @param hash
+	 * @return the node owning the first point at or after the hash (wrapping around),
+	 * or null if the ring is empty.
+	 */
+	public ClusterNodeSpec get (long hash) {
+		final int i = indexOf(hash);
+		return i < 0 ? null : nodes[owners[i]];
+	}
+
+	/**
+	 * @param hash
+	 * @return index of the first point at or after the hash (wrapping around), or -1
+	 * if the ring is empty.
+	 */
+	public int indexOf (long hash) {
+		if(points.length == 0) return -1;
+		int i = Arrays.binarySearch(points, hash);
+		if(i < 0) {
+			i = -i - 1;
+			if(i == points.length) i = 0;
+		}
+		return i;
+	}
+
+	/** @return the number of points on the ring */
+	public int size () { return points.length; }
+
+	/** @return the number of distinct nodes on the ring */
+	public int nodeCount () { return nodes.length; }
+
+	/**
+	 * @param i point index
+	 * @return the hash of the point
+	 */
+	public long pointAt (int i) { return points[i]; }
+
+	/**
+	 * @param i point index
+	 * @return the node owning the point
+	 */
+	public ClusterNodeSpec nodeAt (int i) { return nodes[owners[i]]; }
+}
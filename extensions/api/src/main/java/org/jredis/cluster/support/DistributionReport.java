@@ -0,0 +1,183 @@
+/*
+ *   Copyright 2009-2012 Joubin Houshyar
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package org.jredis.cluster.support;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Formatter;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.jredis.cluster.ClusterModel;
+import org.jredis.cluster.ClusterNodeSpec;
+import org.jredis.cluster.model.ConsistentHashCluster;
+import org.jredis.cluster.model.ConsistentHashRing;
+
+/**
+ * Distribution of a sample keyspace over the nodes of a {@link ClusterModel},
+ * against the share of each node per its weight (see {@link ClusterNodeSpec#getWeight()}),
+ * to verify that the load of the nodes matches their capacity.
+ * <p>
+ * For {@link ConsistentHashCluster} models, the report also has the share of the
+ * (32 bit) hash space owned by each node on the ring.
+ * <p>
+ * A report is a snapshot of the model at sampling; reconfigure the model and sample
+ * again to see the effect of e.g. {@link ClusterModel#setNodeWeight(ClusterNodeSpec, int)}.
+ *
+ * @author  joubin (alphazero@sensesay.net)
+ * @date    Apr 16, 2012
+ *
+ */
+
+public final class DistributionReport {
+
+	// ------------------------------------------------------------------------
+	// Properties
+	// ------------------------------------------------------------------------
+	/** size of the hash space of the ring */
+	private static final double HASH_SPACE = 1L << 32;
+
+	private final List<ClusterNodeSpec>	nodes;
+	private final Map<ClusterNodeSpec, Integer> index;
+	private final int[]		weights;
+	private final int[]		keyCounts;
+	private final double[]	ringShares;
+	private final long		totalWeight;
+	private int				keyCnt;
+
+	// ------------------------------------------------------------------------
+	// Constructor
+	// ------------------------------------------------------------------------
+	private DistributionReport (ClusterModel model) {
+		nodes = new ArrayList<ClusterNodeSpec>(model.getSpec().getNodeSpecs());
+		Collections.sort(nodes, new Comparator<ClusterNodeSpec>() {
+			public int compare (ClusterNodeSpec a, ClusterNodeSpec b) { return a.getId().compareTo(b.getId()); }
+		});
+		index = new HashMap<ClusterNodeSpec, Integer>(nodes.size() * 2);
+		weights = new int[nodes.size()];
+		keyCounts = new int[nodes.size()];
+		ringShares = new double[nodes.size()];
+		long total = 0;
+		for(int n=0; n<nodes.size(); n++){
+			index.put(nodes.get(n), n);
+			weights[n] = nodes.get(n).getWeight();
+			total += weights[n];
+		}
+		totalWeight = total;
+	}
+
+	/**
+	 * @param model
+	 * @param keys sample keyspace
+	 * @return the distribution of the keys over the nodes of the model
+	 * @throws IllegalArgumentException if model or keys is null
+	 */
+	public static DistributionReport sample (ClusterModel model, Iterable<byte[]> keys) {
+		if(null == model || null == keys) throw new IllegalArgumentException("null model or keys");
+		DistributionReport report = new DistributionReport(model);
+		for(byte[] key : keys) {
+			Integer n = report.index.get(model.getNodeForKey(key));
+			if(null != n) report.keyCounts[n]++;
+			report.keyCnt++;
+		}
+		if(model instanceof ConsistentHashCluster)
+			report.measureRing(((ConsistentHashCluster) model).getRing());
+		else
+			Arrays.fill(report.ringShares, Double.NaN);
+		return report;
+	}
+
+	/**
+	 * @param model
+	 * @param keyCnt
+	 * @return the distribution of the keys <code>key:0</code> to <code>key:(keyCnt - 1)</code>
+	 */
+	public static DistributionReport sample (ClusterModel model, int keyCnt) {
+		if(keyCnt < 1) throw new IllegalArgumentException("keyCnt: " + keyCnt);
+		List<byte[]> keys = new ArrayList<byte[]>(keyCnt);
+		for(int k=0; k<keyCnt; k++)
+			keys.add(("key:" + k).getBytes());
+		return sample(model, keys);
+	}
+
+	// ------------------------------------------------------------------------
+	// Interface
+	// ------------------------------------------------------------------------
+	/** @return the nodes of the model, in order of their ids */
+	public List<ClusterNodeSpec> getNodes () { return Collections.unmodifiableList(nodes); }
+
+	/** @return the number of keys of the sample */
+	public int getKeyCount () { return keyCnt; }
+
+	/** @return the number of keys of the sample mapped to the node */
+	public int getKeyCount (ClusterNodeSpec node) { return keyCounts[indexOf(node)]; }
+
+	/** @return the node's share of the keys of the sample */
+	public double getKeyShare (ClusterNodeSpec node) {
+		return keyCnt == 0 ? 0 : (double) keyCounts[indexOf(node)] / keyCnt;
+	}
+
+	/** @return the node's share per its weight */
+	public double getExpectedShare (ClusterNodeSpec node) {
+		return (double) weights[indexOf(node)] / totalWeight;
+	}
+
+	/** @return the node's share of the hash space of the ring, or NaN if the model is not a {@link ConsistentHashCluster} */
+	public double getRingShare (ClusterNodeSpec node) { return ringShares[indexOf(node)]; }
+
+	/** @return the greatest relative deviation of a node's key share from its expected share */
+	public double getMaxDeviation () {
+		double max = 0;
+		for(ClusterNodeSpec node : nodes)
+			max = Math.max(max, Math.abs(getKeyShare(node) / getExpectedShare(node) - 1));
+		return max;
+	}
+
+	@Override
+	public String toString () {
+		Formatter fmt = new Formatter();
+		fmt.format("%-24s %8s %10s %10s %10s %10s%n", "node", "weight", "keys", "key share", "expected", "ring share");
+		for(ClusterNodeSpec node : nodes) {
+			fmt.format("%-24s %8d %10d %9.2f%% %9.2f%% %9.2f%%%n", node.getId(), weights[indexOf(node)], getKeyCount(node),
+					getKeyShare(node) * 100, getExpectedShare(node) * 100, getRingShare(node) * 100);
+		}
+		fmt.format("%d keys, max deviation from expected share: %.2f%%", keyCnt, getMaxDeviation() * 100);
+		return fmt.toString();
+	}
+
+	// ------------------------------------------------------------------------
+	// Internal ops
+	// ------------------------------------------------------------------------
+	private int indexOf (ClusterNodeSpec node) {
+		Integer n = index.get(node);
+		if(null == n) throw new IllegalArgumentException("node is not in the report: " + node);
+		return n;
+	}
+
+	/** Sums the arcs of the ring owned by each node: the arc of a point is from its predecessor */
+	private void measureRing (ConsistentHashRing ring) {
+		final int size = ring.size();
+		for(int i=0; i<size; i++) {
+			Integer n = index.get(ring.nodeAt(i));
+			if(null == n) continue;
+			long arc = i == 0 ? ring.pointAt(0) + (1L << 32) - ring.pointAt(size - 1) : ring.pointAt(i) - ring.pointAt(i - 1);
+			ringShares[n] += arc / HASH_SPACE;
+		}
+	}
+}
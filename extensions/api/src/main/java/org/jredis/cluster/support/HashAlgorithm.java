@@ -17,7 +17,15 @@
 package org.jredis.cluster.support;
 
 /**
- * silly me?  Remove this.
+ * Hashes keys for the {@link org.jredis.cluster.ClusterModel}s.  
+ * <p>
+ * Hashes are a function of the key's content only, and are (unsigned) values in the
+ * lower 32 bits of the long -- consistent hash models map them onto a 32 bit ring.  
+ * Algorithms with a narrower range (e.g. CRC16) are only suitable for static hash models. 
+ * Implementations must be thread-safe, and should not allocate.  Those that can hash
+ * a range of the key in place should implement {@link RangeHashAlgorithm}.
+ * <p>
+ * The algorithm of a cluster can be set with {@link org.jredis.cluster.ClusterSpec#setHashAlgorithm(HashAlgorithm)}.
  *
  * @author  joubin (alphazero@sensesay.net)
  * @date    Mar 24, 2010
@@ -25,5 +33,10 @@ package org.jredis.cluster.support;
  */
 
 public interface HashAlgorithm {
+	/**
+	 * @param kb key bytes
+	 * @return the hash of the key
+	 * @throws IllegalArgumentException if kb is null or zero length
+	 */
 	public long hash(byte[] kb);
 }
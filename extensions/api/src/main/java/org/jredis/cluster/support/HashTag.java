@@ -0,0 +1,115 @@
+/*
+ *   Copyright 2009-2012 Joubin Houshyar
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package org.jredis.cluster.support;
+
+/**
+ * Hash tags of keys, e.g. <code>{user:1000}.followers</code>: if a key has a tag,
+ * only the tag is hashed, so that related keys can be co-located on a node, and
+ * used together in multi-key requests (e.g. SINTER, RENAME, SMOVE) on a cluster.
+ * <p>
+ * The tag is the content between the first open delimiter and the first close
+ * delimiter after it.  Keys with no tag, or with an empty tag (e.g. <code>{}x</code>),
+ * are hashed in full.
+ * <p>
+ * The hash tag of a cluster can be set with {@link org.jredis.cluster.ClusterSpec#setHashTag(HashTag)}.
+ * Scanning does not allocate, and instances are immutable.
+ *
+ * @author  joubin (alphazero@sensesay.net)
+ * @date    Apr 16, 2012
+ *
+ */
+
+public final class HashTag {
+
+	/** <code>{tag}</code> */
+	public static final HashTag BRACES = new HashTag('{', '}');
+
+	// ------------------------------------------------------------------------
+	// Properties
+	// ------------------------------------------------------------------------
+	private final byte open;
+	private final byte close;
+
+	// ------------------------------------------------------------------------
+	// Constructor
+	// ------------------------------------------------------------------------
+	/**
+	 * @param open tag open delimiter
+	 * @param close tag close delimiter
+	 * @throws IllegalArgumentException if a delimiter is not (7 bit) ASCII
+	 */
+	public HashTag (char open, char close) {
+		if(open > 0x7F || close > 0x7F) throw new IllegalArgumentException("hash tag delimiters must be ASCII characters");
+		this.open = (byte) open;
+		this.close = (byte) close;
+	}
+
+	// ------------------------------------------------------------------------
+	// Interface
+	// ------------------------------------------------------------------------
+	/**
+	 * @param key
+	 * @return the offset of the key's bytes to hash in the high int, and their
+	 * length in the low int: the tag, if any, and otherwise the whole key.
+	 * @see HashTag#offset(long)
+	 * @see HashTag#length(long)
+	 */
+	public long span (byte[] key) {
+		final int len = key.length;
+		int start = 0;
+		while(start < len && key[start] != open) start++;
+		for(int end = start + 1; end < len; end++){
+			if(key[end] == close) {
+				if(end > start + 1)
+					return ((long) (start + 1) << 32) | (end - start - 1);
+				break;
+			}
+		}
+		return len;
+	}
+
+	/**
+	 * @param algo
+	 * @param key
+	 * @return the hash of the key's tag, if any, and otherwise of the key
+	 * @throws IllegalArgumentException if key is null or zero length
+	 */
+	public long hash (HashAlgorithm algo, byte[] key) {
+		if(null == key || key.length == 0) throw new IllegalArgumentException();
+		final long span = span(key);
+		final int offset = offset(span);
+		final int length = length(span);
+		if(algo instanceof RangeHashAlgorithm)
+			return ((RangeHashAlgorithm) algo).hash(key, offset, length);
+		if(length == key.length)
+			return algo.hash(key);
+		byte[] tag = new byte[length];
+		System.arraycopy(key, offset, tag, 0, length);
+		return algo.hash(tag);
+	}
+
+	/** @param span per {@link HashTag#span(byte[])} @return offset */
+	public static int offset (long span) { return (int) (span >>> 32); }
+
+	/** @param span per {@link HashTag#span(byte[])} @return length */
+	public static int length (long span) { return (int) span; }
+
+	@Override
+	public String toString () {
+		return String.format("HashTag [%c tag %c]", (char) open, (char) close);
+	}
+}
@@ -0,0 +1,39 @@
+/*
+ *   Copyright 2009-2012 Joubin Houshyar
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *    
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *    
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package org.jredis.cluster.support;
+
+/**
+ * A {@link HashAlgorithm} that hashes a range of the key bytes in place, e.g. its 
+ * {@link HashTag}.  The {@link HashTag} of other algorithms is hashed from a copy.
+ *
+ * @author  joubin (alphazero@sensesay.net)
+ * @date    Apr 16, 2012
+ * 
+ */
+
+public interface RangeHashAlgorithm extends HashAlgorithm {
+	/**
+	 * Hashes a range of the key bytes without copying: the hash is that of an 
+	 * array of just the range.
+	 * @param kb key bytes
+	 * @param offset
+	 * @param length
+	 * @return the hash of the range
+	 * @throws IllegalArgumentException if kb is null, or the range is zero length
+	 */
+	public long hash(byte[] kb, int offset, int length);
+}
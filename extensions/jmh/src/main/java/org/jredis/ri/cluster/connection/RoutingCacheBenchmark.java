@@ -0,0 +1,108 @@
+/*
+ *   Copyright 2009-2012 Joubin Houshyar
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package org.jredis.ri.cluster.connection;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.jredis.cluster.ClusterNodeSpec;
+import org.jredis.cluster.ClusterSpec;
+import org.jredis.ri.alphazero.connection.DefaultConnectionSpec;
+import org.jredis.ri.cluster.DefaultClusterNodeSpec;
+import org.jredis.ri.cluster.DefaultClusterSpec;
+import org.jredis.ri.cluster.model.KetamaClusterModel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Key to node lookup cost with a {@link RoutingCache} (as the cluster connections
+ * route keys), against the uncached lookup of the {@link KetamaClusterModel}.  With
+ * <code>keys</code> below the capacity of the cache, the lookups are (all but) hits;
+ * above it, mostly misses -- which cost the cache lookup on top of the uncached one.
+ *
+ * @author  joubin (alphazero@sensesay.net)
+ * @date    Apr 16, 2012
+ *
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RoutingCacheBenchmark {
+
+	/** number of distinct keys looked up in turn */
+	@Param({"64", "65536"})
+	public int keys;
+
+	private static final int	NODES = 10;
+	private static final int	CAPACITY = 1024;
+
+	private byte[][]			keyBytes;
+	private KetamaClusterModel	model;
+	private RoutingCache		cache;
+	private int					i;
+
+	@Setup
+	public void setup () {
+		ClusterSpec spec = new DefaultClusterSpec();
+		for(int n=0; n<NODES; n++)
+			spec.addNode(new DefaultClusterNodeSpec(DefaultConnectionSpec.newSpec("localhost", 6379+n, 0, null)));
+		model = new KetamaClusterModel(spec);
+		cache = new RoutingCache(CAPACITY);
+
+		Random random = new Random(keys);
+		keyBytes = new byte[keys][];
+		for(int j=0; j<keys; j++)
+			keyBytes[j] = ("user:" + random.nextInt(100000000) + ":session").getBytes();
+	}
+
+	private byte[] next () {
+		i = (i + 1) & (keys - 1);
+		return keyBytes[i];
+	}
+
+	/** KetamaClusterModel.getNodeForKey: hash and ring search */
+	@Benchmark
+	public ClusterNodeSpec uncached () {
+		return model.getNodeForKey(next());
+	}
+
+	/** per ClusterConnectionBase.getConnectionForKey with a routing cache */
+	@Benchmark
+	public ClusterNodeSpec cached () {
+		final byte[] key = next();
+		final int fp = RoutingCache.fingerprint(key);
+		ClusterNodeSpec node = cache.get(key, fp);
+		if(null == node) {
+			final int generation = cache.generation();
+			node = model.getNodeForKey(key);
+			cache.put(key, fp, node, generation);
+		}
+		return node;
+	}
+}
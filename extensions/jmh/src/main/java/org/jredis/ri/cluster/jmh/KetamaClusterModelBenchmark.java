@@ -0,0 +1,132 @@
+/*
+ *   Copyright 2009-2012 Joubin Houshyar
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package org.jredis.ri.cluster.jmh;
+
+import java.security.MessageDigest;
+import java.util.Random;
+import java.util.SortedMap;
+import java.util.concurrent.TimeUnit;
+import org.jredis.cluster.ClusterNodeSpec;
+import org.jredis.cluster.ClusterSpec;
+import org.jredis.cluster.model.ConsistentHashCluster;
+import org.jredis.cluster.model.ConsistentHashRing;
+import org.jredis.ri.alphazero.connection.DefaultConnectionSpec;
+import org.jredis.ri.cluster.DefaultClusterNodeSpec;
+import org.jredis.ri.cluster.DefaultClusterSpec;
+import org.jredis.ri.cluster.model.KetamaClusterModel;
+import org.jredis.ri.cluster.model.KetamaHashProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Key to node lookup cost of {@link KetamaClusterModel}: the {@link ConsistentHashRing}
+ * with the per thread MD5 digest, against the prior lookup (MD5 digest instance per
+ * key and the boxed <code>TreeMap</code> walk), and each of hash and ring search alone.
+ *
+ * @author  Joubin Houshyar (alphazero@sensesay.net)
+ * @date    Apr 14, 2012
+ *
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KetamaClusterModelBenchmark {
+
+	@Param({"10", "100"})
+	public int nodes;
+
+	private static final int	N = 1024;
+
+	private final byte[][]		keys = new byte[N][];
+	private final long[]		hashes = new long[N];
+	private KetamaClusterModel	model;
+	private ConsistentHashCluster.NodeMap nodeMap;
+	private ConsistentHashRing	ring;
+	private KetamaHashProvider	hashAlgo;
+	private int					i;
+
+	@Setup
+	public void setup () {
+		ClusterSpec spec = new DefaultClusterSpec();
+		for(int n=0; n<nodes; n++)
+			spec.addNode(new DefaultClusterNodeSpec(DefaultConnectionSpec.newSpec("localhost", 6379+n, 0, null)));
+		model = new KetamaClusterModel(spec);
+		nodeMap = model.getNodeMap();
+		ring = ConsistentHashRing.snapshot(nodeMap);
+		hashAlgo = new KetamaHashProvider();
+
+		Random random = new Random(N);
+		for(int j=0; j<N; j++){
+			keys[j] = ("user:" + random.nextInt(1000000) + ":session").getBytes();
+			hashes[j] = hashAlgo.hash(keys[j]);
+		}
+	}
+
+	private int next () {
+		return i = (i + 1) & (N - 1);
+	}
+
+	/** KetamaClusterModel.getNodeForKey: thread MD5 digest and ring search */
+	@Benchmark
+	public ClusterNodeSpec getNodeForKey () {
+		return model.getNodeForKey(keys[next()]);
+	}
+
+	/** the prior getNodeForKey: MD5 digest instance per key and TreeMap walk */
+	@Benchmark
+	public ClusterNodeSpec treeMapLookup () throws Exception {
+		MessageDigest md5 = MessageDigest.getInstance("MD5");
+		md5.update(keys[next()]);
+		byte[] kb = md5.digest();
+		long hash = ((long) (kb[3] & 0xFF) << 24) | ((long) (kb[2] & 0xFF) << 16) | ((long) (kb[1] & 0xFF) << 8) | (kb[0] & 0xFF);
+		if(!nodeMap.containsKey(hash)) {
+			SortedMap<Long, ClusterNodeSpec> tailMap = nodeMap.tailMap(hash);
+			hash = tailMap.isEmpty() ? nodeMap.firstKey() : tailMap.firstKey();
+		}
+		return nodeMap.get(hash);
+	}
+
+	@Benchmark
+	public long hash () {
+		return hashAlgo.hash(keys[next()]);
+	}
+
+	@Benchmark
+	public ClusterNodeSpec ringSearch () {
+		return ring.get(hashes[next()]);
+	}
+
+	@Benchmark
+	public ClusterNodeSpec treeMapSearch () {
+		long hash = hashes[next()];
+		SortedMap<Long, ClusterNodeSpec> tailMap = nodeMap.tailMap(hash);
+		return nodeMap.get(tailMap.isEmpty() ? nodeMap.firstKey() : tailMap.firstKey());
+	}
+}
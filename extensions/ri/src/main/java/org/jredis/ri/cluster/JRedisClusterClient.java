@@ -0,0 +1,68 @@
+/*
+ *   Copyright 2009-2012 Joubin Houshyar
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package org.jredis.ri.cluster;
+
+import org.jredis.ClientRuntimeException;
+import org.jredis.JRedis;
+import org.jredis.ProviderException;
+import org.jredis.RedisException;
+import org.jredis.cluster.ClusterModel;
+import org.jredis.cluster.connector.ClusterConnection;
+import org.jredis.protocol.Command;
+import org.jredis.protocol.Response;
+import org.jredis.ri.alphazero.JRedisSupport;
+import org.jredis.ri.cluster.connection.SynchClusterConnection;
+
+/**
+ * A synchronous {@link JRedis} client of a cluster of Redis servers, utilizing
+ * the {@link SynchClusterConnection}.  Commands not supported by the cluster
+ * connection (see {@link ClusterConnection#supports(Command)}) throw a
+ * {@link org.jredis.NotSupportedException}.
+ * <p>
+ * Thread-safe.
+ *
+ * @author  joubin (alphazero@sensesay.net)
+ * @date    Apr 15, 2012
+ * 
+ */
+
+public class JRedisClusterClient extends JRedisSupport {
+
+	final private SynchClusterConnection	connection;
+
+	/**
+	 * Connects to all nodes of the model's cluster.
+	 * @param model
+	 * @throws ClientRuntimeException
+	 */
+	public JRedisClusterClient (ClusterModel model) throws ClientRuntimeException {
+		connection = new SynchClusterConnection(model);
+	}
+
+	/* (non-Javadoc) @see org.jredis.ri.alphazero.JRedisSupport#serviceRequest(org.jredis.protocol.Command, byte[][]) */
+	@Override
+	protected Response serviceRequest (Command cmd, byte[]... args)
+			throws RedisException, ClientRuntimeException, ProviderException 
+	{
+		return connection.serviceRequest(cmd, args);
+	}
+
+	/** @return the cluster connection of this client */
+	public ClusterConnection getClusterConnection () {
+		return connection;
+	}
+}
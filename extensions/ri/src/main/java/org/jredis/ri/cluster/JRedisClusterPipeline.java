@@ -0,0 +1,70 @@
+/*
+ *   Copyright 2009-2012 Joubin Houshyar
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package org.jredis.ri.cluster;
+
+import java.util.concurrent.Future;
+
+import org.jredis.ClientRuntimeException;
+import org.jredis.JRedisFuture;
+import org.jredis.ProviderException;
+import org.jredis.cluster.ClusterModel;
+import org.jredis.cluster.connector.ClusterConnection;
+import org.jredis.protocol.Command;
+import org.jredis.protocol.Response;
+import org.jredis.ri.alphazero.JRedisFutureSupport;
+import org.jredis.ri.cluster.connection.PipelineClusterConnection;
+
+/**
+ * An asynchronous pipeline supporting {@link JRedisFuture} api over a cluster 
+ * of Redis servers, utilizing the {@link PipelineClusterConnection}: each node
+ * of the cluster is serviced by its own chunked pipeline.  Commands not supported
+ * by the cluster connection (see {@link ClusterConnection#supports(Command)}) 
+ * throw a {@link org.jredis.NotSupportedException}.
+ * <p>
+ * Thread safe.  Use only one instance per application.
+ *
+ * @author  joubin (alphazero@sensesay.net)
+ * @date    Apr 15, 2012
+ * 
+ */
+
+public class JRedisClusterPipeline extends JRedisFutureSupport {
+
+	final private PipelineClusterConnection	connection;
+
+	/**
+	 * Connects to all nodes of the model's cluster.
+	 * @param model
+	 * @throws ClientRuntimeException
+	 */
+	public JRedisClusterPipeline (ClusterModel model) throws ClientRuntimeException {
+		connection = new PipelineClusterConnection(model);
+	}
+
+	/* (non-Javadoc) @see org.jredis.ri.alphazero.JRedisFutureSupport#queueRequest(org.jredis.protocol.Command, byte[][]) */
+	@Override
+	protected Future<Response> queueRequest (Command cmd, byte[]... args)
+			throws ClientRuntimeException, ProviderException 
+	{
+		return connection.queueRequest(cmd, args);
+	}
+
+	/** @return the cluster connection of this pipeline */
+	public ClusterConnection getClusterConnection () {
+		return connection;
+	}
+}
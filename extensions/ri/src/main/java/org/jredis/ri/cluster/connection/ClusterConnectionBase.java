@@ -17,13 +17,21 @@
 package org.jredis.ri.cluster.connection;
 
 import static org.jredis.ri.alphazero.support.Assert.*;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.jredis.ClientRuntimeException;
 import org.jredis.NotSupportedException;
@@ -32,31 +40,100 @@ import org.jredis.RedisException;
 import org.jredis.cluster.ClusterModel;
 import org.jredis.cluster.ClusterNodeSpec;
 import org.jredis.cluster.ClusterSpec;
+import org.jredis.cluster.ReadPolicy;
 import org.jredis.cluster.connector.ClusterConnection;
+import org.jredis.cluster.model.ConsistentHashCluster;
+import org.jredis.cluster.model.ConsistentHashRing;
 import org.jredis.connector.Connection;
 import org.jredis.connector.ConnectionSpec;
+import org.jredis.connector.NotConnectedException;
 import org.jredis.protocol.Command;
 import org.jredis.protocol.Response;
+import org.jredis.ri.alphazero.connection.PendingRequest;
+import org.jredis.ri.alphazero.support.Log;
 
 /**
- * [TODO: document me!]
- *
+ * Base for {@link ClusterConnection}s, maintaining a {@link Connection} per
+ * node of the cluster, of the cluster connection's {@link Connection.Modality}.
+ * <p>
+ * Requests are routed to the connection of the node that the {@link ClusterModel}
+ * maps to the request's (first) key.  {@link Command#MGET}, {@link Command#DEL} and
+ * {@link Command#MSET} requests are split by the nodes of their keys, and the node
+ * responses gathered (see {@link ScatterGather}).  Requests of other commands that
+ * take multiple keys are only serviced if all keys map to the same node -- e.g. keys
+ * sharing a hash tag (see {@link org.jredis.cluster.ClusterSpec#setHashTag(org.jredis.cluster.support.HashTag)}).  {@link Command#PING}, 
+ * {@link Command#QUIT}, {@link Command#FLUSHDB} and {@link Command#FLUSHALL} are
+ * sent to all nodes.  All other keyless {@link Command}s, and those whose key
+ * params are not keys (e.g. patterns), are not supported.
+ * <p>
+ * Read-only requests (see {@link ReadRouter#READ_CMDS}) of nodes with replicas 
+ * are routed to a replica per the node's {@link ReadPolicy} (see {@link ReadRouter});
+ * all other requests are sent to the node's master.
+ * <p>
+ * The cluster connection is a listener of its node connections, and forwards
+ * their events to its own listeners, with the node connection as the event info.
+ * <p>
+ * The cluster connection is also a listener of its model, and follows the model's
+ * reconfiguration: connections to added nodes are created on demand, and those of
+ * removed nodes closed.  For {@link ConsistentHashCluster} models (whose nodes may
+ * also be reweighted -- see {@link ClusterModel#setNodeWeight(ClusterNodeSpec, int)}), an optional 
+ * migration window (see {@link ClusterConnection#setMigrationWindow(long, TimeUnit)})
+ * keeps the removed nodes' connections open, and reads of keys whose owner changed
+ * fall back to the previous owner (see {@link Migration}).
+ * <p>
+ * Optionally (see {@link ClusterConnection#setNodeEjection(int, long, TimeUnit)}), 
+ * nodes whose master connection fails consecutive requests, or faults, are ejected
+ * until a background probe finds them up again (see {@link NodeHealth}).  Keys of 
+ * nodes ejected from a {@link ConsistentHashCluster} are mapped to the next live 
+ * node of the ring; requests for keys of ejected nodes of other models fail fast
+ * with a {@link NotConnectedException}.
+ * <p>
+ * Optionally (see {@link ClusterConnection#setRoutingCache(int)}), the nodes of
+ * keys are cached (see {@link RoutingCache}), and the cache invalidated on each
+ * change of the configuration that the connection follows.
+ * 
  * @author  joubin (alphazero@sensesay.net)
  * @date    Mar 29, 2010
  * 
  */
 
-abstract public class ClusterConnectionBase implements ClusterConnection, Connection.Listener {
+abstract public class ClusterConnectionBase implements ClusterConnection, Connection.Listener, ClusterModel.Listener {
 
 	// ------------------------------------------------------------------------
 	// Properties
 	// ------------------------------------------------------------------------
+	/** Commands sent to all nodes of the cluster */
+	static final private Set<Command> BROADCAST_CMDS = EnumSet.of(Command.PING, Command.QUIT, Command.FLUSHDB, Command.FLUSHALL);
+	/** Key requests that are meaningless on a cluster -- their key params are not keys */
+	static final private Set<Command> NODE_LOCAL_CMDS = EnumSet.of(Command.KEYS, Command.KEYSTOLIST, Command.DEBUG, Command.SLAVEOF);
+	/** Commands with keys in the first two params */
+	static final private Set<Command> KEY_PAIR_CMDS = EnumSet.of(Command.RENAME, Command.RENAMENX, Command.RPOPLPUSH, Command.SMOVE);
+	/** Commands with keys in all params */
+	static final private Set<Command> ALL_KEYS_CMDS = EnumSet.of(
+			Command.SINTER, Command.SINTERSTORE, Command.SUNION, Command.SUNIONSTORE, Command.SDIFF, Command.SDIFFSTORE);
+
 	/**  */
 	final protected ClusterModel model;
 	/**  */
 	final private Set<Command> supportedCmds = new HashSet<Command>();
-	/**  */
-	final private Map<String, Connection> connections = new HashMap<String, Connection>();
+	/** node connections, by node id */
+	final private Map<String, Connection> connections = new ConcurrentHashMap<String, Connection>();
+	/** read routers of nodes with replicas, by node connection */
+	final private Map<Connection, ReadRouter> routers = new ConcurrentHashMap<Connection, ReadRouter>();
+	/** Guards creation of node connections, and reconfiguration */
+	final private Object configLock = new Object();
+	/** the ring of the last seen configuration of a consistent hash model */
+	private ConsistentHashRing ring;
+	/** migration window in nanos -- 0 for none */
+	private volatile long migrationWindow;
+	/** current migration, if any */
+	private volatile Migration migration;
+	/** node health, if node ejection is enabled */
+	private volatile NodeHealth health;
+	/** the ring of the live nodes, if nodes of a consistent hash model are ejected */
+	private volatile ConsistentHashRing liveRing;
+	/** cache of the nodes of keys, if enabled */
+	private volatile RoutingCache routingCache;
 	/** Connector Listeners */
 	final private Set<Connection.Listener> listeners = new HashSet<Connection.Listener>();
 
@@ -93,6 +170,11 @@ abstract public class ClusterConnectionBase implements ClusterConnection, Connec
 
 		// initialize cluster's connections
 		initialize();
+		
+		// follow the model's reconfiguration
+		if(model instanceof ConsistentHashCluster)
+			ring = ((ConsistentHashCluster) model).getRing();
+		model.addListener(this);
 	}
 
 	// ------------------------------------------------------------------------
@@ -110,6 +192,44 @@ abstract public class ClusterConnectionBase implements ClusterConnection, Connec
 	/* (non-Javadoc) @see org.jredis.cluster.connector.ClusterConnection#getClusterSpec() */
 	final public ClusterSpec getClusterSpec () { return model.getSpec(); }
 
+	/* (non-Javadoc) @see org.jredis.cluster.connector.ClusterConnection#setMigrationWindow(long, java.util.concurrent.TimeUnit) */
+	final public void setMigrationWindow (long window, TimeUnit unit) {
+		isTrue(model.supportsReconfiguration() && model instanceof ConsistentHashCluster, "migration requires a reconfigurable consistent hash model", NotSupportedException.class);
+		isTrue(window >= 0, "migration window must be >= 0", ClientRuntimeException.class);
+		migrationWindow = unit.toNanos(window);
+	}
+
+	/* (non-Javadoc) @see org.jredis.cluster.connector.ClusterConnection#setNodeEjection(int, long, java.util.concurrent.TimeUnit) */
+	final public void setNodeEjection (int failureThreshold, long probeInterval, TimeUnit unit) {
+		isTrue(failureThreshold >= 0, "failure threshold must be >= 0", ClientRuntimeException.class);
+		isTrue(failureThreshold == 0 || unit.toMillis(probeInterval) > 0, "probe interval must be >= 1 msec", ClientRuntimeException.class);
+		final NodeHealth next = failureThreshold > 0 ? new NodeHealth(this, failureThreshold, unit.toMillis(probeInterval)) : null;
+		final NodeHealth prior;
+		synchronized (configLock) {
+			prior = health;
+			health = next;
+			snapshotLiveRing();	// nodes ejected per the prior are re-admitted
+		}
+		if(null != prior) prior.shutdown();
+		if(null != next) next.start();
+	}
+
+	/* (non-Javadoc) @see org.jredis.cluster.connector.ClusterConnection#setRoutingCache(int) */
+	final public void setRoutingCache (int capacity) {
+		isTrue(capacity >= 0 && capacity <= RoutingCache.MAX_CAPACITY, "routing cache capacity must be in [0, " + RoutingCache.MAX_CAPACITY + "]", ClientRuntimeException.class);
+		synchronized (configLock) {
+			routingCache = capacity > 0 ? new RoutingCache(capacity) : null;
+		}
+	}
+
+	/**
+	 * @return the statistics of the routing cache, or null if it is not enabled
+	 */
+	final public RoutingStats getRoutingStats () {
+		final RoutingCache cache = routingCache;
+		return null == cache ? null : new RoutingStats(cache);
+	}
+
 	/* (non-Javadoc) @see org.jredis.connector.Connection#getSpec() */
 	final public ConnectionSpec getSpec () {
 		throw new NotSupportedException ("Per specification -- see org.jredis.cluster.ClusterConnection's specification.");
@@ -129,16 +249,37 @@ abstract public class ClusterConnectionBase implements ClusterConnection, Connec
 	public Future<Response> queueRequest (Command cmd, byte[]... args)
 	        throws ClientRuntimeException, ProviderException 
     {
-		byte[] key = verifyAndGetKeyForRequest(cmd, args);
-		return getConnectionForKey(key).queueRequest(cmd, args);
+		if(BROADCAST_CMDS.contains(cmd)) 
+			return queueBroadcast(cmd, args);
+		if(ScatterGather.SCATTER_CMDS.contains(cmd))
+			return queueScattered(cmd, args);
+		final Connection conn = getConnectionForRequest(cmd, args);
+		final Connection previous = getPreviousConnectionForRead(cmd, args[0], conn);
+		if(null != previous)
+			return new Migration.FallbackFuture(cmd, queueOnNode(conn, cmd, args), previous.queueRequest(cmd, args));
+		return queueOnNode(conn, cmd, args);
 	}
 
 	/* (non-Javadoc) @see org.jredis.connector.Connection#serviceRequest(org.jredis.protocol.Command, byte[][]) */
 	public Response serviceRequest (Command cmd, byte[]... args)
 	        throws RedisException, ClientRuntimeException, ProviderException
     {
-		byte[] key = verifyAndGetKeyForRequest(cmd, args);
-		return getConnectionForKey(key).serviceRequest(cmd, args);
+		if(BROADCAST_CMDS.contains(cmd)) 
+			return serviceBroadcast(cmd, args);
+		if(ScatterGather.SCATTER_CMDS.contains(cmd))
+			return serviceScattered(cmd, args);
+		final Connection conn = getConnectionForRequest(cmd, args);
+		final Connection previous = getPreviousConnectionForRead(cmd, args[0], conn);
+		final Response response = serviceOnNode(conn, cmd, args);
+		if(null != previous && Migration.isMiss(response)) {
+			try {
+				return previous.serviceRequest(cmd, args);
+			}
+			catch (RuntimeException e) {
+				Log.error("migration fallback read on %s failed -- %s", previous, e.getMessage());
+			}
+		}
+		return response;
 	}
 	// ------------------------------------------------------------------------
 	// Event management
@@ -157,41 +298,449 @@ abstract public class ClusterConnectionBase implements ClusterConnection, Connec
 	// Interface
 	// =================================================== Connection.Listener
 	/*
-	 * TODO: monitor all connections and deal with faults
+	 * Node connection events are logged and forwarded to the listeners of the
+	 * cluster connection.  Node fault management is left to the extensions.
 	 */
 	// ------------------------------------------------------------------------
 
 	public void onEvent(Connection.Event event) {
 		Connection conn = event.getSource();
-		if(!connections.containsKey(conn)){
-			throw new ProviderException("ClusterConnection receiving events for unrelated connection!");
+		Migration m = migration;
+		NodeHealth h = health;
+		if(!connections.containsValue(conn) && (null == m || !m.retired.containsValue(conn)) && !isReplica(conn) && (null == h || !h.isRetired(conn))){
+			Log.bug("ClusterConnection receiving events for unrelated connection: %s", conn);
+			return;
 		}
 		
-		// TODO: deal with it!
 		Connection.Event.Type type = event.getType();
 		switch (type) {
-		case DISCONNECTED:
+		case FAULTED:
+			Log.error("cluster node connection faulted: %s -- %s", conn, event.getInfo());
+			if(null != h) ejectNode(h, conn, "connection faulted");
 			break;
-		case CONNECTED:
+		case DISCONNECTED:
+			Log.log("cluster node connection disconnected: %s", conn);
 			break;
-		case FAULTED:
+		default:
 			break;
 		}
-		throw new ProviderException("[BUG] lazy programmer -- TODOs here!");
+		notifyListeners(new Connection.Event(this, type, conn));
+	}
+
+	// ------------------------------------------------------------------------
+	// Interface
+	// ================================================= ClusterModel.Listener
+	/*
+	 * The model notifies its listeners after it has published its new
+	 * configuration.
+	 */
+	// ------------------------------------------------------------------------
+
+	public void onEvent(ClusterModel.Event event) {
+		if(event.getSource() != model) return;
+		final ClusterNodeSpec nodeSpec = event.getInfo();
+		Connection removed = null;
+		ReadRouter removedRouter = null;
+		synchronized (configLock) {
+			switch (event.getType()) {
+			case NodeAdded:
+				getConnectionForNode(nodeSpec);
+				break;
+			case NodeRemoved:
+				removed = connections.remove(nodeSpec.getId());
+				if(null != removed) 
+					removedRouter = routers.remove(removed);
+				if(null != health) 
+					health.readmit(nodeSpec);
+				break;
+			case NodeReweighted:
+				break;
+			default:
+				return;
+			}
+			final ConsistentHashRing previousRing = ring;
+			if(model instanceof ConsistentHashCluster)
+				ring = ((ConsistentHashCluster) model).getRing();
+			snapshotLiveRing();
+			
+			final Migration prior = migration;
+			final long window = migrationWindow;
+			if(window > 0 && null != previousRing) {
+				// a new window supersedes the prior: its retirees are closed with the new
+				Map<String, Connection> retired = new HashMap<String, Connection>();
+				if(null != prior) retired.putAll(prior.retired);
+				if(null != removed) retired.put(nodeSpec.getId(), removed);
+				migration = new Migration(previousRing, retired, window);
+				Log.log("cluster migration window opened on %s of %s", event.getType(), nodeSpec.getId());
+				removed = null;	// retired
+			}
+		}
+		if(null != removed) closeConnection(removed);
+		if(null != removedRouter) {
+			// fallback reads of a migration are only sent to the retired master
+			for(Connection replica : removedRouter.getReplicas())
+				closeConnection(replica);
+		}
 	}
 
 	// ------------------------------------------------------------------------
 	// Internal ops
 	// ------------------------------------------------------------------------
 
-	final private byte[] verifyAndGetKeyForRequest(Command cmd, byte[]...args) 
+	/**
+	 * @param cmd
+	 * @param key
+	 * @param conn the connection of the current owner of the key
+	 * @return the connection of the previous owner of the key, if the request is
+	 * a read in an open migration window and the owner of its key has changed; 
+	 * null otherwise.
+	 */
+	final private Connection getPreviousConnectionForRead (Command cmd, byte[] key, Connection conn) {
+		final Migration m = migration;
+		if(null == m) return null;
+		if(m.isClosed()) {
+			closeMigration(m);
+			return null;
+		}
+		if(!Migration.FALLBACK_CMDS.contains(cmd)) return null;
+		ClusterNodeSpec previousNode = ((ConsistentHashCluster) model).getNodeForKey(key, m.previousRing);
+		if(null == previousNode) return null;
+		Connection previous = connections.get(previousNode.getId());
+		if(null == previous) previous = m.retired.get(previousNode.getId());
+		return previous == conn ? null : previous;
+	}
+
+	/** Ends the migration, if current, and closes its retired connections */
+	final private void closeMigration (Migration m) {
+		synchronized (configLock) {
+			if(migration != m) return;
+			migration = null;
+		}
+		Log.log("cluster migration window closed");
+		for(Connection conn : m.retired.values())
+			closeConnection(conn);
+	}
+
+	/** Quits a node connection, per its modality */
+	final void closeConnection (Connection conn) {
+		conn.removeListener(this);
+		try {
+			if(getModality() == Connection.Modality.Synchronous)
+				conn.serviceRequest(Command.QUIT);
+			else
+				conn.queueRequest(Command.QUIT);
+		}
+		catch (Exception e) {
+			Log.error("closing cluster node connection %s -- %s", conn, e.getMessage());
+		}
+	}
+
+	/**
+	 * @param cmd
+	 * @param args
+	 * @return the connection of the node of the request's keys
+	 * @throws NotSupportedException if the command is not supported
+	 * @throws ClientRuntimeException if the request's keys map to more than one node
+	 */
+	final protected Connection getConnectionForRequest(Command cmd, byte[]...args) 
 	{
+		verifyRequest(cmd, args);
+		
+		final Connection conn = getConnectionForKey(args[0]);
+		int keyCnt = 1;
+		int stride = 1;
+		if(KEY_PAIR_CMDS.contains(cmd)) keyCnt = 2;
+		else if(ALL_KEYS_CMDS.contains(cmd)) keyCnt = args.length;
+		else if(cmd == Command.MSETNX) { keyCnt = args.length; stride = 2; }
+		for(int i=stride; i<keyCnt; i+=stride){
+			if(getConnectionForKey(args[i]) != conn)
+				throw new ClientRuntimeException(cmd.name() + " keys map to more than one node of the cluster -- co-locate them with a hash tag (see ClusterSpec#setHashTag)");
+		}
+		// SORT ... STORE destKey: the destination key is the last param
+		if(cmd == Command.SORT$STORE && args.length > 2 && getConnectionForKey(args[args.length-1]) != conn)
+			throw new ClientRuntimeException(cmd.name() + " keys map to more than one node of the cluster -- co-locate them with a hash tag (see ClusterSpec#setHashTag)");
+		return conn;
+	}
+
+	final private void verifyRequest(Command cmd, byte[]...args) {
 		notNull(args, "[BUG]: args for request is null!", ProviderException.class);
+		isTrue(supports(cmd), cmd.name() + " is not supported", NotSupportedException.class);
 		isTrue(args.length > 0, "[BUG]: expecting at least 1 arg for the request (and a key at that)", ProviderException.class);
+	}
+
+	final protected Connection getConnectionForKey(byte[] key){
+		final RoutingCache cache = routingCache;
+		if(null == cache)
+			return getConnectionForNode(getNodeForKey(key));
+		final int fp = RoutingCache.fingerprint(key);
+		ClusterNodeSpec nodeSpec = cache.get(key, fp);
+		if(null == nodeSpec) {
+			final int generation = cache.generation();
+			nodeSpec = getNodeForKey(key);
+			cache.put(key, fp, nodeSpec, generation);
+		}
+		return getConnectionForNode(nodeSpec);
+	}
+
+	/**
+	 * @param key
+	 * @return the node of the key, per the ring of the live nodes if any are ejected
+	 * @throws NotConnectedException if all nodes are ejected
+	 */
+	final private ClusterNodeSpec getNodeForKey(byte[] key){
+		final ConsistentHashRing live = liveRing;
+		if(null == live)
+			return notNull(model.getNodeForKey(key), "node for key", ProviderException.class);
+		ClusterNodeSpec nodeSpec = ((ConsistentHashCluster) model).getNodeForKey(key, live);
+		if(null == nodeSpec)
+			throw new NotConnectedException("all nodes of the cluster are ejected");
+		return nodeSpec;
+	}
+
+	/**
+	 * @param nodeSpec
+	 * @return the connection of the node, created on demand for nodes added to the
+	 * model, and for re-admitted nodes
+	 * @throws NotConnectedException if the node is ejected
+	 */
+	final protected Connection getConnectionForNode(ClusterNodeSpec nodeSpec){
+		Connection conn = connections.get(nodeSpec.getId());
+		if(null == conn) {
+			final NodeHealth h = health;
+			if(null != h && h.isEjected(nodeSpec.getId()))
+				throw new NotConnectedException("cluster node " + nodeSpec.getId() + " is ejected");
+			synchronized (configLock) {
+				conn = connections.get(nodeSpec.getId());
+				if(null == conn)
+					conn = createConnection(nodeSpec);
+			}
+		}
+		return conn;
+	}
+
+	/**
+	 * Services the request on the node of the connection: reads of nodes with 
+	 * replicas per the node's {@link ReadRouter}, all else on the connection.
+	 */
+	final private Response serviceOnNode (Connection conn, Command cmd, byte[]...args) throws RedisException {
+		final ReadRouter router = ReadRouter.READ_CMDS.contains(cmd) ? routers.get(conn) : null;
+		if(null != router) 
+			return router.serviceRequest(cmd, args);
+		final NodeHealth h = health;
+		if(null == h)
+			return conn.serviceRequest(cmd, args);
+		try {
+			final Response response = conn.serviceRequest(cmd, args);
+			h.onSuccess(conn);
+			return response;
+		}
+		catch (RedisException e) {
+			h.onSuccess(conn);	// the node is up
+			throw e;
+		}
+		catch (ClientRuntimeException e) {
+			onNodeFailure(h, conn, e);
+			throw e;
+		}
+	}
+
+	/** Queues the request on the node of the connection -- see {@link ClusterConnectionBase#serviceOnNode(Connection, Command, byte[][])} */
+	final private Future<Response> queueOnNode (final Connection conn, Command cmd, byte[]...args) {
+		final ReadRouter router = ReadRouter.READ_CMDS.contains(cmd) ? routers.get(conn) : null;
+		if(null != router) 
+			return router.queueRequest(cmd, args);
+		final NodeHealth h = health;
+		if(null == h)
+			return conn.queueRequest(cmd, args);
+		final Future<Response> future;
+		try {
+			future = conn.queueRequest(cmd, args);
+		}
+		catch (ClientRuntimeException e) {
+			onNodeFailure(h, conn, e);
+			throw e;
+		}
+		if(future instanceof PendingRequest) {
+			((PendingRequest) future).addPassiveCompletionListener(new Runnable() {
+				public void run () {
+					try {
+						future.get();
+						h.onSuccess(conn);
+					}
+					catch (ExecutionException e) {
+						if(e.getCause() instanceof ClientRuntimeException)
+							onNodeFailure(h, conn, (ClientRuntimeException) e.getCause());
+						else 
+							h.onSuccess(conn);	// error response: the node is up
+					}
+					catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+				}
+			});
+		}
+		return future;
+	}
+
+	/** Counts the failure of a request of the node connection, and ejects the node at the threshold */
+	final private void onNodeFailure (NodeHealth h, Connection conn, ClientRuntimeException e) {
+		if(e instanceof ProviderException) return;	// a bug, not a fault of the node
+		if(h.onFailure(conn))
+			ejectNode(h, conn, h.threshold + " consecutive request failures -- last: " + e.getMessage());
+	}
+
+	/**
+	 * Ejects the node of the connection, if it is still current: the node's keys 
+	 * are remapped (for consistent hash models), and its connections retired.
+	 */
+	final private void ejectNode (NodeHealth h, Connection conn, String cause) {
+		ClusterNodeSpec node = null;
+		ReadRouter router = null;
+		synchronized (configLock) {
+			if(health != h) return;
+			for(ClusterNodeSpec nodeSpec : model.getSpec().getNodeSpecs()) {
+				if(connections.get(nodeSpec.getId()) == conn) { node = nodeSpec; break; }
+			}
+			if(null == node) return;	// already ejected, or removed
+			connections.remove(node.getId());
+			router = routers.remove(conn);
+			h.eject(node, conn);
+			if(null != router) h.eject(node, router.getReplicas());
+			snapshotLiveRing();
+		}
+		Log.error("cluster node %s ejected -- %s", node.getId(), cause);
+	}
+
+	/** Re-admits the ejected node, if the health is still current: its connection is recreated on demand */
+	final void readmitNode (NodeHealth h, ClusterNodeSpec node) {
+		synchronized (configLock) {
+			if(health != h || !h.readmit(node)) return;
+			snapshotLiveRing();
+		}
+		Log.log("cluster node %s re-admitted", node.getId());
+	}
+
+	/** 
+	 * Publishes the ring of the live nodes of a consistent hash model, if any nodes 
+	 * are ejected, and invalidates the routing cache.  Called with the config lock 
+	 * held on all changes of the configuration. 
+	 */
+	final private void snapshotLiveRing () {
+		final NodeHealth h = health;
+		if(null == h || !h.hasEjected() || !(model instanceof ConsistentHashCluster)) {
+			liveRing = null;
+		}
+		else {
+			SortedMap<Long, ClusterNodeSpec> live = new TreeMap<Long, ClusterNodeSpec>();
+			for(Map.Entry<Long, ClusterNodeSpec> e : ((ConsistentHashCluster) model).getNodeMap().entrySet()) {
+				if(!h.isEjected(e.getValue().getId()))
+					live.put(e.getKey(), e.getValue());
+			}
+			liveRing = ConsistentHashRing.snapshot(live);
+		}
+		final RoutingCache cache = routingCache;
+		if(null != cache) cache.invalidate();
+	}
+
+	/** @return true if conn is a replica connection of a node */
+	final private boolean isReplica (Connection conn) {
+		for(ReadRouter router : routers.values())
+			if(router.contains(conn)) return true;
+		return false;
+	}
+
+	/**
+	 * Services the per node sub-requests of the request in turn.
+	 * @return the gathered response
+	 */
+	final private Response serviceScattered (Command cmd, byte[]...args) throws RedisException {
+		verifyRequest(cmd, args);
+		final ScatterGather scatter = ScatterGather.scatter(this, cmd, args);
+		final int nodeCnt = scatter.nodeCount();
+		if(nodeCnt == 1) 
+			return serviceOnNode(scatter.getConnection(0), cmd, args);
+		final Response[] responses = new Response[nodeCnt];
+		for(int n=0; n<nodeCnt; n++)
+			responses[n] = serviceOnNode(scatter.getConnection(n), cmd, scatter.getArgs(n));
+		return scatter.gather(responses);
+	}
+
+	/**
+	 * Queues the per node sub-requests of the request, all before waiting on any.
+	 * @return future gathered response
+	 */
+	final private Future<Response> queueScattered (Command cmd, byte[]...args) {
+		verifyRequest(cmd, args);
+		final ScatterGather scatter = ScatterGather.scatter(this, cmd, args);
+		final int nodeCnt = scatter.nodeCount();
+		if(nodeCnt == 1) 
+			return queueOnNode(scatter.getConnection(0), cmd, args);
+		final List<Future<Response>> futures = new ArrayList<Future<Response>>(nodeCnt);
+		for(int n=0; n<nodeCnt; n++)
+			futures.add(queueOnNode(scatter.getConnection(n), cmd, scatter.getArgs(n)));
+		return scatter.gather(futures);
+	}
+
+	/**
+	 * Services the request on all nodes.  All nodes are sent the request
+	 * regardless of errors of the others.
+	 * @return the response of the last node
+	 * @throws RedisException the first error of the nodes, if an error response
+	 * @throws ClientRuntimeException the first error of the nodes, if a client error
+	 */
+	final private Response serviceBroadcast (Command cmd, byte[]...args) throws RedisException {
 		isTrue(supports(cmd), cmd.name() + " is not supported", NotSupportedException.class);
-		return args[0];
-		
+		Response response = null;
+		Exception error = null;
+		try {
+			for(Connection conn : connections.values()){
+				try {
+					response = conn.serviceRequest(cmd, args);
+				}
+				catch (RedisException e) {
+					if(null == error) error = e;
+				}
+				catch (ClientRuntimeException e) {
+					if(null == error) error = e;
+				}
+			}
+		}
+		finally {
+			if(cmd == Command.QUIT) onQuit();
+		}
+		if(error instanceof RedisException) throw (RedisException) error;
+		if(null != error) throw (ClientRuntimeException) error;
+		return response;
 	}
+
+	/**
+	 * Queues the request on all nodes.
+	 * @return future response of all nodes -- see {@link ScatterGather.GatherFuture}
+	 */
+	final private Future<Response> queueBroadcast (Command cmd, byte[]...args) {
+		isTrue(supports(cmd), cmd.name() + " is not supported", NotSupportedException.class);
+		List<Future<Response>> futures = new ArrayList<Future<Response>>(connections.size());
+		for(Connection conn : connections.values())
+			futures.add(conn.queueRequest(cmd, args));
+		if(cmd == Command.QUIT) onQuit();
+		return new ScatterGather.GatherFuture(cmd, futures, null);
+	}
+
+	/** 
+	 * Quits the replica connections of all nodes, which are not sent the broadcasts,
+	 * and stops the node prober, if any.
+	 */
+	final private void onQuit () {
+		for(ReadRouter router : routers.values())
+			for(Connection replica : router.getReplicas())
+				closeConnection(replica);
+		final NodeHealth h = health;
+		if(null != h) h.shutdown();
+	}
+
+	final protected void notifyListeners(Connection.Event e) {
+		for(Connection.Listener l : listeners)
+			l.onEvent(e);
+	}
+
 	final protected void initialize () throws ClientRuntimeException, ProviderException {
 		mapSupportedCommands();
 		initializeConnections();
@@ -200,29 +749,59 @@ abstract public class ClusterConnectionBase implements ClusterConnection, Connec
 
 	final private void initializeConnections () throws ClientRuntimeException, ProviderException {
 		for(ClusterNodeSpec nodeSpec : model.getSpec().getNodeSpecs()){
-			Connection conn = null;
-			if(getModality() == Connection.Modality.Synchronous){
-				conn = notNull(createSynchConnection(nodeSpec), "", ProviderException.class);
-			}
-			else {
-				conn = notNull(createAsynchConnection(nodeSpec), "", ProviderException.class);
-			}
-			connections.put(nodeSpec.getId(), conn);
-			// TODO: add set as listener to connection
+			createConnection(nodeSpec);
 		}
 	}
+	
 	/**
-	 * Default implementation simply includes all {@link Command}s with {@link Command.RequestType}s
-	 * that include key params in the request.
+	 * Creates the connection of the node and, if reads are routed to its replicas,
+	 * those of the replicas and the node's {@link ReadRouter}.
+	 */
+	final private Connection createConnection (ClusterNodeSpec nodeSpec) throws ClientRuntimeException, ProviderException {
+		final Connection conn = createConnection(nodeSpec.getConnectionSpec(), nodeSpec.getId());
+		final List<ConnectionSpec> replicaSpecs = nodeSpec.getReplicaSpecs();
+		if(nodeSpec.getReadPolicy() != ReadPolicy.MASTER_ONLY && !replicaSpecs.isEmpty()) {
+			Connection[] replicas = new Connection[replicaSpecs.size()];
+			for(int r=0; r<replicas.length; r++)
+				replicas[r] = createConnection(replicaSpecs.get(r), "replica " + r + " of " + nodeSpec.getId());
+			routers.put(conn, new ReadRouter(nodeSpec.getReadPolicy(), replicas));
+		}
+		connections.put(nodeSpec.getId(), conn);
+		return conn;
+	}
+	
+	final private Connection createConnection (ConnectionSpec connSpec, String name) throws ClientRuntimeException, ProviderException {
+		Connection conn = null;
+		if(getModality() == Connection.Modality.Synchronous){
+			conn = notNull(createSynchConnection(connSpec), "synchronous connection for node " + name, ProviderException.class);
+		}
+		else {
+			conn = notNull(createAsynchConnection(connSpec), "asynchronous connection for node " + name, ProviderException.class);
+		}
+		conn.addListener(this);
+		return conn;
+	}
+	/**
+	 * Default implementation includes all {@link Command}s with {@link Command.RequestType}s
+	 * that include key params in the request, and the commands sent to all nodes.
 	 */
 	final private void mapSupportedCommands () {
 		// filter out the unsupported commands
 		//
 		for(Command cmd : Command.values()){
+			if(BROADCAST_CMDS.contains(cmd)) {
+				if(affirmSupportFor(cmd))
+					supportedCmds.add(cmd);
+				continue;
+			}
+			if(NODE_LOCAL_CMDS.contains(cmd)) {
+				if(!affirmLackOfSupportFor(cmd))
+					supportedCmds.add(cmd);
+				continue;
+			}
 			switch (cmd.requestType){
 			
 			// -- NOT SUPPORTED --
-			case BULK_SET:
 			case NO_ARG:
 			case VALUE:
 				if(!affirmLackOfSupportFor(cmd))
@@ -230,15 +809,16 @@ abstract public class ClusterConnectionBase implements ClusterConnection, Connec
 				break;
 
 				// -- SUPPORTED --
+			case BULK_SET:
 			case KEY:
 			case KEY_CNT_VALUE:
 			case KEY_IDX_VALUE:
 			case KEY_KEY:
 			case KEY_KEY_VALUE:
+			case KEY_KEY_NUM:
 			case KEY_NUM:
 			case KEY_NUM_NUM:
 			case KEY_NUM_NUM_OPTS:
-			case KEY_SPEC:
 			case KEY_VALUE:
 			case MULTI_KEY:
 				if(affirmSupportFor(cmd))
@@ -248,13 +828,6 @@ abstract public class ClusterConnectionBase implements ClusterConnection, Connec
 		}
 	}
 
-	final protected Connection getConnectionForKey(byte[] key){
-		ClusterNodeSpec nodeSpec = model.getNodeForKey(key);
-		String nodeId = nodeSpec.getId();
-		
-		// TEMP TEMP TEMP.
-		return connections.get(nodeId);
-	}
 	// ------------------------------------------------------------------------
 	// Internal ops : Extension points
 	// ------------------------------------------------------------------------
@@ -280,20 +853,55 @@ abstract public class ClusterConnectionBase implements ClusterConnection, Connec
     protected boolean affirmLackOfSupportFor (Command cmd) {return true; }
 
 	/**
-     * @param nodeSpec
+     * @param connSpec spec of a node, or of a node's replica
      * @return
      */
-    protected Connection createAsynchConnection (ClusterNodeSpec nodeSpec) {
+    protected Connection createAsynchConnection (ConnectionSpec connSpec) {
     	throw new ProviderException("Not implemented in the abstract base!");
     }
 
 	/**
-     * @param nodeSpec
+     * @param connSpec spec of a node, or of a node's replica
      * @return
      */
-    protected Connection createSynchConnection (ClusterNodeSpec nodeSpec) {
+    protected Connection createSynchConnection (ConnectionSpec connSpec) {
     	throw new ProviderException("Not implemented in the abstract base!");
     }
 
+	// ========================================================================
+	// Inner Class
+	// ========================================================================
 
+	/**
+	 * Snapshot of the statistics of the routing cache of a cluster connection.
+	 */
+	public static final class RoutingStats {
+		private final int	capacity;
+		private final long	hits, misses, invalidations;
+
+		private RoutingStats (RoutingCache cache) {
+			capacity = cache.capacity();
+			hits = cache.hits();
+			misses = cache.misses();
+			invalidations = cache.invalidations();
+		}
+		/** @return number of entries of the cache */
+		public int getCapacity () { return capacity; }
+		/** @return number of key lookups served by the cache */
+		public long getHits () { return hits; }
+		/** @return number of key lookups that hashed the key on the model */
+		public long getMisses () { return misses; }
+		/** @return number of invalidations of the cache on changes of the configuration */
+		public long getInvalidations () { return invalidations; }
+		/** @return hits per lookup, 0.0 to 1.0 */
+		public double getHitRatio () {
+			final long lookups = hits + misses;
+			return lookups == 0 ? 0.0 : (double) hits / lookups;
+		}
+		@Override
+		public String toString () {
+			return String.format("capacity: %d hits: %d misses: %d hit ratio: %.3f invalidations: %d", 
+					capacity, hits, misses, getHitRatio(), invalidations);
+		}
+	}
 }
@@ -0,0 +1,167 @@
+/*
+ *   Copyright 2009-2012 Joubin Houshyar
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package org.jredis.ri.cluster.connection;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.jredis.NotSupportedException;
+import org.jredis.protocol.Command;
+import org.jredis.protocol.Response;
+import org.jredis.ri.alphazero.connection.PendingRequest;
+
+/**
+ * Future response of a cluster request that is derived from the responses of
+ * (node) requests, e.g. the gathered responses of a scattered request.  It is
+ * completed by the completion of the node requests, so callbacks of the
+ * cluster connection's futures are notified as those of the node connections'.
+ * <p>
+ * The node requests must be {@link PendingRequest}s for callbacks to be supported,
+ * which is the case for all the RI's asynchronous connections.  Other requests are
+ * only completed by (waiting on) the <code>get()</code> of the derived request.
+ *
+ * @author  joubin (alphazero@sensesay.net)
+ * @date    Apr 16, 2012
+ *
+ */
+
+abstract class DerivedRequest extends PendingRequest {
+
+	// ------------------------------------------------------------------------
+	// Properties
+	// ------------------------------------------------------------------------
+	/** the node requests */
+	final private List<Future<Response>> requests;
+
+	/** run on completion of each node request */
+	final private Runnable onCompletion = new Runnable() {
+		public void run () { tryComplete(); }
+	};
+
+	// ------------------------------------------------------------------------
+	// Constructor
+	// ------------------------------------------------------------------------
+	/**
+	 * Subclasses must call {@link DerivedRequest#listen()} once constructed.
+	 * @param cmd
+	 * @param requests the node requests
+	 */
+	DerivedRequest (Command cmd, List<Future<Response>> requests) {
+		super(cmd);
+		this.requests = requests;
+	}
+
+	// ------------------------------------------------------------------------
+	// Extension points
+	// ------------------------------------------------------------------------
+	/** @return a node request the outcome still depends on, or null if none */
+	abstract Future<Response> awaited ();
+
+	/** Completes this request, if the node requests its outcome depends on are done */
+	abstract void tryComplete ();
+
+	// ------------------------------------------------------------------------
+	// Inner ops
+	// ------------------------------------------------------------------------
+	/** listens (passively) to the node requests -- completed node requests complete this request now */
+	final void listen () {
+		for(Future<Response> request : requests)
+			if(request instanceof PendingRequest)
+				((PendingRequest) request).addPassiveCompletionListener(onCompletion);
+		tryComplete();
+	}
+
+	/** @return true if this request has completed */
+	final boolean isCompleted () {
+		return super.isDone();
+	}
+
+	/**
+	 * @param request a done request
+	 * @return the response of the request
+	 * @throws ExecutionException if the request failed
+	 */
+	static Response responseOf (Future<Response> request) throws ExecutionException {
+		boolean interrupted = false;
+		try {
+			for(;;) {
+				try { return request.get(); }
+				catch (InterruptedException e) { interrupted = true; }
+			}
+		}
+		finally {
+			if(interrupted) Thread.currentThread().interrupt();
+		}
+	}
+
+	// ------------------------------------------------------------------------
+	// Interface: Future<Response>
+	// ------------------------------------------------------------------------
+	/**
+	 * Waits on the node requests (which expedites them, e.g. flushing the node
+	 * pipelines) and then the outcome.
+	 */
+	@Override
+	public Response get () throws InterruptedException, ExecutionException {
+		for(Future<Response> request; !isCompleted() && null != (request = awaited()); ) {
+			try { request.get(); }
+			catch (ExecutionException e) { /* outcome of the derived request */ }
+			tryComplete();
+		}
+		if(!isCompleted()) tryComplete();
+		return super.get();
+	}
+
+	/* (non-Javadoc) @see DerivedRequest#get() */
+	@Override
+	public Response get (long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+		final long deadline = System.nanoTime() + unit.toNanos(timeout);
+		for(Future<Response> request; !isCompleted() && null != (request = awaited()); ) {
+			try { request.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS); }
+			catch (ExecutionException e) { /* outcome of the derived request */ }
+			tryComplete();
+		}
+		if(!isCompleted()) tryComplete();
+		return super.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+	}
+
+	/* (non-Javadoc) @see org.jredis.ri.alphazero.connection.PendingRequest#isDone() */
+	@Override
+	public boolean isDone () {
+		if(!isCompleted()) tryComplete();
+		return isCompleted();
+	}
+
+	/**
+	 * A listener is as good as a waiter: the node requests are expedited.
+	 * @throws NotSupportedException if a node request is not a {@link PendingRequest}
+	 * @see org.jredis.ri.alphazero.connection.PendingRequest#addCompletionListener(java.lang.Runnable)
+	 */
+	@Override
+	public void addCompletionListener (Runnable listener) {
+		for(Future<Response> request : requests)
+			if(!(request instanceof PendingRequest))
+				throw new NotSupportedException("callbacks are not supported for pending request type " + request.getClass().getName());
+		super.addCompletionListener(listener);
+		if(!isCompleted())
+			for(Future<Response> request : requests)
+				((PendingRequest) request).addCompletionListener(onCompletion);
+	}
+}
@@ -0,0 +1,151 @@
+/*
+ *   Copyright 2009-2012 Joubin Houshyar
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package org.jredis.ri.cluster.connection;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import org.jredis.connector.Connection;
+import org.jredis.cluster.model.ConsistentHashRing;
+import org.jredis.protocol.BulkResponse;
+import org.jredis.protocol.Command;
+import org.jredis.protocol.Response;
+import org.jredis.protocol.ValueResponse;
+
+/**
+ * Migration window of a cluster connection, opened on reconfiguration of its
+ * (consistent hash) model.  Until the window closes, reads of keys whose owner 
+ * changed fall back to the previous owner, on a miss of the current owner.
+ * <p>
+ * Connections of the nodes removed from the cluster are retired to the migration,
+ * and closed when the window closes.
+ *
+ * @author  joubin (alphazero@sensesay.net)
+ * @date    Apr 16, 2012
+ * 
+ */
+
+final class Migration {
+
+	// ------------------------------------------------------------------------
+	// Properties
+	// ------------------------------------------------------------------------
+	/** reads that fall back to the previous owner, and their miss responses */
+	static final Set<Command> FALLBACK_CMDS = EnumSet.of(
+			Command.GET, Command.HGET,						// null bulk
+			Command.EXISTS, Command.HEXISTS, Command.SISMEMBER	// false
+			);
+
+	/** the ring of the cluster before the reconfiguration */
+	final ConsistentHashRing	previousRing;
+	/** connections of removed nodes, by node id */
+	final Map<String, Connection> retired;
+	final private long			deadline;
+
+	// ------------------------------------------------------------------------
+	// Constructor
+	// ------------------------------------------------------------------------
+	/**
+	 * @param previousRing
+	 * @param retired
+	 * @param window nanos
+	 */
+	Migration (ConsistentHashRing previousRing, Map<String, Connection> retired, long window) {
+		this.previousRing = previousRing;
+		this.retired = retired;
+		this.deadline = System.nanoTime() + window;
+	}
+
+	// ------------------------------------------------------------------------
+	// Interface
+	// ------------------------------------------------------------------------
+	/** @return true if the migration window has closed */
+	boolean isClosed () {
+		return System.nanoTime() - deadline >= 0;
+	}
+
+	/**
+	 * @param response response of a {@link Migration#FALLBACK_CMDS} request
+	 * @return true if the key was not found
+	 */
+	static boolean isMiss (Response response) {
+		if(response instanceof BulkResponse)
+			return ((BulkResponse) response).getBulkData() == null;
+		if(response instanceof ValueResponse)
+			return !((ValueResponse) response).getBooleanValue();
+		return false;
+	}
+
+	// ------------------------------------------------------------------------
+	// Inner Type
+	// ------------------------------------------------------------------------
+	/**
+	 * Dual read: the response of the current owner, or, on its miss, that of the
+	 * previous owner -- unless the previous owner's request failed.  Both requests
+	 * are queued up front, and the fallback completes on the completion of the
+	 * current owner's request (on a hit) or of both.
+	 */
+	static final class FallbackFuture extends DerivedRequest {
+		final private Future<Response> current;
+		final private Future<Response> previous;
+		@SuppressWarnings("unchecked")
+		FallbackFuture (Command cmd, Future<Response> current, Future<Response> previous) {
+			super(cmd, Arrays.asList(current, previous));
+			this.current = current;
+			this.previous = previous;
+			listen();
+		}
+		@Override
+		Future<Response> awaited () {
+			if(!current.isDone()) return current;
+			if(!previous.isDone()) {
+				try {
+					if(isMiss(responseOf(current))) return previous;
+				}
+				catch (ExecutionException e) { /* the outcome */ }
+			}
+			return null;
+		}
+		@Override
+		void tryComplete () {
+			if(isCompleted() || !current.isDone()) return;
+			final Response response;
+			try {
+				response = responseOf(current);
+			}
+			catch (ExecutionException e) {
+				setError(e.getCause());
+				return;
+			}
+			if(!isMiss(response)) {
+				setResponse(response);
+				return;
+			}
+			if(!previous.isDone()) return;
+			try {
+				setResponse(responseOf(previous));
+			}
+			catch (ExecutionException e) {
+				setResponse(response);
+			}
+		}
+	}
+}
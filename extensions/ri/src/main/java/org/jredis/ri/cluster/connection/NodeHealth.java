@@ -0,0 +1,204 @@
+/*
+ *   Copyright 2009-2012 Joubin Houshyar
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package org.jredis.ri.cluster.connection;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.jredis.cluster.ClusterNodeSpec;
+import org.jredis.connector.Connection;
+import org.jredis.connector.ConnectionSpec;
+import org.jredis.ri.alphazero.support.Log;
+
+/**
+ * Health of the nodes of a cluster connection, for ejection of failing nodes
+ * (see {@link org.jredis.cluster.connector.ClusterConnection#setNodeEjection(int, long, java.util.concurrent.TimeUnit)}).
+ * <p>
+ * Consecutive failures of the requests of each node connection are counted, and
+ * the cluster connection ejects the node when the count reaches the threshold.
+ * The connections of ejected nodes are retired, and closed by the prober thread,
+ * so that the request path does not block on them.
+ * <p>
+ * The prober is a daemon thread that, per probe interval, PINGs the ejected
+ * nodes on a new socket, and has the cluster connection re-admit those that
+ * reply.
+ *
+ * @author  joubin (alphazero@sensesay.net)
+ * @date    Apr 16, 2012
+ *
+ */
+
+final class NodeHealth implements Runnable {
+
+	// ------------------------------------------------------------------------
+	// Properties
+	// ------------------------------------------------------------------------
+	private static final byte[] PING = "PING\r\n".getBytes();
+
+	/** consecutive failures that eject a node */
+	final int threshold;
+	/** probe interval in millis */
+	final long probeInterval;
+
+	final private ClusterConnectionBase cluster;
+	/** consecutive failures, by node connection */
+	final private ConcurrentMap<Connection, AtomicInteger> failures = new ConcurrentHashMap<Connection, AtomicInteger>();
+	/** ejected nodes, by id */
+	final private Map<String, ClusterNodeSpec> ejected = new ConcurrentHashMap<String, ClusterNodeSpec>();
+	/** connections of ejected nodes, pending close */
+	final private Set<Connection> retired = Collections.newSetFromMap(new ConcurrentHashMap<Connection, Boolean>());
+	final private Thread prober;
+	private volatile boolean running = true;
+
+	// ------------------------------------------------------------------------
+	// Constructor
+	// ------------------------------------------------------------------------
+	/**
+	 * @param cluster
+	 * @param threshold consecutive failures that eject a node
+	 * @param probeInterval millis
+	 */
+	NodeHealth (ClusterConnectionBase cluster, int threshold, long probeInterval) {
+		this.cluster = cluster;
+		this.threshold = threshold;
+		this.probeInterval = probeInterval;
+		this.prober = new Thread(this, "jredis-cluster-node-prober");
+		this.prober.setDaemon(true);
+	}
+
+	// ------------------------------------------------------------------------
+	// Interface
+	// ------------------------------------------------------------------------
+	void start () { prober.start(); }
+
+	void shutdown () {
+		running = false;
+		prober.interrupt();
+	}
+
+	/**
+	 * @param conn
+	 * @return true if the failure brings the connection's consecutive failures
+	 * to the threshold
+	 */
+	boolean onFailure (Connection conn) {
+		AtomicInteger cnt = failures.get(conn);
+		if(null == cnt) {
+			final AtomicInteger prior = failures.putIfAbsent(conn, cnt = new AtomicInteger());
+			if(null != prior) cnt = prior;
+		}
+		return cnt.incrementAndGet() == threshold;
+	}
+
+	/** Resets the consecutive failures of the connection */
+	void onSuccess (Connection conn) {
+		final AtomicInteger cnt = failures.get(conn);
+		if(null != cnt && cnt.get() != 0) cnt.set(0);
+	}
+
+	/** Ejects the node, and retires its connections */
+	void eject (ClusterNodeSpec node, Connection...conns) {
+		ejected.put(node.getId(), node);
+		for(Connection conn : conns) {
+			failures.remove(conn);
+			retired.add(conn);
+		}
+	}
+
+	/** @return true if the node was ejected */
+	boolean readmit (ClusterNodeSpec node) {
+		return null != ejected.remove(node.getId());
+	}
+
+	/** @return true if the node is ejected */
+	boolean isEjected (String nodeId) { return ejected.containsKey(nodeId); }
+
+	boolean hasEjected () { return !ejected.isEmpty(); }
+
+	Collection<ClusterNodeSpec> getEjected () { return ejected.values(); }
+
+	/** @return true if the connection is of an ejected node, and is pending close */
+	boolean isRetired (Connection conn) { return retired.contains(conn); }
+
+	// ------------------------------------------------------------------------
+	// Interface
+	// ============================================================= Runnable
+	// ------------------------------------------------------------------------
+	public void run () {
+		while(running) {
+			try {
+				Thread.sleep(probeInterval);
+			}
+			catch (InterruptedException e) {
+				break;
+			}
+			closeRetired();
+			for(ClusterNodeSpec node : ejected.values()) {
+				if(running && probe(node.getConnectionSpec(), (int) Math.min(probeInterval, Integer.MAX_VALUE)))
+					cluster.readmitNode(this, node);
+			}
+		}
+		closeRetired();
+		Log.log("cluster node prober stopped");
+	}
+
+	// ------------------------------------------------------------------------
+	// Internal ops
+	// ------------------------------------------------------------------------
+	private void closeRetired () {
+		for(Connection conn : retired) {
+			retired.remove(conn);
+			cluster.closeConnection(conn);
+		}
+	}
+
+	/**
+	 * PINGs the node on a new socket.
+	 * @param spec
+	 * @param timeout connect and read timeout in millis
+	 * @return true if the node replied -- with any status, e.g. an error if it
+	 * requires AUTH
+	 */
+	static boolean probe (ConnectionSpec spec, int timeout) {
+		final Socket socket = new Socket();
+		try {
+			socket.connect(new InetSocketAddress(spec.getAddress(), spec.getPort()), timeout);
+			socket.setSoTimeout(timeout);
+			final OutputStream out = socket.getOutputStream();
+			out.write(PING);
+			out.flush();
+			final InputStream in = socket.getInputStream();
+			final int status = in.read();
+			return status == '+' || status == '-';
+		}
+		catch (IOException e) {
+			return false;
+		}
+		finally {
+			try { socket.close(); } catch (IOException e) { /* nop */ }
+		}
+	}
+}
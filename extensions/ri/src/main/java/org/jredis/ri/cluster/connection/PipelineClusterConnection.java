@@ -0,0 +1,87 @@
+/*
+ *   Copyright 2009-2012 Joubin Houshyar
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package org.jredis.ri.cluster.connection;
+
+import org.jredis.ClientRuntimeException;
+import org.jredis.NotSupportedException;
+import org.jredis.ProviderException;
+import org.jredis.RedisException;
+import org.jredis.cluster.ClusterModel;
+import org.jredis.connector.Connection;
+import org.jredis.connector.ConnectionSpec;
+import org.jredis.protocol.Command;
+import org.jredis.protocol.Response;
+import org.jredis.ri.alphazero.connection.ChunkedPipelineConnection;
+
+/**
+ * A {@link Connection.Modality#Asynchronous} {@link org.jredis.cluster.connector.ClusterConnection},
+ * with a {@link ChunkedPipelineConnection} per node of the cluster.  Requests are
+ * queued on the pipeline of the node of the request's key, so requests to distinct
+ * nodes are fully pipelined in parallel, and the responses of each node are in
+ * request order.
+ * <p>
+ * Thread-safe.
+ *
+ * @author  joubin (alphazero@sensesay.net)
+ * @date    Apr 15, 2012
+ * 
+ */
+
+public class PipelineClusterConnection extends ClusterConnectionBase {
+
+	// ------------------------------------------------------------------------
+	// Constructor
+	// ------------------------------------------------------------------------
+	/**
+     * @param model
+     * @throws ClientRuntimeException
+     */
+    public PipelineClusterConnection (ClusterModel model) throws ClientRuntimeException {
+	    super(model);
+    }
+
+	/* (non-Javadoc) @see org.jredis.ri.cluster.connection.ClusterConnectionBase#initializeComponents() */
+	@Override
+	protected void initializeComponents () {
+		/* nop -- the node pipelines are all the state we need */
+	}
+
+	// ------------------------------------------------------------------------
+	// Interface
+	// ===================================================== ClusterConnection
+	// ------------------------------------------------------------------------
+	
+	/* (non-Javadoc) @see org.jredis.cluster.connector.ClusterConnection#getModality() */
+	final public Modality getModality () { return Connection.Modality.Asynchronous; }
+
+	/* (non-Javadoc) @see org.jredis.connector.Connection#serviceRequest(org.jredis.protocol.Command, byte[][]) */
+	@Override
+	final public Response serviceRequest (Command cmd, byte[]... args)
+	        throws RedisException, ClientRuntimeException, ProviderException
+	{
+		throw new NotSupportedException("serviceRequest is not supported by asynchronous cluster connections");
+	}
+	
+	// ------------------------------------------------------------------------
+	// Super overrides
+	// ------------------------------------------------------------------------
+	/* (non-Javadoc) @see org.jredis.ri.cluster.connection.ClusterConnectionBase#createAsynchConnection(org.jredis.connector.ConnectionSpec) */
+	@Override
+	protected Connection createAsynchConnection (ConnectionSpec connSpec) {
+		return new ChunkedPipelineConnection(connSpec);
+	}
+}
@@ -0,0 +1,199 @@
+/*
+ *   Copyright 2009-2012 Joubin Houshyar
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package org.jredis.ri.cluster.connection;
+
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import org.jredis.RedisException;
+import org.jredis.cluster.ReadPolicy;
+import org.jredis.connector.Connection;
+import org.jredis.protocol.Command;
+import org.jredis.protocol.Response;
+import org.jredis.ri.alphazero.connection.PendingRequest;
+
+/**
+ * Routes the read-only requests of a cluster node to the connections of its
+ * replicas, per the node's {@link ReadPolicy}.
+ * <p>
+ * For the policies that need them, the router tracks the outstanding requests
+ * and an exponential moving average of the latency of each replica.  Requests
+ * of asynchronous connections are tracked by passive completion listeners of
+ * their {@link PendingRequest}s, so as not to flush pipelines.  The statistics
+ * are updated without locks, and concurrent updates of a replica's latency may
+ * drop samples -- they are estimates.
+ *
+ * @author  joubin (alphazero@sensesay.net)
+ * @date    Apr 16, 2012
+ *
+ */
+
+final class ReadRouter {
+
+	// ------------------------------------------------------------------------
+	// Properties
+	// ------------------------------------------------------------------------
+	/** Read-only commands, with a key as first param */
+	static final Set<Command> READ_CMDS = EnumSet.of(
+			Command.GET, Command.MGET, Command.SUBSTR, Command.GETBIT, Command.EXISTS, Command.TYPE, Command.TTL,
+			Command.LLEN, Command.LRANGE, Command.LINDEX,
+			Command.SCARD, Command.SISMEMBER, Command.SMEMBERS, Command.SRANDMEMBER, Command.SINTER, Command.SUNION, Command.SDIFF,
+			Command.ZCARD, Command.ZSCORE, Command.ZRANK, Command.ZREVRANK, Command.ZCOUNT,
+			Command.ZRANGE, Command.ZRANGE$OPTS, Command.ZREVRANGE, Command.ZREVRANGE$OPTS,
+			Command.ZRANGEBYSCORE, Command.ZRANGEBYSCORE$OPTS,
+			Command.HGET, Command.HEXISTS, Command.HLEN, Command.HKEYS, Command.HVALS, Command.HGETALL);
+
+	/** weight of a latency sample in the moving average, as a shift: 1/8 */
+	private static final int EWMA_SHIFT = 3;
+
+	final private ReadPolicy policy;
+	final private Connection[] replicas;
+	final private boolean tracking;
+	final private AtomicInteger next = new AtomicInteger();
+	final private AtomicIntegerArray outstanding;
+	final private AtomicLongArray latency;
+
+	// ------------------------------------------------------------------------
+	// Constructor
+	// ------------------------------------------------------------------------
+	/**
+	 * @param policy a policy other than {@link ReadPolicy#MASTER_ONLY}
+	 * @param replicas connections of the replicas
+	 */
+	ReadRouter (ReadPolicy policy, Connection[] replicas) {
+		this.policy = policy;
+		this.replicas = replicas;
+		this.tracking = policy == ReadPolicy.LEAST_OUTSTANDING || policy == ReadPolicy.LATENCY_WEIGHTED;
+		this.outstanding = new AtomicIntegerArray(replicas.length);
+		this.latency = new AtomicLongArray(replicas.length);
+	}
+
+	// ------------------------------------------------------------------------
+	// Interface
+	// ------------------------------------------------------------------------
+	/** @return the replica connections */
+	Connection[] getReplicas () { return replicas; }
+
+	/**
+	 * @param conn
+	 * @return true if conn is a replica connection of this router
+	 */
+	boolean contains (Connection conn) {
+		for(Connection replica : replicas)
+			if(replica == conn) return true;
+		return false;
+	}
+
+	/** Services the read on the selected replica */
+	Response serviceRequest (Command cmd, byte[]... args) throws RedisException {
+		final int r = select();
+		if(!tracking)
+			return replicas[r].serviceRequest(cmd, args);
+
+		final long start = System.nanoTime();
+		outstanding.incrementAndGet(r);
+		try {
+			return replicas[r].serviceRequest(cmd, args);
+		}
+		finally {
+			onCompletion(r, start);
+		}
+	}
+
+	/** Queues the read on the selected replica */
+	Future<Response> queueRequest (Command cmd, byte[]... args) {
+		final int r = select();
+		if(!tracking)
+			return replicas[r].queueRequest(cmd, args);
+
+		final long start = System.nanoTime();
+		outstanding.incrementAndGet(r);
+		final Future<Response> future;
+		try {
+			future = replicas[r].queueRequest(cmd, args);
+		}
+		catch (RuntimeException e) {
+			onCompletion(r, start);
+			throw e;
+		}
+		if(future instanceof PendingRequest) {
+			((PendingRequest) future).addPassiveCompletionListener(new Runnable() {
+				public void run () { onCompletion(r, start); }
+			});
+		}
+		else {
+			outstanding.decrementAndGet(r);	// can't track it
+		}
+		return future;
+	}
+
+	/**
+	 * @param r replica index
+	 * @return the number of outstanding tracked requests of the replica
+	 */
+	int getOutstanding (int r) { return outstanding.get(r); }
+
+	/**
+	 * @param r replica index
+	 * @return the moving average latency of the replica, in nanos
+	 */
+	long getLatency (int r) { return latency.get(r); }
+
+	// ------------------------------------------------------------------------
+	// Internal ops
+	// ------------------------------------------------------------------------
+	/** @return index of the replica for the next read */
+	private int select () {
+		final int cnt = replicas.length;
+		final int first = (next.getAndIncrement() & Integer.MAX_VALUE) % cnt;
+		switch (policy) {
+		case LEAST_OUTSTANDING: {
+			int best = first;
+			int min = outstanding.get(first);
+			for(int i=1; i<cnt && min > 0; i++){
+				final int r = (first + i) % cnt;
+				final int n = outstanding.get(r);
+				if(n < min) { min = n; best = r; }
+			}
+			return best;
+		}
+		case LATENCY_WEIGHTED: {
+			// rotating the start breaks ties, and tries replicas with no samples yet
+			int best = first;
+			long min = (latency.get(first) + 1) * (outstanding.get(first) + 1);
+			for(int i=1; i<cnt; i++){
+				final int r = (first + i) % cnt;
+				final long w = (latency.get(r) + 1) * (outstanding.get(r) + 1);
+				if(w < min) { min = w; best = r; }
+			}
+			return best;
+		}
+		default:
+			return first;
+		}
+	}
+
+	private void onCompletion (int r, long start) {
+		outstanding.decrementAndGet(r);
+		final long sample = System.nanoTime() - start;
+		final long avg = latency.get(r);
+		latency.set(r, avg == 0 ? sample : avg + ((sample - avg) >> EWMA_SHIFT));
+	}
+}
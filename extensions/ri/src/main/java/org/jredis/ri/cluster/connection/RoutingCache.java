@@ -0,0 +1,190 @@
+/*
+ *   Copyright 2009-2012 Joubin Houshyar
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package org.jredis.ri.cluster.connection;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import org.jredis.cluster.ClusterNodeSpec;
+
+/**
+ * A bounded cache of the nodes of (hot) keys of a cluster connection, sparing
+ * the hashing of the key and the lookup of the ring of the model on hits
+ * (see {@link org.jredis.cluster.connector.ClusterConnection#setRoutingCache(int)}).
+ * <p>
+ * The cache is a 2-way set associative table of immutable entries, indexed by a
+ * (cheap) fingerprint of the key, which is computed once per lookup and shared by
+ * the {@link RoutingCache#get(byte[], int)} and {@link RoutingCache#put(byte[], int, ClusterNodeSpec, int)}
+ * of a miss.  New entries go to the second way of their set, and are promoted to
+ * the first on a hit, so a stream of cold keys only evicts other cold keys and not
+ * the hot keys of the first way.  Entries keep a copy of their key, so fingerprint
+ * collisions are misses and never misroute a key.  Neither reads nor writes take
+ * locks: racing promotions may drop an entry, which is then a miss.
+ * <p>
+ * The entries are tagged with the generation of the cache at the time their
+ * node was looked up.  {@link RoutingCache#invalidate()} advances the generation,
+ * which atomically invalidates all entries -- including those of lookups still
+ * in flight on the prior configuration.
+ * <p>
+ * The hit and miss counts are striped by thread.
+ *
+ * @author  joubin (alphazero@sensesay.net)
+ * @date    Apr 16, 2012
+ *
+ */
+
+final class RoutingCache {
+
+	// ------------------------------------------------------------------------
+	// Properties
+	// ------------------------------------------------------------------------
+	/** max capacity of the cache */
+	static final int MAX_CAPACITY = 1 << 20;
+
+	/** number of counter stripes (a power of 2) */
+	private static final int STRIPES = 16;
+	/** counters per stripe -- a stripe per 128 byte (cache line pair) */
+	private static final int STRIPE_LEN = 16;
+	private static final int HITS = 0;
+	private static final int MISSES = 1;
+
+	final private AtomicReferenceArray<Entry> entries;
+	/** mask of the index of the first way of a set */
+	final private int mask;
+	private volatile int generation;
+	final private AtomicLongArray counters = new AtomicLongArray(STRIPES * STRIPE_LEN);
+	final private AtomicLong invalidations = new AtomicLong();
+
+	// ------------------------------------------------------------------------
+	// Constructor
+	// ------------------------------------------------------------------------
+	/**
+	 * @param capacity number of entries, rounded up to a power of 2 (and at least 2)
+	 */
+	RoutingCache (int capacity) {
+		int size = 2;
+		while(size < capacity) size <<= 1;
+		this.entries = new AtomicReferenceArray<Entry>(size);
+		this.mask = size - 2;
+	}
+
+	// ------------------------------------------------------------------------
+	// Interface
+	// ------------------------------------------------------------------------
+	/** @return the current generation, to tag the entry of a lookup that follows */
+	int generation () { return generation; }
+
+	/**
+	 * @param key
+	 * @return the fingerprint of the key, for its {@link RoutingCache#get(byte[], int)}
+	 * and {@link RoutingCache#put(byte[], int, ClusterNodeSpec, int)}
+	 */
+	static int fingerprint (byte[] key) {
+		// murmur3 finalizer: spreads the (weak) low bits of the array hash over the set index
+		int h = Arrays.hashCode(key);
+		h ^= h >>> 16;
+		h *= 0x85ebca6b;
+		h ^= h >>> 13;
+		h *= 0xc2b2ae35;
+		h ^= h >>> 16;
+		return h;
+	}
+
+	/**
+	 * @param key
+	 * @param fp the fingerprint of the key
+	 * @return the cached node of the key, or null on a miss
+	 */
+	ClusterNodeSpec get (byte[] key, int fp) {
+		final int stripe = (int) (Thread.currentThread().getId() & (STRIPES - 1)) * STRIPE_LEN;
+		final int first = fp & mask;
+		final int gen = generation;
+		Entry e = entries.get(first);
+		if(null != e && e.matches(key, fp, gen)) {
+			counters.incrementAndGet(stripe + HITS);
+			return e.node;
+		}
+		final Entry second = entries.get(first + 1);
+		if(null != second && second.matches(key, fp, gen)) {
+			// promote -- the displaced entry of the first way is demoted
+			entries.set(first, second);
+			entries.set(first + 1, e);
+			counters.incrementAndGet(stripe + HITS);
+			return second.node;
+		}
+		counters.incrementAndGet(stripe + MISSES);
+		return null;
+	}
+
+	/**
+	 * Caches the node of the key.  The entry is stale (and never hit) if the cache
+	 * was invalidated since the given generation.
+	 * @param key
+	 * @param fp the fingerprint of the key
+	 * @param node
+	 * @param generation the generation read before the node was looked up
+	 */
+	void put (byte[] key, int fp, ClusterNodeSpec node, int generation) {
+		final int first = fp & mask;
+		final Entry e = entries.get(first);
+		final int slot = (null == e || e.generation != this.generation) ? first : first + 1;
+		entries.set(slot, new Entry(fp, key.clone(), node, generation));
+	}
+
+	/** Invalidates all entries, e.g. on changes of the ring */
+	void invalidate () {
+		generation++;	// writers hold the config lock of the cluster connection
+		invalidations.incrementAndGet();
+	}
+
+	int capacity () { return entries.length(); }
+
+	long hits () { return sum(HITS); }
+
+	long misses () { return sum(MISSES); }
+
+	long invalidations () { return invalidations.get(); }
+
+	// ------------------------------------------------------------------------
+	// Internal ops
+	// ------------------------------------------------------------------------
+	private long sum (int counter) {
+		long sum = 0;
+		for(int i = 0; i < STRIPES; i++) sum += counters.get(i * STRIPE_LEN + counter);
+		return sum;
+	}
+
+	// ------------------------------------------------------------------------
+	// Inner Class
+	// ------------------------------------------------------------------------
+	private static final class Entry {
+		final int fingerprint;
+		final byte[] key;
+		final ClusterNodeSpec node;
+		final int generation;
+		Entry (int fingerprint, byte[] key, ClusterNodeSpec node, int generation) {
+			this.fingerprint = fingerprint;
+			this.key = key;
+			this.node = node;
+			this.generation = generation;
+		}
+		boolean matches (byte[] key, int fp, int generation) {
+			return this.generation == generation && fingerprint == fp && Arrays.equals(this.key, key);
+		}
+	}
+}
@@ -0,0 +1,253 @@
+/*
+ *   Copyright 2009-2012 Joubin Houshyar
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package org.jredis.ri.cluster.connection;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import org.jredis.ClientRuntimeException;
+import org.jredis.NotSupportedException;
+import org.jredis.ProviderException;
+import org.jredis.connector.Connection;
+import org.jredis.protocol.Command;
+import org.jredis.protocol.MultiBulkResponse;
+import org.jredis.protocol.Response;
+import org.jredis.protocol.ResponseStatus;
+import org.jredis.protocol.ValueResponse;
+
+/**
+ * Splits a multi-key request by the nodes of its keys, and gathers the responses
+ * of the per node sub-requests into the response of the original request:
+ * <li>{@link Command#MGET}: values in the order of the request's keys
+ * <li>{@link Command#DEL}: sum of deleted key counts
+ * <li>{@link Command#MSET}: status of the last node
+ * <p>
+ * Keys of a node keep their relative order in the node's sub-request.  A scattered
+ * request is not atomic: nodes apply their sub-requests independently.
+ *
+ * @author  joubin (alphazero@sensesay.net)
+ * @date    Apr 15, 2012
+ * 
+ */
+
+final class ScatterGather {
+
+	// ------------------------------------------------------------------------
+	// Properties
+	// ------------------------------------------------------------------------
+	/** Commands scattered across nodes */
+	static final Set<Command> SCATTER_CMDS = EnumSet.of(Command.MGET, Command.DEL, Command.MSET);
+
+	final private Command		cmd;
+	final private int			keyCnt;
+	/** distinct node connections of the request's keys */
+	final private Connection[]	connections;
+	/** sub-request args, per node */
+	final private byte[][][]	nodeArgs;
+	/** request key indexes, per node */
+	final private int[][]		nodeKeys;
+
+	// ------------------------------------------------------------------------
+	// Constructor
+	// ------------------------------------------------------------------------
+	private ScatterGather (Command cmd, int keyCnt, Connection[] connections, byte[][][] nodeArgs, int[][] nodeKeys) {
+		this.cmd = cmd;
+		this.keyCnt = keyCnt;
+		this.connections = connections;
+		this.nodeArgs = nodeArgs;
+		this.nodeKeys = nodeKeys;
+	}
+
+	/**
+	 * @param cluster
+	 * @param cmd one of {@link ScatterGather#SCATTER_CMDS}
+	 * @param args
+	 * @return the request split by the nodes of its keys
+	 */
+	static ScatterGather scatter (ClusterConnectionBase cluster, Command cmd, byte[][] args) {
+		final int stride = cmd == Command.MSET ? 2 : 1;
+		if(args.length % stride != 0)
+			throw new ClientRuntimeException(cmd.name() + " expects key value pairs");
+		final int keyCnt = args.length / stride;
+
+		final Map<Connection, Integer> index = new IdentityHashMap<Connection, Integer>();
+		final List<Connection> connections = new ArrayList<Connection>();
+		final int[] nodeOf = new int[keyCnt];
+		final int[] counts = new int[keyCnt];
+		for(int k=0; k<keyCnt; k++){
+			final Connection conn = cluster.getConnectionForKey(args[k * stride]);
+			Integer n = index.get(conn);
+			if(n == null){
+				n = connections.size();
+				index.put(conn, n);
+				connections.add(conn);
+			}
+			nodeOf[k] = n;
+			counts[n]++;
+		}
+
+		final int nodeCnt = connections.size();
+		final byte[][][] nodeArgs = new byte[nodeCnt][][];
+		final int[][] nodeKeys = new int[nodeCnt][];
+		for(int n=0; n<nodeCnt; n++){
+			nodeArgs[n] = new byte[counts[n] * stride][];
+			nodeKeys[n] = new int[counts[n]];
+			counts[n] = 0;
+		}
+		for(int k=0; k<keyCnt; k++){
+			final int n = nodeOf[k];
+			final int i = counts[n]++;
+			nodeKeys[n][i] = k;
+			System.arraycopy(args, k * stride, nodeArgs[n], i * stride, stride);
+		}
+		return new ScatterGather(cmd, keyCnt, connections.toArray(new Connection[nodeCnt]), nodeArgs, nodeKeys);
+	}
+
+	// ------------------------------------------------------------------------
+	// Interface
+	// ------------------------------------------------------------------------
+	/** @return number of nodes of the request's keys */
+	int nodeCount () { return connections.length; }
+
+	/** @return connection of the node */
+	Connection getConnection (int node) { return connections[node]; }
+
+	/** @return sub-request args of the node */
+	byte[][] getArgs (int node) { return nodeArgs[node]; }
+
+	/**
+	 * @param responses responses of the sub-requests, by node
+	 * @return the response of the original request
+	 */
+	Response gather (Response[] responses) {
+		switch (cmd) {
+		case MGET: {
+			final byte[][] values = new byte[keyCnt][];
+			for(int n=0; n<responses.length; n++){
+				final List<byte[]> data = ((MultiBulkResponse) responses[n]).getMultiBulkData();
+				final int[] keys = nodeKeys[n];
+				if(data == null || data.size() != keys.length)
+					throw new ProviderException("[BUG] MGET node response size does not match its keys");
+				for(int i=0; i<keys.length; i++)
+					values[keys[i]] = data.get(i);
+			}
+			return new GatheredMultiBulk(Arrays.asList(values));
+		}
+		case DEL: {
+			long cnt = 0;
+			for(Response response : responses)
+				cnt += ((ValueResponse) response).getLongValue();
+			return new GatheredValue(cnt);
+		}
+		case MSET:
+			return responses[responses.length - 1];
+		default:
+			throw new ProviderException("[BUG] not a scatter command: " + cmd.name());
+		}
+	}
+
+	/**
+	 * @param futures pending responses of the sub-requests, by node
+	 * @return future response of the original request
+	 */
+	Future<Response> gather (List<Future<Response>> futures) {
+		return new GatherFuture(cmd, futures, this);
+	}
+
+	// ------------------------------------------------------------------------
+	// Inner Types
+	// ------------------------------------------------------------------------
+	/**
+	 * Future response of requests queued on multiple nodes.  Completes when all the
+	 * node responses complete, with the gathered response, or the first failure of
+	 * the nodes.  Without a {@link ScatterGather} (i.e. a request sent to all nodes)
+	 * the response is that of the last node.
+	 */
+	static final class GatherFuture extends DerivedRequest {
+		final private List<Future<Response>> futures;
+		final private ScatterGather scatter;
+		GatherFuture (Command cmd, List<Future<Response>> futures, ScatterGather scatter) {
+			super(cmd, futures);
+			this.futures = futures;
+			this.scatter = scatter;
+			listen();
+		}
+		@Override
+		Future<Response> awaited () {
+			for(Future<Response> f : futures)
+				if(!f.isDone()) return f;
+			return null;
+		}
+		@Override
+		void tryComplete () {
+			if(isCompleted() || null != awaited()) return;
+			final Response[] responses = new Response[futures.size()];
+			for(int n=0; n<responses.length; n++){
+				try {
+					responses[n] = responseOf(futures.get(n));
+				}
+				catch (ExecutionException e) {
+					setError(e.getCause());
+					return;
+				}
+			}
+			try {
+				setResponse(null == scatter ? responses[responses.length - 1] : scatter.gather(responses));
+			}
+			catch (RuntimeException e) {
+				setError(e);
+			}
+		}
+	}
+
+	/** Base of responses gathered from node responses */
+	static abstract class GatheredResponse implements Response {
+		final private Type type;
+		GatheredResponse (Type type) { this.type = type; }
+		public boolean isError () { return false; }
+		public Type getType () { return type; }
+		public ResponseStatus getStatus () { return ResponseStatus.STATUS_OK; }
+		public boolean didRead () { return true; }
+		public void read (InputStream in) throws ClientRuntimeException, ProviderException { return; }
+		public void write (OutputStream out) throws ClientRuntimeException, ProviderException {
+			throw new NotSupportedException("gathered responses are not written");
+		}
+	}
+
+	static final class GatheredMultiBulk extends GatheredResponse implements MultiBulkResponse {
+		final private List<byte[]> data;
+		GatheredMultiBulk (List<byte[]> data) { super(Type.MultiBulk); this.data = data; }
+		public List<byte[]> getMultiBulkData () { return data; }
+	}
+
+	static final class GatheredValue extends GatheredResponse implements ValueResponse {
+		final private long value;
+		GatheredValue (long value) { super(Type.Value); this.value = value; }
+		public long getLongValue () { return value; }
+		public String getStringValue () { return Long.toString(value); }
+		public boolean getBooleanValue () { return value != 0; }
+	}
+}
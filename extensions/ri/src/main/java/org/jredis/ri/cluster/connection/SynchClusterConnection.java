@@ -21,14 +21,19 @@ import org.jredis.ClientRuntimeException;
 import org.jredis.NotSupportedException;
 import org.jredis.ProviderException;
 import org.jredis.cluster.ClusterModel;
-import org.jredis.cluster.ClusterNodeSpec;
 import org.jredis.connector.Connection;
+import org.jredis.connector.ConnectionSpec;
 import org.jredis.protocol.Command;
 import org.jredis.protocol.Response;
-import org.jredis.ri.alphazero.connection.SynchConnection;
+import org.jredis.ri.alphazero.connection.SyncConnection;
 
 /**
- * [TODO: document me!]
+ * A {@link Connection.Modality#Synchronous} {@link org.jredis.cluster.connector.ClusterConnection},
+ * with a {@link SyncConnection} per node of the cluster.  Requests are serviced
+ * on the connection of the node of the request's key.
+ * <p>
+ * Thread-safe: node connections are created with {@link Connection.Flag#RELIABLE} set,
+ * and concurrent requests to the same node are serialized.
  *
  * @author  joubin (alphazero@sensesay.net)
  * @date    Apr 3, 2010
@@ -38,33 +43,28 @@ import org.jredis.ri.alphazero.connection.SynchConnection;
 public class SynchClusterConnection extends ClusterConnectionBase {
 
 	// ------------------------------------------------------------------------
-	// Properties
+	// Constructor
 	// ------------------------------------------------------------------------
-	
 	/**
      * @param model
      * @throws ClientRuntimeException
      */
-    protected SynchClusterConnection (ClusterModel model, boolean connectImmediately) throws ClientRuntimeException {
+    public SynchClusterConnection (ClusterModel model, boolean connectImmediately) throws ClientRuntimeException {
 	    super(model, connectImmediately);
     }
 
-	// ------------------------------------------------------------------------
-	// Constructor
-	// ------------------------------------------------------------------------
 	/**
      * @param model
      * @throws ClientRuntimeException
      */
-    protected SynchClusterConnection (ClusterModel model) throws ClientRuntimeException {
+    public SynchClusterConnection (ClusterModel model) throws ClientRuntimeException {
 	    super(model);
     }
 
 	/* (non-Javadoc) @see org.jredis.ri.cluster.connection.ClusterConnectionBase#initializeComponents() */
 	@Override
 	protected void initializeComponents () {
-		// TODO Auto-generated method stub
-		throw new ProviderException("[LAZY] implement me!");
+		/* nop -- the node connections are all the state we need */
 	}
 
 	// ------------------------------------------------------------------------
@@ -83,19 +83,20 @@ public class SynchClusterConnection extends ClusterConnectionBase {
 	final public Future<Response> queueRequest (Command cmd, byte[]... args)
 	        throws ClientRuntimeException, ProviderException 
     {
-		throw new NotSupportedException("Not supported by abstract base class");
+		throw new NotSupportedException("queueRequest is not supported by synchronous cluster connections");
 	}
 	
 	// ------------------------------------------------------------------------
 	// Super overrides
 	// ------------------------------------------------------------------------
 	/**
-     * @param nodeSpec
+     * @param connSpec
      * @return
      */
-    protected Connection createSynchConnection (ClusterNodeSpec nodeSpec) {
-    	Connection conn = null;
-    	conn = new SynchConnection(nodeSpec.getConnectionSpec(), true);
-    	return conn;
+    @Override
+    protected Connection createSynchConnection (ConnectionSpec connSpec) {
+    	connSpec.setConnectionFlag(Connection.Flag.RELIABLE, Boolean.TRUE);
+    	connSpec.setConnectionFlag(Connection.Flag.SHARED, Boolean.FALSE);
+    	return new SyncConnection(connSpec);
     }
 }
@@ -20,10 +20,12 @@ import org.jredis.cluster.ClusterNodeSpec;
 import org.jredis.cluster.ClusterSpec;
 import org.jredis.cluster.model.StaticHashCluster;
 import org.jredis.cluster.support.HashAlgorithm;
+import org.jredis.ri.cluster.support.Murmur3HashProvider;
 
 /**
- * As barebones as it gets. Uses the key's hashCode() (that is {@link byte[]#hashCode()})
- * to compute a node index, using a basic hashcode % nodeCnt as the index to the nodes list.
+ * As barebones as it gets. Uses the {@link ClusterSpec#getHashAlgorithm()} (by default 
+ * {@link Murmur3HashProvider}) to compute a node index, using a basic hash % nodeCnt as 
+ * the index to the nodes list.
  * @author  joubin (alphazero@sensesay.net)
  * @date    Mar 30, 2010
  * 
@@ -48,17 +50,13 @@ public class BasicStaticHashCluster extends StaticHashCluster.Support implements
 	/* (non-Javadoc) @see org.jredis.cluster.model.StaticHashCluster.Support#newHashAlgorithm() */
     @Override
     protected HashAlgorithm newHashAlgorithm () {
-    	// TDOO: get this from the clusterspec
-	    return new HashAlgorithm() {
-			public long hash (byte[] kb) {
-	            return kb.hashCode();
-            }
-	    };
+    	HashAlgorithm specAlgo = clusterSpec.getHashAlgorithm();
+	    return specAlgo != null ? specAlgo : new Murmur3HashProvider();
     }
 
 	/* (non-Javadoc) @see org.jredis.cluster.ClusterModel#getNodeForKey(byte[]) */
     public ClusterNodeSpec getNodeForKey (byte[] key) {
-	    int nodeIdx = (int) (hashAlgo.hash(key)%nodeCnt);
+	    int nodeIdx = (int) (hashKey(hashAlgo, key)%nodeCnt);
 	    return nodes[nodeIdx];
     }
 }
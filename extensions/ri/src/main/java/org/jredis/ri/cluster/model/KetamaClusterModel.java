@@ -17,7 +17,6 @@
 package org.jredis.ri.cluster.model;
 
 import java.util.Set;
-import java.util.SortedMap;
 import java.util.TreeMap;
 import org.jredis.ProviderException;
 import org.jredis.cluster.ClusterModel;
@@ -25,11 +24,28 @@ import org.jredis.cluster.ClusterNodeSpec;
 import org.jredis.cluster.ClusterSpec;
 //import org.jredis.cluster.model.ClusterNodeMap;
 import org.jredis.cluster.model.ConsistentHashCluster;
+import org.jredis.cluster.model.ConsistentHashRing;
+import org.jredis.cluster.support.HashAlgorithm;
 import org.jredis.ri.alphazero.support.Log;
+import org.jredis.ri.cluster.support.CRC16HashProvider;
 import org.jredis.ri.cluster.support.CryptoHashUtils;
 
 /**
- * [TODO: document me!]
+ * A {@link ConsistentHashCluster} with Ketama's mapping of the nodes to the ring:
+ * 4 points per MD5 digest of the node's replication instance keys.
+ * <p>
+ * The points of each node are scaled by its weight (see {@link ClusterNodeSpec#getWeight()}).
+ * The points of a node are those of its first replication instances, so that 
+ * reweighting a node (see {@link ClusterModel#setNodeWeight(ClusterNodeSpec, int)})
+ * only remaps the keys of the points it gains or loses.
+ * <p>
+ * A node of default weight has log(n)*{@link ConsistentHashCluster.Support#DEFAULT_REPLICATION_CONST}
+ * points on the ring, n being the number of nodes of the cluster at initialization: the points
+ * (and so the placement of keys) of existing configurations are as before.  Clusters initialized
+ * with less than 2 nodes -- which have no placement to preserve -- have {@link KetamaClusterModel#MIN_REPLICATION_CNT}
+ * points per node, rather than (the prior) none.  A minimum for larger clusters, e.g. ones of 2 to 4
+ * nodes that will grow, is opt-in (see {@link KetamaClusterModel#minReplicationCount()}); <b>note</b>
+ * that it changes the points of such clusters, and so remaps most of their keys.
  *
  * @author  joubin (alphazero@sensesay.net)
  * @date    Mar 29, 2010
@@ -41,9 +57,15 @@ public class KetamaClusterModel extends ConsistentHashCluster.Support implements
 	// ------------------------------------------------------------------------
 	// Properties
 	// ------------------------------------------------------------------------
-	/**  */
+	/** maps the nodes (and by default, keys) to the ring */
 	protected KetamaHashProvider hashAlgo;
 	
+	/** maps keys to the ring: the {@link ClusterSpec#getHashAlgorithm()}, if set */
+	protected HashAlgorithm keyHashAlgo;
+	
+	/** replication count of nodes of clusters initialized with less than 2 nodes -- Ketama's 160 points per node */
+	protected static final int MIN_REPLICATION_CNT = 160;
+	
 	// ------------------------------------------------------------------------
 	// Properties
 	// ------------------------------------------------------------------------
@@ -62,21 +84,12 @@ public class KetamaClusterModel extends ConsistentHashCluster.Support implements
     
 	/* (non-Javadoc) @see org.jredis.cluster.ClusterModel#getNodeForKey(byte[]) */
 	public ClusterNodeSpec getNodeForKey (byte[] key) {
-		long hash = hashAlgo.hash(key);
-		final ClusterNodeSpec rv;
-		if(!nodeMap.containsKey(hash)) {
-			// Java 1.6 adds a ceilingKey method, but I'm still stuck in 1.5
-			// in a lot of places, so I'm doing this myself.
-			SortedMap<Long, ClusterNodeSpec> tailMap=nodeMap.tailMap(hash);
-			if(tailMap.isEmpty()) {
-				hash = nodeMap.firstKey();
-			} 
-			else {
-				hash=tailMap.firstKey();
-			}
-		}
-		rv = nodeMap.get(hash);
-		return rv;
+		return ring.get(hashKey(keyHashAlgo, key));
+	}
+	
+	/* (non-Javadoc) @see org.jredis.cluster.model.ConsistentHashCluster#getNodeForKey(byte[], org.jredis.cluster.model.ConsistentHashRing) */
+	public ClusterNodeSpec getNodeForKey (byte[] key, ConsistentHashRing ring) {
+		return ring.get(hashKey(keyHashAlgo, key));
 	}
 	
 //	/**
@@ -88,9 +101,13 @@ public class KetamaClusterModel extends ConsistentHashCluster.Support implements
 //	    return nodeMap;
 //    }
 
-	/* (non-Javadoc) @see org.jredis.cluster.ClusterModel#supportsReconfiguration() */
+	/**
+	 * Nodes can be added, removed and reweighted, with minimal remapping of keys.  The 
+	 * replication count of a node of default weight is fixed at initialization.
+	 * @see org.jredis.cluster.ClusterModel#supportsReconfiguration() 
+	 */
     public boolean supportsReconfiguration () {
-	    return false;
+	    return true;
     }
     
     // ------------------------------------------------------------------------
@@ -100,15 +117,37 @@ public class KetamaClusterModel extends ConsistentHashCluster.Support implements
 	/**
 	 * Per original paper on consistent hashing, the replication count of any given bucket is
 	 * k*log(C), where C is the number of buckets (i.e. nodes).  We're using {@link KetamaNodeMapper#DEFAULT_REPLICATION_CONST}
-	 * as k.
+	 * as k, and Ketama's 160 points per node for empty (and single node) clusters that will grow.
 	 * 
-     * @param nodeCnt number of server nodes ("buckets" per original paper) in the Ketama cluster
      * @return
      */
     @Override
     final protected int replicationCount(){
     	int nodeCnt = clusterSpec.getNodeSpecs().size();
-    	return (int) (Math.log(nodeCnt) * DEFAULT_REPLICATION_CONST);    	
+    	// all keys map to the one node (if any): no placement to preserve
+    	if(nodeCnt < 2) return MIN_REPLICATION_CNT;
+    	return Math.max(minReplicationCount(), (int) (Math.log(nodeCnt) * DEFAULT_REPLICATION_CONST));
+    }
+    
+    /**
+     * Extension point for a minimum replication count, e.g. {@link KetamaClusterModel#MIN_REPLICATION_CNT} 
+     * for clusters of a few nodes that will grow.  Called on initialization -- before the 
+     * constructor of the extending class has run.  <b>Note</b> that a minimum above the 
+     * log(n)*k points of a cluster remaps most keys of its existing data.
+     * @return the minimum replication count of nodes of default weight: 0 (none) by default
+     */
+    protected int minReplicationCount(){
+    	return 0;
+    }
+    
+    /**
+     * @param node
+     * @return the replication count of the node, scaled by its weight: a multiple of 
+     * 4, and at least 4.
+     */
+    final protected int replicationCount(ClusterNodeSpec node){
+    	long cnt = (long) nodeReplicationCnt * node.getWeight() / ClusterNodeSpec.DEFAULT_WEIGHT;
+    	return (int) Math.max(4, cnt / 4 * 4);
     }
     
     @Override
@@ -118,6 +157,11 @@ public class KetamaClusterModel extends ConsistentHashCluster.Support implements
     final protected void initializeComponents() {
 //    	super.initializeComponents();
     	hashAlgo = new KetamaHashProvider();
+    	keyHashAlgo = clusterSpec.getHashAlgorithm();
+    	if(keyHashAlgo == null) 
+    		keyHashAlgo = hashAlgo;
+    	else if(keyHashAlgo instanceof CRC16HashProvider)
+    		throw new IllegalArgumentException("CRC16 hashes do not span the consistent hash ring");
     }
 
 	/**
@@ -130,12 +174,14 @@ public class KetamaClusterModel extends ConsistentHashCluster.Support implements
 	{		
 		try {
 			Set<ClusterNodeSpec> 	nodes = clusterSpec.getNodeSpecs();
+			int expected = 0;
 			for(ClusterNodeSpec node : nodes) {
-				mapNode(node);
+				mapNode(nodeMap, node);
+				expected += replicationCount(node);
 			}
-			if(nodeMap.size() != (nodeReplicationCnt/4) * nodes.size() * 4) {
-				Log.error("nodeMap size: " + nodeMap.size() + " | expected: " + nodeReplicationCnt * nodes.size());
-				throw new ProviderException ("[BUG]: expecting node map size to be multiple of replication count * cluster node count");
+			if(nodeMap.size() != expected) {
+				Log.error("nodeMap size: " + nodeMap.size() + " | expected: " + expected);
+				throw new ProviderException ("[BUG]: expecting node map size to be the sum of the (weighted) replication counts of the cluster nodes");
 			}
 		}
 		catch (ClassCastException e) {
@@ -143,31 +189,21 @@ public class KetamaClusterModel extends ConsistentHashCluster.Support implements
 		}
 	}
 
-	private boolean mapNode(ClusterNodeSpec node){
+	/* (non-Javadoc) @see org.jredis.cluster.model.ConsistentHashCluster.Support#mapNode(org.jredis.cluster.model.ConsistentHashCluster.NodeMap, org.jredis.cluster.ClusterNodeSpec) */
+	@Override
+	final protected void mapNode(NodeMap map, ClusterNodeSpec node){
 		// Dustin says: "Ketama does some special work with md5 where it reuses chunks."
-		for(int i=0; i<nodeReplicationCnt / 4; i++) {
+		final int digestCnt = replicationCount(node) / 4;
+		for(int i=0; i<digestCnt; i++) {
 			byte[] digest;
 			digest = CryptoHashUtils.computeMd5(node.getKeyForReplicationInstance(i));
 			for(int h=0;h<4;h++) {
 				// Joubin says: here's we're calling a KetamaHashProvider specific method that does the 
 				// Ketama chunking per above.  
-				nodeMap.put(hashAlgo.hash(digest, h), node);
+				map.put(hashAlgo.hash(digest, h), node);
 			}
 		}
-		return false;
 	}
-    
-	/* (non-Javadoc) @see org.jredis.cluster.ClusterModel.Support#onNodeAddition(org.jredis.cluster.ClusterNodeSpec) */
-    @Override
-    protected boolean onNodeAddition (ClusterNodeSpec newNode) {
-    	throw new ProviderException("[BUG] basic KetamaClusterModel does NOT support reconfiguration of nodes");
-    }
-
-	/* (non-Javadoc) @see org.jredis.cluster.ClusterModel.Support#onNodeRemoval(org.jredis.cluster.ClusterNodeSpec) */
-    @Override
-    protected boolean onNodeRemoval (ClusterNodeSpec newNode) {
-    	throw new ProviderException("[BUG] basic KetamaClusterModel does NOT support reconfiguration of nodes");
-    }
 
     
     // ========================================================================
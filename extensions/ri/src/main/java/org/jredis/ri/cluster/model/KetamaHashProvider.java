@@ -24,7 +24,7 @@
 package org.jredis.ri.cluster.model;
 
 import org.jredis.ClientRuntimeException;
-import org.jredis.cluster.support.HashAlgorithm;
+import org.jredis.cluster.support.RangeHashAlgorithm;
 import org.jredis.ri.cluster.support.CryptoHashUtils;
 
 /**
@@ -40,14 +40,14 @@ import org.jredis.ri.cluster.support.CryptoHashUtils;
  * 
  */
 
-public class KetamaHashProvider implements HashAlgorithm {
+public class KetamaHashProvider implements RangeHashAlgorithm {
 
 	// ------------------------------------------------------------------------
 	// Interface
 	// ------------------------------------------------------------------------
 
 	/**
-	 * Uses MD5 digest.  
+	 * Uses MD5 digest, in the calling thread's digest buffer: no allocation.  
 	 * <p>
 	 * Contains code from net.spy.memecached.
 	 * @ Copyright (c) 2006-2009  Dustin Sallings <dustin@spy.net>
@@ -57,12 +57,18 @@ public class KetamaHashProvider implements HashAlgorithm {
 //	@Override
 	public long hash (byte[] b) {
 		if(null == b || b.length ==0) throw new IllegalArgumentException();
+		return hash(b, 0, b.length);
+	}
+	
+	/* (non-Javadoc) @see org.jredis.cluster.support.RangeHashAlgorithm#hash(byte[], int, int) */
+	public long hash (byte[] b, int offset, int length) {
+		if(null == b || length ==0) throw new IllegalArgumentException();
 		
 		/* Copyright (c) 2006-2009  Dustin Sallings <dustin@spy.net> */
 		/* -- BEGIN code segment */
 		byte[] kb;
 		long rv = 0;
-        kb = CryptoHashUtils.computeMd5(b);
+        kb = CryptoHashUtils.computeMd5ThreadBuffer(b, offset, length);
 		rv = ((long) (kb[3] & 0xFF) << 24)
 		| ((long) (kb[2] & 0xFF) << 16)
 		| ((long) (kb[1] & 0xFF) << 8)
@@ -0,0 +1,70 @@
+/*
+ *   Copyright 2009-2012 Joubin Houshyar
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package org.jredis.ri.cluster.support;
+
+import org.jredis.cluster.support.RangeHashAlgorithm;
+
+/**
+ * CRC16 (CCITT, XMODEM variant) -- the key hash of Redis Cluster, which maps a key 
+ * to one of its 16384 slots as <code>crc16(key) % 16384</code>.
+ * <p>
+ * Hashes are 16 bit values, and this algorithm is only suitable for static
+ * hash cluster models.
+ *
+ * @author  joubin (alphazero@sensesay.net)
+ * @date    Apr 15, 2012
+ * 
+ */
+
+public class CRC16HashProvider implements RangeHashAlgorithm {
+
+	/** CRC16 table for polynomial 0x1021 */
+	private static final int[] TABLE = new int[256];
+	static {
+		for(int i=0; i<256; i++){
+			int crc = i << 8;
+			for(int j=0; j<8; j++)
+				crc = (crc & 0x8000) != 0 ? (crc << 1) ^ 0x1021 : crc << 1;
+			TABLE[i] = crc & 0xFFFF;
+		}
+	}
+
+	/* (non-Javadoc) @see org.jredis.cluster.support.HashAlgorithm#hash(byte[]) */
+	public long hash (byte[] kb) {
+		if(null == kb || kb.length == 0) throw new IllegalArgumentException();
+		return crc16(kb, 0, kb.length);
+	}
+
+	/* (non-Javadoc) @see org.jredis.cluster.support.RangeHashAlgorithm#hash(byte[], int, int) */
+	public long hash (byte[] kb, int offset, int length) {
+		if(null == kb || length == 0) throw new IllegalArgumentException();
+		return crc16(kb, offset, length);
+	}
+
+	/**
+	 * @param b
+	 * @param off
+	 * @param len
+	 * @return the CRC16 of the bytes
+	 */
+	public static int crc16 (byte[] b, int off, int len) {
+		int crc = 0;
+		for(int i=off; i<off+len; i++)
+			crc = ((crc << 8) ^ TABLE[((crc >>> 8) ^ b[i]) & 0xFF]) & 0xFFFF;
+		return crc;
+	}
+}
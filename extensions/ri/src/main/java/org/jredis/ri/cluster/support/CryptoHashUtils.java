@@ -22,6 +22,7 @@
 
 package org.jredis.ri.cluster.support;
 
+import java.security.DigestException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import org.jredis.ClientRuntimeException;
@@ -35,6 +36,15 @@ import org.jredis.ClientRuntimeException;
  */
 
 public class CryptoHashUtils {
+	/** 
+	 * per thread MD5 digest and output buffer: {@link MessageDigest#getInstance(String)} 
+	 * is costly, and {@link MessageDigest#digest()} allocates. 
+	 */
+	private static final ThreadLocal<Md5> threadMd5 = new ThreadLocal<Md5>() {
+		@Override
+		protected Md5 initialValue () { return new Md5(); }
+	};
+	
 	/**
 	 * Get the md5 of the given key. 
 	 * @throws ClientRuntimeException if MD5 algorithm is not supported.
@@ -45,18 +55,50 @@ public class CryptoHashUtils {
 	public static byte[] computeMd5(byte[] b) throws ClientRuntimeException{
 		if(null == b) throw new IllegalArgumentException ("null input");
 		if(b.length == 0) throw new IllegalArgumentException ("zero length input");
-		MessageDigest md5 = null;
-		try {
-	        md5 = MessageDigest.getInstance("MD5");
-			md5.reset();
-			md5.update(b);
-        }
-        catch (NoSuchAlgorithmException e) {
-        	throw new ClientRuntimeException("MD5 Message Digest algorithm is not present in this JRE", e);
-        }
+		final MessageDigest md5 = threadMd5.get().md5;
+		md5.reset();
+		md5.update(b);
 		return md5.digest();
 	}
 	
+	/**
+	 * Allocation free variant of {@link CryptoHashUtils#computeMd5(byte[])}.  The 
+	 * returned digest is the calling thread's buffer, and is only valid until the 
+	 * thread's next call to this method.  
+	 * @param b
+	 * @return the (16 byte) md5 digest of b 
+	 * @throws ClientRuntimeException if MD5 algorithm is not supported.
+	 * @throws IllegalArgumentException if input is null or zero length
+	 */
+	public static byte[] computeMd5ThreadBuffer(byte[] b) throws ClientRuntimeException{
+		if(null == b) throw new IllegalArgumentException ("null input");
+		return computeMd5ThreadBuffer(b, 0, b.length);
+	}
+	
+	/**
+	 * Allocation free md5 of a range of the bytes -- see {@link CryptoHashUtils#computeMd5ThreadBuffer(byte[])}.
+	 * @param b
+	 * @param offset
+	 * @param length
+	 * @return the (16 byte) md5 digest of the range of b
+	 * @throws ClientRuntimeException if MD5 algorithm is not supported.
+	 * @throws IllegalArgumentException if input is null or the range is zero length
+	 */
+	public static byte[] computeMd5ThreadBuffer(byte[] b, int offset, int length) throws ClientRuntimeException{
+		if(null == b) throw new IllegalArgumentException ("null input");
+		if(length == 0) throw new IllegalArgumentException ("zero length input");
+		final Md5 md = threadMd5.get();
+		md.md5.reset();
+		md.md5.update(b, offset, length);
+		try {
+			md.md5.digest(md.digest, 0, md.digest.length);
+		}
+		catch (DigestException e) {
+			throw new ClientRuntimeException("MD5 digest failed", e);
+		}
+		return md.digest;
+	}
+	
 	/**
 	 * @param s
 	 * @return
@@ -67,4 +109,20 @@ public class CryptoHashUtils {
 		if(null == s) throw new IllegalArgumentException ("null input");
 		return computeMd5(s.getBytes());
 	}
+	
+	// ------------------------------------------------------------------------
+	// Inner Types
+	// ------------------------------------------------------------------------
+	private static final class Md5 {
+		final MessageDigest md5;
+		final byte[] digest = new byte[16];
+		Md5 () {
+			try {
+				md5 = MessageDigest.getInstance("MD5");
+			}
+			catch (NoSuchAlgorithmException e) {
+				throw new ClientRuntimeException("MD5 Message Digest algorithm is not present in this JRE", e);
+			}
+		}
+	}
 }
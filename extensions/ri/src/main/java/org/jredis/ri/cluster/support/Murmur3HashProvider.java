@@ -0,0 +1,109 @@
+/*
+ *   Copyright 2009-2012 Joubin Houshyar
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package org.jredis.ri.cluster.support;
+
+import org.jredis.cluster.support.RangeHashAlgorithm;
+
+/**
+ * MurmurHash3 (x86, 32 bit) of Austin Appleby, per the public domain reference 
+ * implementation <code>MurmurHash3_x86_32</code>.  Fast, well distributed, and
+ * allocation free.
+ *
+ * @author  joubin (alphazero@sensesay.net)
+ * @date    Apr 15, 2012
+ * 
+ */
+
+public class Murmur3HashProvider implements RangeHashAlgorithm {
+
+	private static final int C1 = 0xcc9e2d51;
+	private static final int C2 = 0x1b873593;
+
+	/**  */
+	private final int seed;
+
+	/** seed 0 */
+	public Murmur3HashProvider () { this(0); }
+
+	/** @param seed */
+	public Murmur3HashProvider (int seed) { this.seed = seed; }
+
+	/* (non-Javadoc) @see org.jredis.cluster.support.HashAlgorithm#hash(byte[]) */
+	public long hash (byte[] kb) {
+		if(null == kb || kb.length == 0) throw new IllegalArgumentException();
+		return hash32(kb, 0, kb.length, seed) & 0xFFFFFFFFL;
+	}
+
+	/* (non-Javadoc) @see org.jredis.cluster.support.RangeHashAlgorithm#hash(byte[], int, int) */
+	public long hash (byte[] kb, int offset, int length) {
+		if(null == kb || length == 0) throw new IllegalArgumentException();
+		return hash32(kb, offset, length, seed) & 0xFFFFFFFFL;
+	}
+
+	/**
+	 * @param b
+	 * @param seed
+	 * @return the (signed) 32 bit MurmurHash3 of b
+	 */
+	public static int hash32 (byte[] b, int seed) {
+		return hash32(b, 0, b.length, seed);
+	}
+
+	/**
+	 * @param b
+	 * @param offset
+	 * @param len
+	 * @param seed
+	 * @return the (signed) 32 bit MurmurHash3 of the range of b
+	 */
+	public static int hash32 (byte[] b, int offset, int len, int seed) {
+		final int nblocks = len >> 2;
+		int h = seed;
+
+		for(int i=0; i<nblocks; i++){
+			final int off = offset + (i << 2);
+			int k = (b[off] & 0xFF) | ((b[off+1] & 0xFF) << 8) | ((b[off+2] & 0xFF) << 16) | (b[off+3] << 24);
+			k *= C1;
+			k = Integer.rotateLeft(k, 15);
+			k *= C2;
+			h ^= k;
+			h = Integer.rotateLeft(h, 13);
+			h = h * 5 + 0xe6546b64;
+		}
+
+		final int tail = offset + (nblocks << 2);
+		final int rem = len & 3;
+		if(rem != 0){
+			int k = 0;
+			if(rem == 3) k ^= (b[tail+2] & 0xFF) << 16;
+			if(rem >= 2) k ^= (b[tail+1] & 0xFF) << 8;
+			k ^= (b[tail] & 0xFF);
+			k *= C1;
+			k = Integer.rotateLeft(k, 15);
+			k *= C2;
+			h ^= k;
+		}
+
+		h ^= len;
+		h ^= h >>> 16;
+		h *= 0x85ebca6b;
+		h ^= h >>> 13;
+		h *= 0xc2b2ae35;
+		h ^= h >>> 16;
+		return h;
+	}
+}
@@ -17,8 +17,11 @@
 package org.jredis.cluster;
 
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 import org.jredis.NotSupportedException;
+import org.jredis.cluster.support.HashTag;
 import org.jredis.ri.alphazero.connection.DefaultConnectionSpec;
 import org.jredis.ri.alphazero.support.Log;
 import org.jredis.ri.cluster.DefaultClusterNodeSpec;
@@ -121,7 +124,7 @@ public abstract class ClusterModelProviderTestBase extends RefImplTestSuiteBase<
 		}
 		catch (IllegalArgumentException e) { didRaiseEx = true; }
 		catch (RuntimeException whatsthis) { fail("unexpected exception raised during op", whatsthis); }
-		assertTrue(didRaiseEx && !supportsReconfig , "expected only if non reconfigurable");
+		assertEquals(didRaiseEx, !supportsReconfig, "expected only if non reconfigurable");
 
 		ClusterSpec spec = newClusterSpec();
 		ClusterModel model = newClusterModel(spec);
@@ -194,6 +197,21 @@ public abstract class ClusterModelProviderTestBase extends RefImplTestSuiteBase<
 		//
 		model.addNode(new DefaultClusterNodeSpec(DefaultConnectionSpec.newSpec().setPort(9999)));
 	}
+	@Test
+	public void testHashTagColocation (){
+		Log.log("test co-location of keys with hash tags");
+		ClusterModel model = newClusterModel(newClusterSpec().setHashTag(HashTag.BRACES));
+		Set<ClusterNodeSpec> tagNodes = new HashSet<ClusterNodeSpec>();
+		for(int i=0; i<100; i++){
+			String tag = "user:" + i;
+			ClusterNodeSpec node = model.getNodeForKey(("{" + tag + "}").getBytes());
+			tagNodes.add(node);
+			assertEquals(model.getNodeForKey(("{" + tag + "}.followers").getBytes()), node);
+			assertEquals(model.getNodeForKey(("session:{" + tag + "}").getBytes()), node);
+		}
+		assertTrue(tagNodes.size() > 1, "tags should be distributed across the nodes");
+	}
+	
 	@Test
 	public void testKeyDistribution (){
 		long keycnt = data.MEDIUM_CNT;
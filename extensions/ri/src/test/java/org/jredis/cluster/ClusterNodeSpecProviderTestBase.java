@@ -123,7 +123,63 @@ public class ClusterNodeSpecProviderTestBase extends RefImplTestSuiteBase<Cluste
 			assertTrue(generatedIdSet.add(nodeId), "generated ID should be unique but was not: " + nodeId);
 		}
 	}
-	
+
+	/**
+	 * Replicas and the read policy are not part of the node's identity.
+	 */
+	@Test
+	public void testReplicaSpecs () {
+		Log.log("Testing ClusterNodeSpec replica specs and read policy ...");
+
+		ConnectionSpec master = DefaultConnectionSpec.newSpec().setPort(6379);
+		ConnectionSpec replica = DefaultConnectionSpec.newSpec().setPort(6380);
+		ClusterNodeSpec node = newProviderInstance(master);
+		ClusterNodeSpec same = newProviderInstance(master);
+
+		assertEquals(node.getReadPolicy(), ReadPolicy.MASTER_ONLY, "default read policy");
+		assertTrue(node.getReplicaSpecs().isEmpty(), "no replicas by default");
+
+		assertTrue(node.addReplicaSpec(replica).setReadPolicy(ReadPolicy.ROUND_ROBIN) == node, "expecting chained setters");
+		assertEquals(node.getReplicaSpecs().size(), 1);
+		assertEquals(node.getReplicaSpecs().get(0), replica);
+		assertEquals(node.getReadPolicy(), ReadPolicy.ROUND_ROBIN);
+		assertEquals(node, same, "replicas should not change node identity");
+		assertEquals(node.getId(), same.getId());
+
+		boolean didRaiseError = false;
+		try { node.addReplicaSpec(null); }
+		catch (IllegalArgumentException e) { didRaiseError = true; }
+		assertTrue(didRaiseError, "expecting IllegalArgumentException for null replica spec");
+
+		didRaiseError = false;
+		try { node.getReplicaSpecs().clear(); }
+		catch (UnsupportedOperationException e) { didRaiseError = true; }
+		assertTrue(didRaiseError, "expecting an unmodifiable list of replica specs");
+	}
+
+	/**
+	 * The weight is not part of the node's identity.
+	 */
+	@Test
+	public void testWeight () {
+		Log.log("Testing ClusterNodeSpec weight ...");
+
+		ConnectionSpec connSpec = DefaultConnectionSpec.newSpec().setPort(6379);
+		ClusterNodeSpec node = newProviderInstance(connSpec);
+		assertEquals(node.getWeight(), ClusterNodeSpec.DEFAULT_WEIGHT, "default weight");
+		assertTrue(node.setWeight(250) == node, "expecting chained setter");
+		assertEquals(node.getWeight(), 250);
+		assertEquals(node, newProviderInstance(connSpec), "weight should not change node identity");
+
+		for(int weight : new int[]{0, -1, 100 * ClusterNodeSpec.DEFAULT_WEIGHT + 1}) {
+			boolean didRaiseError = false;
+			try { node.setWeight(weight); }
+			catch (IllegalArgumentException e) { didRaiseError = true; }
+			assertTrue(didRaiseError, "expecting IllegalArgumentException for weight " + weight);
+		}
+		assertEquals(node.getWeight(), 250);
+	}
+
 	/**
 	 * We test the Consitent Hash Key for uniqueness.  Testing the full port range * reasonable_inst_cnt will
 	 * exhaust the memory so we'll limit to a subset of ports.
@@ -24,6 +24,7 @@ import org.jredis.ri.alphazero.support.Log;
 import org.jredis.ri.cluster.DefaultClusterNodeSpec;
 import org.jredis.ri.cluster.DefaultClusterSpec;
 import org.jredis.ri.cluster.model.BasicStaticHashCluster;
+import org.jredis.ri.cluster.support.CRC16HashProvider;
 
 import org.testng.annotations.Test;
 import static org.testng.Assert.*;
@@ -76,5 +77,25 @@ public class BasicStaticHashClusterTest extends StaticHashClusterProviderTestBas
     	Log.log("Foo test for BasicStaticHash");
     	assertTrue(true);
     }
+    
+    @Test
+    public void equalKeysTest() {
+    	Log.log("Test BasicStaticHash maps equal keys to the same node");
+    	ClusterModel model = newProviderInstance();
+    	for(int i=0; i<1000; i++){
+    		String key = "key:" + i;
+    		assertSame(model.getNodeForKey(key.getBytes()), model.getNodeForKey(key.getBytes()), "equal keys should map to the same node");
+    	}
+    }
+    
+    @Test
+    public void specHashAlgorithmTest() {
+    	Log.log("Test BasicStaticHash uses the ClusterSpec hash algorithm");
+    	ClusterSpec spec = newClusterSpec().setHashAlgorithm(new CRC16HashProvider());
+    	ClusterModel model = newClusterModel(spec);
+    	ClusterNodeSpec[] nodes = spec.getNodeSpecs().toArray(new ClusterNodeSpec[0]);
+    	byte[] key = "123456789".getBytes();
+    	assertEquals(model.getNodeForKey(key), nodes[0x31c3 % nodes.length]);
+    }
 
 }
@@ -16,13 +16,24 @@
 
 package org.jredis.cluster.models;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.SortedMap;
+import org.jredis.cluster.ClusterModel;
 import org.jredis.cluster.ClusterModelProviderTestBase;
 import org.jredis.cluster.ClusterNodeSpec;
 import org.jredis.cluster.ClusterSpec;
 import org.jredis.cluster.ClusterType;
 import org.jredis.cluster.model.ConsistentHashCluster;
+import org.jredis.cluster.model.ConsistentHashRing;
+import org.jredis.ri.alphazero.connection.DefaultConnectionSpec;
 import org.jredis.ri.alphazero.support.Log;
+import org.jredis.ri.cluster.DefaultClusterNodeSpec;
 
 import org.testng.annotations.Test;
 import static org.testng.Assert.*;
@@ -85,4 +96,105 @@ public abstract class ConsistentHashClusterProviderTestBase extends ClusterModel
 		Log.log("BUG: missing %d nodes!", missCnt);
 		assertEquals(missCnt, 0, "There should be no nodes missing from the node map");
     }
+    
+    @Test
+    public void ringSnapshotTest() {
+    	Log.log("Test ConsistentHashRing snapshot of the nodemap of Consistent Hashing cluster model");
+    	
+    	ConsistentHashCluster model = (ConsistentHashCluster) newProviderInstance();
+    	ConsistentHashCluster.NodeMap nodeMap = model.getNodeMap();
+    	ConsistentHashRing ring = ConsistentHashRing.snapshot(nodeMap);
+    	assertEquals(ring.size(), nodeMap.size(), "ring and nodemap should have the same number of points");
+    	assertEquals(ring.nodeCount(), new HashSet<ClusterNodeSpec>(nodeMap.values()).size(), "ring should have all the nodes of the nodemap");
+    	
+    	// every point maps to itself, and the ring agrees with the sorted map (ceiling, with wraparound)
+    	long first = nodeMap.firstKey();
+    	long last = nodeMap.lastKey();
+    	for(Long point : nodeMap.keySet()){
+    		assertSame(ring.get(point), nodeMap.get(point));
+    	}
+    	assertSame(ring.get(last + 1), nodeMap.get(first), "ring should wrap around to the first point");
+    	assertSame(ring.get(Long.MIN_VALUE), nodeMap.get(first));
+    	Random random = new Random(0);
+    	for(int i=0; i<10000; i++){
+    		long hash = random.nextLong() & 0xFFFFFFFFL;
+    		SortedMap<Long, ClusterNodeSpec> tail = nodeMap.tailMap(hash);
+    		ClusterNodeSpec expected = tail.isEmpty() ? nodeMap.get(first) : tail.get(tail.firstKey());
+    		assertSame(ring.get(hash), expected, "ring lookup should match nodemap for hash " + hash);
+    	}
+    }
+    
+    @Test
+    public void reconfigurationRemapTest() {
+    	Log.log("Test minimal remapping on reconfiguration of Consistent Hashing cluster model");
+    	if(!provider.supportsReconfiguration()) {
+    		Log.log("Skipping test; not applicable.");
+    		return;
+    	}
+    	
+    	ConsistentHashCluster model = (ConsistentHashCluster) newProviderInstance();
+    	final List<ClusterModel.Event> events = new ArrayList<ClusterModel.Event>();
+    	model.addListener(new ClusterModel.Listener() {
+    		public void onEvent (ClusterModel.Event event) { events.add(event); }
+    	});
+    	final int keycnt = 10000;
+    	byte[][] keys = new byte[keycnt][];
+    	ClusterNodeSpec[] owners = new ClusterNodeSpec[keycnt];
+    	for(int i=0; i<keycnt; i++){
+    		keys[i] = ("remap-key-" + i).getBytes();
+    		owners[i] = model.getNodeForKey(keys[i]);
+    	}
+    	ConsistentHashRing ring = model.getRing();
+    	int ringSize = ring.size();
+    	
+    	// keys only move to an added node
+    	ClusterNodeSpec added = new DefaultClusterNodeSpec(DefaultConnectionSpec.newSpec().setPort(65000));
+    	model.addNode(added);
+    	assertEquals(events.size(), 1);
+    	assertEquals(events.get(0).getType(), ClusterModel.Event.Type.NodeAdded);
+    	assertSame(events.get(0).getInfo(), added);
+    	assertNotSame(model.getRing(), ring, "reconfiguration should publish a new ring");
+    	assertEquals(ring.size(), ringSize, "published rings should not be modified");
+    	assertTrue(model.getNodeMap().containsValue(added));
+    	int moved = 0;
+    	for(int i=0; i<keycnt; i++){
+    		ClusterNodeSpec owner = model.getNodeForKey(keys[i]);
+    		if(owner != owners[i]) {
+    			assertSame(owner, added, "keys should only move to the added node");
+    			moved++;
+    		}
+    		assertSame(model.getNodeForKey(keys[i], ring), owners[i], "prior ring should map per prior configuration");
+    	}
+    	Log.log("%d of %d keys moved to the added node", moved, keycnt);
+    	assertTrue(moved > 0, "some keys should move to the added node");
+    	
+    	// and move back on its removal
+    	model.removeNode(added);
+    	assertEquals(events.size(), 2);
+    	assertEquals(events.get(1).getType(), ClusterModel.Event.Type.NodeRemoved);
+    	assertEquals(model.getRing().size(), ringSize);
+    	for(int i=0; i<keycnt; i++)
+    		assertSame(model.getNodeForKey(keys[i]), owners[i], "keys should map to their prior owners after removal of the added node");
+    }
+    
+    @Test
+    public void collidingNodeAdditionTest() {
+    	Log.log("Test points of an added node that collide with those of existing nodes");
+    	ConsistentHashCluster model = (ConsistentHashCluster) newProviderInstance();
+    	final ClusterNodeSpec node = model.getNodeMap().values().iterator().next();
+    	Map<Long, ClusterNodeSpec> points = new HashMap<Long, ClusterNodeSpec>(model.getNodeMap());
+    	
+    	// all points of the twin collide with those of the node
+    	ClusterNodeSpec twin = new DefaultClusterNodeSpec(DefaultConnectionSpec.newSpec().setPort(65001)) {
+    		@Override
+    		public String getKeyForReplicationInstance (int rangeReplicationIndex) {
+    			return node.getKeyForReplicationInstance(rangeReplicationIndex);
+    		}
+    	};
+    	model.addNode(twin);
+    	assertEquals(model.getNodeMap(), points, "colliding points should remain with their owner");
+    	model.removeNode(twin);
+    	assertEquals(model.getNodeMap(), points, "removing the added node should not drop the points of others");
+    	assertEquals(model.getRing().size(), points.size());
+    }
 }
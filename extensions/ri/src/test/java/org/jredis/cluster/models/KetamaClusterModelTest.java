@@ -16,14 +16,24 @@
 
 package org.jredis.cluster.models;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedMap;
 import org.jredis.cluster.ClusterModel;
 import org.jredis.cluster.ClusterNodeSpec;
 import org.jredis.cluster.ClusterSpec;
+import org.jredis.cluster.model.ConsistentHashCluster;
+import org.jredis.cluster.model.ConsistentHashRing;
+import org.jredis.cluster.support.DistributionReport;
+import org.jredis.cluster.support.HashAlgorithm;
 import org.jredis.ri.alphazero.connection.DefaultConnectionSpec;
 import org.jredis.ri.alphazero.support.Log;
 import org.jredis.ri.cluster.DefaultClusterNodeSpec;
 import org.jredis.ri.cluster.DefaultClusterSpec;
 import org.jredis.ri.cluster.model.KetamaClusterModel;
+import org.jredis.ri.cluster.model.KetamaHashProvider;
+import org.jredis.ri.cluster.support.CRC16HashProvider;
+import org.jredis.ri.cluster.support.Murmur3HashProvider;
 
 import org.testng.annotations.Test;
 import static org.testng.Assert.*;
@@ -85,4 +95,141 @@ public class KetamaClusterModelTest extends ConsistentHashClusterProviderTestBas
     	Log.log("Foo test for KetamaClusterModel");
     	assertTrue(true);
     }
+    
+    @Test
+    public void specHashAlgorithmTest() {
+    	Log.log("Test KetamaClusterModel key mapping with the ClusterSpec hash algorithm");
+    	HashAlgorithm keyHash = new Murmur3HashProvider();
+    	KetamaClusterModel model = (KetamaClusterModel) newClusterModel(newClusterSpec().setHashAlgorithm(keyHash));
+    	ConsistentHashRing ring = ConsistentHashRing.snapshot(model.getNodeMap());
+    	for(int i=0; i<1000; i++){
+    		byte[] key = ("key:" + i).getBytes();
+    		assertSame(model.getNodeForKey(key), ring.get(keyHash.hash(key)));
+    	}
+    	
+    	boolean didRaiseError = false;
+    	try {
+    		newClusterModel(newClusterSpec().setHashAlgorithm(new CRC16HashProvider()));
+    	}
+    	catch (IllegalArgumentException e) { didRaiseError = true; }
+    	assertTrue(didRaiseError, "Expecting a raised exception for a 16 bit key hash");
+    }
+    
+    @Test
+    public void getNodeForKeyTest() {
+    	Log.log("Test KetamaClusterModel key mapping against its nodemap");
+    	KetamaClusterModel model = (KetamaClusterModel) newProviderInstance();
+    	ConsistentHashCluster.NodeMap nodeMap = model.getNodeMap();
+    	KetamaHashProvider hashAlgo = new KetamaHashProvider();
+    	for(int i=0; i<10000; i++){
+    		byte[] key = ("key:" + i).getBytes();
+    		SortedMap<Long, ClusterNodeSpec> tail = nodeMap.tailMap(hashAlgo.hash(key));
+    		ClusterNodeSpec expected = tail.isEmpty() ? nodeMap.get(nodeMap.firstKey()) : tail.get(tail.firstKey());
+    		assertSame(model.getNodeForKey(key), expected, "key should map to the node of the next point on the ring");
+    	}
+    }
+    
+    @Test
+    public void weightedDistributionTest() {
+    	Log.log("Test KetamaClusterModel distribution of keys per node weights");
+    	ClusterSpec spec = new DefaultClusterSpec();
+    	for(int i=0; i<10; i++){
+    		ClusterNodeSpec node = new DefaultClusterNodeSpec(DefaultConnectionSpec.newSpec("localhost", 6379+i, 0, null));
+    		spec.addNode(node.setWeight(i % 2 == 0 ? ClusterNodeSpec.DEFAULT_WEIGHT : 3 * ClusterNodeSpec.DEFAULT_WEIGHT));
+    	}
+    	KetamaClusterModel model = (KetamaClusterModel) newClusterModel(spec);
+    	for(ClusterNodeSpec node : spec.getNodeSpecs()){
+    		int points = 0;
+    		for(ClusterNodeSpec owner : model.getNodeMap().values())
+    			if(owner == node) points++;
+    		assertEquals(points, node.getWeight() == ClusterNodeSpec.DEFAULT_WEIGHT ? 228 : 688, "points should scale with weight");
+    	}
+    	
+    	DistributionReport report = DistributionReport.sample(model, 100000);
+    	Log.log("distribution of weighted nodes:\n%s", report);
+    	assertEquals(report.getKeyCount(), 100000);
+    	double ringTotal = 0;
+    	for(ClusterNodeSpec node : report.getNodes()) {
+    		ringTotal += report.getRingShare(node);
+    		assertEquals(report.getExpectedShare(node), node.getWeight() / 2000.0, 0.000001);
+    	}
+    	assertEquals(ringTotal, 1.0, 0.000001, "ring shares should sum to the hash space");
+    	assertTrue(report.getMaxDeviation() < 0.2, "key shares should be within 20% of the weighted shares");
+    }
+    
+    @Test
+    public void replicationCountTest() {
+    	Log.log("Test KetamaClusterModel points per node of small clusters");
+    	// log(n)*100 (to a multiple of 4) points per node for existing configurations
+    	int[] expected = {160, 160, 68, 108, 136, 160, 176};
+    	for(int n=0; n<expected.length; n++){
+    		ClusterSpec spec = new DefaultClusterSpec();
+    		for(int i=0; i<n; i++)
+    			spec.addNode(new DefaultClusterNodeSpec(DefaultConnectionSpec.newSpec("localhost", 6379+i, 0, null)));
+    		KetamaClusterModel model = (KetamaClusterModel) newClusterModel(spec);
+    		assertEquals(model.getNodeMap().size(), n * expected[n], "points of a cluster of " + n + " nodes");
+    		
+    		// the minimum is opt-in
+    		model = new KetamaClusterModel(spec) {
+    			@Override protected int minReplicationCount() { return MIN_REPLICATION_CNT; }
+    		};
+    		assertEquals(model.getNodeMap().size(), n * Math.max(160, expected[n]), "points of a cluster of " + n + " nodes with a minimum");
+    		
+    		// the nodes of a cluster that grows have the initial points
+    		model.addNode(new DefaultClusterNodeSpec(DefaultConnectionSpec.newSpec("localhost", 6479, 0, null)));
+    		assertEquals(model.getNodeMap().size(), (n + 1) * Math.max(160, expected[n]));
+    	}
+    }
+    
+    @Test
+    public void reweightRemapTest() {
+    	Log.log("Test minimal remapping on reweighting a node of KetamaClusterModel");
+    	KetamaClusterModel model = (KetamaClusterModel) newProviderInstance();
+    	final List<ClusterModel.Event> events = new ArrayList<ClusterModel.Event>();
+    	model.addListener(new ClusterModel.Listener() {
+    		public void onEvent (ClusterModel.Event event) { events.add(event); }
+    	});
+    	final int keycnt = 10000;
+    	byte[][] keys = new byte[keycnt][];
+    	ClusterNodeSpec[] owners = new ClusterNodeSpec[keycnt];
+    	for(int i=0; i<keycnt; i++){
+    		keys[i] = ("reweight-key-" + i).getBytes();
+    		owners[i] = model.getNodeForKey(keys[i]);
+    	}
+    	ClusterNodeSpec node = owners[0];
+    	int ringSize = model.getRing().size();
+    	
+    	// keys only move to a node of greater weight
+    	model.setNodeWeight(node, 4 * ClusterNodeSpec.DEFAULT_WEIGHT);
+    	assertEquals(events.size(), 1);
+    	assertEquals(events.get(0).getType(), ClusterModel.Event.Type.NodeReweighted);
+    	assertSame(events.get(0).getInfo(), node);
+    	assertEquals(node.getWeight(), 4 * ClusterNodeSpec.DEFAULT_WEIGHT);
+    	int moved = 0;
+    	for(int i=0; i<keycnt; i++){
+    		ClusterNodeSpec owner = model.getNodeForKey(keys[i]);
+    		if(owner != owners[i]) {
+    			assertSame(owner, node, "keys should only move to the reweighted node");
+    			moved++;
+    		}
+    	}
+    	Log.log("%d of %d keys moved to the reweighted node", moved, keycnt);
+    	assertTrue(moved > 0, "some keys should move to the reweighted node");
+    	
+    	// and move back on restoring its weight
+    	model.setNodeWeight(node, ClusterNodeSpec.DEFAULT_WEIGHT);
+    	assertEquals(events.size(), 2);
+    	assertEquals(model.getRing().size(), ringSize);
+    	for(int i=0; i<keycnt; i++)
+    		assertSame(model.getNodeForKey(keys[i]), owners[i], "keys should map to their prior owners on restoring the weight");
+    	
+    	// no event if the weight does not change
+    	model.setNodeWeight(node, ClusterNodeSpec.DEFAULT_WEIGHT);
+    	assertEquals(events.size(), 2);
+    	
+    	boolean didRaiseError = false;
+    	try { model.setNodeWeight(new DefaultClusterNodeSpec(DefaultConnectionSpec.newSpec().setPort(65000)), 200); }
+    	catch (IllegalArgumentException e) { didRaiseError = true; }
+    	assertTrue(didRaiseError, "Expecting a raised exception for a node not in the model");
+    }
 }
@@ -0,0 +1,56 @@
+/*
+ *   Copyright 2009-2012 Joubin Houshyar
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *    
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *    
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package org.jredis.cluster.models;
+
+import static org.testng.Assert.assertEquals;
+import org.jredis.cluster.support.HashAlgorithm;
+import org.jredis.cluster.support.HashAlgorithmProviderTestBase;
+import org.jredis.ri.alphazero.support.Log;
+import org.jredis.ri.cluster.support.XXHash32Provider;
+import org.testng.annotations.Test;
+
+/**
+ * Tests {@link XXHash32Provider}, with the reference known answers.
+ *
+ * @author  joubin (alphazero@sensesay.net)
+ * @date    Apr 15, 2012
+ * 
+ */
+
+public class XXHash32HashAlgoTest extends HashAlgorithmProviderTestBase {
+
+	// ------------------------------------------------------------------------
+	// super overrides
+	// ------------------------------------------------------------------------
+	
+	/* (non-Javadoc) @see org.jredis.cluster.ProviderTestBase#newProviderInstance() */
+	@Override
+	protected HashAlgorithm newProviderInstance () {
+		return new XXHash32Provider();
+	}
+	
+	// ------------------------------------------------------------------------
+	// Tests
+	// ------------------------------------------------------------------------
+	@Test
+	public void testKnownAnswers () {
+		Log.log("Testing XXHash32Provider known answers");
+		HashAlgorithm hashAlgo = newProviderInstance();
+		assertEquals(hashAlgo.hash("abc".getBytes()), 0x32d153ffL);
+		assertEquals(hashAlgo.hash("Nobody inspects the spammish repetition".getBytes()), 0xe2293b2fL);
+	}
+}
@@ -18,6 +18,7 @@ package org.jredis.cluster.support;
 
 
 
+import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 import java.util.HashSet;
@@ -101,4 +102,101 @@ public class HashAlgorithmProviderTestBase extends RefImplTestSuiteBase<HashAlgo
         	fail("Unexpected exception class thrown", whatsthis);
         }
 	}
+	
+	@Test
+	public void testHashRange() {
+		Log.log("Testing RangeHashAlgorithm hash(byte[], int, int)");
+		HashAlgorithm algo = newProviderInstance();
+		if(!(algo instanceof RangeHashAlgorithm)) return;
+		RangeHashAlgorithm hashAlgo = (RangeHashAlgorithm) algo;
+		for(int i=0; i<1000; i++){
+			byte[] b = data.getRandomBytes(1 + i % 64);
+			int offset = i % b.length;
+			int length = b.length - offset;
+			byte[] range = new byte[length];
+			System.arraycopy(b, offset, range, 0, length);
+			assertEquals(hashAlgo.hash(b, offset, length), hashAlgo.hash(range), "hash of range should be that of its copy");
+		}
+		
+		boolean didRaiseError = false;
+		try {
+			hashAlgo.hash(data.getRandomBytes(8), 3, 0);
+		}
+		catch (IllegalArgumentException e){ didRaiseError = true; }
+		assertTrue(didRaiseError, "Expecting a raised exception for zero length range");
+	}
+	
+	@Test
+	public void testHashTag() {
+		Log.log("Testing HashTag hash of HashAlgorithm");
+		HashAlgorithm hashAlgo = newProviderInstance();
+		HashTag tag = HashTag.BRACES;
+		long expected = hashAlgo.hash("user:1000".getBytes());
+		assertEquals(tag.hash(hashAlgo, "{user:1000}.followers".getBytes()), expected);
+		assertEquals(tag.hash(hashAlgo, "followers.{user:1000}".getBytes()), expected);
+		assertEquals(tag.hash(hashAlgo, "a{user:1000}b{c}".getBytes()), expected);
+		assertEquals(tag.hash(hashAlgo, "{user:1000}".getBytes()), expected);
+		// no tag, or empty tag: whole key
+		for(String key : new String[]{"user:1000", "{user:1000", "user:1000}", "{}user:1000", "}user:1000{"})
+			assertEquals(tag.hash(hashAlgo, key.getBytes()), hashAlgo.hash(key.getBytes()), key);
+		assertEquals(new HashTag('<', '>').hash(hashAlgo, "<user:1000>:x".getBytes()), expected);
+		
+		// tag of an algorithm that does not hash ranges
+		final HashAlgorithm delegate = hashAlgo;
+		HashAlgorithm plainAlgo = new HashAlgorithm() {
+			public long hash (byte[] kb) { return delegate.hash(kb); }
+		};
+		assertEquals(tag.hash(plainAlgo, "{user:1000}.followers".getBytes()), expected);
+		assertEquals(tag.hash(plainAlgo, "user:1000".getBytes()), expected);
+	}
+	
+	/**
+	 * Chi-square test of the distribution of (typical, sequential) keys over buckets
+	 * of hash % buckets.
+	 */
+	@Test
+	public void testDistribution() {
+		Log.log("Testing HashAlgorithm key distribution");
+		HashAlgorithm hashAlgo = newProviderInstance();
+		final int buckets = 64;
+		final int cnt = buckets * 1000;
+		int[] counts = new int[buckets];
+		for(int i=0; i<cnt; i++){
+			long hash = hashAlgo.hash(("user:" + i + ":session").getBytes());
+			assertTrue(hash >= 0 && hash <= 0xFFFFFFFFL, "hash should be an unsigned 32 bit value");
+			counts[(int) (hash % buckets)]++;
+		}
+		final double expected = (double) cnt / buckets;
+		double chi2 = 0;
+		int min = Integer.MAX_VALUE, max = 0;
+		for(int c : counts){
+			chi2 += (c - expected) * (c - expected) / expected;
+			min = Math.min(min, c);
+			max = Math.max(max, c);
+		}
+		Log.log("Distributed %d keys in %d buckets -- AVG: %d - MIN: %d - MAX: %d - chi-square: %.1f", cnt, buckets, (int) expected, min, max, chi2);
+		// 63 degrees of freedom: p = 0.001 at 103.4
+		assertTrue(chi2 < 103.4, "key distribution is not uniform: chi-square " + chi2);
+	}
+	
+	/**
+	 * Reports throughput -- no assertions on timing.
+	 */
+	@Test
+	public void testThroughput() {
+		Log.log("Testing HashAlgorithm throughput");
+		HashAlgorithm hashAlgo = newProviderInstance();
+		final int keyCnt = 1024;
+		byte[][] keys = new byte[keyCnt][];
+		for(int i=0; i<keyCnt; i++)
+			keys[i] = ("user:" + i + ":session:" + data.getRandomBytes(8).length).getBytes();
+		
+		final int iters = 1000000;
+		long sink = 0;
+		for(int i=0; i<iters; i++) sink += hashAlgo.hash(keys[i & (keyCnt-1)]);	// warmup
+		long start = System.nanoTime();
+		for(int i=0; i<iters; i++) sink += hashAlgo.hash(keys[i & (keyCnt-1)]);
+		long delta = System.nanoTime() - start;
+		Log.log("%s: hashed %d keys in %d msecs -- %d nsecs/key (%d)", hashAlgo.getClass().getSimpleName(), iters, delta/1000000, delta/iters, sink & 0x1);
+	}
 }
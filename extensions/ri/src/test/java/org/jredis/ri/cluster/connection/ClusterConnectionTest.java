@@ -0,0 +1,735 @@
+/*
+ *   Copyright 2009-2012 Joubin Houshyar
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+
+package org.jredis.ri.cluster.connection;
+
+import static org.testng.Assert.*;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.jredis.ClientRuntimeException;
+import org.jredis.FutureCallback;
+import org.jredis.JRedis;
+import org.jredis.JRedisFuture;
+import org.jredis.ListenableFuture;
+import org.jredis.NotSupportedException;
+import org.jredis.cluster.ClusterModel;
+import org.jredis.cluster.ClusterNodeSpec;
+import org.jredis.cluster.ClusterSpec;
+import org.jredis.cluster.ReadPolicy;
+import org.jredis.cluster.connector.ClusterConnection;
+import org.jredis.cluster.support.HashTag;
+import org.jredis.connector.Connection;
+import org.jredis.connector.NotConnectedException;
+import org.jredis.loopback.LoopbackServer;
+import org.jredis.protocol.Command;
+import org.jredis.ri.alphazero.JRedisClient;
+import org.jredis.ri.alphazero.connection.DefaultConnectionSpec;
+import org.jredis.ri.alphazero.support.Log;
+import org.jredis.ri.cluster.DefaultClusterNodeSpec;
+import org.jredis.ri.cluster.DefaultClusterSpec;
+import org.jredis.ri.cluster.JRedisClusterClient;
+import org.jredis.ri.cluster.JRedisClusterPipeline;
+import org.jredis.ri.cluster.model.BasicStaticHashCluster;
+import org.jredis.ri.cluster.model.KetamaClusterModel;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Tests the synchronous and pipelined cluster connections against a cluster
+ * of {@link LoopbackServer} nodes.
+ *
+ * @author  joubin (alphazero@sensesay.net)
+ * @date    Apr 15, 2012
+ * 
+ */
+
+@Test(suiteName="extensions-ri-cluster-connection")
+public class ClusterConnectionTest {
+
+	static final int NODE_CNT = 3;
+	static final int KEY_CNT = 300;
+	static final int REPLICA_CNT = 2;
+
+	private LoopbackServer[]	servers;
+	private JRedis[]			nodeClients;
+	private LoopbackServer[]	replicaServers;
+	private JRedis[]			replicaClients;
+
+	@BeforeClass
+	public void startNodes () throws Exception {
+		servers = new LoopbackServer[NODE_CNT];
+		nodeClients = new JRedis[NODE_CNT];
+		for(int i=0; i<NODE_CNT; i++){
+			servers[i] = LoopbackServer.start(LoopbackServer.Spec.newSpec());
+			nodeClients[i] = new JRedisClient(DefaultConnectionSpec.newSpec("127.0.0.1", servers[i].getPort(), 0, null));
+		}
+		replicaServers = new LoopbackServer[REPLICA_CNT];
+		replicaClients = new JRedis[REPLICA_CNT];
+		for(int r=0; r<REPLICA_CNT; r++){
+			replicaServers[r] = LoopbackServer.start(LoopbackServer.Spec.newSpec());
+			replicaClients[r] = new JRedisClient(DefaultConnectionSpec.newSpec("127.0.0.1", replicaServers[r].getPort(), 0, null));
+		}
+	}
+
+	@AfterClass
+	public void stopNodes () {
+		for(LoopbackServer server : servers)
+			server.stop();
+		for(LoopbackServer server : replicaServers)
+			server.stop();
+	}
+
+	@BeforeMethod
+	public void flushNodes () {
+		for(LoopbackServer server : servers)
+			server.flushAll();
+		for(LoopbackServer server : replicaServers)
+			server.flushAll();
+	}
+
+	/** a model per cluster connection: node connection specs are (re)configured per modality */
+	private ClusterModel newModel () {
+		return newModel(NODE_CNT);
+	}
+
+	/** @return a model of the first nodeCnt servers */
+	private ClusterModel newModel (int nodeCnt) {
+		return newModel(nodeCnt, null);
+	}
+
+	/** @return a model of the first nodeCnt servers, with the hash tag */
+	private ClusterModel newModel (int nodeCnt, HashTag hashTag) {
+		ClusterSpec spec = new DefaultClusterSpec().setHashTag(hashTag);
+		for(int i=0; i<nodeCnt; i++)
+			spec.addNode(newNodeSpec(i));
+		return new KetamaClusterModel(spec);
+	}
+
+	/** @return a model of the first two servers: the first with the replica servers, per the read policy */
+	private ClusterModel newReplicatedModel (ReadPolicy policy) {
+		ClusterNodeSpec replicated = newNodeSpec(0).setReadPolicy(policy);
+		for(int r=0; r<REPLICA_CNT; r++)
+			replicated.addReplicaSpec(DefaultConnectionSpec.newSpec("127.0.0.1", replicaServers[r].getPort(), 0, null));
+		ClusterSpec spec = new DefaultClusterSpec();
+		spec.addNode(replicated);
+		spec.addNode(newNodeSpec(1));
+		return new KetamaClusterModel(spec);
+	}
+
+	private ClusterNodeSpec newNodeSpec (int server) {
+		return new DefaultClusterNodeSpec(DefaultConnectionSpec.newSpec("127.0.0.1", servers[server].getPort(), 0, null));
+	}
+
+	/** @return the index of the server of the node of the key */
+	private int serverFor (ClusterModel model, String key) {
+		ClusterNodeSpec node = model.getNodeForKey(key.getBytes());
+		for(int i=0; i<NODE_CNT; i++)
+			if(node.getConnectionSpec().getPort() == servers[i].getPort()) return i;
+		throw new AssertionError("no server for node " + node.getId());
+	}
+
+	private void assertKeysOnModelNodes (ClusterModel model) throws Exception {
+		long total = 0;
+		for(int i=0; i<NODE_CNT; i++) {
+			long dbsize = nodeClients[i].dbsize();
+			assertTrue(dbsize > 0, "node " + i + " has no keys");
+			total += dbsize;
+		}
+		assertEquals(total, KEY_CNT);
+		for(int k=0; k<KEY_CNT; k++){
+			String key = "key:" + k;
+			assertEquals(new String(nodeClients[serverFor(model, key)].get(key)), "value:" + k);
+		}
+	}
+
+	@Test
+	public void testSynchClusterRouting () throws Exception {
+		Log.log("Testing SynchClusterConnection routing ...");
+		ClusterModel model = newModel();
+		JRedisClusterClient jredis = new JRedisClusterClient(model);
+		assertEquals(jredis.getClusterConnection().getModality(), Connection.Modality.Synchronous);
+
+		jredis.ping();
+		for(int k=0; k<KEY_CNT; k++)
+			jredis.set("key:" + k, "value:" + k);
+		for(int k=0; k<KEY_CNT; k++)
+			assertEquals(new String(jredis.get("key:" + k)), "value:" + k);
+		assertKeysOnModelNodes(model);
+
+		jredis.flushdb();
+		for(int i=0; i<NODE_CNT; i++)
+			assertEquals(nodeClients[i].dbsize(), 0);
+		jredis.quit();
+	}
+
+	@Test
+	public void testPipelineClusterRouting () throws Exception {
+		Log.log("Testing PipelineClusterConnection routing ...");
+		ClusterModel model = newModel();
+		JRedisClusterPipeline pipeline = new JRedisClusterPipeline(model);
+		assertEquals(pipeline.getClusterConnection().getModality(), Connection.Modality.Asynchronous);
+
+		List<Future<?>> futures = new ArrayList<Future<?>>(KEY_CNT);
+		for(int k=0; k<KEY_CNT; k++)
+			futures.add(pipeline.set("key:" + k, "value:" + k));
+		List<Future<Long>> incrs = new ArrayList<Future<Long>>(KEY_CNT);
+		for(int k=0; k<KEY_CNT; k++)
+			incrs.add(pipeline.incr("counter"));
+		for(Future<?> f : futures) f.get();
+		for(int k=0; k<KEY_CNT; k++)
+			assertEquals(incrs.get(k).get().longValue(), k + 1);
+		pipeline.del("counter").get();
+		assertKeysOnModelNodes(model);
+
+		pipeline.flushdb().get();
+		for(int i=0; i<NODE_CNT; i++)
+			assertEquals(nodeClients[i].dbsize(), 0);
+		pipeline.quit().get();
+	}
+
+	@Test
+	public void testUnsupportedRequests () throws Exception {
+		Log.log("Testing cluster connection unsupported requests ...");
+		ClusterModel model = newModel();
+		JRedisClusterClient jredis = new JRedisClusterClient(model);
+		assertFalse(jredis.getClusterConnection().supports(Command.KEYS));
+		assertFalse(jredis.getClusterConnection().supports(Command.DBSIZE));
+		assertTrue(jredis.getClusterConnection().supports(Command.HINCRBY));
+		assertTrue(jredis.getClusterConnection().supports(Command.MSET));
+		try {
+			jredis.keys();
+			fail("expected NotSupportedException for KEYS");
+		}
+		catch (NotSupportedException expected) { }
+
+		String k0 = "key:0", k1 = null;
+		for(int k=1; k1 == null; k++)
+			if(serverFor(model, "key:" + k) != serverFor(model, k0)) k1 = "key:" + k;
+		try {
+			jredis.rename(k0, k1);
+			fail("expected ClientRuntimeException for RENAME across nodes");
+		}
+		catch (ClientRuntimeException expected) { }
+		try {
+			Map<String, byte[]> kvs = new LinkedHashMap<String, byte[]>();
+			kvs.put(k0, k0.getBytes());
+			kvs.put(k1, k1.getBytes());
+			jredis.msetnx(kvs);
+			fail("expected ClientRuntimeException for MSETNX across nodes");
+		}
+		catch (ClientRuntimeException expected) { }
+		jredis.quit();
+	}
+
+	@Test
+	public void testHashTagMultiKeyRequests () throws Exception {
+		Log.log("Testing multi-key requests of keys with a hash tag ...");
+		ClusterModel model = newModel(NODE_CNT, HashTag.BRACES);
+		JRedisClusterClient jredis = new JRedisClusterClient(model);
+
+		// a tag per node
+		String[] tags = new String[NODE_CNT];
+		for(int t=0, found=0; found < NODE_CNT; t++){
+			int server = serverFor(model, "{user:" + t + "}");
+			if(tags[server] == null) { tags[server] = "{user:" + t + "}"; found++; }
+		}
+		for(int i=0; i<NODE_CNT; i++){
+			String tag = tags[i];
+			jredis.sadd(tag + ".a", "x");
+			jredis.sadd(tag + ".a", "y");
+			jredis.sadd(tag + ".b", "y");
+			assertEquals(new String(jredis.sinter(tag + ".a", tag + ".b").get(0)), "y");
+			assertTrue(jredis.smove(tag + ".a", tag + ".c", "x"));
+			jredis.rpush(tag + ".list", "item");
+			assertEquals(new String(jredis.rpoplpush(tag + ".list", "queue:" + tag)), "item");
+			jredis.rename(tag + ".c", "renamed." + tag);
+			assertEquals(nodeClients[i].dbsize(), 4, "keys of the tag should be on its node");
+			jredis.sort(tag + ".a").ALPHA().STORE(tag + ".sorted").exec();
+			assertTrue(nodeClients[i].exists(tag + ".sorted"), "SORT destination of the tag should be on its node");
+		}
+		try {
+			jredis.sinter(tags[0] + ".a", tags[1] + ".a");
+			fail("expected ClientRuntimeException for SINTER across tags of different nodes");
+		}
+		catch (ClientRuntimeException expected) { }
+		try {
+			jredis.sort(tags[0] + ".a").ALPHA().STORE(tags[1] + ".sorted").exec();
+			fail("expected ClientRuntimeException for SORT ... STORE across tags of different nodes");
+		}
+		catch (ClientRuntimeException expected) { }
+		jredis.quit();
+	}
+
+	@Test
+	public void testSynchScatterGather () throws Exception {
+		Log.log("Testing SynchClusterConnection scatter-gather of MSET, MGET and DEL ...");
+		ClusterModel model = newModel();
+		JRedisClusterClient jredis = new JRedisClusterClient(model);
+
+		Map<String, byte[]> kvs = new LinkedHashMap<String, byte[]>();
+		for(int k=0; k<KEY_CNT; k++)
+			kvs.put("key:" + k, ("value:" + k).getBytes());
+		jredis.mset(kvs);
+		assertKeysOnModelNodes(model);
+
+		assertMultiGet(jredis.mget(multiGetKeys()));
+		assertEquals(jredis.del(multiGetKeys()), KEY_CNT);
+		for(int i=0; i<NODE_CNT; i++)
+			assertEquals(nodeClients[i].dbsize(), 0);
+		jredis.quit();
+	}
+
+	@Test
+	public void testPipelineScatterGather () throws Exception {
+		Log.log("Testing PipelineClusterConnection scatter-gather of MSET, MGET and DEL ...");
+		ClusterModel model = newModel();
+		JRedisFuture pipeline = new JRedisClusterPipeline(model);
+
+		Map<String, byte[]> kvs = new LinkedHashMap<String, byte[]>();
+		for(int k=0; k<KEY_CNT; k++)
+			kvs.put("key:" + k, ("value:" + k).getBytes());
+		assertFalse(pipeline.mset(kvs).get().isError());
+		assertKeysOnModelNodes(model);
+
+		String[] keys = multiGetKeys();
+		Future<List<byte[]>> values = pipeline.mget(keys);
+		Future<Long> deleted = pipeline.del((Object[]) keys);
+		assertMultiGet(values.get());
+		assertEquals(deleted.get().longValue(), KEY_CNT);
+		pipeline.quit().get();
+	}
+
+	@Test
+	public void testPipelineScatterGatherCallbacks () throws Exception {
+		Log.log("Testing PipelineClusterConnection callbacks of scattered and broadcast requests ...");
+		ClusterModel model = newModel();
+		JRedisFuture pipeline = new JRedisClusterPipeline(model);
+
+		assertFalse(onCallback(pipeline.ping()).isError());
+		Map<String, byte[]> kvs = new LinkedHashMap<String, byte[]>();
+		for(int k=0; k<KEY_CNT; k++)
+			kvs.put("key:" + k, ("value:" + k).getBytes());
+		assertFalse(onCallback(pipeline.mset(kvs)).isError());
+		assertKeysOnModelNodes(model);
+		assertMultiGet(onCallback(pipeline.mget(multiGetKeys())));
+		assertEquals(onCallback(pipeline.del((Object[]) multiGetKeys())).longValue(), KEY_CNT);
+
+		pipeline.set("key:0", "value:0").get();
+		assertFalse(onCallback(pipeline.flushdb()).isError());
+		for(int i=0; i<NODE_CNT; i++)
+			assertEquals(nodeClients[i].dbsize(), 0);
+
+		// callbacks registered after completion are called by the registering thread
+		ListenableFuture<List<byte[]>> values = pipeline.mget(multiGetKeys());
+		values.get();
+		assertEquals(onCallback(values).size(), KEY_CNT * 2);
+		onCallback(pipeline.quit());
+	}
+
+	/** @return the result of the future, as notified to a callback */
+	private static <T> T onCallback (ListenableFuture<T> future) throws Exception {
+		final CountDownLatch done = new CountDownLatch(1);
+		final AtomicReference<T> result = new AtomicReference<T>();
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		future.addCallback(new FutureCallback<T>() {
+			public void onSuccess (T value) { result.set(value); done.countDown(); }
+			public void onFailure (Throwable cause) { failure.set(cause); done.countDown(); }
+		});
+		assertTrue(done.await(5, TimeUnit.SECONDS), "callback should have been called");
+		if(null != failure.get()) throw new ExecutionException(failure.get());
+		return result.get();
+	}
+
+	/** @return all keys, in reverse order, interleaved with keys that are not set */
+	private String[] multiGetKeys () {
+		String[] keys = new String[KEY_CNT * 2];
+		for(int k=0; k<KEY_CNT; k++){
+			keys[k * 2] = "key:" + (KEY_CNT - 1 - k);
+			keys[k * 2 + 1] = "nokey:" + k;
+		}
+		return keys;
+	}
+
+	private void assertMultiGet (List<byte[]> values) {
+		assertEquals(values.size(), KEY_CNT * 2);
+		for(int k=0; k<KEY_CNT; k++){
+			assertEquals(new String(values.get(k * 2)), "value:" + (KEY_CNT - 1 - k));
+			assertNull(values.get(k * 2 + 1));
+		}
+	}
+
+	@Test
+	public void testSynchMigrationWindow () throws Exception {
+		Log.log("Testing SynchClusterConnection reconfiguration and migration window ...");
+		final ClusterModel model = newModel(NODE_CNT - 1);
+		final JRedisClusterClient jredis = new JRedisClusterClient(model);
+		assertMigrationWindow(model, jredis.getClusterConnection(), new KeyReader() {
+			public byte[] get (String key) throws Exception { return jredis.get(key); }
+			public void set (String key, String value) throws Exception { jredis.set(key, value); }
+		});
+		jredis.quit();
+	}
+
+	@Test
+	public void testPipelineMigrationWindow () throws Exception {
+		Log.log("Testing PipelineClusterConnection reconfiguration and migration window ...");
+		final ClusterModel model = newModel(NODE_CNT - 1);
+		final JRedisClusterPipeline pipeline = new JRedisClusterPipeline(model);
+		assertMigrationWindow(model, pipeline.getClusterConnection(), new KeyReader() {
+			public byte[] get (String key) throws Exception { return onCallback(pipeline.get(key)); }
+			public void set (String key, String value) throws Exception { pipeline.set(key, value).get(); }
+		});
+		pipeline.quit().get();
+	}
+
+	@Test
+	public void testRoutingCache () throws Exception {
+		Log.log("Testing SynchClusterConnection routing cache ...");
+		final ClusterModel model = newModel(NODE_CNT - 1);
+		final JRedisClusterClient jredis = new JRedisClusterClient(model);
+		final ClusterConnectionBase conn = (ClusterConnectionBase) jredis.getClusterConnection();
+		assertNull(conn.getRoutingStats(), "no routing cache by default");
+		conn.setRoutingCache(100);
+		assertEquals(conn.getRoutingStats().getCapacity(), 128, "capacity rounded up to a power of 2");
+
+		final int hotKeyCnt = 16;
+		final int reads = 10;
+		for(int k=0; k<hotKeyCnt; k++)
+			jredis.set("key:" + k, "value:" + k);
+		for(int r=0; r<reads; r++)
+			for(int k=0; k<hotKeyCnt; k++)
+				assertEquals(new String(jredis.get("key:" + k)), "value:" + k);
+		ClusterConnectionBase.RoutingStats stats = conn.getRoutingStats();
+		Log.log("routing cache: %s", stats);
+		assertEquals(stats.getHits() + stats.getMisses(), hotKeyCnt * (1 + reads), "a lookup per request");
+		assertTrue(stats.getHitRatio() > 0.5, "hot keys should be served by the cache");
+		assertEquals(stats.getInvalidations(), 0);
+
+		// a stream of cold keys does not evict the hot keys
+		for(int k=0; k<1000; k++)
+			jredis.get("cold:" + k);
+		stats = conn.getRoutingStats();
+		for(int k=0; k<hotKeyCnt; k++)
+			jredis.get("key:" + k);
+		long hotHits = conn.getRoutingStats().getHits() - stats.getHits();
+		Log.log("%d of %d hot keys hit after the cold keys", hotHits, hotKeyCnt);
+		assertTrue(hotHits > hotKeyCnt / 2, "hot keys should survive a stream of cold keys");
+
+		// reconfiguration invalidates the cache: keys are routed per the new ring
+		final int added = NODE_CNT - 1;
+		model.addNode(newNodeSpec(added));
+		assertEquals(conn.getRoutingStats().getInvalidations(), 1);
+		int moved = 0;
+		for(int k=0; k<hotKeyCnt; k++) {
+			String key = "key:" + k;
+			jredis.set(key, "rerouted");
+			assertEquals(new String(nodeClients[serverFor(model, key)].get(key)), "rerouted", "key should be routed per the new configuration");
+			if(serverFor(model, key) == added) moved++;
+		}
+		Log.log("%d of %d hot keys moved to the added node", moved, hotKeyCnt);
+
+		boolean didRaiseError = false;
+		try { conn.setRoutingCache(-1); }
+		catch (ClientRuntimeException e) { didRaiseError = true; }
+		assertTrue(didRaiseError, "expecting ClientRuntimeException for negative capacity");
+		conn.setRoutingCache(0);
+		assertNull(conn.getRoutingStats(), "routing cache disabled");
+		jredis.quit();
+	}
+
+	interface KeyReader {
+		byte[] get (String key) throws Exception;
+		void set (String key, String value) throws Exception;
+	}
+
+	/**
+	 * Adds the last server to a cluster of the others, and then removes it, each
+	 * with a migration window.
+	 */
+	private void assertMigrationWindow (ClusterModel model, ClusterConnection conn, KeyReader jredis) throws Exception {
+		final long window = 1000;
+		conn.setMigrationWindow(window, TimeUnit.MILLISECONDS);
+		final int added = NODE_CNT - 1;
+		for(int k=0; k<KEY_CNT; k++)
+			jredis.set("key:" + k, "value:" + k);
+		assertEquals(nodeClients[added].dbsize(), 0);
+
+		// moved keys are read from their previous owner during the window
+		ClusterNodeSpec addedSpec = newNodeSpec(added);
+		model.addNode(addedSpec);
+		List<String> moved = new ArrayList<String>();
+		for(int k=0; k<KEY_CNT; k++){
+			String key = "key:" + k;
+			if(serverFor(model, key) == added) moved.add(key);
+		}
+		assertTrue(moved.size() > 0, "some keys should have moved to the added node");
+		for(String key : moved)
+			assertEquals(new String(jredis.get(key)), "value:" + key.substring(4), "read in migration window");
+		jredis.set(moved.get(0), "migrated");
+		assertEquals(new String(nodeClients[added].get(moved.get(0))), "migrated");
+		assertEquals(new String(jredis.get(moved.get(0))), "migrated");
+
+		// and not after it
+		Thread.sleep(window + 50);
+		assertEquals(new String(jredis.get(moved.get(0))), "migrated");
+		for(String key : moved.subList(1, moved.size()))
+			assertNull(jredis.get(key), "read after migration window");
+
+		// keys of a removed node are read from its retired connection during the window
+		for(int i=0; i<added; i++)
+			nodeClients[i].del(moved.get(0));	// the stale pre-migration copy
+		int connCnt = servers[added].getConnectionCount();
+		model.removeNode(addedSpec);
+		assertEquals(new String(jredis.get(moved.get(0))), "migrated", "read of removed node's key in migration window");
+		Thread.sleep(window + 50);
+		assertNull(jredis.get(moved.get(0)), "read of removed node's key after migration window");
+		for(int i=0; i<20 && servers[added].getConnectionCount() >= connCnt; i++)
+			Thread.sleep(10);
+		assertTrue(servers[added].getConnectionCount() < connCnt, "retired connection should be closed after the window");
+	}
+
+	@Test
+	public void testSynchReplicaReads () throws Exception {
+		Log.log("Testing SynchClusterConnection read routing to node replicas ...");
+		for(ReadPolicy policy : ReadPolicy.values()){
+			final ClusterModel model = newReplicatedModel(policy);
+			final JRedisClusterClient jredis = new JRedisClusterClient(model);
+			assertReplicaReads(model, policy, new KeyReader() {
+				public byte[] get (String key) throws Exception { return jredis.get(key); }
+				public void set (String key, String value) throws Exception { jredis.set(key, value); }
+			});
+			jredis.quit();
+			assertReplicasClosed();
+		}
+	}
+
+	@Test
+	public void testPipelineReplicaReads () throws Exception {
+		Log.log("Testing PipelineClusterConnection read routing to node replicas ...");
+		for(ReadPolicy policy : ReadPolicy.values()){
+			final ClusterModel model = newReplicatedModel(policy);
+			final JRedisClusterPipeline pipeline = new JRedisClusterPipeline(model);
+			assertReplicaReads(model, policy, new KeyReader() {
+				public byte[] get (String key) throws Exception { return pipeline.get(key).get(); }
+				public void set (String key, String value) throws Exception { pipeline.set(key, value).get(); }
+			});
+			pipeline.quit().get();
+			assertReplicasClosed();
+		}
+	}
+
+	/**
+	 * The replicas of the first server's node are given distinct values of a key
+	 * of the node, so that the reads show where they were routed.
+	 */
+	private void assertReplicaReads (ClusterModel model, ReadPolicy policy, KeyReader jredis) throws Exception {
+		Log.log("... read policy %s", policy);
+		flushNodes();
+		String key = null, otherKey = null;
+		for(int k=0; null == key || null == otherKey; k++){
+			if(serverFor(model, "key:" + k) == 0) key = "key:" + k;
+			else otherKey = "key:" + k;
+		}
+
+		// writes are sent to the master
+		jredis.set(key, "master");
+		jredis.set(otherKey, "master");
+		assertEquals(new String(nodeClients[0].get(key)), "master");
+		for(int r=0; r<REPLICA_CNT; r++){
+			assertEquals(replicaClients[r].dbsize(), 0, "writes should not be sent to replicas");
+			replicaClients[r].set(key, "replica:" + r);
+		}
+
+		Set<String> readFrom = new HashSet<String>();
+		for(int i=0; i<REPLICA_CNT * 10; i++)
+			readFrom.add(new String(jredis.get(key)));
+		if(policy == ReadPolicy.MASTER_ONLY) {
+			assertEquals(readFrom.size(), 1);
+			assertTrue(readFrom.contains("master"), "reads should be sent to the master");
+		}
+		else {
+			assertFalse(readFrom.contains("master"), "reads should be sent to the replicas");
+			if(policy == ReadPolicy.ROUND_ROBIN)
+				assertEquals(readFrom.size(), REPLICA_CNT, "reads should be sent to all replicas");
+		}
+
+		// nodes with no replicas are read from their master
+		assertEquals(new String(jredis.get(otherKey)), "master");
+	}
+
+	private void assertReplicasClosed () throws InterruptedException {
+		for(int r=0; r<REPLICA_CNT; r++){
+			for(int i=0; i<20 && replicaServers[r].getConnectionCount() > 1; i++)
+				Thread.sleep(10);
+			assertEquals(replicaServers[r].getConnectionCount(), 1, "only the test client should be connected to the replica");
+		}
+	}
+
+	@Test
+	public void testSynchNodeEjection () throws Exception {
+		Log.log("Testing SynchClusterConnection ejection and re-admission of a failed node ...");
+		final LoopbackServer failing = LoopbackServer.start(LoopbackServer.Spec.newSpec());
+		try {
+			final ClusterModel model = newModelWith(failing, false);
+			final JRedisClusterClient jredis = new JRedisClusterClient(model);
+			assertNodeEjection(model, jredis.getClusterConnection(), failing, new KeyReader() {
+				public byte[] get (String key) throws Exception { return jredis.get(key); }
+				public void set (String key, String value) throws Exception { jredis.set(key, value); }
+			});
+			jredis.quit();
+		}
+		finally {
+			failing.stop();
+		}
+	}
+
+	@Test
+	public void testPipelineNodeEjection () throws Exception {
+		Log.log("Testing PipelineClusterConnection ejection and re-admission of a failed node ...");
+		final LoopbackServer failing = LoopbackServer.start(LoopbackServer.Spec.newSpec());
+		try {
+			final ClusterModel model = newModelWith(failing, false);
+			final JRedisClusterPipeline pipeline = new JRedisClusterPipeline(model);
+			assertNodeEjection(model, pipeline.getClusterConnection(), failing, new KeyReader() {
+				public byte[] get (String key) throws Exception { return pipeline.get(key).get(); }
+				public void set (String key, String value) throws Exception { pipeline.set(key, value).get(); }
+			});
+			pipeline.quit().get();
+		}
+		finally {
+			failing.stop();
+		}
+	}
+
+	@Test
+	public void testStaticModelNodeEjection () throws Exception {
+		Log.log("Testing fast fail of requests for keys of an ejected node of a static model ...");
+		final LoopbackServer failing = LoopbackServer.start(LoopbackServer.Spec.newSpec());
+		try {
+			final ClusterModel model = newModelWith(failing, true);
+			final JRedisClusterClient jredis = new JRedisClusterClient(model);
+			jredis.getClusterConnection().setNodeEjection(2, 100, TimeUnit.MILLISECONDS);
+			String key = keyOf(model, failing);
+			failing.stop();
+			for(int i=0; i<2; i++) {
+				try { jredis.set(key, "value"); fail("expecting a failed request"); }
+				catch (ClientRuntimeException e) { /* expected */ }
+			}
+			long start = System.nanoTime();
+			try { jredis.get(key); fail("expecting a fast fail of the ejected node's key"); }
+			catch (NotConnectedException e) { /* expected */ }
+			assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(100), "request of ejected node should fail fast");
+			jredis.quit();
+		}
+		finally {
+			failing.stop();
+		}
+	}
+
+	@Test
+	public void testSynchBroadcastNodeFailure () throws Exception {
+		Log.log("Testing SynchClusterConnection broadcast to all nodes regardless of a failed node ...");
+		final LoopbackServer failing = LoopbackServer.start(LoopbackServer.Spec.newSpec());
+		try {
+			final JRedisClusterClient jredis = new JRedisClusterClient(newModelWith(failing, false));
+			nodeClients[0].set("key:0", "value:0");
+			nodeClients[1].set("key:1", "value:1");
+			failing.stop();
+			try { jredis.flushdb(); fail("expecting the error of the failed node"); }
+			catch (ClientRuntimeException e) { /* expected */ }
+			assertEquals(nodeClients[0].dbsize(), 0, "live nodes should be sent the broadcast");
+			assertEquals(nodeClients[1].dbsize(), 0, "live nodes should be sent the broadcast");
+			try { jredis.quit(); fail("expecting the error of the failed node"); }
+			catch (ClientRuntimeException e) { /* expected */ }
+		}
+		finally {
+			failing.stop();
+		}
+	}
+
+	/** @return a model of the first two servers and the given server */
+	private ClusterModel newModelWith (LoopbackServer server, boolean staticModel) {
+		ClusterSpec spec = new DefaultClusterSpec();
+		spec.addNode(newNodeSpec(0));
+		spec.addNode(newNodeSpec(1));
+		spec.addNode(new DefaultClusterNodeSpec(DefaultConnectionSpec.newSpec("127.0.0.1", server.getPort(), 0, null)));
+		return staticModel ? new BasicStaticHashCluster(spec) : new KetamaClusterModel(spec);
+	}
+
+	/** @return a key of the node of the server */
+	private String keyOf (ClusterModel model, LoopbackServer server) {
+		for(int k=0; ; k++){
+			if(model.getNodeForKey(("key:" + k).getBytes()).getConnectionSpec().getPort() == server.getPort())
+				return "key:" + k;
+		}
+	}
+
+	/**
+	 * Stops the server of a node, and restarts it on the same port: its keys are
+	 * remapped to the live nodes while it is ejected, and mapped to it once it is
+	 * re-admitted.
+	 */
+	private void assertNodeEjection (ClusterModel model, ClusterConnection conn, LoopbackServer failing, KeyReader jredis) throws Exception {
+		conn.setNodeEjection(2, 100, TimeUnit.MILLISECONDS);
+		final String key = keyOf(model, failing);
+		final int port = failing.getPort();
+		jredis.set(key, "failing");
+		assertEquals(new String(jredis.get(key)), "failing");
+
+		failing.stop();
+		boolean failed = false;
+		for(int i=0; i<2 && !failed; i++) {
+			try { jredis.set(key, "value"); }
+			catch (Exception e) { failed = true; }
+		}
+		assertTrue(failed, "expecting a failed request to the stopped node");
+
+		// remapped to a live node
+		assertNull(jredis.get(key), "key of ejected node should be remapped");
+		jredis.set(key, "remapped");
+		assertEquals(new String(jredis.get(key)), "remapped");
+		assertTrue(null != nodeClients[0].get(key) || null != nodeClients[1].get(key), "remapped key should be on a live node");
+
+		// re-admitted by the prober
+		LoopbackServer restarted = LoopbackServer.start(LoopbackServer.Spec.newSpec().setPort(port));
+		try {
+			JRedis restartedClient = new JRedisClient(DefaultConnectionSpec.newSpec("127.0.0.1", port, 0, null));
+			boolean readmitted = false;
+			for(int i=0; i<50 && !readmitted; i++) {
+				Thread.sleep(20);
+				jredis.set(key, "readmitted");
+				readmitted = null != restartedClient.get(key);
+			}
+			assertTrue(readmitted, "node should be re-admitted once it responds to probes");
+			assertEquals(new String(jredis.get(key)), "readmitted");
+			restartedClient.quit();
+		}
+		finally {
+			restarted.stop();
+		}
+	}
+}